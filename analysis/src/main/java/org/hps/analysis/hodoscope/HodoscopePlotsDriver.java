@@ -180,6 +180,11 @@ public class HodoscopePlotsDriver extends ReadoutDriver {
      */
     @Override
     public void startOfData() {
+        // Define the driver collection dependencies.
+        addDependency(hodoscopeTruthHitCollectionName);
+        addDependency(hodoscopePreprocessedHitCollectionName);
+        addDependency(hodoscopeDigitizedHitCollectionName);
+        
         // Instantiate the SLIC-channel plots.
         makeEnergyPlot(getEnergyDistPlotName(TYPE_TRUTH));
         for(int layer = L1; layer <= L2; layer ++) {
@@ -2,6 +2,7 @@ package org.hps.analysis.trigger;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -16,6 +17,7 @@ import org.hps.record.daqconfig.SinglesTriggerConfig;
 import org.hps.record.triggerbank.AbstractIntData;
 import org.hps.record.triggerbank.SSPCluster;
 import org.hps.record.triggerbank.SSPData;
+import org.hps.record.triggerbank.TriggerBatch;
 import org.hps.record.triggerbank.TriggerModule;
 import org.lcsim.event.Cluster;
 import org.lcsim.event.EventHeader;
@@ -81,6 +83,7 @@ public class DataTriggerSimDriver extends Driver {
     private boolean[][] singlesCutsEnabled = new boolean[2][3];
     private TriggerModule[] pairsTrigger = new TriggerModule[2];
     private TriggerModule[] singlesTrigger = new TriggerModule[2];
+    private final TriggerBatch triggerBatch = new TriggerBatch();
 
     // Reference variables.
     private static final int ENERGY_MIN = 0;
@@ -419,61 +422,37 @@ public class DataTriggerSimDriver extends Driver {
         singlesTriggers.add(new ArrayList<SinglesTrigger<E>>());
         singlesTriggers.add(new ArrayList<SinglesTrigger<E>>());
 
-        // Run the clusters through the singles trigger to determine
-        // whether or not they pass it.
+        // Load the clusters into the trigger batch. Each cluster has
+        // the same index in the batch as in the cluster list.
+        triggerBatch.clear();
         for (E cluster : clusters) {
-            // Simulate each of the cluster singles triggers.
-            triggerLoop: for (int triggerNum = 0; triggerNum < 2; triggerNum++) {
-                // Track whether the cluster passed each singles cut.
-                boolean passSeedLow = true;
-                boolean passSeedHigh = true;
-                boolean passClusterLow = false;
-                boolean passClusterHigh = false;
-                boolean passHitCount = false;
-
-                // Perform the trigger cuts appropriately for the type
-                // of cluster.
-                if (cluster instanceof Cluster) {
-                    // Cast the cluster to the appropriate type.
-                    Cluster c = (Cluster) cluster;
-
-                    // Perform each trigger cut.
-                    passClusterLow = singlesTrigger[triggerNum].clusterTotalEnergyCutLow(c);
-                    passClusterHigh = singlesTrigger[triggerNum].clusterTotalEnergyCutHigh(c);
-                    passHitCount = singlesTrigger[triggerNum].clusterHitCountCut(c);
-
-                    if (verbose) {
-                        System.out.printf("Singles %d :: (%3d, %3d);  E = %5.3f;  N = %1.0f;  t = %3.0f%n", triggerNum,
-                                TriggerModule.getClusterXIndex(c), TriggerModule.getClusterYIndex(c),
-                                TriggerModule.getValueClusterTotalEnergy(c), TriggerModule.getClusterHitCount(c),
-                                TriggerModule.getClusterTime(c));
-                    }
-                } else if (cluster instanceof SSPCluster) {
-                    // Cast the cluster to the appropriate type.
-                    SSPCluster c = (SSPCluster) cluster;
+            if (clusterType.equals(Cluster.class)) {
+                triggerBatch.add((Cluster) cluster);
+            } else {
+                triggerBatch.add((SSPCluster) cluster);
+            }
+        }
 
-                    // Perform each trigger cut.
-                    passClusterLow = singlesTrigger[triggerNum].clusterTotalEnergyCutLow(c);
-                    passClusterHigh = singlesTrigger[triggerNum].clusterTotalEnergyCutHigh(c);
-                    passHitCount = singlesTrigger[triggerNum].clusterHitCountCut(c);
+        // Run the clusters through the singles triggers to determine
+        // whether or not they pass them.
+        for (int triggerNum = 0; triggerNum < 2; triggerNum++) {
+            // Get the cuts that a cluster must pass to be reported by
+            // the SSP for this trigger.
+            triggerBatch.setCuts(singlesTrigger[triggerNum]);
+            int requiredCuts = getRequiredSinglesCuts(singlesCutsEnabled[triggerNum]);
 
-                    if (verbose) {
-                        System.out.printf("Singles %d :: (%3d, %3d);  E = %5.3f;  N = %1.0f;  t = %3.0f%n", triggerNum,
-                                TriggerModule.getClusterXIndex(c), TriggerModule.getClusterYIndex(c),
-                                TriggerModule.getValueClusterTotalEnergy(c), TriggerModule.getClusterHitCount(c),
-                                TriggerModule.getClusterTime(c));
-                    }
-                }
-
-                // Make a trigger to store the results.
-                SinglesTrigger<E> trigger = new SinglesTrigger<E>(cluster, triggerNum);
-                trigger.setStateSeedEnergyLow(passSeedLow);
-                trigger.setStateSeedEnergyHigh(passSeedHigh);
-                trigger.setStateClusterEnergyLow(passClusterLow);
-                trigger.setStateClusterEnergyHigh(passClusterHigh);
-                trigger.setStateHitCount(passHitCount);
+            for (int clusterIndex = 0; clusterIndex < triggerBatch.size(); clusterIndex++) {
+                // Track whether the cluster passed each singles cut.
+                int passedCuts = triggerBatch.getSinglesCutMask(clusterIndex);
+                boolean passClusterLow = (passedCuts & TriggerBatch.CUT_CLUSTER_ENERGY_LOW) != 0;
+                boolean passClusterHigh = (passedCuts & TriggerBatch.CUT_CLUSTER_ENERGY_HIGH) != 0;
+                boolean passHitCount = (passedCuts & TriggerBatch.CUT_HIT_COUNT) != 0;
 
                 if (verbose) {
+                    System.out.printf("Singles %d :: (%3d, %3d);  E = %5.3f;  N = %1.0f;  t = %3.0f%n", triggerNum,
+                            triggerBatch.getXIndex(clusterIndex), triggerBatch.getYIndex(clusterIndex),
+                            triggerBatch.getEnergy(clusterIndex), (double) triggerBatch.getHitCount(clusterIndex),
+                            triggerBatch.getTime(clusterIndex));
                     System.out.printf("\t         N >= %1.0f     :: [ %5b ]%n",
                             singlesTrigger[triggerNum].getCutValue(TriggerModule.CLUSTER_HIT_COUNT_LOW), passHitCount);
                     System.out.printf("\t%5.3f <= E <= %5.3f :: [ %5b ]%n",
@@ -484,186 +463,117 @@ public class DataTriggerSimDriver extends Driver {
 
                 // A trigger will only be reported by the SSP if it
                 // passes all of the enabled cuts for that trigger.
-                // Check whether this trigger meets these conditions.
-                if (singlesCutsEnabled[triggerNum][ENERGY_MIN] && !trigger.getStateClusterEnergyLow()) {
-                    continue triggerLoop;
-                }
-                if (singlesCutsEnabled[triggerNum][ENERGY_MAX] && !trigger.getStateClusterEnergyHigh()) {
-                    continue triggerLoop;
-                }
-                if (singlesCutsEnabled[triggerNum][HIT_COUNT] && !trigger.getStateHitCount()) {
-                    continue triggerLoop;
+                if ((passedCuts & requiredCuts) != requiredCuts) {
+                    continue;
                 }
 
+                // Make a trigger to store the results.
+                SinglesTrigger<E> trigger = new SinglesTrigger<E>(clusters.get(clusterIndex), triggerNum);
+                trigger.setStateSeedEnergyLow(true);
+                trigger.setStateSeedEnergyHigh(true);
+                trigger.setStateClusterEnergyLow(passClusterLow);
+                trigger.setStateClusterEnergyHigh(passClusterHigh);
+                trigger.setStateHitCount(passHitCount);
+
                 // Store the trigger.
                 singlesTriggers.get(triggerNum).add(trigger);
             }
         }
 
-        // Store cluster pairs.
-        List<E[]> pairs = TriggerModule.getTopBottomPairs(clusters, clusterType);
-
-        // Simulate the pair triggers and record the results.
-        for (E[] pair : pairs) {
-            // Simulate each of the cluster pair triggers.
-            pairTriggerLoop: for (int triggerIndex = 0; triggerIndex < 2; triggerIndex++) {
-                // Track whether the cluster passed each singles cut.
-                boolean passSeedLow = true;
-                boolean passSeedHigh = true;
-                boolean passClusterLow = false;
-                boolean passClusterHigh = false;
-                boolean passHitCount = false;
-                boolean passPairEnergySumLow = false;
-                boolean passPairEnergySumHigh = false;
-                boolean passPairEnergyDifference = false;
-                boolean passPairEnergySlope = false;
-                boolean passPairCoplanarity = false;
-                boolean passTimeCoincidence = false;
-
-                // Apply the trigger cuts appropriately according to the
-                // cluster type.
-                if (clusterType.equals(Cluster.class)) {
-                    // Cast the cluster object.
-                    Cluster[] reconPair = {(Cluster) pair[0], (Cluster) pair[1]};
-
-                    // Check that the pair passes the time coincidence cut.
-                    // If it does not, it is not a valid pair and should be
-                    // destroyed.
-                    if (!pairsTrigger[triggerIndex].pairTimeCoincidenceCut(reconPair)) {
-                        continue pairTriggerLoop;
-                    }
-
-                    if (verbose) {
-                        System.out.printf("Pair %d :: (%3d, %3d);  E = %5.3f;  N = %1.0f;  t = %3.0f%n", triggerIndex,
-                                TriggerModule.getClusterXIndex(reconPair[0]),
-                                TriggerModule.getClusterYIndex(reconPair[0]),
-                                TriggerModule.getValueClusterTotalEnergy(reconPair[0]),
-                                TriggerModule.getClusterHitCount(reconPair[0]),
-                                TriggerModule.getClusterTime(reconPair[0]));
-                        System.out.printf("Pair %d :: (%3d, %3d);  E = %5.3f;  N = %1.0f;  t = %3.0f%n", triggerIndex,
-                                TriggerModule.getClusterXIndex(reconPair[1]),
-                                TriggerModule.getClusterYIndex(reconPair[1]),
-                                TriggerModule.getValueClusterTotalEnergy(reconPair[1]),
-                                TriggerModule.getClusterHitCount(reconPair[1]),
-                                TriggerModule.getClusterTime(reconPair[1]));
+        // Simulate the pair triggers on all top/bottom cluster pairs
+        // and record the results. Pairs are formed in the same order
+        // as by TriggerModule.getTopBottomPairs(List, Class), with the
+        // top cluster first, but only the pairs that produce triggers
+        // are created.
+        for (int triggerIndex = 0; triggerIndex < 2; triggerIndex++) {
+            // Get the cuts that a pair must pass to be reported by the
+            // SSP for this trigger. Pairs that fail the time coincidence
+            // cut are not valid pairs. Unless the cut results are to be
+            // printed, the remaining cuts only need to be evaluated for
+            // pairs that pass all of the required cuts.
+            triggerBatch.setCuts(pairsTrigger[triggerIndex]);
+            int requiredCuts = getRequiredPairCuts(pairCutsEnabled[triggerIndex]);
+            int checkedCuts = verbose ? TriggerBatch.CUT_TIME_COINCIDENCE : requiredCuts;
+
+            for (int topNum = 0; topNum < triggerBatch.getTopClusterCount(); topNum++) {
+                int top = triggerBatch.getTopCluster(topNum);
+                for (int botNum = 0; botNum < triggerBatch.getBottomClusterCount(); botNum++) {
+                    int bot = triggerBatch.getBottomCluster(botNum);
+                    if (!triggerBatch.passesPairCuts(top, bot, checkedCuts)) {
+                        continue;
                     }
 
-                    // Perform each trigger cut.
-                    passClusterLow = pairsTrigger[triggerIndex].clusterTotalEnergyCutLow(reconPair[0])
-                            && pairsTrigger[triggerIndex].clusterTotalEnergyCutLow(reconPair[1]);
-                    passClusterHigh = pairsTrigger[triggerIndex].clusterTotalEnergyCutHigh(reconPair[0])
-                            && pairsTrigger[triggerIndex].clusterTotalEnergyCutHigh(reconPair[1]);
-                    passHitCount = pairsTrigger[triggerIndex].clusterHitCountCut(reconPair[0])
-                            && pairsTrigger[triggerIndex].clusterHitCountCut(reconPair[1]);
-                    passPairEnergySumLow = pairsTrigger[triggerIndex].pairEnergySumCutLow(reconPair);
-                    passPairEnergySumHigh = pairsTrigger[triggerIndex].pairEnergySumCutHigh(reconPair);
-                    passPairEnergyDifference = pairsTrigger[triggerIndex].pairEnergyDifferenceCut(reconPair);
-                    passPairEnergySlope = pairsTrigger[triggerIndex].pairEnergySlopeCut(reconPair);
-                    passPairCoplanarity = pairsTrigger[triggerIndex].pairCoplanarityCut(reconPair);
-                    passTimeCoincidence = pairsTrigger[triggerIndex].pairTimeCoincidenceCut(reconPair);
-                } else if (clusterType.equals(SSPCluster.class)) {
-                    // Cast the cluster object.
-                    SSPCluster[] sspPair = {(SSPCluster) pair[0], (SSPCluster) pair[1]};
-
-                    // Check that the pair passes the time coincidence cut.
-                    // If it does not, it is not a valid pair and should be
-                    // destroyed.
-                    if (!pairsTrigger[triggerIndex].pairTimeCoincidenceCut(sspPair)) {
-                        continue pairTriggerLoop;
-                    }
+                    // Track whether the pair passed each cut.
+                    int passedCuts = triggerBatch.getPairCutMask(top, bot);
+                    boolean passClusterLow = (passedCuts & TriggerBatch.CUT_CLUSTER_ENERGY_LOW) != 0;
+                    boolean passClusterHigh = (passedCuts & TriggerBatch.CUT_CLUSTER_ENERGY_HIGH) != 0;
+                    boolean passHitCount = (passedCuts & TriggerBatch.CUT_HIT_COUNT) != 0;
+                    boolean passPairEnergySumLow = (passedCuts & TriggerBatch.CUT_ENERGY_SUM_LOW) != 0;
+                    boolean passPairEnergySumHigh = (passedCuts & TriggerBatch.CUT_ENERGY_SUM_HIGH) != 0;
+                    boolean passPairEnergyDifference = (passedCuts & TriggerBatch.CUT_ENERGY_DIFFERENCE) != 0;
+                    boolean passPairEnergySlope = (passedCuts & TriggerBatch.CUT_ENERGY_SLOPE) != 0;
+                    boolean passPairCoplanarity = (passedCuts & TriggerBatch.CUT_COPLANARITY) != 0;
+                    boolean passTimeCoincidence = (passedCuts & TriggerBatch.CUT_TIME_COINCIDENCE) != 0;
 
                     if (verbose) {
-                        System.out.printf("Pair %d :: (%3d, %3d);  E = %5.3f;  N = %1.0f;  t = %3.0f%n", triggerIndex,
-                                TriggerModule.getClusterXIndex(sspPair[0]), TriggerModule.getClusterYIndex(sspPair[0]),
-                                TriggerModule.getValueClusterTotalEnergy(sspPair[0]),
-                                TriggerModule.getClusterHitCount(sspPair[0]), TriggerModule.getClusterTime(sspPair[0]));
-                        System.out.printf("Pair %d :: (%3d, %3d);  E = %5.3f;  N = %1.0f;  t = %3.0f%n", triggerIndex,
-                                TriggerModule.getClusterXIndex(sspPair[1]), TriggerModule.getClusterYIndex(sspPair[1]),
-                                TriggerModule.getValueClusterTotalEnergy(sspPair[1]),
-                                TriggerModule.getClusterHitCount(sspPair[1]), TriggerModule.getClusterTime(sspPair[1]));
+                        for (int clusterIndex : new int[] {top, bot}) {
+                            System.out.printf("Pair %d :: (%3d, %3d);  E = %5.3f;  N = %1.0f;  t = %3.0f%n",
+                                    triggerIndex, triggerBatch.getXIndex(clusterIndex),
+                                    triggerBatch.getYIndex(clusterIndex), triggerBatch.getEnergy(clusterIndex),
+                                    (double) triggerBatch.getHitCount(clusterIndex),
+                                    triggerBatch.getTime(clusterIndex));
+                        }
+                        System.out.printf("\t%-5.0f >= N          :: [ %5b ]%n",
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.CLUSTER_HIT_COUNT_LOW), passHitCount);
+                        System.out.printf("\t%5.3f <= E <= %5.3f :: [ %5b ]%n",
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.CLUSTER_TOTAL_ENERGY_LOW),
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.CLUSTER_TOTAL_ENERGY_HIGH),
+                                (passClusterLow && passClusterHigh));
+                        System.out.printf("\t%5.3f <= S <= %5.3f :: [ %5b ]%n",
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_ENERGY_SUM_LOW),
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_ENERGY_SUM_HIGH),
+                                (passPairEnergySumLow && passPairEnergySumHigh));
+                        System.out.printf("\t         D <= %5.3f :: [ %5b ]%n",
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_ENERGY_DIFFERENCE_HIGH),
+                                passPairEnergyDifference);
+                        System.out.printf("\t%5.3f <= L          :: [ %5b ]%n",
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_ENERGY_SLOPE_LOW),
+                                passPairEnergySlope);
+                        System.out.printf("\t         C <= %-5.0f :: [ %5b ]%n",
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_COPLANARITY_HIGH),
+                                passPairCoplanarity);
+                        System.out.printf("\t         t <= %-5.0f :: [ %5b ]%n",
+                                pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_TIME_COINCIDENCE),
+                                passTimeCoincidence);
                     }
 
-                    // Perform each trigger cut.
-                    passClusterLow = pairsTrigger[triggerIndex].clusterTotalEnergyCutLow(sspPair[0])
-                            && pairsTrigger[triggerIndex].clusterTotalEnergyCutLow(sspPair[1]);
-                    passClusterHigh = pairsTrigger[triggerIndex].clusterTotalEnergyCutHigh(sspPair[0])
-                            && pairsTrigger[triggerIndex].clusterTotalEnergyCutHigh(sspPair[1]);
-                    passHitCount = pairsTrigger[triggerIndex].clusterHitCountCut(sspPair[0])
-                            && pairsTrigger[triggerIndex].clusterHitCountCut(sspPair[1]);
-                    passPairEnergySumLow = pairsTrigger[triggerIndex].pairEnergySumCutLow(sspPair);
-                    passPairEnergySumHigh = pairsTrigger[triggerIndex].pairEnergySumCutHigh(sspPair);
-                    passPairEnergyDifference = pairsTrigger[triggerIndex].pairEnergyDifferenceCut(sspPair);
-                    passPairEnergySlope = pairsTrigger[triggerIndex].pairEnergySlopeCut(sspPair);
-                    passPairCoplanarity = pairsTrigger[triggerIndex].pairCoplanarityCut(sspPair);
-                    passTimeCoincidence = pairsTrigger[triggerIndex].pairTimeCoincidenceCut(sspPair);
-                }
-
-                // Create a trigger from the results.
-                PairTrigger<E[]> trigger = new PairTrigger<E[]>(pair, triggerIndex);
-                trigger.setStateSeedEnergyLow(passSeedLow);
-                trigger.setStateSeedEnergyHigh(passSeedHigh);
-                trigger.setStateClusterEnergyLow(passClusterLow);
-                trigger.setStateClusterEnergyHigh(passClusterHigh);
-                trigger.setStateHitCount(passHitCount);
-                trigger.setStateEnergySumLow(passPairEnergySumLow);
-                trigger.setStateEnergySumHigh(passPairEnergySumHigh);
-                trigger.setStateEnergyDifference(passPairEnergyDifference);
-                trigger.setStateEnergySlope(passPairEnergySlope);
-                trigger.setStateCoplanarity(passPairCoplanarity);
-                trigger.setStateTimeCoincidence(passTimeCoincidence);
-
-                if (verbose) {
-                    System.out.printf("\t%-5.0f >= N          :: [ %5b ]%n",
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.CLUSTER_HIT_COUNT_LOW), passHitCount);
-                    System.out.printf("\t%5.3f <= E <= %5.3f :: [ %5b ]%n",
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.CLUSTER_TOTAL_ENERGY_LOW),
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.CLUSTER_TOTAL_ENERGY_HIGH),
-                            (passClusterLow && passClusterHigh));
-                    System.out.printf("\t%5.3f <= S <= %5.3f :: [ %5b ]%n",
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_ENERGY_SUM_LOW),
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_ENERGY_SUM_HIGH),
-                            (passPairEnergySumLow && passPairEnergySumHigh));
-                    System.out.printf("\t         D <= %5.3f :: [ %5b ]%n",
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_ENERGY_DIFFERENCE_HIGH),
-                            passPairEnergyDifference);
-                    System.out.printf("\t%5.3f <= L          :: [ %5b ]%n",
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_ENERGY_SLOPE_LOW),
-                            passPairEnergySlope);
-                    System.out.printf("\t         C <= %-5.0f :: [ %5b ]%n",
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_COPLANARITY_HIGH),
-                            passPairCoplanarity);
-                    System.out.printf("\t         t <= %-5.0f :: [ %5b ]%n",
-                            pairsTrigger[triggerIndex].getCutValue(TriggerModule.PAIR_TIME_COINCIDENCE),
-                            passTimeCoincidence);
-                }
+                    // A trigger will only be reported by the SSP if it
+                    // passes all of the enabled cuts for that trigger.
+                    if ((passedCuts & requiredCuts) != requiredCuts) {
+                        continue;
+                    }
 
-                // A trigger will only be reported by the SSP if it
-                // passes all of the enabled cuts for that trigger.
-                // Check whether this trigger meets these conditions.
-                if (pairCutsEnabled[triggerIndex][ENERGY_MIN] && !trigger.getStateClusterEnergyLow()) {
-                    continue pairTriggerLoop;
+                    // Create a trigger from the results.
+                    @SuppressWarnings("unchecked")
+                    E[] pair = (E[]) Array.newInstance(clusterType, 2);
+                    pair[0] = clusters.get(top);
+                    pair[1] = clusters.get(bot);
+                    PairTrigger<E[]> trigger = new PairTrigger<E[]>(pair, triggerIndex);
+                    trigger.setStateSeedEnergyLow(true);
+                    trigger.setStateSeedEnergyHigh(true);
+                    trigger.setStateClusterEnergyLow(passClusterLow);
+                    trigger.setStateClusterEnergyHigh(passClusterHigh);
+                    trigger.setStateHitCount(passHitCount);
+                    trigger.setStateEnergySumLow(passPairEnergySumLow);
+                    trigger.setStateEnergySumHigh(passPairEnergySumHigh);
+                    trigger.setStateEnergyDifference(passPairEnergyDifference);
+                    trigger.setStateEnergySlope(passPairEnergySlope);
+                    trigger.setStateCoplanarity(passPairCoplanarity);
+                    trigger.setStateTimeCoincidence(passTimeCoincidence);
+
+                    // Add the trigger to the list.
+                    pairTriggers.get(triggerIndex).add(trigger);
                 }
-                if (pairCutsEnabled[triggerIndex][ENERGY_MAX] && !trigger.getStateClusterEnergyHigh()) {
-                    continue pairTriggerLoop;
-                }
-                if (pairCutsEnabled[triggerIndex][HIT_COUNT] && !trigger.getStateHitCount()) {
-                    continue pairTriggerLoop;
-                }
-                if (pairCutsEnabled[triggerIndex][3 + ENERGY_SUM] && !trigger.getStateEnergySum()) {
-                    continue pairTriggerLoop;
-                }
-                if (pairCutsEnabled[triggerIndex][3 + ENERGY_DIFF] && !trigger.getStateEnergyDifference()) {
-                    continue pairTriggerLoop;
-                }
-                if (pairCutsEnabled[triggerIndex][3 + ENERGY_SLOPE] && !trigger.getStateEnergySlope()) {
-                    continue pairTriggerLoop;
-                }
-                if (pairCutsEnabled[triggerIndex][3 + COPLANARITY] && !trigger.getStateCoplanarity()) {
-                    continue pairTriggerLoop;
-                }
-
-                // Add the trigger to the list.
-                pairTriggers.get(triggerIndex).add(trigger);
             }
         }
 
@@ -715,6 +625,53 @@ public class DataTriggerSimDriver extends Driver {
         this.simTriggerCollectionName = triggerCollection;
     }
 
+    /**
+     * Gets the trigger batch cuts that a cluster pair must pass to
+     * produce a pair trigger.
+     * 
+     * @param cutsEnabled - The enabled statuses of the pair trigger
+     * cuts.
+     * @return Returns a bit mask of the required cuts.
+     */
+    private static final int getRequiredPairCuts(boolean[] cutsEnabled) {
+        int requiredCuts = getRequiredSinglesCuts(cutsEnabled) | TriggerBatch.CUT_TIME_COINCIDENCE;
+        if (cutsEnabled[3 + ENERGY_SUM]) {
+            requiredCuts |= TriggerBatch.CUT_ENERGY_SUM_LOW | TriggerBatch.CUT_ENERGY_SUM_HIGH;
+        }
+        if (cutsEnabled[3 + ENERGY_DIFF]) {
+            requiredCuts |= TriggerBatch.CUT_ENERGY_DIFFERENCE;
+        }
+        if (cutsEnabled[3 + ENERGY_SLOPE]) {
+            requiredCuts |= TriggerBatch.CUT_ENERGY_SLOPE;
+        }
+        if (cutsEnabled[3 + COPLANARITY]) {
+            requiredCuts |= TriggerBatch.CUT_COPLANARITY;
+        }
+        return requiredCuts;
+    }
+
+    /**
+     * Gets the trigger batch cuts that a cluster must pass to produce
+     * a singles trigger.
+     * 
+     * @param cutsEnabled - The enabled statuses of the singles trigger
+     * cuts.
+     * @return Returns a bit mask of the required cuts.
+     */
+    private static final int getRequiredSinglesCuts(boolean[] cutsEnabled) {
+        int requiredCuts = 0;
+        if (cutsEnabled[ENERGY_MIN]) {
+            requiredCuts |= TriggerBatch.CUT_CLUSTER_ENERGY_LOW;
+        }
+        if (cutsEnabled[ENERGY_MAX]) {
+            requiredCuts |= TriggerBatch.CUT_CLUSTER_ENERGY_HIGH;
+        }
+        if (cutsEnabled[HIT_COUNT]) {
+            requiredCuts |= TriggerBatch.CUT_HIT_COUNT;
+        }
+        return requiredCuts;
+    }
+
     /**
      * Gets the trigger time of an arbitrary trigger, so long as its
      * source is either a <code>Cluster</code> or <code>SSPCluster</code> object. Method also supports pairs of these
@@ -38,7 +38,7 @@ public class FEETupleDriver extends TupleMaker {
 
             fillParticleVariables(event, fsp, "fsp", false, false, false);
 
-            if (tupleWriter != null) {
+            if (hasTupleOutput()) {
                 if (!cutTuple || (passesCuts())) {
                     writeTuple();
                 }
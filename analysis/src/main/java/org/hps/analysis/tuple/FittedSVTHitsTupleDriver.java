@@ -235,7 +235,7 @@ public class FittedSVTHitsTupleDriver extends MCTupleMaker {
             tupleMap.put("Amp/D", shape.getAmp());
             tupleMap.put("AmpErr/D", shape.getAmpErr());
             tupleMap.put("ChiProb/D", shape.getChiProb());
-            if (tupleWriter != null) {
+            if (hasTupleOutput()) {
 //                System.out.println("writing tuple");
                 writeTuple();
             }
@@ -36,7 +36,7 @@ public class MollerTupleDriver extends TupleMaker {
         for (ReconstructedParticle uncV0 : unConstrainedV0List) {
             tupleMap.clear();
             boolean isOK = fillBasicTuple(event, triggerData, uncV0, true);
-            if (tupleWriter != null && isOK) {
+            if (hasTupleOutput() && isOK) {
                 if (!cutTuple || (passesCuts())) {
                     writeTuple();
                 }
@@ -241,7 +241,7 @@ public class RawSVTHitsTupleDriver extends MCTupleMaker {
                 // System.out.println(tString+" "+(double) (samples[i] / 1.0));
                 tupleMap.put(tString, (double) (samples[i] / 1.0));
             }
-            if (tupleWriter != null) {
+            if (hasTupleOutput()) {
 //                System.out.println("writing tuple");
                 writeTuple();
 
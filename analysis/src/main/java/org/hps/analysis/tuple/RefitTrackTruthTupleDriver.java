@@ -90,7 +90,7 @@ public class RefitTrackTruthTupleDriver extends TupleMaker {
             tupleMap.clear();
             boolean isOK = fillBasicRefitTuple(event, triggerData, uncV0);
             fillTruthRefitVariables(event,uncV0);
-            if (tupleWriter != null && isOK) {
+            if (hasTupleOutput() && isOK) {
                 writeTuple();
             }
         }
@@ -456,7 +456,7 @@ public class SVTTimingTupleDriver extends MCTupleMaker {
 
             } else
                 System.out.println("Requested RF Time correction but TriggerTime Collection doesn't exist!!!");
-            if (tupleWriter != null) {
+            if (hasTupleOutput()) {
                 System.out.println("writing tuple");
                 writeTuple();
             }
@@ -39,7 +39,7 @@ public class TridentFullTupleDriver extends FullTruthTupleMaker {
             ReconstructedParticle positron = uncV0.getParticles().get(ReconParticleDriver.POSITRON);
             fillFullVertexTruth(event,electron.getTracks().get(0),positron.getTracks().get(0));
             
-            if (tupleWriter != null && isOK) {
+            if (hasTupleOutput() && isOK) {
                 if (!cutTuple || (passesCuts())) {
                     writeTuple();
                 }
@@ -32,7 +32,7 @@ public class TridentMCTupleDriver extends MCTupleMaker {
             tupleMap.clear();
             boolean isOK = fillBasicTuple(event, triggerData, uncV0, false);
             fillMCTridentVariables(event);
-            if (tupleWriter != null && isOK) {
+            if (hasTupleOutput() && isOK) {
                 if (!cutTuple || (passesCuts())) {
                     writeTuple();
                 }
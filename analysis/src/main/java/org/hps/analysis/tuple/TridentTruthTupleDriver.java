@@ -15,7 +15,7 @@ public class TridentTruthTupleDriver extends MCTupleMaker {
 
         fillMCTridentVariables(event);
 
-        if (tupleWriter != null) {
+        if (hasTupleOutput()) {
             writeTuple();
         }
     }
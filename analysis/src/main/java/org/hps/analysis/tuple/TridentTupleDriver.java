@@ -32,7 +32,7 @@ public class TridentTupleDriver extends TupleMaker {
         for (ReconstructedParticle uncV0 : unConstrainedV0List) {
             tupleMap.clear();
             boolean isOK = fillBasicTuple(event, triggerData, uncV0, false);
-            if (tupleWriter != null && isOK) {
+            if (hasTupleOutput() && isOK) {
                 if (!cutTuple || (passesCuts())) {
                     writeTuple();
                 }
@@ -0,0 +1,199 @@
+package org.hps.analysis.tuple;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Reads tuple files written by {@link TupleFileWriter}. The file is read one
+ * block at a time, and the values of a block are available column by column.
+ *
+ * Run as a program to convert a binary tuple to the text tuple format:
+ * <pre>
+ * java org.hps.analysis.tuple.TupleFileReader tuple.bin [tuple.txt]
+ * </pre>
+ * The text is written to standard output if no output file is given.
+ */
+public class TupleFileReader {
+
+    private final DataInputStream input;
+    private final TupleSchema schema;
+    private final Inflater inflater = new Inflater();
+    private final double[][] columns;
+    private int rows = 0;
+    private byte[] blockBuffer = new byte[1024];
+    private byte[] compressedBuffer = new byte[1024];
+    private int position = 0;
+
+    public TupleFileReader(String fileName) throws IOException {
+        this(new FileInputStream(fileName));
+    }
+
+    public TupleFileReader(InputStream stream) throws IOException {
+        input = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+        if (input.readInt() != TupleFileWriter.MAGIC) {
+            throw new IOException("not a binary tuple file");
+        }
+        int version = input.readUnsignedShort();
+        if (version != TupleFileWriter.VERSION) {
+            throw new IOException("unsupported tuple file version " + version);
+        }
+        int columnCount = input.readInt();
+        List<String> variables = new ArrayList<String>(columnCount);
+        for (int column = 0; column < columnCount; column++) {
+            variables.add(input.readUTF());
+        }
+        schema = new TupleSchema(variables);
+        columns = new double[columnCount][TupleFileWriter.BLOCK_ROWS];
+    }
+
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return the variable names, in column order
+     */
+    public List<String> getVariables() {
+        return schema.getVariables();
+    }
+
+    /**
+     * Reads the next block of rows.
+     *
+     * @return false if the end of the file has been reached
+     */
+    public boolean readBlock() throws IOException {
+        try {
+            rows = input.readInt();
+        } catch (EOFException e) {
+            rows = 0;
+            return false;
+        }
+        int blockSize = input.readInt();
+        int compressedSize = input.readInt();
+        if (rows <= 0 || rows > TupleFileWriter.BLOCK_ROWS || blockSize < 0 || compressedSize < 0) {
+            throw new IOException("corrupt tuple block header");
+        }
+        if (compressedBuffer.length < compressedSize) {
+            compressedBuffer = new byte[compressedSize];
+        }
+        if (blockBuffer.length < blockSize) {
+            blockBuffer = new byte[blockSize];
+        }
+        input.readFully(compressedBuffer, 0, compressedSize);
+
+        inflater.reset();
+        inflater.setInput(compressedBuffer, 0, compressedSize);
+        try {
+            if (inflater.inflate(blockBuffer, 0, blockSize) != blockSize || !inflater.finished()) {
+                throw new IOException("corrupt tuple block data");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("corrupt tuple block data", e);
+        }
+
+        position = 0;
+        for (int column = 0; column < columns.length; column++) {
+            if (schema.isIntegerColumn(column)) {
+                decodeIntegers(columns[column]);
+            } else {
+                decodeFloats(columns[column]);
+            }
+        }
+        if (position != blockSize) {
+            throw new IOException("corrupt tuple block data");
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of rows in the current block
+     */
+    public int getRowCount() {
+        return rows;
+    }
+
+    /**
+     * @return the values of a column in the current block; only the first
+     * {@link #getRowCount()} entries are valid, and the array is reused by the
+     * next block
+     */
+    public double[] getColumn(int column) {
+        return columns[column];
+    }
+
+    public void close() throws IOException {
+        inflater.end();
+        input.close();
+    }
+
+    private void decodeFloats(double[] values) throws IOException {
+        if (position + 4 * rows > blockBuffer.length) {
+            throw new IOException("corrupt tuple block data");
+        }
+        for (int row = 0; row < rows; row++) {
+            int bits = (blockBuffer[position + row] & 0xFF) << 24 | (blockBuffer[position + rows + row] & 0xFF) << 16
+                    | (blockBuffer[position + 2 * rows + row] & 0xFF) << 8 | (blockBuffer[position + 3 * rows + row] & 0xFF);
+            values[row] = Float.intBitsToFloat(bits);
+        }
+        position += 4 * rows;
+    }
+
+    private void decodeIntegers(double[] values) throws IOException {
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            long zigzag = 0;
+            for (int shift = 0;; shift += 7) {
+                if (position >= blockBuffer.length || shift > 63) {
+                    throw new IOException("corrupt tuple block data");
+                }
+                byte b = blockBuffer[position++];
+                zigzag |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            previous += (zigzag >>> 1) ^ -(zigzag & 1);
+            values[row] = previous;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("usage: TupleFileReader <binary tuple> [text tuple]");
+            System.exit(1);
+        }
+        TupleFileReader reader = new TupleFileReader(args[0]);
+        PrintWriter writer = args.length > 1 ? new PrintWriter(args[1]) : new PrintWriter(System.out);
+        try {
+            TupleSchema schema = reader.getSchema();
+            writer.println(StringUtils.join(schema.getVariables(), ":"));
+            while (reader.readBlock()) {
+                for (int row = 0; row < reader.getRowCount(); row++) {
+                    for (int column = 0; column < schema.getColumnCount(); column++) {
+                        if (schema.isIntegerColumn(column)) {
+                            writer.format("%d\t", (long) reader.getColumn(column)[row]);
+                        } else {
+                            writer.format("%g\t", reader.getColumn(column)[row]);
+                        }
+                    }
+                    writer.println();
+                }
+            }
+        } finally {
+            writer.close();
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package org.hps.analysis.tuple;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+
+/**
+ * Writes tuples in a compressed, columnar binary format. Rows are collected in
+ * blocks of {@link #BLOCK_ROWS} rows; each block is stored column by column
+ * and compressed with deflate. Use {@link TupleFileReader} to read the files
+ * back or to convert them to the text tuple format.
+ *
+ * File layout (big-endian, as written by {@link DataOutputStream}):
+ * <ul>
+ * <li>header: magic number {@link #MAGIC}, format version, number of columns,
+ * then the name of each column (modified UTF-8)</li>
+ * <li>blocks: number of rows, uncompressed size and compressed size of the
+ * block data, then the compressed data</li>
+ * </ul>
+ * Within a block, floating point columns are stored as single precision
+ * values, which keeps all of the significant digits written by the text
+ * format, with the bytes of the values grouped by significance so that they
+ * compress well. Integer columns are stored as zig-zag encoded variable length
+ * differences from the previous row.
+ */
+public class TupleFileWriter {
+
+    public static final int MAGIC = 0x48505354;
+    public static final int VERSION = 1;
+    public static final int BLOCK_ROWS = 4096;
+
+    private final TupleSchema schema;
+    private final DataOutputStream output;
+    private final Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+    private final float[][] floatColumns;
+    private final long[][] integerColumns;
+    private int rows = 0;
+    private byte[] blockBuffer = new byte[1024];
+    private byte[] compressedBuffer = new byte[1024];
+    private int blockSize = 0;
+
+    public TupleFileWriter(String fileName, TupleSchema schema) throws IOException {
+        this(new FileOutputStream(fileName), schema);
+    }
+
+    public TupleFileWriter(OutputStream stream, TupleSchema schema) throws IOException {
+        this.schema = schema;
+        output = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+        floatColumns = new float[schema.getColumnCount()][];
+        integerColumns = new long[schema.getColumnCount()][];
+        for (int column = 0; column < schema.getColumnCount(); column++) {
+            if (schema.isIntegerColumn(column)) {
+                integerColumns[column] = new long[BLOCK_ROWS];
+            } else {
+                floatColumns[column] = new float[BLOCK_ROWS];
+            }
+        }
+
+        output.writeInt(MAGIC);
+        output.writeShort(VERSION);
+        output.writeInt(schema.getColumnCount());
+        for (String variable : schema.getVariables()) {
+            output.writeUTF(variable);
+        }
+    }
+
+    /**
+     * Adds the current contents of a row to the tuple.
+     */
+    public void writeRow(TupleRow row) throws IOException {
+        if (row.getSchema() != schema) {
+            throw new IllegalArgumentException("row does not use the schema of this tuple file");
+        }
+        for (int column = 0; column < floatColumns.length; column++) {
+            double value = row.getColumnValue(column);
+            if (integerColumns[column] != null) {
+                integerColumns[column][rows] = Math.round(value);
+            } else {
+                floatColumns[column][rows] = (float) value;
+            }
+        }
+        rows++;
+        if (rows == BLOCK_ROWS) {
+            writeBlock();
+        }
+    }
+
+    /**
+     * Writes any buffered rows and closes the file.
+     */
+    public void close() throws IOException {
+        try {
+            writeBlock();
+        } finally {
+            deflater.end();
+            output.close();
+        }
+    }
+
+    private void writeBlock() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        blockSize = 0;
+        for (int column = 0; column < floatColumns.length; column++) {
+            if (integerColumns[column] != null) {
+                encodeIntegers(integerColumns[column]);
+            } else {
+                encodeFloats(floatColumns[column]);
+            }
+        }
+
+        deflater.reset();
+        deflater.setInput(blockBuffer, 0, blockSize);
+        deflater.finish();
+        int compressedSize = 0;
+        while (!deflater.finished()) {
+            if (compressedSize == compressedBuffer.length) {
+                compressedBuffer = grow(compressedBuffer, compressedSize + 1);
+            }
+            compressedSize += deflater.deflate(compressedBuffer, compressedSize, compressedBuffer.length - compressedSize);
+        }
+
+        output.writeInt(rows);
+        output.writeInt(blockSize);
+        output.writeInt(compressedSize);
+        output.write(compressedBuffer, 0, compressedSize);
+        rows = 0;
+    }
+
+    private void encodeFloats(float[] values) {
+        ensureBlockCapacity(4 * rows);
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            for (int row = 0; row < rows; row++) {
+                blockBuffer[blockSize++] = (byte) (Float.floatToIntBits(values[row]) >>> shift);
+            }
+        }
+    }
+
+    private void encodeIntegers(long[] values) {
+        long previous = 0;
+        for (int row = 0; row < rows; row++) {
+            long delta = values[row] - previous;
+            previous = values[row];
+            long zigzag = (delta << 1) ^ (delta >> 63);
+            ensureBlockCapacity(10);
+            while ((zigzag & ~0x7FL) != 0) {
+                blockBuffer[blockSize++] = (byte) ((zigzag & 0x7F) | 0x80);
+                zigzag >>>= 7;
+            }
+            blockBuffer[blockSize++] = (byte) zigzag;
+        }
+    }
+
+    private void ensureBlockCapacity(int bytes) {
+        if (blockSize + bytes > blockBuffer.length) {
+            blockBuffer = grow(blockBuffer, blockSize + bytes);
+        }
+    }
+
+    private static byte[] grow(byte[] buffer, int minimumLength) {
+        byte[] newBuffer = new byte[Math.max(minimumLength, 2 * buffer.length)];
+        System.arraycopy(buffer, 0, newBuffer, 0, buffer.length);
+        return newBuffer;
+    }
+}
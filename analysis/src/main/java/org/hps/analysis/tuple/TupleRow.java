@@ -0,0 +1,187 @@
+package org.hps.analysis.tuple;
+
+import java.io.PrintWriter;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Row buffer for a tuple. Values are kept in a primitive array indexed by
+ * slot. The variables of the compiled {@link TupleSchema} have the slots of
+ * the schema; any other names (e.g. values put before the schema is compiled)
+ * are given the following slots when they are first set, and are not written.
+ * The row can be used through the {@link Map} interface, so tuple drivers can
+ * keep filling variables by name, and is read back by the writers by slot.
+ *
+ * As with the map it replaces, values are kept until they are overwritten or
+ * the row is cleared.
+ */
+public class TupleRow extends AbstractMap<String, Double> {
+
+    private TupleSchema schema = new TupleSchema(new ArrayList<String>());
+    private double[] values = new double[0];
+    private boolean[] present = new boolean[0];
+    private final Map<String, Integer> extraSlots = new HashMap<String, Integer>();
+
+    /**
+     * Switches the row to a new schema. Values that are already set are kept.
+     */
+    public void compile(TupleSchema schema) {
+        Map<String, Double> oldValues = new HashMap<String, Double>(this);
+        this.schema = schema;
+        values = new double[schema.getSlotCount()];
+        present = new boolean[schema.getSlotCount()];
+        extraSlots.clear();
+        putAll(oldValues);
+    }
+
+    public TupleSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @return the slot of the given variable, or -1 if no value has been set
+     * for a variable that is not part of the schema
+     */
+    private int findSlot(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        int slot = schema.getSlot((String) key);
+        if (slot < 0) {
+            Integer extraSlot = extraSlots.get(key);
+            slot = extraSlot == null ? -1 : extraSlot;
+        }
+        return slot;
+    }
+
+    /**
+     * @return the slot of the given variable. A variable that is not part of
+     * the schema is given a new slot, which is kept until the row is compiled
+     * again.
+     */
+    public int getSlot(String variable) {
+        int slot = findSlot(variable);
+        if (slot < 0) {
+            slot = values.length;
+            extraSlots.put(variable, slot);
+            values = Arrays.copyOf(values, slot + 1);
+            present = Arrays.copyOf(present, slot + 1);
+        }
+        return slot;
+    }
+
+    /**
+     * Sets a value by slot.
+     */
+    public void set(int slot, double value) {
+        values[slot] = value;
+        present[slot] = true;
+    }
+
+    /**
+     * Sets a value by slot, or unsets it if the value is null.
+     */
+    public void set(int slot, Double value) {
+        if (value == null) {
+            present[slot] = false;
+        } else {
+            set(slot, value.doubleValue());
+        }
+    }
+
+    /**
+     * Sets a value by name.
+     */
+    public void set(String variable, double value) {
+        set(getSlot(variable), value);
+    }
+
+    /**
+     * @return the value in the given column as it is written to the tuple:
+     * unset and NaN values are replaced by {@link TupleSchema#MISSING_VALUE}
+     */
+    public double getColumnValue(int column) {
+        int slot = schema.getColumnSlot(column);
+        double value = values[slot];
+        if (!present[slot] || Double.isNaN(value)) {
+            return TupleSchema.MISSING_VALUE;
+        }
+        return value;
+    }
+
+    /**
+     * Writes the row as a line of the text tuple format: the value of each
+     * column followed by a tab, with integer columns rounded to the nearest
+     * integer.
+     */
+    public void writeText(PrintWriter writer) {
+        for (int column = 0; column < schema.getColumnCount(); column++) {
+            double value = getColumnValue(column);
+            if (schema.isIntegerColumn(column)) {
+                writer.format("%d\t", Math.round(value));
+            } else {
+                writer.format("%g\t", value);
+            }
+        }
+        writer.println();
+    }
+
+    @Override
+    public Double get(Object key) {
+        int slot = findSlot(key);
+        return slot >= 0 && present[slot] ? values[slot] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = findSlot(key);
+        return slot >= 0 && present[slot];
+    }
+
+    @Override
+    public Double put(String key, Double value) {
+        int slot = getSlot(key);
+        Double oldValue = present[slot] ? values[slot] : null;
+        set(slot, value);
+        return oldValue;
+    }
+
+    @Override
+    public Double remove(Object key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        Double oldValue = present[slot] ? values[slot] : null;
+        present[slot] = false;
+        return oldValue;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(present, false);
+    }
+
+    @Override
+    public Set<Map.Entry<String, Double>> entrySet() {
+        Set<Map.Entry<String, Double>> entries = new HashSet<Map.Entry<String, Double>>();
+        for (String variable : schema.getVariables()) {
+            int slot = schema.getSlot(variable);
+            if (present[slot]) {
+                entries.add(new SimpleImmutableEntry<String, Double>(variable, values[slot]));
+            }
+        }
+        for (Map.Entry<String, Integer> extraSlot : extraSlots.entrySet()) {
+            int slot = extraSlot.getValue();
+            if (present[slot]) {
+                entries.add(new SimpleImmutableEntry<String, Double>(extraSlot.getKey(), values[slot]));
+            }
+        }
+        return entries;
+    }
+}
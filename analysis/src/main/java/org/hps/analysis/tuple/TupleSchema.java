@@ -0,0 +1,89 @@
+package org.hps.analysis.tuple;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled layout of a tuple. Each variable name (e.g. "eleP/D") is assigned
+ * a slot in a primitive row buffer once, when the tuple variables are set up,
+ * so that rows can be written by column index instead of by name.
+ *
+ * Variables ending in "/I" or "/B" are integer columns and are written rounded
+ * to the nearest integer; all other variables are floating point columns. A
+ * name that is listed more than once is written in each of its columns but
+ * shares a single slot.
+ */
+public class TupleSchema {
+
+    /**
+     * Value written for variables that are unset or NaN.
+     */
+    public static final double MISSING_VALUE = -9999.0;
+
+    private final List<String> variables;
+    private final boolean[] integerColumn;
+    private final int[] columnSlot;
+    private final Map<String, Integer> slotMap = new HashMap<String, Integer>();
+
+    public TupleSchema(List<String> variables) {
+        this.variables = Collections.unmodifiableList(new ArrayList<String>(variables));
+        integerColumn = new boolean[this.variables.size()];
+        columnSlot = new int[this.variables.size()];
+        for (int column = 0; column < this.variables.size(); column++) {
+            String variable = this.variables.get(column);
+            integerColumn[column] = isIntegerVariable(variable);
+            Integer slot = slotMap.get(variable);
+            if (slot == null) {
+                slot = slotMap.size();
+                slotMap.put(variable, slot);
+            }
+            columnSlot[column] = slot;
+        }
+    }
+
+    /**
+     * @return the variable names, in column order
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    public int getColumnCount() {
+        return columnSlot.length;
+    }
+
+    /**
+     * @return the number of distinct variables, which is the size of a row
+     * buffer for this schema
+     */
+    public int getSlotCount() {
+        return slotMap.size();
+    }
+
+    /**
+     * @return the row buffer slot of the given column
+     */
+    public int getColumnSlot(int column) {
+        return columnSlot[column];
+    }
+
+    /**
+     * @return the row buffer slot of the given variable, or -1 if the variable
+     * is not part of the tuple
+     */
+    public int getSlot(String variable) {
+        Integer slot = slotMap.get(variable);
+        return slot == null ? -1 : slot;
+    }
+
+    public boolean isIntegerColumn(int column) {
+        return integerColumn[column];
+    }
+
+    public static boolean isIntegerVariable(String variable) {
+        return variable.endsWith("/I") || variable.endsWith("/B");
+    }
+}
@@ -0,0 +1,67 @@
+package org.hps.analysis.tuple;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Cached row buffer slots of a group of tuple variables that are filled
+ * together for several prefixes, e.g. the track variables of "ele" and "pos".
+ * The variable names of the {@link TupleVariableGroup} are given without the
+ * prefix and an optional suffix, e.g. the layer number and type of the track
+ * extrapolation variables.
+ *
+ * The slots of each prefix are looked up once for each compiled schema of the
+ * row, so the fill methods set values by slot instead of building each
+ * variable name, boxing the value and looking the name up for every row.
+ */
+public class TupleSlots {
+
+    private final TupleRow row;
+    private final TupleVariableGroup variables;
+    private final String suffix;
+    private final Map<String, int[]> prefixSlots = new HashMap<String, int[]>();
+    private TupleSchema schema = null;
+    private int[] slots = null;
+
+    public TupleSlots(TupleRow row, TupleVariableGroup variables) {
+        this(row, variables, "");
+    }
+
+    public TupleSlots(TupleRow row, TupleVariableGroup variables, String suffix) {
+        this.row = row;
+        this.variables = variables;
+        this.suffix = suffix;
+    }
+
+    /**
+     * Selects the prefix of the variables that are set by the set methods.
+     *
+     * @return this
+     */
+    public TupleSlots select(String prefix) {
+        if (row.getSchema() != schema) {
+            prefixSlots.clear();
+            schema = row.getSchema();
+        }
+        slots = prefixSlots.get(prefix);
+        if (slots == null) {
+            slots = new int[variables.size()];
+            for (int variable = 0; variable < slots.length; variable++) {
+                slots[variable] = row.getSlot(prefix + variables.getName(variable) + suffix);
+            }
+            prefixSlots.put(prefix, slots);
+        }
+        return this;
+    }
+
+    public void set(int variable, double value) {
+        row.set(slots[variable], value);
+    }
+
+    /**
+     * Sets the value of a variable, or unsets it if the value is null.
+     */
+    public void set(int variable, Double value) {
+        row.set(slots[variable], value);
+    }
+}
@@ -0,0 +1,33 @@
+package org.hps.analysis.tuple;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A group of tuple variables that are filled together, e.g. the track
+ * variables of a particle. Each variable is declared once by name, without the
+ * prefix and suffix that {@link TupleSlots} adds, and is referred to by the
+ * index that {@link #add(String)} returns.
+ */
+public class TupleVariableGroup {
+
+    private final List<String> names = new ArrayList<String>();
+
+    /**
+     * Declares the next variable of the group.
+     *
+     * @return the index of the variable
+     */
+    public int add(String name) {
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    public String getName(int variable) {
+        return names.get(variable);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
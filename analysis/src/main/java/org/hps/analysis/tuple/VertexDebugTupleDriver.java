@@ -1037,7 +1037,7 @@ public class VertexDebugTupleDriver extends MCTupleMaker {
         tupleMap.put("pPosYErrRefitBSC/D", vtxFitBSCShift.getFittedMomentumError(1).y());
         tupleMap.put("pPosZErrRefitBSC/D", vtxFitBSCShift.getFittedMomentumError(1).z());
 
-        if (tupleWriter != null)
+        if (hasTupleOutput())
             writeTuple();
     }
 
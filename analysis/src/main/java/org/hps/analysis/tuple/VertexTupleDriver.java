@@ -485,7 +485,7 @@ public class VertexTupleDriver extends MCTupleMaker {
             index++;
         }
 
-        if (tupleWriter != null){
+        if (hasTupleOutput()){
             System.out.println("!!!!!!!!!!!!!!!!!       VertexTupleDriver::DONE WITH THIS EVENT           !!!!!!!!!!!!!!!!");
             writeTuple();
         }
@@ -23,7 +23,7 @@ public class WABTridentFullTupleDriver extends FullTruthTupleMaker {
         fillMCFullTruthVariables(event);
         fillMCWabVariables(event);
 
-        if (tupleWriter != null) {
+        if (hasTupleOutput()) {
             writeTuple();
         }
     }
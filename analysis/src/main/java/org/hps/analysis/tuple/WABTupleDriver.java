@@ -51,7 +51,7 @@ public class WABTupleDriver extends TupleMaker {
                 fillParticleVariables(event, ele, "ele");
                 fillParticleVariables(event, pho, "pho");
 
-                if (tupleWriter != null) {
+                if (hasTupleOutput()) {
 
                     if (!cutTuple || (passesCuts())) {
 
@@ -0,0 +1,117 @@
+package org.hps.analysis.tuple;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Writes a binary tuple and checks that it reads back the values that would
+ * have been written to the text tuple, and checks that the text tuple is
+ * written as it was before the schema was compiled.
+ */
+public class TupleFileTest extends TestCase {
+
+    public void testRoundTrip() throws Exception {
+        List<String> variables = Arrays.asList("run/I", "isPair/B", "eleP/D", "posP/D");
+        TupleRow row = new TupleRow();
+        row.compile(new TupleSchema(variables));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TupleFileWriter writer = new TupleFileWriter(bytes, row.getSchema());
+        int nRows = TupleFileWriter.BLOCK_ROWS + 10;
+        for (int i = 0; i < nRows; i++) {
+            row.clear();
+            row.put("run/I", 5772.0 + i / 100);
+            row.put("isPair/B", (double) (i % 2));
+            row.put("eleP/D", i % 3 == 0 ? Double.NaN : 0.001 * i);
+            writer.writeRow(row);
+        }
+        writer.close();
+
+        TupleFileReader reader = new TupleFileReader(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(variables, reader.getVariables());
+        int i = 0;
+        while (reader.readBlock()) {
+            for (int r = 0; r < reader.getRowCount(); r++, i++) {
+                assertEquals(5772.0 + i / 100, reader.getColumn(0)[r]);
+                assertEquals((double) (i % 2), reader.getColumn(1)[r]);
+                assertEquals(i % 3 == 0 ? TupleSchema.MISSING_VALUE : (float) (0.001 * i), reader.getColumn(2)[r]);
+                assertEquals(TupleSchema.MISSING_VALUE, reader.getColumn(3)[r]);
+            }
+        }
+        reader.close();
+        assertEquals(nRows, i);
+    }
+
+    public void testTextOutput() {
+        List<String> variables = Arrays.asList("run/I", "event/I", "isPair/B", "eleP/D", "posP/D", "uncM/D",
+                "eleChisq/D", "run/I", "nTrk/I", "uncVZ/D");
+        TupleRow row = new TupleRow();
+        row.compile(new TupleSchema(variables));
+        Map<String, Double> map = new HashMap<String, Double>();
+        StringWriter text = new StringWriter();
+        StringWriter oldText = new StringWriter();
+        PrintWriter writer = new PrintWriter(text);
+        PrintWriter oldWriter = new PrintWriter(oldText);
+
+        Random random = new Random(25);
+        for (int i = 0; i < 1000; i++) {
+            row.clear();
+            map.clear();
+            for (String variable : variables) {
+                double value;
+                switch (random.nextInt(8)) {
+                case 0:
+                    continue;
+                case 1:
+                    value = Double.NaN;
+                    break;
+                case 2:
+                    value = random.nextInt(5) - 2.5;
+                    break;
+                case 3:
+                    value = random.nextBoolean() ? Double.POSITIVE_INFINITY : 0.0;
+                    break;
+                default:
+                    value = random.nextGaussian() * Math.pow(10, random.nextInt(20) - 10);
+                }
+                row.put(variable, value);
+                map.put(variable, value);
+            }
+            row.put("notInTuple/D", 1.0);
+            map.put("notInTuple/D", 1.0);
+            row.writeText(writer);
+            writeOldText(variables, map, oldWriter);
+        }
+        writer.flush();
+        oldWriter.flush();
+        assertEquals(oldText.toString(), text.toString());
+    }
+
+    /**
+     * Writes a row the way TupleMaker.writeTuple() did before the schema was
+     * compiled, by looking up each variable by name.
+     */
+    private static void writeOldText(List<String> variables, Map<String, Double> map, PrintWriter writer) {
+        for (String variable : variables) {
+            Double value = map.get(variable);
+            if (value == null || Double.isNaN(value)) {
+                value = -9999.0;
+            }
+            if (variable.endsWith("/I") || variable.endsWith("/B")) {
+                writer.format("%d\t", Math.round(value));
+            } else {
+                writer.format("%g\t", value);
+            }
+        }
+        writer.println();
+    }
+}
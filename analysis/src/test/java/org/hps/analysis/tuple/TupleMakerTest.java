@@ -0,0 +1,415 @@
+package org.hps.analysis.tuple;
+
+import hep.physics.matrix.Matrix;
+import hep.physics.matrix.MatrixOp;
+import hep.physics.matrix.SymmetricMatrix;
+import hep.physics.vec.BasicHep3Matrix;
+import hep.physics.vec.BasicHep3Vector;
+import hep.physics.vec.BasicHepLorentzVector;
+import hep.physics.vec.Hep3Vector;
+import hep.physics.vec.VecOp;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.hps.recon.tracking.TrackType;
+import org.hps.recon.vertexing.BilliorVertex;
+import org.hps.record.triggerbank.TIData;
+import org.lcsim.event.CalorimeterHit;
+import org.lcsim.event.Cluster;
+import org.lcsim.event.EventHeader;
+import org.lcsim.event.GenericObject;
+import org.lcsim.event.LCRelation;
+import org.lcsim.event.RawTrackerHit;
+import org.lcsim.event.ReconstructedParticle;
+import org.lcsim.event.TrackerHit;
+import org.lcsim.event.Vertex;
+import org.lcsim.event.base.BaseCalorimeterHit;
+import org.lcsim.event.base.BaseCluster;
+import org.lcsim.event.base.BaseLCRelation;
+import org.lcsim.event.base.BaseLCSimEvent;
+import org.lcsim.event.base.BaseReconstructedParticle;
+import org.lcsim.event.base.BaseVertex;
+
+/**
+ * Checks that the variable groups of {@link TupleMaker} name the variables
+ * that it declares, and that its fill methods set the same values as putting
+ * each variable into the tuple map by name, as the fill methods used to do.
+ */
+public class TupleMakerTest extends TestCase {
+
+    public void testDeclaredVariables() {
+        TestTupleMaker maker = new TestTupleMaker();
+        maker.setupVariables();
+
+        Set<String> names = new HashSet<String>();
+        addNames(names, TupleMaker.EventVariable.GROUP, "", "");
+        for (String prefix : new String[] {"ele", "pos"}) {
+            addNames(names, TupleMaker.TrackVariable.GROUP, prefix, "");
+            addNames(names, TupleMaker.ClusterVariable.GROUP, prefix, "");
+            addNames(names, TupleMaker.RawVariable.GROUP, prefix, "");
+            addNames(names, TupleMaker.IsoVariable.GROUP, prefix, "");
+            for (int layer = 1; layer <= 2 * maker.nTrackingLayers; layer++) {
+                addNames(names, TupleMaker.ExtrapVariable.GROUP, prefix, layer + "/D");
+            }
+        }
+        for (String prefix : new String[] {"unc", "bsc"}) {
+            addNames(names, TupleMaker.VertexVariable.GROUP, prefix, "");
+            addNames(names, TupleMaker.CovVariable.GROUP, prefix, "");
+            addNames(names, TupleMaker.DaughterVariable.GROUP, prefix + "Ele", "");
+            addNames(names, TupleMaker.DaughterVariable.GROUP, prefix + "Pos", "");
+        }
+
+        assertEquals(new HashSet<String>(maker.tupleVariables), names);
+    }
+
+    public void testFillEventVariables() {
+        TestTupleMaker maker = new TestTupleMaker();
+        maker.compile();
+
+        EventHeader event = new BaseLCSimEvent(5772, 42, "dummy");
+        List<ReconstructedParticle> particles = new ArrayList<ReconstructedParticle>();
+        particles.add(createParticle(1, true, 1));
+        particles.add(createParticle(-1, true, 2));
+        particles.add(createParticle(1, true, 3));
+        particles.add(createParticle(1, false, 4));
+        event.put("FinalStateParticles", particles, ReconstructedParticle.class, 0);
+
+        List<GenericObject> triggerTimes = new ArrayList<GenericObject>();
+        triggerTimes.add(new TestGenericObject(new int[] {7, -3}, new double[] {123.5}));
+        event.put("TriggerTime", triggerTimes, GenericObject.class, 0);
+        List<GenericObject> rfTimes = new ArrayList<GenericObject>();
+        rfTimes.add(new TestGenericObject(new int[0], new double[] {10.25, 12.5}));
+        event.put("RFHits", rfTimes, GenericObject.class, 0);
+
+        List<CalorimeterHit> ecalHits = new ArrayList<CalorimeterHit>();
+        for (int i = 0; i < 5; i++) {
+            ecalHits.add(new BaseCalorimeterHit(0.1 * i, 0.1 * i, 0, 20 + i, i, null, 0, null));
+        }
+        event.put("EcalCalHits", ecalHits, CalorimeterHit.class, 0);
+        List<Cluster> ecalClusters = new ArrayList<Cluster>();
+        int[] pids = {11, 11, -11, 22, 11, -11, -11, 11, 0};
+        double[] x = {-120, -80, 60, 30, -15, 90, 150, 40, 0};
+        for (int i = 0; i < pids.length; i++) {
+            BaseCluster cluster = new BaseCluster();
+            cluster.setParticleId(pids[i]);
+            cluster.setPosition(new double[] {x[i], 20, 1400});
+            ecalClusters.add(cluster);
+        }
+        event.put("EcalClustersCorr", ecalClusters, Cluster.class, 0);
+
+        List<LCRelation> fittedHits = new ArrayList<LCRelation>();
+        for (int i = 0; i < 8; i++) {
+            fittedHits.add(new BaseLCRelation(null, null));
+        }
+        event.put("SVTFittedRawTrackerHits", fittedHits, LCRelation.class, 0);
+        event.put("SVTRawTrackerHits", new ArrayList<RawTrackerHit>(), RawTrackerHit.class, 0);
+        event.put("RotatedHelicalTrackHits", new ArrayList<TrackerHit>(), TrackerHit.class, 0);
+
+        // Calibration and pair 0 trigger.
+        TIData triggerData = new TIData(new int[] {(1 << 28) | (1 << 26), 0, 0, 0});
+
+        Map<String, Double> expected = new HashMap<String, Double>();
+        expected.put("run/I", 5772.0);
+        expected.put("event/I", 42.0);
+        expected.put("tupleevent/I", 0.0);
+        expected.put("nPos/I", 2.0);
+        expected.put("nCl/I", 3.0);
+        expected.put("isCalib/B", 1.0);
+        expected.put("isPulser/B", 0.0);
+        expected.put("isSingle0/B", 0.0);
+        expected.put("isSingle1/B", 0.0);
+        expected.put("isPair0/B", 1.0);
+        expected.put("isPair1/B", 0.0);
+        expected.put("evTime/D", 123.5);
+        expected.put("evTx/I", 7.0);
+        expected.put("evTy/I", -3.0);
+        expected.put("nEcalHits/I", 5.0);
+        expected.put("nEcalCl/I", 9.0);
+        expected.put("nEcalClele/I", 4.0);
+        expected.put("nEcalClpos/I", 3.0);
+        expected.put("nEcalClpho/I", 1.0);
+        expected.put("nEcalClEleSide/I", 3.0);
+        expected.put("nEcalClPosSide/I", 5.0);
+        expected.put("rfT1/D", 10.25);
+        expected.put("rfT2/D", 12.5);
+        expected.put("nSVTHits/I", 8.0);
+        for (int k = 1; k < 7; k++) {
+            expected.put(String.format("nSVTHitsL%d/I", k), 0.0);
+            expected.put(String.format("nSVTHitsL%db/I", k), 0.0);
+        }
+        expected.put("n3DSVTHits/I", 0.0);
+        expected.put("topL1HitX/D", 9999.0);
+        expected.put("topL1HitY/D", 9999.0);
+        expected.put("botL1HitX/D", 9999.0);
+        expected.put("botL1HitY/D", -9999.0);
+
+        maker.fillEventVariables(event, triggerData);
+        assertEquals(expected, new HashMap<String, Double>(maker.tupleMap));
+
+        // The values of the next event replace those of this one.
+        maker.fillEventVariables(event, null);
+        expected.put("tupleevent/I", 1.0);
+        assertEquals(expected, new HashMap<String, Double>(maker.tupleMap));
+    }
+
+    public void testFillIsolationVariables() {
+        TestTupleMaker maker = new TestTupleMaker();
+        maker.compile();
+
+        Double[] iso = new Double[2 * maker.nLay + 2];
+        iso[0] = 0.5;
+        iso[1] = -0.3;
+        iso[2] = 0.2;
+        iso[3] = -0.7;
+        maker.fillParticleVariablesIso("ele", new BasicHep3Vector(0.1, -0.02, 1.1), iso);
+        iso[2] = null;
+        maker.fillParticleVariablesIso("pos", new BasicHep3Vector(-0.1, 0.03, 0.9), iso);
+
+        Map<String, Double> expected = new HashMap<String, Double>();
+        expected.put("eleIsoStereo/D", 0.5);
+        expected.put("eleIsoAxial/D", -0.3);
+        expected.put("eleIsoStereoL2/D", 0.2);
+        expected.put("eleIsoAxialL2/D", -0.7);
+        expected.put("eleMinPositiveIso/D", 0.5);
+        expected.put("eleMinNegativeIso/D", -0.3);
+        expected.put("eleMinPositiveIsoL2/D", 0.2);
+        expected.put("eleMinNegativeIsoL2/D", -0.7);
+        expected.put("posIsoStereo/D", -0.3);
+        expected.put("posIsoAxial/D", 0.5);
+        expected.put("posIsoStereoL2/D", -9999.0);
+        expected.put("posIsoAxialL2/D", -9999.0);
+        expected.put("posMinPositiveIso/D", 0.5);
+        expected.put("posMinNegativeIso/D", -0.3);
+        expected.put("posMinPositiveIsoL2/D", 9999.0);
+        expected.put("posMinNegativeIsoL2/D", 9999.0);
+        assertEquals(expected, new HashMap<String, Double>(maker.tupleMap));
+    }
+
+    public void testFillVertexVariables() {
+        TestTupleMaker maker = new TestTupleMaker();
+        maker.compile();
+        maker.beamAxisRotation.setActiveEuler(Math.PI / 2, -0.0305, -Math.PI / 2);
+
+        ReconstructedParticle uncV0 = createV0(1);
+        ReconstructedParticle bscV0 = createV0(2);
+        Map<String, Double> fitParameters = new HashMap<String, Double>();
+        String[] fitNames = {"V0P", "V0Px", "V0Py", "V0Pz", "V0PErr", "V0PxErr", "V0PyErr", "V0PzErr", "V0TargProjX",
+                "V0TargProjY", "V0TargProjXErr", "V0TargProjYErr", "invMassError"};
+        for (int i = 0; i < fitNames.length; i++) {
+            fitParameters.put(fitNames[i], 0.25 * (i + 1));
+        }
+        BilliorVertex fit = new TestBilliorVertex(new BasicHep3Vector(0.3, -0.4, -4.5), fitParameters);
+        maker.cand2vert = new HashMap<ReconstructedParticle, BilliorVertex>();
+        maker.cand2vert.put(uncV0, fit);
+
+        Map<String, Double> expected = new HashMap<String, Double>();
+        putVertexVariables(expected, maker.beamAxisRotation, "unc", uncV0, fit, new String[] {"Ele", "Pos"});
+        putVertexVariables(expected, maker.beamAxisRotation, "bsc", bscV0, null, new String[] {"Top", "Bot"});
+
+        maker.fillVertexVariables("unc", uncV0, false);
+        maker.fillVertexVariables("bsc", bscV0, true);
+        assertEquals(expected, new HashMap<String, Double>(maker.tupleMap));
+    }
+
+    /**
+     * Puts the values that {@link TupleMaker#fillVertexVariables} sets for a
+     * vertex whose daughters have no clusters, by name.
+     */
+    private static void putVertexVariables(Map<String, Double> tupleMap, BasicHep3Matrix beamAxisRotation, String prefix,
+            ReconstructedParticle theV0, BilliorVertex vtxFit, String[] particleNames) {
+        if (vtxFit != null) {
+            Hep3Vector v0Pos = vtxFit.getPosition();
+            tupleMap.put(prefix + "PosX/D", v0Pos.x());
+            tupleMap.put(prefix + "PosY/D", v0Pos.y());
+            tupleMap.put(prefix + "PosZ/D", v0Pos.z());
+            tupleMap.put(prefix + "Mom/D", vtxFit.getParameters().get("V0P"));
+            tupleMap.put(prefix + "MomX/D", vtxFit.getParameters().get("V0Px"));
+            tupleMap.put(prefix + "MomY/D", vtxFit.getParameters().get("V0Py"));
+            tupleMap.put(prefix + "MomZ/D", vtxFit.getParameters().get("V0Pz"));
+            tupleMap.put(prefix + "MomErr/D", vtxFit.getParameters().get("V0PErr"));
+            tupleMap.put(prefix + "MomXErr/D", vtxFit.getParameters().get("V0PxErr"));
+            tupleMap.put(prefix + "MomYErr/D", vtxFit.getParameters().get("V0PyErr"));
+            tupleMap.put(prefix + "MomZErr/D", vtxFit.getParameters().get("V0PzErr"));
+            tupleMap.put(prefix + "TargProjX/D", vtxFit.getParameters().get("V0TargProjX"));
+            tupleMap.put(prefix + "TargProjY/D", vtxFit.getParameters().get("V0TargProjY"));
+            tupleMap.put(prefix + "TargProjXErr/D", vtxFit.getParameters().get("V0TargProjXErr"));
+            tupleMap.put(prefix + "TargProjYErr/D", vtxFit.getParameters().get("V0TargProjYErr"));
+            tupleMap.put(prefix + "MErr/D", vtxFit.getParameters().get("invMassError"));
+        }
+
+        Matrix theCov = MatrixOp.mult(MatrixOp.mult(beamAxisRotation, theV0.getStartVertex().getCovMatrix()),
+                MatrixOp.transposed(beamAxisRotation));
+        tupleMap.put(prefix + "CovXX/D", theCov.e(0, 0));
+        tupleMap.put(prefix + "CovXY/D", theCov.e(0, 1));
+        tupleMap.put(prefix + "CovXZ/D", theCov.e(0, 2));
+        tupleMap.put(prefix + "CovYX/D", theCov.e(1, 0));
+        tupleMap.put(prefix + "CovYY/D", theCov.e(1, 1));
+        tupleMap.put(prefix + "CovYZ/D", theCov.e(1, 2));
+        tupleMap.put(prefix + "CovZX/D", theCov.e(2, 0));
+        tupleMap.put(prefix + "CovZY/D", theCov.e(2, 1));
+        tupleMap.put(prefix + "CovZZ/D", theCov.e(2, 2));
+
+        Hep3Vector momRot = VecOp.mult(beamAxisRotation, theV0.getMomentum());
+        Hep3Vector theVtx = VecOp.mult(beamAxisRotation, theV0.getStartVertex().getPosition());
+        tupleMap.put(prefix + "PX/D", momRot.x());
+        tupleMap.put(prefix + "PY/D", momRot.y());
+        tupleMap.put(prefix + "PZ/D", momRot.z());
+        tupleMap.put(prefix + "P/D", momRot.magnitude());
+        tupleMap.put(prefix + "VX/D", theVtx.x());
+        tupleMap.put(prefix + "VY/D", theVtx.y());
+        tupleMap.put(prefix + "VZ/D", theVtx.z());
+        tupleMap.put(prefix + "Chisq/D", theV0.getStartVertex().getChi2());
+        tupleMap.put(prefix + "M/D", theV0.getMass());
+        tupleMap.put(prefix + "ChisqProb/D", theV0.getStartVertex().getProbability());
+
+        Map<String, Double> vertexParameters = theV0.getStartVertex().getParameters();
+        tupleMap.put(prefix + particleNames[0] + "PX/D", vertexParameters.get("p1X"));
+        tupleMap.put(prefix + particleNames[0] + "PY/D", vertexParameters.get("p1Y"));
+        tupleMap.put(prefix + particleNames[0] + "PZ/D", vertexParameters.get("p1Z"));
+        double p1 = Math.sqrt(Math.pow(vertexParameters.get("p1X"), 2) + Math.pow(vertexParameters.get("p1Y"), 2)
+                + Math.pow(vertexParameters.get("p1Z"), 2));
+        tupleMap.put(prefix + particleNames[0] + "P/D", p1);
+        tupleMap.put(prefix + particleNames[1] + "PX/D", vertexParameters.get("p2X"));
+        tupleMap.put(prefix + particleNames[1] + "PY/D", vertexParameters.get("p2Y"));
+        tupleMap.put(prefix + particleNames[1] + "PZ/D", vertexParameters.get("p2Z"));
+        double p2 = Math.sqrt(Math.pow(vertexParameters.get("p2X"), 2) + Math.pow(vertexParameters.get("p2Y"), 2)
+                + Math.pow(vertexParameters.get("p2Z"), 2));
+        tupleMap.put(prefix + particleNames[1] + "P/D", p2);
+        tupleMap.put(prefix + particleNames[0] + "WtP/D", p1);
+        tupleMap.put(prefix + particleNames[1] + "WtP/D", p2);
+        tupleMap.put(prefix + "WtM/D", theV0.getMass());
+    }
+
+    private static void addNames(Set<String> names, TupleVariableGroup group, String prefix, String suffix) {
+        for (int variable = 0; variable < group.size(); variable++) {
+            names.add(prefix + group.getName(variable) + suffix);
+        }
+    }
+
+    private static ReconstructedParticle createParticle(double charge, boolean isGBL, int nClusters) {
+        BaseReconstructedParticle particle = new BaseReconstructedParticle();
+        particle.setCharge(charge);
+        particle.setType(TrackType.setGBL(0, isGBL));
+        for (int i = 0; i < nClusters; i++) {
+            particle.addCluster(new BaseCluster());
+        }
+        return particle;
+    }
+
+    /**
+     * Creates a two particle vertex with distinct values, which are scaled by
+     * the given factor.
+     */
+    private static ReconstructedParticle createV0(double scale) {
+        final Map<String, Double> parameters = new HashMap<String, Double>();
+        parameters.put("p1X", -0.031 * scale);
+        parameters.put("p1Y", 0.017 * scale);
+        parameters.put("p1Z", 1.13 * scale);
+        parameters.put("p2X", 0.042 * scale);
+        parameters.put("p2Y", -0.012 * scale);
+        parameters.put("p2Z", 0.97 * scale);
+        SymmetricMatrix cov = new SymmetricMatrix(3, new double[] {0.01 * scale, 0.002, 0.03 * scale, -0.004, 0.005,
+                0.6 * scale}, true);
+        Vertex vertex = new BaseVertex(false, "Test", 1.7 * scale, 0.37 / scale, cov, new BasicHep3Vector(0.2 * scale,
+                -0.1 * scale, -5.0 * scale), null) {
+            @Override
+            public Map<String, Double> getParameters() {
+                return parameters;
+            }
+        };
+
+        BaseReconstructedParticle v0 = new BaseReconstructedParticle();
+        v0.set4Vector(new BasicHepLorentzVector(2.1 * scale, new double[] {0.011 * scale, 0.005 * scale, 2.1 * scale}));
+        v0.setMass(0.046 * scale);
+        v0.setStartVertex(vertex);
+        v0.addParticle(createParticle(-1, true, 0));
+        v0.addParticle(createParticle(1, true, 0));
+        return v0;
+    }
+
+    private static class TestTupleMaker extends TupleMaker {
+
+        @Override
+        boolean passesCuts() {
+            return true;
+        }
+
+        @Override
+        protected void setupVariables() {
+            addEventVariables();
+            addParticleVariables("ele");
+            addParticleVariables("pos");
+            addVertexVariables(true, false, false);
+        }
+
+        void compile() {
+            setupVariables();
+            tupleMap.compile(new TupleSchema(tupleVariables));
+        }
+    }
+
+    private static class TestGenericObject implements GenericObject {
+        private final int[] ints;
+        private final double[] doubles;
+
+        TestGenericObject(int[] ints, double[] doubles) {
+            this.ints = ints;
+            this.doubles = doubles;
+        }
+
+        public int getNInt() {
+            return ints.length;
+        }
+
+        public int getNFloat() {
+            return 0;
+        }
+
+        public int getNDouble() {
+            return doubles.length;
+        }
+
+        public int getIntVal(int index) {
+            return ints[index];
+        }
+
+        public float getFloatVal(int index) {
+            return 0;
+        }
+
+        public double getDoubleVal(int index) {
+            return doubles[index];
+        }
+
+        public boolean isFixedSize() {
+            return false;
+        }
+    }
+
+    private static class TestBilliorVertex extends BilliorVertex {
+        private final Hep3Vector position;
+        private final Map<String, Double> parameters;
+
+        TestBilliorVertex(Hep3Vector position, Map<String, Double> parameters) {
+            this.position = position;
+            this.parameters = parameters;
+        }
+
+        @Override
+        public Hep3Vector getPosition() {
+            return position;
+        }
+
+        @Override
+        public Map<String, Double> getParameters() {
+            return parameters;
+        }
+    }
+}
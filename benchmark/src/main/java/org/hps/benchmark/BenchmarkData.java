@@ -0,0 +1,123 @@
+package org.hps.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.hps.conditions.database.DatabaseConditionsManager;
+import org.lcsim.event.EventHeader;
+import org.lcsim.util.Driver;
+import org.lcsim.util.cache.FileCache;
+import org.lcsim.util.loop.LCSimLoop;
+
+/**
+ * Fixtures shared by the benchmarks: events read into memory from the test data files, with the conditions system
+ * set up for their detector and run.
+ */
+public final class BenchmarkData {
+
+    /**
+     * The test data archive, which the build resolves into the local Maven repository.
+     */
+    private static final String TEST_DATA_ARCHIVE = "org/hps/hps-test-data/1.1/hps-test-data-1.1-archive.jar";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Get a file from the test data archive. The archive is only needed in the local Maven repository (set by the
+     * <code>maven.repo.local</code> property, or <code>~/.m2/repository</code>), so that it is not shaded into the
+     * benchmarks jar. The file is extracted once into the temporary directory.
+     *
+     * @param name the file name
+     * @return the local copy of the file
+     */
+    public static File getTestData(String name) {
+        String repository = System.getProperty("maven.repo.local",
+                System.getProperty("user.home") + File.separator + ".m2" + File.separator + "repository");
+        File archive = new File(repository, TEST_DATA_ARCHIVE);
+        File file = new File(new File(System.getProperty("java.io.tmpdir"), "hps-benchmark-data"), name);
+        try {
+            ZipFile zip = new ZipFile(archive);
+            try {
+                Enumeration<? extends ZipEntry> entries = zip.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || !new File(entry.getName()).getName().equals(name)) {
+                        continue;
+                    }
+                    if (!file.exists() || file.length() != entry.getSize()) {
+                        file.getParentFile().mkdirs();
+                        InputStream in = zip.getInputStream(entry);
+                        OutputStream out = new FileOutputStream(file);
+                        try {
+                            byte[] buffer = new byte[65536];
+                            for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+                                out.write(buffer, 0, n);
+                            }
+                        } finally {
+                            out.close();
+                            in.close();
+                        }
+                    }
+                    return file;
+                }
+            } finally {
+                zip.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Error reading " + name + " from the test data archive " + archive.getPath(), e);
+        }
+        throw new IllegalArgumentException("No file " + name + " in the test data archive " + archive.getPath());
+    }
+
+    /**
+     * Get a file from the test data web area, through the local file cache.
+     *
+     * @param url the file URL
+     * @return the local copy of the file
+     */
+    public static File getCachedFile(String url) {
+        try {
+            return new FileCache().getCachedFile(new URL(url));
+        } catch (IOException e) {
+            throw new RuntimeException("Error getting " + url, e);
+        }
+    }
+
+    /**
+     * Read events from an LCIO file into memory. The conditions system is initialized from the first event, as in a
+     * normal job, and stays set up for the benchmark that uses the events.
+     *
+     * @param lcioFile the input file
+     * @param nEvents the maximum number of events to read
+     * @return the events
+     */
+    public static List<EventHeader> readEvents(File lcioFile, int nEvents) {
+        DatabaseConditionsManager.reset();
+        DatabaseConditionsManager.getInstance();
+        final List<EventHeader> events = new ArrayList<EventHeader>();
+        LCSimLoop loop = new LCSimLoop();
+        try {
+            loop.setLCIORecordSource(lcioFile);
+            loop.add(new Driver() {
+                @Override
+                protected void process(EventHeader event) {
+                    events.add(event);
+                }
+            });
+            loop.loop(nEvents);
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading events from " + lcioFile.getPath(), e);
+        }
+        return events;
+    }
+}
@@ -0,0 +1,102 @@
+package org.hps.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hps.recon.vertexing.BilliorTrack;
+import org.hps.recon.vertexing.BilliorVertexer;
+import org.hps.recon.vertexing.FastBilliorVertexer;
+import org.lcsim.event.TrackState;
+import org.lcsim.event.base.BaseTrackState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time of {@link BilliorVertexer#fitVertex} and {@link FastBilliorVertexer#fitVertex} for electron-positron pairs,
+ * with and without the beam spot constraint, as used for the unconstrained and beam-spot-constrained V0 candidates.
+ * <p>
+ * The track pairs are generated around the nominal 2016 kinematics, so that the benchmark does not depend on a track
+ * reconstruction job; the fit itself does the same work for any pair of tracks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BilliorVertexerBenchmark {
+
+    private static final double B_FIELD = 0.52;
+    private static final int N_PAIRS = 1000;
+
+    @Param({"false", "true"})
+    public boolean beamSpotConstraint;
+
+    private BilliorVertexer vertexer;
+    private FastBilliorVertexer fastVertexer;
+    private List<List<BilliorTrack>> pairs;
+
+    @Setup
+    public void setup() {
+        vertexer = new BilliorVertexer(B_FIELD, beamSpotConstraint, false);
+        vertexer.setBeamSize(new double[] {0.001, 0.130, 0.050});
+        vertexer.setBeamPosition(new double[] {0., 0., 0.});
+        fastVertexer = new FastBilliorVertexer(B_FIELD);
+        fastVertexer.doBeamSpotConstraint(beamSpotConstraint);
+        fastVertexer.setBeamSize(new double[] {0.001, 0.130, 0.050});
+        fastVertexer.setBeamPosition(new double[] {0., 0., 0.});
+        Random rnd = new Random(2016);
+        pairs = new ArrayList<List<BilliorTrack>>(N_PAIRS);
+        for (int i = 0; i < N_PAIRS; i++) {
+            List<BilliorTrack> pair = new ArrayList<BilliorTrack>(2);
+            pair.add(makeTrack(rnd, -1));
+            pair.add(makeTrack(rnd, 1));
+            pairs.add(pair);
+        }
+    }
+
+    // Helix parameters (d0, phi0, omega, z0, tan(lambda)) of a track from near the target, with a typical covariance
+    private static BilliorTrack makeTrack(Random rnd, int charge) {
+        double p = 0.5 + 1.5 * rnd.nextDouble();
+        double pt = p / Math.sqrt(1. + 0.0016);
+        double omega = charge * 2.99792458e-4 * B_FIELD / pt;
+        double[] params = {0.1 * rnd.nextGaussian(), 0.03 * charge + 0.01 * rnd.nextGaussian(), omega, 0.1 * rnd.nextGaussian(),
+                (rnd.nextBoolean() ? 1 : -1) * (0.02 + 0.03 * rnd.nextDouble())};
+        double[] sigma = {0.05, 0.001, 2.e-6, 0.05, 0.001};
+        double[] cov = new double[15]; // Lower triangle, packed by rows
+        int k = 0;
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++) {
+                cov[k++] = (i == j) ? sigma[i] * sigma[i] : 0.1 * sigma[i] * sigma[j];
+            }
+        }
+        TrackState ts = new BaseTrackState(params, cov, new double[] {0., 0., 0.}, TrackState.AtIP);
+        return new BilliorTrack(ts, 10., 7);
+    }
+
+    @Benchmark
+    public void fitVertex(Blackhole bh) {
+        for (int i = 0; i < pairs.size(); i++) {
+            bh.consume(vertexer.fitVertex(pairs.get(i)));
+        }
+    }
+
+    @Benchmark
+    public void fitVertexFast(Blackhole bh) {
+        for (int i = 0; i < pairs.size(); i++) {
+            bh.consume(fastVertexer.fitVertex(pairs.get(i)));
+        }
+    }
+}
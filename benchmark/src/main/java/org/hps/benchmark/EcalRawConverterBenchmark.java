@@ -0,0 +1,75 @@
+package org.hps.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hps.conditions.database.DatabaseConditionsManager;
+import org.hps.recon.ecal.EcalRawConverter;
+import org.lcsim.event.EventHeader;
+import org.lcsim.event.RawTrackerHit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time of the conversion of raw ECal waveforms (mode 1) to calorimeter hits by
+ * {@link EcalRawConverter#HitDtoA(EventHeader, RawTrackerHit)}, with the pulses either integrated or fit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class EcalRawConverterBenchmark {
+
+    private static final String RAW_COLLECTION_NAME = "EcalReadoutHits";
+
+    @Param({"run_5772_data_only.slcio"})
+    public String fileName;
+
+    @Param({"false", "true"})
+    public boolean useFit;
+
+    private EcalRawConverter converter;
+    private List<EventHeader> events;
+    private List<List<RawTrackerHit>> hitLists;
+
+    @Setup
+    public void setup() {
+        events = new ArrayList<EventHeader>();
+        hitLists = new ArrayList<List<RawTrackerHit>>();
+        for (EventHeader event : BenchmarkData.readEvents(BenchmarkData.getTestData(fileName), 100)) {
+            if (event.hasCollection(RawTrackerHit.class, RAW_COLLECTION_NAME)) {
+                events.add(event);
+                hitLists.add(event.get(RawTrackerHit.class, RAW_COLLECTION_NAME));
+            }
+        }
+        if (events.isEmpty()) {
+            throw new IllegalStateException("No events in " + fileName + " have raw ECal waveforms in " + RAW_COLLECTION_NAME);
+        }
+        converter = new EcalRawConverter();
+        converter.setUseFit(useFit);
+        converter.setDetector(DatabaseConditionsManager.getInstance().getDetectorObject());
+    }
+
+    @Benchmark
+    public void convertHits(Blackhole bh) {
+        for (int i = 0; i < events.size(); i++) {
+            EventHeader event = events.get(i);
+            for (RawTrackerHit hit : hitLists.get(i)) {
+                bh.consume(converter.HitDtoA(event, hit));
+            }
+        }
+    }
+}
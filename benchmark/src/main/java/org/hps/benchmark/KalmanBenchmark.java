@@ -0,0 +1,72 @@
+package org.hps.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.hps.recon.tracking.kalman.KalmanToyEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of the Kalman pattern recognition on one toy event (see {@link KalmanToyEvent}), with the seeding options and
+ * the number of threads as parameters, and of a single Runge-Kutta extrapolation through the SVT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class KalmanBenchmark {
+
+    @Param({"0", "5"})
+    public int noiseHitsPerLayer;
+
+    @Param({"false", "true"})
+    public boolean seedIndex;
+
+    @Param({"1", "2"})
+    public int threads;
+
+    @Param({"false", "true"})
+    public boolean adaptiveRK;
+
+    private KalmanToyEvent event;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup() throws Exception {
+        event = new KalmanToyEvent(4, noiseHitsPerLayer, 1L);
+        event.setSeedIndex(seedIndex);
+        event.setAdaptiveRK(adaptiveRK);
+        pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public int patRec() {
+        return event.patRec(pool);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public double[] rkIntersect() {
+        return event.extrapolate();
+    }
+}
@@ -0,0 +1,109 @@
+package org.hps.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.hps.recon.tracking.gbl.matrix.Matrix;
+import org.hps.recon.tracking.matrix.Mat5;
+import org.hps.recon.tracking.matrix.SmallMatrix;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The 5x5 operations of the track fits done with the flat-array routines of {@link org.hps.recon.tracking.matrix},
+ * general and unrolled, compared with the same operations done with the Jama-derived GBL {@link Matrix}, which like
+ * the Kalman SquareMatrix allocates a new matrix for every result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MatrixBenchmark {
+
+    private Matrix gblC, gblF;
+    private double[] c = new double[25];
+    private double[] f = new double[25];
+    private double[] out = new double[25];
+    private double[] work = new double[25];
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(5);
+        double[][] L = new double[5][5];
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++) {
+                L[i][j] = (i == j ? 1. : 0.) + 0.1 * rnd.nextGaussian();
+            }
+        }
+        gblC = new Matrix(5, 5);
+        gblF = new Matrix(5, 5);
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                double cij = 0.;
+                for (int k = 0; k < 5; k++) {
+                    cij += L[i][k] * L[j][k]; // Positive definite, like a covariance
+                }
+                double fij = (i == j ? 1. : 0.) + 0.1 * rnd.nextGaussian();
+                gblC.set(i, j, cij);
+                gblF.set(i, j, fij);
+                c[5 * i + j] = cij;
+                f[5 * i + j] = fij;
+            }
+        }
+    }
+
+    @Benchmark
+    public Matrix multiplyGbl() {
+        return gblF.times(gblC);
+    }
+
+    @Benchmark
+    public double[] multiplyFlat() {
+        SmallMatrix.multiply(5, f, c, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] multiplyUnrolled() {
+        Mat5.multiply(f, c, out);
+        return out;
+    }
+
+    @Benchmark
+    public Matrix similarityGbl() {
+        return gblF.times(gblC.times(gblF.transpose()));
+    }
+
+    @Benchmark
+    public double[] similarityFlat() {
+        SmallMatrix.similarity(5, f, c, out, work);
+        return out;
+    }
+
+    @Benchmark
+    public double[] similarityUnrolled() {
+        Mat5.similarity(f, c, out);
+        return out;
+    }
+
+    @Benchmark
+    public Matrix invertGbl() {
+        return gblC.inverse();
+    }
+
+    @Benchmark
+    public double[] invertFlat() {
+        SmallMatrix.invert(5, c, out, work);
+        return out;
+    }
+}
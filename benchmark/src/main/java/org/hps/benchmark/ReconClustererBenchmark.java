@@ -0,0 +1,63 @@
+package org.hps.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hps.recon.ecal.cluster.Clusterer;
+import org.hps.recon.ecal.cluster.ClustererFactory;
+import org.lcsim.event.CalorimeterHit;
+import org.lcsim.event.EventHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time of {@link org.hps.recon.ecal.cluster.ReconClusterer#createClusters} on the ECal hits of the events in
+ * MockDataReconTest.slcio, the file used by the clustering integration test.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReconClustererBenchmark {
+
+    private static final String HIT_COLLECTION_NAME = "EcalHits";
+
+    private Clusterer clusterer;
+    private List<EventHeader> events;
+    private List<List<CalorimeterHit>> hitLists;
+
+    @Setup
+    public void setup() {
+        events = new ArrayList<EventHeader>();
+        hitLists = new ArrayList<List<CalorimeterHit>>();
+        for (EventHeader event : BenchmarkData.readEvents(BenchmarkData.getTestData("MockDataReconTest.slcio"), 100)) {
+            if (event.hasCollection(CalorimeterHit.class, HIT_COLLECTION_NAME)) {
+                events.add(event);
+                hitLists.add(event.get(CalorimeterHit.class, HIT_COLLECTION_NAME));
+            }
+        }
+        clusterer = ClustererFactory.create("ReconClusterer");
+        clusterer.conditionsChanged(null);
+        clusterer.initialize();
+    }
+
+    @Benchmark
+    public void createClusters(Blackhole bh) {
+        for (int i = 0; i < events.size(); i++) {
+            // Copy the hit list as ClusterDriver does, since the clusterer sorts and filters it.
+            bh.consume(clusterer.createClusters(events.get(i), new ArrayList<CalorimeterHit>(hitLists.get(i))));
+        }
+    }
+}
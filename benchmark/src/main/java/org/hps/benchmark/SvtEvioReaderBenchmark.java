@@ -0,0 +1,82 @@
+package org.hps.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hps.conditions.database.DatabaseConditionsManager;
+import org.hps.evio.LCSimEngRunEventBuilder;
+import org.hps.evio.SvtEvioReader;
+import org.hps.record.LCSimEventBuilder;
+import org.hps.record.evio.EvioEventUtilities;
+import org.jlab.coda.jevio.EvioEvent;
+import org.jlab.coda.jevio.EvioReader;
+import org.lcsim.event.EventHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time of the decoding of the SVT data banks into raw hits by {@link SvtEvioReader#processEvent}, on the physics
+ * events of the file used by SvtEvioReaderTest. The EVIO events are parsed once in the setup, so only the bank
+ * decoding is timed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SvtEvioReaderBenchmark {
+
+    private static final String SVT_HIT_COLLECTION_NAME = "SVTRawTrackerHits";
+
+    private SvtEvioReader svtReader;
+    private List<EvioEvent> evioEvents;
+    private List<EventHeader> lcsimEvents;
+
+    @Setup
+    public void setup() throws Exception {
+        File evioFile = BenchmarkData.getCachedFile("http://www.lcsim.org/test/hps-java/svt_evio_reader_test.evio");
+        DatabaseConditionsManager conditionsManager = DatabaseConditionsManager.getInstance();
+        conditionsManager.setDetector("HPS-Proposal2014-v9-2pt2", 2000);
+        LCSimEventBuilder eventBuilder = new LCSimEngRunEventBuilder();
+        svtReader = new SvtEvioReader();
+        evioEvents = new ArrayList<EvioEvent>();
+        lcsimEvents = new ArrayList<EventHeader>();
+        EvioReader evioReader = new EvioReader(evioFile);
+        try {
+            EvioEvent evioEvent = null;
+            while ((evioEvent = evioReader.nextEvent()) != null) {
+                evioReader.parseEvent(evioEvent);
+                if (!EvioEventUtilities.isPhysicsEvent(evioEvent)) {
+                    continue;
+                }
+                evioEvents.add(evioEvent);
+                lcsimEvents.add(eventBuilder.makeLCSimEvent(evioEvent));
+            }
+        } finally {
+            evioReader.close();
+        }
+    }
+
+    @Benchmark
+    public void processEvents(Blackhole bh) throws Exception {
+        for (int i = 0; i < evioEvents.size(); i++) {
+            EventHeader lcsimEvent = lcsimEvents.get(i);
+            if (lcsimEvent.hasItem(SVT_HIT_COLLECTION_NAME)) {
+                lcsimEvent.remove(SVT_HIT_COLLECTION_NAME);
+            }
+            bh.consume(svtReader.processEvent(evioEvents.get(i), lcsimEvent));
+        }
+    }
+}
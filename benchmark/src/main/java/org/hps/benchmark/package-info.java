@@ -0,0 +1,8 @@
+/**
+ * JMH microbenchmarks of the reconstruction hot paths, for tracking performance from release to release.
+ * <p>
+ * Build with <code>mvn package</code> in this module and run with
+ * <code>java -jar target/benchmarks.jar [regexp]</code>. The fixtures are read from the test data files also used by
+ * the integration tests, so the conditions database must be reachable for the benchmarks that need a detector.
+ */
+package org.hps.benchmark;
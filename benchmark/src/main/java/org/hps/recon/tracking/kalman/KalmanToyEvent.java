@@ -0,0 +1,140 @@
+package org.hps.recon.tracking.kalman;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+// Toy event for timing the Kalman pattern recognition in the hps-benchmark module, which is why it lives in this
+// package of that module: the axial-stereo layer pairs of the bottom half of the 2016 SVT (z > 0 in the Kalman
+// coordinates, topBottom = 0), in a uniform 0.5 Tesla field, with a few electron and positron tracks from the target
+// plus random noise hits.
+// The hits of the tracks are found by Runge-Kutta propagation through the field map, as in the fit itself.
+// The event is built without the lcsim geometry and conditions, so it can be used stand alone.
+public class KalmanToyEvent {
+    private final FieldMap fM;
+    private final ArrayList<SiModule> modules;
+    private final KalmanParams kPar;
+    private final HelixPlaneIntersect hpi;
+
+    // Layer, origin (x, y, z), normal (x, y, z), stereo angle, stereo flag
+    private static final double[][] geometry = {
+            { 2, 3.4814, 103.69, 20.781, -0.030928, -0.99952, 0.00056169, -0.100076, 1 },
+            { 3, 3.7752, 111.75, 20.770, 0.029092, 0.99957, 0.0031495, 0.000303, 0 },
+            { 4, 6.6595, 203.81, 22.296, -0.029875, -0.99954, 0.0053661, -0.099851, 1 },
+            { 5, 6.7661, 211.87, 22.281, 0.028940, 0.99958, 0.0028008, 0.000145, 0 },
+            { 6, 9.4835, 303.76, 23.796, -0.029471, -0.99955, 0.0048642, -0.100012, 1 },
+            { 7, 9.7121, 311.63, 23.777, 0.027875, 0.99961, -0.0027053, 0.000106, 0 } };
+    private static final double thickness = 0.32;
+    private static final double resolution = 0.006;
+
+    public KalmanToyEvent(int nTracks, int nNoise, long seed) throws IOException {
+        fM = uniformField(0.5);
+        Random rnd = new Random(seed);
+        modules = new ArrayList<SiModule>();
+        for (double[] g : geometry) {
+            Plane p = new Plane(new Vec(g[1], g[2], g[3]), new Vec(g[4], g[5], g[6]), g[7]);
+            modules.add(new SiModule((int) g[0], p, g[8] > 0., 200., 47.17, thickness, fM, 0));
+        }
+
+        hpi = new HelixPlaneIntersect();
+        for (int itk = 0; itk < nTracks; itk++) {
+            double Q = (itk % 2 == 0) ? -1. : 1.;
+            double p = 0.8 + 1.2 * rnd.nextDouble();
+            double tanl = 0.015 + 0.055 * rnd.nextDouble();
+            double px = 0.05 * rnd.nextGaussian();
+            Vec P0 = new Vec(px * p, p, tanl * p);
+            Vec X0 = new Vec(0.1 * rnd.nextGaussian(), 0., 0.1 * rnd.nextGaussian());
+            double t = 4. * rnd.nextGaussian();
+            for (SiModule m : modules) {
+                Vec pInt = new Vec(0., 0., 0.);
+                Vec xInt = hpi.rkIntersect(m.p, X0, P0, Q, fM, pInt);
+                double vTrue = m.toLocal(xInt).v[1];
+                m.addMeasurement(new Measurement(vTrue + resolution * rnd.nextGaussian(), resolution, t + 2. * rnd.nextGaussian(), xInt, vTrue));
+                X0 = xInt;
+                P0 = pInt;
+            }
+        }
+        for (SiModule m : modules) {
+            for (int i = 0; i < nNoise; i++) {
+                m.addMeasurement(new Measurement(-20. + 40. * rnd.nextDouble(), resolution, -30. + 60. * rnd.nextDouble()));
+            }
+        }
+
+        kPar = new KalmanParams();
+        kPar.clrStrategies();
+        int[] s0 = { 2, 3, 4, 5, 6 };
+        kPar.addStrategy(s0, 0);
+        int[] s1 = { 2, 4, 5, 6, 7 };
+        kPar.addStrategy(s1, 0);
+        kPar.kMax[0] = 100.;
+        kPar.tanlMax[0] = 1.;
+        kPar.dRhoMax[0] = 1000.;
+        kPar.dzMax[0] = 200.;
+        kPar.mxTdif = 12.;
+    }
+
+    public void setSeedIndex(boolean seedIndex) {
+        kPar.setSeedIndex(seedIndex);
+    }
+
+    public void setAdaptiveRK(boolean adaptiveRK) {
+        kPar.setAdaptiveRK(adaptiveRK);
+    }
+
+    // Run the pattern recognition for the bottom tracker on this event, on the given pool (null to use just the calling
+    // thread), and return the number of tracks found
+    public int patRec(ForkJoinPool pool) {
+        clearTracks();
+        KalmanPatRecHPS patRec = new KalmanPatRecHPS(modules, 0, 1, kPar, false, pool);
+        return patRec.TkrList.size();
+    }
+
+    // Runge-Kutta extrapolation of a 1.5 GeV track from the first to the last layer; returns the position and momentum
+    // at the last layer
+    public double[] extrapolate() {
+        Vec pInt = new Vec(0., 0., 0.);
+        Vec xInt = hpi.rkIntersect(modules.get(modules.size() - 1).p, new Vec(3.5, 104., 3.), new Vec(0.03, 1.5, 0.045), -1., fM, pInt,
+                kPar.adaptiveRK);
+        return new double[] {xInt.v[0], xInt.v[1], xInt.v[2], pInt.v[0], pInt.v[1], pInt.v[2]};
+    }
+
+    // Forget the assignment of hits to tracks left by a previous pattern recognition on this event
+    private void clearTracks() {
+        for (SiModule m : modules) {
+            for (Measurement hit : m.hits) {
+                hit.tracks.clear();
+            }
+        }
+    }
+
+    // A uniform field along the HPS y axis, as a two-node map in the binary format read by FieldMap
+    private static FieldMap uniformField(double B) throws IOException {
+        File file = File.createTempFile("ToyEventField", ".bin");
+        file.deleteOnExit();
+        DataOutputStream dos = new DataOutputStream(new FileOutputStream(file));
+        try {
+            dos.writeInt(2);
+            dos.writeInt(2);
+            dos.writeInt(2);
+            for (int ix = 0; ix < 2; ix++) {
+                for (int iy = 0; iy < 2; iy++) {
+                    for (int iz = 0; iz < 2; iz++) {
+                        dos.writeFloat(-1000.f + 2000.f * ix);
+                        dos.writeFloat(-1000.f + 2000.f * iy);
+                        dos.writeFloat(-1000.f + 3000.f * iz);
+                        dos.writeFloat(0.f);
+                        dos.writeFloat((float) (-B / 1000.));
+                        dos.writeFloat(0.f);
+                    }
+                }
+            }
+        } finally {
+            dos.close();
+        }
+        return new FieldMap(file.getPath(), "binary", false, 0., 0., 0.);
+    }
+}
@@ -0,0 +1,574 @@
+package org.hps.conditions.api;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.hps.conditions.api.ConditionsRecord.ConditionsRecordCollection;
+
+/**
+ * A snapshot of all the conditions of one run, which can be written to a compact binary file and read back without
+ * a database connection.
+ * <p>
+ * The snapshot holds the {@link ConditionsRecord}s that apply to the run, after filtering by the conditions tags that
+ * were active when it was made, and every collection referenced by those records, so the usual selection of a
+ * collection from its records gives the same result as with the database. The per-run TI time offset is also kept,
+ * since it is not stored as a collection.
+ * <p>
+ * The rows are held as plain field values and new objects are created each time a collection is requested, so the
+ * collections returned have the same lifecycle as those selected from the database. They have no connection set.
+ * <p>
+ * The file is a gzip compressed stream with a header holding the run number and tags, then the records and then the
+ * collections. Each table section lists its field names followed by the rows, with one type code and value per field.
+ *
+ * @see org.hps.conditions.database.DatabaseConditionsManager#setSnapshotFile(File)
+ * @see org.hps.conditions.database.DatabaseConditionsManager#writeSnapshot(File)
+ */
+public final class ConditionsSnapshot {
+
+    /**
+     * The rows of one collection (or of the conditions records) with the field values in the order of the field names.
+     */
+    private static final class Rows {
+
+        /**
+         * The collection ID.
+         */
+        private final int collectionId;
+
+        /**
+         * The field names.
+         */
+        private final String[] fieldNames;
+
+        /**
+         * The row IDs.
+         */
+        private final List<Integer> rowIds = new ArrayList<Integer>();
+
+        /**
+         * The field values of each row.
+         */
+        private final List<Object[]> values = new ArrayList<Object[]>();
+
+        /**
+         * The name of the table.
+         */
+        private final String tableName;
+
+        /**
+         * Create an empty set of rows.
+         *
+         * @param tableName the name of the table
+         * @param collectionId the collection ID
+         * @param fieldNames the field names
+         */
+        Rows(final String tableName, final int collectionId, final String[] fieldNames) {
+            this.tableName = tableName;
+            this.collectionId = collectionId;
+            this.fieldNames = fieldNames;
+        }
+
+        /**
+         * Copy the rows of a collection.
+         *
+         * @param collection the collection
+         */
+        Rows(final ConditionsObjectCollection<?> collection) {
+            this(collection.getTableMetaData().getTableName(), collection.getCollectionId(), collection
+                    .getTableMetaData().getFieldNames().toArray(new String[0]));
+            for (final ConditionsObject object : collection) {
+                final Object[] row = new Object[this.fieldNames.length];
+                for (int i = 0; i < this.fieldNames.length; i++) {
+                    row[i] = object.getFieldValues().getValue(this.fieldNames[i]);
+                }
+                this.rowIds.add(object.getRowId());
+                this.values.add(row);
+            }
+        }
+
+        /**
+         * Fill a new collection with new objects created from the rows.
+         *
+         * @param collection the empty collection which has its table meta data set
+         */
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        void fill(final ConditionsObjectCollection collection) {
+            final TableMetaData tableMetaData = collection.getTableMetaData();
+            for (int row = 0; row < this.values.size(); row++) {
+                final BaseConditionsObject object;
+                try {
+                    object = (BaseConditionsObject) tableMetaData.getObjectClass().newInstance();
+                } catch (InstantiationException | IllegalAccessException e) {
+                    throw new RuntimeException("Error creating conditions object.", e);
+                }
+                object.setTableMetaData(tableMetaData);
+                object.setRowId(this.rowIds.get(row));
+                final Object[] fieldValues = this.values.get(row);
+                for (int i = 0; i < this.fieldNames.length; i++) {
+                    object.setFieldValue(this.fieldNames[i], fieldValues[i]);
+                }
+                try {
+                    collection.add(object);
+                } catch (final ConditionsObjectException e) {
+                    throw new RuntimeException("Error adding object to collection.", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the start of a snapshot file ("HPSC").
+     */
+    private static final int MAGIC = 0x48505343;
+
+    /**
+     * The version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Type codes of the field values.
+     */
+    private static final byte NULL = 0, INTEGER = 1, LONG = 2, DOUBLE = 3, FLOAT = 4, STRING = 5, TIMESTAMP = 6,
+            SQL_DATE = 7, DATE = 8, BOOLEAN = 9, SHORT = 10, BYTE = 11, DECIMAL = 12, BYTES = 13;
+
+    /**
+     * The character set of strings.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * Read a snapshot from a file.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if there is an error reading the file or it is not a snapshot file
+     */
+    public static ConditionsSnapshot read(final File file) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(
+                new FileInputStream(file))));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("The file " + file.getPath() + " is not a conditions snapshot.");
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("The conditions snapshot " + file.getPath() + " has unsupported version "
+                        + version);
+            }
+            final int run = in.readInt();
+            final int nTags = in.readInt();
+            final Set<String> tags = new LinkedHashSet<String>();
+            for (int i = 0; i < nTags; i++) {
+                tags.add(in.readUTF());
+            }
+            final ConditionsSnapshot snapshot = new ConditionsSnapshot(run, tags);
+            if (in.readBoolean()) {
+                snapshot.tiTimeOffset = in.readLong();
+            }
+            snapshot.records = readRows(in);
+            final int nCollections = in.readInt();
+            for (int i = 0; i < nCollections; i++) {
+                final Rows rows = readRows(in);
+                snapshot.collections.put(key(rows.tableName, rows.collectionId), rows);
+            }
+            return snapshot;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Get the key of a collection.
+     *
+     * @param tableName the name of the table
+     * @param collectionId the collection ID
+     * @return the key of the collection
+     */
+    private static String key(final String tableName, final int collectionId) {
+        return tableName + ":" + collectionId;
+    }
+
+    /**
+     * Read one table section.
+     *
+     * @param in the input stream
+     * @return the rows
+     * @throws IOException if there is an error reading the rows
+     */
+    private static Rows readRows(final DataInputStream in) throws IOException {
+        final String tableName = in.readUTF();
+        final int collectionId = in.readInt();
+        final String[] fieldNames = new String[in.readInt()];
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldNames[i] = in.readUTF();
+        }
+        final Rows rows = new Rows(tableName, collectionId, fieldNames);
+        final int nRows = in.readInt();
+        for (int row = 0; row < nRows; row++) {
+            rows.rowIds.add(in.readInt());
+            final Object[] values = new Object[fieldNames.length];
+            for (int i = 0; i < fieldNames.length; i++) {
+                values[i] = readValue(in);
+            }
+            rows.values.add(values);
+        }
+        return rows;
+    }
+
+    /**
+     * Read a string of any length.
+     *
+     * @param in the input stream
+     * @return the string
+     * @throws IOException if there is an error reading the string
+     */
+    private static String readString(final DataInputStream in) throws IOException {
+        final byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * Read a field value with its type code.
+     *
+     * @param in the input stream
+     * @return the field value
+     * @throws IOException if there is an error reading the value or its type is unknown
+     */
+    private static Object readValue(final DataInputStream in) throws IOException {
+        final byte type = in.readByte();
+        switch (type) {
+            case NULL:
+                return null;
+            case INTEGER:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case STRING:
+                return readString(in);
+            case TIMESTAMP:
+                final Timestamp timestamp = new Timestamp(in.readLong());
+                timestamp.setNanos(in.readInt());
+                return timestamp;
+            case SQL_DATE:
+                return new java.sql.Date(in.readLong());
+            case DATE:
+                return new Date(in.readLong());
+            case BOOLEAN:
+                return in.readBoolean();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case DECIMAL:
+                return new BigDecimal(readString(in));
+            case BYTES:
+                final byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return bytes;
+            default:
+                throw new IOException("Unknown field value type " + type + " in conditions snapshot.");
+        }
+    }
+
+    /**
+     * Write one table section.
+     *
+     * @param out the output stream
+     * @param rows the rows
+     * @throws IOException if there is an error writing the rows
+     */
+    private static void writeRows(final DataOutputStream out, final Rows rows) throws IOException {
+        out.writeUTF(rows.tableName);
+        out.writeInt(rows.collectionId);
+        out.writeInt(rows.fieldNames.length);
+        for (final String fieldName : rows.fieldNames) {
+            out.writeUTF(fieldName);
+        }
+        out.writeInt(rows.values.size());
+        for (int row = 0; row < rows.values.size(); row++) {
+            out.writeInt(rows.rowIds.get(row));
+            for (final Object value : rows.values.get(row)) {
+                writeValue(out, value);
+            }
+        }
+    }
+
+    /**
+     * Write a string of any length.
+     *
+     * @param out the output stream
+     * @param value the string
+     * @throws IOException if there is an error writing the string
+     */
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte[] bytes = value.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Write a field value with its type code.
+     *
+     * @param out the output stream
+     * @param value the field value
+     * @throws IOException if there is an error writing the value or its type is not supported
+     */
+    private static void writeValue(final DataOutputStream out, final Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Timestamp) {
+            out.writeByte(TIMESTAMP);
+            out.writeLong(((Timestamp) value).getTime());
+            out.writeInt(((Timestamp) value).getNanos());
+        } else if (value instanceof java.sql.Date) {
+            out.writeByte(SQL_DATE);
+            out.writeLong(((java.sql.Date) value).getTime());
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeLong(((Date) value).getTime());
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(DECIMAL);
+            writeString(out, value.toString());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            out.writeInt(((byte[]) value).length);
+            out.write((byte[]) value);
+        } else {
+            throw new IOException("Field value type " + value.getClass().getName()
+                    + " is not supported in conditions snapshots.");
+        }
+    }
+
+    /**
+     * The collections by table name and collection ID.
+     */
+    private final Map<String, Rows> collections = new LinkedHashMap<String, Rows>();
+
+    /**
+     * The conditions records of the run.
+     */
+    private Rows records;
+
+    /**
+     * The run number.
+     */
+    private final int run;
+
+    /**
+     * The conditions tags that were used to filter the records.
+     */
+    private final Set<String> tags;
+
+    /**
+     * The TI time offset of the run or <code>null</code> if there is none.
+     */
+    private Long tiTimeOffset = null;
+
+    /**
+     * Create an empty snapshot.
+     *
+     * @param run the run number
+     * @param tags the conditions tags that were used to filter the records
+     */
+    public ConditionsSnapshot(final int run, final Collection<String> tags) {
+        this.run = run;
+        this.tags = Collections.unmodifiableSet(new LinkedHashSet<String>(tags));
+    }
+
+    /**
+     * Add a copy of a collection selected from the database.
+     *
+     * @param collection the collection, which must have its table meta data and collection ID set
+     */
+    public void addCollection(final ConditionsObjectCollection<?> collection) {
+        this.collections.put(key(collection.getTableMetaData().getTableName(), collection.getCollectionId()),
+                new Rows(collection));
+    }
+
+    /**
+     * Create a new collection with the objects of a collection in the snapshot.
+     *
+     * @param tableMetaData the table meta data of the collection
+     * @param collectionId the collection ID
+     * @return the new collection or <code>null</code> if it is not in the snapshot
+     */
+    public ConditionsObjectCollection<?> getCollection(final TableMetaData tableMetaData, final int collectionId) {
+        final Rows rows = this.collections.get(key(tableMetaData.getTableName(), collectionId));
+        if (rows == null) {
+            return null;
+        }
+        final ConditionsObjectCollection<?> collection;
+        try {
+            collection = tableMetaData.getCollectionClass().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new RuntimeException("Error creating conditions object collection.", e);
+        }
+        collection.setTableMetaData(tableMetaData);
+        rows.fill(collection);
+        collection.setCollectionId(collectionId);
+        return collection;
+    }
+
+    /**
+     * Create a new collection with the conditions records of the run.
+     *
+     * @return the conditions records
+     */
+    public ConditionsRecordCollection getConditionsRecords() {
+        final ConditionsRecordCollection collection = new ConditionsRecordCollection();
+        if (this.records != null) {
+            collection.setTableMetaData(TableRegistry.getTableRegistry().findByTableName(this.records.tableName));
+            this.records.fill(collection);
+        }
+        return collection;
+    }
+
+    /**
+     * Get the run number.
+     *
+     * @return the run number
+     */
+    public int getRun() {
+        return this.run;
+    }
+
+    /**
+     * Get the conditions tags that were used to filter the records.
+     *
+     * @return the conditions tags
+     */
+    public Set<String> getTags() {
+        return this.tags;
+    }
+
+    /**
+     * Get the TI time offset of the run.
+     *
+     * @return the TI time offset or <code>null</code> if there is none
+     */
+    public Long getTiTimeOffset() {
+        return this.tiTimeOffset;
+    }
+
+    /**
+     * Return <code>true</code> if the snapshot has a collection.
+     *
+     * @param tableName the name of the table
+     * @param collectionId the collection ID
+     * @return <code>true</code> if the snapshot has the collection
+     */
+    public boolean hasCollection(final String tableName, final int collectionId) {
+        return this.collections.containsKey(key(tableName, collectionId));
+    }
+
+    /**
+     * Set the conditions records of the run.
+     *
+     * @param records the conditions records
+     */
+    public void setConditionsRecords(final ConditionsRecordCollection records) {
+        this.records = new Rows(records);
+    }
+
+    /**
+     * Set the TI time offset of the run.
+     *
+     * @param tiTimeOffset the TI time offset or <code>null</code> if there is none
+     */
+    public void setTiTimeOffset(final Long tiTimeOffset) {
+        this.tiTimeOffset = tiTimeOffset;
+    }
+
+    /**
+     * Get the number of collections.
+     *
+     * @return the number of collections
+     */
+    public int size() {
+        return this.collections.size();
+    }
+
+    /**
+     * Write the snapshot to a file.
+     *
+     * @param file the output file
+     * @throws IOException if there is an error writing the file
+     */
+    public void write(final File file) throws IOException {
+        if (this.records == null) {
+            throw new IllegalStateException("The conditions records of the snapshot are not set.");
+        }
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(
+                new FileOutputStream(file))));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(this.run);
+            out.writeInt(this.tags.size());
+            for (final String tag : this.tags) {
+                out.writeUTF(tag);
+            }
+            out.writeBoolean(this.tiTimeOffset != null);
+            if (this.tiTimeOffset != null) {
+                out.writeLong(this.tiTimeOffset);
+            }
+            writeRows(out, this.records);
+            out.writeInt(this.collections.size());
+            for (final Rows rows : this.collections.values()) {
+                writeRows(out, rows);
+            }
+        } finally {
+            out.close();
+        }
+    }
+}
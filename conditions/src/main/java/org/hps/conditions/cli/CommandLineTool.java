@@ -49,6 +49,7 @@ public final class CommandLineTool {
         cli.registerCommand(new AddCommand());
         cli.registerCommand(new TagCommand());
         cli.registerCommand(new RunSummaryCommand());
+        cli.registerCommand(new SnapshotCommand());
         return cli;
     }
 
@@ -0,0 +1,73 @@
+package org.hps.conditions.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Logger;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.hps.conditions.database.DatabaseConditionsManager;
+
+/**
+ * This is a sub-command to write a snapshot file with all the conditions of a run, which batch jobs can read instead
+ * of connecting to the database. The run and tags are given with the global <i>-r</i>, <i>-d</i> and <i>-t</i>
+ * options.
+ *
+ * @see org.hps.conditions.api.ConditionsSnapshot
+ */
+final class SnapshotCommand extends AbstractCommand {
+
+    /**
+     * Initialize the logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(SnapshotCommand.class.getPackage().getName());
+
+    /**
+     * Define command options.
+     */
+    private static final Options OPTIONS = new Options();
+    static {
+        OPTIONS.addOption(new Option("h", "help", false, "print help for snapshot command"));
+        OPTIONS.addOption(new Option("f", "file", true, "output snapshot file path (required)"));
+    }
+
+    /**
+     * Class constructor.
+     */
+    SnapshotCommand() {
+        super("snapshot", "Write the conditions of a run to a snapshot file", OPTIONS);
+    }
+
+    /**
+     * Execute the <i>snapshot</i> command with the given arguments.
+     *
+     * @param arguments the command arguments
+     */
+    @Override
+    void execute(final String[] arguments) {
+
+        final CommandLine commandLine = this.parse(arguments);
+
+        final String fileName = commandLine.getOptionValue("f");
+        if (fileName == null) {
+            throw new IllegalArgumentException("Missing file argument.");
+        }
+        if (new File(fileName).exists()) {
+            throw new IllegalArgumentException("File already exists: " + fileName);
+        }
+
+        final DatabaseConditionsManager conditionsManager = this.getManager();
+        if (!conditionsManager.isInitialized()) {
+            throw new RuntimeException("conditions system is not initialized");
+        }
+
+        LOGGER.info("writing snapshot of run " + conditionsManager.getRun() + " to " + fileName + " ...");
+        try {
+            conditionsManager.writeSnapshot(new File(fileName));
+        } catch (final IOException e) {
+            throw new RuntimeException("Error writing conditions snapshot.", e);
+        }
+        LOGGER.info("Snapshot was written successfully!");
+    }
+}
@@ -6,6 +6,7 @@ import java.util.logging.Logger;
 import org.hps.conditions.api.ConditionsObjectCollection;
 import org.hps.conditions.api.ConditionsObjectException;
 import org.hps.conditions.api.ConditionsRecord;
+import org.hps.conditions.api.ConditionsSnapshot;
 import org.hps.conditions.api.DatabaseObjectException;
 import org.hps.conditions.api.TableMetaData;
 import org.hps.conditions.api.TableRegistry;
@@ -118,6 +119,19 @@ public abstract class AbstractConditionsObjectConverter<T> implements Conditions
             }
         }
 
+        // Take the collection from the snapshot if the conditions are not read from the database.
+        final ConditionsSnapshot snapshot = databaseConditionsManager.getSnapshot();
+        if (snapshot != null) {
+            LOGGER.info("loading conditions set from snapshot..." + '\n' + conditionsRecord);
+            final ConditionsObjectCollection collection = snapshot.getCollection(tableMetaData,
+                    conditionsRecord.getCollectionId());
+            if (collection == null) {
+                throw new RuntimeException("The conditions snapshot has no collection from table " + name
+                        + " with collection ID " + conditionsRecord.getCollectionId());
+            }
+            return (T) collection;
+        }
+
         // Create a collection of objects to return.
         ConditionsObjectCollection collection = null;
         try {
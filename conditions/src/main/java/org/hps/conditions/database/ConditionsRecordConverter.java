@@ -32,6 +32,11 @@ public final class ConditionsRecordConverter extends AbstractConditionsObjectCon
 
         final DatabaseConditionsManager databaseConditionsManager = DatabaseConditionsManager.getInstance();
 
+        // The snapshot has the records of its run already.
+        if (databaseConditionsManager.getSnapshot() != null) {
+            return databaseConditionsManager.getSnapshot().getConditionsRecords();
+        }
+
         final TableMetaData tableMetaData = databaseConditionsManager.findTableMetaData(name);
 
         if (tableMetaData == null) {
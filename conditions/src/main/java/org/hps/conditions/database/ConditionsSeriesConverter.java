@@ -76,6 +76,17 @@ final class ConditionsSeriesConverter<ObjectType extends ConditionsObject, Colle
 
         for (final ConditionsRecord conditionsRecord : conditionsRecords) {
 
+            if (conditionsManager.getSnapshot() != null) {
+                final ConditionsObjectCollection<?> collection = conditionsManager.getSnapshot().getCollection(
+                        tableMetaData, conditionsRecord.getCollectionId());
+                if (collection == null) {
+                    throw new RuntimeException("The conditions snapshot has no collection from table " + tableName
+                            + " with collection ID " + conditionsRecord.getCollectionId());
+                }
+                series.add((ConditionsObjectCollection<ObjectType>) collection);
+                continue;
+            }
+
             ConditionsObjectCollection<?> collection = null;
             try {
                 collection = tableMetaData.getCollectionClass().newInstance();
@@ -1,5 +1,7 @@
 package org.hps.conditions.database;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.PreparedStatement;
@@ -18,8 +20,11 @@ import java.util.logging.Logger;
 
 import org.hps.conditions.api.ConditionsObject;
 import org.hps.conditions.api.ConditionsObjectCollection;
+import org.hps.conditions.api.ConditionsRecord;
 import org.hps.conditions.api.ConditionsRecord.ConditionsRecordCollection;
 import org.hps.conditions.api.ConditionsSeries;
+import org.hps.conditions.api.ConditionsSnapshot;
+import org.hps.conditions.api.DatabaseObjectException;
 import org.hps.conditions.api.ConditionsTag.ConditionsTagCollection;
 import org.hps.conditions.api.TableMetaData;
 import org.hps.conditions.api.TableRegistry;
@@ -31,6 +36,7 @@ import org.hps.conditions.hodoscope.HodoscopeConditionsConverter;
 import org.hps.conditions.svt.SvtConditions;
 import org.hps.conditions.svt.SvtConditionsConverter;
 import org.hps.conditions.svt.TestRunSvtConditionsConverter;
+import org.hps.conditions.trigger.TiTimeOffset;
 import org.lcsim.conditions.ConditionsConverter;
 import org.lcsim.conditions.ConditionsManager;
 import org.lcsim.conditions.ConditionsManagerImplementation;
@@ -62,6 +68,11 @@ import org.lcsim.util.loop.DetectorConditionsConverter;
  * <p>
  * SQLite is not supported in write mode. The local database should be a clone
  * of a particular version of the master MySQL database at JLab.
+ * <p>
+ * For batch jobs, the conditions of a run can instead be read from a snapshot
+ * file made by {@link #writeSnapshot(File)}, so that no database connection is
+ * opened at all. The file is set with {@link #setSnapshotFile(File)} or with
+ * the Java property <code>-Dorg.hps.conditions.snapshot=[file]</code>.
  *
  * @see org.lcsim.conditions.ConditionsManager
  * @author Jeremy McCormick, SLAC
@@ -284,6 +295,12 @@ public final class DatabaseConditionsManager extends ConditionsManagerImplementa
 
     private ConditionsConverter hodoscopeConverter;
 
+    /**
+     * The conditions snapshot used instead of the database, or
+     * <code>null</code> if the database is used.
+     */
+    private ConditionsSnapshot snapshot = null;
+
     /**
      * Class constructor. Calling this will automatically register this manager
      * as the global default.
@@ -303,18 +320,31 @@ public final class DatabaseConditionsManager extends ConditionsManagerImplementa
 
         // Set default global conditions manager.
         ConditionsManager.setDefaultConditionsManager(this);
+
+        // Use a conditions snapshot if one was given on the command line.
+        final String snapshotPath = System.getProperty("org.hps.conditions.snapshot");
+        if (snapshotPath != null) {
+            this.setSnapshotFile(new File(snapshotPath));
+        }
     }
 
     /**
      * Add a tag used to filter the accessible conditions records.
      * <p>
      * Multiple tags are OR'd together.
+     * <p>
+     * When a snapshot is used, the records were already filtered when it was
+     * made, and the tags must be the same as those of the snapshot.
      *
      * @param tag the tag value used to filter returned conditions records
      */
     public void addTag(final String tag) {
         if (!this.tags.contains(tag)) {
             LOG.info("adding tag " + tag);
+            if (this.snapshot != null) {
+                this.tags.add(tag);
+                return;
+            }
             final ConditionsTagCollection findConditionsTag = this
                     .getCachedConditions(ConditionsTagCollection.class, tag).getCachedData();
             if (findConditionsTag.size() == 0) {
@@ -544,8 +574,8 @@ public final class DatabaseConditionsManager extends ConditionsManagerImplementa
                     .getCachedData();
 
             // If there is one or more tags enabled then filter the collection by the tag
-            // names.
-            if (this.conditionsTagCollection.size() > 0) {
+            // names, which was already done for a snapshot.
+            if (this.snapshot == null && this.conditionsTagCollection.size() > 0) {
                 this.conditionsRecordCollection = this.conditionsTagCollection.filter(this.conditionsRecordCollection);
             }
         }
@@ -632,6 +662,16 @@ public final class DatabaseConditionsManager extends ConditionsManagerImplementa
         return this.getCachedConditions(SvtConditions.class, "svt_conditions").getCachedData();
     }
 
+    /**
+     * Get the conditions snapshot that is used instead of the database.
+     *
+     * @return the conditions snapshot or <code>null</code> if the database is
+     * used
+     */
+    public ConditionsSnapshot getSnapshot() {
+        return this.snapshot;
+    }
+
     /**
      * True if there is a conditions record with the given name.
      *
@@ -818,8 +858,13 @@ public final class DatabaseConditionsManager extends ConditionsManagerImplementa
                 // Register the converters for this initialization.
                 this.registerConverters();
 
-                // Open the database connection.
-                this.openConnection();
+                if (this.snapshot != null) {
+                    // Check that the snapshot has the conditions that were asked for.
+                    this.checkSnapshot(runNumber);
+                } else {
+                    // Open the database connection.
+                    this.openConnection();
+                }
 
                 // Reset the conditions records.
                 this.conditionsRecordCollection = null;
@@ -836,6 +881,47 @@ public final class DatabaseConditionsManager extends ConditionsManagerImplementa
         }
     }
 
+    /**
+     * Read the conditions from a snapshot file instead of the database.
+     * <p>
+     * The snapshot can only be used for its own run and conditions tags. Any
+     * conditions that were already loaded are kept until the next change of
+     * detector or run.
+     *
+     * @param file the snapshot file, or <code>null</code> to use the database
+     * again
+     */
+    public synchronized void setSnapshotFile(final File file) {
+        if (file == null) {
+            this.snapshot = null;
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        try {
+            this.snapshot = ConditionsSnapshot.read(file);
+        } catch (final IOException e) {
+            throw new RuntimeException("Error reading conditions snapshot " + file.getPath(), e);
+        }
+        LOG.config("Read conditions snapshot " + file.getPath() + " for run " + this.snapshot.getRun() + " with "
+                + this.snapshot.size() + " collections in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Check that the snapshot is for the given run and the active tags.
+     *
+     * @param runNumber the run number
+     */
+    private void checkSnapshot(final int runNumber) {
+        if (this.snapshot.getRun() != runNumber) {
+            throw new RuntimeException("The conditions snapshot is for run " + this.snapshot.getRun()
+                    + " but run " + runNumber + " was requested.");
+        }
+        if (!this.snapshot.getTags().equals(this.tags)) {
+            throw new RuntimeException("The conditions snapshot was made with tags " + this.snapshot.getTags()
+                    + " but the active tags are " + this.tags);
+        }
+    }
+
     /**
      * Un-freeze the conditions system so that updates will be received again.
      */
@@ -843,4 +929,58 @@ public final class DatabaseConditionsManager extends ConditionsManagerImplementa
         this.isFrozen = false;
         LOG.info("Conditions system was unfrozen and will now accept updates.");
     }
+
+    /**
+     * Write a snapshot of the conditions of the current run from the database
+     * to a file, which can then be used with {@link #setSnapshotFile(File)}.
+     * <p>
+     * The snapshot has the conditions records of the run, filtered by the
+     * active tags, and all the collections they refer to.
+     *
+     * @param file the output file
+     * @throws IOException if there is an error writing the file
+     */
+    public synchronized void writeSnapshot(final File file) throws IOException {
+        if (this.snapshot != null) {
+            throw new IllegalStateException("Cannot write a snapshot while reading the conditions from a snapshot.");
+        }
+        final ConditionsRecordCollection records = this.getConditionsRecords();
+        final ConditionsSnapshot newSnapshot = new ConditionsSnapshot(this.getRun(), this.tags);
+        newSnapshot.setConditionsRecords(records);
+        for (final ConditionsRecord record : records) {
+            final TableMetaData tableMetaData = this.findTableMetaData(record.getName());
+            if (tableMetaData == null) {
+                LOG.warning("No table information found for conditions record " + record.getName()
+                        + " which is left out of the snapshot.");
+                continue;
+            }
+            if (TiTimeOffset.class.equals(tableMetaData.getObjectClass())) {
+                // The TI time offset is stored by run rather than as a collection.
+                newSnapshot.setTiTimeOffset(this.getCachedConditions(TiTimeOffset.class, record.getName())
+                        .getCachedData().getValue());
+                continue;
+            }
+            if (newSnapshot.hasCollection(tableMetaData.getTableName(), record.getCollectionId())) {
+                continue;
+            }
+            final ConditionsObjectCollection<?> collection;
+            try {
+                collection = tableMetaData.getCollectionClass().newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new RuntimeException("Error creating conditions object collection.", e);
+            }
+            collection.setTableMetaData(tableMetaData);
+            collection.setConnection(this.getConnection());
+            try {
+                collection.select(record.getCollectionId());
+            } catch (final DatabaseObjectException | SQLException e) {
+                throw new RuntimeException("Error selecting collection " + record.getCollectionId() + " from table "
+                        + tableMetaData.getTableName(), e);
+            }
+            newSnapshot.addCollection(collection);
+        }
+        newSnapshot.write(file);
+        LOG.info("Wrote conditions snapshot " + file.getPath() + " for run " + this.getRun() + " with "
+                + newSnapshot.size() + " collections");
+    }
 }
@@ -268,6 +268,15 @@ public final class EcalChannel extends BaseConditionsObject {
             return this.geometryMap.get(id);
         }
 
+        /**
+         * Get the map of encoded geometric IDs to channel objects.
+         *
+         * @return the geometric ID map
+         */
+        Map<Long, EcalChannel> getGeometryMap() {
+            return this.geometryMap;
+        }
+
         /**
          * Sort collection and return but do not sort in place.
          *
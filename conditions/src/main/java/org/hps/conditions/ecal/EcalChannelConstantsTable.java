@@ -0,0 +1,291 @@
+package org.hps.conditions.ecal;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.hps.conditions.ecal.EcalChannel.EcalChannelCollection;
+import org.hps.util.LongIntHashMap;
+
+/**
+ * An immutable, array-based copy of the per-crystal ECAL conditions of one run, for use in the per-hit loops of the
+ * reconstruction.
+ * <p>
+ * Each crystal gets a dense index computed from its x and y indices, and its gain, pedestal, noise, time shift and
+ * bad channel flag are held in primitive arrays at that index. The encoded geometric ID of a hit (its cell ID) is
+ * turned into the dense index with a {@link LongIntHashMap} of primitive <code>long</code> keys, so a lookup does not
+ * box the ID or go through the channel collection.
+ * <p>
+ * The table is built by {@link EcalConditions#getChannelConstantsTable()} from the conditions of the current run, and
+ * a new one is built whenever the ECAL conditions are reloaded. Looking up a gain, pedestal, noise or time shift that
+ * is missing from the database throws an {@link IllegalStateException}, as the reconstruction cannot go on without
+ * it.
+ *
+ * @see EcalConditions
+ * @see EcalChannelConstants
+ */
+public final class EcalChannelConstantsTable {
+
+    /**
+     * The bad channel flags by dense index.
+     */
+    private final boolean[] badChannel;
+
+    /**
+     * The channel objects by dense index.
+     */
+    private final EcalChannel[] channels;
+
+    /**
+     * The conditions objects by dense index.
+     */
+    private final EcalChannelConstants[] constants;
+
+    /**
+     * The gains by dense index.
+     */
+    private final double[] gain;
+
+    /**
+     * The dense indices by cell ID.
+     */
+    private final LongIntHashMap cellIndices;
+
+    /**
+     * The range of crystal x indices.
+     */
+    private final int minX, maxX;
+
+    /**
+     * The range of crystal y indices.
+     */
+    private final int minY, maxY;
+
+    /**
+     * The noise by dense index.
+     */
+    private final double[] noise;
+
+    /**
+     * The pedestals by dense index.
+     */
+    private final double[] pedestal;
+
+    /**
+     * The time shifts by dense index.
+     */
+    private final double[] timeShift;
+
+    /**
+     * Build the table from the conditions of the current run.
+     *
+     * @param conditions the ECAL conditions
+     */
+    EcalChannelConstantsTable(final EcalConditions conditions) {
+        this(conditions, conditions.getChannelCollection().getGeometryMap());
+    }
+
+    /**
+     * Build the table from the conditions of the current run, with the given map of encoded geometric IDs to channels.
+     *
+     * @param conditions the ECAL conditions
+     * @param geometryMap the channels by encoded geometric ID
+     */
+    EcalChannelConstantsTable(final EcalConditions conditions, final Map<Long, EcalChannel> geometryMap) {
+        final EcalChannelCollection channelCollection = conditions.getChannelCollection();
+
+        int xLow = Integer.MAX_VALUE;
+        int xHigh = Integer.MIN_VALUE;
+        int yLow = Integer.MAX_VALUE;
+        int yHigh = Integer.MIN_VALUE;
+        for (final EcalChannel channel : channelCollection) {
+            final int x = channel.getX();
+            final int y = channel.getY();
+            xLow = Math.min(xLow, x);
+            xHigh = Math.max(xHigh, x);
+            yLow = Math.min(yLow, y);
+            yHigh = Math.max(yHigh, y);
+        }
+        if (xLow > xHigh) {
+            throw new IllegalStateException("The ECal channels collection is empty.");
+        }
+        this.minX = xLow;
+        this.maxX = xHigh;
+        this.minY = yLow;
+        this.maxY = yHigh;
+
+        final int size = (this.maxX - this.minX + 1) * (this.maxY - this.minY + 1);
+        this.badChannel = new boolean[size];
+        this.channels = new EcalChannel[size];
+        this.constants = new EcalChannelConstants[size];
+        this.gain = new double[size];
+        this.noise = new double[size];
+        this.pedestal = new double[size];
+        this.timeShift = new double[size];
+        Arrays.fill(this.gain, Double.NaN);
+        Arrays.fill(this.noise, Double.NaN);
+        Arrays.fill(this.pedestal, Double.NaN);
+        Arrays.fill(this.timeShift, Double.NaN);
+
+        for (final EcalChannel channel : channelCollection) {
+            final int index = this.getIndex(channel.getX(), channel.getY());
+            final EcalChannelConstants channelConstants = conditions.getChannelConstants(channel);
+            this.channels[index] = channel;
+            this.constants[index] = channelConstants;
+            this.badChannel[index] = channelConstants.isBadChannel();
+            if (channelConstants.getGain() != null) {
+                this.gain[index] = channelConstants.getGain().getGain();
+            }
+            if (channelConstants.getCalibration() != null) {
+                this.pedestal[index] = channelConstants.getCalibration().getPedestal();
+                this.noise[index] = channelConstants.getCalibration().getNoise();
+            }
+            if (channelConstants.getTimeShift() != null) {
+                this.timeShift[index] = channelConstants.getTimeShift().getTimeShift();
+            }
+        }
+
+        this.cellIndices = new LongIntHashMap(geometryMap.size());
+        for (final Map.Entry<Long, EcalChannel> entry : geometryMap.entrySet()) {
+            this.cellIndices.put(entry.getKey(), this.getIndex(entry.getValue().getX(), entry.getValue().getY()));
+        }
+    }
+
+    /**
+     * Get the channel object at a dense index.
+     *
+     * @param index the dense index
+     * @return the channel or <code>null</code> if there is no crystal at this index
+     */
+    public EcalChannel getChannel(final int index) {
+        return this.channels[index];
+    }
+
+    /**
+     * Get the conditions object at a dense index, for the conditions that are not copied into this table.
+     *
+     * @param index the dense index
+     * @return the channel conditions or <code>null</code> if there is no crystal at this index
+     */
+    public EcalChannelConstants getChannelConstants(final int index) {
+        return this.constants[index];
+    }
+
+    /**
+     * Get the gain at a dense index.
+     *
+     * @param index the dense index
+     * @return the gain
+     * @throws IllegalStateException if the channel has no gain in the database
+     */
+    public double getGain(final int index) {
+        final double value = this.gain[index];
+        if (Double.isNaN(value)) {
+            throw this.missingConstant("gain", index);
+        }
+        return value;
+    }
+
+    /**
+     * Get the dense index of a crystal from its x and y indices.
+     *
+     * @param x the crystal x index
+     * @param y the crystal y index
+     * @return the dense index or -1 if the indices are out of range
+     */
+    public int getIndex(final int x, final int y) {
+        if (x < this.minX || x > this.maxX || y < this.minY || y > this.maxY) {
+            return -1;
+        }
+        return (x - this.minX) * (this.maxY - this.minY + 1) + y - this.minY;
+    }
+
+    /**
+     * Get the dense index of a crystal from the encoded geometric ID of a hit.
+     *
+     * @param cellID the encoded geometric ID
+     * @return the dense index or -1 if there is no channel with this ID
+     */
+    public int getIndex(final long cellID) {
+        return this.cellIndices.get(cellID);
+    }
+
+    /**
+     * Get the noise at a dense index.
+     *
+     * @param index the dense index
+     * @return the noise
+     * @throws IllegalStateException if the channel has no noise in the database
+     */
+    public double getNoise(final int index) {
+        final double value = this.noise[index];
+        if (Double.isNaN(value)) {
+            throw this.missingConstant("noise", index);
+        }
+        return value;
+    }
+
+    /**
+     * Get the pedestal at a dense index.
+     *
+     * @param index the dense index
+     * @return the pedestal
+     * @throws IllegalStateException if the channel has no pedestal in the database
+     */
+    public double getPedestal(final int index) {
+        final double value = this.pedestal[index];
+        if (Double.isNaN(value)) {
+            throw this.missingConstant("pedestal", index);
+        }
+        return value;
+    }
+
+    /**
+     * Get the time shift at a dense index.
+     *
+     * @param index the dense index
+     * @return the time shift
+     * @throws IllegalStateException if the channel has no time shift in the database
+     */
+    public double getTimeShift(final int index) {
+        final double value = this.timeShift[index];
+        if (Double.isNaN(value)) {
+            throw this.missingConstant("time shift", index);
+        }
+        return value;
+    }
+
+    /**
+     * Get the number of dense indices, which is the size of the rectangle of crystal indices.
+     *
+     * @return the number of dense indices
+     */
+    public int size() {
+        return this.channels.length;
+    }
+
+    /**
+     * <code>true</code> if the crystal at a dense index is flagged as bad.
+     *
+     * @param index the dense index
+     * @return <code>true</code> if the channel is bad
+     */
+    public boolean isBadChannel(final int index) {
+        return this.badChannel[index];
+    }
+
+    /**
+     * Create the exception for a lookup of a constant that is missing from the database.
+     *
+     * @param name the name of the constant
+     * @param index the dense index
+     * @return the exception
+     */
+    private IllegalStateException missingConstant(final String name, final int index) {
+        final EcalChannel channel = this.channels[index];
+        if (channel == null) {
+            return new IllegalStateException("There is no ECal channel at index " + index + ".");
+        }
+        return new IllegalStateException("The ECal channel " + channel.getChannelId() + " has no " + name
+                + " in the conditions database.");
+    }
+}
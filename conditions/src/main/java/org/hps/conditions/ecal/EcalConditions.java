@@ -38,6 +38,11 @@ public final class EcalConditions {
      */
     private final Subdetector subdetector;
 
+    /**
+     * The array-based copy of the channel constants, which is built on first use.
+     */
+    private volatile EcalChannelConstantsTable channelConstantsTable = null;
+
     /**
      * Class constructor.
      *
@@ -68,16 +73,42 @@ public final class EcalConditions {
      * @throws IllegalArgumentException if channel does not exist in the channel map
      */
     public EcalChannelConstants getChannelConstants(final EcalChannel channel) {
+        // Channels with data have already been checked against the map, so skip the linear search for them.
+        EcalChannelConstants constants = this.channelConstants.get(channel);
+        if (constants != null) {
+            return constants;
+        }
         // This channel must come from the map.
         if (!this.channelCollection.contains(channel)) {
             System.err.println("Channel not found in map: " + channel);
             throw new IllegalArgumentException("Channel was not found in map.");
         }
-        // If channel has no data yet, then add it.
-        if (!this.channelConstants.containsKey(channel)) {
-            this.channelConstants.put(channel, new EcalChannelConstants());
+        // The channel has no data yet, so add it.
+        constants = new EcalChannelConstants();
+        this.channelConstants.put(channel, constants);
+        return constants;
+    }
+
+    /**
+     * Get the conditions constants of all channels as an array-based table indexed by crystal position, for fast
+     * lookup by cell ID in the per-hit reconstruction. The table is built on the first call, after the converter has
+     * filled in the constants, and a new table comes with each new <code>EcalConditions</code> object when the
+     * conditions change.
+     *
+     * @return the channel constants table
+     */
+    public EcalChannelConstantsTable getChannelConstantsTable() {
+        EcalChannelConstantsTable table = this.channelConstantsTable;
+        if (table == null) {
+            synchronized (this) {
+                table = this.channelConstantsTable;
+                if (table == null) {
+                    table = new EcalChannelConstantsTable(this);
+                    this.channelConstantsTable = table;
+                }
+            }
         }
-        return this.channelConstants.get(channel);
+        return table;
     }
 
     /**
@@ -87,6 +118,7 @@ public final class EcalConditions {
      */
     void setChannelCollection(final EcalChannelCollection channelCollection) {
         this.channelCollection = channelCollection;
+        this.channelConstantsTable = null;
     }
 
     /**
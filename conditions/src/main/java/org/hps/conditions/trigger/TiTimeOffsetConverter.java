@@ -14,6 +14,14 @@ public class TiTimeOffsetConverter extends AbstractConditionsObjectConverter<TiT
 
         final DatabaseConditionsManager databaseConditionsManager = DatabaseConditionsManager.getInstance();
 
+        if (databaseConditionsManager.getSnapshot() != null) {
+            final Long value = databaseConditionsManager.getSnapshot().getTiTimeOffset();
+            if (value == null) {
+                throw new RuntimeException("No TiTimeOffset condition exists for run " + manager.getRun());
+            }
+            return new TiTimeOffset(value);
+        }
+
         final String query = "SELECT ti_time_offset from ti_time_offsets WHERE run = " + manager.getRun();
         final ResultSet resultSet = databaseConditionsManager.selectQuery(query);
         TiTimeOffset t = null;
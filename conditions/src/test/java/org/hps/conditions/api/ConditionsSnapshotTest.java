@@ -0,0 +1,90 @@
+package org.hps.conditions.api;
+
+import java.io.File;
+import java.sql.Timestamp;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+
+import org.hps.conditions.api.ConditionsRecord.ConditionsRecordCollection;
+import org.hps.conditions.ecal.EcalGain;
+import org.hps.conditions.ecal.EcalGain.EcalGainCollection;
+
+/**
+ * Write a conditions snapshot to a file and check that the same records and collections are read back, without
+ * using the database.
+ */
+public class ConditionsSnapshotTest extends TestCase {
+
+    private static final int RUN = 5772;
+
+    public void testSnapshot() throws Exception {
+
+        final TableRegistry registry = TableRegistry.getTableRegistry();
+
+        // Records of the run with one ECAL gain collection.
+        final ConditionsRecordCollection records = new ConditionsRecordCollection();
+        records.setTableMetaData(registry.findByTableName("conditions"));
+        final ConditionsRecord record = new ConditionsRecord(1001, 5000, 6000, "ecal_gains", "ecal_gains",
+                "test record", "test");
+        record.setTableMetaData(registry.findByTableName("conditions"));
+        record.setRowId(42);
+        record.setFieldValue("created", new Timestamp(1500000000000L));
+        records.add(record);
+
+        final TableMetaData gainMetaData = registry.findByTableName("ecal_gains");
+        final EcalGainCollection gains = new EcalGainCollection();
+        gains.setTableMetaData(gainMetaData);
+        for (int channel = 1; channel <= 442; channel++) {
+            final EcalGain gain = new EcalGain();
+            gain.setTableMetaData(gainMetaData);
+            ((BaseConditionsObject) gain).setRowId(10000 + channel);
+            gain.setFieldValue("ecal_channel_id", channel);
+            gain.setFieldValue("gain", 0.15 + channel * 1e-4);
+            gains.add(gain);
+        }
+        gains.setCollectionId(1001);
+
+        final ConditionsSnapshot snapshot = new ConditionsSnapshot(RUN, Collections.singleton("test"));
+        snapshot.setConditionsRecords(records);
+        snapshot.addCollection(gains);
+        snapshot.setTiTimeOffset(123456789L);
+
+        final File file = File.createTempFile("ConditionsSnapshotTest", ".snapshot");
+        file.deleteOnExit();
+        snapshot.write(file);
+
+        final ConditionsSnapshot read = ConditionsSnapshot.read(file);
+        assertEquals(RUN, read.getRun());
+        assertEquals(Collections.singleton("test"), read.getTags());
+        assertEquals(Long.valueOf(123456789L), read.getTiTimeOffset());
+        assertTrue(read.hasCollection("ecal_gains", 1001));
+        assertFalse(read.hasCollection("ecal_gains", 1002));
+        assertNull(read.getCollection(gainMetaData, 1002));
+
+        final ConditionsRecordCollection readRecords = read.getConditionsRecords();
+        assertEquals(1, readRecords.size());
+        final ConditionsRecord readRecord = readRecords.findByKey("ecal_gains").get(0);
+        assertEquals(42, readRecord.getRowId());
+        assertEquals(record.getCollectionId(), readRecord.getCollectionId());
+        assertEquals(record.getRunStart(), readRecord.getRunStart());
+        assertEquals(record.getRunEnd(), readRecord.getRunEnd());
+        assertEquals(record.getNotes(), readRecord.getNotes());
+        assertEquals(record.getTag(), readRecord.getTag());
+        assertEquals(record.getCreated(), readRecord.getCreated());
+
+        final EcalGainCollection readGains = (EcalGainCollection) read.getCollection(gainMetaData,
+                readRecord.getCollectionId());
+        assertEquals(gains.size(), readGains.size());
+        assertEquals(1001, readGains.getCollectionId());
+        for (int i = 0; i < gains.size(); i++) {
+            assertEquals(gains.get(i).getRowId(), readGains.get(i).getRowId());
+            assertEquals(gains.get(i).getChannelId(), readGains.get(i).getChannelId());
+            assertEquals(gains.get(i).getGain(), readGains.get(i).getGain());
+            assertEquals(Integer.valueOf(1001), readGains.get(i).getCollectionId());
+        }
+
+        // Each request gives new objects.
+        assertNotSame(readGains.get(0), read.getCollection(gainMetaData, 1001).get(0));
+    }
+}
@@ -0,0 +1,201 @@
+package org.hps.conditions.ecal;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.hps.conditions.ecal.EcalChannel.EcalChannelCollection;
+import org.hps.util.LongIntHashMap;
+import org.lcsim.geometry.Subdetector;
+
+/**
+ * Test the {@link EcalChannelConstantsTable} on a few channels, without the conditions database.
+ * <p>
+ * The cell IDs of the channels are chosen so that they all start in the last slot of the cell ID table, so the lookups
+ * have to probe past the colliding IDs and wrap around to the start of the table.
+ */
+public final class EcalChannelConstantsTableTest extends TestCase {
+
+    /**
+     * The size of the cell ID table for the channels of this test.
+     */
+    private static final int TABLE_SIZE = 16;
+
+    /**
+     * The crystal x and y indices of the channels, by channel ID minus one.
+     */
+    private static final int[][] CRYSTALS = {{-1, 1}, {1, 1}, {2, 1}, {-1, -1}, {1, -1}, {2, -1}};
+
+    /**
+     * The channels.
+     */
+    private EcalChannel[] channels;
+
+    /**
+     * The cell IDs of the channels, and one more that collides with them but has no channel.
+     */
+    private long[] cellIDs;
+
+    /**
+     * The table under test.
+     */
+    private EcalChannelConstantsTable table;
+
+    /**
+     * Build the table. Channel 5 has no gain, and channel 6 has no calibration and no time shift.
+     */
+    @Override
+    public void setUp() throws Exception {
+        this.cellIDs = findCollidingIDs(CRYSTALS.length + 1);
+        final EcalChannelCollection collection = new EcalChannelCollection();
+        final Map<Long, EcalChannel> geometryMap = new HashMap<Long, EcalChannel>();
+        this.channels = new EcalChannel[CRYSTALS.length];
+        for (int i = 0; i < CRYSTALS.length; i++) {
+            final EcalChannel channel = new EcalChannel();
+            channel.setFieldValue("channel_id", i + 1);
+            channel.setFieldValue("crate", 1);
+            channel.setFieldValue("slot", 10);
+            channel.setFieldValue("channel", i);
+            channel.setFieldValue("x", CRYSTALS[i][0]);
+            channel.setFieldValue("y", CRYSTALS[i][1]);
+            collection.add(channel);
+            geometryMap.put(this.cellIDs[i], channel);
+            this.channels[i] = channel;
+        }
+
+        final EcalConditions conditions = new EcalConditions(dummySubdetector());
+        conditions.setChannelCollection(collection);
+        for (int i = 0; i < CRYSTALS.length; i++) {
+            final int channelId = i + 1;
+            final EcalChannelConstants constants = conditions.getChannelConstants(this.channels[i]);
+            if (channelId != 5) {
+                final EcalGain gain = new EcalGain();
+                gain.setFieldValue("gain", 0.1 * channelId);
+                constants.setGain(gain);
+            }
+            if (channelId != 6) {
+                constants.setCalibration(new EcalCalibration(channelId, 100. + channelId, 2. + channelId));
+                final EcalTimeShift timeShift = new EcalTimeShift();
+                timeShift.setFieldValue("time_shift", -1. * channelId);
+                constants.setTimeShift(timeShift);
+            }
+            constants.setBadChannel(channelId == 2);
+        }
+        this.table = new EcalChannelConstantsTable(conditions, geometryMap);
+    }
+
+    /**
+     * Look up each channel by cell ID and by crystal indices.
+     */
+    public void testLookup() {
+        assertEquals(4 * 3, this.table.size());
+        for (int i = 0; i < CRYSTALS.length; i++) {
+            final int channelId = i + 1;
+            final int index = this.table.getIndex(this.cellIDs[i]);
+            assertEquals(this.table.getIndex(CRYSTALS[i][0], CRYSTALS[i][1]), index);
+            assertSame(this.channels[i], this.table.getChannel(index));
+            assertEquals(channelId == 2, this.table.isBadChannel(index));
+            if (channelId != 5) {
+                assertEquals(0.1 * channelId, this.table.getGain(index));
+            }
+            if (channelId != 6) {
+                assertEquals(100. + channelId, this.table.getPedestal(index));
+                assertEquals(2. + channelId, this.table.getNoise(index));
+                assertEquals(-1. * channelId, this.table.getTimeShift(index));
+            }
+        }
+    }
+
+    /**
+     * IDs and crystal indices without a channel are not found.
+     */
+    public void testMissingChannel() {
+        assertEquals(-1, this.table.getIndex(this.cellIDs[CRYSTALS.length]));
+        assertEquals(-1, this.table.getIndex(this.cellIDs[0] + 1));
+        assertEquals(-1, this.table.getIndex(3, 1));
+        assertEquals(-1, this.table.getIndex(-1, 2));
+
+        // The rectangle of crystal indices has a hole at x = 0, which has an index but no channel.
+        final int hole = this.table.getIndex(0, 1);
+        assertTrue(hole >= 0);
+        assertNull(this.table.getChannel(hole));
+        assertNull(this.table.getChannelConstants(hole));
+        assertMissing(hole, "gain");
+        assertMissing(hole, "pedestal");
+        assertMissing(hole, "noise");
+        assertMissing(hole, "time shift");
+    }
+
+    /**
+     * Looking up a constant that is missing from the database throws.
+     */
+    public void testMissingConstants() {
+        final int noGain = this.table.getIndex(this.cellIDs[4]);
+        assertMissing(noGain, "gain");
+        this.table.getPedestal(noGain);
+
+        final int noCalibration = this.table.getIndex(this.cellIDs[5]);
+        assertMissing(noCalibration, "pedestal");
+        assertMissing(noCalibration, "noise");
+        assertMissing(noCalibration, "time shift");
+        this.table.getGain(noCalibration);
+    }
+
+    /**
+     * Check that looking up a constant at an index throws.
+     *
+     * @param index the dense index
+     * @param name the name of the constant
+     */
+    private void assertMissing(final int index, final String name) {
+        try {
+            if (name.equals("gain")) {
+                this.table.getGain(index);
+            } else if (name.equals("pedestal")) {
+                this.table.getPedestal(index);
+            } else if (name.equals("noise")) {
+                this.table.getNoise(index);
+            } else {
+                this.table.getTimeShift(index);
+            }
+            fail("No exception for the missing " + name + " at index " + index);
+        } catch (final IllegalStateException e) {
+        }
+    }
+
+    /**
+     * Find IDs whose first slot is the last one of the cell ID table, with the same hash as the table.
+     *
+     * @param n the number of IDs
+     * @return the IDs
+     */
+    private static long[] findCollidingIDs(final int n) {
+        final long[] ids = new long[n];
+        int found = 0;
+        for (long id = 1L << 32; found < n; id++) {
+            if ((LongIntHashMap.hash(id) & (TABLE_SIZE - 1)) == TABLE_SIZE - 1) {
+                ids[found++] = id;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Create a subdetector for the conditions object, which the table does not use.
+     *
+     * @return the subdetector
+     */
+    private static Subdetector dummySubdetector() {
+        return (Subdetector) Proxy.newProxyInstance(Subdetector.class.getClassLoader(), new Class<?>[] {Subdetector.class},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
@@ -77,6 +77,21 @@ final class CrawlerConfig {
      * Dry run for not actually executing updates.
      */
     private boolean dryRun = false;
+
+    /**
+     * Number of files to read metadata from at once.
+     */
+    private int threads = 1;
+
+    /**
+     * Scan the event headers of EVIO files instead of parsing the events.
+     */
+    private boolean scanHeaders = false;
+
+    /**
+     * Directory for writing the event index of EVIO files.
+     */
+    private File indexDir = null;
     
     /**
      * Base URL of datacat client.
@@ -216,6 +231,33 @@ final class CrawlerConfig {
     void setDryRun(boolean dryRun) {
         this.dryRun = dryRun;
     }
+
+    /**
+     * Set the number of files to read metadata from at once.
+     * 
+     * @param threads the number of files to read at once
+     */
+    void setThreads(int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * Enable scanning the event headers of EVIO files instead of parsing the events.
+     * 
+     * @param scanHeaders set to <code>true</code> to scan the event headers
+     */
+    void setScanHeaders(boolean scanHeaders) {
+        this.scanHeaders = scanHeaders;
+    }
+
+    /**
+     * Set the directory for writing the event index of EVIO files.
+     * 
+     * @param indexDir the index directory or <code>null</code> to not write index files
+     */
+    void setIndexDir(File indexDir) {
+        this.indexDir = indexDir;
+    }
     
 
     /**
@@ -300,6 +342,33 @@ final class CrawlerConfig {
     boolean dryRun() {
         return this.dryRun;
     }
+
+    /**
+     * Get the number of files to read metadata from at once.
+     * 
+     * @return the number of files to read at once
+     */
+    int threads() {
+        return this.threads;
+    }
+
+    /**
+     * Return <code>true</code> if the event headers of EVIO files are scanned instead of parsing the events.
+     * 
+     * @return <code>true</code> if event headers are scanned
+     */
+    boolean scanHeaders() {
+        return this.scanHeaders;
+    }
+
+    /**
+     * Get the directory for writing the event index of EVIO files.
+     * 
+     * @return the index directory or <code>null</code> if index files are not written
+     */
+    File indexDir() {
+        return this.indexDir;
+    }
     
     /**
      * Set the data catalog URL.
@@ -67,6 +67,9 @@ public final class DatacatCrawler {
         OPTIONS.addOption("x", "max-depth", true, "max depth to crawl");
         OPTIONS.addOption("D", "dry-run", false, "dry run which will not update the datacat");
         OPTIONS.addOption("u", "url", true, "provide a base URL of the datacat server");
+        OPTIONS.addOption("j", "threads", true, "number of files to read metadata from at once");
+        OPTIONS.addOption("S", "scan-headers", false, "scan EVIO event headers instead of parsing every event");
+        OPTIONS.addOption("I", "index-dir", true, "directory for writing EVIO event index files");
     }
 
     /**
@@ -218,6 +221,32 @@ public final class DatacatCrawler {
             if (cl.hasOption("D")) {
                 config.setDryRun(true);
             }
+
+            // Number of files to read at once.
+            if (cl.hasOption("j")) {
+                final int threads = Integer.parseInt(cl.getOptionValue("j"));
+                if (threads < 1) {
+                    throw new IllegalArgumentException("invalid -j argument for threads: " + threads);
+                }
+                config.setThreads(threads);
+                LOGGER.config("threads set to " + threads);
+            }
+
+            // Scan EVIO event headers.
+            if (cl.hasOption("S")) {
+                config.setScanHeaders(true);
+                LOGGER.config("scanning EVIO event headers");
+            }
+
+            // Directory for EVIO event index files.
+            if (cl.hasOption("I")) {
+                final File indexDir = new File(cl.getOptionValue("I"));
+                if (!indexDir.isDirectory()) {
+                    throw new IllegalArgumentException("The index directory does not exist: " + indexDir.getPath());
+                }
+                config.setIndexDir(indexDir);
+                LOGGER.config("writing EVIO event index files to " + indexDir.getPath());
+            }
                         
             // List of paths.
             if (!cl.getArgList().isEmpty()) {
@@ -301,7 +330,8 @@ public final class DatacatCrawler {
                 
         // Insert datasets if files were found.
         if (!visitor.getFiles().isEmpty()) {
-            List<DatasetModel> datasets = DatacatHelper.createDatasets(visitor.getFiles(), config.folder(), config.site().toString());
+            List<DatasetModel> datasets = DatacatHelper.createDatasets(visitor.getFiles(), config.folder(), config.site().toString(),
+                    config.threads(), config.scanHeaders(), config.indexDir());
             LOGGER.info("built " + datasets.size() + " datasets");
             DatacatUtilities util = new DatacatUtilities(config.datacatUrl(), config.site());
             util.updateDatasets(datasets, config.folder(), false);
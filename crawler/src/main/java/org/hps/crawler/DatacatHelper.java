@@ -5,6 +5,11 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import org.hps.datacat.DataType;
@@ -28,6 +33,29 @@ class DatacatHelper {
      * @return the metadata for the file
      */
     static Map<String, Object> createMetadata(final File file) {
+        return createMetadata(file, false);
+    }
+
+    /**
+     * Create metadata for a file using its {@link FileMetadataReader}.
+     *
+     * @param file the file
+     * @param scanHeaders <code>true</code> to scan the event headers of EVIO files instead of parsing the events
+     * @return the metadata for the file
+     */
+    static Map<String, Object> createMetadata(final File file, final boolean scanHeaders) {
+        return createMetadata(file, scanHeaders, null);
+    }
+
+    /**
+     * Create metadata for a file using its {@link FileMetadataReader}, also writing the event index of EVIO files.
+     *
+     * @param file the file
+     * @param scanHeaders <code>true</code> to scan the event headers of EVIO files instead of parsing the events
+     * @param indexDir directory for writing the event index of EVIO files or <code>null</code> to not write them
+     * @return the metadata for the file
+     */
+    static Map<String, Object> createMetadata(final File file, final boolean scanHeaders, final File indexDir) {
         LOGGER.fine("creating metadata for " + file.getPath() + " ...");
         File actualFile = file;
         if (FileUtilities.isMssFile(file)) {
@@ -35,7 +63,8 @@ class DatacatHelper {
         }
         final FileFormat fileFormat = DatacatHelper.getFileFormat(file);
         final DataType dataType = DatacatHelper.getDataType(file);
-        final FileMetadataReader reader = DatacatHelper.getFileMetaDataReader(fileFormat, dataType);
+        final FileMetadataReader reader = DatacatHelper.getFileMetaDataReader(fileFormat, dataType, scanHeaders,
+                indexDir);
         if (reader == null) {
             throw new RuntimeException("No metadata reader found for format " + fileFormat.name() + " and type "
                     + dataType.name() + ".");
@@ -104,11 +133,38 @@ class DatacatHelper {
      * @return the file metadata reader
      */
     static FileMetadataReader getFileMetaDataReader(final FileFormat fileFormat, final DataType dataType) {
+        return getFileMetaDataReader(fileFormat, dataType, false);
+    }
+
+    /**
+     * Get a metadata reader for a given combination of file format and data type.
+     *
+     * @param fileFormat the file format
+     * @param dataType the data type
+     * @param scanHeaders <code>true</code> to scan the event headers of EVIO files instead of parsing the events
+     * @return the file metadata reader
+     */
+    static FileMetadataReader getFileMetaDataReader(final FileFormat fileFormat, final DataType dataType,
+            final boolean scanHeaders) {
+        return getFileMetaDataReader(fileFormat, dataType, scanHeaders, null);
+    }
+
+    /**
+     * Get a metadata reader for a given combination of file format and data type.
+     *
+     * @param fileFormat the file format
+     * @param dataType the data type
+     * @param scanHeaders <code>true</code> to scan the event headers of EVIO files instead of parsing the events
+     * @param indexDir directory for writing the event index of EVIO files or <code>null</code> to not write them
+     * @return the file metadata reader
+     */
+    static FileMetadataReader getFileMetaDataReader(final FileFormat fileFormat, final DataType dataType,
+            final boolean scanHeaders, final File indexDir) {
         FileMetadataReader reader = null;
         if (fileFormat.equals(FileFormat.LCIO)) {
             reader = new LcioReconMetadataReader();
         } else if (fileFormat.equals(FileFormat.EVIO)) {
-            reader = new EvioMetadataReader();
+            reader = new EvioMetadataReader(scanHeaders, indexDir);
         } else if (fileFormat.equals(FileFormat.ROOT) && dataType.equals(DataType.DST)) {
             reader = new RootDstMetadataReader();
         } else if (fileFormat.equals(FileFormat.ROOT) && dataType.equals(DataType.DQM)) {
@@ -140,10 +196,60 @@ class DatacatHelper {
      * @return the list of datasets
      */
     static List<DatasetModel> createDatasets(List<File> files, String folder, String site) {
+        return createDatasets(files, folder, site, 1, false, null);
+    }
+
+    /**
+     * Create datasets from a list of files, reading the metadata of several files at once.
+     * <p>
+     * The datasets are returned in the same order as the files.
+     * 
+     * @param files the list of files
+     * @param threads the number of files to read at once
+     * @param scanHeaders <code>true</code> to scan the event headers of EVIO files instead of parsing the events
+     * @param indexDir directory for writing the event index of EVIO files or <code>null</code> to not write them
+     * @return the list of datasets
+     */
+    static List<DatasetModel> createDatasets(List<File> files, String folder, String site, int threads,
+            final boolean scanHeaders, final File indexDir) {
+        List<Map<String, Object>> metadataList = new ArrayList<Map<String, Object>>();
+        if (threads <= 1 || files.size() <= 1) {
+            for (File file : files) {
+                metadataList.add(createMetadata(file, scanHeaders, indexDir));
+            }
+        } else {
+            LOGGER.config("reading metadata of " + files.size() + " files with " + threads + " threads");
+            ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, files.size()));
+            try {
+                List<Future<Map<String, Object>>> futures = new ArrayList<Future<Map<String, Object>>>();
+                for (final File file : files) {
+                    futures.add(executor.submit(new Callable<Map<String, Object>>() {
+                        @Override
+                        public Map<String, Object> call() {
+                            return createMetadata(file, scanHeaders, indexDir);
+                        }
+                    }));
+                }
+                for (Future<Map<String, Object>> future : futures) {
+                    metadataList.add(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while reading file metadata.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new RuntimeException(e.getCause());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
         List<DatasetModel> datasets = new ArrayList<DatasetModel>();
         DatacatUtilities util = new DatacatUtilities();
-        for (File file : files) {
-            Map<String, Object> metadata = createMetadata(file);
+        for (int i = 0; i < files.size(); i++) {
+            File file = files.get(i);
+            Map<String, Object> metadata = metadataList.get(i);
             DataType dataType = DatacatHelper.getDataType(file);
             FileFormat fileFormat = DatacatHelper.getFileFormat(file);
             DatasetModel dataset = util.createDataset(
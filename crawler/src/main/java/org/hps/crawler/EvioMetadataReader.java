@@ -4,6 +4,7 @@ import java.io.File;
 import java.io.IOException;
 import java.math.RoundingMode;
 import java.text.DecimalFormat;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -12,6 +13,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.hps.record.evio.EventTagConstant;
+import org.hps.record.evio.EvioEventConstants;
+import org.hps.record.evio.EvioEventIndex;
+import org.hps.record.evio.EvioEventScanner;
 import org.hps.record.evio.EvioEventUtilities;
 import org.hps.record.evio.EvioFileUtilities;
 import org.hps.record.triggerbank.AbstractIntData.IntBankDefinition;
@@ -41,38 +45,172 @@ final class EvioMetadataReader implements FileMetadataReader {
     private static IntBankDefinition HEAD_BANK = new IntBankDefinition(HeadBankData.class, new int[] {0x2e, 0xe10f});
 
     /**
-     * Get the EVIO file metadata.
-     * 
-     * @param file the EVIO file
-     * @return the metadata map of key and value pairs
+     * Bank tags of the head bank and TI bank for scanning.
      */
-    @Override
-    public Map<String, Object> getMetadata(final File file) throws IOException {
-        
+    private static final int[] HEAD_BANK_TAGS = {0x2e, 0xe10f};
+    private static final int[] TI_BANK_TAGS = {0x2e, 0xe10a};
+
+    /**
+     * Event counts, timestamps and other values collected from the events of a file.
+     */
+    private static final class EventData {
+
         long totalEvents = 0;
         int physicsEvents = 0;
         int badEvents = 0;
-        int blinded = 0;
         Long run = null;
         Integer firstHeadTimestamp = null;
         Integer lastHeadTimestamp = null;
         Integer lastPhysicsEvent = null;
         Integer firstPhysicsEvent = null;
-        Integer prestartTimestamp = null;        
+        Integer prestartTimestamp = null;
         Integer endTimestamp = null;
         Integer goTimestamp = null;
-        Double triggerRate = null;
         Integer endEventCount = null;
-        
+
         // Processor for calculating TI time offsets.
-        TiTimeOffsetEvioProcessor tiProcessor = new TiTimeOffsetEvioProcessor();
+        final TiTimeOffsetEvioProcessor tiProcessor = new TiTimeOffsetEvioProcessor();
+
+        // Map for counting trigger types.
+        final Map<TriggerType, Integer> triggerCounts = new LinkedHashMap<TriggerType, Integer>();
+
+        EventData() {
+            for (TriggerType triggerType : TriggerType.values()) {
+                triggerCounts.put(triggerType, 0);
+            }
+        }
+
+        /**
+         * Add the head bank data of an event.
+         */
+        void addHeadBank(final int[] headBankData, final int eventNumber) {
+            final int thisTimestamp = headBankData[3];
+            if (thisTimestamp != 0) {
+                // First header timestamp.
+                if (firstHeadTimestamp == null) {
+                    firstHeadTimestamp = thisTimestamp;
+                    LOGGER.finer("First head timestamp " + firstHeadTimestamp + " from event " + eventNumber);
+                }
+
+                // Last header timestamp.
+                lastHeadTimestamp = thisTimestamp;
+            }
+
+            // Run number.
+            if (run == null) {
+                if (headBankData[1] != 0) {
+                    run = (long) headBankData[1];
+                    LOGGER.finer("Run number " + run + " from event " + eventNumber);
+                }
+            }
+        }
+
+        /**
+         * Add a physics event with its event ID bank data (can be null).
+         */
+        void addPhysicsEvent(final int[] eventIdData) {
+            if (eventIdData != null) {
+
+                // Set the last physics event.
+                lastPhysicsEvent = eventIdData[0];
 
-        // Create map for counting trigger types.
-        Map<TriggerType, Integer> triggerCounts = new LinkedHashMap<TriggerType, Integer>();
-        for (TriggerType triggerType : TriggerType.values()) {
-            triggerCounts.put(triggerType, 0);
+                // Set the first physics event.
+                if (firstPhysicsEvent == null) {
+                    firstPhysicsEvent = eventIdData[0];
+                    LOGGER.finer("Set first physics event " + firstPhysicsEvent);
+                }
+            }
+            ++physicsEvents;
+        }
+
+        /**
+         * Add the data of a control event.
+         */
+        void addControlEvent(final int tag, final int[] controlData) {
+            if (controlData[0] != 0) {
+                if (tag == EventTagConstant.PRESTART.tag()) {
+                    prestartTimestamp = controlData[0];
+                }
+                if (tag == EventTagConstant.GO.tag()) {
+                    goTimestamp = controlData[0];
+                }
+                if (tag == EventTagConstant.END.tag()) {
+                    endTimestamp = controlData[0];
+                    endEventCount = controlData[2];
+                }
+            }
         }
 
+        /**
+         * Count the trigger types of an event.
+         */
+        void addTriggerTypes(final Set<TriggerType> triggerTypes) {
+            for (TriggerType mask : triggerTypes) {
+                int count = triggerCounts.get(mask) + 1;
+                triggerCounts.put(mask, count);
+                LOGGER.finest("Incremented " + mask.name() + " to " + count);
+            }
+        }
+    }
+
+    /**
+     * Tags of the control events with timestamps in their data.
+     */
+    private static final int[] SORTED_CONTROL_DATA_TAGS = {EventTagConstant.SYNC.tag(), EventTagConstant.PRESTART.tag(),
+            EventTagConstant.GO.tag(), EventTagConstant.PAUSE.tag(), EventTagConstant.END.tag()};
+
+    /**
+     * True to read the metadata by scanning the event headers instead of parsing the events.
+     */
+    private final boolean scanHeaders;
+
+    /**
+     * Directory for writing the event index of the file or <code>null</code> to not write it.
+     */
+    private final File indexDir;
+
+    /**
+     * Create a reader that parses every event.
+     */
+    EvioMetadataReader() {
+        this(false, null);
+    }
+
+    /**
+     * Create a reader.
+     * 
+     * @param scanHeaders <code>true</code> to only read the event headers and the banks that are needed for the
+     *            metadata with an {@link EvioEventScanner}, which is much faster than parsing every event
+     */
+    EvioMetadataReader(final boolean scanHeaders) {
+        this(scanHeaders, null);
+    }
+
+    /**
+     * Create a reader which also writes the event index of the file.
+     * <p>
+     * When scanning the event headers, the index is built in the same pass over the file.
+     * 
+     * @param scanHeaders <code>true</code> to scan the event headers instead of parsing every event
+     * @param indexDir directory for writing the event index of the file or <code>null</code> to not write it
+     */
+    EvioMetadataReader(final boolean scanHeaders, final File indexDir) {
+        this.scanHeaders = scanHeaders;
+        this.indexDir = indexDir;
+    }
+
+    /**
+     * Get the EVIO file metadata.
+     * 
+     * @param file the EVIO file
+     * @return the metadata map of key and value pairs
+     */
+    @Override
+    public Map<String, Object> getMetadata(final File file) throws IOException {
+        
+        int blinded = 0;
+        Double triggerRate = null;
+
         // Get the file number from the name.
         final int fileNumber = EvioFileUtilities.getSequenceFromName(file);
 
@@ -92,134 +230,25 @@ final class EvioMetadataReader implements FileMetadataReader {
         // Compute MD5 checksum string.
         String checksum = FileUtilities.createMD5Checksum(cacheFile);
 
-        EvioReader evioReader = null;
-        try {
-            // Open file in sequential mode.
-            evioReader = EvioFileUtilities.open(file, true);
-            EvioEvent evioEvent = null;
-
-            // Event read loop.
-            eventLoop: while (true) {
-                try {
-                    // Parse next event.
-                    evioEvent = evioReader.parseNextEvent();
-
-                    // End of file.
-                    if (evioEvent == null) {
-                        LOGGER.fine("EOF after " + totalEvents + " events.");
-                        break eventLoop;
-                    }
-                    
-                    // Increment event count (doesn't count events that can't be parsed).
-                    ++totalEvents;
-
-                    // Debug print event number and tag.
-                    LOGGER.finest("Parsed event " + evioEvent.getEventNumber() + " with tag 0x"
-                            + String.format("%08x", evioEvent.getHeader().getTag()));
-
-                    // Get head bank.
-                    BaseStructure headBank = HEAD_BANK.findBank(evioEvent);
-
-                    // Current timestamp.
-                    int thisTimestamp = 0;
-
-                    // Process head bank if not null.
-                    if (headBank != null) {
-                        if (headBank != null) {
-                            final int[] headBankData = headBank.getIntData();
-                            thisTimestamp = headBankData[3];
-                            if (thisTimestamp != 0) {
-                                // First header timestamp.
-                                if (firstHeadTimestamp == null) {
-                                    firstHeadTimestamp = thisTimestamp;
-                                    LOGGER.finer("First head timestamp " + firstHeadTimestamp + " from event "
-                                            + evioEvent.getEventNumber());
-                                }
-
-                                // Last header timestamp.
-                                lastHeadTimestamp = thisTimestamp;
-                            }
-
-                            // Run number.
-                            if (run == null) {
-                                if (headBankData[1] != 0) {
-                                    run = (long) headBankData[1];
-                                    LOGGER.finer("Run number " + run + " from event " + evioEvent.getEventNumber());
-                                }
-                            }
-                        }
-                    }
-                    
-                    if (EvioEventUtilities.isPhysicsEvent(evioEvent)) {
-                                                
-                        final int[] eventIdData = EvioEventUtilities.getEventIdData(evioEvent);
-                        
-                        if (eventIdData != null) {
-                        
-                            // Set the last physics event.
-                            lastPhysicsEvent = eventIdData[0];
-
-                            // Set the first physics event.
-                            if (firstPhysicsEvent == null) {
-                                firstPhysicsEvent = eventIdData[0];
-                                LOGGER.finer("Set first physics event " + firstPhysicsEvent);
-                            }
-                        }
-                        
-                        ++physicsEvents;
-                    } else if (EvioEventUtilities.isControlEvent(evioEvent)) {
-                        int[] controlData = EvioEventUtilities.getControlEventData(evioEvent);
-                        if (controlData != null) { /* Why is this null sometimes? */
-                            if (controlData[0] != 0) {
-                                if (EventTagConstant.PRESTART.isEventTag(evioEvent)) {
-                                    prestartTimestamp = controlData[0];
-                                }                        
-                                if (EventTagConstant.GO.isEventTag(evioEvent)) {
-                                    goTimestamp = controlData[0];
-                                }
-                                if (EventTagConstant.END.isEventTag(evioEvent)) {
-                                    endTimestamp = controlData[0];
-                                    endEventCount = controlData[2];
-                                }
-                            }
-                        } else {
-                            LOGGER.warning("Event " + evioEvent.getEventNumber() + " is missing valid control data bank.");
-                        }
-                    }
-
-                    // Count trigger types for this event.
-                    Set<TriggerType> triggerTypes = TriggerType.getTriggerTypes(evioEvent);
-                    for (TriggerType mask : triggerTypes) {
-                        int count = triggerCounts.get(mask) + 1;
-                        triggerCounts.put(mask, count);
-                        LOGGER.finest("Incremented " + mask.name() + " to " + count);
-                    }
-                    
-                    // Activate TI time offset processor.
-                    tiProcessor.process(evioEvent);
-                    
-                } catch (Exception e) {  
-                    
-                    // Log event processing errors.
-                    LOGGER.log(Level.WARNING, "Error processing EVIO event " + evioEvent.getEventNumber(), e);
-                    
-                    // Increment bad event count.
-                    badEvents++;
-                }
+        // Read the event data.
+        final EventData data = new EventData();
+        if (this.scanHeaders) {
+            final EvioEventIndex.Builder indexBuilder = this.indexDir != null ? new EvioEventIndex.Builder() : null;
+            scanEvents(file, data, indexBuilder);
+            if (indexBuilder != null) {
+                writeIndex(file, indexBuilder.build(file));
             }
-        } catch (final EvioException e) {
-            // Error reading the EVIO file.
-            throw new IOException("Error reading EVIO file.", e);
-        } finally {
-            // Close the reader.
-            if (evioReader != null) {
-                try {
-                    evioReader.close();
-                } catch (IOException e) {
-                    LOGGER.log(Level.WARNING, "Error closing EVIO reader", e);
-                }
+        } else {
+            parseEvents(file, data);
+            if (this.indexDir != null) {
+                writeIndex(file, EvioEventIndex.create(file));
             }
         }
+        final long totalEvents = data.totalEvents;
+        final Integer firstHeadTimestamp = data.firstHeadTimestamp;
+        final Integer lastHeadTimestamp = data.lastHeadTimestamp;
+        final TiTimeOffsetEvioProcessor tiProcessor = data.tiProcessor;
+        Long run = data.run;
 
         LOGGER.info("Done reading " + totalEvents + " events from " + file.getPath());
 
@@ -269,27 +298,27 @@ final class EvioMetadataReader implements FileMetadataReader {
         } 
 
         // First and last physics event numbers.
-        if (firstPhysicsEvent != null) {
-            metadataMap.put("FIRST_PHYSICS_EVENT", firstPhysicsEvent);
+        if (data.firstPhysicsEvent != null) {
+            metadataMap.put("FIRST_PHYSICS_EVENT", data.firstPhysicsEvent);
         } 
         
-        if (lastPhysicsEvent != null) {
-            metadataMap.put("LAST_PHYSICS_EVENT", lastPhysicsEvent);
+        if (data.lastPhysicsEvent != null) {
+            metadataMap.put("LAST_PHYSICS_EVENT", data.lastPhysicsEvent);
         }
         
         // Timestamps which are only set if the corresponding control events were found in the file.
-        if (prestartTimestamp != null) {
-            metadataMap.put("PRESTART_TIMESTAMP", prestartTimestamp);
+        if (data.prestartTimestamp != null) {
+            metadataMap.put("PRESTART_TIMESTAMP", data.prestartTimestamp);
         }
-        if (endTimestamp != null) {
-            metadataMap.put("END_TIMESTAMP", endTimestamp);
+        if (data.endTimestamp != null) {
+            metadataMap.put("END_TIMESTAMP", data.endTimestamp);
         }
-        if (goTimestamp != null) {
-            metadataMap.put("GO_TIMESTAMP", goTimestamp);
+        if (data.goTimestamp != null) {
+            metadataMap.put("GO_TIMESTAMP", data.goTimestamp);
         }
         
-        if (endEventCount != null) {
-            metadataMap.put("END_EVENT_COUNT", endEventCount);
+        if (data.endEventCount != null) {
+            metadataMap.put("END_EVENT_COUNT", data.endEventCount);
         }
 
         // TI times and offset.
@@ -298,10 +327,10 @@ final class EvioMetadataReader implements FileMetadataReader {
         metadataMap.put("TI_TIME_N_OUTLIERS", tiProcessor.getNumOutliers());
         
         // Bad event count.
-        metadataMap.put("BAD_EVENTS", badEvents);
+        metadataMap.put("BAD_EVENTS", data.badEvents);
         
         // Physics event count.
-        metadataMap.put("PHYSICS_EVENTS", physicsEvents);
+        metadataMap.put("PHYSICS_EVENTS", data.physicsEvents);
         
         // Rough trigger rate calculation.
         if (triggerRate != null && !Double.isInfinite(triggerRate) && !Double.isNaN(triggerRate)) {
@@ -314,7 +343,7 @@ final class EvioMetadataReader implements FileMetadataReader {
         }        
 
         // Trigger type counts.
-        for (Entry<TriggerType, Integer> entry : triggerCounts.entrySet()) {
+        for (Entry<TriggerType, Integer> entry : data.triggerCounts.entrySet()) {
             metadataMap.put(entry.getKey().name(), entry.getValue());
         }
 
@@ -330,6 +359,154 @@ final class EvioMetadataReader implements FileMetadataReader {
         return metadataMap;
     }
          
+    /**
+     * Read the event data by parsing every event in the file.
+     * 
+     * @param file the EVIO file
+     * @param data the event data
+     * @throws IOException if there is an error reading the file
+     */
+    private void parseEvents(final File file, final EventData data) throws IOException {
+        EvioReader evioReader = null;
+        try {
+            // Open file in sequential mode.
+            evioReader = EvioFileUtilities.open(file, true);
+            EvioEvent evioEvent = null;
+
+            // Event read loop.
+            eventLoop: while (true) {
+                try {
+                    // Parse next event.
+                    evioEvent = evioReader.parseNextEvent();
+
+                    // End of file.
+                    if (evioEvent == null) {
+                        LOGGER.fine("EOF after " + data.totalEvents + " events.");
+                        break eventLoop;
+                    }
+                    
+                    // Increment event count (doesn't count events that can't be parsed).
+                    ++data.totalEvents;
+
+                    // Debug print event number and tag.
+                    LOGGER.finest("Parsed event " + evioEvent.getEventNumber() + " with tag 0x"
+                            + String.format("%08x", evioEvent.getHeader().getTag()));
+
+                    // Get head bank.
+                    BaseStructure headBank = HEAD_BANK.findBank(evioEvent);
+
+                    // Process head bank if not null.
+                    if (headBank != null) {
+                        data.addHeadBank(headBank.getIntData(), evioEvent.getEventNumber());
+                    }
+                    
+                    if (EvioEventUtilities.isPhysicsEvent(evioEvent)) {
+                        data.addPhysicsEvent(EvioEventUtilities.getEventIdData(evioEvent));
+                    } else if (EvioEventUtilities.isControlEvent(evioEvent)) {
+                        int[] controlData = EvioEventUtilities.getControlEventData(evioEvent);
+                        if (controlData != null) { /* Why is this null sometimes? */
+                            data.addControlEvent(evioEvent.getHeader().getTag(), controlData);
+                        } else {
+                            LOGGER.warning("Event " + evioEvent.getEventNumber() + " is missing valid control data bank.");
+                        }
+                    }
+
+                    // Count trigger types for this event.
+                    data.addTriggerTypes(TriggerType.getTriggerTypes(evioEvent));
+                    
+                    // Activate TI time offset processor.
+                    data.tiProcessor.process(evioEvent);
+                    
+                } catch (Exception e) {  
+                    
+                    // Log event processing errors.
+                    LOGGER.log(Level.WARNING, "Error processing EVIO event " + evioEvent.getEventNumber(), e);
+                    
+                    // Increment bad event count.
+                    data.badEvents++;
+                }
+            }
+        } catch (final EvioException e) {
+            // Error reading the EVIO file.
+            throw new IOException("Error reading EVIO file.", e);
+        } finally {
+            // Close the reader.
+            if (evioReader != null) {
+                try {
+                    evioReader.close();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Error closing EVIO reader", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Write the event index of the file.
+     * 
+     * @param file the EVIO file
+     * @param index the index of the file
+     * @throws IOException if there is an error writing the index
+     */
+    private void writeIndex(final File file, final EvioEventIndex index) throws IOException {
+        final File indexFile = EvioEventIndex.getIndexFile(file, this.indexDir);
+        index.write(indexFile);
+        LOGGER.fine("wrote index " + indexFile.getPath());
+    }
+
+    /**
+     * Read the event data by scanning the event headers and reading only the head, TI, event ID and control banks.
+     * 
+     * @param file the EVIO file
+     * @param data the event data
+     * @param indexBuilder builder for the event index of the file or <code>null</code> to not index it
+     * @throws IOException if there is an error reading the file
+     */
+    private void scanEvents(final File file, final EventData data, final EvioEventIndex.Builder indexBuilder)
+            throws IOException {
+        final EvioEventScanner scanner = new EvioEventScanner(file);
+        try {
+            while (scanner.next()) {
+                ++data.totalEvents;
+                if (indexBuilder != null) {
+                    indexBuilder.add(scanner);
+                }
+                final int tag = scanner.getEventTag();
+                try {
+                    final int[] headData = scanner.getIntData(HEAD_BANK_TAGS);
+                    if (headData != null) {
+                        data.addHeadBank(headData, (int) scanner.getEventCount());
+                    }
+                    if (tag >= EvioEventConstants.PHYSICS_START_TAG || tag < EventTagConstant.SYNC.tag()) {
+                        data.addPhysicsEvent(scanner.getEventIdData());
+                    } else if (Arrays.binarySearch(SORTED_CONTROL_DATA_TAGS, tag) >= 0) {
+                        // Control data is in the event itself or in a bank with the event's tag.
+                        int[] controlData = scanner.getEventIntData();
+                        if (controlData == null) {
+                            controlData = scanner.getIntData(tag);
+                        }
+                        if (controlData != null) {
+                            data.addControlEvent(tag, controlData);
+                        } else {
+                            LOGGER.warning("Event " + scanner.getEventCount() + " is missing valid control data bank.");
+                        }
+                    }
+                    final int[] tiData = scanner.getIntData(TI_BANK_TAGS);
+                    data.addTriggerTypes(TriggerType.getTriggerTypes(tiData));
+                    if (headData != null && tiData != null) {
+                        data.tiProcessor.process(headData, tiData);
+                    }
+                } catch (Exception e) {
+                    LOGGER.log(Level.WARNING, "Error processing EVIO event " + scanner.getEventCount(), e);
+                    data.badEvents++;
+                }
+            }
+            LOGGER.fine("EOF after " + data.totalEvents + " events.");
+        } finally {
+            scanner.close();
+        }
+    }
+
     /**
      * Calculate the trigger rate in Hz.
      * 
@@ -56,7 +56,8 @@ public final class EvioDatasetIndex {
     }
 
     public DatasetModel findByEventRange(long eventId) {
-        return FileEventRange.findEventRange(eventRanges, eventId).getDataset();
+        FileEventRange range = FileEventRange.findEventRange(eventRanges, eventId);
+        return range != null ? range.getDataset() : null;
     }
 
     public DatasetModel findByFileNumber(long fileNumber) {
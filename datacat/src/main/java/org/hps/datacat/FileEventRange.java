@@ -1,6 +1,8 @@
 package org.hps.datacat;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
@@ -41,6 +43,12 @@ public final class FileEventRange {
         return eventId >= startEvent && eventId <= endEvent;
     }
     
+    /**
+     * Create the event ranges of datasets, sorted by their first event.
+     * 
+     * @param results the datasets
+     * @return the event ranges sorted by first event
+     */
     public static List<FileEventRange> createEventRanges(DatasetResultSetModel results) {
         List<FileEventRange> ranges = new ArrayList<FileEventRange>();
         for (DatasetModel ds : results) {
@@ -50,10 +58,43 @@ public final class FileEventRange {
             long lastPhysicsEvent = (Long) metadata.get("LAST_PHYSICS_EVENT");
             ranges.add(new FileEventRange(ds, firstPhysicsEvent, lastPhysicsEvent));
         }
+        Collections.sort(ranges, new Comparator<FileEventRange>() {
+            @Override
+            public int compare(FileEventRange r1, FileEventRange r2) {
+                return Long.compare(r1.startEvent, r2.startEvent);
+            }
+        });
         return ranges;
     }
     
+    /**
+     * Find the event range containing an event.
+     * <p>
+     * The ranges must be sorted by first event, as returned by {@link #createEventRanges(DatasetResultSetModel)}, so
+     * that they can be searched without checking every range.
+     * 
+     * @param ranges the event ranges sorted by first event
+     * @param eventId the event ID
+     * @return the matching range or <code>null</code> if there is none
+     */
     public static FileEventRange findEventRange(List<FileEventRange> ranges, long eventId) {
+        // Find the last range starting at or before the event.
+        int lo = 0;
+        int hi = ranges.size() - 1;
+        int last = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ranges.get(mid).startEvent <= eventId) {
+                last = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        if (last != -1 && ranges.get(last).matches(eventId)) {
+            return ranges.get(last);
+        }
+        // Ranges can overlap if a file has bad event IDs, so check the rest.
         FileEventRange match = null;
         for (FileEventRange range : ranges) {
             if (range.matches(eventId)) {
@@ -7,14 +7,13 @@ import static org.hps.recon.ecal.EcalUtils.riseTime;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
-import org.hps.readout.util.DoubleRingBuffer;
-import org.hps.readout.util.IntegerRingBuffer;
+import org.hps.readout.util.ChannelIndex;
+import org.hps.readout.util.DoubleChannelRingBuffer;
+import org.hps.readout.util.IntegerChannelRingBuffer;
 import org.hps.readout.util.ObjectRingBuffer;
 import org.hps.readout.util.collection.LCIOCollection;
 import org.hps.readout.util.collection.LCIOCollectionFactory;
@@ -178,47 +177,69 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
      * READOUT_PERIOD}).
      */
     private int readoutCounter = 0;
+    /**
+     * Maps the subdetector channel IDs to the indices of the channel
+     * arrays and buffers below.
+     */
+    private ChannelIndex channels = null;
+    /**
+     * The subdetector channel IDs in the order in which they are
+     * read out. The set is cleared and refilled on every reset, like
+     * the hash maps keyed by channel ID in which this driver used to
+     * keep its buffers, so that hits are output in the same order as
+     * they were from those maps.
+     */
+    private final Set<Long> channelOrder = new HashSet<Long>();
     /**
      * A buffer for storing pulse amplitudes representing the signals
      * from the preamplifiers. These are stored in units of Volts
-     * with no pedestal. One buffer exists for each subdetector
-     * channel.
+     * with no pedestal. The buffer holds one ring buffer for each
+     * subdetector channel.
      */
-    private Map<Long, DoubleRingBuffer> voltageBufferMap = new HashMap<Long, DoubleRingBuffer>();
+    private DoubleChannelRingBuffer voltageBuffer = null;
     /**
      * Buffers the truth information for each sample period so that
-     * truth relations can be retained upon readout.
+     * truth relations can be retained upon readout. One buffer
+     * exists for each subdetector channel.
      */
-    private Map<Long, ObjectRingBuffer<SimCalorimeterHit>> truthBufferMap = new HashMap<Long, ObjectRingBuffer<SimCalorimeterHit>>();
+    private ObjectRingBuffer<SimCalorimeterHit>[] truthBuffers = null;
     /**
      * A buffer for storing ADC values representing the converted
      * voltage values from the voltage buffers. These are stored in
-     * units of ADC and include a pedestal. One buffer exists for
-     * each subdetector channel.
+     * units of ADC and include a pedestal. The buffer holds one ring
+     * buffer for each subdetector channel.
      */
-    private Map<Long, IntegerRingBuffer> adcBufferMap = new HashMap<Long, IntegerRingBuffer>();
-    
+    private IntegerChannelRingBuffer adcBuffer = null;
+    /**
+     * Stores the pedestal of each subdetector channel in units of
+     * ADC.
+     */
+    private double[] channelPedestals = null;
+
     /**
      * Stores the subdetector geometry object.
      */
     private D geometry = null;
     /**
-     * Stores the total ADC sums for each subdetector channel that is
-     * currently undergoing integration.
+     * Indicates whether each subdetector channel is currently
+     * undergoing integration.
      */
-    private Map<Long, Integer> channelIntegrationSumMap = new HashMap<Long, Integer>();
+    private boolean[] channelIntegrating = null;
     /**
      * Stores the total ADC sums for each subdetector channel that is
      * currently undergoing integration.
      */
-    private Map<Long, Set<SimCalorimeterHit>> channelIntegrationTruthMap = new HashMap<Long, Set<SimCalorimeterHit>>();
+    private int[] channelIntegrationSum = null;
+    /**
+     * Stores the truth hits in the integration samples of each
+     * subdetector channel that is currently undergoing integration.
+     */
+    private Set<SimCalorimeterHit>[] channelIntegrationTruth = null;
     /**
      * Stores the time at which integration began on a given channel.
      * This is used to track when the integration period has ended.
      */
-    private Map<Long, Integer> channelIntegrationTimeMap = new HashMap<Long, Integer>();
-    // TODO: Give this documentation.
-    private Map<Long, List<Integer>> channelIntegrationADCMap = new HashMap<Long, List<Integer>>();
+    private int[] channelIntegrationTime = null;
     /**
      * Defines the time offset of objects produced by this driver
      * from the actual true time that they should appear.
@@ -267,7 +288,7 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
      * between <code>CHANNEL_INTEGRATION_DEADTIME</code> and <code>numSamplesAfter</code>  
      * for the case <CHANNEL_INTEGRATION_DEADTIME> is less than <code>numSamplesAfter</code> 
      */
-    private Map<Long, Boolean> flagStartNewIntegration = new HashMap<>();
+    private boolean[] flagStartNewIntegration = null;
     
     /**
      * Since new integration could happen between <code>CHANNEL_INTEGRATION_DEADTIME</code> and <code>numSamplesAfter</code>, 
@@ -379,16 +400,16 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
         // is handled below.
         for(SimCalorimeterHit hit : hits) {
             // Store the truth data.
-            ObjectRingBuffer<SimCalorimeterHit> hitBuffer = truthBufferMap.get(hit.getCellID());
-            hitBuffer.addToCell(0, hit);
+            truthBuffers[getChannelIndex(hit.getCellID())].addToCell(0, hit);
         }
         
         // Truth depositions must then be converted to voltage pulse
         // amplitudes and added to the buffer. Noise is added here as
         // well, if desired.
         for(CalorimeterHit hit : hits) {
-            // Get the buffer for the current truth hit's channel.
-            DoubleRingBuffer voltageBuffer = voltageBufferMap.get(hit.getCellID());
+            // Get the buffer index for the current truth hit's
+            // channel.
+            int channel = getChannelIndex(hit.getCellID());
             
             // Get the truth hit energy deposition.
             double energyAmplitude = hit.getRawEnergy();
@@ -417,16 +438,20 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
             
             // Simulate the pulse for each position in the preamp
             // pulse buffer for the subdetector channel on which the
-            // hit occurred.
+            // hit occurred. The channel conditions are the same for
+            // every position, so they are only looked up once.
+            double gain = getPulseGain(hit.getCellID());
+            double hitTime = ReadoutDataManager.getCurrentTime() + hit.getTime();
+            double timeShift = getTimeShiftConditions(hit.getCellID());
             for(int i = 0; i < BUFFER_LENGTH; i++) {
                 // Calculate the voltage deposition for the current
                 // buffer time.
-                double voltageDeposition = energyAmplitude * pulseAmplitude((i + 1) * READOUT_PERIOD + readoutTime()
-                        - (ReadoutDataManager.getCurrentTime() + hit.getTime()) - getTimeShiftConditions(hit.getCellID()), hit.getCellID());
+                double voltageDeposition = energyAmplitude
+                        * (gain * pulseAmplitude((i + 1) * READOUT_PERIOD + readoutTime() - hitTime - timeShift, pulseShape, tp));
                 
                 // Increase the current buffer time's voltage value
                 // by the calculated amount.
-                voltageBuffer.addToCell(i, voltageDeposition);
+                voltageBuffer.addToCell(channel, i, voltageDeposition);
             }
         }
         
@@ -455,22 +480,22 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
     // TODO: Document this.
     private void readHits(List<RawCalorimeterHit> newHits, List<LCRelation> newTruthRelations) {
         // Perform hit integration as needed for each subdetector
-        // channel in the buffer map.
-        for(Long cellID : voltageBufferMap.keySet()) {
-            // Get the preamplifier pulse buffer for the channel.
-            DoubleRingBuffer voltageBuffer = voltageBufferMap.get(cellID);
-            
-            // Get the ADC buffer for the channel.
-            IntegerRingBuffer adcBuffer = adcBufferMap.get(cellID);
-            adcBuffer.stepForward();
+        // channel.
+        // The ADC buffers of all channels are stepped forward
+        // together.
+        adcBuffer.stepForward();
+        
+        for(int channel = 0; channel < channels.size(); channel++) {
+            // Get the ID of the channel.
+            long cellID = channels.getID(channel);
             
             // Scale the current value of the preamplifier buffer
             // to a 12-bit ADC value where the maximum represents
             // a value of maxVolt.
-            double currentValue = voltageBuffer.getValue() * ((Math.pow(2, nBit) - 1) / maxVolt);
+            double currentValue = voltageBuffer.getValue(channel) * ((Math.pow(2, nBit) - 1) / maxVolt);
             
             // Get the pedestal for the channel.
-            int pedestal = (int) Math.round(getPedestalConditions(cellID));
+            int pedestal = (int) Math.round(channelPedestals[channel]);
             
             // An ADC value is not allowed to exceed 4095. If a
             // larger value is observed, 4096 (overflow) is given
@@ -478,7 +503,7 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
             int digitizedValue = Math.min((int) Math.round(pedestal + currentValue), (int) Math.pow(2, nBit));
             
             // Write this value to the ADC buffer.
-            adcBuffer.setValue(digitizedValue);
+            adcBuffer.setValue(channel, digitizedValue);
             
             // Store the pedestal subtracted value so that it may
             // be checked against the integration threshold.
@@ -486,45 +511,42 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
             
             // Get the total ADC value that has been integrated
             // on this channel.
-            Integer sum = channelIntegrationSumMap.get(cellID);
+            boolean integrating = channelIntegrating[channel];
+            int sum = channelIntegrationSum[channel];
             
             // If any readout hits exist on this channel, add the
             // current ADC values to them.
             
-            // If the ADC sum is undefined, then there is not an
-            // ongoing integration. If the pedestal subtracted
+            // If the channel is not integrating, then there is not
+            // an ongoing integration. If the pedestal subtracted
             // value is also over the integration threshold, then
             // integration should be initiated.
-            if(sum == null && pedestalSubtractedValue > integrationThreshold) {
+            if(!integrating && pedestalSubtractedValue > integrationThreshold) {
                 // Store the current local time in units of
                 // events (4 ns). This will indicate when the
                 // integration started and, in turn, should end.
-                channelIntegrationTimeMap.put(cellID, readoutCounter);
+                channelIntegrationTime[channel] = readoutCounter;
                 
                 // Integrate the ADC values for a number of
                 // samples defined by NSB and threshold
                 // crossing sample. 
                 int sumBefore = 0;
                 for(int i = 0; i <= numSamplesBefore; i++) {
-                    sumBefore += adcBuffer.getValue(-(numSamplesBefore - i));
+                    sumBefore += adcBuffer.getValue(channel, -(numSamplesBefore - i));
                 }
                 
                 // This will represent the total integral sum at
                 // the current point in time. Store it in the sum
                 // buffer so that it may be incremented later as
                 // additional samples are read.
-                channelIntegrationSumMap.put(cellID, sumBefore);
-                
-                // Collect and store truth information for trigger
-                // path hits.
-                channelIntegrationADCMap.put(cellID, new ArrayList<Integer>());
+                channelIntegrationSum[channel] = sumBefore;
+                channelIntegrating[channel] = true;
                 
                 // Get the truth information in the
                 // integration samples for this channel.
                 Set<SimCalorimeterHit> truthHits = new HashSet<SimCalorimeterHit>();
                 for(int i = 0; i < numSamplesBefore + 4; i++) {
-                    channelIntegrationADCMap.get(cellID).add(adcBuffer.getValue(-(numSamplesBefore - i)));
-                    truthHits.addAll(truthBufferMap.get(cellID).getValue(-(numSamplesBefore - i)));
+                    truthHits.addAll(truthBuffers[channel].getValue(-(numSamplesBefore - i)));
                 }
                 
                 // Store all the truth hits that occurred in
@@ -533,44 +555,42 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
                 // passed through the chain to allow for the
                 // accessing of truth information during the
                 // trigger simulation.
-                channelIntegrationTruthMap.put(cellID, truthHits);
+                channelIntegrationTruth[channel] = truthHits;
             }
             
-            // If the integration sum is defined, then pulse
+            // If the channel is integrating, then pulse
             // integration is ongoing.
-            if(sum != null) {
+            if(integrating) {
                 // Three cases are treated separataly
                 // Case 1: CHANNEL_INTEGRATION_DEADTIME > numSamplesAfter
                 // Case 2: CHANNEL_INTEGRATION_DEADTIME == numSamplesAfter 
                 // Case 3: CHANNEL_INTEGRATION_DEADTIME < numSamplesAfter
                 if(CHANNEL_INTEGRATION_DEADTIME > numSamplesAfter) { // Case 1
                     //Continue integration until NSA, the threshold-crossing sample has been added before.
-                    if (channelIntegrationTimeMap.get(cellID) + numSamplesAfter - 1 >= readoutCounter) { 
-                        channelIntegrationADCMap.get(cellID).add(adcBuffer.getValue(0));
-
+                    if (channelIntegrationTime[channel] + numSamplesAfter - 1 >= readoutCounter) { 
                         // Add the new ADC sample.
-                        channelIntegrationSumMap.put(cellID, sum + adcBuffer.getValue(0));
+                        channelIntegrationSum[channel] = sum + adcBuffer.getValue(channel, 0);
 
                         // Add the new truth information, if trigger
                         // path truth output is enabled.
                         if (writeTriggerTruth) {
-                            channelIntegrationTruthMap.get(cellID).addAll(truthBufferMap.get(cellID).getValue(0));
+                            channelIntegrationTruth[channel].addAll(truthBuffers[channel].getValue(0));
                         }
                     }
 
                     // If integration is complete, a hit may be added
                     // to data manager.
-                    else if (channelIntegrationTimeMap.get(cellID) + numSamplesAfter - 1 == readoutCounter - 1) {//At NSA + 1, hit is added into data manager
+                    else if (channelIntegrationTime[channel] + numSamplesAfter - 1 == readoutCounter - 1) {//At NSA + 1, hit is added into data manager
                         // Add a new calorimeter hit.
                         RawCalorimeterHit newHit = new BaseRawCalorimeterHit(cellID, sum,
-                                64 * channelIntegrationTimeMap.get(cellID));
+                                64 * channelIntegrationTime[channel]);
                         newHits.add(newHit);
                         // Cycle-clock for events is 2 ns, while cycle-clock for samples is 4 ns                        
-                        integrationTime = channelIntegrationTimeMap.get(cellID) * 4 + 2;
+                        integrationTime = channelIntegrationTime[channel] * 4 + 2;
                         // Add the truth relations for this hit, if
                         // trigger path truth is enabled.
                         if (writeTriggerTruth) {
-                            Set<SimCalorimeterHit> truthHits = channelIntegrationTruthMap.get(cellID);
+                            Set<SimCalorimeterHit> truthHits = channelIntegrationTruth[channel];
                             for (SimCalorimeterHit truthHit : truthHits) {
                                 newTruthRelations.add(new BaseLCRelation(newHit, truthHit));
                             }
@@ -579,97 +599,91 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
 
                     // Do not clear the channel for integration until  deadtime has passed.
                     // The threshold-crossing sample counts as the first sample in the deadtime.
-                    else if (channelIntegrationTimeMap.get(cellID) + CHANNEL_INTEGRATION_DEADTIME - 1 <= readoutCounter
+                    else if (channelIntegrationTime[channel] + CHANNEL_INTEGRATION_DEADTIME - 1 <= readoutCounter
                             - 1) { // No new integration until over deadtime
-                        channelIntegrationSumMap.remove(cellID);
+                        channelIntegrating[channel] = false;
                     }
                 } // Case 1 ends
                 else if(CHANNEL_INTEGRATION_DEADTIME == numSamplesAfter){ // Case 2
                     // Continue integration until NSA, the threshold-crossing sample has been added before.
-                    if (channelIntegrationTimeMap.get(cellID) + numSamplesAfter - 1 >= readoutCounter) {
-                        channelIntegrationADCMap.get(cellID).add(adcBuffer.getValue(0));
-
+                    if (channelIntegrationTime[channel] + numSamplesAfter - 1 >= readoutCounter) {
                         // Add the new ADC sample.
-                        channelIntegrationSumMap.put(cellID, sum + adcBuffer.getValue(0));
+                        channelIntegrationSum[channel] = sum + adcBuffer.getValue(channel, 0);
 
                         // Add the new truth information, if trigger
                         // path truth output is enabled.
                         if (writeTriggerTruth) {
-                            channelIntegrationTruthMap.get(cellID).addAll(truthBufferMap.get(cellID).getValue(0));
+                            channelIntegrationTruth[channel].addAll(truthBuffers[channel].getValue(0));
                         }
                     }  
                     // If integration is complete, a hit may be added
                     // to data manager.
-                    else if (channelIntegrationTimeMap.get(cellID) + numSamplesAfter - 1 == readoutCounter - 1) {//At NSA + 1, hit is added into data manager
+                    else if (channelIntegrationTime[channel] + numSamplesAfter - 1 == readoutCounter - 1) {//At NSA + 1, hit is added into data manager
                         // Add a new calorimeter hit.
                         RawCalorimeterHit newHit = new BaseRawCalorimeterHit(cellID, sum,
-                                64 * channelIntegrationTimeMap.get(cellID));
+                                64 * channelIntegrationTime[channel]);
                         newHits.add(newHit);
                         // Cycle-clock for events is 2 ns, while cycle-clock for samples is 4 ns 
-                        integrationTime = channelIntegrationTimeMap.get(cellID) * 4 + 2;
+                        integrationTime = channelIntegrationTime[channel] * 4 + 2;
 
                         // Add the truth relations for this hit, if
                         // trigger path truth is enabled.
                         if (writeTriggerTruth) {
-                            Set<SimCalorimeterHit> truthHits = channelIntegrationTruthMap.get(cellID);
+                            Set<SimCalorimeterHit> truthHits = channelIntegrationTruth[channel];
                             for (SimCalorimeterHit truthHit : truthHits) {
                                 newTruthRelations.add(new BaseLCRelation(newHit, truthHit));
                             }
                         }
-                        channelIntegrationSumMap.remove(cellID);
+                        channelIntegrating[channel] = false;
                     }
                 } // Case 2 ends
                 else { // Case 3
-                    if (channelIntegrationTimeMap.get(cellID) + CHANNEL_INTEGRATION_DEADTIME - 1 >= readoutCounter) {
+                    if (channelIntegrationTime[channel] + CHANNEL_INTEGRATION_DEADTIME - 1 >= readoutCounter) {
                         // Continue integration until CHANNEL_INTEGRATION_DEADTIME
-                        channelIntegrationADCMap.get(cellID).add(adcBuffer.getValue(0));
-
                         // Add the new ADC sample.
-                        channelIntegrationSumMap.put(cellID, sum + adcBuffer.getValue(0));
+                        channelIntegrationSum[channel] = sum + adcBuffer.getValue(channel, 0);
 
                         // Add the new truth information, if trigger
                         // path truth output is enabled.
                         if (writeTriggerTruth) {
-                            channelIntegrationTruthMap.get(cellID).addAll(truthBufferMap.get(cellID).getValue(0));
+                            channelIntegrationTruth[channel].addAll(truthBuffers[channel].getValue(0));
                         }
                         
                         // If sample at the end of deadtime is less than threshold, new integration could be started from next sample
-                        if(channelIntegrationTimeMap.get(cellID) + CHANNEL_INTEGRATION_DEADTIME == readoutCounter && pedestalSubtractedValue <= integrationThreshold)                            
-                            flagStartNewIntegration.put(cellID, true);                           
+                        if(channelIntegrationTime[channel] + CHANNEL_INTEGRATION_DEADTIME == readoutCounter && pedestalSubtractedValue <= integrationThreshold)                            
+                            flagStartNewIntegration[channel] = true;                           
                     }  
-                    else if (channelIntegrationTimeMap.get(cellID) + numSamplesAfter - 1 >= readoutCounter) {
-                        if(flagStartNewIntegration.get(cellID) == true) { // Flag for previous sample is true
+                    else if (channelIntegrationTime[channel] + numSamplesAfter - 1 >= readoutCounter) {
+                        if(flagStartNewIntegration[channel]) { // Flag for previous sample is true
                             if(pedestalSubtractedValue <= integrationThreshold) { // If sample is less than threshold, then do not start new integration
-                                channelIntegrationADCMap.get(cellID).add(adcBuffer.getValue(0));
-
                                 // Add the new ADC sample.
-                                channelIntegrationSumMap.put(cellID, sum + adcBuffer.getValue(0));
+                                channelIntegrationSum[channel] = sum + adcBuffer.getValue(channel, 0);
 
                                 // Add the new truth information, if trigger
                                 // path truth output is enabled.
                                 if (writeTriggerTruth) {
-                                    channelIntegrationTruthMap.get(cellID).addAll(truthBufferMap.get(cellID).getValue(0));
+                                    channelIntegrationTruth[channel].addAll(truthBuffers[channel].getValue(0));
                                 }                                
                             }
                             else { // if sample is larger than threshold, a hit is added into data manager and start new integration
                                 // Add a new calorimeter hit.
                                 RawCalorimeterHit newHit = new BaseRawCalorimeterHit(cellID, sum,
-                                        64 * channelIntegrationTimeMap.get(cellID));
+                                        64 * channelIntegrationTime[channel]);
                                 newHits.add(newHit);
-                                integrationTime = channelIntegrationTimeMap.get(cellID) * 4 + 2;
+                                integrationTime = channelIntegrationTime[channel] * 4 + 2;
 
                                 // Add the truth relations for this hit, if
                                 // trigger path truth is enabled.
                                 if (writeTriggerTruth) {
-                                    Set<SimCalorimeterHit> truthHits = channelIntegrationTruthMap.get(cellID);
+                                    Set<SimCalorimeterHit> truthHits = channelIntegrationTruth[channel];
                                     for (SimCalorimeterHit truthHit : truthHits) {
                                         newTruthRelations.add(new BaseLCRelation(newHit, truthHit));
                                     }
                                 }                                                                
             
                                 //Start new integration
-                                channelIntegrationTimeMap.put(cellID, readoutCounter);
-                                flagStartNewIntegration.put(cellID, false);
+                                channelIntegrationTime[channel] = readoutCounter;
+                                flagStartNewIntegration[channel] = false;
                                 
                                 // Integrate the ADC values for a number of
                                 // samples defined by NSB from before threshold
@@ -678,25 +692,20 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
                                 // is handled in the subsequent code block.
                                 int sumBefore = 0;
                                 for(int i = 0; i <= numSamplesBefore; i++) {
-                                    sumBefore += adcBuffer.getValue(-(numSamplesBefore - i));
+                                    sumBefore += adcBuffer.getValue(channel, -(numSamplesBefore - i));
                                 }
                                 
                                 // This will represent the total integral sum at
                                 // the current point in time. Store it in the sum
                                 // buffer so that it may be incremented later as
                                 // additional samples are read.
-                                channelIntegrationSumMap.put(cellID, sumBefore);
-                                
-                                // Collect and store truth information for trigger
-                                // path hits.
-                                channelIntegrationADCMap.put(cellID, new ArrayList<Integer>());
+                                channelIntegrationSum[channel] = sumBefore;
                                 
                                 // Get the truth information in the
                                 // integration samples for this channel.
                                 Set<SimCalorimeterHit> truthHits = new HashSet<SimCalorimeterHit>();
                                 for(int i = 0; i < numSamplesBefore + 4; i++) {
-                                    channelIntegrationADCMap.get(cellID).add(adcBuffer.getValue(-(numSamplesBefore - i)));
-                                    truthHits.addAll(truthBufferMap.get(cellID).getValue(-(numSamplesBefore - i)));
+                                    truthHits.addAll(truthBuffers[channel].getValue(-(numSamplesBefore - i)));
                                 }
                                 
                                 // Store all the truth hits that occurred in
@@ -705,55 +714,55 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
                                 // passed through the chain to allow for the
                                 // accessing of truth information during the
                                 // trigger simulation.
-                                channelIntegrationTruthMap.put(cellID, truthHits);                                                                    
+                                channelIntegrationTruth[channel] = truthHits;                                                                    
                             }                                                          
                         }
                         else { // Flag for previous sample is false
-                            channelIntegrationADCMap.get(cellID).add(adcBuffer.getValue(0));
-
                             // Add the new ADC sample.
-                            channelIntegrationSumMap.put(cellID, sum + adcBuffer.getValue(0));
+                            channelIntegrationSum[channel] = sum + adcBuffer.getValue(channel, 0);
 
                             // Add the new truth information, if trigger
                             // path truth output is enabled.
                             if (writeTriggerTruth) {
-                                channelIntegrationTruthMap.get(cellID).addAll(truthBufferMap.get(cellID).getValue(0));
+                                channelIntegrationTruth[channel].addAll(truthBuffers[channel].getValue(0));
                             }
                             if(pedestalSubtractedValue <= integrationThreshold)
-                                flagStartNewIntegration.put(cellID, true);                                                       
+                                flagStartNewIntegration[channel] = true;                                                       
                         }  
                     }
-                    else if (channelIntegrationTimeMap.get(cellID) + numSamplesAfter - 1 == readoutCounter - 1) {//If reach NSA + 1, hit is added into data manager, and flag is set as false
+                    else if (channelIntegrationTime[channel] + numSamplesAfter - 1 == readoutCounter - 1) {//If reach NSA + 1, hit is added into data manager, and flag is set as false
                         // Add a new calorimeter hit.
                         RawCalorimeterHit newHit = new BaseRawCalorimeterHit(cellID, sum,
-                                64 * channelIntegrationTimeMap.get(cellID));
+                                64 * channelIntegrationTime[channel]);
                         newHits.add(newHit);
-                        integrationTime = channelIntegrationTimeMap.get(cellID) * 4 + 2;
+                        integrationTime = channelIntegrationTime[channel] * 4 + 2;
 
                         // Add the truth relations for this hit, if
                         // trigger path truth is enabled.
                         if (writeTriggerTruth) {
-                            Set<SimCalorimeterHit> truthHits = channelIntegrationTruthMap.get(cellID);
+                            Set<SimCalorimeterHit> truthHits = channelIntegrationTruth[channel];
                             for (SimCalorimeterHit truthHit : truthHits) {
                                 newTruthRelations.add(new BaseLCRelation(newHit, truthHit));
                             }
                         }
-                        channelIntegrationSumMap.remove(cellID);
-                        flagStartNewIntegration.put(cellID, false);
+                        channelIntegrating[channel] = false;
+                        flagStartNewIntegration[channel] = false;
                     }
                 } // Case 3 ends                 
             }
             
-            // Step to the next entry in the voltage buffer.
-            voltageBuffer.clearValue();
-            voltageBuffer.stepForward();
+            // Clear the current entry in the voltage buffer.
+            voltageBuffer.clearValue(channel);
             
             // Step the truth buffer for this channel forward.
             // The new cell should be cleared of any old values.
-            truthBufferMap.get(cellID).stepForward();
-            truthBufferMap.get(cellID).clearValue();
+            truthBuffers[channel].stepForward();
+            truthBuffers[channel].clearValue();
         }
         
+        // Step to the next entry in the voltage buffers.
+        voltageBuffer.stepForward();
+        
         // Write the trigger path output data to the readout data
         // manager. Truth data is optional.
         
@@ -1094,9 +1103,10 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
         List<RawTrackerHit> hits = new ArrayList<RawTrackerHit>();
         
         // Iterate over each channel.
-        for(Long cellID : adcBufferMap.keySet()) {
+        for(int channel = 0; channel < channels.size(); channel++) {
             // Get the ADC values at the time of the trigger.
-            short[] adcValues = getTriggerADCValues(cellID, triggerTime);
+            long cellID = channels.getID(channel);
+            short[] adcValues = getTriggerADCValues(channel, triggerTime);
             
             // Iterate across the ADC values. If the ADC value is
             // sufficiently high to produce a hit, then it should be
@@ -1105,7 +1115,7 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
             for(int i = 0; i < adcValues.length; i++) {
                 // Check that there is a threshold-crossing at some
                 // point in the ADC buffer.
-                if(adcValues[i] > getPedestalConditions(cellID) + integrationThreshold) {
+                if(adcValues[i] > channelPedestals[channel] + integrationThreshold) {
                     isAboveThreshold = true;
                     break;
                 }
@@ -1133,12 +1143,14 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
         List<RawTrackerHit> hits = new ArrayList<RawTrackerHit>();
         
         // Iterate across the ADC values and extract Mode-3 hits.
-        for(Long cellID : adcBufferMap.keySet()) {
+        for(int channel = 0; channel < channels.size(); channel++) {
+            long cellID = channels.getID(channel);
+            double pedestal = channelPedestals[channel];
             int pointerOffset = 0;
             int numSamplesToRead = 0;
             int thresholdCrossing = 0;
             short[] adcValues = null;
-            short[] window = getTriggerADCValues(cellID, triggerTime);
+            short[] window = getTriggerADCValues(channel, triggerTime);
             
             for(int i = 0; i < ReadoutDataManager.getReadoutWindow(); i++) {
                 if(numSamplesToRead != 0) {
@@ -1147,8 +1159,8 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
                     if (numSamplesToRead == 0) {
                         hits.add(new BaseRawTrackerHit(cellID, thresholdCrossing, adcValues));
                     }
-                } else if ((i == 0 || window[i - 1] <= getPedestalConditions(cellID) + integrationThreshold) && window[i]
-                        > getPedestalConditions(cellID) + integrationThreshold) {
+                } else if ((i == 0 || window[i - 1] <= pedestal + integrationThreshold) && window[i]
+                        > pedestal + integrationThreshold) {
                     thresholdCrossing = i;
                     pointerOffset = Math.min(numSamplesBefore, i);
                     numSamplesToRead = pointerOffset + Math.min(numSamplesAfter, ReadoutDataManager.getReadoutWindow() - i - pointerOffset - 1);
@@ -1173,12 +1185,14 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
         List<RawCalorimeterHit> hits = new ArrayList<RawCalorimeterHit>();
         
         // Iterate across the ADC values and extract Mode-7 hits.
-        for(Long cellID : adcBufferMap.keySet()) {
+        for(int channel = 0; channel < channels.size(); channel++) {
+            long cellID = channels.getID(channel);
+            double pedestal = channelPedestals[channel];
             int adcSum = 0;
             int pointerOffset = 0;
             int numSamplesToRead = 0;
             int thresholdCrossing = 0;
-            short[] window = getTriggerADCValues(cellID, triggerTime);
+            short[] window = getTriggerADCValues(channel, triggerTime);
             
             // Generate Mode-7 hits.
             if(window != null) {
@@ -1189,8 +1203,8 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
                         if(numSamplesToRead == 0) {
                             hits.add(new BaseRawCalorimeterHit(cellID, adcSum, 64 * thresholdCrossing));
                         }
-                    } else if((i == 0 || window[i - 1] <= getPedestalConditions(cellID) + integrationThreshold)
-                            && window[i] > getPedestalConditions(cellID) + integrationThreshold) {
+                    } else if((i == 0 || window[i - 1] <= pedestal + integrationThreshold)
+                            && window[i] > pedestal + integrationThreshold) {
                         thresholdCrossing = i;
                         pointerOffset = Math.min(numSamplesBefore, i);
                         numSamplesToRead = pointerOffset + Math.min(numSamplesAfter, ReadoutDataManager.getReadoutWindow() - i - pointerOffset - 1);
@@ -1210,27 +1224,24 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
     
     /**
      * Gets the ADC values for the trigger readout window for the
-     * requested cell ID and returns them as a <code>short</code>
+     * requested channel and returns them as a <code>short</code>
      * primitive array.
-     * @param cellID - The ID for the channel of the requested ADC
+     * @param channel - The index of the channel of the requested ADC
      * value array.
      * @param triggerTime - The time of the trigger to be written.
      * @return Returns the ADC values in a time range equal to the
      * readout window positioned around the trigger time as array of
      * <code>short</code> primitives.
      */
-    private short[] getTriggerADCValues(long cellID, double triggerTime) {
+    private short[] getTriggerADCValues(int channel, double triggerTime) {
         // Calculate the offset between the current position and the
         // trigger time.
         int readoutLatency = getReadoutLatency(triggerTime);
         
-        // Get the ADC pipeline.
-        IntegerRingBuffer pipeline = adcBufferMap.get(cellID);
-        
         // Extract the ADC values for the requested channel.
         short[] adcValues = new short[readoutWindow];
         for(int i = 0; i < readoutWindow; i++) {
-            adcValues[i] = (short) pipeline.getValue(-(readoutLatency - i - 1)).intValue();
+            adcValues[i] = (short) adcBuffer.getValue(channel, -(readoutLatency - i - 1));
         }
         
         // Return the result.
@@ -1252,7 +1263,7 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
         int readoutLatency = getReadoutLatency(triggerTime);
         
         // Get the truth pipeline.
-        ObjectRingBuffer<SimCalorimeterHit> pipeline = truthBufferMap.get(cellID);
+        ObjectRingBuffer<SimCalorimeterHit> pipeline = truthBuffers[getChannelIndex(cellID)];
         
         // Extract the truth for the requested channel. Note that one
         // extra sample is included over the range of ADC samples as
@@ -1276,15 +1287,14 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
     }
     
     /**
-     * Returns pulse amplitude at the given time (relative to hit time). Gain is
-     * applied.
+     * Returns the gain which converts the normalized pulse amplitude
+     * of {@link #pulseAmplitude(double, PulseShape, double)} to the
+     * pulse amplitude for a channel.
      *
-     * @param time Units of ns. Relative to hit time (negative=before the start
-     * of the pulse).
      * @param cellID Crystal ID as returned by hit.getCellID().
-     * @return Amplitude, units of volts/GeV.
+     * @return Gain, units of volts/GeV per inverse ns.
      */
-    private double pulseAmplitude(double time, long cellID) {
+    private double getPulseGain(long cellID) {
         //normalization constant from cal gain (MeV/integral bit) to amplitude gain (amplitude bit/GeV)
         // Determine the gain. Gain may either be fixed across all
         // channels, or be obtained from the conditions database
@@ -1297,8 +1307,7 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
             gain = READOUT_PERIOD / (getGainConditions(cellID) * EcalUtils.MeV * ((Math.pow(2, nBit) - 1) / maxVolt));
         }
         
-        // Calculate the correct pulse amplitude and return it.
-        return gain * pulseAmplitude(time, pulseShape, tp);
+        return gain;
     }
     
     /**
@@ -1355,29 +1364,56 @@ public abstract class DigitizationReadoutDriver<D extends Subdetector> extends R
         return readoutCounter * READOUT_PERIOD;
     }
     
+    /**
+     * Gets the index of a subdetector channel in the channel arrays
+     * and buffers.
+     * @param cellID - The channel ID.
+     * @return Returns the channel index.
+     * @throws RuntimeException Occurs if the channel ID does not
+     * belong to the subdetector.
+     */
+    private int getChannelIndex(long cellID) {
+        int channel = channels.getIndex(cellID);
+        if(channel < 0) {
+            throw new RuntimeException("Error: Channel ID " + cellID + " does not exist in subdetector \"" + geometryName + "\".");
+        }
+        return channel;
+    }
+    
     /**
      * Resets the driver buffers to their default values.
-     * @return Returns <code>true</code> if the buffers were reset
-     * successfully, and <code>false</code> if they were not.
      */
+    @SuppressWarnings("unchecked")
     private void resetBuffers() {
-        // Reset each of the buffer maps.
-        adcBufferMap.clear();
-        truthBufferMap.clear();
-        voltageBufferMap.clear();
+        // Index the set of all possible channel IDs. Channels are
+        // read out in the order of this index.
+        channelOrder.clear();
+        for(Long cellID : getChannelIDs()) {
+            channelOrder.add(cellID);
+        }
+        channels = new ChannelIndex(channelOrder);
+        int n = channels.size();
         
-        // Get the set of all possible channel IDs.
-        Set<Long> cells = getChannelIDs();
+        // Create a buffer for each channel. The voltage and ADC
+        // buffers of all channels are each stored together.
+        voltageBuffer = new DoubleChannelRingBuffer(n, BUFFER_LENGTH);
+        adcBuffer = new IntegerChannelRingBuffer(n, PIPELINE_LENGTH);
+        truthBuffers = new ObjectRingBuffer[n];
+        channelPedestals = new double[n];
         
-        // Insert a new buffer for each channel ID.
-        for(Long cellID : cells) {
-            voltageBufferMap.put(cellID, new DoubleRingBuffer(BUFFER_LENGTH));
-            truthBufferMap.put(cellID, new ObjectRingBuffer<SimCalorimeterHit>(PIPELINE_LENGTH));
-            adcBufferMap.put(cellID, new IntegerRingBuffer(PIPELINE_LENGTH, (int) Math.round(getPedestalConditions(cellID))));
-            
-            truthBufferMap.get(cellID).stepForward();
-            
-            flagStartNewIntegration.put(cellID, false);
+        // Reset the integration state of each channel.
+        channelIntegrating = new boolean[n];
+        channelIntegrationSum = new int[n];
+        channelIntegrationTime = new int[n];
+        channelIntegrationTruth = new Set[n];
+        flagStartNewIntegration = new boolean[n];
+        
+        // Initialize the buffers for each channel.
+        for(int channel = 0; channel < n; channel++) {
+            channelPedestals[channel] = getPedestalConditions(channels.getID(channel));
+            adcBuffer.setAll(channel, (int) Math.round(channelPedestals[channel]));
+            truthBuffers[channel] = new ObjectRingBuffer<SimCalorimeterHit>(PIPELINE_LENGTH);
+            truthBuffers[channel].stepForward();
         }
     }
     
@@ -147,6 +147,9 @@ public class HodoscopePreprocessingDriver extends ReadoutDriver {
     
     @Override
     public void startOfData() {
+        // Define the necessary input collection.
+        addDependency(truthHitCollectionName);
+        
         // Define the LCSim collection parameters for this driver's
         // output.
         LCIOCollectionFactory.setCollectionName(outputHitCollectionName);
@@ -9,6 +9,7 @@ import java.util.Queue;
 import org.hps.readout.ReadoutDataManager;
 import org.hps.readout.TriggerDriver;
 import org.hps.recon.ecal.EcalUtils;
+import org.hps.record.triggerbank.TriggerBatch;
 import org.hps.record.triggerbank.TriggerModule2019;
 import org.lcsim.event.Cluster;
 import org.lcsim.event.EventHeader;
@@ -36,6 +37,11 @@ public class PairsTrigger2019ReadoutDriver extends TriggerDriver{
     private String ecalGeometryName = "Ecal";                     // Name of the calorimeter geometry object.
     private TriggerModule2019 triggerModule = new TriggerModule2019();
     
+    // The singles cuts are applied before clusters are placed in the
+    // cluster queues, so only the pair cuts are needed for pairs.
+    private static final int PAIR_CUTS = TriggerBatch.CUT_ENERGY_SUM_LOW | TriggerBatch.CUT_ENERGY_SUM_HIGH
+            | TriggerBatch.CUT_ENERGY_DIFFERENCE | TriggerBatch.CUT_ENERGY_SLOPE | TriggerBatch.CUT_COPLANARITY;
+    
     // ==================================================================
     // ==== Driver Internal Variables ===================================
     // ==================================================================
@@ -43,6 +49,7 @@ public class PairsTrigger2019ReadoutDriver extends TriggerDriver{
     private Queue<List<Cluster>> botClusterQueue = null;           // Store clusters on the bottom half of the calorimeter.
     private double localTime = 0.0;                                // Stores the internal time clock for the driver.
     private HPSEcal3 ecal = null;                                  // The calorimeter geometry object.
+    private final TriggerBatch triggerBatch = new TriggerBatch();  // Performs the pair cuts on the queued clusters.
     
     @Override
     public void detectorChanged(Detector detector) {
@@ -302,94 +309,51 @@ public class PairsTrigger2019ReadoutDriver extends TriggerDriver{
      * passes all of the cluster cuts and <code>false</code> otherwise.
      */
     private boolean testTrigger() {
-        // Track whether a trigger has occurred.
-        boolean triggered = false;
-        
-        // Get the list of cluster pairs.
-        List<Cluster[]> clusterPairs = getClusterPairsTopBot();
-        
-        // Iterate over the cluster pairs and perform each of the cluster
-        // pair cuts on them. A cluster pair that passes all of the
-        // cuts registers as a trigger.
-        pairLoop:
-        for(Cluster[] clusterPair : clusterPairs) {
-            // Get the x and y indices. Note that LCSim meta data is
-            // not available during readout, so crystal indices must
-            // be obtained directly from the calorimeter geometry.
-            java.awt.Point ixy0 = ecal.getCellIndices(clusterPair[0].getCalorimeterHits().get(0).getCellID());
-            java.awt.Point ixy1 = ecal.getCellIndices(clusterPair[1].getCalorimeterHits().get(0).getCellID());
-            
-            
-            // ==== Pair Energy Sum Cut ====================================
-            // =============================================================
-            // If the cluster fails the cut, skip to the next pair.
-            if(!triggerModule.pairEnergySumCut(clusterPair)) {
-                continue pairLoop;
-            }
-            
-            // ==== Pair Energy Difference Cut =============================
-            // =============================================================
-            // If the cluster fails the cut, skip to the next pair.
-            if(!triggerModule.pairEnergyDifferenceCut(clusterPair)) {
-                continue pairLoop;
-            }
-            
-            // ==== Pair Energy Slope Cut ==================================
-            // =============================================================
-            // If the cluster fails the cut, skip to the next pair.
-            if(!triggerModule.pairEnergySlopeCut(clusterPair, ixy0, ixy1)) {
-                continue pairLoop;
-            }
-            
-            // ==== Pair Coplanarity Cut ===================================
-            // =============================================================
-            // If the cluster fails the cut, skip to the next pair.
-            if(!triggerModule.pairCoplanarityCut(clusterPair, ixy0, ixy1)) {
-                continue pairLoop;
+        // Load the clusters that may form pairs into the trigger
+        // batch. Note that LCSim meta data is not available during
+        // readout, so crystal indices must be obtained directly from
+        // the calorimeter geometry.
+        triggerBatch.clear();
+        triggerBatch.setCuts(triggerModule);
+        for(Cluster botCluster : botClusterQueue.element()) {
+            java.awt.Point ixy = ecal.getCellIndices(botCluster.getCalorimeterHits().get(0).getCellID());
+            triggerBatch.add(botCluster, ixy.x, ixy.y);
+        }
+        for(List<Cluster> topClusters : topClusterQueue) {
+            for(Cluster topCluster : topClusters) {
+                java.awt.Point ixy = ecal.getCellIndices(topCluster.getCalorimeterHits().get(0).getCellID());
+                triggerBatch.add(topCluster, ixy.x, ixy.y);
             }
-            
-            // Clusters that pass all of the pair cuts produce a trigger.
-            triggered = true;
         }
         
-        // Return whether or not a trigger was observed.
-        return triggered;
-    }  
-    
-    /**
-     * Get a list of all unique cluster pairs in the event.
-     * @return A <code>List</code> collection of <code>Cluster</code> 
-     * objects containing all cluster pairs.
-     */
-    protected List<Cluster[]> getClusterPairsTopBot() {
-        // Create a list to store cluster pairs. 
-        List<Cluster[]> clusterPairs = new ArrayList<Cluster[]>();
-        
-        // Loop over all top-bottom pairs of clusters; higher-energy cluster goes first in the pair
-        // To apply pair coincidence time, use only bottom clusters from the 
-        // readout cycle pairCoincidence readout cycles ago, and top clusters 
-        // from all 2*pairCoincidence+1 previous readout cycles
-        for(Cluster botCluster : botClusterQueue.element()) {
-            for(List<Cluster> topClusters : topClusterQueue) {
-                for(Cluster topCluster : topClusters) {
-                    // The first cluster in a pair should always be
-                    // the higher energy cluster. If the top cluster
-                    // is higher energy, it goes first.
-                    if(topCluster.getEnergy() > botCluster.getEnergy()) {
-                        Cluster[] clusterPair = { topCluster, botCluster };
-                        clusterPairs.add(clusterPair);
-                    }
-                    
-                    // Otherwise, the bottom cluster goes first.
-                    else {
-                        Cluster[] clusterPair = { botCluster, topCluster };
-                        clusterPairs.add(clusterPair);
-                    }
+        // Iterate over the cluster pairs and perform each of the cluster
+        // pair cuts on them. To apply the pair coincidence time, only
+        // bottom clusters from the readout cycle pairCoincidence cycles
+        // ago are paired, with top clusters from all 2*pairCoincidence+1
+        // previous readout cycles. A cluster pair that passes all of
+        // the cuts registers as a trigger.
+        for(int botNum = 0; botNum < triggerBatch.getBottomClusterCount(); botNum++) {
+            int bot = triggerBatch.getBottomCluster(botNum);
+            for(int topNum = 0; topNum < triggerBatch.getTopClusterCount(); topNum++) {
+                int top = triggerBatch.getTopCluster(topNum);
+                
+                // The first cluster in a pair should always be the
+                // higher energy cluster.
+                boolean passed;
+                if(triggerBatch.getEnergy(top) > triggerBatch.getEnergy(bot)) {
+                    passed = triggerBatch.passesPairCuts(top, bot, PAIR_CUTS);
+                } else {
+                    passed = triggerBatch.passesPairCuts(bot, top, PAIR_CUTS);
+                }
+                
+                // Clusters that pass all of the pair cuts produce a trigger.
+                if(passed) {
+                    return true;
                 }
             }
         }
         
-        // Return the cluster pair lists.
-        return clusterPairs;
-    }
+        // Return whether or not a trigger was observed.
+        return false;
+    }  
 }
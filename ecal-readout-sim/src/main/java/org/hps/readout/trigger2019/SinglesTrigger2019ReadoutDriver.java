@@ -5,6 +5,7 @@ import java.util.ArrayList;
 
 import org.hps.readout.ReadoutDataManager;
 import org.hps.readout.TriggerDriver;
+import org.hps.record.triggerbank.TriggerBatch;
 import org.hps.record.triggerbank.TriggerModule2019;
 import org.lcsim.event.Cluster;
 import org.lcsim.event.EventHeader;
@@ -59,6 +60,10 @@ public class SinglesTrigger2019ReadoutDriver extends TriggerDriver {
      * Stores the trigger settings and performs trigger logic.
      */
     private TriggerModule2019 triggerModule = new TriggerModule2019();
+    /**
+     * Performs the trigger cuts on the clusters of each clock-cycle.
+     */
+    private final TriggerBatch triggerBatch = new TriggerBatch();
     
     // ==============================================================
     // ==== Driver Parameters =======================================
@@ -135,11 +140,14 @@ public class SinglesTrigger2019ReadoutDriver extends TriggerDriver {
         
         // Plot the trigger distributions before trigger cuts are
         // performed.
+        triggerBatch.clear();
+        triggerBatch.setCuts(triggerModule);
         for(Cluster cluster : clusters) {
             // Get the x and y indices. Note that LCSim meta data is
             // not available during readout, so crystal indices must
             // be obtained directly from the calorimeter geometry.
             java.awt.Point ixy = ecal.getCellIndices(cluster.getCalorimeterHits().get(0).getCellID());
+            int clusterIndex = triggerBatch.add(cluster, ixy.x, ixy.y);
             
             // Populate the uncut plots.
             clusterSeedEnergy[NO_CUTS].fill(TriggerModule2019.getValueClusterSeedEnergy(cluster));
@@ -147,13 +155,9 @@ public class SinglesTrigger2019ReadoutDriver extends TriggerDriver {
             clusterHitCount[NO_CUTS].fill(TriggerModule2019.getClusterHitCount(cluster));
             clusterDistribution[NO_CUTS].fill(ixy.x, ixy.y);           
             
-            // Perform the hit count cut.
-            if(!triggerModule.clusterHitCountCut(cluster)) {
-                continue;
-            }            
-            
-            // Perform the cluster energy cut.
-            if(!triggerModule.clusterTotalEnergyCut(cluster)) {
+            // Perform the hit count, cluster energy, XMin, and
+            // position-dependent energy cuts.
+            if(!triggerBatch.passesSinglesCuts(clusterIndex, TriggerBatch.CUTS_SINGLES)) {
                 continue;
             }
             
@@ -162,17 +166,6 @@ public class SinglesTrigger2019ReadoutDriver extends TriggerDriver {
             int clusterX = ixy.x;
             if(clusterX < 0) clusterX++;
             
-            // XMin is at least 0.
-            if(!triggerModule.clusterXMinCut(clusterX)) {
-                continue;
-            }
-            
-            // XMin cut has been applied.
-            if(!triggerModule.clusterPDECut(cluster, clusterX)) {
-                continue;                
-            }
-           
-            
             if(geometryMatchingRequired && !triggerModule.geometryMatchingCut(clusterX, ixy.y, hodoPatternList)) {
                 continue;
             }
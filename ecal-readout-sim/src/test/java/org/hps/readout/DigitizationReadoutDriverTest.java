@@ -0,0 +1,350 @@
+package org.hps.readout;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import junit.framework.TestCase;
+
+import org.hps.readout.util.collection.LCIOCollectionFactory;
+import org.hps.readout.util.collection.TriggeredLCIOData;
+import org.lcsim.event.EventHeader;
+import org.lcsim.event.RawCalorimeterHit;
+import org.lcsim.event.RawTrackerHit;
+import org.lcsim.event.SimCalorimeterHit;
+import org.lcsim.event.base.BaseSimCalorimeterHit;
+import org.lcsim.geometry.Detector;
+import org.lcsim.geometry.GeometryReader;
+import org.lcsim.geometry.subdetector.HPSEcal3;
+
+/**
+ * Check the output of {@link DigitizationReadoutDriver} for the
+ * calorimeter channels of a real detector. The hits of each readout
+ * cycle must come in the iteration order of a hash set filled with
+ * the channel IDs, which is the order of the hash maps in which the
+ * driver used to keep its channel buffers, and the hits and ADC
+ * samples of a channel must not depend on the truth hits of the
+ * other channels.
+ * <br/><br/>
+ * The channel conditions are made up by the test, so the conditions
+ * database is not needed.
+ */
+public class DigitizationReadoutDriverTest extends TestCase {
+    private static final String DETECTOR = "HPS-EngRun2015-Nominal-v2";
+    private static final int N_BUNCHES = 3000;
+    private static final int TRIGGER_INTERVAL = 500;
+
+    private static Detector detector = null;
+    private static HPSEcal3 ecal = null;
+    private static final Map<Long, double[]> conditions = new HashMap<Long, double[]>();
+
+    /**
+     * Digitizes the calorimeter hits with the conditions of the
+     * test.
+     */
+    private static class TestDigitizationDriver extends DigitizationReadoutDriver<HPSEcal3> {
+        TestDigitizationDriver(String prefix) {
+            setGeometryName("Ecal");
+            setInputHitCollectionName(prefix + "EcalHits");
+            setOutputHitCollectionName(prefix + "EcalRawHits");
+            setTruthRelationsCollectionName(prefix + "EcalTruthRelations");
+            setTriggerPathTruthRelationsCollectionName(prefix + "TriggerPathTruthRelations");
+            setReadoutHitCollectionName(prefix + "EcalReadoutHits");
+            setPhotoelectronsPerMeV(32.8);
+            setPulseTimeParameter(9.6);
+            setAddNoise(false);
+            setMode(1);
+        }
+
+        /**
+         * Gives the channel IDs in ascending order, which is not the
+         * iteration order of a hash set, so that the readout order
+         * does not depend on the order of this set.
+         */
+        @Override
+        protected Set<Long> getChannelIDs() {
+            return new TreeSet<Long>(getSubdetector().getNeighborMap().keySet());
+        }
+
+        @Override
+        protected double getGainConditions(long channelID) {
+            return conditions.get(channelID)[0];
+        }
+
+        @Override
+        protected double getNoiseConditions(long channelID) {
+            return conditions.get(channelID)[1];
+        }
+
+        @Override
+        protected double getPedestalConditions(long channelID) {
+            return conditions.get(channelID)[2];
+        }
+
+        @Override
+        protected double getTimeShiftConditions(long channelID) {
+            return conditions.get(channelID)[3];
+        }
+
+        @Override
+        protected int getTimestampFlag() {
+            return ReadoutTimestamp.SYSTEM_ECAL;
+        }
+    }
+
+    /**
+     * Produces the truth hit collection which the test fills.
+     */
+    private static class TruthDriver extends ReadoutDriver {
+        private final String collectionName;
+
+        TruthDriver(String collectionName) {
+            this.collectionName = collectionName;
+        }
+
+        @Override
+        public void process(EventHeader event) {
+        }
+
+        @Override
+        public void startOfData() {
+            LCIOCollectionFactory.setCollectionName(collectionName);
+            LCIOCollectionFactory.setProductionDriver(this);
+            ReadoutDataManager.registerCollection(LCIOCollectionFactory.produceLCIOCollection(SimCalorimeterHit.class), false);
+        }
+
+        @Override
+        protected double getTimeDisplacement() {
+            return 0;
+        }
+
+        @Override
+        protected double getTimeNeededForLocalOutput() {
+            return 0;
+        }
+    }
+
+    /**
+     * The output of a digitization driver.
+     */
+    private static class Output {
+        private final String collectionName;
+        private final Map<RawCalorimeterHit, Boolean> seen = new IdentityHashMap<RawCalorimeterHit, Boolean>();
+        /**
+         * The hits of each readout cycle in which there were any.
+         */
+        private final List<List<RawCalorimeterHit>> cycles = new ArrayList<List<RawCalorimeterHit>>();
+        /**
+         * The Mode-1 ADC samples of each trigger by channel ID.
+         */
+        private final List<Map<Long, short[]>> triggers = new ArrayList<Map<Long, short[]>>();
+
+        Output(String collectionName) {
+            this.collectionName = collectionName;
+        }
+
+        /**
+         * Collects the hits which the driver added since the last
+         * call. The driver reads out at most one cycle per beam
+         * bunch, and all hits of a cycle are added at the same time,
+         * so they are returned in the order in which they were added.
+         */
+        void collectHits() {
+            double now = ReadoutDataManager.getCurrentTime();
+            List<RawCalorimeterHit> cycle = new ArrayList<RawCalorimeterHit>();
+            for(RawCalorimeterHit hit : ReadoutDataManager.getData(now - 400, now + 400, collectionName, RawCalorimeterHit.class)) {
+                if(seen.put(hit, Boolean.TRUE) == null) {
+                    cycle.add(hit);
+                }
+            }
+            if(!cycle.isEmpty()) {
+                cycles.add(cycle);
+            }
+        }
+
+        void collectTrigger(DigitizationReadoutDriver<?> driver, double triggerTime) {
+            Map<Long, short[]> samples = new HashMap<Long, short[]>();
+            for(TriggeredLCIOData<?> data : driver.getOnTriggerData(triggerTime)) {
+                for(Object object : data.getData()) {
+                    if(object instanceof RawTrackerHit) {
+                        RawTrackerHit hit = (RawTrackerHit) object;
+                        samples.put(hit.getCellID(), hit.getADCValues());
+                    }
+                }
+            }
+            triggers.add(samples);
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        if(detector != null) {
+            return;
+        }
+        GeometryReader geometryReader = new GeometryReader();
+        geometryReader.setBuildDetailed(true);
+        InputStream in = DigitizationReadoutDriverTest.class.getResourceAsStream("/" + DETECTOR + "/compact.xml");
+        assertNotNull("Missing compact file of " + DETECTOR, in);
+        try {
+            detector = geometryReader.read(in);
+        } finally {
+            in.close();
+        }
+
+        // Give each channel its own gain, pedestal and time shift.
+        Random random = new Random(21);
+        ecal = (HPSEcal3) detector.getSubdetector("Ecal");
+        for(Long channelID : ecal.getNeighborMap().keySet()) {
+            conditions.put(channelID, new double[] { 0.1 + 0.1 * random.nextDouble(), 1 + 3 * random.nextDouble(),
+                    80 + 40 * random.nextDouble(), -2 + 4 * random.nextDouble() });
+        }
+        assertFalse(conditions.isEmpty());
+    }
+
+    /**
+     * Runs two drivers on the same truth hits, except that the second
+     * only gets the hits of the channels in a subset.
+     * @param prefix - The prefix of the collection names, so that
+     * each test has its own collections.
+     * @param subset - The channels of the second driver, or
+     * <code>null</code> to only run the first driver.
+     * @return Returns the output of the first and second driver.
+     */
+    private static final Output[] run(String prefix, Set<Long> subset) {
+        List<Long> channelIDs = new ArrayList<Long>(conditions.keySet());
+        String[] prefixes = { prefix + "All", prefix + "Subset" };
+        int nDrivers = subset == null ? 1 : 2;
+        TestDigitizationDriver[] drivers = new TestDigitizationDriver[nDrivers];
+        Output[] outputs = new Output[nDrivers];
+        for(int i = 0; i < nDrivers; i++) {
+            new TruthDriver(prefixes[i] + "EcalHits").startOfData();
+            drivers[i] = new TestDigitizationDriver(prefixes[i]);
+            drivers[i].startOfData();
+            drivers[i].detectorChanged(detector);
+            outputs[i] = new Output(prefixes[i] + "EcalRawHits");
+        }
+
+        ReadoutDataManager manager = new ReadoutDataManager();
+        Random random = new Random(5);
+        for(int bunch = 0; bunch < N_BUNCHES; bunch++) {
+            // Deposit energy in a few channels, often more than once
+            // in the same channel, in about a third of the bunches.
+            double now = ReadoutDataManager.getCurrentTime();
+            List<SimCalorimeterHit> hits = new ArrayList<SimCalorimeterHit>();
+            if(random.nextInt(3) == 0) {
+                long cluster = channelIDs.get(random.nextInt(channelIDs.size()));
+                int n = 1 + random.nextInt(6);
+                for(int i = 0; i < n; i++) {
+                    long channelID = random.nextInt(3) == 0 ? cluster : channelIDs.get(random.nextInt(channelIDs.size()));
+                    hits.add(new BaseSimCalorimeterHit(channelID, 0.01 + 1.5 * random.nextDouble(), 2.0 * random.nextDouble(),
+                            new Object[0], new float[0], new float[0], new int[0], null));
+                }
+            }
+            ReadoutDataManager.addData(prefixes[0] + "EcalHits", now, hits, SimCalorimeterHit.class);
+            if(subset != null) {
+                List<SimCalorimeterHit> subsetHits = new ArrayList<SimCalorimeterHit>();
+                for(SimCalorimeterHit hit : hits) {
+                    if(subset.contains(hit.getCellID())) {
+                        subsetHits.add(hit);
+                    }
+                }
+                ReadoutDataManager.addData(prefixes[1] + "EcalHits", now, subsetHits, SimCalorimeterHit.class);
+            }
+
+            for(int i = 0; i < nDrivers; i++) {
+                drivers[i].process(null);
+                outputs[i].collectHits();
+                if(bunch % TRIGGER_INTERVAL == TRIGGER_INTERVAL - 1) {
+                    outputs[i].collectTrigger(drivers[i], 4 * Math.round((now - 600) / 4));
+                }
+            }
+            manager.process(null);
+        }
+        return outputs;
+    }
+
+    /**
+     * The hits of each readout cycle come in the iteration order of
+     * a hash set of the channel IDs.
+     */
+    public void testReadoutOrder() {
+        // Channels which share a bucket of the hash set are kept in
+        // the order in which they were added.
+        Set<Long> channelOrder = new HashSet<Long>();
+        for(Long channelID : new TreeSet<Long>(ecal.getNeighborMap().keySet())) {
+            channelOrder.add(channelID);
+        }
+        Map<Long, Integer> position = new HashMap<Long, Integer>();
+        for(Long channelID : channelOrder) {
+            position.put(channelID, position.size());
+        }
+
+        Output output = run("Order", null)[0];
+        assertFalse(output.cycles.isEmpty());
+        int multiHitCycles = 0;
+        for(List<RawCalorimeterHit> cycle : output.cycles) {
+            for(int i = 1; i < cycle.size(); i++) {
+                assertTrue("Hits out of order in readout cycle " + cycle,
+                        position.get(cycle.get(i - 1).getCellID()) < position.get(cycle.get(i).getCellID()));
+            }
+            if(cycle.size() > 1) {
+                multiHitCycles++;
+            }
+        }
+        assertTrue(multiHitCycles > 0);
+    }
+
+    /**
+     * The hits and ADC samples of the channels in a subset are the
+     * same whether or not the other channels have hits.
+     */
+    public void testChannelIndependence() {
+        Set<Long> subset = new HashSet<Long>();
+        Random random = new Random(7);
+        for(Long channelID : conditions.keySet()) {
+            if(random.nextBoolean()) {
+                subset.add(channelID);
+            }
+        }
+
+        Output[] outputs = run("Independence", subset);
+        List<String> expected = new ArrayList<String>();
+        for(List<RawCalorimeterHit> cycle : outputs[0].cycles) {
+            for(RawCalorimeterHit hit : cycle) {
+                if(subset.contains(hit.getCellID())) {
+                    expected.add(describe(hit));
+                }
+            }
+        }
+        List<String> actual = new ArrayList<String>();
+        for(List<RawCalorimeterHit> cycle : outputs[1].cycles) {
+            for(RawCalorimeterHit hit : cycle) {
+                actual.add(describe(hit));
+            }
+        }
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, actual);
+
+        assertEquals(N_BUNCHES / TRIGGER_INTERVAL, outputs[0].triggers.size());
+        for(int i = 0; i < outputs[0].triggers.size(); i++) {
+            Map<Long, short[]> all = outputs[0].triggers.get(i);
+            Map<Long, short[]> subsetSamples = outputs[1].triggers.get(i);
+            for(Long channelID : subset) {
+                assertTrue("trigger " + i + ", channel " + channelID,
+                        Arrays.equals(all.get(channelID), subsetSamples.get(channelID)));
+            }
+        }
+    }
+
+    private static final String describe(RawCalorimeterHit hit) {
+        return hit.getCellID() + ": " + hit.getAmplitude() + " at " + hit.getTimeStamp();
+    }
+}
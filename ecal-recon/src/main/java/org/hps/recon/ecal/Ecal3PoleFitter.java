@@ -0,0 +1,389 @@
+package org.hps.recon.ecal;
+
+/**
+ * Least-squares fit of the "3-pole" pulse shape of {@link Ecal3PoleFunction} to an ECal FADC waveform,
+ *
+ * PEDESTAL + INTEGRAL / WIDTH^3 / 2 * (TIME-TIME0)**2 * exp(-(TIME-TIME0)/WIDTH),
+ *
+ * by Levenberg-Marquardt iterations with analytic derivatives. This replaces the general-purpose AIDA fitter for the
+ * one function that ECal reconstruction fits to every Mode-1 pulse. Parameter limits are applied by clipping each
+ * step to the allowed range, and the width can be fixed.
+ * <p>
+ * The fit has no state of its own: the samples, the parameters and all scratch space are in a {@link Fit} object
+ * supplied by the caller, which can be reused for every hit. Nothing is allocated per fit, and different threads can
+ * fit at the same time with their own <code>Fit</code> objects.
+ */
+public final class Ecal3PoleFitter {
+
+    /**
+     * Parameter indices, in the order of {@link Ecal3PoleFunction}.
+     */
+    public static final int PEDESTAL = 0;
+    public static final int TIME0 = 1;
+    public static final int INTEGRAL = 2;
+    public static final int WIDTH = 3;
+
+    /**
+     * Number of parameters of the pulse shape.
+     */
+    public static final int NPAR = 4;
+
+    /**
+     * Most samples that can be fit.
+     */
+    public static final int MAX_POINTS = 100;
+
+    /**
+     * Fixed limits on the integral and width, as used with the AIDA fitter.
+     */
+    private static final double INTEGRAL_MIN = 0;
+    private static final double INTEGRAL_MAX = 999999;
+    private static final double WIDTH_MIN = 0.1;
+    private static final double WIDTH_MAX = 5;
+
+    /**
+     * Iteration control.
+     */
+    private static final int MAX_ITERATIONS = 100;
+    private static final double LAMBDA_START = 1e-3;
+    private static final double LAMBDA_MAX = 1e10;
+    private static final double CHI2_TOLERANCE = 1e-7;
+
+    private Ecal3PoleFitter() {
+    }
+
+    /**
+     * The samples to fit, the fit parameters and the scratch space of one fit.
+     */
+    public static final class Fit {
+
+        // Sample times (units = samples) and ADC values.
+        final double[] x = new double[MAX_POINTS];
+        final double[] y = new double[MAX_POINTS];
+        int nPoints = 0;
+
+        // Parameters: starting values before the fit, fitted values after.
+        final double[] par = new double[NPAR];
+
+        // Results.
+        double chi2 = -1;
+        int ndf = 0;
+        int iterations = 0;
+        boolean converged = false;
+
+        // Scratch.
+        private final double[] trial = new double[NPAR];
+        private final double[] grad = new double[NPAR];
+        private final double[] alpha = new double[NPAR * NPAR];
+        private final double[] beta = new double[NPAR];
+        private final double[] matrix = new double[NPAR * NPAR];
+        private final double[] step = new double[NPAR];
+        private final int[] free = new int[NPAR];
+
+        /**
+         * Remove all samples.
+         */
+        public void clear() {
+            nPoints = 0;
+        }
+
+        /**
+         * Add a sample to fit.
+         * @param time the sample time (units = samples)
+         * @param adc the ADC value
+         * @throws IllegalStateException if there are already {@link Ecal3PoleFitter#MAX_POINTS} samples
+         */
+        public void addPoint(double time, double adc) {
+            if (nPoints == MAX_POINTS) {
+                throw new IllegalStateException("Too many samples for the 3-pole fit; at most " + MAX_POINTS
+                        + " can be fit.");
+            }
+            x[nPoints] = time;
+            y[nPoints] = adc;
+            nPoints++;
+        }
+
+        /**
+         * @return the number of samples
+         */
+        public int size() {
+            return nPoints;
+        }
+
+        /**
+         * Set the starting value of a parameter.
+         */
+        public void setParameter(int index, double value) {
+            par[index] = value;
+        }
+
+        /**
+         * @return the fitted value of a parameter
+         */
+        public double parameter(int index) {
+            return par[index];
+        }
+
+        /**
+         * @return the chi2 of the fit, with the sample noise as error
+         */
+        public double chi2() {
+            return chi2;
+        }
+
+        /**
+         * @return the number of degrees of freedom
+         */
+        public int ndf() {
+            return ndf;
+        }
+
+        /**
+         * @return the number of iterations used
+         */
+        public int iterations() {
+            return iterations;
+        }
+
+        /**
+         * The fit quality, which is positive for a successful fit (chi2 per degree of freedom) and -1 for a failed
+         * one, to be used like <code>IFitResult.quality()</code>.
+         * @return the fit quality
+         */
+        public double quality() {
+            if (!converged || ndf <= 0 || Double.isNaN(chi2)) {
+                return -1;
+            }
+            return Math.max(chi2 / ndf, Double.MIN_VALUE);
+        }
+
+        /**
+         * The value of the fitted function at the pulse peak, pedestal included, as {@link Ecal3PoleFunction#maximum()}.
+         * @return the pulse maximum (units = ADC)
+         */
+        public double maximum() {
+            return value(par, par[TIME0] + 2 * par[WIDTH]);
+        }
+    }
+
+    /**
+     * The pulse shape.
+     * @param par the parameters
+     * @param time the time (units = samples)
+     * @return the ADC value
+     */
+    public static double value(double[] par, double time) {
+        final double dt = time - par[TIME0];
+        if (dt <= 0) {
+            return par[PEDESTAL];
+        }
+        final double w = par[WIDTH];
+        return par[PEDESTAL] + par[INTEGRAL] / (w * w * w) / 2 * dt * dt * Math.exp(-dt / w);
+    }
+
+    /**
+     * The pulse shape and its derivatives with respect to the parameters.
+     * @param par the parameters
+     * @param time the time (units = samples)
+     * @param grad output for the derivatives
+     * @return the ADC value
+     */
+    static double valueAndGradient(double[] par, double time, double[] grad) {
+        final double dt = time - par[TIME0];
+        grad[PEDESTAL] = 1;
+        if (dt <= 0) {
+            grad[TIME0] = 0;
+            grad[INTEGRAL] = 0;
+            grad[WIDTH] = 0;
+            return par[PEDESTAL];
+        }
+        final double w = par[WIDTH];
+        final double a = par[INTEGRAL];
+        final double shape = dt * dt * Math.exp(-dt / w) / (2 * w * w * w);
+        final double pulse = a * shape;
+        grad[INTEGRAL] = shape;
+        grad[TIME0] = pulse * (1 / w - 2 / dt);
+        grad[WIDTH] = pulse * (dt - 3 * w) / (w * w);
+        return par[PEDESTAL] + pulse;
+    }
+
+    /**
+     * Fit the samples in <code>fit</code>, starting from the parameter values set in it.
+     * @param fit the samples, starting values and workspace, which receives the result
+     * @param noise the error on each sample (units = ADC)
+     * @param time0Min lower limit on the pulse start time (units = samples)
+     * @param time0Max upper limit on the pulse start time (units = samples)
+     * @param fixWidth true to keep the width at its starting value
+     * @return true if the fit converged
+     */
+    public static boolean fit(Fit fit, double noise, double time0Min, double time0Max, boolean fixWidth) {
+        final double[] par = fit.par;
+        final double[] trial = fit.trial;
+        final int[] free = fit.free;
+
+        int nFree = 0;
+        free[nFree++] = PEDESTAL;
+        free[nFree++] = TIME0;
+        free[nFree++] = INTEGRAL;
+        if (!fixWidth) {
+            free[nFree++] = WIDTH;
+        }
+
+        fit.iterations = 0;
+        fit.converged = false;
+        fit.ndf = fit.nPoints - nFree;
+        if (fit.ndf <= 0) {
+            fit.chi2 = -1;
+            return false;
+        }
+
+        clip(par, time0Min, time0Max);
+        double chi2 = sumOfSquares(fit, par);
+        double lambda = LAMBDA_START;
+
+        iterations: while (fit.iterations < MAX_ITERATIONS) {
+            fit.iterations++;
+            buildNormalEquations(fit, nFree);
+            while (true) {
+                // Damped normal equations (J^T J + lambda diag(J^T J)) step = J^T r.
+                for (int i = 0; i < nFree; i++) {
+                    for (int j = 0; j < nFree; j++) {
+                        fit.matrix[i * nFree + j] = fit.alpha[i * nFree + j];
+                    }
+                    fit.matrix[i * nFree + i] *= 1 + lambda;
+                    fit.step[i] = fit.beta[i];
+                }
+                boolean solved = solve(fit.matrix, fit.step, nFree);
+                if (solved) {
+                    System.arraycopy(par, 0, trial, 0, NPAR);
+                    for (int i = 0; i < nFree; i++) {
+                        trial[free[i]] += fit.step[i];
+                    }
+                    clip(trial, time0Min, time0Max);
+                    final double trialChi2 = sumOfSquares(fit, trial);
+                    if (trialChi2 <= chi2) {
+                        final double change = chi2 - trialChi2;
+                        System.arraycopy(trial, 0, par, 0, NPAR);
+                        chi2 = trialChi2;
+                        lambda = Math.max(lambda / 10, 1e-12);
+                        if (change <= CHI2_TOLERANCE * (chi2 + 1)) {
+                            fit.converged = true;
+                            break iterations;
+                        }
+                        break;
+                    }
+                }
+                lambda *= 10;
+                if (lambda > LAMBDA_MAX) {
+                    // No step lowers the chi2 any more, so this is the minimum.
+                    fit.converged = true;
+                    break iterations;
+                }
+            }
+        }
+
+        fit.chi2 = chi2 / (noise * noise);
+        if (Double.isNaN(fit.chi2)) {
+            fit.converged = false;
+        }
+        return fit.converged;
+    }
+
+    /**
+     * Apply the parameter limits.
+     */
+    private static void clip(double[] par, double time0Min, double time0Max) {
+        par[TIME0] = Math.min(Math.max(par[TIME0], time0Min), time0Max);
+        par[INTEGRAL] = Math.min(Math.max(par[INTEGRAL], INTEGRAL_MIN), INTEGRAL_MAX);
+        par[WIDTH] = Math.min(Math.max(par[WIDTH], WIDTH_MIN), WIDTH_MAX);
+    }
+
+    /**
+     * @return the unweighted sum of squared residuals
+     */
+    private static double sumOfSquares(Fit fit, double[] par) {
+        double sum = 0;
+        for (int k = 0; k < fit.nPoints; k++) {
+            final double r = fit.y[k] - value(par, fit.x[k]);
+            sum += r * r;
+        }
+        return sum;
+    }
+
+    /**
+     * Fill alpha = J^T J and beta = J^T r for the free parameters.
+     */
+    private static void buildNormalEquations(Fit fit, int nFree) {
+        final double[] alpha = fit.alpha;
+        final double[] beta = fit.beta;
+        final double[] grad = fit.grad;
+        final int[] free = fit.free;
+        for (int i = 0; i < nFree * nFree; i++) {
+            alpha[i] = 0;
+        }
+        for (int i = 0; i < nFree; i++) {
+            beta[i] = 0;
+        }
+        for (int k = 0; k < fit.nPoints; k++) {
+            final double r = fit.y[k] - valueAndGradient(fit.par, fit.x[k], grad);
+            for (int i = 0; i < nFree; i++) {
+                final double gi = grad[free[i]];
+                beta[i] += gi * r;
+                for (int j = 0; j <= i; j++) {
+                    alpha[i * nFree + j] += gi * grad[free[j]];
+                }
+            }
+        }
+        for (int i = 0; i < nFree; i++) {
+            for (int j = 0; j < i; j++) {
+                alpha[j * nFree + i] = alpha[i * nFree + j];
+            }
+        }
+    }
+
+    /**
+     * Solve a * x = b in place by Gaussian elimination with partial pivoting.
+     * @param a the matrix, destroyed
+     * @param b the right-hand side, replaced by the solution
+     * @param n the dimension
+     * @return false if the matrix is singular
+     */
+    private static boolean solve(double[] a, double[] b, int n) {
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(a[row * n + col]) > Math.abs(a[pivot * n + col])) {
+                    pivot = row;
+                }
+            }
+            if (a[pivot * n + col] == 0) {
+                return false;
+            }
+            if (pivot != col) {
+                for (int k = 0; k < n; k++) {
+                    final double t = a[col * n + k];
+                    a[col * n + k] = a[pivot * n + k];
+                    a[pivot * n + k] = t;
+                }
+                final double t = b[col];
+                b[col] = b[pivot];
+                b[pivot] = t;
+            }
+            for (int row = col + 1; row < n; row++) {
+                final double f = a[row * n + col] / a[col * n + col];
+                for (int k = col; k < n; k++) {
+                    a[row * n + k] -= f * a[col * n + k];
+                }
+                b[row] -= f * b[col];
+            }
+        }
+        for (int row = n - 1; row >= 0; row--) {
+            double s = b[row];
+            for (int k = row + 1; k < n; k++) {
+                s -= a[row * n + k] * b[k];
+            }
+            b[row] = s / a[row * n + row];
+        }
+        return true;
+    }
+}
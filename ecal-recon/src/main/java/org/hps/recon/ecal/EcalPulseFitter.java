@@ -17,6 +17,7 @@ import java.util.logging.Logger;
 
 import org.hps.conditions.database.DatabaseConditionsManager;
 import org.hps.conditions.ecal.EcalChannelConstants;
+import org.hps.conditions.ecal.EcalChannelConstantsTable;
 import org.hps.conditions.ecal.EcalConditions;
 import org.lcsim.event.RawTrackerHit;
 import org.lcsim.geometry.Detector;
@@ -32,6 +33,8 @@ public class EcalPulseFitter {
 
     private EcalConditions ecalConditions = null;
 
+    private EcalChannelConstantsTable channelTable = null;
+
     /**
      * If this is false, the width will be a free parameter in the fit:
      */
@@ -344,6 +347,80 @@ public class EcalPulseFitter {
         return fitResult;
     }
 
+    /**
+     * Perform the "3-pole" fit of an ECAL raw waveform with the analytic {@link Ecal3PoleFitter} instead of the AIDA
+     * fitter. The choice of pulses to fit, the samples used and the starting values of the parameters are the same as
+     * for {@link #fitPulse(RawTrackerHit, int, double)}. None of the AIDA objects of this class are used, so this can be
+     * called concurrently as long as each caller has its own <code>Fit</code> object.
+     * 
+     * @param hit the RawTrackerHit (Mode-1 FADC ECal readout) to be fit
+     * @param threshCross the sample of threshold crossing, used to initialize fit parameters
+     * @param maxADC the ADC at pulse maximum, used to initialize fit parameters
+     * @param fit the workspace, which receives the fit result
+     * @return true if the pulse was fit, false if the fit was skipped or failed
+     */
+    public boolean fitPulse(RawTrackerHit hit, int threshCross, double maxADC, Ecal3PoleFitter.Fit fit) {
+
+        // don't bother with pulses far from trigger:
+        if (threshCross < threshRange[0] || threshCross > threshRange[1])
+            return false;
+
+        final short samples[] = hit.getADCValues();
+
+        // calculate pedestal for initializing fit parameters:
+        int nped = 0;
+        double ped = 0;
+        for (int ii = threshCross + pedRange[0]; ii < threshCross + pedRange[1]; ii++) {
+            if (ii < 0)
+                continue;
+            if (ii >= samples.length)
+                break;
+            ped += samples[ii];
+            nped++;
+        }
+
+        // don't bother trying to fit:
+        if (nped == 0)
+            return false;
+        ped /= nped;
+
+        // choose points to fit and get starting value for pulse integral:
+        fit.clear();
+        int sumADC = 0;
+        for (int ii = threshCross + fitRange[0]; ii < threshCross + fitRange[1]; ii++) {
+            if (ii < 0)
+                continue;
+            if (ii >= samples.length)
+                break;
+            sumADC += samples[ii];
+            fit.addPoint(ii, samples[ii]);
+        }
+        final int nFitPoints = fit.size();
+
+        // don't bother trying to fit:
+        if (nFitPoints < 10)
+            return false;
+        if (maxADC < ped)
+            return false;
+
+        final int index = findIndex(hit.getCellID());
+        final double noise = channelTable.getNoise(index);
+        final int cid = channelTable.getChannel(index).getChannelId();
+
+        final double pulseIntegral = sumADC - ped * nFitPoints;
+
+        // initialize parameters:
+        fit.setParameter(Ecal3PoleFitter.PEDESTAL, ped);
+        fit.setParameter(Ecal3PoleFitter.TIME0, (double) threshCross - 2);
+        fit.setParameter(Ecal3PoleFitter.INTEGRAL, pulseIntegral > 0 ? pulseIntegral : 2);
+        if (globalThreePoleWidth > 0)
+            fit.setParameter(Ecal3PoleFitter.WIDTH, globalThreePoleWidth);
+        else
+            fit.setParameter(Ecal3PoleFitter.WIDTH, threePoleWidths[cid - 1]);
+
+        return Ecal3PoleFitter.fit(fit, noise, t0limits[0], t0limits[1], fixShapeParameter);
+    }
+
     /**
      * calculate chi2 for debug
      * 
@@ -365,12 +442,21 @@ public class EcalPulseFitter {
     public void setDetector(Detector detector) {
         // ECAL combined conditions object.
         ecalConditions = DatabaseConditionsManager.getInstance().getEcalConditions();
+        channelTable = ecalConditions.getChannelConstantsTable();
     }
 
     public EcalChannelConstants findChannel(long cellID) {
         return ecalConditions.getChannelConstants(ecalConditions.getChannelCollection().findGeometric(cellID));
     }
 
+    private int findIndex(long cellID) {
+        final int index = channelTable.getIndex(cellID);
+        if (index < 0) {
+            throw new IllegalArgumentException("Channel was not found in map: " + cellID);
+        }
+        return index;
+    }
+
     /*
      * public void writeFit(short samples[],IFitResult fit,final int cid) { if (fitFileName == null) return; if
      * (fitFileWriter == null) { try { fitFileWriter=new FileWriter(fitFileName); } catch (IOException ee) { throw new
@@ -10,6 +10,7 @@ import java.util.Map;
 import org.hps.conditions.database.DatabaseConditionsManager;
 import org.hps.conditions.ecal.EcalChannel;
 import org.hps.conditions.ecal.EcalChannelConstants;
+import org.hps.conditions.ecal.EcalChannelConstantsTable;
 import org.hps.conditions.ecal.EcalConditions;
 import org.hps.record.daqconfig.ConfigurationManager;
 import org.hps.record.daqconfig.FADCConfig;
@@ -83,6 +84,16 @@ public class EcalRawConverter {
      */
     private EcalPulseFitter pulseFitter = new EcalPulseFitter();
 
+    /**
+     * Fit pulses with the analytic {@link Ecal3PoleFitter} instead of the AIDA fitter.
+     */
+    private boolean useAnalyticFit = false;
+
+    /**
+     * Workspace of the analytic pulse fit, reused for every hit.
+     */
+    private final Ecal3PoleFitter.Fit pulseFit = new Ecal3PoleFitter.Fit();
+
     /**
      * activates a display of all the fits in AIDA.
      * 
@@ -131,6 +142,11 @@ public class EcalRawConverter {
 
     private EcalConditions ecalConditions = null;
 
+    /**
+     * Array-based channel constants of the current run, used for the per-hit lookups.
+     */
+    private EcalChannelConstantsTable channelTable = null;
+
     /**
      * Currently sets up a listener for DAQ configuration from EVIO. This should be removed to a standalone
      * ECalRawConverter solely for trigger emulation.
@@ -179,6 +195,13 @@ public class EcalRawConverter {
         this.useFit = useFit;
     }
 
+    /**
+     * Set to <code>true</code> to fit pulses with the analytic Levenberg-Marquardt fitter instead of the AIDA fitter.
+     */
+    public void setUseAnalyticFit(boolean useAnalyticFit) {
+        this.useAnalyticFit = useAnalyticFit;
+    }
+
     public void setFixShapeParameter(boolean fix) {
         pulseFitter.fixShapeParameter = fix;
     }
@@ -312,13 +335,12 @@ public class EcalRawConverter {
      * Integrate the entire window. Return pedestal-subtracted integral.
      */
     public int sumADC(RawTrackerHit hit) {
-        EcalChannelConstants channelData = findChannel(hit.getCellID());
         double pedestal;
         if (useDAQConfig) {
             // EcalChannel channel = ecalConditions.getChannelCollection().findGeometric(hit.getCellID());
             pedestal = config.getPedestal(hit.getCellID());
         } else {
-            pedestal = channelData.getCalibration().getPedestal();
+            pedestal = channelTable.getPedestal(findIndex(hit.getCellID()));
         }
 
         int sum = 0;
@@ -353,7 +375,7 @@ public class EcalRawConverter {
         if (useRunningPedestal && event != null) {
             if (event.hasItem("EcalRunningPedestals")) {
                 Map<EcalChannel, Double> runningPedMap = (Map<EcalChannel, Double>) event.get("EcalRunningPedestals");
-                EcalChannel chan = ecalConditions.getChannelCollection().findGeometric(cellID);
+                EcalChannel chan = channelTable.getChannel(findIndex(cellID));
                 if (!runningPedMap.containsKey(chan)) {
                     System.err.println("************** Missing Pedestal");
                 } else {
@@ -367,7 +389,7 @@ public class EcalRawConverter {
                 useRunningPedestal = false;
             }
         }
-        return findChannel(cellID).getCalibration().getPedestal();
+        return channelTable.getPedestal(findIndex(cellID));
     }
 
     /**
@@ -485,7 +507,17 @@ public class EcalRawConverter {
             }
         }
 
-        if (useFit) {
+        if (useFit && useAnalyticFit) {
+            if (pulseFitter.fitPulse(hit, thresholdCrossing, maxADC, pulseFit)) {
+                fitQuality = pulseFit.quality();
+                if (fitQuality > 0) {
+                    pulseTime = pulseFit.parameter(Ecal3PoleFitter.TIME0) * nsPerSample;
+                    sumADC = pulseFit.parameter(Ecal3PoleFitter.INTEGRAL);
+                    minADC = pulseFit.parameter(Ecal3PoleFitter.PEDESTAL);
+                    maxADC = pulseFit.maximum();
+                }
+            }
+        } else if (useFit) {
             IFitResult fitResult = pulseFitter.fitPulse(hit, thresholdCrossing, maxADC);
             if (fitResult != null) {
                 fitQuality = fitResult.quality();
@@ -586,7 +618,7 @@ public class EcalRawConverter {
 
             }
 
-            time -= findChannel(cellID).getTimeShift().getTimeShift();
+            time -= channelTable.getTimeShift(findIndex(cellID));
 
             newHits.add(CalorimeterHitUtilities.create(energy, time, cellID));
         }
@@ -609,7 +641,7 @@ public class EcalRawConverter {
         if (useTimeWalkCorrection) {
             time = EcalTimeWalk.correctTimeWalk(time, rawEnergy);
         }
-        time -= findChannel(hit.getCellID()).getTimeShift().getTimeShift();
+        time -= channelTable.getTimeShift(findIndex(id));
         return CalorimeterHitUtilities.create(rawEnergy, time + timeOffset, id);
     }
 
@@ -622,7 +654,7 @@ public class EcalRawConverter {
         double pedestal = getPulsePedestal(event, id, windowSamples, (int) time / nsPerSample);
         double adcSum = hit.getAmplitude() - pedestal;
         double rawEnergy = adcToEnergy(adcSum, id);
-        time -= findChannel(hit.getCellID()).getTimeShift().getTimeShift();
+        time -= channelTable.getTimeShift(findIndex(id));
         return CalorimeterHitUtilities.create(rawEnergy, time + timeOffset, id);
     }
 
@@ -633,17 +665,15 @@ public class EcalRawConverter {
     public RawCalorimeterHit HitAtoD(CalorimeterHit hit) {
         int time = (int) (Math.round(hit.getTime() / 4.0) * 64.0);
         long id = hit.getCellID();
-        // Get the channel data.
-        EcalChannelConstants channelData = findChannel(id);
         int amplitude;
         double pedestal = getPulsePedestal(null, id, windowSamples, (int) hit.getTime() / nsPerSample);
         if (constantGain) {
             amplitude = (int) Math.round((hit.getRawEnergy() / EcalUtils.MeV) / gain + pedestal);
         } else {
-            amplitude = (int) Math.round((hit.getRawEnergy() / EcalUtils.MeV) / channelData.getGain().getGain()
+            amplitude = (int) Math.round((hit.getRawEnergy() / EcalUtils.MeV) / channelTable.getGain(findIndex(id))
                     + pedestal);
         }
-        time += findChannel(id).getTimeShift().getTimeShift();
+        time += channelTable.getTimeShift(findIndex(id));
         RawCalorimeterHit h = new BaseRawCalorimeterHit(id, amplitude, time);
         return h;
     }
@@ -653,9 +683,6 @@ public class EcalRawConverter {
      */
     private double adcToEnergy(double adcSum, long cellID) {
 
-        // Get the channel data.
-        EcalChannelConstants channelData = findChannel(cellID);
-
         if (useDAQConfig) {
             // float gain =
             // ConfigurationManager.getInstance().getFADCConfig().getGain(ecalConditions.getChannelCollection().findGeometric(cellID));
@@ -664,7 +691,7 @@ public class EcalRawConverter {
             if (constantGain) {
                 return adcSum * EcalUtils.gainFactor * EcalUtils.ecalReadoutPeriod;
             } else {
-                return channelData.getGain().getGain() * adcSum * EcalUtils.gainFactor * EcalUtils.ecalReadoutPeriod; // should
+                return channelTable.getGain(findIndex(cellID)) * adcSum * EcalUtils.gainFactor * EcalUtils.ecalReadoutPeriod; // should
                                                                                                                       // not
                                                                                                                       // be
                                                                                                                       // used
@@ -677,7 +704,7 @@ public class EcalRawConverter {
             if (constantGain) {
                 return gain * adcSum * EcalUtils.MeV;
             } else {
-                return channelData.getGain().getGain() * adcSum * EcalUtils.MeV; // gain is defined as MeV/integrated
+                return channelTable.getGain(findIndex(cellID)) * adcSum * EcalUtils.MeV; // gain is defined as MeV/integrated
                                                                                  // ADC
             }
         }
@@ -691,6 +718,7 @@ public class EcalRawConverter {
     public void setDetector(Detector detector) {
         // ECAL combined conditions object.
         ecalConditions = DatabaseConditionsManager.getInstance().getEcalConditions();
+        channelTable = ecalConditions.getChannelConstantsTable();
         pulseFitter.setDetector(detector);
     }
 
@@ -701,7 +729,21 @@ public class EcalRawConverter {
      * @return channel constants (EcalChannelConstants)
      */
     public EcalChannelConstants findChannel(long cellID) {
-        return ecalConditions.getChannelConstants(ecalConditions.getChannelCollection().findGeometric(cellID));
+        return channelTable.getChannelConstants(findIndex(cellID));
+    }
+
+    /**
+     * Convert physical ID to the index of the channel in the constants table.
+     *
+     * @param cellID (long)
+     * @return channel index (int)
+     */
+    private int findIndex(long cellID) {
+        int index = channelTable.getIndex(cellID);
+        if (index < 0) {
+            throw new IllegalArgumentException("Channel was not found in map: " + cellID);
+        }
+        return index;
     }
 
     public void setFixedWidth(boolean fixedWidth) {
@@ -121,6 +121,12 @@ public class EcalRawConverterDriver extends Driver {
      * Set to <code>true</code> to use pulse fitting instead of arithmetic integration:<br/>
      */
     public void setUseFit(boolean useFit) { converter.setUseFit(useFit); }
+
+    /**
+     * Set to <code>true</code> to do the pulse fits with the analytic Levenberg-Marquardt fitter instead of the AIDA
+     * fitter, which is much faster and gives the same results within the fit errors:<br/>
+     */
+    public void setUseAnalyticFit(boolean useAnalyticFit) { converter.setUseAnalyticFit(useAnalyticFit); }
     
     /**
      * Fix 3-pole function width to be the same for all 442 ECal channels.  Units=samples.
@@ -20,6 +20,7 @@ import org.lcsim.conditions.ConditionsManager;
  * @see LegacyClusterer 
  * @see NearestNeighborClusterer
  * @see ReconClusterer
+ * @see GridReconClusterer
  * @see SimpleReconClusterer
  * @see SimpleCosmicClusterer 
  * 
@@ -48,6 +49,8 @@ public final class ClustererFactory {
             clusterer = new SimpleReconClusterer();
         } else if (ReconClusterer.class.getSimpleName().equals(name)) {
             clusterer = new ReconClusterer();
+        } else if (GridReconClusterer.class.getSimpleName().equals(name)) {
+            clusterer = new GridReconClusterer();
         } else if (NearestNeighborClusterer.class.getSimpleName().equals(name)) {
             clusterer = new NearestNeighborClusterer();
         } else if (DualThresholdCosmicClusterer.class.getSimpleName().equals(name)) {
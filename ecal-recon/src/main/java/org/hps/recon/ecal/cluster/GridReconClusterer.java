@@ -0,0 +1,415 @@
+package org.hps.recon.ecal.cluster;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.hps.conditions.database.DatabaseConditionsManager;
+import org.hps.conditions.ecal.EcalChannelConstantsTable;
+import org.lcsim.conditions.ConditionsEvent;
+import org.lcsim.event.CalorimeterHit;
+import org.lcsim.event.Cluster;
+import org.lcsim.event.EventHeader;
+import org.lcsim.event.base.BaseCluster;
+
+/**
+ * <p>
+ * This is the {@link ReconClusterer} algorithm working on a dense grid of crystals instead of on maps keyed by hits
+ * and cell IDs.
+ * <p>
+ * Each crystal has the dense index of the {@link EcalChannelConstantsTable} of the current run, and the crystal
+ * neighbors are copied from the ECAL neighbor map into index arrays when the conditions change. The per-event state
+ * (the hit in each crystal, its energy, the seed it is assigned to, the seeds it is shared between) is held in arrays
+ * over that index which are reused from event to event, and only the entries touched by an event are reset. The maps
+ * of the original algorithm are <code>LinkedHashMap</code>s whose insertion order decides the order in which hits are
+ * added to the clusters, so that order is kept in explicit index lists and the clusters are identical to those of
+ * {@link ReconClusterer}, including the order of their hits.
+ * <p>
+ * The cuts, the cluster type and the list of rejected hits are the same as for {@link ReconClusterer}.
+ *
+ * @see ReconClusterer
+ * @see EcalChannelConstantsTable
+ */
+public class GridReconClusterer extends ReconClusterer {
+
+    // Maximum number of neighbors of a crystal.
+    private static final int MAX_NEIGHBORS = 8;
+
+    // The channel table of the current run, which defines the crystal indices.
+    private EcalChannelConstantsTable channelTable = null;
+
+    // Neighbor crystal indices, in the iteration order of the neighbor map.
+    private int[][] neighbors;
+
+    // Crystal x index and absolute y index, for resolving hits of equal energy.
+    private int[] gridX;
+    private int[] gridAbsY;
+
+    // Position of the crystal face, computed on first use.
+    private double[][] facePosition;
+
+    // Per-event state by crystal index.
+    private CalorimeterHit[] hitAt;
+    private double[] energyAt;
+    private boolean[] inList;
+    private int[] seedOf;
+    private BaseCluster[] clusterAt;
+    private boolean[] common;
+    private int[] commonSeedA;
+    private int[] commonSeedB;
+
+    // Crystal indices of the hits in energy order, of the clustered hits in order of assignment and of the common
+    // hits in order of discovery.
+    private int[] hitOrder;
+    private int[] clusteredOrder;
+    private int[] commonOrder;
+
+    // Scratch list of neighboring hits.
+    private final int[] neighborHits = new int[MAX_NEIGHBORS];
+
+    GridReconClusterer() {
+        super();
+    }
+
+    /**
+     * Drop the crystal grid, which is rebuilt from the new conditions on the next event.
+     */
+    @Override
+    public void conditionsChanged(ConditionsEvent event) {
+        super.conditionsChanged(event);
+        channelTable = null;
+    }
+
+    @Override
+    public List<Cluster> createClusters(EventHeader event, List<CalorimeterHit> hitList) {
+
+        if (channelTable == null) {
+            buildGrid();
+        }
+
+        // Clear the rejected hit list; the old one may have been put into the event.
+        rejectedHitList = new ArrayList<CalorimeterHit>();
+
+        ArrayList<Cluster> clusterList = new ArrayList<Cluster>();
+
+        // Sort the input hit list by energy.
+        ClusterUtilities.sortHitsUniqueEnergy(hitList);
+
+        // Reject the hits below threshold or below min time, in the same order as the original algorithm, which
+        // removes them while walking the list backwards.
+        int nHits = hitList.size();
+        for (int index = nHits - 1; index >= 0; index--) {
+            CalorimeterHit hit = hitList.get(index);
+            if (hit.getCorrectedEnergy() < hitEnergyThreshold || hit.getTime() < minTime) {
+                rejectedHitList.add(hit);
+            }
+        }
+
+        // Place the remaining hits on the grid, keeping only the first (highest energy) hit of each crystal.
+        int nOrder = 0;
+        for (int index = 0; index < nHits; index++) {
+            CalorimeterHit hit = hitList.get(index);
+            if (hit.getCorrectedEnergy() < hitEnergyThreshold || hit.getTime() < minTime) {
+                continue;
+            }
+            int crystal = channelTable.getIndex(hit.getCellID());
+            if (crystal < 0 || neighbors[crystal] == null) {
+                throw new IllegalStateException("The hit with cell ID " + hit.getCellID() + " is not in the ECal neighbor map.");
+            }
+            if (hitAt[crystal] != null) {
+                rejectedHitList.add(hit);
+            } else {
+                hitAt[crystal] = hit;
+                energyAt[crystal] = hit.getCorrectedEnergy();
+                inList[crystal] = true;
+                hitOrder[nOrder++] = crystal;
+            }
+        }
+        int nClustered = 0;
+        int nCommon = 0;
+
+        // Loop through all calorimeter hits to locate seeds and perform
+        // first pass calculations for component and common hits.
+        for (int ii = 0; ii < nOrder; ii++) {
+            int hit = hitOrder[ii];
+            int nNeighborHits = findNeighborHits(hit);
+
+            // Hit is a local maximum.
+            boolean isSeed = true;
+            for (int jj = 0; jj < nNeighborHits; jj++) {
+                if (!isHigher(hit, neighborHits[jj])) {
+                    isSeed = false;
+                    break;
+                }
+            }
+
+            if (isSeed) {
+                if (energyAt[hit] >= seedEnergyThreshold) {
+                    BaseCluster cluster = createBasicCluster();
+                    clusterList.add(cluster);
+                    clusterAt[hit] = cluster;
+                    seedOf[hit] = hit;
+                    clusteredOrder[nClustered++] = hit;
+                } else {
+                    rejectedHitList.add(hitAt[hit]);
+                    inList[hit] = false;
+                }
+            } else {
+                for (int jj = 0; jj < nNeighborHits; jj++) {
+                    int neighborHit = neighborHits[jj];
+                    if (seedOf[neighborHit] == neighborHit) {
+                        if (seedOf[hit] >= 0) {
+                            // Only the first pair of seeds of a common hit is ever used.
+                            if (!common[hit]) {
+                                common[hit] = true;
+                                commonSeedA[hit] = neighborHit;
+                                commonSeedB[hit] = seedOf[hit];
+                                commonOrder[nCommon++] = hit;
+                            }
+                        } else {
+                            seedOf[hit] = neighborHit;
+                            clusteredOrder[nClustered++] = hit;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Performs second pass calculations for component hits.
+        for (int ii = 0; ii < nOrder; ii++) {
+            int secondaryHit = hitOrder[ii];
+            if (!inList[secondaryHit] || seedOf[secondaryHit] < 0) {
+                continue;
+            }
+            for (int neighbor : neighbors[secondaryHit]) {
+                if (hitAt[neighbor] != null && seedOf[neighbor] < 0 && inList[neighbor]
+                        && !isHigher(neighbor, secondaryHit)) {
+                    seedOf[neighbor] = seedOf[secondaryHit];
+                    clusteredOrder[nClustered++] = neighbor;
+                }
+            }
+        }
+
+        // Performs second pass calculations for common hits.
+        for (int ii = 0; ii < nClustered; ii++) {
+            int clusteredHit = clusteredOrder[ii];
+            int clusteredHitSeed = seedOf[clusteredHit];
+            for (int neighbor : neighbors[clusteredHit]) {
+                if (hitAt[neighbor] == null || seedOf[neighbor] < 0 || !inList[neighbor]) {
+                    continue;
+                }
+                if (seedOf[neighbor] != clusteredHitSeed && !isHigher(clusteredHit, neighbor) && !common[neighbor]) {
+                    if (!common[clusteredHit]) {
+                        common[clusteredHit] = true;
+                        commonSeedA[clusteredHit] = clusteredHitSeed;
+                        commonSeedB[clusteredHit] = seedOf[neighbor];
+                        commonOrder[nCommon++] = clusteredHit;
+                    }
+                }
+            }
+        }
+
+        // Add all hits except for common hits, and leave the input list as the original algorithm does.
+        hitList.clear();
+        for (int ii = 0; ii < nOrder; ii++) {
+            int ihit = hitOrder[ii];
+            if (!inList[ihit] || common[ihit]) {
+                continue;
+            }
+            hitList.add(hitAt[ihit]);
+            int iseed = seedOf[ihit];
+            if (!useTimeCut || Math.abs(hitAt[ihit].getTime() - hitAt[iseed].getTime()) < timeWindow) {
+                clusterAt[iseed].addHit(hitAt[ihit]);
+            }
+        }
+
+        // Add common hits, splitting their energy between the two clusters in proportion to the cluster energies.
+        for (int ii = 0; ii < nCommon; ii++) {
+            int commonHit = commonOrder[ii];
+            CalorimeterHit hit = hitAt[commonHit];
+            int seedA = commonSeedA[commonHit];
+            int seedB = commonSeedB[commonHit];
+
+            boolean inTimeWithA = Math.abs(hit.getTime() - hitAt[seedA].getTime()) < timeWindow;
+            boolean inTimeWithB = Math.abs(hit.getTime() - hitAt[seedB].getTime()) < timeWindow;
+
+            BaseCluster clusterA = clusterAt[seedA];
+            BaseCluster clusterB = clusterAt[seedB];
+            double eclusterA = clusterA.getEnergy();
+            double eclusterB = clusterB.getEnergy();
+            double fractionA = eclusterA / (eclusterA + eclusterB);
+            double fractionB = eclusterB / (eclusterA + eclusterB);
+            double hitcontributionA = hit.getCorrectedEnergy() * fractionA;
+            double hitcontributionB = hit.getCorrectedEnergy() * fractionB;
+
+            if (useTimeCut) {
+                if (inTimeWithA && inTimeWithB) {
+                    clusterA.addHit(hit, hitcontributionA);
+                    clusterB.addHit(hit, hitcontributionB);
+                } else if (inTimeWithA) {
+                    clusterA.addHit(hit);
+                } else if (inTimeWithB) {
+                    clusterB.addHit(hit);
+                }
+            } else {
+                clusterA.addHit(hit, hitcontributionA);
+                clusterB.addHit(hit, hitcontributionB);
+            }
+        }
+
+        // Remove clusters that do not pass cluster threshold and add to rejectedHitList.
+        int nKept = 0;
+        for (int j = 0; j < clusterList.size(); j++) {
+            BaseCluster checkcluster = (BaseCluster) clusterList.get(j);
+            if (checkcluster.getEnergy() < clusterEnergyThreshold) {
+                rejectedHitList.addAll(checkcluster.getCalorimeterHits());
+            } else {
+                calculatePosition(checkcluster);
+                clusterList.set(nKept++, checkcluster);
+            }
+        }
+        while (clusterList.size() > nKept) {
+            clusterList.remove(clusterList.size() - 1);
+        }
+
+        // Reset the grid entries used by this event.
+        for (int ii = 0; ii < nOrder; ii++) {
+            int crystal = hitOrder[ii];
+            hitAt[crystal] = null;
+            inList[crystal] = false;
+            seedOf[crystal] = -1;
+            clusterAt[crystal] = null;
+            common[crystal] = false;
+        }
+
+        return clusterList;
+    }
+
+    /**
+     * Copy the crystal indices and neighbors of the current run into arrays and size the per-event state.
+     */
+    private void buildGrid() {
+        channelTable = DatabaseConditionsManager.getInstance().getEcalConditions().getChannelConstantsTable();
+        int size = channelTable.size();
+
+        neighbors = new int[size][];
+        gridX = new int[size];
+        gridAbsY = new int[size];
+        for (int crystal = 0; crystal < size; crystal++) {
+            if (channelTable.getChannel(crystal) != null) {
+                gridX[crystal] = channelTable.getChannel(crystal).getX();
+                gridAbsY[crystal] = Math.abs(channelTable.getChannel(crystal).getY());
+            }
+        }
+        for (Long cellID : neighborMap.keySet()) {
+            int crystal = channelTable.getIndex(cellID);
+            if (crystal < 0) {
+                throw new IllegalStateException("The ECal crystal with cell ID " + cellID + " is not in the channel table.");
+            }
+            Set<Long> crystalNeighbors = neighborMap.get(cellID);
+            if (crystalNeighbors.size() > MAX_NEIGHBORS) {
+                throw new IllegalStateException("The ECal crystal with cell ID " + cellID + " has too many neighbors.");
+            }
+            int[] indices = new int[crystalNeighbors.size()];
+            int n = 0;
+            for (Long neighbor : crystalNeighbors) {
+                indices[n] = channelTable.getIndex(neighbor);
+                if (indices[n] < 0) {
+                    throw new IllegalStateException("The ECal crystal with cell ID " + neighbor + " is not in the channel table.");
+                }
+                n++;
+            }
+            neighbors[crystal] = indices;
+        }
+
+        facePosition = new double[size][];
+        hitAt = new CalorimeterHit[size];
+        energyAt = new double[size];
+        inList = new boolean[size];
+        seedOf = new int[size];
+        Arrays.fill(seedOf, -1);
+        clusterAt = new BaseCluster[size];
+        common = new boolean[size];
+        commonSeedA = new int[size];
+        commonSeedB = new int[size];
+        hitOrder = new int[size];
+        clusteredOrder = new int[size];
+        commonOrder = new int[size];
+    }
+
+    /**
+     * Fill the scratch list with the neighbors of a crystal that have a hit which is still in the hit list.
+     * @param crystal the crystal index
+     * @return the number of neighboring hits
+     */
+    private int findNeighborHits(int crystal) {
+        int n = 0;
+        for (int neighbor : neighbors[crystal]) {
+            if (hitAt[neighbor] != null && inList[neighbor]) {
+                neighborHits[n++] = neighbor;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * The grid version of the comparison used to find seeds: true if the first hit ranks at or above its neighbor,
+     * with equal energies resolved by the crystal position.
+     * @param hit the crystal index of the hit
+     * @param neighbor the crystal index of the neighbor
+     * @return true if the hit is not lower than its neighbor
+     */
+    private boolean isHigher(int hit, int neighbor) {
+        double hE = energyAt[hit];
+        double nE = energyAt[neighbor];
+        if (hE < nE) {
+            return false;
+        } else if ((hE == nE) && (gridAbsY[hit] > gridAbsY[neighbor])) {
+            return false;
+        } else if ((hE == nE) && (gridAbsY[hit] == gridAbsY[neighbor]) && (gridX[hit] < gridX[neighbor])) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Calculates the position of each cluster with no correction for particle type as documented in
+     * HPS Note 2014-001, with the crystal face positions cached by crystal index.
+     * @param cluster
+     */
+    private void calculatePosition(BaseCluster cluster) {
+        final double w0 = 3.1;
+        double eNumX = 0.0;
+        double eNumY = 0.0;
+        double eDen = 0.0;
+        List<CalorimeterHit> clusterHits = cluster.getCalorimeterHits();
+        for (CalorimeterHit hit : clusterHits) {
+            double[] position = getFacePosition(hit);
+            eNumX += Math.max(0.0, (w0 + Math.log(hit.getCorrectedEnergy() / cluster.getEnergy()))) * (position[0] / 10.0);
+            eNumY += Math.max(0.0, (w0 + Math.log(hit.getCorrectedEnergy() / cluster.getEnergy()))) * (position[1] / 10.0);
+            eDen += Math.max(0.0, (w0 + Math.log(hit.getCorrectedEnergy() / cluster.getEnergy())));
+        }
+
+        double xCl = eNumX / eDen;
+        double yCl = eNumY / eDen;
+
+        double[] clusterPosition = new double[3];
+        clusterPosition[0] = xCl * 10.0;// mm
+        clusterPosition[1] = yCl * 10.0;// mm
+        clusterPosition[2] = getFacePosition(clusterHits.get(0))[2];
+
+        cluster.setPosition(clusterPosition);
+        cluster.setNeedsPropertyCalculation(false);
+    }
+
+    private double[] getFacePosition(CalorimeterHit hit) {
+        int crystal = channelTable.getIndex(hit.getCellID());
+        double[] position = facePosition[crystal];
+        if (position == null) {
+            position = getCrystalFacePosition(hit);
+            facePosition[crystal] = position;
+        }
+        return position;
+    }
+}
@@ -63,6 +63,22 @@ public class ReconClusterDriver extends ClusterDriver {
         ReconClusterer clusterer = getClusterer();
         clusterer.setUseTimeCut(useTimeCut);
     }    
+
+    /**
+     * Switch to the {@link GridReconClusterer}, which makes the same clusters using arrays over the crystal grid
+     * instead of maps. The cut settings made so far are carried over.
+     * @param useGrid True to use the grid version of the clustering.
+     */
+    public void setUseGrid(boolean useGrid) {
+        ReconClusterer current = getReconClusterer();
+        if (useGrid == (current instanceof GridReconClusterer)) {
+            return;
+        }
+        ReconClusterer replacement = (ReconClusterer) ClustererFactory.create(useGrid ? "GridReconClusterer" : "ReconClusterer",
+                current.getCuts().getValues());
+        replacement.setUseTimeCut(current.useTimeCut);
+        clusterer = replacement;
+    }
         
     /**
      * Perform job initialization.  
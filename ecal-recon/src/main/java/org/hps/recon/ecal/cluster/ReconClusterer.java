@@ -561,13 +561,22 @@ public class ReconClusterer extends AbstractClusterer {
         Point hitIndex = new Point(ix, iy);
         // If the result is null, it hasn't been calculated yet.
         // Calculate the corrected position.
-        IGeometryInfo geom = hit.getDetectorElement().getGeometry();
-        double[] pos = geom.transformLocalToGlobal(VecOp.add(geom.transformGlobalToLocal(geom.getPosition()), (Hep3Vector) new BasicHep3Vector(0, 0, -1 * ((Trd) geom.getLogicalVolume().getSolid()).getZHalfLength()))).v();
+        double[] pos = getCrystalFacePosition(hit);
 
         // Store the result in the map.
         correctedPositionMap.put(hitIndex, pos);
     }
 
+    /**
+     * Calculates the x,y,z position of the center of the front face of the crystal of a hit.
+     * @param hit
+     * @return the position of the crystal face
+     */
+    static double[] getCrystalFacePosition(CalorimeterHit hit) {
+        IGeometryInfo geom = hit.getDetectorElement().getGeometry();
+        return geom.transformLocalToGlobal(VecOp.add(geom.transformGlobalToLocal(geom.getPosition()), (Hep3Vector) new BasicHep3Vector(0, 0, -1 * ((Trd) geom.getLogicalVolume().getSolid()).getZHalfLength()))).v();
+    }
+
     public ClusterType getClusterType() {
         return ClusterType.RECON;
     }
@@ -0,0 +1,117 @@
+package org.hps.recon.ecal;
+
+import hep.aida.IAnalysisFactory;
+import hep.aida.IDataPointSet;
+import hep.aida.IFitResult;
+import hep.aida.IFitter;
+
+import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+import org.lcsim.util.aida.AIDA;
+
+/**
+ * Compare the analytic {@link Ecal3PoleFitter} with the AIDA (Minuit) fit of {@link Ecal3PoleFunction} that
+ * {@link EcalPulseFitter} uses, on synthetic Mode-1 pulses with the sample selection, starting values and parameter
+ * limits of <code>EcalPulseFitter</code>.
+ */
+public class Ecal3PoleFitterTest extends TestCase {
+
+    private static final int N_PULSES = 1000;
+    private static final int N_SAMPLES = 50;
+    private static final double NOISE = 1.5;
+    private static final double WIDTH = 2.45;
+    private static final double T0_MIN = 1;
+    private static final double T0_MAX = 30;
+
+    public void testAgainstAidaFitter() {
+        Logger.getLogger("org.freehep.math.minuit").setLevel(Level.OFF);
+        IAnalysisFactory analysisFactory = AIDA.defaultInstance().analysisFactory();
+        IFitter fitter = analysisFactory.createFitFactory().createFitter();
+        IDataPointSet fitData = analysisFactory.createDataPointSetFactory(null).create("ADC DataPointSet", 2);
+        Ecal3PoleFunction function = new Ecal3PoleFunction();
+        fitter.fitParameterSettings("time0").setBounds(T0_MIN, T0_MAX);
+        fitter.fitParameterSettings("width").setBounds(0.1, 5);
+        fitter.fitParameterSettings("integral").setBounds(0, 999999);
+        fitter.fitParameterSettings("width").setFixed(true);
+        Ecal3PoleFitter.Fit fit = new Ecal3PoleFitter.Fit();
+
+        Random random = new Random(9);
+        double[] truth = new double[Ecal3PoleFitter.NPAR];
+        short[] samples = new short[N_SAMPLES];
+        int nCompared = 0;
+        for (int pulse = 0; pulse < N_PULSES; pulse++) {
+            truth[Ecal3PoleFitter.PEDESTAL] = 100 + 10 * random.nextGaussian();
+            truth[Ecal3PoleFitter.TIME0] = 10 + 8 * random.nextDouble();
+            truth[Ecal3PoleFitter.INTEGRAL] = 200 + 5000 * random.nextDouble();
+            truth[Ecal3PoleFitter.WIDTH] = WIDTH;
+            for (int i = 0; i < N_SAMPLES; i++) {
+                samples[i] = (short) Math.round(Ecal3PoleFitter.value(truth, i) + NOISE * random.nextGaussian());
+            }
+
+            // Sample selection and starting values as in EcalPulseFitter.
+            final int threshCross = (int) truth[Ecal3PoleFitter.TIME0] + 2;
+            double ped = 0;
+            for (int i = threshCross - 10; i < threshCross - 5; i++) {
+                ped += samples[i];
+            }
+            ped /= 5;
+            fitData.clear();
+            fit.clear();
+            int sumADC = 0;
+            for (int i = threshCross - 10; i < threshCross + 15; i++) {
+                sumADC += samples[i];
+                fitData.addPoint();
+                fitData.point(fitData.size() - 1).coordinate(0).setValue(i);
+                fitData.point(fitData.size() - 1).coordinate(1).setValue(samples[i]);
+                fitData.point(fitData.size() - 1).coordinate(1).setErrorMinus(NOISE);
+                fitData.point(fitData.size() - 1).coordinate(1).setErrorPlus(NOISE);
+                fit.addPoint(i, samples[i]);
+            }
+            final double integral = sumADC - ped * fit.size();
+            function.setParameter("pedestal", ped);
+            function.setParameter("time0", threshCross - 2.0);
+            function.setParameter("integral", integral > 0 ? integral : 2);
+            function.setParameter("width", WIDTH);
+            fit.setParameter(Ecal3PoleFitter.PEDESTAL, ped);
+            fit.setParameter(Ecal3PoleFitter.TIME0, threshCross - 2.0);
+            fit.setParameter(Ecal3PoleFitter.INTEGRAL, integral > 0 ? integral : 2);
+            fit.setParameter(Ecal3PoleFitter.WIDTH, WIDTH);
+
+            IFitResult result = fitter.fit(fitData, function);
+            boolean converged = Ecal3PoleFitter.fit(fit, NOISE, T0_MIN, T0_MAX, true);
+            if (result.quality() <= 0) {
+                continue;
+            }
+            assertTrue("analytic fit failed where the AIDA fit converged, pulse " + pulse, converged);
+
+            // Both minimize the same chi2, so they must agree to well within the parameter errors.
+            double[] errors = result.errors();
+            assertEquals("pedestal, pulse " + pulse, result.fittedParameter("pedestal"),
+                    fit.parameter(Ecal3PoleFitter.PEDESTAL), 0.1 * errors[Ecal3PoleFitter.PEDESTAL]);
+            assertEquals("time0, pulse " + pulse, result.fittedParameter("time0"),
+                    fit.parameter(Ecal3PoleFitter.TIME0), 0.1 * errors[Ecal3PoleFitter.TIME0]);
+            assertEquals("integral, pulse " + pulse, result.fittedParameter("integral"),
+                    fit.parameter(Ecal3PoleFitter.INTEGRAL), 0.1 * errors[Ecal3PoleFitter.INTEGRAL]);
+            assertEquals("chi2, pulse " + pulse, result.quality(), fit.quality(), 0.01 * result.quality() + 1e-3);
+            nCompared++;
+        }
+        assertTrue(nCompared > 0.95 * N_PULSES);
+    }
+
+    public void testTooManyPoints() {
+        Ecal3PoleFitter.Fit fit = new Ecal3PoleFitter.Fit();
+        for (int i = 0; i < Ecal3PoleFitter.MAX_POINTS; i++) {
+            fit.addPoint(i, 100);
+        }
+        try {
+            fit.addPoint(Ecal3PoleFitter.MAX_POINTS, 100);
+            fail("no exception for too many samples");
+        } catch (IllegalStateException e) {
+            assertEquals(Ecal3PoleFitter.MAX_POINTS, fit.size());
+        }
+    }
+}
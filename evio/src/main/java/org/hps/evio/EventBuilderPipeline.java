@@ -0,0 +1,324 @@
+package org.hps.evio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hps.record.LCSimEventBuilder;
+import org.jlab.coda.jevio.EvioEvent;
+import org.lcsim.event.EventHeader;
+
+/**
+ * Builds LCSim events from EVIO events on a pool of threads, and gives them back in the order they were added.
+ * <p>
+ * A single thread adds the EVIO events, which must already be parsed. Each build thread has its own
+ * {@link LCSimEventBuilder}, so the builders need not be thread safe. The non-physics events between two physics events
+ * are given to the builder of the next physics event, before it builds that event, so that state such as the EPICS
+ * data ends up in the same LCSim event as when building on one thread. Run control events such as PRESTART, GO and END
+ * are instead read by every builder, once all the events added before them have been built, so that the run state of
+ * each builder is the same as that of a single builder.
+ * <p>
+ * Another thread gets the LCSim events from {@link #next()} and must call {@link #done()} when it is finished with
+ * each of them. The adding thread calls {@link #drain()} before the conditions change, which waits until every event
+ * added so far has been built and processed with the old conditions.
+ *
+ * @see EvioToLcio
+ */
+final class EventBuilderPipeline {
+
+    /**
+     * Builds one physics event, after reading the non-physics events that came before it.
+     */
+    private final class BuildTask implements Callable<EventHeader> {
+
+        private final List<EvioEvent> controlEvents;
+        private final EvioEvent physicsEvent;
+
+        BuildTask(final List<EvioEvent> controlEvents, final EvioEvent physicsEvent) {
+            this.controlEvents = controlEvents;
+            this.physicsEvent = physicsEvent;
+        }
+
+        @Override
+        public EventHeader call() throws InterruptedException {
+            final LCSimEventBuilder builder = builders.take();
+            try {
+                for (final EvioEvent evioEvent : controlEvents) {
+                    builder.readEvioEvent(evioEvent);
+                }
+                return physicsEvent != null ? builder.makeLCSimEvent(physicsEvent) : null;
+            } finally {
+                builders.put(builder);
+                synchronized (EventBuilderPipeline.this) {
+                    --building;
+                    EventBuilderPipeline.this.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the end of the events in the output queue.
+     */
+    private static final Future<EventHeader> END_OF_DATA = new FutureTask<EventHeader>(new Callable<EventHeader>() {
+        @Override
+        public EventHeader call() {
+            return null;
+        }
+    });
+
+    /**
+     * The builders which are not in use.
+     */
+    private final BlockingQueue<LCSimEventBuilder> builders = new LinkedBlockingQueue<LCSimEventBuilder>();
+
+    /**
+     * Number of builders that were added.
+     */
+    private int nBuilders = 0;
+
+    /**
+     * The build threads.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The events being built, in the order they were added.
+     */
+    private final BlockingQueue<Future<EventHeader>> output;
+
+    /**
+     * The non-physics events since the last physics event.
+     */
+    private List<EvioEvent> controlEvents = new ArrayList<EvioEvent>();
+
+    /**
+     * Number of tasks added to, and finished with from, the output queue.
+     */
+    private long submitted = 0;
+    private long completed = 0;
+
+    /**
+     * Number of tasks that were submitted and are not yet built.
+     */
+    private int building = 0;
+
+    /**
+     * Set when no more events should be added.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * Set when nothing reads the output queue any more.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Error from the thread adding the events.
+     */
+    private volatile Throwable error = null;
+
+    /**
+     * Create a pipeline.
+     *
+     * @param nThreads the number of build threads
+     * @param maxQueued the maximum number of events being built or waiting to be processed
+     */
+    EventBuilderPipeline(final int nThreads, final int maxQueued) {
+        if (nThreads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads: " + nThreads);
+        }
+        this.executor = Executors.newFixedThreadPool(nThreads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                final Thread thread = new Thread(runnable, "EventBuilder-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.output = new ArrayBlockingQueue<Future<EventHeader>>(maxQueued);
+    }
+
+    /**
+     * Add an event builder. There should be one for each build thread.
+     *
+     * @param builder the event builder
+     */
+    void addEventBuilder(final LCSimEventBuilder builder) {
+        builders.add(builder);
+        ++nBuilders;
+    }
+
+    /**
+     * Get the number of event builders.
+     *
+     * @return the number of event builders
+     */
+    int getEventBuilderCount() {
+        return nBuilders;
+    }
+
+    /**
+     * Add a non-physics event, to be read by the builder of the next physics event.
+     *
+     * @param evioEvent the parsed EVIO event
+     */
+    void addControlEvent(final EvioEvent evioEvent) {
+        controlEvents.add(evioEvent);
+    }
+
+    /**
+     * Add a run control event, which is read by every builder before it builds the physics events added after it. This
+     * blocks until all the events added before it have been built.
+     *
+     * @param evioEvent the parsed EVIO event
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void addRunControlEvent(final EvioEvent evioEvent) throws InterruptedException {
+        // The other non-physics events since the last physics event stay with the builder of the next one.
+        synchronized (this) {
+            while (building > 0) {
+                this.wait();
+            }
+        }
+        // All the builders are idle now.
+        for (final LCSimEventBuilder builder : builders) {
+            builder.readEvioEvent(evioEvent);
+        }
+    }
+
+    /**
+     * Add a physics event to be built. This blocks while the output queue is full.
+     *
+     * @param evioEvent the parsed EVIO event
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void addPhysicsEvent(final EvioEvent evioEvent) throws InterruptedException {
+        if (nBuilders == 0) {
+            throw new IllegalStateException("No event builders were added.");
+        }
+        this.submit(evioEvent);
+    }
+
+    private void submit(final EvioEvent physicsEvent) throws InterruptedException {
+        final BuildTask task = new BuildTask(controlEvents, physicsEvent);
+        controlEvents = new ArrayList<EvioEvent>();
+        synchronized (this) {
+            ++submitted;
+            ++building;
+        }
+        output.put(executor.submit(task));
+    }
+
+    /**
+     * Mark the end of the events, after giving any remaining non-physics events to a builder.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void endOfData() throws InterruptedException {
+        if (closed) {
+            return;
+        }
+        if (!controlEvents.isEmpty() && nBuilders > 0) {
+            this.submit(null);
+        }
+        output.put(END_OF_DATA);
+    }
+
+    /**
+     * Wait until all the events added so far have been built and marked as done.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized void drain() throws InterruptedException {
+        while (completed < submitted) {
+            this.wait();
+        }
+    }
+
+    /**
+     * Get the next LCSim event in the order the EVIO events were added, waiting for it to be built.
+     *
+     * @return the next LCSim event or <code>null</code> after the last one
+     * @throws InterruptedException if interrupted while waiting
+     */
+    EventHeader next() throws InterruptedException {
+        for (;;) {
+            final Future<EventHeader> future = output.take();
+            if (future == END_OF_DATA) {
+                return null;
+            }
+            final EventHeader lcioEvent;
+            try {
+                lcioEvent = future.get();
+            } catch (final ExecutionException e) {
+                throw new RuntimeException("Error building LCSim event.", e.getCause());
+            }
+            if (lcioEvent != null) {
+                return lcioEvent;
+            }
+            // Nothing to process for a task with only non-physics events.
+            this.done();
+        }
+    }
+
+    /**
+     * Mark the last event from {@link #next()} as processed.
+     */
+    synchronized void done() {
+        ++completed;
+        this.notifyAll();
+    }
+
+    /**
+     * Tell the adding thread to stop adding events.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * @return <code>true</code> if no more events should be added
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Record an error of the adding thread, which is then stopped.
+     *
+     * @param error the error
+     */
+    void fail(final Throwable error) {
+        this.error = error;
+        stopped = true;
+    }
+
+    /**
+     * @return the error of the adding thread or <code>null</code> if there was none
+     */
+    Throwable getError() {
+        return error;
+    }
+
+    /**
+     * Stop the build threads. No more events can be added or read.
+     */
+    void shutdown() {
+        stopped = true;
+        closed = true;
+        executor.shutdownNow();
+    }
+}
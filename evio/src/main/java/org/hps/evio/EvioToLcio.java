@@ -66,6 +66,10 @@ import org.lcsim.lcio.LCIOWriter;
  * In the case where a file has no PRESTART event and there are header banks present, the "-m" command line option can
  * be used to buffer a number of EVIO events. If there is a head bank found while adding these events to queue, the
  * conditions system will be initialized from it.
+ * <p>
+ * With the "-j" option, the LCSim events are built on a number of threads. One thread reads and parses the EVIO
+ * events, each build thread has its own event builder, and the events are processed by the Drivers and written in
+ * their original order on the main thread. The build threads are drained before the conditions change to a new run.
  *
  * @author Jeremy McCormick <jeremym@slac.stanford.edu>
  * @author Sho Uemura <meeg@slac.stanford.edu>
@@ -124,6 +128,7 @@ public final class EvioToLcio {
         OPTIONS.addOption(new Option("M", false, "use memory mapping instead of sequential reading"));
         OPTIONS.addOption(new Option("s", true, "skip a number of events in each EVIO input file before starting"));
         OPTIONS.addOption(new Option("e", true, "event printing interval"));
+        OPTIONS.addOption(new Option("j", true, "number of threads building LCSim events (default 1)"));
     }
 
     /**
@@ -142,7 +147,12 @@ public final class EvioToLcio {
     private String lcioFileName = null;
     private LCIOWriter writer = null;
     private InputStream steeringStream = null;
-    
+    private int nThreads = 1;
+
+    /**
+     * Builds the events on several threads when <code>nThreads</code> is more than one.
+     */
+    private EventBuilderPipeline pipeline = null;
 
     /**
      * The default constructor, which defines command line arguments and sets the default log level.
@@ -217,6 +227,18 @@ public final class EvioToLcio {
      */
     private void checkConditions(final int runNumber, final boolean freeze) {
 
+        // Finish the events being built with the current conditions before changing them.
+        if (pipeline != null && eventBuilder != null) {
+            if (!this.isNewRun(runNumber)) {
+                return;
+            }
+            try {
+                pipeline.drain();
+            } catch (final InterruptedException e) {
+                throw new RuntimeException("Interrupted while waiting for events to be built.", e);
+            }
+        }
+
         // Is the event builder uninitialized?
         if (eventBuilder == null) {
             // Setup event builder.
@@ -237,6 +259,60 @@ public final class EvioToLcio {
         }
     }
 
+    /**
+     * Check if a run number would change the conditions.
+     *
+     * @param runNumber the run number
+     * @return <code>true</code> if the conditions would be updated for the run number
+     */
+    private boolean isNewRun(final int runNumber) {
+        final DatabaseConditionsManager manager = DatabaseConditionsManager.getInstance();
+        return !manager.isFrozen() && (!manager.isInitialized() || manager.getRun() != runNumber);
+    }
+
+    /**
+     * Open an EVIO file and skip the number of events set with the "-s" option.
+     *
+     * @param evioFileName the path of the EVIO file
+     * @return the EVIO reader
+     */
+    private EvioReader openEvioFile(final String evioFileName) {
+
+        // Get the next EVIO input file.
+        final File evioFile = new File(evioFileName);
+        if (!evioFile.exists()) {
+            throw new RuntimeException("EVIO file " + evioFile.getPath() + " does not exist.");
+        }
+        LOGGER.info("Opening EVIO file " + evioFileName);
+
+        // Open the EVIO reader.
+        final EvioReader reader;
+        try {
+            reader = new EvioReader(evioFile, false, !useMemoryMapping);
+        } catch (final Exception e) {
+            throw new RuntimeException("Error opening the EVIO file reader.", e);
+        }
+
+        // Skip some events in each file first if requested.
+        if (skipEvents > 0) {
+            LOGGER.info("Skipping " + skipEvents + " events ...");
+            for (int i = 0; i < skipEvents; i++) {
+                try {
+                    EvioEvent event = reader.nextEvent();
+                    if (event == null) {
+                        LOGGER.log(Level.WARNING, "Got null event object when skipping event num " + i);
+                        //throw new RuntimeException("Got null event object when skipping events.");
+                    }
+                } catch (EvioException | IOException e) { /* error when skipping events */
+                    LOGGER.log(Level.SEVERE, e.getMessage(), e);
+                    throw new RuntimeException(e); // Stop the job.
+                }
+            }
+            LOGGER.info("Done skipping events.");
+        }
+        return reader;
+    }
+
     /**
      * Print the CLI usage and exit.
      */
@@ -451,7 +527,19 @@ public final class EvioToLcio {
         if (cl.hasOption("s")) {
             skipEvents = Integer.parseInt(cl.getOptionValue("s"));
             LOGGER.config("Skip events set to " + skipEvents);
-        }        
+        }
+
+        // number of event building threads
+        if (cl.hasOption("j")) {
+            nThreads = Integer.parseInt(cl.getOptionValue("j"));
+            if (nThreads <= 0) {
+                throw new IllegalArgumentException("Value of -j option is invalid: " + nThreads);
+            }
+            LOGGER.config("Event building threads set to " + nThreads);
+        }
+        if (nThreads > 1) {
+            pipeline = new EventBuilderPipeline(nThreads, 4 * nThreads);
+        }
     }
 
     /**
@@ -467,44 +555,42 @@ public final class EvioToLcio {
             this.checkConditions(runNumber, true);
         }
 
-        // Loop over the input EVIO files.
-        EvioReader reader = null;
-        fileLoop: for (final String evioFileName : evioFileList) {
+        if (pipeline != null) {
+            this.runPipeline();
+        } else {
+            this.runEvents();
+        }
 
-            // Get the next EVIO input file.
-            final File evioFile = new File(evioFileName);
-            if (!evioFile.exists()) {
-                throw new RuntimeException("EVIO file " + evioFile.getPath() + " does not exist.");
-            }
-            LOGGER.info("Opening EVIO file " + evioFileName);
+        // Trigger endOfData on LCSim Drivers.
+        jobManager.finish();
 
-            // Open the EVIO reader.
+        // Close the LCIO writer.
+        if (writer != null) {
             try {
-                reader = new EvioReader(evioFile, false, !useMemoryMapping);
-            } catch (final Exception e) {
-                throw new RuntimeException("Error opening the EVIO file reader.", e);
+                writer.close();
+                LOGGER.info("LCIO output writer closed okay.");
+            } catch (final IOException e) {
+                e.printStackTrace();
+                LOGGER.warning(e.getMessage());
             }
+        }
+
+        LOGGER.info("Job finished successfully!");
+    }
+
+    /**
+     * Read, build, process and write the events on this thread.
+     */
+    private void runEvents() {
+
+        // Loop over the input EVIO files.
+        EvioReader reader = null;
+        fileLoop: for (final String evioFileName : evioFileList) {
+
+            reader = this.openEvioFile(evioFileName);
 
             boolean firstEvent = true;
             long eventTime = 0; // in ms
-            
-            // Skip some events in each file first if requested.
-            if (skipEvents > 0) {
-                LOGGER.info("Skipping " + skipEvents + " events ...");
-                for (int i = 0; i < skipEvents; i++) {
-                    try {
-                        EvioEvent event = reader.nextEvent();
-                        if (event == null) {
-                            LOGGER.log(Level.WARNING, "Got null event object when skipping event num " + i);
-                            //throw new RuntimeException("Got null event object when skipping events.");
-                        }
-                    } catch (EvioException | IOException e) { /* error when skipping events */
-                        LOGGER.log(Level.SEVERE, e.getMessage(), e);
-                        throw new RuntimeException(e); // Stop the job.
-                    }
-                }
-                LOGGER.info("Done skipping events.");
-            }
 
             // Loop over events.
             final EvioEventQueue eventQueue = new EvioEventQueue(-1L, maxBufferSize);
@@ -664,22 +750,193 @@ public final class EvioToLcio {
                 }
             }
         }
+    }
 
-        // Trigger endOfData on LCSim Drivers.
-        jobManager.finish();
+    /**
+     * Read and parse the events on a separate thread, build them with the pipeline, and process and write them on
+     * this thread in their original order.
+     */
+    private void runPipeline() {
 
-        // Close the LCIO writer.
-        if (writer != null) {
-            try {
-                writer.close();
-                LOGGER.info("LCIO output writer closed okay.");
-            } catch (final IOException e) {
-                e.printStackTrace();
-                LOGGER.warning(e.getMessage());
+        final Thread readerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    EvioToLcio.this.readEvents();
+                    pipeline.endOfData();
+                } catch (final InterruptedException e) {
+                    // The job was stopped.
+                } catch (final Throwable e) {
+                    pipeline.fail(e);
+                    try {
+                        pipeline.endOfData();
+                    } catch (final InterruptedException ie) {
+                        // The job was stopped.
+                    }
+                }
+            }
+        }, "EvioReader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        boolean firstEvent = true;
+        long eventTime = 0; // in ms
+        boolean finished = false;
+        try {
+            EventHeader lcioEvent = null;
+            while ((lcioEvent = pipeline.next()) != null) {
+
+                // Discard the events that were already queued when max events was reached.
+                if (!pipeline.isStopped()) {
+
+                    eventTime = lcioEvent.getTimeStamp() / 1000000;
+                    LOGGER.finer("created LCIO event " + lcioEvent.getEventNumber() + " with timestamp " + eventTime);
+                    if (firstEvent) {
+                        LOGGER.info("first physics event time: " + eventTime / 1000 + " - " + new Date(eventTime));
+                        firstEvent = false;
+                    }
+
+                    // Activate Driver process methods.
+                    LOGGER.finer("Job manager processing event " + lcioEvent.getEventNumber());
+                    jobManager.processEvent(lcioEvent);
+
+                    // Write out this LCIO event.
+                    if (writer != null) {
+                        try {
+                            writer.write(lcioEvent);
+                            writer.flush();
+                            LOGGER.finer("wrote LCSim event " + lcioEvent.getEventNumber());
+                        } catch (final IOException e) {
+                            throw new RuntimeException("Error writing LCIO file.", e);
+                        }
+                    }
+
+                    // Increment number of events processed.
+                    nEvents++;
+
+                    // Check if max events was reached and stop reading if this is true.
+                    if (maxEvents != -1 && nEvents >= maxEvents) {
+                        LOGGER.info("maxEvents " + maxEvents + " was reached");
+                        pipeline.stop();
+                    }
+                }
+                pipeline.done();
             }
+            finished = true;
+        } catch (final InterruptedException e) {
+            throw new RuntimeException("Interrupted while waiting for events to be built.", e);
+        } finally {
+            if (!finished) {
+                // Stop the reader if it is waiting for this thread.
+                readerThread.interrupt();
+            }
+            pipeline.shutdown();
         }
+        LOGGER.info("Last physics event time: " + eventTime / 1000 + " - " + new Date(eventTime));
 
-        LOGGER.info("Job finished successfully!");
+        if (pipeline.getError() != null) {
+            throw new RuntimeException("Error reading EVIO events.", pipeline.getError());
+        }
+    }
+
+    /**
+     * Read and parse the EVIO events and add them to the pipeline. This runs on the reader thread.
+     *
+     * @throws InterruptedException if the job was stopped while waiting for the pipeline
+     */
+    private void readEvents() throws InterruptedException {
+
+        fileLoop: for (final String evioFileName : evioFileList) {
+
+            final EvioReader reader = this.openEvioFile(evioFileName);
+            try {
+                final EvioEventQueue eventQueue = new EvioEventQueue(-1L, maxBufferSize);
+                for (;;) {
+
+                    // Buffer and parse the EVIO events, which may also setup the conditions from a head bank.
+                    this.bufferEvents(reader, eventQueue, maxBufferSize);
+                    if (eventQueue.size() == 0) {
+                        break;
+                    }
+
+                    while (eventQueue.hasNext()) {
+
+                        if (pipeline.isStopped()) {
+                            break fileLoop;
+                        }
+
+                        EvioEvent evioEvent = null;
+                        try {
+                            eventQueue.next();
+                            evioEvent = (EvioEvent) eventQueue.getCurrentRecord();
+                            if (evioEvent == null) {
+                                LOGGER.severe("Failed to read EVIO event.");
+                                continue;
+                            }
+                        } catch (final IOException | NoSuchRecordException e) {
+                            LOGGER.log(Level.SEVERE, e.getMessage(), e);
+                            continue;
+                        }
+
+                        // Print out event XML if enabled.
+                        if (printXml) {
+                            LOGGER.info(evioEvent.toXML());
+                        }
+
+                        if (EvioEventUtilities.isPhysicsEvent(evioEvent)) {
+                            if (eventBuilder == null) {
+                                throw new RuntimeException("The LCSimEventBuilder was never initialized.");
+                            }
+                            pipeline.addPhysicsEvent(evioEvent);
+                            continue;
+                        }
+
+                        // Is this a PRESTART event?
+                        if (EvioEventUtilities.isPreStartEvent(evioEvent)) {
+                            LOGGER.info("got PRESTART event");
+                            final int[] data = EvioEventUtilities.getControlEventData(evioEvent);
+                            if (data == null) {
+                                LOGGER.severe("PRESTART event is missing a data bank.");
+                            } else {
+                                // This waits for the queued events before changing the conditions.
+                                this.checkConditions(data[1], false);
+                            }
+                        }
+
+                        // Is this an END event?
+                        if (EvioEventUtilities.isEndEvent(evioEvent)) {
+                            LOGGER.info("got END event");
+                            final int[] data = EvioEventUtilities.getControlEventData(evioEvent);
+                            if (data == null) {
+                                LOGGER.severe("The END event is missing a data bank.");
+                            } else {
+                                LOGGER.info("EVIO END event with " + data[2] + " events and " + data[0] + " seconds");
+                            }
+                        }
+
+                        // Every builder reads the run control events, and the builder of the next physics event reads the
+                        // others first.
+                        if (eventBuilder != null) {
+                            if (EvioEventUtilities.isPreStartEvent(evioEvent) || EvioEventUtilities.isGoEvent(evioEvent)
+                                    || EvioEventUtilities.isPauseEvent(evioEvent)
+                                    || EvioEventUtilities.isEndEvent(evioEvent)
+                                    || EvioEventUtilities.isSyncEvent(evioEvent)) {
+                                pipeline.addRunControlEvent(evioEvent);
+                            } else {
+                                pipeline.addControlEvent(evioEvent);
+                            }
+                        }
+                    }
+                }
+            } finally {
+                try {
+                    reader.close();
+                    LOGGER.fine("EVIO reader closed.");
+                } catch (final IOException e) {
+                    LOGGER.log(Level.WARNING, e.getMessage(), e);
+                }
+            }
+        }
     }
 
     /**
@@ -690,20 +947,40 @@ public final class EvioToLcio {
      * @return The LCSimEventBuilder for the Test Run or Engineering Run.
      */
     private void setupEventBuilder(final int runNumber) {
+        eventBuilder = this.createEventBuilder(runNumber);
+
+        // Each build thread of the pipeline gets its own builder.
+        if (pipeline != null) {
+            pipeline.addEventBuilder(eventBuilder);
+            while (pipeline.getEventBuilderCount() < nThreads) {
+                pipeline.addEventBuilder(this.createEventBuilder(runNumber));
+            }
+        }
+    }
+
+    /**
+     * Create an LCSimEventBuilder for a run number and register it as a conditions listener.
+     *
+     * @param runNumber The run number which determines which event builder to use.
+     * @return The LCSimEventBuilder for the Test Run, Engineering Run or 2019 Physics Run.
+     */
+    private LCSimEventBuilder createEventBuilder(final int runNumber) {
+        final LCSimEventBuilder builder;
         // Is this run number from the Test Run?
         if (DatabaseConditionsManager.isTestRun(runNumber)) {
             // Configure conditions system for Test Run.
             LOGGER.info("using Test Run event builder");
-            eventBuilder = new LCSimTestRunEventBuilder();
+            builder = new LCSimTestRunEventBuilder();
         } else if (DatabaseConditionsManager.isPhys2019Run(runNumber)) { 
             LOGGER.info("using 2019 Physics Run builder."); 
-            eventBuilder = new LCSimPhys2019EventBuilder(); 
+            builder = new LCSimPhys2019EventBuilder(); 
         } else {
             // Configure conditions system for Eng Run or default.
             LOGGER.info("using Eng Run event builder");
-            eventBuilder = new LCSimEngRunEventBuilder();
+            builder = new LCSimEngRunEventBuilder();
         }
         final ConditionsManager conditions = ConditionsManager.defaultInstance();
-        conditions.addConditionsListener(eventBuilder);
+        conditions.addConditionsListener(builder);
+        return builder;
     }
 }
@@ -0,0 +1,183 @@
+package org.hps.evio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hps.record.LCSimEventBuilder;
+import org.jlab.coda.jevio.DataType;
+import org.jlab.coda.jevio.EvioEvent;
+import org.lcsim.conditions.ConditionsEvent;
+import org.lcsim.event.EventHeader;
+import org.lcsim.event.base.BaseLCSimEvent;
+
+/**
+ * Check that building the events on several threads with {@link EventBuilderPipeline} gives the same events, in the
+ * same order and with the same non-physics event data and run state, as building them one by one on a single thread.
+ */
+public class EventBuilderPipelineTest extends TestCase {
+
+    private static final int PHYSICS_TAG = 1;
+    private static final int CONTROL_TAG = 2;
+    private static final int RUN_CONTROL_TAG = 3;
+    private static final int N_EVENTS = 2000;
+
+    /**
+     * Builder which puts the numbers of the non-physics events it read since the last physics event into the next
+     * LCSim event, like the EPICS data, and the number of the last run control event into every event, like the event
+     * time of the test run builder. It takes a random time to build each event so that the build threads finish
+     * out of order.
+     */
+    private static final class TestEventBuilder implements LCSimEventBuilder {
+
+        private final Random random = new Random();
+        private final List<Integer> controlEvents = new ArrayList<Integer>();
+        private int runControlEvent = 0;
+
+        @Override
+        public EventHeader makeLCSimEvent(final EvioEvent evioEvent) {
+            try {
+                if (random.nextInt(8) == 0) {
+                    Thread.sleep(1);
+                }
+            } catch (final InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            final EventHeader lcioEvent = new BaseLCSimEvent(0, evioEvent.getHeader().getNumber(), "dummy");
+            final int[] control = new int[controlEvents.size()];
+            for (int i = 0; i < control.length; i++) {
+                control[i] = controlEvents.get(i);
+            }
+            lcioEvent.getIntegerParameters().put("control", control);
+            lcioEvent.getIntegerParameters().put("runControl", new int[] {runControlEvent});
+            controlEvents.clear();
+            return lcioEvent;
+        }
+
+        @Override
+        public void readEvioEvent(final EvioEvent evioEvent) {
+            if (evioEvent.getHeader().getTag() == RUN_CONTROL_TAG) {
+                runControlEvent = evioEvent.getHeader().getNumber();
+            } else {
+                controlEvents.add(evioEvent.getHeader().getNumber());
+            }
+        }
+
+        @Override
+        public void conditionsChanged(final ConditionsEvent event) {
+        }
+    }
+
+    public void testOneThread() throws Exception {
+        this.checkPipeline(1);
+    }
+
+    public void testManyThreads() throws Exception {
+        this.checkPipeline(4);
+    }
+
+    private void checkPipeline(final int nThreads) throws Exception {
+        final List<EvioEvent> evioEvents = makeEvioEvents();
+        final List<String> expected = buildSerial(evioEvents);
+        final List<String> actual = buildPipeline(evioEvents, nThreads);
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals("event " + i, expected.get(i), actual.get(i));
+        }
+    }
+
+    /**
+     * Physics events with runs of non-physics and run control events in between, ending with some non-physics events.
+     */
+    private static List<EvioEvent> makeEvioEvents() {
+        final Random random = new Random(11);
+        final List<EvioEvent> evioEvents = new ArrayList<EvioEvent>();
+        int number = 0;
+        for (int i = 0; i < N_EVENTS; i++) {
+            final int nControl = random.nextInt(10) == 0 ? 1 + random.nextInt(3) : 0;
+            for (int j = 0; j < nControl; j++) {
+                final int tag = random.nextInt(4) == 0 ? RUN_CONTROL_TAG : CONTROL_TAG;
+                evioEvents.add(new EvioEvent(tag, DataType.BANK, ++number));
+            }
+            evioEvents.add(new EvioEvent(PHYSICS_TAG, DataType.BANK, ++number));
+        }
+        evioEvents.add(new EvioEvent(CONTROL_TAG, DataType.BANK, ++number));
+        return evioEvents;
+    }
+
+    private static String describe(final EventHeader lcioEvent) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append(lcioEvent.getEventNumber()).append(" run ");
+        sb.append(lcioEvent.getIntegerParameters().get("runControl")[0]).append(':');
+        for (final int control : lcioEvent.getIntegerParameters().get("control")) {
+            sb.append(' ').append(control);
+        }
+        return sb.toString();
+    }
+
+    private static List<String> buildSerial(final List<EvioEvent> evioEvents) {
+        final LCSimEventBuilder builder = new TestEventBuilder();
+        final List<String> events = new ArrayList<String>();
+        for (final EvioEvent evioEvent : evioEvents) {
+            if (evioEvent.getHeader().getTag() == PHYSICS_TAG) {
+                events.add(describe(builder.makeLCSimEvent(evioEvent)));
+            } else {
+                builder.readEvioEvent(evioEvent);
+            }
+        }
+        return events;
+    }
+
+    private static List<String> buildPipeline(final List<EvioEvent> evioEvents, final int nThreads) throws Exception {
+        final EventBuilderPipeline pipeline = new EventBuilderPipeline(nThreads, 4 * nThreads);
+        for (int i = 0; i < nThreads; i++) {
+            pipeline.addEventBuilder(new TestEventBuilder());
+        }
+
+        // Add the events on another thread, as EvioToLcio does, with a drain in the middle like at a conditions change.
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (int i = 0; i < evioEvents.size(); i++) {
+                        final EvioEvent evioEvent = evioEvents.get(i);
+                        if (evioEvent.getHeader().getTag() == PHYSICS_TAG) {
+                            pipeline.addPhysicsEvent(evioEvent);
+                        } else if (evioEvent.getHeader().getTag() == RUN_CONTROL_TAG) {
+                            pipeline.addRunControlEvent(evioEvent);
+                        } else {
+                            pipeline.addControlEvent(evioEvent);
+                        }
+                        if (i == evioEvents.size() / 2) {
+                            pipeline.drain();
+                        }
+                    }
+                    pipeline.endOfData();
+                } catch (final Throwable e) {
+                    pipeline.fail(e);
+                    try {
+                        pipeline.endOfData();
+                    } catch (final InterruptedException ie) {
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        final List<String> events = new ArrayList<String>();
+        try {
+            EventHeader lcioEvent;
+            while ((lcioEvent = pipeline.next()) != null) {
+                events.add(describe(lcioEvent));
+                pipeline.done();
+            }
+            reader.join();
+        } finally {
+            pipeline.shutdown();
+        }
+        assertNull(pipeline.getError());
+        return events;
+    }
+}
@@ -9,6 +9,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
@@ -158,6 +159,23 @@ public class ClustererTest extends TestCase {
             .checkHitTime());
     }
 
+    /**
+     * Test the grid version of the recon clustering algorithm, and check that it makes the same clusters as the
+     * recon clustering algorithm from the same hits.
+     */
+    public void testGridReconClusterer() throws Exception {
+        runClustererTest(new ClustererTestConfig("GridReconClusterer")
+            .writeLcioFile()
+            .checkSeedHit()
+            .checkClusterType(ClusterType.RECON)
+            .checkHitEnergy()
+            .checkClusterPosition()
+            .checkNullHits()
+            .checkHitPositions()
+            .checkHitTime());
+        runCompareClusterersTest("ReconClusterer", "GridReconClusterer");
+    }
+
     /**
      * Test a simple version of the recon clustering.
      */
@@ -307,6 +325,77 @@ public class ClustererTest extends TestCase {
 
     }
 
+    /**
+     * Run two Clusterers on the same hits and check that they make identical clusters.
+     * @param referenceName The name of the reference Clusterer.
+     * @param clustererName The name of the Clusterer to compare with it.
+     */
+    private void runCompareClusterersTest(String referenceName, String clustererName) throws Exception {
+        System.out.println("comparing Clusterer " + clustererName + " with " + referenceName + " ...");
+        LCSimLoop loop = new LCSimLoop();
+        loop.setLCIORecordSource(inputFile);
+        DatabaseConditionsManager.reset();
+        for (String name : new String[] { referenceName, clustererName }) {
+            ClusterDriver clusterDriver = new ClusterDriver();
+            clusterDriver.setClustererName(name);
+            clusterDriver.setInputHitCollectionName("EcalHits");
+            clusterDriver.setOutputClusterCollectionName(name + "Clusters");
+            clusterDriver.setRaiseErrorNoHitCollection(true);
+            loop.add(clusterDriver);
+        }
+        ClusterCompareDriver compareDriver = new ClusterCompareDriver(referenceName + "Clusters", clustererName + "Clusters");
+        loop.add(compareDriver);
+        loop.loop(nEvents);
+        loop.dispose();
+        assertTrue("No clusters were compared.", compareDriver.nClusters > 0);
+    }
+
+    /**
+     * Driver that checks that two Cluster collections are identical: the same clusters in the same order, with the
+     * same seed, the same hits in the same order with the same energy contributions, and the same energy and position.
+     */
+    static class ClusterCompareDriver extends Driver {
+
+        String referenceCollectionName;
+        String clusterCollectionName;
+        int nClusters = 0;
+
+        ClusterCompareDriver(String referenceCollectionName, String clusterCollectionName) {
+            this.referenceCollectionName = referenceCollectionName;
+            this.clusterCollectionName = clusterCollectionName;
+        }
+
+        public void process(EventHeader event) {
+            String eventName = "Event " + event.getEventNumber();
+            // The cluster collections are only made for events with clusters.
+            boolean hasReference = event.hasCollection(Cluster.class, referenceCollectionName);
+            assertEquals(eventName + ": wrong cluster collection.", hasReference, event.hasCollection(Cluster.class, clusterCollectionName));
+            if (!hasReference) {
+                return;
+            }
+            List<Cluster> references = event.get(Cluster.class, referenceCollectionName);
+            List<Cluster> clusters = event.get(Cluster.class, clusterCollectionName);
+            assertEquals(eventName + ": wrong number of clusters.", references.size(), clusters.size());
+            for (int i = 0; i < clusters.size(); i++) {
+                Cluster reference = references.get(i);
+                Cluster cluster = clusters.get(i);
+                String clusterName = eventName + ", cluster " + i;
+                assertEquals(clusterName + ": wrong type.", reference.getType(), cluster.getType());
+                List<CalorimeterHit> referenceHits = reference.getCalorimeterHits();
+                List<CalorimeterHit> hits = cluster.getCalorimeterHits();
+                assertEquals(clusterName + ": wrong number of hits.", referenceHits.size(), hits.size());
+                assertSame(clusterName + ": wrong seed hit.", ClusterUtilities.findSeedHit(reference), ClusterUtilities.findSeedHit(cluster));
+                for (int j = 0; j < hits.size(); j++) {
+                    assertSame(clusterName + ": wrong hit " + j + ".", referenceHits.get(j), hits.get(j));
+                }
+                assertTrue(clusterName + ": wrong hit contributions.", Arrays.equals(reference.getHitContributions(), cluster.getHitContributions()));
+                assertEquals(clusterName + ": wrong energy.", reference.getEnergy(), cluster.getEnergy(), 0.);
+                assertTrue(clusterName + ": wrong position.", Arrays.equals(reference.getPosition(), cluster.getPosition()));
+                nClusters++;
+            }
+        }
+    }
+
     /**
      * Driver that performs test assertions on Cluster collections.
      */
@@ -0,0 +1,200 @@
+package org.hps.online.recon;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Change in the contents of one histogram since the last update sent by a station.
+ *
+ * Only the bins that changed are included. Bins are numbered with the underflow bin first
+ * and the overflow bin last on each axis, so a 1D histogram with <i>n</i> bins has <i>n+2</i>
+ * bin numbers and a 2D histogram has <i>(nx+2)*(ny+2)</i>, with the x bin changing fastest.
+ *
+ * For each bin there is the change in number of entries, sum of weights, sum of squared weights,
+ * and sums of weight times x and weight times x squared (and the same for y in 2D), which can be
+ * added to merge histograms from any number of stations and give their bin means and RMS.
+ */
+final class HistogramDelta {
+
+    /**
+     * First word of a stream of updates from a station.
+     */
+    static final int MAGIC = 0x48505044;
+
+    /**
+     * Version of the binary format.
+     */
+    static final int VERSION = 2;
+
+    /** Full path of the histogram in the AIDA tree. */
+    String path;
+
+    /** Histogram title. */
+    String title;
+
+    /** Binning of the x axis. */
+    int nx;
+    double xlo;
+    double xhi;
+
+    /** Binning of the y axis, with zero bins for a 1D histogram. */
+    int ny;
+    double ylo;
+    double yhi;
+
+    /** Number of changed bins. */
+    int size;
+
+    /** The changed bin numbers and their changes. */
+    int[] bins;
+    int[] entries;
+    double[] heights;
+    double[] sumw2;
+    double[] sumwx;
+    double[] sumwx2;
+    double[] sumwy;
+    double[] sumwy2;
+
+    /**
+     * Create a delta with initial space for the given number of changed bins.
+     * @param capacity The initial number of changed bins
+     */
+    HistogramDelta(int capacity) {
+        bins = new int[capacity];
+        entries = new int[capacity];
+        heights = new double[capacity];
+        sumw2 = new double[capacity];
+        sumwx = new double[capacity];
+        sumwx2 = new double[capacity];
+        sumwy = new double[capacity];
+        sumwy2 = new double[capacity];
+    }
+
+    /**
+     * @return True if this is a 2D histogram
+     */
+    boolean is2D() {
+        return ny > 0;
+    }
+
+    /**
+     * @return The total number of bins including underflow and overflow
+     */
+    int binCount() {
+        return (nx + 2) * (is2D() ? ny + 2 : 1);
+    }
+
+    /**
+     * Check if another delta has the same binning.
+     * @param delta The other delta
+     * @return True if the binning is the same
+     */
+    boolean sameBinning(HistogramDelta delta) {
+        return nx == delta.nx && xlo == delta.xlo && xhi == delta.xhi
+                && ny == delta.ny && ylo == delta.ylo && yhi == delta.yhi;
+    }
+
+    /**
+     * Add a changed bin.
+     */
+    void add(int bin, int entries, double height, double sumw2, double sumwx, double sumwx2, double sumwy,
+            double sumwy2) {
+        if (size == bins.length) {
+            int capacity = Math.max(16, 2 * size);
+            this.bins = Arrays.copyOf(this.bins, capacity);
+            this.entries = Arrays.copyOf(this.entries, capacity);
+            this.heights = Arrays.copyOf(this.heights, capacity);
+            this.sumw2 = Arrays.copyOf(this.sumw2, capacity);
+            this.sumwx = Arrays.copyOf(this.sumwx, capacity);
+            this.sumwx2 = Arrays.copyOf(this.sumwx2, capacity);
+            this.sumwy = Arrays.copyOf(this.sumwy, capacity);
+            this.sumwy2 = Arrays.copyOf(this.sumwy2, capacity);
+        }
+        this.bins[size] = bin;
+        this.entries[size] = entries;
+        this.heights[size] = height;
+        this.sumw2[size] = sumw2;
+        this.sumwx[size] = sumwx;
+        this.sumwx2[size] = sumwx2;
+        this.sumwy[size] = sumwy;
+        this.sumwy2[size] = sumwy2;
+        ++size;
+    }
+
+    /**
+     * Write the delta.
+     * @param out The output stream
+     * @throws IOException If there is an IO error
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeUTF(path);
+        out.writeUTF(title);
+        out.writeInt(nx);
+        out.writeDouble(xlo);
+        out.writeDouble(xhi);
+        out.writeInt(ny);
+        if (is2D()) {
+            out.writeDouble(ylo);
+            out.writeDouble(yhi);
+        }
+        out.writeInt(size);
+        for (int i = 0; i < size; i++) {
+            out.writeInt(bins[i]);
+            out.writeInt(entries[i]);
+            out.writeDouble(heights[i]);
+            out.writeDouble(sumw2[i]);
+            out.writeDouble(sumwx[i]);
+            out.writeDouble(sumwx2[i]);
+            if (is2D()) {
+                out.writeDouble(sumwy[i]);
+                out.writeDouble(sumwy2[i]);
+            }
+        }
+    }
+
+    /**
+     * Read a delta.
+     * @param in The input stream
+     * @return The delta
+     * @throws IOException If there is an IO error or the data is not valid
+     */
+    static HistogramDelta read(DataInputStream in) throws IOException {
+        String path = in.readUTF();
+        String title = in.readUTF();
+        int nx = in.readInt();
+        double xlo = in.readDouble();
+        double xhi = in.readDouble();
+        int ny = in.readInt();
+        double ylo = 0;
+        double yhi = 0;
+        if (ny > 0) {
+            ylo = in.readDouble();
+            yhi = in.readDouble();
+        }
+        int size = in.readInt();
+        if (nx <= 0 || ny < 0 || size < 0 || size > (long) (nx + 2) * (ny > 0 ? ny + 2 : 1)) {
+            throw new IOException("Bad histogram delta for " + path);
+        }
+        HistogramDelta delta = new HistogramDelta(size);
+        delta.path = path;
+        delta.title = title;
+        delta.nx = nx;
+        delta.xlo = xlo;
+        delta.xhi = xhi;
+        delta.ny = ny;
+        delta.ylo = ylo;
+        delta.yhi = yhi;
+        int binCount = delta.binCount();
+        for (int i = 0; i < size; i++) {
+            int bin = in.readInt();
+            if (bin < 0 || bin >= binCount) {
+                throw new IOException("Bad bin number " + bin + " for " + path);
+            }
+            delta.add(bin, in.readInt(), in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble(),
+                    ny > 0 ? in.readDouble() : 0, ny > 0 ? in.readDouble() : 0);
+        }
+        return delta;
+    }
+}
@@ -0,0 +1,323 @@
+package org.hps.online.recon;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.lcsim.util.aida.AIDA;
+
+import hep.aida.ref.histogram.Histogram1D;
+import hep.aida.ref.histogram.Histogram2D;
+
+/**
+ * Merges the histograms of all the stations in the server's AIDA tree.
+ *
+ * Stations connect to the plot port and send the changes in their histograms since their last
+ * update (see {@link PlotDeltaSender}), which are added to the merged histograms as soon as they
+ * are received. The merged histograms can be saved to a file at any time with {@link #save(File)}.
+ */
+final class PlotAggregator {
+
+    /**
+     * Package logger.
+     */
+    private static Logger LOGGER = Logger.getLogger(PlotAggregator.class.getPackage().getName());
+
+    /**
+     * Merged contents of one histogram.
+     */
+    private static final class MergedHistogram {
+
+        final HistogramDelta binning;
+        final int[] entries;
+        final double[] heights;
+        final double[] sumw2;
+        final double[] sumwx;
+        final double[] sumwx2;
+        final double[] sumwy;
+        final double[] sumwy2;
+
+        MergedHistogram(HistogramDelta binning) {
+            this.binning = binning;
+            int binCount = binning.binCount();
+            entries = new int[binCount];
+            heights = new double[binCount];
+            sumw2 = new double[binCount];
+            sumwx = new double[binCount];
+            sumwx2 = new double[binCount];
+            sumwy = new double[binCount];
+            sumwy2 = new double[binCount];
+        }
+
+        void add(HistogramDelta delta) {
+            for (int k = 0; k < delta.size; k++) {
+                int b = delta.bins[k];
+                entries[b] += delta.entries[k];
+                heights[b] += delta.heights[k];
+                sumw2[b] += delta.sumw2[k];
+                sumwx[b] += delta.sumwx[k];
+                sumwx2[b] += delta.sumwx2[k];
+                sumwy[b] += delta.sumwy[k];
+                sumwy2[b] += delta.sumwy2[k];
+            }
+        }
+    }
+
+    /**
+     * Get the mean of a bin from its sums.
+     */
+    private static double mean(double height, double sumw) {
+        return height != 0 ? sumw / height : 0;
+    }
+
+    /**
+     * Get the RMS of a bin from its sums.
+     */
+    private static double rms(double height, double sumw, double sumw2) {
+        if (height == 0) {
+            return 0;
+        }
+        double mean = sumw / height;
+        return Math.sqrt(Math.max(sumw2 / height - mean * mean, 0));
+    }
+
+    /**
+     * The server's AIDA tree with the merged histograms.
+     */
+    private final AIDA aida = AIDA.defaultInstance();
+
+    /**
+     * The merged histograms by path.
+     */
+    private final Map<String, MergedHistogram> histograms = new HashMap<String, MergedHistogram>();
+
+    /**
+     * Port for station connections.
+     */
+    private final int port;
+
+    /**
+     * Socket accepting the station connections.
+     */
+    private ServerSocket serverSocket;
+
+    /**
+     * Threads reading from the station connections.
+     */
+    private final ExecutorService readers = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "PlotAggregator");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Class constructor.
+     * @param port The port for station connections
+     */
+    PlotAggregator(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Get the port for station connections.
+     * @return The port for station connections
+     */
+    int getPort() {
+        return port;
+    }
+
+    /**
+     * Start accepting station connections in a background thread.
+     * @throws IOException If the port cannot be opened
+     */
+    void start() throws IOException {
+        serverSocket = new ServerSocket(port);
+        LOGGER.info("Listening for plot updates on port: " + port);
+        readers.execute(new Runnable() {
+            @Override
+            public void run() {
+                while (!serverSocket.isClosed()) {
+                    try {
+                        final Socket socket = serverSocket.accept();
+                        readers.execute(new Runnable() {
+                            @Override
+                            public void run() {
+                                read(socket);
+                            }
+                        });
+                    } catch (IOException e) {
+                        if (!serverSocket.isClosed()) {
+                            LOGGER.log(Level.SEVERE, "Error accepting plot connection", e);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop accepting station connections.
+     */
+    void stop() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error closing plot port", e);
+        }
+        readers.shutdownNow();
+    }
+
+    /**
+     * Read updates from a station until it disconnects.
+     * @param socket The station connection
+     */
+    private void read(Socket socket) {
+        String stationName = socket.getRemoteSocketAddress().toString();
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            if (in.readInt() != HistogramDelta.MAGIC) {
+                throw new IOException("Not a plot update connection");
+            }
+            int version = in.readInt();
+            if (version != HistogramDelta.VERSION) {
+                throw new IOException("Unsupported plot update version: " + version);
+            }
+            stationName = in.readUTF();
+            LOGGER.info("Receiving plot updates from station: " + stationName);
+            for (;;) {
+                int count;
+                try {
+                    count = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                // Read the whole update before adding it so a broken connection does not leave partial results.
+                List<HistogramDelta> deltas = new ArrayList<HistogramDelta>(count);
+                for (int i = 0; i < count; i++) {
+                    deltas.add(HistogramDelta.read(in));
+                }
+                add(stationName, deltas);
+            }
+            LOGGER.info("Station disconnected from plot port: " + stationName);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error reading plot updates from station: " + stationName, e);
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+            }
+        }
+    }
+
+    /**
+     * Add histogram changes from a station to the merged histograms.
+     * @param stationName The station name
+     * @param deltas The histogram changes
+     */
+    synchronized void add(String stationName, List<HistogramDelta> deltas) {
+        for (HistogramDelta delta : deltas) {
+            MergedHistogram merged = histograms.get(delta.path);
+            if (merged == null) {
+                merged = new MergedHistogram(delta);
+                histograms.put(delta.path, merged);
+            } else if (!merged.binning.sameBinning(delta)) {
+                LOGGER.warning("Ignoring update of " + delta.path + " from " + stationName
+                        + " with different binning");
+                continue;
+            }
+            merged.add(delta);
+            update(merged);
+        }
+    }
+
+    /**
+     * Update the histogram in the AIDA tree from its merged contents.
+     */
+    private void update(MergedHistogram merged) {
+        HistogramDelta binning = merged.binning;
+        if (!binning.is2D()) {
+            int n = binning.nx + 2;
+            double[] errors = new double[n];
+            double[] means = new double[n];
+            double[] rmss = new double[n];
+            for (int b = 0; b < n; b++) {
+                errors[b] = Math.sqrt(Math.max(merged.sumw2[b], 0));
+                means[b] = mean(merged.heights[b], merged.sumwx[b]);
+                rmss[b] = rms(merged.heights[b], merged.sumwx[b], merged.sumwx2[b]);
+            }
+            Histogram1D h = (Histogram1D) aida.histogram1D(binning.path, binning.nx, binning.xlo, binning.xhi);
+            h.setTitle(binning.title);
+            h.setContents(merged.heights.clone(), errors, merged.entries.clone(), means, rmss);
+        } else {
+            int nx = binning.nx + 2;
+            int ny = binning.ny + 2;
+            double[][] heights = new double[nx][ny];
+            double[][] errors = new double[nx][ny];
+            int[][] entries = new int[nx][ny];
+            double[][] meanXs = new double[nx][ny];
+            double[][] meanYs = new double[nx][ny];
+            double[][] rmsXs = new double[nx][ny];
+            double[][] rmsYs = new double[nx][ny];
+            for (int j = 0; j < ny; j++) {
+                for (int i = 0; i < nx; i++) {
+                    int b = i + nx * j;
+                    double height = merged.heights[b];
+                    heights[i][j] = height;
+                    errors[i][j] = Math.sqrt(Math.max(merged.sumw2[b], 0));
+                    entries[i][j] = merged.entries[b];
+                    meanXs[i][j] = mean(height, merged.sumwx[b]);
+                    meanYs[i][j] = mean(height, merged.sumwy[b]);
+                    rmsXs[i][j] = rms(height, merged.sumwx[b], merged.sumwx2[b]);
+                    rmsYs[i][j] = rms(height, merged.sumwy[b], merged.sumwy2[b]);
+                }
+            }
+            Histogram2D h = (Histogram2D) aida.histogram2D(binning.path, binning.nx, binning.xlo, binning.xhi,
+                    binning.ny, binning.ylo, binning.yhi);
+            h.setTitle(binning.title);
+            h.setContents(heights, errors, entries, meanXs, rmsXs, meanYs, rmsYs);
+        }
+    }
+
+    /**
+     * Get the number of merged histograms.
+     * @return The number of merged histograms
+     */
+    synchronized int getHistogramCount() {
+        return histograms.size();
+    }
+
+    /**
+     * Save the merged histograms.
+     *
+     * Uses a temp file and then renames to target so that readers never see a partially written file.
+     *
+     * @param targetFile The output file which should have a ".root" or ".aida" extension
+     * @throws IOException If there is an error saving the file
+     */
+    synchronized void save(File targetFile) throws IOException {
+        File tmpFile = new File(targetFile.getParentFile(), "tmp." + targetFile.getName());
+        aida.saveAs(tmpFile);
+        if (!tmpFile.renameTo(targetFile)) {
+            throw new IOException("Failed to rename " + tmpFile.getPath() + " to " + targetFile.getPath());
+        }
+        LOGGER.info("Saved " + histograms.size() + " merged histograms to: " + targetFile.getPath());
+    }
+}
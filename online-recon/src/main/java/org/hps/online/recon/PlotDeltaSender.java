@@ -0,0 +1,376 @@
+package org.hps.online.recon;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hep.aida.IAxis;
+import hep.aida.IHistogram1D;
+import hep.aida.IHistogram2D;
+import hep.aida.IManagedObject;
+import hep.aida.ITree;
+import hep.aida.ref.histogram.Histogram1D;
+import hep.aida.ref.histogram.Histogram2D;
+
+/**
+ * Sends the changes in a station's histograms to the {@link PlotAggregator} of the server.
+ *
+ * The contents of each histogram at the last update are kept so that only the bins which
+ * changed since then are sent. They are the values read from the histogram, so that a bin
+ * which did not change is never sent again because of rounding. If the server cannot be
+ * reached then the changes are kept and sent with a later update, also when the histograms
+ * are reset in between.
+ *
+ * The updates are sent from the event processing thread, so connecting to the server has a
+ * timeout and is not tried again for a while after it fails.
+ */
+final class PlotDeltaSender {
+
+    /**
+     * Package logger.
+     */
+    private static Logger LOGGER = Logger.getLogger(PlotDeltaSender.class.getPackage().getName());
+
+    /**
+     * Timeout in millis for connecting to the server.
+     */
+    private static final int CONNECT_TIMEOUT = 1000;
+
+    /**
+     * Time in millis to wait after a failed connection before trying again.
+     */
+    private static final long RECONNECT_DELAY = 30000;
+
+    /**
+     * Contents of the bins of a histogram.
+     */
+    private static final class Snapshot {
+        final int[] entries;
+        final double[] heights;
+        final double[] sumw2;
+        final double[] sumwx;
+        final double[] sumwx2;
+        final double[] sumwy;
+        final double[] sumwy2;
+
+        Snapshot(int binCount) {
+            entries = new int[binCount];
+            heights = new double[binCount];
+            sumw2 = new double[binCount];
+            sumwx = new double[binCount];
+            sumwx2 = new double[binCount];
+            sumwy = new double[binCount];
+            sumwy2 = new double[binCount];
+        }
+
+        boolean matches(int b, int entries, double height, double sumw2, double sumwx, double sumwx2, double sumwy,
+                double sumwy2) {
+            return entries == this.entries[b] && height == heights[b] && sumw2 == this.sumw2[b]
+                    && sumwx == this.sumwx[b] && sumwx2 == this.sumwx2[b] && sumwy == this.sumwy[b]
+                    && sumwy2 == this.sumwy2[b];
+        }
+
+        void set(int b, int entries, double height, double sumw2, double sumwx, double sumwx2, double sumwy,
+                double sumwy2) {
+            this.entries[b] = entries;
+            heights[b] = height;
+            this.sumw2[b] = sumw2;
+            this.sumwx[b] = sumwx;
+            this.sumwx2[b] = sumwx2;
+            this.sumwy[b] = sumwy;
+            this.sumwy2[b] = sumwy2;
+        }
+
+        void copy(int b, Snapshot from) {
+            set(b, from.entries[b], from.heights[b], from.sumw2[b], from.sumwx[b], from.sumwx2[b], from.sumwy[b],
+                    from.sumwy2[b]);
+        }
+
+        void subtract(Snapshot other) {
+            for (int b = 0; b < entries.length; b++) {
+                set(b, entries[b] - other.entries[b], heights[b] - other.heights[b], sumw2[b] - other.sumw2[b],
+                        sumwx[b] - other.sumwx[b], sumwx2[b] - other.sumwx2[b], sumwy[b] - other.sumwy[b],
+                        sumwy2[b] - other.sumwy2[b]);
+            }
+        }
+    }
+
+    /**
+     * Histogram contents at the last update, by path.
+     */
+    private final Map<String, Snapshot> snapshots = new HashMap<String, Snapshot>();
+
+    /**
+     * Histogram contents when they were last read, by path.
+     */
+    private final Map<String, Snapshot> readings = new HashMap<String, Snapshot>();
+
+    /**
+     * Station name sent when connecting.
+     */
+    private final String stationName;
+
+    /**
+     * Server host name.
+     */
+    private final String host;
+
+    /**
+     * Server plot port.
+     */
+    private final int port;
+
+    /**
+     * Connection to the server.
+     */
+    private Socket socket;
+
+    /**
+     * Output stream of the connection.
+     */
+    private DataOutputStream out;
+
+    /**
+     * System time in millis before which no new connection is tried.
+     */
+    private long nextConnectTime = 0;
+
+    /**
+     * Class constructor.
+     * @param stationName The station name
+     * @param plotServer The server host and port as <i>host:port</i>
+     */
+    PlotDeltaSender(String stationName, String plotServer) {
+        int colon = plotServer.lastIndexOf(':');
+        if (colon <= 0 || colon == plotServer.length() - 1) {
+            throw new IllegalArgumentException("Bad plot server (expected host:port): " + plotServer);
+        }
+        this.stationName = stationName;
+        this.host = plotServer.substring(0, colon);
+        this.port = Integer.parseInt(plotServer.substring(colon + 1));
+    }
+
+    /**
+     * Send the changes in all 1D and 2D histograms in the tree since the last update.
+     *
+     * Errors are logged and the changes are sent again with the next update.
+     *
+     * @param tree The AIDA tree
+     * @return True if there were no changes or they were sent
+     */
+    boolean send(ITree tree) {
+        List<HistogramDelta> deltas = new ArrayList<HistogramDelta>();
+        for (String path : tree.listObjectNames("/", true)) {
+            if (path.endsWith("/")) {
+                continue;
+            }
+            IManagedObject object = tree.find(path);
+            HistogramDelta delta = null;
+            if (object instanceof IHistogram1D) {
+                delta = diff(path, (IHistogram1D) object);
+            } else if (object instanceof IHistogram2D) {
+                delta = diff(path, (IHistogram2D) object);
+            }
+            if (delta != null && delta.size > 0) {
+                deltas.add(delta);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return true;
+        }
+        if (out == null && System.currentTimeMillis() < nextConnectTime) {
+            return false;
+        }
+        try {
+            if (out == null) {
+                connect();
+            }
+            out.writeInt(deltas.size());
+            for (HistogramDelta delta : deltas) {
+                delta.write(out);
+            }
+            out.flush();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Error sending plot updates to " + host + ":" + port, e);
+            close();
+            return false;
+        }
+        // Only remember what was sent after the server got it.
+        for (HistogramDelta delta : deltas) {
+            commit(delta);
+        }
+        LOGGER.fine("Sent updates for " + deltas.size() + " histograms");
+        return true;
+    }
+
+    /**
+     * Send the changes in the histograms before they are reset.
+     *
+     * If they were sent then the contents at the last update are forgotten. Otherwise they are
+     * changed so that the changes which were not sent are added to the next update after the reset.
+     *
+     * @param tree The AIDA tree
+     */
+    void sendBeforeReset(ITree tree) {
+        if (send(tree)) {
+            snapshots.clear();
+        } else {
+            for (Map.Entry<String, Snapshot> entry : snapshots.entrySet()) {
+                Snapshot reading = readings.get(entry.getKey());
+                if (reading != null && reading.entries.length == entry.getValue().entries.length) {
+                    entry.getValue().subtract(reading);
+                }
+            }
+        }
+        readings.clear();
+    }
+
+    /**
+     * Close the connection to the server.
+     */
+    void close() {
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Error closing plot server connection", e);
+            }
+        }
+        socket = null;
+        out = null;
+    }
+
+    private void connect() throws IOException {
+        LOGGER.info("Connecting to plot server " + host + ":" + port);
+        // Keep the changes for a later update if the server cannot be reached.
+        nextConnectTime = System.currentTimeMillis() + RECONNECT_DELAY;
+        socket = new Socket();
+        socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+        out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        out.writeInt(HistogramDelta.MAGIC);
+        out.writeInt(HistogramDelta.VERSION);
+        out.writeUTF(stationName);
+    }
+
+    /**
+     * Convert an AIDA bin index to a bin number with the underflow bin first.
+     */
+    private static int bin(int index, int nBins) {
+        if (index == IAxis.UNDERFLOW_BIN) {
+            return 0;
+        } else if (index == IAxis.OVERFLOW_BIN) {
+            return nBins + 1;
+        }
+        return index + 1;
+    }
+
+    private static Snapshot getSnapshot(Map<String, Snapshot> map, String path, HistogramDelta delta) {
+        Snapshot snapshot = map.get(path);
+        if (snapshot == null || snapshot.entries.length != delta.binCount()) {
+            snapshot = new Snapshot(delta.binCount());
+            map.put(path, snapshot);
+        }
+        return snapshot;
+    }
+
+    private HistogramDelta diff(String path, IHistogram1D h) {
+        IAxis x = h.axis();
+        if (!x.isFixedBinning()) {
+            return null;
+        }
+        int nx = x.bins();
+        HistogramDelta delta = new HistogramDelta(0);
+        delta.path = path;
+        delta.title = h.title() != null ? h.title() : "";
+        delta.nx = nx;
+        delta.xlo = x.lowerEdge();
+        delta.xhi = x.upperEdge();
+        Snapshot last = getSnapshot(snapshots, path, delta);
+        Snapshot reading = getSnapshot(readings, path, delta);
+        for (int i = IAxis.UNDERFLOW_BIN; i < nx; i++) {
+            int b = bin(i, nx);
+            int entries = h.binEntries(i);
+            double height = h.binHeight(i);
+            double error = h.binError(i);
+            double sumw2 = error * error;
+            double mean = entries > 0 ? h.binMean(i) : 0;
+            double rms = entries > 0 && h instanceof Histogram1D ? ((Histogram1D) h).binRms(i) : 0;
+            double sumwx = mean * height;
+            double sumwx2 = (rms * rms + mean * mean) * height;
+            reading.set(b, entries, height, sumw2, sumwx, sumwx2, 0, 0);
+            if (!last.matches(b, entries, height, sumw2, sumwx, sumwx2, 0, 0)) {
+                delta.add(b, entries - last.entries[b], height - last.heights[b], sumw2 - last.sumw2[b],
+                        sumwx - last.sumwx[b], sumwx2 - last.sumwx2[b], 0, 0);
+            }
+        }
+        return delta;
+    }
+
+    private HistogramDelta diff(String path, IHistogram2D h) {
+        IAxis x = h.xAxis();
+        IAxis y = h.yAxis();
+        if (!x.isFixedBinning() || !y.isFixedBinning()) {
+            return null;
+        }
+        int nx = x.bins();
+        int ny = y.bins();
+        HistogramDelta delta = new HistogramDelta(0);
+        delta.path = path;
+        delta.title = h.title() != null ? h.title() : "";
+        delta.nx = nx;
+        delta.xlo = x.lowerEdge();
+        delta.xhi = x.upperEdge();
+        delta.ny = ny;
+        delta.ylo = y.lowerEdge();
+        delta.yhi = y.upperEdge();
+        Snapshot last = getSnapshot(snapshots, path, delta);
+        Snapshot reading = getSnapshot(readings, path, delta);
+        for (int j = IAxis.UNDERFLOW_BIN; j < ny; j++) {
+            for (int i = IAxis.UNDERFLOW_BIN; i < nx; i++) {
+                int b = bin(i, nx) + (nx + 2) * bin(j, ny);
+                int entries = h.binEntries(i, j);
+                double height = h.binHeight(i, j);
+                double error = h.binError(i, j);
+                double sumw2 = error * error;
+                double meanX = entries > 0 ? h.binMeanX(i, j) : 0;
+                double meanY = entries > 0 ? h.binMeanY(i, j) : 0;
+                double rmsX = 0;
+                double rmsY = 0;
+                if (entries > 0 && h instanceof Histogram2D) {
+                    rmsX = ((Histogram2D) h).binRmsX(i, j);
+                    rmsY = ((Histogram2D) h).binRmsY(i, j);
+                }
+                double sumwx = meanX * height;
+                double sumwx2 = (rmsX * rmsX + meanX * meanX) * height;
+                double sumwy = meanY * height;
+                double sumwy2 = (rmsY * rmsY + meanY * meanY) * height;
+                reading.set(b, entries, height, sumw2, sumwx, sumwx2, sumwy, sumwy2);
+                if (!last.matches(b, entries, height, sumw2, sumwx, sumwx2, sumwy, sumwy2)) {
+                    delta.add(b, entries - last.entries[b], height - last.heights[b], sumw2 - last.sumw2[b],
+                            sumwx - last.sumwx[b], sumwx2 - last.sumwx2[b], sumwy - last.sumwy[b],
+                            sumwy2 - last.sumwy2[b]);
+                }
+            }
+        }
+        return delta;
+    }
+
+    /**
+     * Update the snapshot of a histogram with the contents of the bins that were sent.
+     */
+    private void commit(HistogramDelta delta) {
+        Snapshot last = snapshots.get(delta.path);
+        Snapshot reading = readings.get(delta.path);
+        for (int k = 0; k < delta.size; k++) {
+            last.copy(delta.bins[k], reading);
+        }
+    }
+}
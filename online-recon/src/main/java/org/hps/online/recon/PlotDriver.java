@@ -20,6 +20,10 @@ import hep.aida.ITree;
  * Plots can be reset after they are saved so that combined plot file can be
  * created incrementally.
  * 
+ * If a plot server is set then the changes in the plots are also sent to the
+ * online reconstruction server periodically, so it can merge the plots from
+ * all stations without any files.
+ * 
  * @author jeremym
  */
 public class PlotDriver extends Driver {
@@ -67,6 +71,18 @@ public class PlotDriver extends Driver {
     /** Total events processed. */
     private int eventsProcessed;
     
+    /** Host and port of the server receiving plot updates (null if disabled). */
+    private String plotServer;
+    
+    /** Interval in seconds for sending plot updates to the server. */
+    private int plotUpdateInterval = 5;
+    
+    /** Sends plot updates to the server. */
+    private PlotDeltaSender sender;
+    
+    /** System time of the last plot update in millis. */
+    private long lastUpdateTime;
+    
     /** Default AIDA instance in this process. */
     private AIDA aida = AIDA.defaultInstance();
         
@@ -86,6 +102,22 @@ public class PlotDriver extends Driver {
         this.resetAfterSave = resetAfterSave;
     }
     
+    /**
+     * Set the server receiving plot updates.
+     * @param plotServer The host and port of the server as <i>host:port</i>
+     */
+    public void setPlotServer(String plotServer) {
+        this.plotServer = plotServer;
+    }
+    
+    /**
+     * Set the interval for sending plot updates to the server.
+     * @param plotUpdateInterval The interval in seconds
+     */
+    public void setPlotUpdateInterval(int plotUpdateInterval) {
+        this.plotUpdateInterval = plotUpdateInterval;
+    }
+    
     /**
      * Set the station name, which is automatically converted to lower case,
      * as it is better for file naming.
@@ -141,6 +173,11 @@ public class PlotDriver extends Driver {
         if (stationName == null) {
             throw new RuntimeException("The station name was not set.");
         }
+        if (plotServer != null) {
+            sender = new PlotDeltaSender(stationName, plotServer);
+            lastUpdateTime = System.currentTimeMillis();
+            LOGGER.info("Sending plot updates to " + plotServer + " every " + plotUpdateInterval + "s");
+        }
     }
 
     /**
@@ -148,20 +185,28 @@ public class PlotDriver extends Driver {
      */
     public void process(EventHeader event) {
         ++eventsProcessed;
-        if (eventsProcessed % this.eventSaveInterval == 0) {
+        if (this.eventSaveInterval > 0 && eventsProcessed % this.eventSaveInterval == 0) {
             // Save intermediate output file.
             save();
         }
+        if (sender != null && System.currentTimeMillis() - lastUpdateTime >= plotUpdateInterval * 1000L) {
+            sender.send(aida.tree());
+            lastUpdateTime = System.currentTimeMillis();
+        }
     }
     
     /**
      * Handle end of data.
      */
     public void endOfData() {
-        if (eventsProcessed > 0) {
+        if (eventsProcessed > 0 && this.eventSaveInterval > 0) {
             LOGGER.info("Saving final output file: " + this.filePath);
             save();
         }
+        if (sender != null) {
+            sender.send(aida.tree());
+            sender.close();
+        }
     }
     
     /**
@@ -182,6 +227,10 @@ public class PlotDriver extends Driver {
             tmpFile.renameTo(targetFile);
             ++this.fileSeq;
             if (this.resetAfterSave) {
+                // Send the last changes to the server, or keep them for the next update.
+                if (sender != null) {
+                    sender.sendBeforeReset(aida.tree());
+                }
                 LOGGER.info("Resetting the AIDA plots after saving to output file.");
                 this.resetAida();
             }
@@ -0,0 +1,57 @@
+package org.hps.online.recon;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Task to save the histograms merged by the server's {@link PlotAggregator}.
+ *
+ * This replaces the {@link PlotAddTask} when the stations send their plot updates to the server,
+ * as no intermediate plot files need to be found and added.
+ */
+final class PlotSaveTask extends TimerTask {
+
+    /**
+     * Package logger.
+     */
+    private static Logger LOGGER = Logger.getLogger(PlotSaveTask.class.getPackage().getName());
+
+    /**
+     * The plot aggregator with the merged histograms.
+     */
+    private final PlotAggregator aggregator;
+
+    /**
+     * Target output file.
+     */
+    private final File targetFile;
+
+    /**
+     * Class constructor.
+     * @param aggregator The plot aggregator with the merged histograms
+     * @param targetFile The target output file
+     */
+    PlotSaveTask(PlotAggregator aggregator, File targetFile) {
+        this.aggregator = aggregator;
+        this.targetFile = targetFile;
+    }
+
+    /**
+     * Run the task to save the merged plots.
+     */
+    @Override
+    public void run() {
+        if (aggregator.getHistogramCount() == 0) {
+            LOGGER.warning("Task did not run because no plot updates were received!");
+            return;
+        }
+        try {
+            aggregator.save(targetFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Error saving merged plots", e);
+        }
+    }
+}
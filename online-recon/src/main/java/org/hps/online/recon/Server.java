@@ -11,6 +11,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 import java.util.Timer;
+import java.util.TimerTask;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.logging.Level;
@@ -674,18 +675,32 @@ public final class Server {
                 if (jo.has("period")) {
                     period = jo.getLong("period");
                 }                
-                PlotAddTask task =    
-                        new PlotAddTask(Server.this, new File(target), delete, append);
-                if (jo.has("ids")) {
-                    List<Integer> ids = getStationIDs(jo);
-                    task.addStationIDs(ids);
-                }                
-                if (jo.has("threads")) {
-                    task.setThreadCount(jo.getInt("threads"));
-                
+                boolean live = false;
+                if (jo.has("live")) {
+                    live = jo.getBoolean("live");
                 }
-                if (jo.has("verbosity")) {
-                    task.setVerbosity(jo.getInt("verbosity"));
+                TimerTask task;
+                if (live) {
+                    PlotAggregator aggregator = Server.this.getPlotAggregator();
+                    if (aggregator == null) {
+                        return new CommandStatus(STATUS_ERROR, "Plot updates from stations are disabled.");
+                    }
+                    task = new PlotSaveTask(aggregator, new File(target));
+                } else {
+                    PlotAddTask addTask =    
+                            new PlotAddTask(Server.this, new File(target), delete, append);
+                    if (jo.has("ids")) {
+                        List<Integer> ids = getStationIDs(jo);
+                        addTask.addStationIDs(ids);
+                    }                
+                    if (jo.has("threads")) {
+                        addTask.setThreadCount(jo.getInt("threads"));
+                    
+                    }
+                    if (jo.has("verbosity")) {
+                        addTask.setVerbosity(jo.getInt("verbosity"));
+                    }
+                    task = addTask;
                 }
                 LOGGER.info("Scheduling plot task with target: " + target);
                 if (period < 0) {
@@ -932,6 +947,16 @@ public final class Server {
      */
     private int port = DEFAULT_PORT;
         
+    /**
+     * The port for receiving plot updates from the stations (0 if disabled, which is the default).
+     */
+    private int plotPort = 0;
+
+    /**
+     * Merges the plot updates from the stations (null if disabled).
+     */
+    private PlotAggregator plotAggregator;
+
     /**
      * The station base name to which the ID will be appended.
      */
@@ -1009,6 +1034,14 @@ public final class Server {
         return this.stationManager;
     }
     
+    /**
+     * Get the plot aggregator which merges the plot updates from the stations.
+     * @return The plot aggregator or null if plot updates are disabled
+     */
+    PlotAggregator getPlotAggregator() {
+        return this.plotAggregator;
+    }
+    
     /**
      * Get the server's work directory.
      * @return The server's work directory
@@ -1056,6 +1089,7 @@ public final class Server {
         options.addOption(new Option("b", "basename", true, "station base name"));
         options.addOption(new Option("c", "config", true, "config properties file"));
         options.addOption(new Option("i", "interval", true, "update interval in seconds for adding plots (default is every 1 minute)"));
+        options.addOption(new Option("P", "plot-port", true, "port for plot updates from stations (disabled by default)"));
         
         final CommandLineParser parser = new DefaultParser();
         CommandLine cl = parser.parse(options, args);
@@ -1079,6 +1113,20 @@ public final class Server {
         }
         LOGGER.config("Server port: " + this.port);
         
+        // Port number for plot updates from stations.
+        if (cl.hasOption("P")) {
+            this.plotPort = Integer.parseInt(cl.getOptionValue("P"));
+        }
+        if (this.plotPort != 0) {
+            if (this.plotPort < MIN_PORT || this.plotPort >= MAX_PORT || this.plotPort == this.port) {
+                throw new RuntimeException("Plot port number is not allowed: " + this.plotPort);
+            }
+            this.plotAggregator = new PlotAggregator(this.plotPort);
+            LOGGER.config("Plot port: " + this.plotPort);
+        } else {
+            LOGGER.config("Plot updates from stations are disabled.");
+        }
+        
         // Starting station ID.
         if (cl.hasOption("s")) {
             int processID = Integer.parseInt(cl.getOptionValue("s"));
@@ -1116,6 +1164,13 @@ public final class Server {
      */
     void start() {
         LOGGER.info("Starting server on port: " + this.port);
+        if (this.plotAggregator != null) {
+            try {
+                this.plotAggregator.start();
+            } catch (IOException e) {
+                throw new RuntimeException("Error starting plot aggregator", e);
+            }
+        }
         try (ServerSocket serverSocket = new ServerSocket(port)) {
             while (true) {
                 Socket clientSocket = serverSocket.accept();
@@ -1130,7 +1185,7 @@ public final class Server {
      * Schedule plot task to run once.
      * @param task The task to run
      */
-    synchronized void schedulePlotTask(PlotAddTask task) {
+    synchronized void schedulePlotTask(TimerTask task) {
         plotTimer.schedule(task, 0L);
     }
     
@@ -1139,7 +1194,7 @@ public final class Server {
      * @param task The task to run
      * @param period The period in millis
      */
-    synchronized void schedulePlotTask(PlotAddTask task, long period) {
+    synchronized void schedulePlotTask(TimerTask task, long period) {
         plotTimer.schedule(task, 0L, period);
     }
     
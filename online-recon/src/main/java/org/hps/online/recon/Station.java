@@ -121,13 +121,22 @@ public class Station {
         
         // Configure and add the AIDA driver for intermediate plot saving.
         int plotSaveInterval = config.getPlotSaveInterval();
-        if (plotSaveInterval > 0) {
+        String plotServer = config.getPlotServer();
+        if (plotSaveInterval > 0 || plotServer != null) {
             PlotDriver aidaDriver = new PlotDriver();
             aidaDriver.setStationName(config.getStation());
             aidaDriver.setOutputDir(config.getOutputDir());
             aidaDriver.setResetAfterSave(config.getResetPlots());
             aidaDriver.setEventSaveInterval(plotSaveInterval);
-            LOGGER.config("Adding AIDA driver to save plots every " + config.getPlotSaveInterval() + " events");
+            if (plotServer != null) {
+                aidaDriver.setPlotServer(plotServer);
+                aidaDriver.setPlotUpdateInterval(config.getPlotUpdateInterval());
+            }
+            if (plotSaveInterval > 0) {
+                LOGGER.config("Adding AIDA driver to save plots every " + plotSaveInterval + " events");
+            } else {
+                LOGGER.config("Adding AIDA driver to send plot updates to " + plotServer);
+            }
             loopConfig.add(aidaDriver);
         } else {
             LOGGER.config("Automatic plot saving is disabled.");
@@ -202,6 +211,12 @@ public class Station {
         // Configure more settings on the loop.
         loopConfig.setDataSourceType(DataSourceType.ET_SERVER);    
         loopConfig.setEtConnection(conn);
+        if (config.getRingSize() > 0) {
+            LOGGER.config("Reading ET events into buffer of size " + config.getRingSize() 
+                    + " with overflow policy " + config.getOverflowPolicy());
+            loopConfig.setEtRingSize(config.getRingSize());
+            loopConfig.setEtOverflowPolicy(config.getOverflowPolicy());
+        }
         loopConfig.setMaxQueueSize(1); // Should this be increased for EVIO conditions activation???
         loopConfig.setTimeout(-1L);
         loopConfig.setStopOnEndRun(true);
@@ -8,6 +8,7 @@ import java.io.IOException;
 import java.util.Properties;
 import java.util.logging.Logger;
 
+import org.hps.record.et.EtEventSource.OverflowPolicy;
 import org.jlab.coda.et.EtConstants;
 import org.jlab.coda.et.enums.Mode;
 import org.json.JSONObject;
@@ -41,6 +42,10 @@ final class StationConfiguration {
 
     static final String PLOT_RESET_PROPERTY = "station.resetPlots";
 
+    static final String PLOT_SERVER_PROPERTY = "station.plotServer";
+
+    static final String PLOT_UPDATE_INTERVAL_PROPERTY = "station.plotUpdateInterval";
+
     static final String OUTPUT_DIR_PROPERTY = "station.outputDir";
     
     static final String OUTPUT_NAME_PROPERTY = "station.outputName";
@@ -55,6 +60,10 @@ final class StationConfiguration {
         
     static final String CHUNK_SIZE_PROPERTY = "et.chunkSize";
 
+    static final String RING_SIZE_PROPERTY = "et.ringSize";
+
+    static final String OVERFLOW_POLICY_PROPERTY = "et.overflowPolicy";
+
     static final String WAIT_TIME_PROPERTY = "et.waitTime";
 
     static final String WAIT_MODE_PROPERTY = "et.waitMode";
@@ -153,6 +162,17 @@ final class StationConfiguration {
      * The chunk size when getting ET events.
      */
     private Integer chunkSize = 1;
+
+    /**
+     * The size of the buffer for reading ET events on a separate thread.
+     * The default of 0 reads events on the processing thread.
+     */
+    private Integer ringSize = 0;
+
+    /**
+     * What to do with new ET events when the buffer is full.
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
     
     /**
      * The number of events to queue at once.
@@ -188,6 +208,17 @@ final class StationConfiguration {
      * is being included in the hadd command.
      */
     private boolean resetPlots = false;
+
+    /**
+     * Host and port of the server receiving plot updates, as <i>host:port</i>.
+     * If this is null then no plot updates are sent.
+     */
+    private String plotServer;
+
+    /**
+     * Interval in seconds for sending plot updates to the server.
+     */
+    private Integer plotUpdateInterval = 5;
     
     /**
      * True to print out job statistics with event interval.
@@ -335,6 +366,12 @@ final class StationConfiguration {
         if (props.containsKey(CHUNK_SIZE_PROPERTY)) {
             chunkSize = Integer.valueOf(props.getProperty(CHUNK_SIZE_PROPERTY));
         }
+        if (props.containsKey(RING_SIZE_PROPERTY)) {
+            ringSize = Integer.valueOf(props.getProperty(RING_SIZE_PROPERTY));
+        }
+        if (props.containsKey(OVERFLOW_POLICY_PROPERTY)) {
+            overflowPolicy = OverflowPolicy.valueOf(props.getProperty(OVERFLOW_POLICY_PROPERTY).toUpperCase());
+        }
         if (props.containsKey(OUTPUT_DIR_PROPERTY)) {
             outputDir = props.getProperty(OUTPUT_DIR_PROPERTY);
         }
@@ -353,6 +390,12 @@ final class StationConfiguration {
         if (props.containsKey(PLOT_RESET_PROPERTY)) {
             resetPlots = Boolean.parseBoolean(PLOT_RESET_PROPERTY);
         }
+        if (props.containsKey(PLOT_SERVER_PROPERTY)) {
+            plotServer = props.getProperty(PLOT_SERVER_PROPERTY);
+        }
+        if (props.containsKey(PLOT_UPDATE_INTERVAL_PROPERTY)) {
+            plotUpdateInterval = Integer.parseInt(props.getProperty(PLOT_UPDATE_INTERVAL_PROPERTY));
+        }
         if (props.containsKey(PRINT_LCIO_PROPERTY)) {
             printLcio = Boolean.parseBoolean(props.getProperty(PRINT_LCIO_PROPERTY));
         }
@@ -493,6 +536,14 @@ final class StationConfiguration {
         return chunkSize;
     }
     
+    Integer getRingSize() {
+        return ringSize;
+    }
+    
+    OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+    
     int getEtLogLevel() {
         return etLogLevel;
     }
@@ -505,6 +556,14 @@ final class StationConfiguration {
         return resetPlots;
     }
     
+    String getPlotServer() {
+        return plotServer;
+    }
+    
+    Integer getPlotUpdateInterval() {
+        return plotUpdateInterval;
+    }
+    
     Boolean getPrintLcio() {
         return this.printLcio;
     }
@@ -259,6 +259,10 @@ public class StationManager {
         sc.setProperty(StationConfiguration.STATION_PROPERTY, stationName);
         sc.setProperty(StationConfiguration.OUTPUT_NAME_PROPERTY, stationName.toLowerCase());
         sc.setProperty(StationConfiguration.OUTPUT_DIR_PROPERTY, dir.getPath());
+        PlotAggregator aggregator = this.server.getPlotAggregator();
+        if (aggregator != null) {
+            sc.setProperty(StationConfiguration.PLOT_SERVER_PROPERTY, "localhost:" + aggregator.getPort());
+        }
         sc.update();
         File scf = writeStationConfig(sc, dir, stationName);
                 
@@ -16,7 +16,8 @@ public class PlotAddCommand extends Command {
         super("plot-add", "Manage plot files from stations", "[options] [IDs]", 
                 "Set the -p option to specify a time in seconds for running the task periodically." + '\n' +
                     "By default the plots will just be added once and the task will not reoccur." + '\n' +
-                    "If no IDs are provided then plots from all active stations will be added."
+                    "If no IDs are provided then plots from all active stations will be added." + '\n' +
+                    "Set the -l option to save the plots merged live by the server instead of running hadd."
         );
     }
     
@@ -28,6 +29,7 @@ public class PlotAddCommand extends Command {
         options.getOption("t").setRequired(true);
         options.addOption(new Option("p", "period", true, "time in seconds for running task periodically"));
         options.addOption(new Option("v", "verbosity", true, "verbosity of the hadd command (0-99)"));
+        options.addOption(new Option("l", "live", false, "save plots merged live by the server instead of running hadd"));
         return options;
     }
     
@@ -51,6 +53,9 @@ public class PlotAddCommand extends Command {
         if (cl.hasOption("p")) {
             setParameter("period", Long.parseLong(cl.getOptionValue("p")));
         }
+        if (cl.hasOption("l")) {
+            setParameter("live", true);
+        }
         this.readStationIDs(cl);
     }
 }
@@ -35,6 +35,11 @@
  * An optional task runs server-side to automatically add output ROOT plots 
  * periodically and write them to an output target file.
  * 
+ * When the server is started with a plot port (<i>-P</i>), the stations also send 
+ * the changes in their plots to it every few seconds, and the server keeps the 
+ * merged plots in memory.  Running the plot task with the <i>--live</i> option 
+ * saves these merged plots instead of adding the station plot files with hadd.
+ * 
  * @author jeremym
  * @version 1.0
  */
@@ -0,0 +1,93 @@
+package org.hps.online.recon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the binary format of {@link HistogramDelta}.
+ */
+public class HistogramDeltaTest extends TestCase {
+
+    public void testWriteRead1D() throws IOException {
+        HistogramDelta delta = new HistogramDelta(0);
+        delta.path = "/dir/h1";
+        delta.title = "Test 1D";
+        delta.nx = 10;
+        delta.xlo = -1.5;
+        delta.xhi = 2.5;
+        for (int b = 0; b < delta.binCount(); b += 3) {
+            delta.add(b, b + 1, 1.5 * b, 2.5 * b, -0.5 * b, 0.25 * b, 0, 0);
+        }
+        HistogramDelta copy = writeRead(delta);
+        assertFalse(copy.is2D());
+        assertEquals(delta.path, copy.path);
+        assertEquals(delta.title, copy.title);
+        assertTrue(copy.sameBinning(delta));
+        assertBinsEqual(delta, copy);
+    }
+
+    public void testWriteRead2D() throws IOException {
+        HistogramDelta delta = new HistogramDelta(0);
+        delta.path = "/h2";
+        delta.title = "";
+        delta.nx = 4;
+        delta.xlo = 0;
+        delta.xhi = 4;
+        delta.ny = 3;
+        delta.ylo = -3;
+        delta.yhi = 3;
+        assertEquals(6 * 5, delta.binCount());
+        for (int b = 0; b < delta.binCount(); b += 2) {
+            delta.add(b, 1, 0.5 * b, 0.25 * b, b, 2. * b, -b, 3. * b);
+        }
+        HistogramDelta copy = writeRead(delta);
+        assertTrue(copy.is2D());
+        assertTrue(copy.sameBinning(delta));
+        assertBinsEqual(delta, copy);
+    }
+
+    public void testBadBin() throws IOException {
+        HistogramDelta delta = new HistogramDelta(1);
+        delta.path = "/h1";
+        delta.title = "";
+        delta.nx = 2;
+        delta.xlo = 0;
+        delta.xhi = 1;
+        delta.add(4, 1, 1, 1, 1, 1, 0, 0);
+        try {
+            writeRead(delta);
+            fail("No exception for a bin number out of range");
+        } catch (IOException e) {
+        }
+    }
+
+    private static HistogramDelta writeRead(HistogramDelta delta) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        delta.write(out);
+        out.flush();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        HistogramDelta copy = HistogramDelta.read(in);
+        assertEquals(-1, in.read());
+        return copy;
+    }
+
+    private static void assertBinsEqual(HistogramDelta expected, HistogramDelta actual) {
+        assertEquals(expected.size, actual.size);
+        for (int k = 0; k < expected.size; k++) {
+            assertEquals(expected.bins[k], actual.bins[k]);
+            assertEquals(expected.entries[k], actual.entries[k]);
+            assertEquals(expected.heights[k], actual.heights[k], 0);
+            assertEquals(expected.sumw2[k], actual.sumw2[k], 0);
+            assertEquals(expected.sumwx[k], actual.sumwx[k], 0);
+            assertEquals(expected.sumwx2[k], actual.sumwx2[k], 0);
+            assertEquals(expected.sumwy[k], actual.sumwy[k], 0);
+            assertEquals(expected.sumwy2[k], actual.sumwy2[k], 0);
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.hps.online.recon;
+
+import java.net.ServerSocket;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.lcsim.util.aida.AIDA;
+
+import hep.aida.IAnalysisFactory;
+import hep.aida.IHistogramFactory;
+import hep.aida.ITree;
+import hep.aida.ref.histogram.Histogram1D;
+import hep.aida.ref.histogram.Histogram2D;
+
+/**
+ * Send histogram updates from two stations with {@link PlotDeltaSender} to a {@link PlotAggregator}
+ * and check that the merged histograms are the same as one histogram filled with all the data.
+ */
+public class PlotAggregatorTest extends TestCase {
+
+    private static final String DIR = "/PlotAggregatorTest";
+    private static final double TOLERANCE = 1e-6;
+
+    /**
+     * The histograms of one station, or the reference histograms filled with the data of all the stations.
+     * Each test has its own directory, as the merged histograms of all the tests are in the same tree.
+     */
+    private static final class Plots {
+
+        final ITree tree;
+        final String path1;
+        final String path2;
+        final Histogram1D h1;
+        final Histogram2D h2;
+
+        Plots(IAnalysisFactory af, String dir) {
+            tree = af.createTreeFactory().create();
+            tree.mkdirs(dir);
+            path1 = dir + "/h1";
+            path2 = dir + "/h2";
+            IHistogramFactory hf = af.createHistogramFactory(tree);
+            h1 = (Histogram1D) hf.createHistogram1D(path1, "Test 1D", 40, -4, 4);
+            h2 = (Histogram2D) hf.createHistogram2D(path2, "Test 2D", 10, -2, 2, 8, -2, 2);
+        }
+
+        void fill(Random random, int n, Plots reference) {
+            for (int i = 0; i < n; i++) {
+                double x = random.nextGaussian() * 1.5;
+                double y = random.nextGaussian();
+                double w = 0.5 + random.nextDouble();
+                h1.fill(x, w);
+                h2.fill(x, y, w);
+                reference.h1.fill(x, w);
+                reference.h2.fill(x, y, w);
+            }
+        }
+
+        void reset() {
+            h1.reset();
+            h2.reset();
+        }
+    }
+
+    public void testMerge() throws Exception {
+        IAnalysisFactory af = IAnalysisFactory.create();
+        Plots reference = new Plots(af, DIR + "/merge");
+        Plots station1 = new Plots(af, DIR + "/merge");
+        Plots station2 = new Plots(af, DIR + "/merge");
+        Random random = new Random(5);
+
+        PlotAggregator aggregator = new PlotAggregator(freePort());
+        aggregator.start();
+        try {
+            PlotDeltaSender sender1 = new PlotDeltaSender("station1", "localhost:" + aggregator.getPort());
+            PlotDeltaSender sender2 = new PlotDeltaSender("station2", "localhost:" + aggregator.getPort());
+
+            // Several updates from each station, so that the later ones only have the changes.
+            for (int update = 0; update < 3; update++) {
+                station1.fill(random, 1000, reference);
+                sender1.send(station1.tree);
+                station2.fill(random, 500, reference);
+                sender2.send(station2.tree);
+            }
+            sender1.close();
+            sender2.close();
+
+            assertMerged(aggregator, reference);
+        } finally {
+            aggregator.stop();
+        }
+    }
+
+    /**
+     * Reset the histograms of a station after an update, as the plot driver does after saving them.
+     * The merged histograms keep the data from before the reset.
+     */
+    public void testMergeAfterReset() throws Exception {
+        IAnalysisFactory af = IAnalysisFactory.create();
+        Plots reference = new Plots(af, DIR + "/reset");
+        Plots station = new Plots(af, DIR + "/reset");
+        Random random = new Random(7);
+
+        PlotAggregator aggregator = new PlotAggregator(freePort());
+        aggregator.start();
+        try {
+            PlotDeltaSender sender = new PlotDeltaSender("station", "localhost:" + aggregator.getPort());
+            for (int update = 0; update < 3; update++) {
+                station.fill(random, 1000, reference);
+                sender.send(station.tree);
+                station.fill(random, 200, reference);
+                sender.sendBeforeReset(station.tree);
+                station.reset();
+            }
+            station.fill(random, 300, reference);
+            sender.send(station.tree);
+            sender.close();
+
+            assertMerged(aggregator, reference);
+        } finally {
+            aggregator.stop();
+        }
+    }
+
+    /**
+     * Wait for the updates to be added on the aggregator's threads and compare the merged histograms
+     * with the reference.
+     */
+    private static void assertMerged(PlotAggregator aggregator, Plots reference) throws Exception {
+        long timeout = System.currentTimeMillis() + 10000;
+        Histogram1D merged1 = null;
+        Histogram2D merged2 = null;
+        while (System.currentTimeMillis() < timeout) {
+            synchronized (aggregator) {
+                if (aggregator.getHistogramCount() == 2) {
+                    merged1 = (Histogram1D) AIDA.defaultInstance().tree().find(reference.path1);
+                    merged2 = (Histogram2D) AIDA.defaultInstance().tree().find(reference.path2);
+                    if (merged1.allEntries() == reference.h1.allEntries()
+                            && merged2.allEntries() == reference.h2.allEntries()) {
+                        break;
+                    }
+                }
+            }
+            Thread.sleep(10);
+        }
+        assertNotNull(merged1);
+        assertNotNull(merged2);
+        synchronized (aggregator) {
+            assertSame1D(reference.h1, merged1);
+            assertSame2D(reference.h2, merged2);
+        }
+    }
+
+    private static int freePort() throws Exception {
+        ServerSocket socket = new ServerSocket(0);
+        int port = socket.getLocalPort();
+        socket.close();
+        return port;
+    }
+
+    private static void assertClose(String what, double expected, double actual) {
+        assertEquals(what, expected, actual, TOLERANCE * Math.max(1, Math.abs(expected)));
+    }
+
+    private static void assertSame1D(Histogram1D expected, Histogram1D actual) {
+        assertEquals("title", expected.title(), actual.title());
+        assertEquals("entries", expected.allEntries(), actual.allEntries());
+        assertClose("mean", expected.mean(), actual.mean());
+        assertClose("rms", expected.rms(), actual.rms());
+        assertTrue("rms", actual.rms() > 0);
+        for (int i = -2; i < expected.axis().bins(); i++) {
+            assertEquals("entries " + i, expected.binEntries(i), actual.binEntries(i));
+            assertClose("height " + i, expected.binHeight(i), actual.binHeight(i));
+            assertClose("error " + i, expected.binError(i), actual.binError(i));
+            assertClose("mean " + i, expected.binMean(i), actual.binMean(i));
+            assertClose("rms " + i, expected.binRms(i), actual.binRms(i));
+        }
+    }
+
+    private static void assertSame2D(Histogram2D expected, Histogram2D actual) {
+        assertEquals("entries", expected.allEntries(), actual.allEntries());
+        assertClose("meanX", expected.meanX(), actual.meanX());
+        assertClose("meanY", expected.meanY(), actual.meanY());
+        assertClose("rmsX", expected.rmsX(), actual.rmsX());
+        assertClose("rmsY", expected.rmsY(), actual.rmsY());
+        for (int i = -2; i < expected.xAxis().bins(); i++) {
+            for (int j = -2; j < expected.yAxis().bins(); j++) {
+                String bin = " " + i + "," + j;
+                assertEquals("entries" + bin, expected.binEntries(i, j), actual.binEntries(i, j));
+                assertClose("height" + bin, expected.binHeight(i, j), actual.binHeight(i, j));
+                assertClose("error" + bin, expected.binError(i, j), actual.binError(i, j));
+                assertClose("meanX" + bin, expected.binMeanX(i, j), actual.binMeanX(i, j));
+                assertClose("meanY" + bin, expected.binMeanY(i, j), actual.binMeanY(i, j));
+                assertClose("rmsX" + bin, expected.binRmsX(i, j), actual.binRmsX(i, j));
+                assertClose("rmsY" + bin, expected.binRmsY(i, j), actual.binRmsY(i, j));
+            }
+        }
+    }
+}
@@ -3,7 +3,13 @@ package org.hps.recon.particle;
 import static java.lang.Math.sqrt;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.hps.conditions.beam.BeamPosition;
@@ -15,6 +21,7 @@ import org.hps.recon.tracking.TrackUtils;
 import org.hps.recon.vertexing.BilliorTrack;
 import org.hps.recon.vertexing.BilliorVertex;
 import org.hps.recon.vertexing.BilliorVertexer;
+import org.hps.recon.vertexing.FastBilliorVertexer;
 import org.hps.record.StandardCuts;
 import org.lcsim.detector.tracker.silicon.HpsSiSensor;
 import org.lcsim.event.EventHeader;
@@ -172,6 +179,44 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
     private boolean _patchVertexTrackParameters = false;
     private boolean _storeCovTrkMomList = false;
 
+    /**
+     * Number of threads used to fit the V0 candidates of an event.
+     */
+    private int vertexThreads = 1;
+
+    /**
+     * Pool on which the electron-positron pairs are fit, or <code>null</code>
+     * to fit them in the calling thread.
+     */
+    private ForkJoinPool vertexPool = null;
+
+    /**
+     * Whether to fit the vertices with {@link FastBilliorVertexer} instead of
+     * {@link BilliorVertexer}.
+     */
+    private boolean useFastVertexer = false;
+
+    /**
+     * The fast vertexer of each thread fitting pairs, since it keeps its
+     * workspace between fits. It is replaced when the detector changes.
+     */
+    private ThreadLocal<FastBilliorVertexer> fastVertexer = null;
+
+    /**
+     * The vertices and candidate particles fit for an electron-positron pair,
+     * indexed by {@link Constraint#ordinal()}.
+     */
+    private static final class V0Pair {
+
+        private final boolean isV0;
+        private final BilliorVertex[] vertices = new BilliorVertex[DOF.length];
+        private final ReconstructedParticle[] candidates = new ReconstructedParticle[DOF.length];
+
+        private V0Pair(boolean isV0) {
+            this.isV0 = isV0;
+        }
+    }
+
     public HpsReconParticleDriver() {
         super();
     }
@@ -180,6 +225,15 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
 
         // Make sure super-class setup is activated.
         super.detectorChanged(detector);
+
+        // The fast vertexers are made with the field of this detector.
+        final double field = bField;
+        fastVertexer = new ThreadLocal<FastBilliorVertexer>() {
+            @Override
+            protected FastBilliorVertexer initialValue() {
+                return new FastBilliorVertexer(field);
+            }
+        };
         
         // Setup optional usage of beam positions from database.
         final DatabaseConditionsManager mgr = DatabaseConditionsManager.getInstance();
@@ -282,6 +336,29 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
         this.requireClustersForV0=b;
     }
 
+    /**
+     * Set the number of threads used to fit the V0 candidates of an event.
+     * Each electron-positron pair is fit as a separate task, and the
+     * candidates are stored in the same order as with a single thread.
+     *
+     * @param vertexThreads - The number of threads. With less than 2 the pairs
+     * are fit in the calling thread.
+     */
+    public void setVertexThreads(int vertexThreads) {
+        this.vertexThreads = vertexThreads;
+    }
+
+    /**
+     * Set whether to fit the vertices with {@link FastBilliorVertexer}, which
+     * gives the same vertices as {@link BilliorVertexer} with much less
+     * matrix allocation.
+     *
+     * @param useFastVertexer - <code>true</code> to use the fast vertexer.
+     */
+    public void setUseFastVertexer(boolean useFastVertexer) {
+        this.useFastVertexer = useFastVertexer;
+    }
+
     /**
      * Processes the track and cluster collections in the event into
      * reconstructed particles and V0 candidate particles and vertices. These
@@ -370,22 +447,93 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
     public void findV0s(List<ReconstructedParticle> electrons, List<ReconstructedParticle> positrons) {
         List<ReconstructedParticle> goodElectrons = particleCuts(electrons);
         List<ReconstructedParticle> goodPositrons = particleCuts(positrons);
+
+        // Convert each track once rather than once per pair and constraint.
+        // The map is only read while the pairs are fit.
+        Map<ReconstructedParticle, BilliorTrack> billiorTracks = new IdentityHashMap<ReconstructedParticle, BilliorTrack>();
+        toBilliorTracks(goodElectrons, billiorTracks);
+        toBilliorTracks(goodPositrons, billiorTracks);
+
+        List<ReconstructedParticle[]> pairs = new ArrayList<ReconstructedParticle[]>();
         for (ReconstructedParticle positron : goodPositrons) {
             for (ReconstructedParticle electron : goodElectrons) {
                 // Don't vertex a GBL track with a SeedTrack.
                 if (TrackType.isGBL(positron.getType()) != TrackType.isGBL(electron.getType())) {
                     continue;
                 }
-                
-                // Make V0 candidates
-                try {
-                    this.makeV0Candidates(electron, positron);
-                }
-                catch (RuntimeException e) {
-                    e.printStackTrace();
-                    System.out.println("HpsReconParticleDriver::makeV0Candidates fails:: skipping ele/pos pair.");
-                    continue;
+                pairs.add(new ReconstructedParticle[] {electron, positron});
+            }
+        }
+
+        // Make V0 candidates
+        for (V0Pair v0Pair : fitV0Pairs(pairs, billiorTracks)) {
+            if (v0Pair != null) {
+                addV0Candidates(v0Pair);
+            }
+        }
+    }
+
+    /**
+     * Fits the electron-positron pairs, on the vertex pool if there is one.
+     *
+     * @param pairs - The electron-positron pairs.
+     * @param billiorTracks - The tracks of the particles.
+     * @return Returns the fits in the order of the pairs, with <code>null
+     * </code> for the pairs which do not make V0 candidates.
+     */
+    private List<V0Pair> fitV0Pairs(List<ReconstructedParticle[]> pairs, final Map<ReconstructedParticle, BilliorTrack> billiorTracks) {
+        List<V0Pair> v0Pairs = new ArrayList<V0Pair>(pairs.size());
+        if (vertexPool == null || pairs.size() < 2) {
+            for (ReconstructedParticle[] pair : pairs) {
+                v0Pairs.add(fitV0Pair(pair[0], pair[1], billiorTracks));
+            }
+            return v0Pairs;
+        }
+        List<ForkJoinTask<V0Pair>> tasks = new ArrayList<ForkJoinTask<V0Pair>>(pairs.size());
+        for (final ReconstructedParticle[] pair : pairs) {
+            tasks.add(vertexPool.submit(new Callable<V0Pair>() {
+                @Override
+                public V0Pair call() {
+                    return fitV0Pair(pair[0], pair[1], billiorTracks);
                 }
+            }));
+        }
+        // Join in submission order so the output does not depend on the number of threads.
+        for (ForkJoinTask<V0Pair> task : tasks) {
+            v0Pairs.add(task.join());
+        }
+        return v0Pairs;
+    }
+
+    /**
+     * Fits an electron-positron pair, skipping it if the fit fails.
+     */
+    private V0Pair fitV0Pair(ReconstructedParticle electron, ReconstructedParticle positron, Map<ReconstructedParticle, BilliorTrack> billiorTracks) {
+        BilliorTrack electronBTrack = billiorTracks.get(electron);
+        BilliorTrack positronBTrack = billiorTracks.get(positron);
+        if (electronBTrack == null || positronBTrack == null) {
+            return null;
+        }
+        try {
+            return this.makeV0Candidates(electron, positron, electronBTrack, positronBTrack);
+        }
+        catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "makeV0Candidates fails, skipping ele/pos pair.", e);
+            return null;
+        }
+    }
+
+    /**
+     * Converts the tracks of the particles to <code>BilliorTrack</code>
+     * objects, leaving out the particles whose track cannot be converted.
+     */
+    private void toBilliorTracks(List<ReconstructedParticle> particles, Map<ReconstructedParticle, BilliorTrack> billiorTracks) {
+        for (ReconstructedParticle particle : particles) {
+            try {
+                billiorTracks.put(particle, toBilliorTrack(particle.getTracks().get(0)));
+            }
+            catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "toBilliorTrack fails, skipping particle.", e);
             }
         }
     }
@@ -458,6 +606,16 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
         if (unconstrainedVcVerticesColName == null) {
             unconstrainedVcVerticesColName = unconstrainedV0VerticesColName.replaceAll("V0", "Vc");
         }
+        vertexPool = (vertexThreads > 1) ? new ForkJoinPool(vertexThreads) : null;
+    }
+
+    @Override
+    protected void endOfData() {
+        super.endOfData();
+        if (vertexPool != null) {
+            vertexPool.shutdown();
+            vertexPool = null;
+        }
     }
 
     /**
@@ -477,30 +635,25 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
         BilliorTrack electronBTrack = toBilliorTrack(electron.getTracks().get(0));
         BilliorTrack positronBTrack = toBilliorTrack(positron.getTracks().get(0));
 
-        // Create a vertex fitter from the magnetic field.
-        // Note that the vertexing code uses the tracking frame coordinates
-        // HPS X => TRACK Y
-        // HPS Y => TRACK Z
-        // HPS Z => TRACK X
-        BilliorVertexer vtxFitter = new BilliorVertexer(bField);
-        // TODO: The beam size should come from the conditions database.
-        vtxFitter.setBeamSize(beamSize);
-        vtxFitter.setBeamPosition(beamPositionToUse);
-        vtxFitter.setStoreCovTrkMomList(_storeCovTrkMomList);
-        vtxFitter.setDebug(debug);
+        return fitVertex(constraint, electron, positron, electronBTrack, positronBTrack);
+    }
 
-        // Perform the vertexing based on the specified constraint.
-        switch (constraint) {
-            case UNCONSTRAINED:
-                vtxFitter.doBeamSpotConstraint(false);
-                break;
-            case BS_CONSTRAINED:
-                vtxFitter.doBeamSpotConstraint(true);
-                break;
-            case TARGET_CONSTRAINED:
-                vtxFitter.doTargetConstraint(true);
-                break;
-        }
+    /**
+     * Fits a vertex from an electron/positron track pair using the indicated
+     * constraint and tracks which have already been converted to <code>
+     * BilliorTrack</code> objects. This only reads the tracks, so they can be
+     * shared between pairs fit at the same time.
+     *
+     * @param constraint - The constraint type to use.
+     * @param electron - The electron track.
+     * @param positron - The positron track.
+     * @param electronBTrack - The electron track as a <code>BilliorTrack</code>.
+     * @param positronBTrack - The positron track as a <code>BilliorTrack</code>.
+     * @return Returns the reconstructed vertex as a <code>BilliorVertex
+     * </code> object.
+     */
+    private BilliorVertex fitVertex(Constraint constraint, ReconstructedParticle electron, ReconstructedParticle positron,
+            BilliorTrack electronBTrack, BilliorTrack positronBTrack) {
 
         // Add the electron and positron tracks to a track list for
         // the vertex fitter.
@@ -509,7 +662,7 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
         billiorTracks.add(positronBTrack);
 
         // Find a vertex based on the tracks.
-        BilliorVertex vtx = vtxFitter.fitVertex(billiorTracks);
+        BilliorVertex vtx = fitVertex(constraint, billiorTracks, null);
 
         int minLayEle = 6;
         int minLayPos = 6;
@@ -559,9 +712,8 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
 //            }
             //mg 5/11/2018:  use referencePosition, separate from beam position  
             Hep3Vector newRefPoint = new BasicHep3Vector(vtx.getPosition().z(), vtx.getPosition().x(), 0);
-            vtxFitter.setReferencePosition(newRefPoint.v());
 
-            BilliorVertex vtxNew = vtxFitter.fitVertex(shiftedTracks);
+            BilliorVertex vtxNew = fitVertex(constraint, shiftedTracks, newRefPoint.v());
             vtxNew.setLayerCode(vtx.getLayerCode());
             vtxNew.setProbability(DOF[constraint.ordinal()]);
             return vtxNew;
@@ -571,9 +723,80 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
     }
 
     /**
+     * Fits a vertex with a new <code>BilliorVertexer</code>, or with the
+     * <code>FastBilliorVertexer</code> of the calling thread if it is enabled.
+     *
+     * @param constraint - The constraint type to use.
+     * @param billiorTracks - The electron and positron tracks.
+     * @param referencePosition - The reference position of the tracks in the
+     * tracking frame, or <code>null</code> for the origin.
+     * @return Returns the reconstructed vertex.
+     */
+    private BilliorVertex fitVertex(Constraint constraint, List<BilliorTrack> billiorTracks, double[] referencePosition) {
+        // Note that the vertexing code uses the tracking frame coordinates
+        // HPS X => TRACK Y
+        // HPS Y => TRACK Z
+        // HPS Z => TRACK X
+        if (useFastVertexer) {
+            FastBilliorVertexer vtxFitter = fastVertexer.get();
+            vtxFitter.reset();
+            vtxFitter.setBeamSize(beamSize);
+            vtxFitter.setBeamPosition(beamPositionToUse);
+            vtxFitter.setStoreCovTrkMomList(_storeCovTrkMomList);
+            vtxFitter.setDebug(debug);
+            if (referencePosition != null) {
+                vtxFitter.setReferencePosition(referencePosition);
+            }
+            switch (constraint) {
+                case UNCONSTRAINED:
+                    vtxFitter.doBeamSpotConstraint(false);
+                    break;
+                case BS_CONSTRAINED:
+                    vtxFitter.doBeamSpotConstraint(true);
+                    break;
+                case TARGET_CONSTRAINED:
+                    vtxFitter.doTargetConstraint(true);
+                    break;
+            }
+            return vtxFitter.fitVertex(billiorTracks);
+        }
+
+        // Create a vertex fitter from the magnetic field.
+        BilliorVertexer vtxFitter = new BilliorVertexer(bField);
+        // TODO: The beam size should come from the conditions database.
+        vtxFitter.setBeamSize(beamSize);
+        vtxFitter.setBeamPosition(beamPositionToUse);
+        vtxFitter.setStoreCovTrkMomList(_storeCovTrkMomList);
+        vtxFitter.setDebug(debug);
+        if (referencePosition != null) {
+            vtxFitter.setReferencePosition(referencePosition);
+        }
+
+        // Perform the vertexing based on the specified constraint.
+        switch (constraint) {
+            case UNCONSTRAINED:
+                vtxFitter.doBeamSpotConstraint(false);
+                break;
+            case BS_CONSTRAINED:
+                vtxFitter.doBeamSpotConstraint(true);
+                break;
+            case TARGET_CONSTRAINED:
+                vtxFitter.doTargetConstraint(true);
+                break;
+        }
+        return vtxFitter.fitVertex(billiorTracks);
+    }
+
+    /**
+     * Fits the vertices and makes the candidate particles of an
+     * electron-positron pair without storing them, so that pairs can be fit
+     * at the same time.
      *
+     * @return Returns the fits, or <code>null</code> if the pair does not
+     * make V0 candidates.
      */
-    private void makeV0Candidates(ReconstructedParticle electron, ReconstructedParticle positron) {
+    private V0Pair makeV0Candidates(ReconstructedParticle electron, ReconstructedParticle positron,
+            BilliorTrack electronBTrack, BilliorTrack positronBTrack) {
         
         //boolean eleIsTop = (electron.getTracks().get(0).getTrackerHits().get(0).getPosition()[2] > 0);
         //boolean posIsTop = (positron.getTracks().get(0).getTrackerHits().get(0).getPosition()[2] > 0);
@@ -583,47 +806,48 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
         boolean posIsTop = (positron.getTracks().get(0).getTrackStates().get(0).getTanLambda() > 0);
         
         if ((eleIsTop == posIsTop) && (!makeConversionCols)) {
-            return;
+            return null;
         }
 
         if (electron.getClusters() == null || positron.getClusters() == null) {
-            return;
+            return null;
         }
         if (requireClustersForV0&&(electron.getClusters().isEmpty() || positron.getClusters().isEmpty())) {
-            return;
+            return null;
         }
         if(requireClustersForV0){
             double eleClusTime = ClusterUtilities.getSeedHitTime(electron.getClusters().get(0));
             double posClusTime = ClusterUtilities.getSeedHitTime(positron.getClusters().get(0));
 
             if (Math.abs(eleClusTime - posClusTime) > cuts.getMaxVertexClusterDt()) {
-                return;
+                return null;
             }
         }
         // Handle UNCONSTRAINED case, to make decisions whether we store the vertexes.
         // This is done here so that we either store all types, or none, but never a mix.
-        BilliorVertex vtxFit = fitVertex(Constraint.UNCONSTRAINED, electron, positron);
+        BilliorVertex vtxFit = fitVertex(Constraint.UNCONSTRAINED, electron, positron, electronBTrack, positronBTrack);
 
         ReconstructedParticle candidate = makeReconstructedParticle(electron, positron, vtxFit);
 
         if (candidate.getMomentum().magnitude() > cuts.getMaxVertexP()) {
-            return;
+            return null;
         }
 
         if (candidate.getStartVertex().getProbability() < cuts.getMinVertexChisqProb()) {
-            return;
+            return null;
         }
         
         // patch the track parameters at the found vertex
         if (_patchVertexTrackParameters) {
             patchVertex(vtxFit);
         }
-        if (eleIsTop != posIsTop) {
-            unconstrainedV0Vertices.add(vtxFit);
-            unconstrainedV0Candidates.add(candidate);
-        } else {
-            unconstrainedVcVertices.add(vtxFit);
-            unconstrainedVcCandidates.add(candidate);
+        V0Pair v0Pair = new V0Pair(eleIsTop != posIsTop);
+        v0Pair.vertices[Constraint.UNCONSTRAINED.ordinal()] = vtxFit;
+        v0Pair.candidates[Constraint.UNCONSTRAINED.ordinal()] = candidate;
+
+        // Only the unconstrained fit of a conversion candidate is stored.
+        if (!v0Pair.isV0) {
+            return v0Pair;
         }
 
         // Create candidate particles for the other two constraints.
@@ -631,30 +855,30 @@ public class HpsReconParticleDriver extends ReconParticleDriver {
             if(constraint == Constraint.UNCONSTRAINED) continue;           // Skip the UNCONSTRAINED case, done already
             
             // Generate a candidate vertex and particle.
-            vtxFit = fitVertex(constraint, electron, positron);
-
-            candidate = makeReconstructedParticle(electron, positron, vtxFit);
-
-            // Add the other candidate vertex and particle to the
-            // appropriate LCIO collection.
-            switch (constraint) {
-
-                case BS_CONSTRAINED:
-                    if (eleIsTop != posIsTop) {
-                        beamConV0Vertices.add(vtxFit);
-                        beamConV0Candidates.add(candidate);
-                    }
-                    break;
-
-                case TARGET_CONSTRAINED:
-                    if (eleIsTop != posIsTop) {
-                        targetConV0Vertices.add(vtxFit);
-                        targetConV0Candidates.add(candidate);
-                    }
-                    break;
+            vtxFit = fitVertex(constraint, electron, positron, electronBTrack, positronBTrack);
+            v0Pair.vertices[constraint.ordinal()] = vtxFit;
+            v0Pair.candidates[constraint.ordinal()] = makeReconstructedParticle(electron, positron, vtxFit);
+        }
+        return v0Pair;
+    }
 
-            }
+    /**
+     * Adds the vertices and candidate particles of an electron-positron pair
+     * to the appropriate LCIO collections.
+     */
+    private void addV0Candidates(V0Pair v0Pair) {
+        int unconstrained = Constraint.UNCONSTRAINED.ordinal();
+        if (!v0Pair.isV0) {
+            unconstrainedVcVertices.add(v0Pair.vertices[unconstrained]);
+            unconstrainedVcCandidates.add(v0Pair.candidates[unconstrained]);
+            return;
         }
+        unconstrainedV0Vertices.add(v0Pair.vertices[unconstrained]);
+        unconstrainedV0Candidates.add(v0Pair.candidates[unconstrained]);
+        beamConV0Vertices.add(v0Pair.vertices[Constraint.BS_CONSTRAINED.ordinal()]);
+        beamConV0Candidates.add(v0Pair.candidates[Constraint.BS_CONSTRAINED.ordinal()]);
+        targetConV0Vertices.add(v0Pair.vertices[Constraint.TARGET_CONSTRAINED.ordinal()]);
+        targetConV0Candidates.add(v0Pair.candidates[Constraint.TARGET_CONSTRAINED.ordinal()]);
     }
 
     /**
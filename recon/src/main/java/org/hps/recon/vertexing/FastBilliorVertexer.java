@@ -0,0 +1,748 @@
+package org.hps.recon.vertexing;
+
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.tan;
+
+import hep.physics.matrix.BasicMatrix;
+import hep.physics.matrix.Matrix;
+import hep.physics.matrix.SymmetricMatrix;
+import hep.physics.vec.BasicHep3Vector;
+import hep.physics.vec.Hep3Vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hps.recon.tracking.CoordinateTransformations;
+import org.hps.recon.tracking.matrix.Mat3;
+import org.hps.recon.tracking.matrix.SmallMatrix;
+import org.lcsim.constants.Constants;
+
+/**
+ * The two-track vertex fit of {@link BilliorVertexer} done on flat, row-major primitive arrays.
+ * <p>
+ * The fit follows the same steps as <code>BilliorVertexer</code>: the Billoir, Fruhwirth and Regler fit of the
+ * vertex and the track momenta (theta, phi_v, rho), followed by the beam spot or target constraint as a progressive
+ * least squares step, and returns a <code>BilliorVertex</code> with the same contents. The intermediate matrices are
+ * kept in arrays owned by the vertexer and reused by every fit, so only the returned vertex and its matrices are
+ * allocated. A vertexer is not thread safe; use one per thread.
+ */
+public class FastBilliorVertexer {
+
+    private static final int NTRACKS = 2;
+
+    // Size of the state of the constraint step, the vertex followed by the momenta of the tracks.
+    private static final int NSTATE = 3 * (NTRACKS + 1);
+
+    private static final double[] ORIGIN = {0.0, 0.0, 0.0};
+
+    private boolean storeCovTrkMomList = false;
+    private boolean _debug = false;
+    private final double _bField;
+    private boolean _beamspotConstraint = false;
+    private boolean _targetConstraint = false;
+    private String _constraintType = "Unconstrained";
+    private final double[] _beamSize = {0.001, 0.01, 0.01}; //10um in y and z
+    private final double[] _beamPosition = {0.0, 0.0, 0.0}; //origin
+    private final double[] _referencePosition = {0.0, 0.0, 0.0}; //origin
+    private final double[] _v0 = {0.0, 0.0, 0.0}; //initial guess for unconstrained vertex fit
+
+    // Fit results, in the tracking frame.
+    private final double[] vertex = new double[3];
+    private final double[] covVtx = new double[9];
+    private final double[][] pFit = new double[NTRACKS][3];
+    private final double[][] covVtxMom = new double[NTRACKS][9];
+    private final double[][][] covMom = new double[NTRACKS][NTRACKS][9];
+    private double _chiSq;
+
+    // Per-track workspace of the unconstrained fit.
+    private final double[][] a = new double[NTRACKS][15];
+    private final double[][] b = new double[NTRACKS][15];
+    private final double[][] g = new double[NTRACKS][25];
+    private final double[][] c = new double[NTRACKS][5];
+    private final double[][] p = new double[NTRACKS][5];
+    private final double[][] d = new double[NTRACKS][9];
+    private final double[][] eInv = new double[NTRACKS][9];
+    private final double[][] dEInv = new double[NTRACKS][9];
+    private final double[][] bTGp = new double[NTRACKS][3];
+
+    // Scratch arrays.
+    private final double[] cov5 = new double[25];
+    private final double[] work25 = new double[25];
+    private final double[] aTG = new double[15];
+    private final double[] bTG = new double[15];
+    private final double[] m3 = new double[9];
+    private final double[] d0 = new double[9];
+    private final double[] v3 = new double[3];
+    private final double[] w3 = new double[3];
+    private final double[] bigsum = new double[3];
+    private final double[] r5 = new double[5];
+    private final double[] mom = new double[3];
+    private final double[] mom2 = new double[3];
+    private final double[] jac = new double[9];
+    private final double[] jac2 = new double[9];
+    private final double[] momCov = new double[9];
+    private final double[] momCov2 = new double[9];
+    private final double[] momCov12 = new double[9];
+
+    // Workspace of the constraint step.
+    private final double[] ckm1 = new double[NSTATE * NSTATE];
+    private final double[] xkm1 = new double[NSTATE];
+    private final double[] hk = new double[NSTATE * 3];
+    private final double[] rk = new double[3];
+    private final double[] hTC = new double[3 * NSTATE];
+    private final double[] rkMat = new double[9];
+    private final double[] rkInv = new double[9];
+    private final double[] cH = new double[NSTATE * 3];
+    private final double[] kk = new double[NSTATE * 3];
+    private final double[] t = new double[3 * NSTATE];
+    private final double[] ck = new double[NSTATE * NSTATE];
+    private final double[] xk = new double[NSTATE];
+
+    public FastBilliorVertexer(double bField) {
+        _bField = bField;
+    }
+
+    public void setStoreCovTrkMomList(boolean value) {
+        storeCovTrkMomList = value;
+    }
+
+    public void setDebug(boolean debug) {
+        _debug = debug;
+    }
+
+    public void setBeamSize(double[] bs) {
+        _beamSize[0] = bs[0];
+        _beamSize[1] = bs[1];
+        _beamSize[2] = bs[2];
+    }
+
+    public void setBeamPosition(double[] bp) {
+        _beamPosition[0] = bp[0];
+        _beamPosition[1] = bp[1];
+        _beamPosition[2] = bp[2];
+    }
+
+    public void setReferencePosition(double[] rp) {
+        _referencePosition[0] = rp[0];
+        _referencePosition[1] = rp[1];
+        _referencePosition[2] = rp[2];
+    }
+
+    public void doBeamSpotConstraint(boolean bsconst) {
+        _beamspotConstraint = bsconst;
+        _targetConstraint = false;
+        _constraintType = bsconst ? "BeamspotConstrained" : "Unconstrained";
+    }
+
+    public void doTargetConstraint(boolean tconst) {
+        _beamspotConstraint = false;
+        _targetConstraint = tconst;
+        _constraintType = tconst ? "TargetConstrained" : "Unconstrained";
+    }
+
+    /**
+     * Reset the vertexer to an unconstrained fit about the origin, so that it can be reused for another pair.
+     */
+    public void reset() {
+        doBeamSpotConstraint(false);
+        setReferencePosition(ORIGIN);
+    }
+
+    public double getChiSq() {
+        return _chiSq;
+    }
+
+    /**
+     * Fit the vertex of two tracks.
+     *
+     * @param tracks the two tracks
+     * @return the vertex, with the same contents as the one from {@link BilliorVertexer#fitVertex(List)}
+     */
+    public BilliorVertex fitVertex(List<BilliorTrack> tracks) {
+        if (tracks.size() != NTRACKS) {
+            throw new IllegalArgumentException("Can only fit " + NTRACKS + " tracks, not " + tracks.size());
+        }
+        follow1985Paper(tracks);
+        if (_beamspotConstraint)
+            applyBSconstraint(true);
+        else if (_targetConstraint)
+            applyBSconstraint(false);
+
+        Map<Integer, Hep3Vector> pFitMap = new HashMap<Integer, Hep3Vector>();
+        for (int i = 0; i < NTRACKS; i++) {
+            fittedMomentum(i, mom);
+            pFitMap.put(i, CoordinateTransformations.transformVectorToDetector(new BasicHep3Vector(mom[0], mom[1], mom[2])));
+        }
+        Hep3Vector vert = new BasicHep3Vector(vertex[0] + _referencePosition[0], vertex[1] + _referencePosition[1], vertex[2] + _referencePosition[2]);
+        Hep3Vector vertDet = CoordinateTransformations.transformVectorToDetector(vert);
+        SymmetricMatrix covVtxDet = CoordinateTransformations.transformCovarianceToDetector(new SymmetricMatrix(toMatrix(covVtx)));
+
+        // The momentum covariances of the two tracks and their cross term.
+        fittedMomentum(0, mom);
+        fittedMomentum(1, mom2);
+        fittedMomentumCovariance(0, momCov);
+        fittedMomentumCovariance(1, momCov2);
+        fittedTrk1Trk2MomCovariance(momCov12);
+
+        BilliorVertex result = new BilliorVertex(vertDet, covVtxDet, _chiSq, invMass(), pFitMap, _constraintType);
+        result.setPositionError(CoordinateTransformations.transformVectorToDetector(new BasicHep3Vector(Math.sqrt(covVtx[0]),
+                Math.sqrt(covVtx[4]), Math.sqrt(covVtx[8]))));
+        result.setMassError(invMassUncertainty());
+        List<Matrix> pcov = new ArrayList<Matrix>();
+        pcov.add(CoordinateTransformations.transformCovarianceToDetector(new SymmetricMatrix(toMatrix(momCov))));
+        pcov.add(CoordinateTransformations.transformCovarianceToDetector(new SymmetricMatrix(toMatrix(momCov2))));
+        pcov.add(CoordinateTransformations.transformCovarianceToDetector(new SymmetricMatrix(toMatrix(momCov12))));
+        result.setTrackMomentumCovariances(pcov);
+        result.setStoreCovTrkMomList(storeCovTrkMomList);
+        Hep3Vector v0Mom = new BasicHep3Vector(mom[0] + mom2[0], mom[1] + mom2[1], mom[2] + mom2[2]);
+        Hep3Vector v0MomErr = new BasicHep3Vector(Math.sqrt(momCov[0] + momCov2[0] + 2 * momCov12[0]),
+                Math.sqrt(momCov[4] + momCov2[4] + 2 * momCov12[4]), Math.sqrt(momCov[8] + momCov2[8] + 2 * momCov12[8]));
+        result.setV0Momentum(CoordinateTransformations.transformVectorToDetector(v0Mom),
+                CoordinateTransformations.transformVectorToDetector(v0MomErr));
+        result.setV0TargetXY(v0Projection(), v0ProjectionError());
+        List<double[]> tpars = new ArrayList<double[]>();
+        List<Matrix> tcov = new ArrayList<Matrix>();
+        for (int i = 0; i < NTRACKS; i++) {
+            tpars.add(pFit[i].clone());
+            tcov.add(toMatrix(covMom[i][i]));
+        }
+        result.setFittedTrackParameters(tpars);
+        result.setFittedTrackCovariance(tcov);
+        if (_debug)
+            System.out.println(_constraintType + "  FastBilliorVertexer::chi^2 = " + _chiSq + "  " + result);
+        return result;
+    }
+
+    /*
+    *  The method here follows the 1985 paper from
+    *  Billoir, P., Fruhwirth, R., & Regler, M. (1985).
+    *  "Track element merging strategy and vertex fitting
+    *  in complex modular detectors."
+    *  Nucl. Instrum. Methods Phys. Res., A, 241, 115-131. 42 p.
+    *  http://cds.cern.ch/record/1330744
+    *  See BilliorVertexer for the notation.
+     */
+    private void follow1985Paper(List<BilliorTrack> tracks) {
+        double[] v0 = _v0;
+        zero(d0);
+        zero(bigsum);
+        for (int i = 0; i < NTRACKS; i++) {
+            BilliorTrack bt = tracks.get(i);
+            double[] par = bt.parameters();
+            double[] ai = a[i];
+            double[] bi = b[i];
+            double[] gi = g[i];
+            double[] ci = c[i];
+            double[] pi = p[i];
+
+            double theta = par[2];
+            double rho = par[4];
+            double cotth = 1. / tan(par[2]);
+            double uu = v0[0] * cos(par[3]) + v0[1] * sin(par[3]);//Q
+            double vv = v0[1] * cos(par[3]) - v0[0] * sin(par[3]);//R
+            double eps = -vv - .5 * uu * uu * par[4];
+            double zp = v0[2] - uu * (1 - vv * par[4]) * cotth;
+            double phiVert = par[3] - uu * par[4];
+
+            double cosf = cos(phiVert);
+            double sinf = sin(phiVert);
+            zero(ai);
+            ai[0] = sinf;
+            ai[1] = -cosf;
+            ai[3] = -cotth * cosf;
+            ai[4] = -cotth * sinf;
+            ai[5] = 1;
+            ai[9] = -par[4] * cosf;
+            ai[10] = -par[4] * sinf;
+
+            zero(bi);
+            bi[1] = uu;    // deps/dphiv
+            bi[2] = -uu * uu / 2;  //deps/drho
+            bi[3] = uu * (1 + cotth * cotth);  //dzp/dtheta
+            bi[4] = -vv * cotth;//  dzp/dphiv
+            bi[5] = uu * vv * cotth;  //dzp/drho
+            bi[6] = 1;  //partial(theta)/dtheta
+            bi[10] = 1; //dphip/dphiv
+            bi[11] = -uu; //dphip/drho
+            bi[14] = 1; //partial (rho)/drho
+
+            // c = p0 - A v0 - B q0, with the measured parameters moved to v0 and q0 = (theta, phiVert, rho)
+            double[] p0 = r5;
+            p0[0] = eps;
+            p0[1] = zp;
+            p0[2] = theta;
+            p0[3] = phiVert;
+            p0[4] = rho;
+            for (int r = 0; r < 5; r++) {
+                int r3 = 3 * r;
+                ci[r] = p0[r] - (ai[r3] * v0[0] + ai[r3 + 1] * v0[1] + ai[r3 + 2] * v0[2])
+                        - (bi[r3] * theta + bi[r3 + 1] * phiVert + bi[r3 + 2] * rho);
+                pi[r] = par[r] - ci[r];
+            }
+
+            // G is the weight matrix, the inverse of the covariance
+            Matrix cov = bt.covariance();
+            for (int r = 0; r < 5; r++) {
+                for (int k = 0; k < 5; k++) {
+                    cov5[5 * r + k] = cov.e(r, k);
+                }
+            }
+            invert(5, cov5, gi);
+
+            multiplyTransposedLeft(ai, 5, 3, gi, 5, aTG); // A^T G
+            multiplyTransposedLeft(bi, 5, 3, gi, 5, bTG); // B^T G
+            multiply(aTG, 3, 5, ai, 3, m3);
+            add(d0, m3);
+            multiply(aTG, 3, 5, bi, 3, d[i]); // D = A^T G B
+            multiply(bTG, 3, 5, bi, 3, m3); // E = B^T G B
+            invert3(m3, eInv[i]);
+            Mat3.multiply(d[i], eInv[i], dEInv[i]);
+            multiply(bTG, 3, 5, pi, 1, bTGp[i]);
+
+            // bigsum += (A^T G - A^T G B E^-1 B^T G) p = A^T G p - D E^-1 (B^T G p)
+            multiply(aTG, 3, 5, pi, 1, v3);
+            Mat3.multiplyVector(dEInv[i], bTGp[i], w3);
+            for (int r = 0; r < 3; r++) {
+                bigsum[r] += v3[r] - w3[r];
+            }
+        }
+
+        // C00 = D0 - sum (Di)(Ei-1)(DiT)
+        for (int i = 0; i < NTRACKS; i++) {
+            SmallMatrix.multiplyTransposed(3, dEInv[i], d[i], m3);
+            for (int k = 0; k < 9; k++) {
+                d0[k] -= m3[k];
+            }
+        }
+        invert3(d0, covVtx);
+        Mat3.multiplyVector(covVtx, bigsum, vertex);
+
+        double chisq = 0;
+        for (int j = 0; j < NTRACKS; j++) {
+            double[] aj = a[j];
+            double[] bj = b[j];
+            double[] dj = d[j];
+            // qtilde = E^-1 (B^T G p - D^T xtilde), equations 22b and 22d from 1985 NIM
+            for (int r = 0; r < 3; r++) {
+                v3[r] = bTGp[j][r] - (dj[r] * vertex[0] + dj[3 + r] * vertex[1] + dj[6 + r] * vertex[2]);
+            }
+            double[] qtilde = w3;
+            Mat3.multiplyVector(eInv[j], v3, qtilde);
+            // residual of the measured parameters, p - ptilde with ptilde = A xtilde + B qtilde
+            for (int r = 0; r < 5; r++) {
+                int r3 = 3 * r;
+                r5[r] = p[j][r] - (aj[r3] * vertex[0] + aj[r3 + 1] * vertex[1] + aj[r3 + 2] * vertex[2]
+                        + bj[r3] * qtilde[0] + bj[r3 + 1] * qtilde[1] + bj[r3 + 2] * qtilde[2]);
+            }
+            chisq += SmallMatrix.quadraticForm(5, g[j], r5);
+
+            // C0j = - C00 Dj Ej^-1
+            Mat3.multiply(covVtx, dEInv[j], covVtxMom[j]);
+            negate(covVtxMom[j]);
+
+            pFit[j][0] = qtilde[0] + c[j][2];
+            pFit[j][1] = qtilde[1] + c[j][3];
+            pFit[j][2] = qtilde[2] + c[j][4];
+        }
+        // Cij = - Ei^-1 DiT C0j + delta_ij Ei^-1
+        for (int j = 0; j < NTRACKS; j++) {
+            for (int i = 0; i < NTRACKS; i++) {
+                multiplyTransposedLeft(d[i], 3, 3, covVtxMom[j], 3, m3);
+                double[] cij = covMom[i][j];
+                Mat3.multiply(eInv[i], m3, cij);
+                negate(cij);
+                if (i == j)
+                    add(cij, eInv[i]);
+            }
+        }
+        _chiSq = chisq;
+        if (_debug)
+            System.out.println("FastBilliorVertexer::follow1985Paper::vertex = " + Arrays.toString(vertex)
+                    + "  chi^2 = " + _chiSq);
+    }
+
+    /*  Add the constraint that V0 is at/points back to beamspot
+     *  using the unconstrained fit result as the (k-1) fit,
+     *  as in BilliorVertexer
+     *
+     *  all notation is taken from:
+     * W. Hulsbergen, NIM 552 (2005) 566-575
+     */
+    private void applyBSconstraint(boolean pointback) {
+        zero(ckm1);
+        setBlock(ckm1, NSTATE, covVtx, 0, 0, false);
+        for (int i = 0; i < 3; i++)
+            xkm1[i] = vertex[i];
+        for (int i = 0; i < NTRACKS; i++) {
+            setBlock(ckm1, NSTATE, covVtxMom[i], 0, 3 * (i + 1), false);
+            setBlock(ckm1, NSTATE, covVtxMom[i], 3 * (i + 1), 0, true);
+            for (int k = 0; k < 3; k++)
+                xkm1[3 * (i + 1) + k] = pFit[i][k];
+            for (int j = 0; j < NTRACKS; j++)
+                setBlock(ckm1, NSTATE, covMom[i][j], 3 * (i + 1), 3 * (j + 1), false);
+        }
+
+        double Vx = vertex[0];
+        double Vy = vertex[1];
+        double Vz = vertex[2];
+        double pxtot = 0;
+        double pytot = 0;
+        double pztot = 0;
+        for (int i = 0; i < NTRACKS; i++) {
+            fittedMomentum(i, mom);
+            pxtot += mom[0];
+            pytot += mom[1];
+            pztot += mom[2];
+        }
+        makeRk(Vx, Vy, Vz, pxtot, pytot, pztot, pointback);
+        makeHkFixed(Vx, pxtot, pytot, pztot, pointback);
+        if (_debug)
+            System.out.println("FastBilliorVertexer::applyBSconstraint::rk = " + Arrays.toString(rk));
+
+        // Rk = Hk^T Ckm1 Hk + Vk
+        multiplyTransposedLeft(hk, NSTATE, 3, ckm1, NSTATE, hTC);
+        multiply(hTC, 3, NSTATE, hk, 3, rkMat);
+        rkMat[0] += _beamSize[0] * _beamSize[0];
+        rkMat[4] += _beamSize[1] * _beamSize[1];
+        rkMat[8] += _beamSize[2] * _beamSize[2];
+        invert3(rkMat, rkInv);
+        if (_debug)
+            System.out.println("FastBilliorVertexer::applyBSconstraint::Rk = " + Arrays.toString(rkMat));
+
+        // Kk = Ckm1 Hk Rk^-1 and Xk = Xkm1 + Kk rk
+        multiply(ckm1, NSTATE, NSTATE, hk, 3, cH);
+        multiply(cH, NSTATE, 3, rkInv, 3, kk);
+        multiply(kk, NSTATE, 3, rk, 1, xk);
+        for (int r = 0; r < NSTATE; r++)
+            xk[r] += xkm1[r];
+
+        // Ck = Ckm1 + Kk (-2 Hk^T Ckm1 + Rk Kk^T)
+        for (int r = 0; r < 3; r++) {
+            for (int col = 0; col < NSTATE; col++) {
+                double s = -2 * hTC[r * NSTATE + col];
+                for (int k = 0; k < 3; k++)
+                    s += rkMat[3 * r + k] * kk[3 * col + k];
+                t[r * NSTATE + col] = s;
+            }
+        }
+        multiply(kk, NSTATE, 3, t, NSTATE, ck);
+        for (int k = 0; k < NSTATE * NSTATE; k++)
+            ck[k] += ckm1[k];
+
+        //update the regular parameter names to the constrained result
+        for (int k = 0; k < 3; k++)
+            vertex[k] = xk[k];
+        getBlock(ck, NSTATE, 0, 0, covVtx);
+        for (int i = 0; i < NTRACKS; i++) {
+            for (int k = 0; k < 3; k++)
+                pFit[i][k] = xk[3 * (i + 1) + k];
+            getBlock(ck, NSTATE, 0, 3 * (i + 1), covVtxMom[i]);
+            for (int j = 0; j < NTRACKS; j++)
+                getBlock(ck, NSTATE, 3 * (i + 1), 3 * (j + 1), covMom[i][j]);
+        }
+        _chiSq += SmallMatrix.quadraticForm(3, rkInv, rk);
+    }
+
+    /*
+    *    rK is the residual of the projected beamspot to the target
+     */
+    private void makeRk(double Vx, double Vy, double Vz, double pxtot, double pytot, double pztot, boolean bscon) {
+        if (bscon) {
+            rk[0] = 0;
+            rk[1] = _beamPosition[1] - ((Vy + _referencePosition[1]) - pytot / pxtot * (Vx - _beamPosition[0] + _referencePosition[0]));
+            rk[2] = _beamPosition[2] - ((Vz + _referencePosition[2]) - pztot / pxtot * (Vx - _beamPosition[0] + _referencePosition[0]));
+        } else {
+            rk[0] = _beamPosition[0] - Vx;
+            rk[1] = _beamPosition[1] - Vy;
+            rk[2] = _beamPosition[2] - Vz;
+        }
+    }
+
+    /*
+    *    The derivatives of the constraint, as in BilliorVertexer.makeHkFixed
+     */
+    private void makeHkFixed(double Vx, double pxtot, double pytot, double pztot, boolean bscon) {
+        zero(hk);
+        //derivitives wrt to V
+        if (bscon) {
+            hk[1] = -pytot / pxtot;
+            hk[2] = -pztot / pxtot;
+        } else {
+            hk[0] = 1;
+        }
+        hk[4] = 1;
+        hk[8] = 1;
+        if (!bscon)
+            return;
+
+        double dx = _beamPosition[0] - (Vx + _referencePosition[0]);
+        for (int i = 0; i < NTRACKS; i++) {
+            // derivatives wrt the momentum of track i depend on the momentum of the other track
+            double theta = pFit[i][0];
+            double phiv = pFit[i][1];
+            double rho = pFit[i][2];
+            fittedMomentum(1 - i, mom2);
+            double pxo = mom2[0];
+            double pyo = mom2[1];
+            double pzo = mom2[2];
+            double den = pxo * rho + Math.cos(phiv);
+            double den2 = Math.pow(den, 2);
+            int row = 3 * (i + 1);
+            //derivatives wrt theta
+            hk[3 * row + 2] = -((dx * Math.pow(1 / Math.sin(theta), 2)) / den);
+            //derivatives wrt phi
+            hk[3 * (row + 1) + 1] = (dx * (1 + pxo * rho * Math.cos(phiv) + pyo * rho * Math.sin(phiv))) / den2;
+            hk[3 * (row + 1) + 2] = (dx * (pzo * rho + 1 / Math.tan(theta)) * Math.sin(phiv)) / den2;
+            //derivatives wrt rho
+            hk[3 * (row + 2) + 1] = (dx * (pyo * Math.cos(phiv) - pxo * Math.sin(phiv))) / den2;
+            hk[3 * (row + 2) + 2] = (dx * (pzo * Math.cos(phiv) - pxo * 1 / Math.tan(theta))) / den2;
+        }
+    }
+
+    private void fittedMomentum(int index, double[] out) {
+        double theta = pFit[index][0];
+        double phiv = pFit[index][1];
+        double rho = pFit[index][2];
+        double Pt = Math.abs((1. / rho) * _bField * Constants.fieldConversion);
+        out[0] = Pt * Math.cos(phiv);
+        out[1] = Pt * Math.sin(phiv);
+        out[2] = Pt * 1 / Math.tan(theta);
+    }
+
+    private void jacobianThetaPhiRhoToPxPyPz(int index, double[] out) {
+        double theta = pFit[index][0];
+        double phiv = pFit[index][1];
+        double rho = pFit[index][2];
+        double B = _bField * Constants.fieldConversion;
+        out[0] = 0;
+        out[1] = -(Math.abs(B / rho) * Math.sin(phiv));
+        out[2] = -(B * Math.cos(phiv) / Math.pow(rho, 2));
+        out[3] = 0;
+        out[4] = Math.abs(B / rho) * Math.cos(phiv);
+        out[5] = -(B * Math.sin(phiv) / Math.pow(rho, 2));
+        out[6] = -(Math.abs(B / rho) * Math.pow(1 / Math.sin(theta), 2));
+        out[7] = 0;
+        out[8] = -(B * (1 / Math.tan(theta)) / Math.pow(rho, 2));
+    }
+
+    private void fittedMomentumCovariance(int index, double[] out) {
+        jacobianThetaPhiRhoToPxPyPz(index, jac);
+        Mat3.similarity(jac, covMom[index][index], out);
+    }
+
+    private void fittedTrk1Trk2MomCovariance(double[] out) {
+        jacobianThetaPhiRhoToPxPyPz(0, jac);
+        jacobianThetaPhiRhoToPxPyPz(1, jac2);
+        Mat3.multiply(jac, covMom[0][1], m3);
+        SmallMatrix.multiplyTransposed(3, m3, jac2, out);
+    }
+
+    private double invMass() {
+        double esum = 0.;
+        double pxsum = 0.;
+        double pysum = 0.;
+        double pzsum = 0.;
+        double me = 0.000511;
+        for (int i = 0; i < NTRACKS; i++) {
+            fittedMomentum(i, v3);
+            double p1mag2 = v3[0] * v3[0] + v3[1] * v3[1] + v3[2] * v3[2];
+            pxsum += v3[0];
+            pysum += v3[1];
+            pzsum += v3[2];
+            esum += Math.sqrt(p1mag2 + me * me);
+        }
+        double psum = Math.sqrt(pxsum * pxsum + pysum * pysum + pzsum * pzsum);
+        double evtmass = esum * esum - psum * psum;
+
+        if (evtmass > 0)
+            return Math.sqrt(evtmass);
+        else
+            return -99;
+    }
+
+    // Uses mom, mom2, momCov and momCov2 filled by fitVertex.
+    private double invMassUncertainty() {
+        double me = 0.000511;
+        double p1x = mom[0];
+        double p1y = mom[1];
+        double p1z = mom[2];
+        double p2x = mom2[0];
+        double p2y = mom2[1];
+        double p2z = mom2[2];
+        double p1mag2 = p1x * p1x + p1y * p1y + p1z * p1z;
+        double e1 = Math.sqrt(p1mag2 + me * me);
+        double p2mag2 = p2x * p2x + p2y * p2y + p2z * p2z;
+        double e2 = Math.sqrt(p2mag2 + me * me);
+        double pxsum = p1x + p2x;
+        double pysum = p1y + p2y;
+        double pzsum = p1z + p2z;
+        double esum = e1 + e2;
+        double psum = Math.sqrt(pxsum * pxsum + pysum * pysum + pzsum * pzsum);
+        double evtmass = esum * esum - psum * psum;
+        double mErrOverMSq = Math.pow((p2x * e1 - p1x * e2) / e1, 2) * momCov[0];
+        mErrOverMSq += Math.pow((p2x * e1 - p1x * e2) / e2, 2) * momCov2[0];
+        mErrOverMSq += Math.pow((p2y * e1 - p1y * e2) / e1, 2) * momCov[4];
+        mErrOverMSq += Math.pow((p2y * e1 - p1y * e2) / e2, 2) * momCov2[4];
+        mErrOverMSq += Math.pow((p2z * e1 - p1z * e2) / e1, 2) * momCov[8];
+        mErrOverMSq += Math.pow((p2z * e1 - p1z * e2) / e2, 2) * momCov2[8];
+        mErrOverMSq /= 4 * Math.pow(p1x * p2x + p1y * p2y + p1z * p2z - (me * me + e1 * e2), 2);
+        return Math.sqrt(mErrOverMSq * evtmass);
+    }
+
+    /*
+     *  the V0 xy projection back to the target, see BilliorVertexer.getV0Projection()
+     *  ... flip the coordinate systems here (tracking->detector:  x->z, y->x, z->y)
+     */
+    private double[] v0Projection() {
+        double pvZ = mom[0] + mom2[0];
+        double pvX = mom[1] + mom2[1];
+        double pvY = mom[2] + mom2[2];
+        double sX = pvX / pvZ;
+        double sY = pvY / pvZ;
+        double vZ = vertex[0] + _referencePosition[0];
+        double vX = vertex[1] + _referencePosition[1];
+        double vY = vertex[2] + _referencePosition[2];
+        double delZ = _beamPosition[0] - vZ;
+        return new double[] {delZ * sX + vX, delZ * sY + vY};
+    }
+
+    /*
+     *  the error on the V0 xy projection back to the target, see BilliorVertexer.getV0ProjectionError()
+     */
+    private double[] v0ProjectionError() {
+        double pvZ = mom[0] + mom2[0];
+        double pvX = mom[1] + mom2[1];
+        double pvY = mom[2] + mom2[2];
+        double sX = pvX / pvZ;
+        double sY = pvY / pvZ;
+        double vZ = vertex[0] + _referencePosition[0];
+        double delZ = _beamPosition[0] - vZ;
+        double[] cov1 = momCov;
+        double[] cov2 = momCov2;
+        double[] cov12 = momCov12;
+        double[] cv = covVtx;
+        double[] cvm1 = covVtxMom[0];
+        double[] cvm2 = covVtxMom[1];
+        final int zz = 0; // (zInd, zInd)
+        final int xx = 4; // (xInd, xInd)
+        final int yy = 8; // (yInd, yInd)
+        final int zx = 1; // (zInd, xInd)
+        final int xz = 3; // (xInd, zInd)
+        final int zy = 2; // (zInd, yInd)
+        final int yz = 6; // (yInd, zInd)
+
+        double sigX2 = sX * sX * cv[zz] + Math.pow(delZ / pvZ, 2) * (cov1[xx] + cov2[xx]
+                + sX * sX * (cov1[zz] + cov2[zz])) + cv[xx];
+        sigX2 += 2 * (sX * delZ / pvZ * (-cvm1[zx] - cvm2[zx]
+                + sX * (cvm1[zz] + cvm2[zz])));
+        sigX2 += 2 * (delZ / Math.pow(pvZ, 2) * (cov12[xx] - sX * (cov1[xz] + cov12[xz]
+                + cov12[zx] + cov2[xz]) + Math.pow(sX, 2) * cov12[zz]));
+        sigX2 += 2 * (-sX * cv[xz] + delZ / pvZ * (cvm1[xx] + cvm2[xx]
+                - sX * (cvm1[xz] + cvm2[xz])));
+
+        double sigY2 = sY * sY * cv[zz] + Math.pow(delZ / pvZ, 2) * (cov1[yy] + cov2[yy]
+                + sY * sY * (cov1[zz] + cov2[zz])) + cv[yy];
+        sigY2 += 2 * (sY * delZ / pvZ * (-cvm1[zy] - cvm2[zy]
+                + sY * (cvm1[zz] + cvm2[zz])));
+        sigY2 += 2 * (delZ / Math.pow(pvZ, 2) * (cov12[yy] - sY * (cov1[yz] + cov12[yz]
+                + cov12[zy] + cov2[yz]) + Math.pow(sY, 2) * cov12[zz]));
+        sigY2 += 2 * (-sY * cv[yz] + delZ / pvZ * (cvm1[yy] + cvm2[yy]
+                - sY * (cvm1[yz] + cvm2[yz])));
+
+        return new double[] {Math.sqrt(sigX2), Math.sqrt(sigY2)};
+    }
+
+    @Override
+    public String toString() {
+        return "Vertex at : \nx= " + vertex[0] + " +/- " + Math.sqrt(covVtx[0]) + "\ny= " + vertex[1] + " +/- "
+                + Math.sqrt(covVtx[4]) + "\nz= " + vertex[2] + " +/- " + Math.sqrt(covVtx[8]);
+    }
+
+    private void invert(int n, double[] m, double[] out) {
+        if (!SmallMatrix.invert(n, m, out, work25)) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+    }
+
+    private void invert3(double[] m, double[] out) {
+        invert(3, m, out);
+    }
+
+    /**
+     * out (rows x cols) = a (rows x n) * b (n x cols)
+     */
+    private static void multiply(double[] a, int rows, int n, double[] b, int cols, double[] out) {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                double s = 0.;
+                for (int k = 0; k < n; k++) {
+                    s += a[i * n + k] * b[k * cols + j];
+                }
+                out[i * cols + j] = s;
+            }
+        }
+    }
+
+    /**
+     * out (cols x bcols) = transpose(a) * b, where a is n x cols and b is n x bcols
+     */
+    private static void multiplyTransposedLeft(double[] a, int n, int cols, double[] b, int bcols, double[] out) {
+        for (int i = 0; i < cols; i++) {
+            for (int j = 0; j < bcols; j++) {
+                double s = 0.;
+                for (int k = 0; k < n; k++) {
+                    s += a[k * cols + i] * b[k * bcols + j];
+                }
+                out[i * bcols + j] = s;
+            }
+        }
+    }
+
+    private static void setBlock(double[] m, int n, double[] block, int row, int col, boolean transpose) {
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                m[(row + i) * n + col + j] = transpose ? block[3 * j + i] : block[3 * i + j];
+            }
+        }
+    }
+
+    private static void getBlock(double[] m, int n, int row, int col, double[] block) {
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                block[3 * i + j] = m[(row + i) * n + col + j];
+            }
+        }
+    }
+
+    private static void add(double[] a, double[] b) {
+        for (int k = 0; k < a.length; k++) {
+            a[k] += b[k];
+        }
+    }
+
+    private static void negate(double[] a) {
+        for (int k = 0; k < a.length; k++) {
+            a[k] = -a[k];
+        }
+    }
+
+    private static void zero(double[] a) {
+        for (int k = 0; k < a.length; k++) {
+            a[k] = 0.;
+        }
+    }
+
+    private static BasicMatrix toMatrix(double[] m) {
+        BasicMatrix out = new BasicMatrix(3, 3);
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                out.setElement(i, j, m[3 * i + j]);
+            }
+        }
+        return out;
+    }
+}
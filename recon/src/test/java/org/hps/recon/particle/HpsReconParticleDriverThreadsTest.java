@@ -0,0 +1,152 @@
+package org.hps.recon.particle;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import hep.physics.vec.Hep3Vector;
+
+import junit.framework.TestCase;
+
+import org.hps.conditions.database.DatabaseConditionsManager;
+import org.lcsim.event.ReconstructedParticle;
+import org.lcsim.event.TrackState;
+import org.lcsim.event.Vertex;
+import org.lcsim.event.base.BaseReconstructedParticle;
+import org.lcsim.event.base.BaseTrack;
+import org.lcsim.event.base.BaseTrackState;
+import org.lcsim.geometry.Detector;
+
+/**
+ * Check that {@link HpsReconParticleDriver} makes the same V0 candidates, in the same order, when the
+ * electron-positron pairs are fit on several threads as when they are fit in the calling thread.
+ */
+public class HpsReconParticleDriverThreadsTest extends TestCase {
+
+    private static final String DETECTOR = "HPS-PhysicsRun2016-v5-3-fieldmap_v4_globalAlign";
+    private static final int RUN = 7796;
+    private static final int N_EVENTS = 20;
+    private static final int PARTICLES_PER_CHARGE = 5;
+
+    private Detector detector;
+
+    @Override
+    protected void setUp() throws Exception {
+        DatabaseConditionsManager manager = DatabaseConditionsManager.getInstance();
+        manager.setDetector(DETECTOR, RUN);
+        detector = manager.getDetectorObject();
+    }
+
+    private HpsReconParticleDriver createDriver(int vertexThreads, boolean useFastVertexer) {
+        HpsReconParticleDriver driver = new HpsReconParticleDriver();
+        driver.setVertexThreads(vertexThreads);
+        driver.setUseFastVertexer(useFastVertexer);
+        driver.setRequireClustersForV0(false);
+        driver.setMakeConversionCols(true);
+        driver.detectorChanged(detector);
+        driver.startOfData();
+        return driver;
+    }
+
+    /**
+     * Clear the candidate collections, which are made by the driver for every event.
+     */
+    private static void clear(HpsReconParticleDriver driver) {
+        driver.unconstrainedV0Candidates = new ArrayList<ReconstructedParticle>();
+        driver.beamConV0Candidates = new ArrayList<ReconstructedParticle>();
+        driver.targetConV0Candidates = new ArrayList<ReconstructedParticle>();
+        driver.unconstrainedV0Vertices = new ArrayList<Vertex>();
+        driver.beamConV0Vertices = new ArrayList<Vertex>();
+        driver.targetConV0Vertices = new ArrayList<Vertex>();
+        driver.unconstrainedVcCandidates = new ArrayList<ReconstructedParticle>();
+        driver.unconstrainedVcVertices = new ArrayList<Vertex>();
+    }
+
+    /**
+     * Create a particle with a track from near the target, in the top or bottom half of the detector.
+     */
+    private static ReconstructedParticle createParticle(Random random, int charge, double bField) {
+        // d0, phi0, omega, z0, tan(lambda)
+        double[] params = {0.2 * random.nextGaussian(), 0.04 * random.nextGaussian(),
+                charge * (1e-4 + 1e-4 * random.nextDouble()), 0.2 * random.nextGaussian(),
+                (random.nextBoolean() ? 1 : -1) * (0.015 + 0.03 * random.nextDouble())};
+        double[] sigma = {0.1, 1.5e-3, 3e-6, 0.15, 1e-3};
+        double[] cov = new double[15];
+        for (int i = 0, k = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++, k++) {
+                cov[k] = i == j ? sigma[i] * sigma[i] : 0.1 * sigma[i] * sigma[j] * (2 * random.nextDouble() - 1);
+            }
+        }
+        BaseTrack track = new BaseTrack();
+        track.getTrackStates().add(new BaseTrackState(params, new double[] {0., 0., 0.}, cov, TrackState.AtIP, bField));
+        BaseReconstructedParticle particle = new BaseReconstructedParticle();
+        particle.addTrack(track);
+        particle.setCharge(charge);
+        return particle;
+    }
+
+    private static void assertSameVector(String message, Hep3Vector expected, Hep3Vector actual) {
+        assertEquals(message, expected.x(), actual.x(), 0);
+        assertEquals(message, expected.y(), actual.y(), 0);
+        assertEquals(message, expected.z(), actual.z(), 0);
+    }
+
+    private static void assertSameCandidates(String name, List<ReconstructedParticle> expected,
+            List<ReconstructedParticle> actual) {
+        assertEquals(name, expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ReconstructedParticle e = expected.get(i);
+            ReconstructedParticle a = actual.get(i);
+            String message = name + " " + i;
+            assertSame(message, e.getParticles().get(0), a.getParticles().get(0));
+            assertSame(message, e.getParticles().get(1), a.getParticles().get(1));
+            assertEquals(message, e.getMass(), a.getMass(), 0);
+            assertSameVector(message, e.getMomentum(), a.getMomentum());
+            assertSameVector(message, e.getStartVertex().getPosition(), a.getStartVertex().getPosition());
+            assertEquals(message, e.getStartVertex().getChi2(), a.getStartVertex().getChi2(), 0);
+            assertEquals(message, e.getStartVertex().getProbability(), a.getStartVertex().getProbability(), 0);
+        }
+    }
+
+    private void checkThreads(boolean useFastVertexer) {
+        HpsReconParticleDriver serial = createDriver(1, useFastVertexer);
+        HpsReconParticleDriver parallel = createDriver(4, useFastVertexer);
+        Random random = new Random(19);
+        int nCandidates = 0;
+        try {
+            for (int event = 0; event < N_EVENTS; event++) {
+                List<ReconstructedParticle> electrons = new ArrayList<ReconstructedParticle>();
+                List<ReconstructedParticle> positrons = new ArrayList<ReconstructedParticle>();
+                for (int i = 0; i < PARTICLES_PER_CHARGE; i++) {
+                    electrons.add(createParticle(random, -1, serial.bField));
+                    positrons.add(createParticle(random, 1, serial.bField));
+                }
+                clear(serial);
+                clear(parallel);
+                serial.findV0s(electrons, positrons);
+                parallel.findV0s(electrons, positrons);
+                assertSameCandidates("unconstrained", serial.unconstrainedV0Candidates,
+                        parallel.unconstrainedV0Candidates);
+                assertSameCandidates("beamspot", serial.beamConV0Candidates, parallel.beamConV0Candidates);
+                assertSameCandidates("target", serial.targetConV0Candidates, parallel.targetConV0Candidates);
+                assertSameCandidates("conversion", serial.unconstrainedVcCandidates,
+                        parallel.unconstrainedVcCandidates);
+                assertEquals(serial.unconstrainedV0Candidates.size(), serial.unconstrainedV0Vertices.size());
+                assertEquals(parallel.unconstrainedV0Candidates.size(), parallel.unconstrainedV0Vertices.size());
+                nCandidates += serial.unconstrainedV0Candidates.size();
+            }
+        } finally {
+            serial.endOfData();
+            parallel.endOfData();
+        }
+        assertTrue("no V0 candidates were made", nCandidates > 0);
+    }
+
+    public void testBilliorVertexer() {
+        checkThreads(false);
+    }
+
+    public void testFastBilliorVertexer() {
+        checkThreads(true);
+    }
+}
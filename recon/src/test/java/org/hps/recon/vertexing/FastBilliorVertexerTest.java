@@ -0,0 +1,133 @@
+package org.hps.recon.vertexing;
+
+import hep.physics.matrix.SymmetricMatrix;
+import hep.physics.vec.Hep3Vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.lcsim.event.TrackState;
+import org.lcsim.event.base.BaseTrackState;
+
+/**
+ * Check that {@link FastBilliorVertexer} gives the same vertices as {@link BilliorVertexer} for random track pairs,
+ * with and without constraints and with a shifted reference position.
+ */
+public class FastBilliorVertexerTest extends TestCase {
+
+    private static final double B_FIELD = 0.52; // Tesla
+    private static final double[] BEAM_SIZE = {0.001, 0.125, 0.03};
+    private static final double[] BEAM_POSITION = {-4.3, 0.05, -0.02};
+
+    private final Random rnd = new Random(7);
+
+    private BilliorTrack randomTrack(int charge) {
+        // d0, phi0, omega, z0, tan(lambda)
+        double[] params = {0.2 * rnd.nextGaussian(), 0.04 * rnd.nextGaussian(), charge * (1e-4 + 1e-4 * rnd.nextDouble()),
+                0.2 * rnd.nextGaussian(), 0.03 * rnd.nextGaussian()};
+        double[] sigma = {0.1, 1.5e-3, 3e-6, 0.15, 1e-3};
+        double[][] l = new double[5][5];
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++) {
+                l[i][j] = (i == j) ? 1. : 0.3 * rnd.nextGaussian();
+            }
+        }
+        double[] packed = new double[15];
+        int k = 0;
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j <= i; j++) {
+                double c = 0.;
+                for (int m = 0; m < 5; m++) {
+                    c += l[i][m] * l[j][m];
+                }
+                packed[k++] = c * sigma[i] * sigma[j];
+            }
+        }
+        TrackState ts = new BaseTrackState(params, new double[] {0., 0., 0.}, packed, TrackState.AtIP, B_FIELD);
+        return new BilliorTrack(ts, 0, 0);
+    }
+
+    public void testSameVertices() {
+        FastBilliorVertexer fast = new FastBilliorVertexer(B_FIELD);
+        for (int pair = 0; pair < 200; pair++) {
+            List<BilliorTrack> tracks = new ArrayList<BilliorTrack>();
+            tracks.add(randomTrack(-1));
+            tracks.add(randomTrack(1));
+            double[] reference = {10 * rnd.nextGaussian(), rnd.nextGaussian(), 0.};
+            for (int constraint = 0; constraint < 3; constraint++) {
+                for (int shifted = 0; shifted < 2; shifted++) {
+                    BilliorVertexer slow = new BilliorVertexer(B_FIELD);
+                    slow.setBeamSize(BEAM_SIZE);
+                    slow.setBeamPosition(BEAM_POSITION);
+                    fast.reset();
+                    fast.setBeamSize(BEAM_SIZE);
+                    fast.setBeamPosition(BEAM_POSITION);
+                    if (shifted == 1) {
+                        slow.setReferencePosition(reference);
+                        fast.setReferencePosition(reference);
+                    }
+                    if (constraint == 1) {
+                        slow.doBeamSpotConstraint(true);
+                        fast.doBeamSpotConstraint(true);
+                    } else if (constraint == 2) {
+                        slow.doTargetConstraint(true);
+                        fast.doTargetConstraint(true);
+                    }
+                    compare(slow.fitVertex(tracks), fast.fitVertex(tracks));
+                }
+            }
+        }
+    }
+
+    public void testRejectsWrongTrackCount() {
+        List<BilliorTrack> tracks = new ArrayList<BilliorTrack>();
+        tracks.add(randomTrack(-1));
+        try {
+            new FastBilliorVertexer(B_FIELD).fitVertex(tracks);
+            fail("Fit of a single track should fail.");
+        } catch (IllegalArgumentException e) {
+        }
+    }
+
+    private static void compare(BilliorVertex expected, BilliorVertex actual) {
+        assertEquals(expected.getParameters().keySet(), actual.getParameters().keySet());
+        assertClose(expected.getPosition(), actual.getPosition());
+        assertClose(expected.getPositionError(), actual.getPositionError());
+        assertClose(expected.getChi2(), actual.getChi2());
+        assertClose(expected.getInvMass(), actual.getInvMass());
+        assertClose(expected.getInvMassError(), actual.getInvMassError());
+        assertClose(expected.getV0Momentum(), actual.getV0Momentum());
+        assertClose(expected.getV0MomentumError(), actual.getV0MomentumError());
+        for (int i = 0; i < 2; i++) {
+            assertClose(expected.getFittedMomentum(i), actual.getFittedMomentum(i));
+            assertClose(expected.getV0TargetXY()[i], actual.getV0TargetXY()[i]);
+            assertClose(expected.getV0TargetXYError()[i], actual.getV0TargetXYError()[i]);
+            for (int j = 0; j < 3; j++) {
+                assertClose(expected.getFittedTrackParameters(i)[j], actual.getFittedTrackParameters(i)[j]);
+            }
+        }
+        // Compare the covariance relative to the errors, since the constraints make some of the correlations
+        // small differences of large numbers.
+        SymmetricMatrix e = expected.getCovMatrix();
+        SymmetricMatrix a = actual.getCovMatrix();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                double scale = Math.sqrt(e.e(i, i) * e.e(j, j));
+                assertEquals(e.e(i, j), a.e(i, j), 1e-4 * scale);
+            }
+        }
+    }
+
+    private static void assertClose(Hep3Vector expected, Hep3Vector actual) {
+        assertClose(expected.x(), actual.x());
+        assertClose(expected.y(), actual.y());
+        assertClose(expected.z(), actual.z());
+    }
+
+    private static void assertClose(double expected, double actual) {
+        assertEquals(expected, actual, 1e-6 * Math.max(Math.abs(expected), 1e-9));
+    }
+}
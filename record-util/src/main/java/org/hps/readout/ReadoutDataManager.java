@@ -4,9 +4,9 @@ import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -15,6 +15,7 @@ import java.util.Set;
 import java.util.logging.Logger;
 
 import org.hps.conditions.database.DatabaseConditionsManager;
+import org.hps.readout.util.TimeBucketBuffer;
 import org.hps.readout.util.TimedList;
 import org.hps.readout.util.TriggerTime;
 import org.hps.readout.util.collection.LCIOCollection;
@@ -72,6 +73,11 @@ public class ReadoutDataManager extends Driver {
      * Tracks all registered readout drivers.
      */
     private static final Set<ReadoutDriver> driverSet = new HashSet<ReadoutDriver>();
+    /**
+     * Tracks all instantiated readout and trigger drivers in the
+     * order in which they were created.
+     */
+    private static final List<ReadoutDriver> driverList = new ArrayList<ReadoutDriver>();
     /**
      * Tracks all data collections which are managed by the readout
      * manager as well as their properties.
@@ -324,9 +330,7 @@ public class ReadoutDataManager extends Driver {
         // Remove all data from the buffer that occurs before the max
         // buffer length cut-off.
         for(ManagedLCIOData<?> data : collectionMap.values()) {
-            while(!data.getData().isEmpty() && (data.getData().getFirst().getTime() < (getCurrentTime() - 500))) {
-                data.getData().removeFirst();
-            }
+            data.getData().removeBefore(getCurrentTime() - 500);
         }
         
         // Increment the current time.
@@ -369,9 +373,11 @@ public class ReadoutDataManager extends Driver {
         // If the data is empty, then there is no need to add it to
         // the buffer.
         if(!data.isEmpty()) {
-            // Add the new data to the data buffer.
+            // Add the new data to the data buffer. The data type was
+            // validated above, so the buffer can accept it.
             double time = Double.isNaN(dataTime) ? currentTime - collectionData.getCollectionParameters().getGlobalTimeDisplacement() : dataTime;
-            LinkedList<TimedList<?>> dataBuffer = collectionData.getData();
+            @SuppressWarnings("unchecked")
+            TimeBucketBuffer<? super T> dataBuffer = (TimeBucketBuffer<? super T>) collectionData.getData();
             dataBuffer.add(new TimedList<T>(time, data));
         }
     }
@@ -611,7 +617,7 @@ public class ReadoutDataManager extends Driver {
         LCIOCollectionFactory.setWindowAfter(readoutWindowAfter);
         LCIOCollectionFactory.setWindowBefore(readoutWindowBefore);
         ManagedLCIOCollection<T> managedParams = LCIOCollectionFactory.produceManagedLCIOCollection(params.getObjectType());
-        ManagedLCIOData<T> collectionData = new ManagedLCIOData<T>(managedParams);
+        ManagedLCIOData<T> collectionData = new ManagedLCIOData<T>(managedParams, BEAM_BUNCH_SIZE);
         collectionMap.put(params.getCollectionName(), collectionData);
         
         // Store the readout driver in the driver set.
@@ -637,6 +643,12 @@ public class ReadoutDataManager extends Driver {
      * @param productionDriver - The readout driver to register.
      */
     public static final void registerReadoutDriver(ReadoutDriver productionDriver) {
+        // Track the creation order of all drivers, including trigger
+        // drivers, for the readout scheduler.
+        if(!driverList.contains(productionDriver)) {
+            driverList.add(productionDriver);
+        }
+        
         // Trigger drivers are registered differently.
         if(productionDriver instanceof TriggerDriver) {
             logger.warning(nl + "Error: Attempted to register TriggerDriver \"" + productionDriver.getClass().getSimpleName() + "\" as a readout driver."
@@ -679,6 +691,10 @@ public class ReadoutDataManager extends Driver {
             throw new IllegalArgumentException("Error: Collection \"" + collectionName + "\" does not exist.");
         }
         ManagedLCIOData<?> oldData = collectionMap.get(collectionName);
+        if(!objectType.isAssignableFrom(oldData.getCollectionParameters().getObjectType())) {
+            throw new IllegalArgumentException("Error: Expected object type " + objectType.getSimpleName() + " for collection \"" + collectionName
+                    + ",\" but found object type " + oldData.getCollectionParameters().getObjectType().getSimpleName() + ".");
+        }
         
         // Make a new managed LCIO collection with the new readout.
         LCIOCollectionFactory.setParams(oldData.getCollectionParameters());
@@ -687,8 +703,10 @@ public class ReadoutDataManager extends Driver {
         
         // Create a new managed LCIO data object and transfer all the
         // data from the old object to it.
-        ManagedLCIOData<T> newData = new ManagedLCIOData<T>(newParams);
-        for(TimedList<?> oldList : oldData.getData()) {
+        ManagedLCIOData<T> newData = new ManagedLCIOData<T>(newParams, BEAM_BUNCH_SIZE);
+        @SuppressWarnings("unchecked")
+        TimeBucketBuffer<? extends T> oldBuffer = (TimeBucketBuffer<? extends T>) oldData.getData();
+        for(TimedList<? extends T> oldList : oldBuffer) {
             newData.getData().add(oldList);
         }
         
@@ -714,12 +732,41 @@ public class ReadoutDataManager extends Driver {
         // Calculate the trigger and readout times.
         double triggerTime = getCurrentTime() - triggerTimeDisplacementMap.get(driver);
         
-        // Add the trigger to the trigger queue.
-        triggerQueue.add(new TriggerTime(triggerTime, driver));
+        // Add the trigger to the trigger queue. Trigger drivers may
+        // be run concurrently by the readout scheduler, so access to
+        // the queue must be synchronized. Simultaneous triggers are
+        // ordered by the creation order of their drivers, so that the
+        // output does not depend on which driver ran first.
+        synchronized(triggerQueue) {
+            triggerQueue.add(new TriggerTime(triggerTime, driver, driverList.indexOf(driver)));
+        }
         logger.finer("Added trigger to queue with trigger time " + triggerTime + " and readout time " + (triggerTime + bufferTotal) + " from driver "
                 + driver.getClass().getSimpleName() + ".");
     }
     
+    /**
+     * Gets the driver which produces a collection.
+     * @param collectionName - The name of the collection.
+     * @return Returns the production driver of the collection.
+     * @throws IllegalArgumentException Occurs if the collection has
+     * not been registered.
+     */
+    static final ReadoutDriver getProductionDriver(String collectionName) {
+        if(!collectionMap.containsKey(collectionName)) {
+            throw new IllegalArgumentException("Error: Collection \"" + collectionName + "\" has not been registered.");
+        }
+        return collectionMap.get(collectionName).getCollectionParameters().getProductionDriver();
+    }
+    
+    /**
+     * Gets all instantiated readout and trigger drivers.
+     * @return Returns the drivers in the order in which they were
+     * created as an unmodifiable {@link java.util.List List}.
+     */
+    static final List<ReadoutDriver> getRegisteredDrivers() {
+        return Collections.unmodifiableList(driverList);
+    }
+    
     /**
      * Adds a data collection corresponding to a given parameter set
      * to the data map. If there is already data existing under the
@@ -830,27 +877,28 @@ public class ReadoutDataManager extends Driver {
             throw new IllegalArgumentException("Error: Collection \"" + collectionName + "\" does not exist.");
         }
         
-        // Throw an alert if the earliest requested time precedes the
-        // earliest buffered time, and similarly for the latest time.
-        LinkedList<TimedList<?>> dataLists = collectionData.getData();
+        // Drivers run by the readout scheduler may only access the
+        // collections on which they depend, since only these are
+        // guaranteed to be complete and not concurrently modified.
+        ReadoutDriver activeDriver = ReadoutSchedulerDriver.getActiveDriver();
+        if(activeDriver != null && activeDriver != collectionData.getCollectionParameters().getProductionDriver()
+                && !activeDriver.getDependencies().contains(collectionName)) {
+            throw new IllegalStateException("Error: Driver \"" + activeDriver.getClass().getSimpleName() + "\" requested data from collection \""
+                    + collectionName + ",\" but does not declare it as a dependency.");
+        }
+        
+        // The type of all data objects is checked against the object
+        // type of the collection when they are added, so the buffer
+        // can be viewed as holding the requested type without checking
+        // each object individually.
+        @SuppressWarnings("unchecked")
+        TimeBucketBuffer<? extends T> dataBuffer = (TimeBucketBuffer<? extends T>) collectionData.getData();
         
-        // Iterate through the data and collect all entries that have
-        // an associated truth time within the given time range. The
-        // lower bound is inclusive, the upper bound is exclusive.
+        // Collect all entries that have an associated truth time
+        // within the given time range. The lower bound is inclusive,
+        // the upper bound is exclusive.
         List<T> outputList = new ArrayList<T>();
-        for(TimedList<?> dataList : dataLists) {
-            if(dataList.getTime() >= startTime && dataList.getTime() < endTime) {
-                // Add the items from the list to the output list.
-                for(Object o : dataList) {
-                    if(objectType.isAssignableFrom(o.getClass())) {
-                        outputList.add(objectType.cast(o));
-                    } else {
-                        throw new ClassCastException("Error: Unexpected object of type " + o.getClass().getSimpleName() + " in collection \""
-                                + collectionName + ".\"");
-                    }
-                }
-            }
-        }
+        dataBuffer.addDataInRange(startTime, endTime, outputList);
         
         // Return the collected items.
         return outputList;
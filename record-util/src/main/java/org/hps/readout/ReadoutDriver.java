@@ -5,6 +5,8 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.hps.readout.util.collection.TriggeredLCIOData;
+import org.lcsim.event.EventHeader;
+import org.lcsim.geometry.Detector;
 import org.lcsim.geometry.IDDecoder;
 import org.lcsim.util.Driver;
 
@@ -36,7 +38,11 @@ import org.lcsim.util.Driver;
  * {@link org.hps.readout.ReadoutDriver#addDependency(String)
  * addDependency(String)} for each input collection. This should be
  * done in the {@link org.lcsim.util.Driver#startOfData()
- * startOfData()} method.</li>
+ * startOfData()} method. The dependencies are also used by the
+ * {@link org.hps.readout.ReadoutSchedulerDriver
+ * ReadoutSchedulerDriver} to decide which drivers may be run at the
+ * same time, so a driver run by it may only request data from the
+ * collections on which it depends.</li>
  * <li><b>Declare time displacement:</b> Readout drivers must specify
  * the amount of simulation time (events) that they need to process
  * their input data before they can produce output from it. For
@@ -130,6 +136,40 @@ public abstract class ReadoutDriver extends Driver {
         ReadoutDataManager.registerReadoutDriver(this);
     }
     
+    /**
+     * Passes a detector change to the driver on behalf of the {@link
+     * org.hps.readout.ReadoutSchedulerDriver ReadoutSchedulerDriver}.
+     * @param detector - The new detector.
+     */
+    final void scheduledDetectorChanged(Detector detector) {
+        detectorChanged(detector);
+    }
+    
+    /**
+     * Ends the run for the driver on behalf of the {@link
+     * org.hps.readout.ReadoutSchedulerDriver ReadoutSchedulerDriver}.
+     */
+    final void scheduledEndOfData() {
+        endOfData();
+    }
+    
+    /**
+     * Processes an event with the driver on behalf of the {@link
+     * org.hps.readout.ReadoutSchedulerDriver ReadoutSchedulerDriver}.
+     * @param event - The event to process.
+     */
+    final void scheduledProcess(EventHeader event) {
+        process(event);
+    }
+    
+    /**
+     * Starts the run for the driver on behalf of the {@link
+     * org.hps.readout.ReadoutSchedulerDriver ReadoutSchedulerDriver}.
+     */
+    final void scheduledStartOfData() {
+        startOfData();
+    }
+    
     /**
      * Specifies that the output of this readout driver depends on
      * the specified input collection.
@@ -0,0 +1,250 @@
+package org.hps.readout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Logger;
+
+import org.lcsim.event.EventHeader;
+import org.lcsim.geometry.Detector;
+import org.lcsim.util.Driver;
+
+/**
+ * Class <code>ReadoutSchedulerDriver</code> runs all of the readout
+ * and trigger drivers of the readout simulation, and processes those
+ * which do not depend on one another concurrently.
+ * <br/><br/>
+ * The drivers are divided into stages based on the collection
+ * dependencies that they declare via {@link
+ * org.hps.readout.ReadoutDriver#addDependency(String)
+ * addDependency(String)}. A driver with no dependencies is placed in
+ * the first stage, and every other driver is placed in the stage
+ * after the last stage that contains the production driver of one
+ * of its input collections. For each beam bunch, the stages are
+ * processed in order, and the drivers within a stage are processed
+ * in parallel. Since every collection is written by only one driver,
+ * and a driver only reads collections produced in earlier stages,
+ * the output is the same as when the drivers are run serially. A
+ * driver that requests data from a collection on which it does not
+ * declare a dependency will cause an exception.
+ * <br/><br/>
+ * To use the scheduler, the readout and trigger drivers are defined
+ * in the steering file as usual, but are not included in the list
+ * of drivers to execute. Instead, this driver should be executed in
+ * their place, directly before the {@link
+ * org.hps.readout.ReadoutDataManager ReadoutDataManager}. The
+ * scheduler passes the detector, start of data, and end of data
+ * calls to the drivers in the order in which they were created, so
+ * drivers should be defined in the steering file such that producers
+ * come before the drivers that use their output.
+ * <br/><br/>
+ * Drivers run by the scheduler must not write to the event, and must
+ * not share mutable state with other drivers, as they may be run at
+ * the same time.
+ */
+public class ReadoutSchedulerDriver extends Driver {
+    /**
+     * Tracks the driver that is currently being processed on each
+     * thread, if any.
+     */
+    private static final ThreadLocal<ReadoutDriver> activeDriver = new ThreadLocal<ReadoutDriver>();
+    /**
+     * The number of threads used to process the drivers within a
+     * stage.
+     */
+    private int threads = 1;
+    /**
+     * The pool used to process drivers in parallel. This is only
+     * defined if more than one thread is used.
+     */
+    private ForkJoinPool pool = null;
+    /**
+     * The drivers run by the scheduler, in the order in which they
+     * were created.
+     */
+    private List<ReadoutDriver> drivers = null;
+    /**
+     * The driver stages. The drivers within each stage may be run
+     * concurrently, but each stage must complete before the next
+     * one is started.
+     */
+    private final List<List<ReadoutDriver>> stages = new ArrayList<List<ReadoutDriver>>();
+    
+    private static final Logger logger = Logger.getLogger(ReadoutSchedulerDriver.class.getSimpleName());
+    
+    @Override
+    public void detectorChanged(Detector detector) {
+        for(ReadoutDriver driver : getDrivers()) {
+            driver.scheduledDetectorChanged(detector);
+        }
+    }
+    
+    @Override
+    public void endOfData() {
+        for(ReadoutDriver driver : getDrivers()) {
+            driver.scheduledEndOfData();
+        }
+        
+        if(pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+    
+    @Override
+    public void process(EventHeader event) {
+        for(List<ReadoutDriver> stage : stages) {
+            // Stages with only one driver are run directly, as are
+            // all stages if no thread pool is used.
+            if(pool == null || stage.size() < 2) {
+                for(ReadoutDriver driver : stage) {
+                    processDriver(driver, event);
+                }
+                continue;
+            }
+            
+            // Otherwise, submit each driver to the pool and wait for
+            // all of them to complete before starting the next stage.
+            final EventHeader stageEvent = event;
+            List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(stage.size());
+            for(final ReadoutDriver driver : stage) {
+                tasks.add(pool.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        processDriver(driver, stageEvent);
+                    }
+                }));
+            }
+            for(ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        }
+    }
+    
+    /**
+     * Sets the number of threads used to process the drivers within
+     * a stage.
+     * @param threads - The number of threads. With less than 2, the
+     * drivers are processed serially in stage order.
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+    
+    @Override
+    public void startOfData() {
+        // Drivers register their collections when they are started,
+        // so the stages can only be determined afterwards.
+        for(ReadoutDriver driver : getDrivers()) {
+            driver.scheduledStartOfData();
+        }
+        buildStages();
+        
+        pool = (threads > 1) ? new ForkJoinPool(threads) : null;
+    }
+    
+    /**
+     * Gets the driver that is currently being processed by the
+     * scheduler on the calling thread.
+     * @return Returns the driver, or <code>null</code> if the calling
+     * thread is not processing a scheduled driver.
+     */
+    static final ReadoutDriver getActiveDriver() {
+        return activeDriver.get();
+    }
+    
+    /**
+     * Sets the drivers run by the scheduler. By default, these are
+     * all of the readout and trigger drivers that exist when the
+     * scheduler is started.
+     * @param drivers - The drivers, in the order in which they were
+     * created.
+     */
+    void setDrivers(List<ReadoutDriver> drivers) {
+        this.drivers = new ArrayList<ReadoutDriver>(drivers);
+    }
+    
+    /**
+     * Divides the drivers into stages based on their dependencies.
+     */
+    private void buildStages() {
+        stages.clear();
+        Map<ReadoutDriver, Integer> stageMap = new HashMap<ReadoutDriver, Integer>();
+        for(ReadoutDriver driver : getDrivers()) {
+            int stage = getStage(driver, stageMap);
+            while(stages.size() <= stage) {
+                stages.add(new ArrayList<ReadoutDriver>());
+            }
+            stages.get(stage).add(driver);
+        }
+        
+        StringBuffer stageBuffer = new StringBuffer("Readout stages:");
+        for(int i = 0; i < stages.size(); i++) {
+            stageBuffer.append(String.format("%n\tStage %d ::", i));
+            for(ReadoutDriver driver : stages.get(i)) {
+                stageBuffer.append(" " + driver.getClass().getSimpleName());
+            }
+        }
+        logger.config(stageBuffer.toString());
+    }
+    
+    /**
+     * Gets the drivers run by the scheduler. These are all of the
+     * readout and trigger drivers that exist when this method is
+     * first called.
+     * @return Returns the drivers in the order in which they were
+     * created.
+     */
+    private List<ReadoutDriver> getDrivers() {
+        if(drivers == null) {
+            drivers = new ArrayList<ReadoutDriver>(ReadoutDataManager.getRegisteredDrivers());
+        }
+        return drivers;
+    }
+    
+    /**
+     * Gets the stage of a driver. This is zero for drivers without
+     * dependencies, and is otherwise one more than the largest stage
+     * of the production drivers of its input collections.
+     * @param driver - The driver.
+     * @param stageMap - A map of the drivers whose stage is already
+     * known to their stage.
+     * @return Returns the stage index.
+     */
+    private static final int getStage(ReadoutDriver driver, Map<ReadoutDriver, Integer> stageMap) {
+        Integer knownStage = stageMap.get(driver);
+        if(knownStage != null) {
+            return knownStage.intValue();
+        }
+        
+        // Circular dependencies are rejected by the data manager when
+        // collections are registered, so this always terminates.
+        int stage = 0;
+        for(String dependency : driver.getDependencies()) {
+            ReadoutDriver productionDriver = ReadoutDataManager.getProductionDriver(dependency);
+            if(productionDriver != driver) {
+                stage = Math.max(stage, getStage(productionDriver, stageMap) + 1);
+            }
+        }
+        stageMap.put(driver, Integer.valueOf(stage));
+        return stage;
+    }
+    
+    /**
+     * Processes an event with a driver, marking the driver as active
+     * on the calling thread while it runs.
+     * @param driver - The driver.
+     * @param event - The event to process.
+     */
+    private static final void processDriver(ReadoutDriver driver, EventHeader event) {
+        activeDriver.set(driver);
+        try {
+            driver.scheduledProcess(event);
+        } finally {
+            activeDriver.remove();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package org.hps.readout.util;
+
+import java.util.Collection;
+
+import org.hps.util.LongIntHashMap;
+
+/**
+ * Class <code>ChannelIndex</code> assigns each channel ID of a
+ * subdetector a dense index, running from zero to one less than the
+ * number of channels, so that per-channel data can be stored in
+ * arrays. Indices are assigned in the iteration order of the channel
+ * IDs given to the constructor.
+ * <br/><br/>
+ * The IDs are kept in a {@link org.hps.util.LongIntHashMap
+ * LongIntHashMap} of primitive <code>long</code> keys, so that
+ * looking up a channel does not create any objects.
+ */
+public class ChannelIndex {
+    /**
+     * The channel ID for each index.
+     */
+    private final long[] ids;
+    /**
+     * The channel index for each channel ID.
+     */
+    private final LongIntHashMap indices;
+    
+    /**
+     * Instantiates an index of the given channel IDs.
+     * @param channelIDs - The channel IDs.
+     * @throws IllegalArgumentException Occurs if a channel ID is
+     * repeated.
+     */
+    public ChannelIndex(Collection<Long> channelIDs) {
+        ids = new long[channelIDs.size()];
+        indices = new LongIntHashMap(ids.length);
+        
+        int n = 0;
+        for(Long id : channelIDs) {
+            if(indices.put(id, n) >= 0) {
+                throw new IllegalArgumentException("Channel ID " + id + " is repeated.");
+            }
+            ids[n++] = id;
+        }
+    }
+    
+    /**
+     * Gets the channel ID for an index.
+     * @param index - The channel index.
+     * @return Returns the channel ID.
+     */
+    public long getID(int index) {
+        return ids[index];
+    }
+    
+    /**
+     * Gets the index of a channel.
+     * @param channelID - The channel ID.
+     * @return Returns the channel index, or <code>-1</code> if the
+     * channel ID is not in the index.
+     */
+    public int getIndex(long channelID) {
+        return indices.get(channelID);
+    }
+    
+    /**
+     * Gets the number of channels.
+     * @return Returns the number of channels.
+     */
+    public int size() {
+        return ids.length;
+    }
+}
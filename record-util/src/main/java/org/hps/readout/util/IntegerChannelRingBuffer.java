@@ -0,0 +1,189 @@
+package org.hps.readout.util;
+
+import java.util.Arrays;
+
+/**
+ * Class <code>IntegerChannelRingBuffer</code> holds one ring buffer
+ * of <code>int</code> values for each channel of a subdetector.
+ * All of the buffers have the same size and are stepped forward
+ * together, so they share a single current position. The values are
+ * stored as primitives in one contiguous array, with the cells of
+ * each channel adjacent to one another.
+ * <br/><br/>
+ * Channels are referred to by their index, running from zero to one
+ * less than the number of channels. Positions are specified in the
+ * same way as for {@link org.hps.readout.util.RingBuffer RingBuffer}
+ * and are relative to the current position.
+ */
+public class IntegerChannelRingBuffer {
+    /**
+     * The buffer data for all channels. The cells of channel
+     * <code>c</code> are <code>[c * size, (c + 1) * size)</code>.
+     */
+    private final int[] array;
+    /**
+     * The number of cells in each channel's buffer.
+     */
+    private final int size;
+    /**
+     * The current position within the buffers.
+     */
+    private int index = 0;
+    
+    /**
+     * Instantiates a buffer for the indicated number of channels and
+     * initializes all values to zero.
+     * @param channels - The number of channels.
+     * @param size - The number of entries in each channel's buffer.
+     */
+    public IntegerChannelRingBuffer(int channels, int size) {
+        if(size <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive.");
+        }
+        this.size = size;
+        array = new int[channels * size];
+    }
+    
+    /**
+     * Adds a value to the specified buffer cell of a channel.
+     * @param channel - The channel index.
+     * @param position - The position of the target value relative
+     * to the current value. A value of <code>0</code> represents the
+     * current position.
+     * @param value - The value to add to the cell.
+     */
+    public void addToCell(int channel, int position, int value) {
+        array[cell(channel, position)] += value;
+    }
+    
+    /**
+     * Clears all values in the buffers.
+     */
+    public void clearAll() {
+        Arrays.fill(array, 0);
+    }
+    
+    /**
+     * Clears the value at the current position in a channel's
+     * buffer.
+     * @param channel - The channel index.
+     */
+    public void clearValue(int channel) {
+        array[channel * size + index] = 0;
+    }
+    
+    /**
+     * Clears the value at the specified position in a channel's
+     * buffer.
+     * @param channel - The channel index.
+     * @param position - The position of the target value relative
+     * to the current value. A value of <code>0</code> represents the
+     * current position.
+     */
+    public void clearValue(int channel, int position) {
+        array[cell(channel, position)] = 0;
+    }
+    
+    /**
+     * Gets the number of channels.
+     * @return Returns the number of channels.
+     */
+    public int getChannelCount() {
+        return array.length / size;
+    }
+    
+    /**
+     * Gets the current value in a channel's buffer.
+     * @param channel - The channel index.
+     * @return Returns the current value.
+     */
+    public int getValue(int channel) {
+        return array[channel * size + index];
+    }
+    
+    /**
+     * Gets the value at the specified position in a channel's
+     * buffer.
+     * @param channel - The channel index.
+     * @param position - The position of the target value relative
+     * to the current value. A value of <code>0</code> represents the
+     * current position.
+     * @return Returns the value at the specified position.
+     */
+    public int getValue(int channel, int position) {
+        return array[cell(channel, position)];
+    }
+    
+    /**
+     * Sets all values in a channel's buffer to the specified value.
+     * @param channel - The channel index.
+     * @param value - The value to which all of the channel's buffer
+     * entries should be set.
+     */
+    public void setAll(int channel, int value) {
+        Arrays.fill(array, channel * size, (channel + 1) * size, value);
+    }
+    
+    /**
+     * Sets the current value in a channel's buffer.
+     * @param channel - The channel index.
+     * @param value - The new buffer value.
+     */
+    public void setValue(int channel, int value) {
+        array[channel * size + index] = value;
+    }
+    
+    /**
+     * Sets the value at the specified position in a channel's
+     * buffer.
+     * @param channel - The channel index.
+     * @param position - The position of the target value relative
+     * to the current value. A value of <code>0</code> represents the
+     * current position.
+     * @param value - The new buffer value.
+     */
+    public void setValue(int channel, int position, int value) {
+        array[cell(channel, position)] = value;
+    }
+    
+    /**
+     * Gets the size of each channel's buffer.
+     * @return Returns the size of each channel's buffer.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Steps the buffers of all channels forward by one step.
+     */
+    public void stepForward() {
+        index++;
+        if(index == size) {
+            index = 0;
+        }
+    }
+    
+    /**
+     * Gets the position in the underlying array of a channel's
+     * buffer cell.
+     * @param channel - The channel index.
+     * @param position - The position relative to the current value.
+     * @return Returns the array index of the cell.
+     * @throws ArrayIndexOutOfBoundsException Occurs if the specified
+     * position meets the condition <code>Math.abs(position) >=
+     * size()</code>.
+     */
+    private int cell(int channel, int position) {
+        if(position >= size || position <= -size) {
+            throw new ArrayIndexOutOfBoundsException("Array index " + position + " is invalid for buffer size " + size + ".");
+        }
+        int i = index + position;
+        if(i >= size) {
+            i -= size;
+        } else if(i < 0) {
+            i += size;
+        }
+        return channel * size + i;
+    }
+}
@@ -0,0 +1,303 @@
+package org.hps.readout.util;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Class <code>TimeBucketBuffer</code> stores {@link
+ * org.hps.readout.util.TimedList TimedList} objects indexed by their
+ * simulation time. Time is divided into buckets of a fixed width,
+ * normally the beam bunch size, and each list is placed into the
+ * bucket that contains its time. The buckets are kept in a ring that
+ * grows as needed to span the buffered time range.
+ * <br/><br/>
+ * Retrieving the data within a time range only visits the buckets
+ * which overlap that range, and removing old data only visits the
+ * buckets which are removed, so neither depends on the total amount
+ * of data in the buffer. Lists are iterated in order of their bucket
+ * and, within a bucket, in the order in which they were added.
+ *
+ * @param <E> - The object type of the data stored in the lists.
+ */
+public class TimeBucketBuffer<E> extends AbstractCollection<TimedList<? extends E>> {
+    /**
+     * The largest number of buckets that the buffer may span.
+     */
+    private static final int MAX_BUCKETS = 1 << 24;
+    /**
+     * The width of each bucket in nanoseconds.
+     */
+    private final double bucketWidth;
+    /**
+     * The bucket ring. Only the <code>span</code> buckets starting
+     * at <code>head</code> may contain data; other entries are either
+     * empty or <code>null</code>.
+     */
+    private ArrayList<TimedList<? extends E>>[] buckets;
+    /**
+     * The position in the ring of the earliest bucket.
+     */
+    private int head = 0;
+    /**
+     * The number of buckets, starting from the earliest bucket, that
+     * are currently in use.
+     */
+    private int span = 0;
+    /**
+     * The bucket number of the earliest bucket.
+     */
+    private long firstBucket = 0;
+    /**
+     * The number of lists stored in the buffer.
+     */
+    private int size = 0;
+    
+    /**
+     * Instantiates an empty buffer with the specified bucket width.
+     * @param bucketWidth - The width of each time bucket in units of
+     * nanoseconds.
+     */
+    public TimeBucketBuffer(double bucketWidth) {
+        if(!(bucketWidth > 0) || Double.isInfinite(bucketWidth)) {
+            throw new IllegalArgumentException("Error: Bucket width must be positive and finite.");
+        }
+        this.bucketWidth = bucketWidth;
+        buckets = newBucketArray(256);
+    }
+    
+    /**
+     * Adds a list to the bucket corresponding to its time.
+     * @param list - The list to add.
+     * @return Returns <code>true</code>.
+     * @throws IllegalArgumentException Occurs if the list time is not
+     * finite, or if it is so far from the buffered data that the
+     * buffer would need to span more than 2<sup>24</sup> buckets.
+     */
+    @Override
+    public boolean add(TimedList<? extends E> list) {
+        if(Double.isNaN(list.getTime()) || Double.isInfinite(list.getTime())) {
+            throw new IllegalArgumentException("Error: Saw non-finite list time " + list.getTime() + ".");
+        }
+        
+        // Make sure that the ring includes the list's bucket.
+        long bucket = getBucket(list.getTime());
+        if(span == 0) {
+            head = 0;
+            span = 1;
+            firstBucket = bucket;
+        } else if(bucket < firstBucket) {
+            int shift = getSpan(firstBucket - bucket + span) - span;
+            ensureCapacity(span + shift);
+            head = (head - shift) & (buckets.length - 1);
+            span += shift;
+            firstBucket = bucket;
+        } else if(bucket - firstBucket >= span) {
+            span = getSpan(bucket - firstBucket + 1);
+            ensureCapacity(span);
+        }
+        
+        // Add the list to its bucket.
+        int slot = (head + (int) (bucket - firstBucket)) & (buckets.length - 1);
+        if(buckets[slot] == null) {
+            buckets[slot] = new ArrayList<TimedList<? extends E>>(2);
+        }
+        buckets[slot].add(list);
+        size++;
+        return true;
+    }
+    
+    /**
+     * Adds the contents of all lists with a time in the specified
+     * range to a collection. The lower bound is inclusive and the
+     * upper bound is exclusive.
+     * @param startTime - The start of the time range.
+     * @param endTime - The end of the time range.
+     * @param output - The collection to which the data should be
+     * added.
+     */
+    public void addDataInRange(double startTime, double endTime, Collection<? super E> output) {
+        if(size == 0 || !(startTime < endTime)) {
+            return;
+        }
+        
+        // Only the buckets that overlap the time range need to be
+        // considered. Lists must still be checked individually in
+        // case the range boundaries fall within a bucket.
+        long first = Math.max(getBucket(startTime), firstBucket);
+        long last = Math.min(getBucket(endTime), firstBucket + span - 1);
+        for(long bucket = first; bucket <= last; bucket++) {
+            ArrayList<TimedList<? extends E>> lists = buckets[(head + (int) (bucket - firstBucket)) & (buckets.length - 1)];
+            if(lists == null) {
+                continue;
+            }
+            for(int i = 0; i < lists.size(); i++) {
+                TimedList<? extends E> list = lists.get(i);
+                if(list.getTime() >= startTime && list.getTime() < endTime) {
+                    output.addAll(list);
+                }
+            }
+        }
+    }
+    
+    @Override
+    public void clear() {
+        for(ArrayList<TimedList<? extends E>> lists : buckets) {
+            if(lists != null) {
+                lists.clear();
+            }
+        }
+        head = 0;
+        span = 0;
+        size = 0;
+    }
+    
+    /**
+     * Gets the width of the time buckets.
+     * @return Returns the bucket width in units of nanoseconds.
+     */
+    public double getBucketWidth() {
+        return bucketWidth;
+    }
+    
+    @Override
+    public Iterator<TimedList<? extends E>> iterator() {
+        return new Iterator<TimedList<? extends E>>() {
+            private int bucket = 0;
+            private int entry = 0;
+            private int remaining = size;
+            
+            @Override
+            public boolean hasNext() {
+                return remaining > 0;
+            }
+            
+            @Override
+            public TimedList<? extends E> next() {
+                if(remaining <= 0) {
+                    throw new NoSuchElementException();
+                }
+                while(true) {
+                    ArrayList<TimedList<? extends E>> lists = buckets[(head + bucket) & (buckets.length - 1)];
+                    if(lists != null && entry < lists.size()) {
+                        remaining--;
+                        return lists.get(entry++);
+                    }
+                    bucket++;
+                    entry = 0;
+                }
+            }
+            
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+    
+    /**
+     * Removes all lists with a time before the specified time.
+     * @param time - The cut-off time. Lists with exactly this time
+     * are retained.
+     */
+    public void removeBefore(double time) {
+        if(Double.isNaN(time)) {
+            return;
+        }
+        
+        // Drop whole buckets that lie entirely before the cut-off.
+        long cutoffBucket = getBucket(time);
+        while(span > 0 && firstBucket < cutoffBucket) {
+            ArrayList<TimedList<? extends E>> lists = buckets[head];
+            if(lists != null) {
+                size -= lists.size();
+                lists.clear();
+            }
+            head = (head + 1) & (buckets.length - 1);
+            firstBucket++;
+            span--;
+        }
+        
+        // The bucket containing the cut-off may be partially before
+        // it, so its lists must be checked individually.
+        if(span > 0 && firstBucket == cutoffBucket && buckets[head] != null) {
+            Iterator<TimedList<? extends E>> iter = buckets[head].iterator();
+            while(iter.hasNext()) {
+                if(iter.next().getTime() < time) {
+                    iter.remove();
+                    size--;
+                }
+            }
+        }
+        
+        // Reset the ring if nothing is left in it. All of the buckets
+        // are already empty at this point.
+        if(size == 0) {
+            head = 0;
+            span = 0;
+        }
+    }
+    
+    @Override
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Grows the bucket ring so that it can hold at least the given
+     * number of buckets. Buckets are moved so that the earliest one
+     * is at the start of the new ring.
+     * @param capacity - The minimum number of buckets.
+     */
+    private void ensureCapacity(int capacity) {
+        if(capacity <= buckets.length) {
+            return;
+        }
+        int newLength = buckets.length;
+        while(newLength < capacity) {
+            newLength <<= 1;
+        }
+        ArrayList<TimedList<? extends E>>[] newBuckets = newBucketArray(newLength);
+        for(int i = 0; i < buckets.length; i++) {
+            newBuckets[i] = buckets[(head + i) & (buckets.length - 1)];
+        }
+        buckets = newBuckets;
+        head = 0;
+    }
+    
+    /**
+     * Gets the number of the bucket that contains a time.
+     * @param time - The time in nanoseconds.
+     * @return Returns the bucket number.
+     */
+    private long getBucket(double time) {
+        return (long) Math.floor(time / bucketWidth);
+    }
+    
+    /**
+     * Validates that the buffer may span the specified number of
+     * buckets.
+     * @param buckets - The number of buckets.
+     * @return Returns the number of buckets as an <code>int</code>.
+     * @throws IllegalArgumentException Occurs if the number of
+     * buckets exceeds the maximum.
+     */
+    private static final int getSpan(long buckets) {
+        if(buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Error: Buffered data may not span more than " + MAX_BUCKETS + " time buckets.");
+        }
+        return (int) buckets;
+    }
+    
+    /**
+     * Creates a new bucket array.
+     * @param length - The array length. This must be a power of two.
+     * @return Returns the array.
+     */
+    @SuppressWarnings("unchecked")
+    private static final <E> ArrayList<TimedList<? extends E>>[] newBucketArray(int length) {
+        return (ArrayList<TimedList<? extends E>>[]) new ArrayList<?>[length];
+    }
+}
@@ -5,7 +5,10 @@ import org.hps.readout.ReadoutDriver;
 /**
  * Class <code>TriggerTime</code> stores the time at which a trigger
  * occurs in terms of simulation time, and also the triggering driver
- * is tracked.
+ * is tracked. Triggers that occur at the same time are ordered by
+ * the index of their triggering driver, so that the order in which
+ * they are read out does not depend on the order in which they were
+ * produced.
  * 
  * @author Kyle McCarty <mccarty@jlab.org>
  */
@@ -19,16 +22,24 @@ public class TriggerTime implements Comparable<TriggerTime> {
      * The driver that produced the trigger.
      */
     private final ReadoutDriver trigger;
+    /**
+     * The index of the driver that produced the trigger. This is
+     * used to order triggers that occur at the same time.
+     */
+    private final int driverIndex;
     
     /**
      * Instantiates a new <code>TriggerTime</code> object.
      * @param time - The simulation time (corrected for time offsets)
      * at which a trigger occurs.
      * @param trigger - The driver that produced the trigger.
+     * @param driverIndex - The index of the driver that produced the
+     * trigger, in the order in which the drivers were created.
      */
-    public TriggerTime(double time, ReadoutDriver trigger) {
+    public TriggerTime(double time, ReadoutDriver trigger, int driverIndex) {
         this.time = time;
         this.trigger = trigger;
+        this.driverIndex = driverIndex;
     }
     
     @Override
@@ -36,7 +47,7 @@ public class TriggerTime implements Comparable<TriggerTime> {
         if(time != tt.time) {
             return Double.compare(time, tt.time);
         } else {
-            return 0;
+            return Integer.compare(driverIndex, tt.driverIndex);
         }
     }
     
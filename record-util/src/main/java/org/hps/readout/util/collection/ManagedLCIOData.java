@@ -1,40 +1,43 @@
 package org.hps.readout.util.collection;
 
-import java.util.LinkedList;
-
-import org.hps.readout.util.TimedList;
+import org.hps.readout.util.TimeBucketBuffer;
 
 /**
  * Class <code>ManagedLCIOData</code> represents the actual managed
  * data associated with a managed LCIO collection. It stores both the
- * collection parameters and also a list of data in the form of a
- * {@link org.hps.readout.util.TimedList TimedList}, where each entry
- * corresponds to the data present at a given time.
+ * collection parameters and also a buffer of data in the form of
+ * {@link org.hps.readout.util.TimedList TimedList} objects, where
+ * each entry corresponds to the data present at a given time. The
+ * buffer is a {@link org.hps.readout.util.TimeBucketBuffer
+ * TimeBucketBuffer}, so data may be retrieved by time without
+ * scanning the full buffer.
  * 
  * @author Kyle McCarty <mccarty@jlab.org>
  * @param <T> - The object type of the data stored by the collection.
  */
-public class ManagedLCIOData<T> extends LCIOData<T, ManagedLCIOCollection<T>, LinkedList<TimedList<?>>> {
+public class ManagedLCIOData<T> extends LCIOData<T, ManagedLCIOCollection<T>, TimeBucketBuffer<T>> {
     /**
-     * The collection data. Each entry in the data list represents a
-     * specific simulation time quantum, while the list itself holds
-     * the collection object data.
+     * The collection data. Each entry in the data buffer represents
+     * a specific simulation time quantum, while the entry itself
+     * holds the collection object data.
      */
-    private final LinkedList<TimedList<?>> data;
+    private final TimeBucketBuffer<T> data;
     
     /**
      * Creates a new <code>ManagedLCIOData</code> based on the
      * collection parameters defined by the <code>params</code>
      * object.
      * @param params - The collection parameters.
+     * @param bucketWidth - The width in nanoseconds of the time
+     * buckets used to index the data.
      */
-    public ManagedLCIOData(ManagedLCIOCollection<T> params) {
+    public ManagedLCIOData(ManagedLCIOCollection<T> params, double bucketWidth) {
         super(params);
-        this.data = new LinkedList<TimedList<?>>();
+        this.data = new TimeBucketBuffer<T>(bucketWidth);
     }
     
     @Override
-    public LinkedList<TimedList<?>> getData() {
+    public TimeBucketBuffer<T> getData() {
         return data;
     }
 }
\ No newline at end of file
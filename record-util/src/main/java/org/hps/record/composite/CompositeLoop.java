@@ -251,7 +251,12 @@ public final class CompositeLoop extends DefaultRecordLoop {
             // Using an ET server connection?
             if (config.getDataSourceType().equals(DataSourceType.ET_SERVER)) {
                 if (config.getEtConnection() != null) {
-                    etAdapter = new EtEventAdapter(new EtEventSource(config.getEtConnection()));
+                    if (config.getEtRingSize() > 0) {
+                        etAdapter = new EtEventAdapter(new EtEventSource(config.getEtConnection(),
+                                config.getEtRingSize(), config.getEtOverflowPolicy()));
+                    } else {
+                        etAdapter = new EtEventAdapter(new EtEventSource(config.getEtConnection()));
+                    }
                 } else {
                     throw new IllegalArgumentException("Configuration is missing a valid ET connection.");
                     // Using an EVIO file?
@@ -9,6 +9,7 @@ import org.hps.record.enums.DataSourceType;
 import org.hps.record.enums.ProcessingStage;
 import org.hps.record.et.EtConnection;
 import org.hps.record.et.EtEventProcessor;
+import org.hps.record.et.EtEventSource.OverflowPolicy;
 import org.hps.record.evio.EvioEventProcessor;
 import org.lcsim.util.Driver;
 
@@ -33,6 +34,16 @@ public final class CompositeLoopConfiguration {
      */
     private EtConnection connection = null;
 
+    /**
+     * The size of the ring buffer for reading ET events on a separate thread (0 to read on the loop's thread).
+     */
+    private int etRingSize = 0;
+
+    /**
+     * What to do with new ET events when the ring buffer is full.
+     */
+    private OverflowPolicy etOverflowPolicy = OverflowPolicy.BLOCK;
+
     /**
      * The list of LCSim Drivers.
      */
@@ -183,6 +194,24 @@ public final class CompositeLoopConfiguration {
         return this.connection;
     }
 
+    /**
+     * Get the ET ring buffer size.
+     *
+     * @return the ET ring buffer size or 0 if not using a ring buffer
+     */
+    int getEtRingSize() {
+        return this.etRingSize;
+    }
+
+    /**
+     * Get the ET ring buffer overflow policy.
+     *
+     * @return the ET ring buffer overflow policy
+     */
+    OverflowPolicy getEtOverflowPolicy() {
+        return this.etOverflowPolicy;
+    }
+
     /**
      * Get the list of ET event processors.
      *
@@ -313,6 +342,32 @@ public final class CompositeLoopConfiguration {
         return this;
     }
 
+    /**
+     * Set the size of the ring buffer for reading ET events on a separate thread, so that reading and processing
+     * overlap. A value of 0, the default, reads the events on the loop's thread.
+     *
+     * @param etRingSize the ring buffer size
+     * @return this object
+     */
+    public CompositeLoopConfiguration setEtRingSize(final int etRingSize) {
+        if (etRingSize < 0) {
+            throw new IllegalArgumentException("Invalid etRingSize value: " + etRingSize);
+        }
+        this.etRingSize = etRingSize;
+        return this;
+    }
+
+    /**
+     * Set what to do with new ET events when the ring buffer is full.
+     *
+     * @param etOverflowPolicy the overflow policy
+     * @return this object
+     */
+    public CompositeLoopConfiguration setEtOverflowPolicy(final OverflowPolicy etOverflowPolicy) {
+        this.etOverflowPolicy = etOverflowPolicy;
+        return this;
+    }
+
     /**
      * Set the full path to a file being used as an event source. This is ignored if the ET system is being used.
      *
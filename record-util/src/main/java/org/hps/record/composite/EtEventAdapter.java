@@ -2,6 +2,7 @@ package org.hps.record.composite;
 
 import java.io.IOException;
 
+import org.freehep.record.loop.LoopEvent;
 import org.freehep.record.loop.RecordEvent;
 import org.freehep.record.source.NoSuchRecordException;
 import org.hps.record.RecordProcessingException;
@@ -51,4 +52,20 @@ public class EtEventAdapter extends RecordProcessorAdapter<EtEvent> {
             throw new RecordProcessingException("Error processing ET record.", e);
         }
     }
+
+    /**
+     * Activate the <code>endJob</code> methods of the registered processors and close the source, which stops its
+     * reader thread if it has one.
+     *
+     * @param loopEvent the <code>LoopEvent</code> which activated <code>finish</code>
+     */
+    @Override
+    public void finish(final LoopEvent loopEvent) {
+        super.finish(loopEvent);
+        try {
+            this.source.close();
+        } catch (final IOException e) {
+            throw new RecordProcessingException("Error closing ET source.", e);
+        }
+    }
 }
@@ -215,4 +215,17 @@ public class EtConnection {
         return getEtSystem().getEvents(getEtAttachment(), this.waitMode, Modify.NOTHING, this.waitTime, this.chunkSize);
     }
 
+    /**
+     * Put an array of <code>EtEvent</code> objects back to the ET server after reading them.
+     *
+     * @param events the events from {@link #readEtEvents()}
+     * @throws IOException if <code>putEvents</code> throws this exception type
+     * @throws EtException if <code>putEvents</code> throws this exception type
+     * @throws EtDeadException if <code>putEvents</code> throws this exception type
+     * @throws EtClosedException if <code>putEvents</code> throws this exception type
+     */
+    void putEtEvents(final EtEvent[] events) throws IOException, EtException, EtDeadException, EtClosedException {
+        getEtSystem().putEvents(getEtAttachment(), events);
+    }
+
 }
\ No newline at end of file
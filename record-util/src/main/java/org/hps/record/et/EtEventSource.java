@@ -1,16 +1,37 @@
 package org.hps.record.et;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
 import org.freehep.record.source.AbstractRecordSource;
 import org.freehep.record.source.NoSuchRecordException;
+import org.hps.record.evio.EvioEventConstants;
 import org.jlab.coda.et.EtEvent;
+import org.jlab.coda.et.EtEventImpl;
+import org.jlab.coda.et.exception.EtEmptyException;
+import org.jlab.coda.et.exception.EtTimeoutException;
+import org.jlab.coda.et.exception.EtWakeUpException;
 
 /**
  * Implementation of a record source supplying <tt>EtEvent</tt> objects from an ET server connection to a record loop.
+ * <p>
+ * By default the events are read from the ET server on the loop's thread when the cached events run out. With a ring
+ * size greater than zero, a separate thread reads chunks of events, copies their data into a bounded ring buffer and
+ * immediately puts them back to the ET system, which may then reuse their buffers, so reading overlaps with processing.
+ * When the buffer is full the {@link OverflowPolicy}
+ * decides whether reading waits or physics events are dropped; control events such as PRESTART and END are never
+ * dropped. The number of events read and dropped and the lag between reading and processing are available from the
+ * getters and are logged periodically.
  *
  * @author <a href="mailto:jeremym@slac.stanford.edu">Jeremy McCormick</a>
  */
@@ -33,6 +54,175 @@ public final class EtEventSource extends AbstractRecordSource {
         }
     }
 
+    /**
+     * What to do with newly read events when the ring buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for space in the buffer, which stops reading from the ET system until processing catches up.
+         */
+        BLOCK,
+        /**
+         * Drop the oldest physics event in the buffer, so the events being processed stay close to real time.
+         */
+        DROP_OLDEST,
+        /**
+         * Drop the newly read physics event.
+         */
+        DROP_NEWEST
+    }
+
+    /**
+     * An event in the ring buffer.
+     */
+    private static final class Entry {
+
+        final EtEvent event;
+        final boolean control;
+        final long readTime;
+
+        Entry(final EtEvent event, final long readTime) {
+            this.event = event;
+            this.control = isControlEvent(event);
+            this.readTime = readTime;
+        }
+    }
+
+    /**
+     * Reads events into the ring buffer.
+     */
+    private final class ReaderThread extends Thread {
+
+        ReaderThread() {
+            super("EtEventSource");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long lastReport = System.currentTimeMillis();
+            try {
+                while (!closed) {
+                    final EtEvent[] events;
+                    try {
+                        events = EtEventSource.this.connection.readEtEvents();
+                    } catch (final EtTimeoutException | EtEmptyException e) {
+                        // No events were available in timed or async mode.
+                        continue;
+                    }
+                    final EtEvent[] copies = new EtEvent[events.length];
+                    for (int i = 0; i < events.length; i++) {
+                        copies[i] = copyEvent(events[i]);
+                    }
+                    EtEventSource.this.connection.putEtEvents(events);
+                    final long readTime = System.nanoTime();
+                    for (final EtEvent event : copies) {
+                        add(new Entry(event, readTime));
+                    }
+                    eventsRead.addAndGet(events.length);
+                    if (System.currentTimeMillis() - lastReport >= REPORT_INTERVAL_MILLIS) {
+                        LOGGER.info(getStatistics());
+                        maxLagNanos.set(0);
+                        lastReport = System.currentTimeMillis();
+                    }
+                }
+            } catch (final EtWakeUpException e) {
+                LOGGER.info("ET station was woken up so reading is stopped.");
+            } catch (final InterruptedException e) {
+                LOGGER.info("Interrupted so reading is stopped.");
+            } catch (final Exception e) {
+                if (!closed) {
+                    error = e;
+                }
+            } finally {
+                finished = true;
+                LOGGER.info(getStatistics());
+            }
+        }
+    }
+
+    /**
+     * Package logger.
+     */
+    private static final Logger LOGGER = Logger.getLogger(EtEventSource.class.getPackage().getName());
+
+    /**
+     * Interval for logging the ring buffer statistics.
+     */
+    private static final long REPORT_INTERVAL_MILLIS = 60000L;
+
+    /**
+     * Time to wait for the ring buffer between checks of the reader state.
+     */
+    private static final long POLL_MILLIS = 100L;
+
+    /**
+     * Size in words of the EVIO block header before the event in an ET event buffer.
+     */
+    private static final int BLOCK_HEADER_WORDS = 8;
+
+    /**
+     * EVIO block header magic number.
+     */
+    private static final int EVIO_MAGIC = 0xc0da0100;
+
+    /**
+     * Return <code>true</code> if the ET event holds an EVIO control event, such as PRESTART or END, based on the tag
+     * in the event header.
+     * <p>
+     * Events whose header cannot be read are treated as physics events.
+     *
+     * @param event the ET event
+     * @return <code>true</code> if the ET event holds an EVIO control event
+     */
+    static boolean isControlEvent(final EtEvent event) {
+        final ByteBuffer buffer = event.getDataBuffer();
+        if (buffer == null) {
+            return false;
+        }
+        final int start = buffer.position();
+        final int length = Math.min(event.getLength(), buffer.limit() - start);
+        if (length < 4 * (BLOCK_HEADER_WORDS + 2)) {
+            return false;
+        }
+        final ByteBuffer view = buffer.duplicate();
+        if (view.getInt(start + 4 * 7) != EVIO_MAGIC) {
+            view.order(view.order() == ByteOrder.BIG_ENDIAN ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            if (view.getInt(start + 4 * 7) != EVIO_MAGIC) {
+                return false;
+            }
+        }
+        final int headerWords = view.getInt(start + 4 * 2);
+        final int tagOffset = start + 4 * (headerWords + 1);
+        if (headerWords < BLOCK_HEADER_WORDS || tagOffset + 4 > start + length) {
+            return false;
+        }
+        final int tag = view.getInt(tagOffset) >>> 16;
+        return tag != EvioEventConstants.PHYSICS_EVENT_TAG && tag < EvioEventConstants.PHYSICS_START_TAG;
+    }
+
+    /**
+     * Copy the ID, control words and data of an ET event into a new event which does not belong to the ET system.
+     *
+     * @param event the ET event
+     * @return the copy
+     */
+    static EtEvent copyEvent(final EtEvent event) {
+        final int length = event.getLength();
+        final EtEventImpl copy = new EtEventImpl(length);
+        copy.setId(event.getId());
+        copy.setControl(event.getControl());
+        copy.setLength(length);
+        final ByteBuffer data = event.getDataBuffer().duplicate();
+        data.limit(data.position() + length);
+        final ByteBuffer copyData = copy.getDataBuffer();
+        copyData.clear();
+        copyData.order(data.order());
+        copyData.put(data);
+        copyData.flip();
+        return copy;
+    }
+
     /**
      * The ET connection information.
      */
@@ -48,6 +238,50 @@ public final class EtEventSource extends AbstractRecordSource {
      */
     private final Queue<EtEvent> eventQueue = new LinkedBlockingQueue<EtEvent>();
 
+    /**
+     * The ring buffer filled by the reader thread (null if reading on the loop's thread).
+     */
+    private final BlockingQueue<Entry> ring;
+
+    /**
+     * The ring buffer size.
+     */
+    private final int ringSize;
+
+    /**
+     * The ring buffer overflow policy.
+     */
+    private final OverflowPolicy overflowPolicy;
+
+    /**
+     * The thread reading events into the ring buffer.
+     */
+    private ReaderThread reader;
+
+    /**
+     * Set when the reader thread is done.
+     */
+    private volatile boolean finished = false;
+
+    /**
+     * Set when the source is closed.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Error from the reader thread.
+     */
+    private volatile Exception error = null;
+
+    /**
+     * Ring buffer statistics.
+     */
+    private final AtomicLong eventsRead = new AtomicLong();
+    private final AtomicLong eventsDropped = new AtomicLong();
+    private volatile int maxQueued = 0;
+    private volatile long lagNanos = 0;
+    private final AtomicLong maxLagNanos = new AtomicLong();
+
     /**
      * Constructor that requires the connection parameters.
      *
@@ -55,6 +289,85 @@ public final class EtEventSource extends AbstractRecordSource {
      */
     public EtEventSource(final EtConnection connection) {
         this.connection = connection;
+        this.ring = null;
+        this.ringSize = 0;
+        this.overflowPolicy = OverflowPolicy.BLOCK;
+    }
+
+    /**
+     * Constructor for reading events into a ring buffer on a separate thread.
+     *
+     * @param connection the <code>EtConnection</code> which should have a valid set of ET connection parameters
+     * @param ringSize the maximum number of events in the ring buffer
+     * @param overflowPolicy what to do with new events when the ring buffer is full
+     */
+    public EtEventSource(final EtConnection connection, final int ringSize, final OverflowPolicy overflowPolicy) {
+        if (ringSize < 1) {
+            throw new IllegalArgumentException("Invalid ring size: " + ringSize);
+        }
+        if (overflowPolicy == null) {
+            throw new IllegalArgumentException("The overflowPolicy is null.");
+        }
+        this.connection = connection;
+        this.ring = new ArrayBlockingQueue<Entry>(ringSize);
+        this.ringSize = ringSize;
+        this.overflowPolicy = overflowPolicy;
+    }
+
+    /**
+     * Add an event to the ring buffer according to the overflow policy.
+     *
+     * @param entry the event to add
+     * @throws InterruptedException if interrupted while waiting for space
+     */
+    private void add(final Entry entry) throws InterruptedException {
+        if (entry.control || this.overflowPolicy == OverflowPolicy.BLOCK) {
+            this.ring.put(entry);
+        } else if (!this.ring.offer(entry)) {
+            if (this.overflowPolicy == OverflowPolicy.DROP_OLDEST) {
+                // Remove the oldest physics event to make space for the new one.
+                boolean removed = false;
+                final Iterator<Entry> it = this.ring.iterator();
+                while (it.hasNext()) {
+                    if (!it.next().control) {
+                        it.remove();
+                        removed = true;
+                        break;
+                    }
+                }
+                if (removed) {
+                    eventsDropped.incrementAndGet();
+                }
+                this.ring.put(entry);
+            } else {
+                eventsDropped.incrementAndGet();
+            }
+        }
+        final int queued = this.ring.size();
+        if (queued > maxQueued) {
+            maxQueued = queued;
+        }
+    }
+
+    /**
+     * Start the thread reading events into the ring buffer if it is not running yet.
+     */
+    void startReader() {
+        if (this.reader == null) {
+            this.reader = new ReaderThread();
+            this.reader.start();
+        }
+    }
+
+    /**
+     * Stop the reader thread if there is one.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (this.reader != null) {
+            this.reader.interrupt();
+        }
     }
 
     /**
@@ -67,6 +380,62 @@ public final class EtEventSource extends AbstractRecordSource {
         return this.currentRecord;
     }
 
+    /**
+     * Get the number of events read from the ET system into the ring buffer.
+     *
+     * @return the number of events read
+     */
+    public long getEventsRead() {
+        return this.eventsRead.get();
+    }
+
+    /**
+     * Get the number of physics events dropped because the ring buffer was full.
+     *
+     * @return the number of events dropped
+     */
+    public long getEventsDropped() {
+        return this.eventsDropped.get();
+    }
+
+    /**
+     * Get the time between reading the current event from the ET system and supplying it to the loop.
+     *
+     * @return the lag of the current event in milliseconds
+     */
+    public long getLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.lagNanos);
+    }
+
+    /**
+     * Get the maximum lag since the statistics were last logged.
+     *
+     * @return the maximum lag in milliseconds
+     */
+    public long getMaxLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.maxLagNanos.get());
+    }
+
+    /**
+     * Get the maximum number of events that were in the ring buffer at once.
+     *
+     * @return the maximum number of events in the ring buffer
+     */
+    public int getMaxQueued() {
+        return this.maxQueued;
+    }
+
+    /**
+     * Get a summary of the ring buffer statistics.
+     *
+     * @return a summary of the ring buffer statistics
+     */
+    public String getStatistics() {
+        return "ET events read: " + getEventsRead() + ", dropped: " + getEventsDropped() + ", queued: " + size()
+                + "/" + this.ringSize + " (max " + getMaxQueued() + "), lag: " + getLagMillis() + " ms (max "
+                + getMaxLagMillis() + " ms)";
+    }
+
     /**
      * Return <code>true</code> if the current record is not <code>null</code>
      *
@@ -81,13 +450,18 @@ public final class EtEventSource extends AbstractRecordSource {
      * Load the next <code>EtEvent</code>.
      * <p>
      * A cached record will be read from the queue or more records will be fetched from the ET server if the queue is
-     * empty.
+     * empty. With a ring buffer, this waits for the reader thread to supply the next record.
      *
      * @throws NoSuchRecordException if the queue is empty and getting more records from the ET server fails
      */
     @Override
     public void next() throws IOException, NoSuchRecordException {
 
+        if (this.ring != null) {
+            nextFromRing();
+            return;
+        }
+
         // Fill the queue if there are no events cached.
         if (this.eventQueue.size() == 0) {
             readEtEvents();
@@ -101,6 +475,42 @@ public final class EtEventSource extends AbstractRecordSource {
         }
     }
 
+    /**
+     * Load the next <code>EtEvent</code> from the ring buffer, starting the reader thread if needed.
+     *
+     * @throws NoSuchRecordException if the reader thread is done and the ring buffer is empty
+     */
+    private void nextFromRing() throws IOException, NoSuchRecordException {
+        startReader();
+        this.currentRecord = null;
+        try {
+            for (;;) {
+                final boolean done = this.finished;
+                final Entry entry = this.ring.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    this.currentRecord = entry.event;
+                    final long lag = System.nanoTime() - entry.readTime;
+                    this.lagNanos = lag;
+                    // The reader thread resets the maximum when it logs the statistics.
+                    long max = this.maxLagNanos.get();
+                    while (lag > max && !this.maxLagNanos.compareAndSet(max, lag)) {
+                        max = this.maxLagNanos.get();
+                    }
+                    return;
+                }
+                if (done) {
+                    break;
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.error != null) {
+            throw new EtSourceException("Error while reading ET events.", this.error);
+        }
+        throw new NoSuchRecordException("ET record queue is empty.");
+    }
+
     /**
      * Read the next <code>EtEvent</code> array from the ET server.
      *
@@ -122,7 +532,7 @@ public final class EtEventSource extends AbstractRecordSource {
      */
     @Override
     public long size() {
-        return this.eventQueue.size();
+        return this.ring != null ? this.ring.size() : this.eventQueue.size();
     }
 
     /**
@@ -134,4 +544,4 @@ public final class EtEventSource extends AbstractRecordSource {
     public boolean supportsNext() {
         return true;
     }
-}
\ No newline at end of file
+}
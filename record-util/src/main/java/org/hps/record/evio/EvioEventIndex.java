@@ -0,0 +1,553 @@
+package org.hps.record.evio;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+/**
+ * Index of the events in an EVIO file which maps each event to its byte offset in the file, along with its event
+ * number, head bank timestamp and TI trigger bits.
+ * <p>
+ * The index is created by scanning the event headers with an {@link EvioEventScanner} and can be saved next to the
+ * EVIO file (or in a separate directory) so that single events or ranges of events can be read directly with an
+ * {@link EvioIndexedFileSource} instead of reading the whole file.
+ * <p>
+ * Events without an event ID bank such as control events have an event number of -1, and events without a head bank
+ * or TI bank have a timestamp or trigger bits of 0.
+ */
+public final class EvioEventIndex {
+
+    private static final Logger LOGGER = Logger.getLogger(EvioEventIndex.class.getPackage().getName());
+
+    /**
+     * File extension of index files.
+     */
+    public static final String EXTENSION = ".idx";
+
+    /**
+     * Magic number at the start of an index file ("HPSI").
+     */
+    private static final int MAGIC = 0x48505349;
+
+    /**
+     * Version of the index file format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Bank tags of the head bank and TI bank.
+     */
+    private static final int[] HEAD_BANK_TAGS = {0x2e, 0xe10f};
+    private static final int[] TI_BANK_TAGS = {0x2e, 0xe10a};
+
+    /**
+     * Size and modification time of the EVIO file when it was indexed, which are used to detect stale index files.
+     */
+    private long fileSize;
+    private long lastModified;
+
+    /**
+     * Number of events in the index.
+     */
+    private int size;
+
+    /**
+     * Event data in file order.
+     */
+    private long[] offsets;
+    private int[] lengths;
+    private int[] tags;
+    private int[] eventNumbers;
+    private int[] timestamps;
+    private int[] triggerBits;
+
+    /**
+     * Set if the event numbers of the events with an event ID bank increase in file order, so they can be searched.
+     */
+    private boolean sortedEventNumbers;
+
+    /**
+     * Set if the non-zero timestamps increase in file order, so they can be searched.
+     */
+    private boolean sortedTimestamps;
+
+    private EvioEventIndex(final int capacity) {
+        this.offsets = new long[capacity];
+        this.lengths = new int[capacity];
+        this.tags = new int[capacity];
+        this.eventNumbers = new int[capacity];
+        this.timestamps = new int[capacity];
+        this.triggerBits = new int[capacity];
+    }
+
+    /**
+     * Builds an index from the events of an {@link EvioEventScanner}, so that a file can be indexed while it is being
+     * scanned for other purposes.
+     */
+    public static final class Builder {
+
+        private final EvioEventIndex index = new EvioEventIndex(1024);
+
+        /**
+         * Add the scanner's current event to the index.
+         *
+         * @param scanner the scanner, which must be on the event after the one that was last added
+         */
+        public void add(final EvioEventScanner scanner) {
+            final int tag = scanner.getEventTag();
+            int eventNumber = -1;
+            int timestamp = 0;
+            int bits = 0;
+            try {
+                final int[] headData = scanner.getIntData(HEAD_BANK_TAGS);
+                if (headData != null && headData.length > 3) {
+                    timestamp = headData[3];
+                }
+                if (tag >= EvioEventConstants.PHYSICS_START_TAG || tag < EvioEventConstants.SYNC_EVENT_TAG) {
+                    final int[] eventIdData = scanner.getEventIdData();
+                    if (eventIdData != null && eventIdData.length > 0) {
+                        eventNumber = eventIdData[0];
+                    }
+                    final int[] tiData = scanner.getIntData(TI_BANK_TAGS);
+                    if (tiData != null && tiData.length > 0) {
+                        bits = tiData[0];
+                    }
+                }
+            } catch (final IOException e) {
+                // The event is still indexed so it can be read, but without its metadata.
+                LOGGER.warning("Bad bank in event " + scanner.getEventCount() + ": " + e.getMessage());
+            }
+            this.index.add(scanner.getEventOffset(), scanner.getEventLength(), tag, eventNumber, timestamp, bits);
+        }
+
+        /**
+         * Get the index after all the events of the file have been added.
+         *
+         * @param file the EVIO file that was scanned
+         * @return the index of the file
+         */
+        public EvioEventIndex build(final File file) {
+            this.index.fileSize = file.length();
+            this.index.lastModified = file.lastModified();
+            this.index.checkSorted();
+            LOGGER.fine("Indexed " + this.index.size + " events in " + file.getPath());
+            return this.index;
+        }
+    }
+
+    /**
+     * Create the index of an EVIO file by scanning its event headers.
+     *
+     * @param file the EVIO file
+     * @return the index of the file
+     * @throws IOException if there is an error reading the file
+     */
+    public static EvioEventIndex create(final File file) throws IOException {
+        final Builder builder = new Builder();
+        final EvioEventScanner scanner = new EvioEventScanner(file);
+        try {
+            while (scanner.next()) {
+                builder.add(scanner);
+            }
+        } finally {
+            scanner.close();
+        }
+        return builder.build(file);
+    }
+
+    /**
+     * Read an index from a file.
+     *
+     * @param indexFile the index file
+     * @return the index
+     * @throws IOException if there is an error reading the file or it is not an index file
+     */
+    public static EvioEventIndex read(final File indexFile) throws IOException {
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not an EVIO event index: " + indexFile.getPath());
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported EVIO event index version " + version + ": " + indexFile.getPath());
+            }
+            final long fileSize = in.readLong();
+            final long lastModified = in.readLong();
+            final int size = in.readInt();
+            if (size < 0) {
+                throw new IOException("Bad event count in EVIO event index: " + indexFile.getPath());
+            }
+            final EvioEventIndex index = new EvioEventIndex(size);
+            index.fileSize = fileSize;
+            index.lastModified = lastModified;
+            index.size = size;
+            for (int i = 0; i < size; i++) {
+                index.offsets[i] = in.readLong();
+            }
+            readInts(in, index.lengths, size);
+            readInts(in, index.tags, size);
+            readInts(in, index.eventNumbers, size);
+            readInts(in, index.timestamps, size);
+            readInts(in, index.triggerBits, size);
+            index.checkSorted();
+            return index;
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Read the index of an EVIO file from its default location next to the file, or create and save it if it does
+     * not exist or is out of date.
+     *
+     * @param file the EVIO file
+     * @return the index of the file
+     * @throws IOException if there is an error reading the EVIO file or index file
+     */
+    public static EvioEventIndex getIndex(final File file) throws IOException {
+        final File indexFile = getIndexFile(file, null);
+        if (indexFile.exists()) {
+            try {
+                final EvioEventIndex index = read(indexFile);
+                if (index.matches(file)) {
+                    return index;
+                }
+                LOGGER.warning("Ignoring out of date index " + indexFile.getPath());
+            } catch (final IOException e) {
+                // Replace an index from an older version or a broken one.
+                LOGGER.warning("Ignoring unreadable index " + indexFile.getPath() + ": " + e.getMessage());
+            }
+        }
+        final EvioEventIndex index = create(file);
+        try {
+            index.write(indexFile);
+        } catch (final IOException e) {
+            // The index can still be used even if the EVIO file's directory is not writable.
+            LOGGER.warning("Could not save index " + indexFile.getPath() + ": " + e.getMessage());
+        }
+        return index;
+    }
+
+    /**
+     * Get the index file of an EVIO file.
+     *
+     * @param file the EVIO file
+     * @param directory the directory of the index file or <code>null</code> for the directory of the EVIO file
+     * @return the index file
+     */
+    public static File getIndexFile(final File file, final File directory) {
+        final File dir = directory != null ? directory : file.getAbsoluteFile().getParentFile();
+        return new File(dir, file.getName() + EXTENSION);
+    }
+
+    /**
+     * Write the index to a file.
+     * <p>
+     * A temporary file is written first and then renamed so that readers never see a partially written index.
+     *
+     * @param indexFile the index file
+     * @throws IOException if there is an error writing the file
+     */
+    public void write(final File indexFile) throws IOException {
+        final File tmpFile = new File(indexFile.getAbsoluteFile().getParentFile(), "tmp." + indexFile.getName());
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(this.fileSize);
+            out.writeLong(this.lastModified);
+            out.writeInt(this.size);
+            for (int i = 0; i < this.size; i++) {
+                out.writeLong(this.offsets[i]);
+            }
+            writeInts(out, this.lengths, this.size);
+            writeInts(out, this.tags, this.size);
+            writeInts(out, this.eventNumbers, this.size);
+            writeInts(out, this.timestamps, this.size);
+            writeInts(out, this.triggerBits, this.size);
+        } finally {
+            out.close();
+        }
+        if (indexFile.exists() && !indexFile.delete() || !tmpFile.renameTo(indexFile)) {
+            tmpFile.delete();
+            throw new IOException("Failed to rename " + tmpFile.getPath() + " to " + indexFile.getPath());
+        }
+    }
+
+    /**
+     * Return <code>true</code> if the index was created from a file with the same size and modification time as the
+     * given EVIO file.
+     *
+     * @param file the EVIO file
+     * @return <code>true</code> if the index matches the file
+     */
+    public boolean matches(final File file) {
+        return file.length() == this.fileSize && file.lastModified() == this.lastModified;
+    }
+
+    /**
+     * Get the number of events in the index.
+     *
+     * @return the number of events
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Get the byte offset of an event in the file.
+     *
+     * @param i the event's position in the file
+     * @return the byte offset of the event
+     */
+    public long getOffset(final int i) {
+        checkIndex(i);
+        return this.offsets[i];
+    }
+
+    /**
+     * Get the length of an event in bytes, including its bank header.
+     *
+     * @param i the event's position in the file
+     * @return the length of the event in bytes
+     */
+    public int getLength(final int i) {
+        checkIndex(i);
+        return this.lengths[i];
+    }
+
+    /**
+     * Get the tag of an event.
+     *
+     * @param i the event's position in the file
+     * @return the tag of the event
+     */
+    public int getTag(final int i) {
+        checkIndex(i);
+        return this.tags[i];
+    }
+
+    /**
+     * Get the event number of an event from its event ID bank.
+     *
+     * @param i the event's position in the file
+     * @return the event number or -1 if the event has no event ID bank
+     */
+    public int getEventNumber(final int i) {
+        checkIndex(i);
+        return this.eventNumbers[i];
+    }
+
+    /**
+     * Get the head bank timestamp of an event.
+     *
+     * @param i the event's position in the file
+     * @return the timestamp or 0 if the event has no head bank
+     */
+    public int getTimestamp(final int i) {
+        checkIndex(i);
+        return this.timestamps[i];
+    }
+
+    /**
+     * Get the trigger bits of an event from its TI bank.
+     *
+     * @param i the event's position in the file
+     * @return the trigger bits or 0 if the event has no TI bank
+     */
+    public int getTriggerBits(final int i) {
+        checkIndex(i);
+        return this.triggerBits[i];
+    }
+
+    /**
+     * Find the position of an event by its event number.
+     *
+     * @param eventNumber the event number
+     * @return the position of the event in the file or -1 if it is not found
+     */
+    public int findEvent(final int eventNumber) {
+        if (this.sortedEventNumbers) {
+            final int i = nextEventNumber(lowerBound(this.eventNumbers, -1, eventNumber, false));
+            return i < this.size && this.eventNumbers[i] == eventNumber ? i : -1;
+        }
+        for (int i = 0; i < this.size; i++) {
+            if (this.eventNumbers[i] == eventNumber) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Find the positions of the events with event numbers in a range.
+     * <p>
+     * If the event numbers increase in file order, the first event is found by bisection.
+     *
+     * @param firstEvent the first event number (inclusive)
+     * @param lastEvent the last event number (inclusive)
+     * @return the positions of the events in file order
+     */
+    public int[] findEventRange(final int firstEvent, final int lastEvent) {
+        return findRange(this.eventNumbers, -1, firstEvent, lastEvent, false, this.sortedEventNumbers);
+    }
+
+    /**
+     * Find the positions of the events with head bank timestamps in a range.
+     * <p>
+     * If the timestamps increase in file order, the first event is found by bisection.
+     *
+     * @param start the first timestamp (inclusive)
+     * @param end the last timestamp (inclusive)
+     * @return the positions of the events in file order
+     */
+    public int[] findTimestampRange(final long start, final long end) {
+        return findRange(this.timestamps, 0, start, end, true, this.sortedTimestamps);
+    }
+
+    /**
+     * Find the positions of the events with any of the given trigger bits set.
+     *
+     * @param mask the trigger bit mask
+     * @return the positions of the events in file order
+     */
+    public int[] findTriggerBits(final int mask) {
+        final int[] found = new int[this.size];
+        int n = 0;
+        for (int i = 0; i < this.size; i++) {
+            if ((this.triggerBits[i] & mask) != 0) {
+                found[n++] = i;
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    private void add(final long offset, final int length, final int tag, final int eventNumber, final int timestamp,
+            final int bits) {
+        if (this.size == this.offsets.length) {
+            final int capacity = this.size * 2;
+            this.offsets = Arrays.copyOf(this.offsets, capacity);
+            this.lengths = Arrays.copyOf(this.lengths, capacity);
+            this.tags = Arrays.copyOf(this.tags, capacity);
+            this.eventNumbers = Arrays.copyOf(this.eventNumbers, capacity);
+            this.timestamps = Arrays.copyOf(this.timestamps, capacity);
+            this.triggerBits = Arrays.copyOf(this.triggerBits, capacity);
+        }
+        this.offsets[this.size] = offset;
+        this.lengths[this.size] = length;
+        this.tags[this.size] = tag;
+        this.eventNumbers[this.size] = eventNumber;
+        this.timestamps[this.size] = timestamp;
+        this.triggerBits[this.size] = bits;
+        this.size++;
+    }
+
+    /**
+     * Get the position of the first event at or after the given position with an event number.
+     */
+    private int nextEventNumber(int i) {
+        while (i < this.size && this.eventNumbers[i] == -1) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Get the value of an event as a long, which is unsigned for the timestamps.
+     */
+    private static long value(final int[] values, final int i, final boolean unsigned) {
+        return unsigned ? values[i] & 0xffffffffL : values[i];
+    }
+
+    /**
+     * Find the position of the first event whose value is at least the key, in values that increase in file order
+     * apart from the events that do not have a value.
+     */
+    private int lowerBound(final int[] values, final int missing, final long key, final boolean unsigned) {
+        int lo = 0;
+        int hi = this.size;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            int m = mid;
+            while (m < hi && values[m] == missing) {
+                m++;
+            }
+            if (m == hi || value(values, m, unsigned) >= key) {
+                hi = mid;
+            } else {
+                lo = m + 1;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * Find the positions of the events whose values are in a range.
+     */
+    private int[] findRange(final int[] values, final int missing, final long first, final long last,
+            final boolean unsigned, final boolean sorted) {
+        final int[] found = new int[this.size];
+        int n = 0;
+        for (int i = sorted ? lowerBound(values, missing, first, unsigned) : 0; i < this.size; i++) {
+            if (values[i] == missing) {
+                continue;
+            }
+            final long value = value(values, i, unsigned);
+            if (value >= first && value <= last) {
+                found[n++] = i;
+            } else if (sorted && value > last) {
+                break;
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    private void checkIndex(final int i) {
+        if (i < 0 || i >= this.size) {
+            throw new IndexOutOfBoundsException("Event index " + i + " is out of range [0, " + this.size + ")");
+        }
+    }
+
+    private void checkSorted() {
+        this.sortedEventNumbers = true;
+        this.sortedTimestamps = true;
+        int lastEventNumber = Integer.MIN_VALUE;
+        long lastTimestamp = 0;
+        for (int i = 0; i < this.size; i++) {
+            final int eventNumber = this.eventNumbers[i];
+            if (eventNumber != -1) {
+                if (eventNumber < lastEventNumber) {
+                    this.sortedEventNumbers = false;
+                }
+                lastEventNumber = eventNumber;
+            }
+            final long timestamp = this.timestamps[i] & 0xffffffffL;
+            if (timestamp != 0) {
+                if (timestamp < lastTimestamp) {
+                    this.sortedTimestamps = false;
+                }
+                lastTimestamp = timestamp;
+            }
+        }
+    }
+
+    private static void readInts(final DataInputStream in, final int[] data, final int size) throws IOException {
+        for (int i = 0; i < size; i++) {
+            data[i] = in.readInt();
+        }
+    }
+
+    private static void writeInts(final DataOutputStream out, final int[] data, final int size) throws IOException {
+        for (int i = 0; i < size; i++) {
+            out.writeInt(data[i]);
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package org.hps.record.evio;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * Walks the block and event headers of an EVIO version 4 file using memory mapped I/O, without parsing the events.
+ * <p>
+ * Only the headers of the banks on the path to a requested bank are read, so getting a few small banks such as the head
+ * bank from each event is much faster than parsing the whole event with an <code>EvioReader</code>.
+ * <p>
+ * The file is mapped in windows that hold whole blocks, so files larger than 2 GB can be scanned.
+ */
+public final class EvioEventScanner implements Closeable {
+
+    /**
+     * Magic number in word 7 of each block header.
+     */
+    private static final int MAGIC = 0xc0da0100;
+
+    /**
+     * Size of block header in words.
+     */
+    private static final int BLOCK_HEADER_WORDS = 8;
+
+    /**
+     * Bit in the block header's version word which is set if the block starts with a dictionary event.
+     */
+    private static final int DICTIONARY_BIT = 0x100;
+
+    /**
+     * Bit in the block header's version word which is set in the last block.
+     */
+    private static final int LAST_BLOCK_BIT = 0x200;
+
+    /**
+     * Minimum size of a mapped window.
+     */
+    private static final long WINDOW_SIZE = 256L * 1024L * 1024L;
+
+    /**
+     * EVIO data types which are banks of banks.
+     */
+    private static final int BANK_TYPE = 0xe;
+    private static final int ALSO_BANK_TYPE = 0x10;
+
+    /**
+     * EVIO data types which hold 32-bit integers.
+     */
+    private static final int UINT32_TYPE = 0x1;
+    private static final int INT32_TYPE = 0xb;
+
+    /**
+     * The open file.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * The file channel.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The file size in bytes.
+     */
+    private final long fileSize;
+
+    /**
+     * The byte order of the file.
+     */
+    private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+    /**
+     * The mapped window of the file and its offset in the file.
+     */
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * File offset of the end of the current block.
+     */
+    private long blockEnd = 0;
+
+    /**
+     * Set after the block with the last block bit.
+     */
+    private boolean lastBlock = false;
+
+    /**
+     * File offset of the next event.
+     */
+    private long nextEvent = 0;
+
+    /**
+     * File offset, length in bytes and header word of the current event.
+     */
+    private long eventOffset = -1;
+    private int eventLength = 0;
+    private int eventHeader = 0;
+
+    /**
+     * Number of events read so far.
+     */
+    private long eventCount = 0;
+
+    /**
+     * Open an EVIO file for scanning.
+     *
+     * @param file the EVIO file
+     * @throws IOException if the file cannot be read or is not an EVIO version 4 file
+     */
+    public EvioEventScanner(final File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.fileSize = this.channel.size();
+        try {
+            if (this.fileSize < 4 * BLOCK_HEADER_WORDS) {
+                throw new IOException("File is too small to be EVIO: " + file.getPath());
+            }
+            map(0, 4 * BLOCK_HEADER_WORDS);
+            if (getInt(4 * 7) != MAGIC) {
+                this.order = ByteOrder.LITTLE_ENDIAN;
+                this.window.order(this.order);
+                if (getInt(4 * 7) != MAGIC) {
+                    throw new IOException("Bad EVIO magic number in " + file.getPath());
+                }
+            }
+            final int version = getInt(4 * 5) & 0xff;
+            if (version < 4) {
+                throw new IOException("EVIO version " + version + " is not supported in " + file.getPath());
+            }
+        } catch (final IOException e) {
+            this.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Close the file.
+     */
+    @Override
+    public void close() throws IOException {
+        this.window = null;
+        this.file.close();
+    }
+
+    /**
+     * Get the byte order of the file.
+     *
+     * @return the byte order of the file
+     */
+    public ByteOrder getByteOrder() {
+        return this.order;
+    }
+
+    /**
+     * Get the number of events read so far.
+     *
+     * @return the number of events read so far
+     */
+    public long getEventCount() {
+        return this.eventCount;
+    }
+
+    /**
+     * Get the offset of the current event in the file.
+     *
+     * @return the offset of the current event in bytes
+     */
+    public long getEventOffset() {
+        return this.eventOffset;
+    }
+
+    /**
+     * Get the length of the current event including its header.
+     *
+     * @return the length of the current event in bytes
+     */
+    public int getEventLength() {
+        return this.eventLength;
+    }
+
+    /**
+     * Get the tag of the current event.
+     *
+     * @return the tag of the current event
+     */
+    public int getEventTag() {
+        return this.eventHeader >>> 16;
+    }
+
+    /**
+     * Get the data type of the current event.
+     *
+     * @return the data type of the current event
+     */
+    public int getEventType() {
+        return (this.eventHeader >> 8) & 0x3f;
+    }
+
+    /**
+     * Get the integer data of the current event, if the event holds integers rather than banks.
+     *
+     * @return the integer data or <code>null</code> if the event does not hold integers
+     * @throws IOException if the event is not valid
+     */
+    public int[] getEventIntData() throws IOException {
+        if (!isIntType(getEventType())) {
+            return null;
+        }
+        return readInts(this.eventOffset + 8, this.eventLength / 4 - 2);
+    }
+
+    /**
+     * Find a bank in the current event by the tags of the banks on its path, like
+     * {@link org.hps.record.triggerbank.AbstractIntData.IntBankDefinition#findBank(org.jlab.coda.jevio.EvioEvent)}, and
+     * get its integer data.
+     *
+     * @param tags the tags of the banks from the top level of the event down to the bank
+     * @return the integer data or <code>null</code> if there is no such bank or it does not hold integers
+     * @throws IOException if the event is not valid
+     */
+    public int[] getIntData(final int... tags) throws IOException {
+        long bank = this.eventOffset;
+        int header = this.eventHeader;
+        int length = this.eventLength;
+        searchLoop: for (final int tag : tags) {
+            final int type = (header >> 8) & 0x3f;
+            if (type != BANK_TYPE && type != ALSO_BANK_TYPE) {
+                return null;
+            }
+            final long end = bank + length;
+            long child = bank + 8;
+            while (child + 8 <= end) {
+                final int childLength = 4 * (getInt(child) + 1);
+                if (childLength < 8 || child + childLength > end) {
+                    throw new IOException("Bad bank length at offset " + child);
+                }
+                final int childHeader = getInt(child + 4);
+                if (childHeader >>> 16 == tag) {
+                    // Found a bank with the right tag; step inside this bank and continue searching.
+                    bank = child;
+                    header = childHeader;
+                    length = childLength;
+                    continue searchLoop;
+                }
+                child += childLength;
+            }
+            return null;
+        }
+        if (!isIntType((header >> 8) & 0x3f)) {
+            return null;
+        }
+        return readInts(bank + 8, length / 4 - 2);
+    }
+
+    /**
+     * Get the integer data of the event ID bank of the current event like
+     * {@link EvioEventUtilities#getEventIdData(org.jlab.coda.jevio.EvioEvent)}, which uses the last top level bank with
+     * the event ID tag if there is more than one.
+     *
+     * @return the event ID integer data or <code>null</code> if there is no such bank or it does not hold integers
+     * @throws IOException if the event is not valid
+     */
+    public int[] getEventIdData() throws IOException {
+        final int type = getEventType();
+        if (type != BANK_TYPE && type != ALSO_BANK_TYPE) {
+            return null;
+        }
+        final long end = this.eventOffset + this.eventLength;
+        long child = this.eventOffset + 8;
+        long bank = -1;
+        int header = 0;
+        int length = 0;
+        while (child + 8 <= end) {
+            final int childLength = 4 * (getInt(child) + 1);
+            if (childLength < 8 || child + childLength > end) {
+                throw new IOException("Bad bank length at offset " + child);
+            }
+            final int childHeader = getInt(child + 4);
+            if (childHeader >>> 16 == EvioEventConstants.EVENTID_BANK_TAG) {
+                bank = child;
+                header = childHeader;
+                length = childLength;
+            }
+            child += childLength;
+        }
+        if (bank < 0 || !isIntType((header >> 8) & 0x3f)) {
+            return null;
+        }
+        return readInts(bank + 8, length / 4 - 2);
+    }
+
+    /**
+     * Move to the next event.
+     *
+     * @return <code>true</code> if there is a next event or <code>false</code> at the end of the file
+     * @throws IOException if the file is not valid
+     */
+    public boolean next() throws IOException {
+        while (this.nextEvent >= this.blockEnd) {
+            if (this.lastBlock || this.blockEnd + 4 * BLOCK_HEADER_WORDS > this.fileSize) {
+                return false;
+            }
+            readBlockHeader(this.blockEnd);
+        }
+        readEventHeader(this.nextEvent);
+        ++this.eventCount;
+        return true;
+    }
+
+    /**
+     * Read the block header at the given offset and make the whole block available.
+     */
+    private void readBlockHeader(final long offset) throws IOException {
+        map(offset, 4 * BLOCK_HEADER_WORDS);
+        final long blockLength = 4L * getInt(offset);
+        final int headerLength = 4 * getInt(offset + 4 * 2);
+        final int versionWord = getInt(offset + 4 * 5);
+        if (getInt(offset + 4 * 7) != MAGIC) {
+            throw new IOException("Bad EVIO magic number in block at offset " + offset);
+        }
+        if (headerLength < 4 * BLOCK_HEADER_WORDS || blockLength < headerLength
+                || offset + blockLength > this.fileSize || blockLength > Integer.MAX_VALUE) {
+            throw new IOException("Bad EVIO block header at offset " + offset);
+        }
+        map(offset, (int) blockLength);
+        this.blockEnd = offset + blockLength;
+        this.nextEvent = offset + headerLength;
+        this.lastBlock = (versionWord & LAST_BLOCK_BIT) != 0;
+        if ((versionWord & DICTIONARY_BIT) != 0 && this.nextEvent < this.blockEnd) {
+            // Skip the dictionary, which is not an event.
+            this.nextEvent += 4L * (getInt(this.nextEvent) + 1);
+        }
+    }
+
+    /**
+     * Read the header of the event at the given offset.
+     */
+    private void readEventHeader(final long offset) throws IOException {
+        final long length = 4L * (getInt(offset) + 1);
+        if (length < 8 || offset + length > this.blockEnd) {
+            throw new IOException("Bad EVIO event length at offset " + offset);
+        }
+        this.eventOffset = offset;
+        this.eventLength = (int) length;
+        this.eventHeader = getInt(offset + 4);
+        this.nextEvent = offset + length;
+    }
+
+    private static boolean isIntType(final int type) {
+        return type == UINT32_TYPE || type == INT32_TYPE;
+    }
+
+    /**
+     * Map a window of the file that contains the given range, if the current one does not.
+     */
+    private void map(final long offset, final int length) throws IOException {
+        if (this.window != null && offset >= this.windowStart
+                && offset + length <= this.windowStart + this.window.limit()) {
+            return;
+        }
+        final long size = Math.min(Math.max(WINDOW_SIZE, length), this.fileSize - offset);
+        this.window = this.channel.map(MapMode.READ_ONLY, offset, size);
+        this.window.order(this.order);
+        this.windowStart = offset;
+    }
+
+    private int getInt(final long offset) {
+        return this.window.getInt((int) (offset - this.windowStart));
+    }
+
+    private int[] readInts(final long offset, final int count) {
+        final int[] data = new int[Math.max(count, 0)];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = getInt(offset + 4L * i);
+        }
+        return data;
+    }
+}
@@ -0,0 +1,332 @@
+package org.hps.record.evio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.logging.Logger;
+
+import org.freehep.record.source.AbstractRecordSource;
+import org.freehep.record.source.NoSuchRecordException;
+import org.jlab.coda.jevio.EvioEvent;
+import org.jlab.coda.jevio.EvioException;
+import org.jlab.coda.jevio.EvioReader;
+
+/**
+ * An <code>AbstractRecordSource</code> supplying <code>EvioEvent</code> objects from a single EVIO file using its
+ * {@link EvioEventIndex}, so that only the selected events are read from the file.
+ * <p>
+ * By default all the events are selected. A range of event numbers or timestamps can be selected with
+ * {@link #selectEventRange(int, int)} or {@link #selectTimestampRange(long, long)}, and a single event can be read
+ * with {@link #seekEvent(int)}.
+ */
+public final class EvioIndexedFileSource extends AbstractRecordSource {
+
+    private static final Logger LOGGER = Logger.getLogger(EvioIndexedFileSource.class.getPackage().getName());
+
+    /**
+     * Magic number in word 7 of an EVIO block header.
+     */
+    private static final int MAGIC = 0xc0da0100;
+
+    /**
+     * Size of an EVIO block header in words.
+     */
+    private static final int BLOCK_HEADER_WORDS = 8;
+
+    /**
+     * The EVIO file.
+     */
+    private final File file;
+
+    /**
+     * The index of the file.
+     */
+    private final EvioEventIndex index;
+
+    /**
+     * The open file.
+     */
+    private final RandomAccessFile raf;
+
+    /**
+     * The byte order of the file.
+     */
+    private final ByteOrder order;
+
+    /**
+     * Positions of the selected events in the file, or <code>null</code> if all events are selected.
+     */
+    private int[] selection;
+
+    /**
+     * The position in the selection of the current event.
+     */
+    private int current = -1;
+
+    /**
+     * The current event.
+     */
+    private EvioEvent currentEvent;
+
+    /**
+     * Create a source for an EVIO file using the index next to the file, which is created if it does not exist.
+     *
+     * @param file the EVIO file
+     * @throws IOException if there is an error reading the file or its index
+     */
+    public EvioIndexedFileSource(final File file) throws IOException {
+        this(file, EvioEventIndex.getIndex(file));
+    }
+
+    /**
+     * Create a source for an EVIO file with its index.
+     *
+     * @param file the EVIO file
+     * @param index the index of the file
+     * @throws IOException if there is an error opening the file or the index does not match the file
+     */
+    public EvioIndexedFileSource(final File file, final EvioEventIndex index) throws IOException {
+        if (!index.matches(file)) {
+            throw new IOException("The index does not match the file " + file.getPath());
+        }
+        this.file = file;
+        this.index = index;
+        this.raf = new RandomAccessFile(file, "r");
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(4 * BLOCK_HEADER_WORDS);
+            this.raf.getChannel().read(header, 0);
+            this.order = header.getInt(4 * 7) == MAGIC ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        } catch (final IOException e) {
+            this.raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the index of the file.
+     *
+     * @return the index of the file
+     */
+    public EvioEventIndex getIndex() {
+        return this.index;
+    }
+
+    /**
+     * Get the EVIO file.
+     *
+     * @return the EVIO file
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    /**
+     * Select all the events in the file.
+     */
+    public void selectAll() {
+        this.select(null);
+    }
+
+    /**
+     * Select the events with event numbers in a range.
+     *
+     * @param firstEvent the first event number (inclusive)
+     * @param lastEvent the last event number (inclusive)
+     */
+    public void selectEventRange(final int firstEvent, final int lastEvent) {
+        this.select(this.index.findEventRange(firstEvent, lastEvent));
+    }
+
+    /**
+     * Select the events with head bank timestamps in a range.
+     *
+     * @param start the first timestamp (inclusive)
+     * @param end the last timestamp (inclusive)
+     */
+    public void selectTimestampRange(final long start, final long end) {
+        this.select(this.index.findTimestampRange(start, end));
+    }
+
+    /**
+     * Select the events with any of the given trigger bits set.
+     *
+     * @param mask the trigger bit mask
+     */
+    public void selectTriggerBits(final int mask) {
+        this.select(this.index.findTriggerBits(mask));
+    }
+
+    /**
+     * Select events by their positions in the file, which should be in file order.
+     *
+     * @param positions the positions of the events in the file or <code>null</code> to select all events
+     */
+    public void select(final int[] positions) {
+        this.selection = positions;
+        this.current = -1;
+        this.currentEvent = null;
+        LOGGER.fine("Selected " + this.size() + " events from " + this.file.getPath());
+    }
+
+    /**
+     * Read a single event by its event number and make it the current record.
+     * <p>
+     * This does not change the selection.
+     *
+     * @param eventNumber the event number
+     * @return the event or <code>null</code> if the event is not in the file
+     * @throws IOException if there is an error reading the event
+     */
+    public EvioEvent seekEvent(final int eventNumber) throws IOException {
+        final int position = this.index.findEvent(eventNumber);
+        if (position == -1) {
+            return null;
+        }
+        this.currentEvent = this.readEvent(position);
+        return this.currentEvent;
+    }
+
+    /**
+     * Read the event at a position in the selection and make it the current record.
+     *
+     * @param i the position in the selection
+     * @throws IOException if there is an error reading the event
+     */
+    public void seek(final int i) throws IOException {
+        if (i < 0 || i >= this.size()) {
+            throw new IndexOutOfBoundsException("Event " + i + " is out of range [0, " + this.size() + ")");
+        }
+        this.currentEvent = this.readEvent(this.position(i));
+        this.current = i;
+    }
+
+    /**
+     * Close the file.
+     *
+     * @throws IOException if there is an error closing the file
+     */
+    @Override
+    public void close() throws IOException {
+        this.raf.close();
+    }
+
+    /**
+     * Get the current record which is an <code>EvioEvent</code>.
+     *
+     * @return the current record
+     */
+    @Override
+    public Object getCurrentRecord() throws IOException {
+        return this.currentEvent;
+    }
+
+    /**
+     * Return <code>true</code> if there is a current record loaded.
+     *
+     * @return <code>true</code> if there is a current record loaded
+     */
+    @Override
+    public boolean hasCurrent() {
+        return this.currentEvent != null;
+    }
+
+    /**
+     * Return <code>true</code> if there are more selected events.
+     *
+     * @return <code>true</code> if there are more selected events
+     */
+    @Override
+    public boolean hasNext() {
+        return this.current + 1 < this.size();
+    }
+
+    /**
+     * Load the next selected event.
+     *
+     * @throws NoSuchRecordException if there are no more selected events
+     * @throws IOException if there is an error reading the event
+     */
+    @Override
+    public void next() throws IOException, NoSuchRecordException {
+        if (!this.hasNext()) {
+            throw new NoSuchRecordException("End of data.");
+        }
+        this.seek(this.current + 1);
+    }
+
+    /**
+     * Get the number of selected events.
+     *
+     * @return the number of selected events
+     */
+    @Override
+    public long size() {
+        return this.selection != null ? this.selection.length : this.index.size();
+    }
+
+    /**
+     * Return <code>true</code> to indicate current record capability is supported.
+     *
+     * @return <code>true</code> to indicate current record capability is supported
+     */
+    @Override
+    public boolean supportsCurrent() {
+        return true;
+    }
+
+    /**
+     * Return <code>true</code> to indicate next record capability is supported.
+     *
+     * @return <code>true</code> to indicate next record capability is supported
+     */
+    @Override
+    public boolean supportsNext() {
+        return true;
+    }
+
+    private int position(final int i) {
+        return this.selection != null ? this.selection[i] : i;
+    }
+
+    /**
+     * Read an event from the file and parse it.
+     * <p>
+     * The event's bytes are put after a block header for a single event so that they can be parsed by an
+     * <code>EvioReader</code> without reading the rest of the file.
+     */
+    private EvioEvent readEvent(final int position) throws IOException {
+        final int length = this.index.getLength(position);
+        final ByteBuffer buffer = ByteBuffer.allocate(4 * BLOCK_HEADER_WORDS + length);
+        buffer.order(this.order);
+        buffer.putInt(BLOCK_HEADER_WORDS + length / 4); // block length in words
+        buffer.putInt(1); // block number
+        buffer.putInt(BLOCK_HEADER_WORDS); // header length in words
+        buffer.putInt(1); // event count
+        buffer.putInt(0); // reserved
+        buffer.putInt(4 | 0x200); // version 4 and last block
+        buffer.putInt(0); // reserved
+        buffer.putInt(MAGIC);
+        final FileChannel channel = this.raf.getChannel();
+        long offset = this.index.getOffset(position);
+        while (buffer.hasRemaining()) {
+            final int n = channel.read(buffer, offset);
+            if (n < 0) {
+                throw new IOException("Unexpected end of file reading event " + position + " from " + this.file.getPath());
+            }
+            offset += n;
+        }
+        buffer.flip();
+        try {
+            final EvioEvent event = new EvioReader(buffer).parseNextEvent();
+            if (event == null) {
+                throw new IOException("No event at index " + position + " in " + this.file.getPath());
+            }
+            return event;
+        } catch (final EvioException e) {
+            throw new IOException("Error parsing event " + position + " from " + this.file.getPath(), e);
+        }
+    }
+}
@@ -33,24 +33,33 @@ public class TiTimeOffsetEvioProcessor extends EvioEventProcessor {
         final BaseStructure headBank = headBankDefinition.findBank(evioEvent);
         final BaseStructure tiBank = tiBankDefinition.findBank(evioEvent);
         if (headBank != null && tiBank != null) {
-            final int[] headData = headBank.getIntData();
-            final int thisTimestamp = headData[3];
-            final TIData tiData = new TIData(tiBank.getIntData());
-            if (thisTimestamp != 0) {
-                final long offset = thisTimestamp * 1000000000L - tiData.getTime();
-                if (minOffset == 0 || minOffset > offset) {
-                    if (maxOffset - offset < maxRange) {
-                        minOffset = offset;
-                    } else {
-                        nOutliers++;
-                    }
+            process(headBank.getIntData(), tiBank.getIntData());
+        }
+    }
+
+    /**
+     * Process the data of the head bank and TI bank from an event.
+     *
+     * @param headData the int data of the head bank
+     * @param tiBankData the int data of the TI bank
+     */
+    public void process(final int[] headData, final int[] tiBankData) {
+        final int thisTimestamp = headData[3];
+        final TIData tiData = new TIData(tiBankData);
+        if (thisTimestamp != 0) {
+            final long offset = thisTimestamp * 1000000000L - tiData.getTime();
+            if (minOffset == 0 || minOffset > offset) {
+                if (maxOffset - offset < maxRange) {
+                    minOffset = offset;
+                } else {
+                    nOutliers++;
                 }
-                if (maxOffset == 0 || maxOffset < offset) {
-                    if (offset - minOffset < maxRange) {
-                        maxOffset = offset;
-                    } else {
-                        nOutliers++;
-                    }
+            }
+            if (maxOffset == 0 || maxOffset < offset) {
+                if (offset - minOffset < maxRange) {
+                    maxOffset = offset;
+                } else {
+                    nOutliers++;
                 }
             }
         }
@@ -0,0 +1,596 @@
+package org.hps.record.triggerbank;
+
+import java.awt.Point;
+import java.util.Arrays;
+
+import org.lcsim.event.Cluster;
+
+/**
+ * Class <code>TriggerBatch</code> performs the trigger cuts of {@link
+ * org.hps.record.triggerbank.TriggerModule TriggerModule} and {@link
+ * org.hps.record.triggerbank.TriggerModule2019 TriggerModule2019} on
+ * all of the clusters of an event at once. The values used by the
+ * cuts are loaded from each cluster only once and stored in parallel
+ * primitive arrays, and cluster pairs are referred to by the indices
+ * of their clusters, so evaluating the cuts does not create any
+ * objects.
+ * <br/><br/>
+ * Cut results are reported as a bit mask of the <code>CUT_</code>
+ * constants defined in this class, where a set bit indicates that
+ * the cut passed. Method {@link
+ * org.hps.record.triggerbank.TriggerBatch#getPairCutMask(int, int)
+ * getPairCutMask(int, int)} evaluates every cut so that the results
+ * may be recorded, while {@link
+ * org.hps.record.triggerbank.TriggerBatch#passesPairCuts(int, int,
+ * int) passesPairCuts(int, int, int)} stops at the first cut that
+ * fails, starting with the least expensive ones. The results are the
+ * same as those of the trigger modules, including the rounding of
+ * cluster angles and the choice of the lower-energy cluster for the
+ * energy slope cut.
+ * <br/><br/>
+ * The batch may be reused for each event by calling {@link
+ * org.hps.record.triggerbank.TriggerBatch#clear() clear()}, and the
+ * cut values may be changed between evaluations to emulate several
+ * triggers with the same clusters. Cut values are copied when they
+ * are set, so the batch must be updated if the trigger module used
+ * to set them changes.
+ * @see TriggerModule
+ * @see TriggerModule2019
+ */
+public final class TriggerBatch {
+    /** Indicates that a cluster passes the cluster total energy lower
+     * bound cut. For pairs, both clusters must pass. */
+    public static final int CUT_CLUSTER_ENERGY_LOW = 1 << 0;
+    /** Indicates that a cluster passes the cluster total energy upper
+     * bound cut. For pairs, both clusters must pass. */
+    public static final int CUT_CLUSTER_ENERGY_HIGH = 1 << 1;
+    /** Indicates that a cluster passes the cluster hit count cut. For
+     * pairs, both clusters must pass. */
+    public static final int CUT_HIT_COUNT = 1 << 2;
+    /** Indicates that a cluster passes the 2019 singles trigger x-index
+     * lower bound cut. This always passes if the cut values were taken
+     * from a <code>TriggerModule</code>. */
+    public static final int CUT_X_MIN = 1 << 3;
+    /** Indicates that a cluster passes the 2019 singles trigger
+     * position-dependent energy cut. This always passes if the cut
+     * values were taken from a <code>TriggerModule</code>. */
+    public static final int CUT_POSITION_DEPENDENT_ENERGY = 1 << 4;
+    /** Indicates that a pair passes the energy sum lower bound cut. */
+    public static final int CUT_ENERGY_SUM_LOW = 1 << 5;
+    /** Indicates that a pair passes the energy sum upper bound cut. */
+    public static final int CUT_ENERGY_SUM_HIGH = 1 << 6;
+    /** Indicates that a pair passes the energy difference cut. */
+    public static final int CUT_ENERGY_DIFFERENCE = 1 << 7;
+    /** Indicates that a pair passes the energy slope cut. */
+    public static final int CUT_ENERGY_SLOPE = 1 << 8;
+    /** Indicates that a pair passes the coplanarity cut. */
+    public static final int CUT_COPLANARITY = 1 << 9;
+    /** Indicates that a pair passes the time coincidence cut. This
+     * always passes if the cut values were taken from a
+     * <code>TriggerModule2019</code>. */
+    public static final int CUT_TIME_COINCIDENCE = 1 << 10;
+    
+    /** All of the cuts that apply to individual clusters. */
+    public static final int CUTS_SINGLES = CUT_CLUSTER_ENERGY_LOW | CUT_CLUSTER_ENERGY_HIGH | CUT_HIT_COUNT
+            | CUT_X_MIN | CUT_POSITION_DEPENDENT_ENERGY;
+    /** All of the cuts that apply to cluster pairs. */
+    public static final int CUTS_PAIR = CUT_CLUSTER_ENERGY_LOW | CUT_CLUSTER_ENERGY_HIGH | CUT_HIT_COUNT
+            | CUT_ENERGY_SUM_LOW | CUT_ENERGY_SUM_HIGH | CUT_ENERGY_DIFFERENCE | CUT_ENERGY_SLOPE
+            | CUT_COPLANARITY | CUT_TIME_COINCIDENCE;
+    
+    /** The number of crystal positions along the x-axis in the crystal
+     * tables, including the unused position <code>ix = 0</code>. */
+    private static final int CRYSTAL_COLUMNS = 47;
+    /** The hardware x-position of each crystal in millimeters. */
+    private static final double[] CRYSTAL_X = new double[CRYSTAL_COLUMNS * 11];
+    /** The hardware y-position of each crystal in millimeters. */
+    private static final double[] CRYSTAL_Y = new double[CRYSTAL_COLUMNS * 11];
+    /** The distance of each crystal from the calorimeter center. */
+    private static final double[] CRYSTAL_R = new double[CRYSTAL_COLUMNS * 11];
+    /** The angle of each crystal, as used by the coplanarity cut. */
+    private static final int[] CRYSTAL_ANGLE = new int[CRYSTAL_COLUMNS * 11];
+    
+    // The crystal values only depend on the crystal indices, so they
+    // are calculated once for all crystals. The trigger modules use
+    // the same position mapping.
+    static {
+        for(int iy = -5; iy <= 5; iy++) {
+            for(int ix = -23; ix <= 23; ix++) {
+                if(ix == 0 || iy == 0) { continue; }
+                Point ixy = new Point(ix, iy);
+                int crystal = getCrystal(ix, iy);
+                CRYSTAL_X[crystal] = TriggerModule.getClusterX(ixy);
+                CRYSTAL_Y[crystal] = TriggerModule.getClusterY(ixy);
+                CRYSTAL_R[crystal] = Math.sqrt((CRYSTAL_X[crystal] * CRYSTAL_X[crystal]) + (CRYSTAL_Y[crystal] * CRYSTAL_Y[crystal]));
+                CRYSTAL_ANGLE[crystal] = (int) Math.round(Math.atan(CRYSTAL_X[crystal] / CRYSTAL_Y[crystal]) * 180.0 / Math.PI);
+            }
+        }
+    }
+    
+    // Cluster values. Each array holds one entry per cluster.
+    private int size = 0;
+    private double[] energy = new double[16];
+    private int[] hitCount = new int[16];
+    private double[] time = new double[16];
+    private int[] crystal = new int[16];
+    private int[] xIndex = new int[16];
+    private int[] yIndex = new int[16];
+    
+    // The indices of the top and bottom clusters, in the order in
+    // which the clusters were added.
+    private int topCount = 0;
+    private int[] topIndices = new int[16];
+    private int botCount = 0;
+    private int[] botIndices = new int[16];
+    
+    // Cut values. By default, all clusters and pairs pass.
+    private double hitCountLow = 0.0;
+    private double energyLow = 0.0;
+    private double energyHigh = Double.MAX_VALUE;
+    private double energySumLow = 0.0;
+    private double energySumHigh = Double.MAX_VALUE;
+    private double energyDifferenceHigh = Double.MAX_VALUE;
+    private double energySlopeLow = 0.0;
+    private double energySlopeF = 0.0055;
+    private double coplanarityHigh = 180.0;
+    private double timeCoincidence = Double.POSITIVE_INFINITY;
+    private boolean positionCuts = false;
+    private double xMin = 0.0;
+    private final double[] pdeThreshold = new double[24];
+    
+    /**
+     * Adds a <code>Cluster</code> object to the batch. The crystal
+     * indices are obtained from the cluster's seed hit, so the hit
+     * must have an ID decoder.
+     * @param cluster - The cluster.
+     * @return Returns the index of the cluster in the batch.
+     * @throws IndexOutOfBoundsException Occurs if the seed hit does
+     * not correspond to a valid crystal.
+     */
+    public int add(Cluster cluster) {
+        return add(cluster, TriggerModule.getClusterXIndex(cluster), TriggerModule.getClusterYIndex(cluster));
+    }
+    
+    /**
+     * Adds a <code>Cluster</code> object to the batch using the given
+     * crystal indices for its seed hit. This is for use with clusters
+     * that do not have a linked ID decoder.
+     * @param cluster - The cluster.
+     * @param ix - The x-index of the cluster seed crystal.
+     * @param iy - The y-index of the cluster seed crystal.
+     * @return Returns the index of the cluster in the batch.
+     * @throws IndexOutOfBoundsException Occurs if the indices do not
+     * correspond to a valid crystal.
+     */
+    public int add(Cluster cluster, int ix, int iy) {
+        return add(cluster.getEnergy(), cluster.getCalorimeterHits().size(), ix, iy, TriggerModule.getClusterTime(cluster));
+    }
+    
+    /**
+     * Adds an <code>SSPCluster</code> object to the batch.
+     * @param cluster - The cluster.
+     * @return Returns the index of the cluster in the batch.
+     * @throws IndexOutOfBoundsException Occurs if the cluster does not
+     * correspond to a valid crystal.
+     */
+    public int add(SSPCluster cluster) {
+        return add(cluster.getEnergy(), cluster.getHitCount(), cluster.getXIndex(), cluster.getYIndex(), cluster.getTime());
+    }
+    
+    /**
+     * Adds a cluster to the batch.
+     * @param clusterEnergy - The cluster energy in GeV.
+     * @param clusterHitCount - The number of hits in the cluster.
+     * @param ix - The x-index of the cluster seed crystal.
+     * @param iy - The y-index of the cluster seed crystal.
+     * @param clusterTime - The cluster time in nanoseconds.
+     * @return Returns the index of the cluster in the batch.
+     * @throws IndexOutOfBoundsException Occurs if the indices do not
+     * correspond to a valid crystal.
+     */
+    public int add(double clusterEnergy, int clusterHitCount, int ix, int iy, double clusterTime) {
+        // Make sure that the requested crystal is a valid crystal.
+        if(ix == 0 || ix < -23 || ix > 23) {
+            throw new IndexOutOfBoundsException(String.format("Value \"%d\" is invalid for field x-index.", ix));
+        }
+        if(iy == 0 || iy < -5 || iy > 5) {
+            throw new IndexOutOfBoundsException(String.format("Value \"%d\" is invalid for field y-index.", iy));
+        }
+        
+        // Make room for the cluster, if needed.
+        if(size == energy.length) {
+            int length = 2 * size;
+            energy = Arrays.copyOf(energy, length);
+            hitCount = Arrays.copyOf(hitCount, length);
+            time = Arrays.copyOf(time, length);
+            crystal = Arrays.copyOf(crystal, length);
+            xIndex = Arrays.copyOf(xIndex, length);
+            yIndex = Arrays.copyOf(yIndex, length);
+        }
+        
+        // Store the cluster values.
+        int index = size++;
+        energy[index] = clusterEnergy;
+        hitCount[index] = clusterHitCount;
+        time[index] = clusterTime;
+        crystal[index] = getCrystal(ix, iy);
+        xIndex[index] = ix;
+        yIndex[index] = iy;
+        
+        // Clusters with a positive y-index are top clusters and all
+        // others are bottom clusters.
+        if(iy > 0) {
+            if(topCount == topIndices.length) { topIndices = Arrays.copyOf(topIndices, 2 * topCount); }
+            topIndices[topCount++] = index;
+        } else {
+            if(botCount == botIndices.length) { botIndices = Arrays.copyOf(botIndices, 2 * botCount); }
+            botIndices[botCount++] = index;
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Removes all clusters from the batch. Cut values are retained.
+     */
+    public void clear() {
+        size = 0;
+        topCount = 0;
+        botCount = 0;
+    }
+    
+    /**
+     * Gets the index of a bottom cluster.
+     * @param n - The position of the cluster among the bottom clusters,
+     * in the order in which they were added.
+     * @return Returns the index of the cluster in the batch.
+     */
+    public int getBottomCluster(int n) {
+        if(n < 0 || n >= botCount) {
+            throw new IndexOutOfBoundsException("Bottom cluster " + n + " does not exist.");
+        }
+        return botIndices[n];
+    }
+    
+    /**
+     * Gets the number of bottom clusters in the batch.
+     * @return Returns the number of clusters with a y-index that is
+     * not positive.
+     */
+    public int getBottomClusterCount() {
+        return botCount;
+    }
+    
+    /**
+     * Gets the energy of a cluster.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns the energy in GeV.
+     */
+    public double getEnergy(int index) {
+        return energy[checkIndex(index)];
+    }
+    
+    /**
+     * Gets the number of hits in a cluster.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns the hit count.
+     */
+    public int getHitCount(int index) {
+        return hitCount[checkIndex(index)];
+    }
+    
+    /**
+     * Evaluates all of the cluster and pair cuts for a cluster pair.
+     * The cluster cuts are considered to pass only if both clusters
+     * pass them. The 2019 singles trigger cuts are not included.
+     * @param first - The index of the first cluster of the pair.
+     * @param second - The index of the second cluster of the pair.
+     * @return Returns a bit mask of the <code>CUT_</code> constants
+     * of the cuts that the pair passes.
+     */
+    public int getPairCutMask(int first, int second) {
+        checkIndex(first);
+        checkIndex(second);
+        
+        int mask = (getSinglesCutMask(first) & getSinglesCutMask(second)) & ~(CUT_X_MIN | CUT_POSITION_DEPENDENT_ENERGY);
+        double energySum = energy[first] + energy[second];
+        if(energySum >= energySumLow) { mask |= CUT_ENERGY_SUM_LOW; }
+        if(energySum <= energySumHigh) { mask |= CUT_ENERGY_SUM_HIGH; }
+        if(Math.abs(energy[first] - energy[second]) <= energyDifferenceHigh) { mask |= CUT_ENERGY_DIFFERENCE; }
+        if(getEnergySlope(first, second) >= energySlopeLow) { mask |= CUT_ENERGY_SLOPE; }
+        if(getCoplanarity(first, second) <= coplanarityHigh) { mask |= CUT_COPLANARITY; }
+        if(Math.abs(time[first] - time[second]) <= timeCoincidence) { mask |= CUT_TIME_COINCIDENCE; }
+        return mask;
+    }
+    
+    /**
+     * Evaluates all of the cluster cuts for a cluster.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns a bit mask of the <code>CUT_</code> constants
+     * of the cuts that the cluster passes.
+     */
+    public int getSinglesCutMask(int index) {
+        checkIndex(index);
+        
+        int mask = 0;
+        if(energy[index] >= energyLow) { mask |= CUT_CLUSTER_ENERGY_LOW; }
+        if(energy[index] <= energyHigh) { mask |= CUT_CLUSTER_ENERGY_HIGH; }
+        if(hitCount[index] >= hitCountLow) { mask |= CUT_HIT_COUNT; }
+        if(passesXMinCut(index)) { mask |= CUT_X_MIN; }
+        if(passesPositionDependentEnergyCut(index)) { mask |= CUT_POSITION_DEPENDENT_ENERGY; }
+        return mask;
+    }
+    
+    /**
+     * Gets the time of a cluster.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns the time in nanoseconds.
+     */
+    public double getTime(int index) {
+        return time[checkIndex(index)];
+    }
+    
+    /**
+     * Gets the index of a top cluster.
+     * @param n - The position of the cluster among the top clusters,
+     * in the order in which they were added.
+     * @return Returns the index of the cluster in the batch.
+     */
+    public int getTopCluster(int n) {
+        if(n < 0 || n >= topCount) {
+            throw new IndexOutOfBoundsException("Top cluster " + n + " does not exist.");
+        }
+        return topIndices[n];
+    }
+    
+    /**
+     * Gets the number of top clusters in the batch.
+     * @return Returns the number of clusters with a positive y-index.
+     */
+    public int getTopClusterCount() {
+        return topCount;
+    }
+    
+    /**
+     * Gets the x-index of the seed crystal of a cluster.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns the x-index.
+     */
+    public int getXIndex(int index) {
+        return xIndex[checkIndex(index)];
+    }
+    
+    /**
+     * Gets the y-index of the seed crystal of a cluster.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns the y-index.
+     */
+    public int getYIndex(int index) {
+        return yIndex[checkIndex(index)];
+    }
+    
+    /**
+     * Checks whether any pair of a top cluster and a bottom cluster
+     * passes the specified cuts. Pairs are formed with the top cluster
+     * first, as in {@link
+     * org.hps.record.triggerbank.TriggerModule#getTopBottomPairs(java.util.List,
+     * Class) TriggerModule.getTopBottomPairs(List, Class)}.
+     * @param cuts - A bit mask of the <code>CUT_</code> constants of
+     * the cuts that must pass.
+     * @return Returns <code>true</code> if at least one pair passes
+     * all of the cuts and <code>false</code> otherwise.
+     */
+    public boolean hasPassingPair(int cuts) {
+        for(int t = 0; t < topCount; t++) {
+            for(int b = 0; b < botCount; b++) {
+                if(passesPairCuts(topIndices[t], botIndices[b], cuts)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Checks whether a cluster pair passes the specified cuts. Cuts
+     * are performed in order of increasing cost, and the check stops
+     * as soon as one fails. The cluster cuts are considered to pass
+     * only if both clusters pass them.
+     * @param first - The index of the first cluster of the pair.
+     * @param second - The index of the second cluster of the pair.
+     * @param cuts - A bit mask of the <code>CUT_</code> constants of
+     * the cuts that must pass.
+     * @return Returns <code>true</code> if the pair passes all of the
+     * cuts and <code>false</code> otherwise.
+     */
+    public boolean passesPairCuts(int first, int second, int cuts) {
+        checkIndex(first);
+        checkIndex(second);
+        
+        if((cuts & CUT_TIME_COINCIDENCE) != 0 && !(Math.abs(time[first] - time[second]) <= timeCoincidence)) {
+            return false;
+        }
+        if((cuts & (CUT_ENERGY_SUM_LOW | CUT_ENERGY_SUM_HIGH)) != 0) {
+            double energySum = energy[first] + energy[second];
+            if((cuts & CUT_ENERGY_SUM_LOW) != 0 && !(energySum >= energySumLow)) { return false; }
+            if((cuts & CUT_ENERGY_SUM_HIGH) != 0 && !(energySum <= energySumHigh)) { return false; }
+        }
+        if((cuts & CUT_ENERGY_DIFFERENCE) != 0 && !(Math.abs(energy[first] - energy[second]) <= energyDifferenceHigh)) {
+            return false;
+        }
+        if((cuts & CUTS_SINGLES) != 0 && !(passesSinglesCuts(first, cuts) && passesSinglesCuts(second, cuts))) {
+            return false;
+        }
+        if((cuts & CUT_COPLANARITY) != 0 && !(getCoplanarity(first, second) <= coplanarityHigh)) {
+            return false;
+        }
+        if((cuts & CUT_ENERGY_SLOPE) != 0 && !(getEnergySlope(first, second) >= energySlopeLow)) {
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Checks whether a cluster passes the specified cuts. Cuts are
+     * performed in order, and the check stops as soon as one fails.
+     * Pair cuts in the mask are ignored.
+     * @param index - The index of the cluster in the batch.
+     * @param cuts - A bit mask of the <code>CUT_</code> constants of
+     * the cuts that must pass.
+     * @return Returns <code>true</code> if the cluster passes all of
+     * the cuts and <code>false</code> otherwise.
+     */
+    public boolean passesSinglesCuts(int index, int cuts) {
+        checkIndex(index);
+        
+        if((cuts & CUT_HIT_COUNT) != 0 && !(hitCount[index] >= hitCountLow)) { return false; }
+        if((cuts & CUT_CLUSTER_ENERGY_LOW) != 0 && !(energy[index] >= energyLow)) { return false; }
+        if((cuts & CUT_CLUSTER_ENERGY_HIGH) != 0 && !(energy[index] <= energyHigh)) { return false; }
+        if((cuts & CUT_X_MIN) != 0 && !passesXMinCut(index)) { return false; }
+        if((cuts & CUT_POSITION_DEPENDENT_ENERGY) != 0 && !passesPositionDependentEnergyCut(index)) { return false; }
+        return true;
+    }
+    
+    /**
+     * Sets the cut values to those of a <code>TriggerModule</code>.
+     * The 2019 singles trigger cuts will always pass.
+     * @param module - The trigger module.
+     */
+    public void setCuts(TriggerModule module) {
+        hitCountLow = module.getCutValue(TriggerModule.CLUSTER_HIT_COUNT_LOW);
+        energyLow = module.getCutValue(TriggerModule.CLUSTER_TOTAL_ENERGY_LOW);
+        energyHigh = module.getCutValue(TriggerModule.CLUSTER_TOTAL_ENERGY_HIGH);
+        energySumLow = module.getCutValue(TriggerModule.PAIR_ENERGY_SUM_LOW);
+        energySumHigh = module.getCutValue(TriggerModule.PAIR_ENERGY_SUM_HIGH);
+        energyDifferenceHigh = module.getCutValue(TriggerModule.PAIR_ENERGY_DIFFERENCE_HIGH);
+        energySlopeLow = module.getCutValue(TriggerModule.PAIR_ENERGY_SLOPE_LOW);
+        energySlopeF = module.getCutValue(TriggerModule.PAIR_ENERGY_SLOPE_F);
+        coplanarityHigh = module.getCutValue(TriggerModule.PAIR_COPLANARITY_HIGH);
+        timeCoincidence = module.getCutValue(TriggerModule.PAIR_TIME_COINCIDENCE);
+        positionCuts = false;
+    }
+    
+    /**
+     * Sets the cut values to those of a <code>TriggerModule2019</code>.
+     * The 2019 trigger forms pairs by readout clock-cycle rather than
+     * by cluster time, so the time coincidence cut will always pass.
+     * @param module - The trigger module.
+     */
+    public void setCuts(TriggerModule2019 module) {
+        hitCountLow = module.getCutValue(TriggerModule2019.CLUSTER_HIT_COUNT_LOW);
+        energyLow = module.getCutValue(TriggerModule2019.CLUSTER_TOTAL_ENERGY_LOW);
+        energyHigh = module.getCutValue(TriggerModule2019.CLUSTER_TOTAL_ENERGY_HIGH);
+        energySumLow = module.getCutValue(TriggerModule2019.PAIR_ENERGY_SUM_LOW);
+        energySumHigh = module.getCutValue(TriggerModule2019.PAIR_ENERGY_SUM_HIGH);
+        energyDifferenceHigh = module.getCutValue(TriggerModule2019.PAIR_ENERGY_DIFFERENCE_HIGH);
+        energySlopeLow = module.getCutValue(TriggerModule2019.PAIR_ENERGY_SLOPE_LOW);
+        energySlopeF = module.getCutValue(TriggerModule2019.PAIR_ENERGY_SLOPE_F);
+        coplanarityHigh = module.getCutValue(TriggerModule2019.PAIR_COPLANARITY_HIGH);
+        timeCoincidence = Double.POSITIVE_INFINITY;
+        
+        // The position-dependent energy threshold only depends on the
+        // hardware x-coordinate, so it is calculated once for each.
+        positionCuts = true;
+        xMin = module.getCutValue(TriggerModule2019.CLUSTER_XMIN);
+        double c0 = module.getCutValue(TriggerModule2019.CLUSTER_PDE_C0);
+        double c1 = module.getCutValue(TriggerModule2019.CLUSTER_PDE_C1);
+        double c2 = module.getCutValue(TriggerModule2019.CLUSTER_PDE_C2);
+        double c3 = module.getCutValue(TriggerModule2019.CLUSTER_PDE_C3);
+        for(int x = 1; x < 23; x++) {
+            pdeThreshold[x] = c0 + c1 * x + c2 * Math.pow(x, 2) + c3 * Math.pow(x, 3);
+        }
+    }
+    
+    /**
+     * Gets the number of clusters in the batch.
+     * @return Returns the number of clusters.
+     */
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Verifies that a cluster index is valid.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns the index.
+     * @throws IndexOutOfBoundsException Occurs if there is no cluster
+     * with the specified index.
+     */
+    private int checkIndex(int index) {
+        if(index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Cluster " + index + " does not exist.");
+        }
+        return index;
+    }
+    
+    /**
+     * Calculates the value used by the coplanarity cut.
+     * @param first - The index of the first cluster of the pair.
+     * @param second - The index of the second cluster of the pair.
+     * @return Returns the difference between the cluster angles in
+     * units of degrees.
+     */
+    private double getCoplanarity(int first, int second) {
+        return Math.abs(CRYSTAL_ANGLE[crystal[second]] - CRYSTAL_ANGLE[crystal[first]]);
+    }
+    
+    /**
+     * Calculates the value used by the energy slope cut. As with the
+     * trigger modules, the second cluster is used if the clusters
+     * have the same energy.
+     * @param first - The index of the first cluster of the pair.
+     * @param second - The index of the second cluster of the pair.
+     * @return Returns the energy slope value.
+     */
+    private double getEnergySlope(int first, int second) {
+        int lei = energy[first] < energy[second] ? first : second;
+        return energy[lei] + CRYSTAL_R[crystal[lei]] * energySlopeF;
+    }
+    
+    /**
+     * Gets the x-coordinate used by the 2019 hardware for a cluster.
+     * This runs from -22 to 0 on the negative side and from 1 to 23
+     * on the positive side.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns the hardware x-coordinate.
+     */
+    private int getHardwareX(int index) {
+        return xIndex[index] < 0 ? xIndex[index] + 1 : xIndex[index];
+    }
+    
+    /**
+     * Checks whether a cluster passes the 2019 position-dependent
+     * energy cut. Clusters with a hardware x-coordinate below 1 do not
+     * pass the cut.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns <code>true</code> if the cluster passes the cut
+     * and <code>false</code> otherwise.
+     */
+    private boolean passesPositionDependentEnergyCut(int index) {
+        if(!positionCuts) { return true; }
+        int x = getHardwareX(index);
+        if(x == 23) { return true; }
+        return x >= 1 && energy[index] >= pdeThreshold[x];
+    }
+    
+    /**
+     * Checks whether a cluster passes the 2019 x-coordinate lower
+     * bound cut.
+     * @param index - The index of the cluster in the batch.
+     * @return Returns <code>true</code> if the cluster passes the cut
+     * and <code>false</code> otherwise.
+     */
+    private boolean passesXMinCut(int index) {
+        return !positionCuts || getHardwareX(index) >= xMin;
+    }
+    
+    /**
+     * Gets the position of a crystal in the crystal tables.
+     * @param ix - The crystal x-index.
+     * @param iy - The crystal y-index.
+     * @return Returns the table position.
+     */
+    private static final int getCrystal(int ix, int iy) {
+        return (iy + 5) * CRYSTAL_COLUMNS + (ix + 23);
+    }
+}
@@ -69,15 +69,24 @@ public enum TriggerType {
      * @return the set of matching trigger types for the event
      */
     public static Set<TriggerType> getTriggerTypes(EvioEvent evioEvent) {
-        Set<TriggerType> matches = new HashSet<TriggerType>();
         BaseStructure tiBank = TI_BANK.findBank(evioEvent);
         if (tiBank != null) {
-            int[] triggerData = tiBank.getIntData();
-            if (triggerData != null) {
-                for (TriggerType triggerType : TriggerType.values()) {
-                    if (triggerType.matches(triggerData[0])) {
-                        matches.add(triggerType);
-                    }
+            return getTriggerTypes(tiBank.getIntData());
+        }
+        return new HashSet<TriggerType>();
+    }
+    
+    /**
+     * Get the applicable trigger types from the TI bank data.
+     * @param triggerData the int data of the TI bank (can be null)
+     * @return the set of matching trigger types for the event
+     */
+    public static Set<TriggerType> getTriggerTypes(int[] triggerData) {
+        Set<TriggerType> matches = new HashSet<TriggerType>();
+        if (triggerData != null && triggerData.length > 0) {
+            for (TriggerType triggerType : TriggerType.values()) {
+                if (triggerType.matches(triggerData[0])) {
+                    matches.add(triggerType);
                 }
             }
         }
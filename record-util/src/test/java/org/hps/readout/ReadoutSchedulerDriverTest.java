@@ -0,0 +1,206 @@
+package org.hps.readout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hps.readout.util.collection.LCIOCollection;
+import org.hps.readout.util.collection.LCIOCollectionFactory;
+import org.lcsim.event.EventHeader;
+
+/**
+ * Check that {@link ReadoutSchedulerDriver} gives the same driver
+ * output when the drivers of a stage are run in parallel as when all
+ * drivers are run serially, and that it rejects reads of collections
+ * which a driver does not declare as a dependency.
+ */
+public class ReadoutSchedulerDriverTest extends TestCase {
+    private static final int N_BUNCHES = 2000;
+
+    /**
+     * Registers a collection of <code>Double</code> objects produced
+     * by a driver.
+     * @param collectionName - The name of the collection.
+     * @param driver - The production driver of the collection.
+     */
+    private static final void registerCollection(String collectionName, ReadoutDriver driver) {
+        LCIOCollectionFactory.setCollectionName(collectionName);
+        LCIOCollectionFactory.setProductionDriver(driver);
+        LCIOCollection<Double> params = LCIOCollectionFactory.produceLCIOCollection(Double.class);
+        ReadoutDataManager.registerCollection(params, false);
+    }
+
+    /**
+     * Produces a random number of random values each beam bunch, in
+     * place of the truth data of a subdetector.
+     */
+    private static final class SourceDriver extends ReadoutDriver {
+        private final String outputCollectionName;
+        private final Random random;
+        private double localTime = 0.0;
+
+        SourceDriver(String outputCollectionName, long seed) {
+            this.outputCollectionName = outputCollectionName;
+            random = new Random(seed);
+        }
+
+        @Override
+        public void process(EventHeader event) {
+            List<Double> values = new ArrayList<Double>();
+            int count = random.nextInt(4);
+            for(int i = 0; i < count; i++) {
+                values.add(Double.valueOf(random.nextDouble()));
+            }
+            ReadoutDataManager.addData(outputCollectionName, localTime, values, Double.class);
+            localTime += ReadoutDataManager.getBeamBunchSize();
+        }
+
+        @Override
+        public void startOfData() {
+            registerCollection(outputCollectionName, this);
+        }
+
+        @Override
+        protected double getTimeDisplacement() {
+            return 0;
+        }
+
+        @Override
+        protected double getTimeNeededForLocalOutput() {
+            return 0;
+        }
+    }
+
+    /**
+     * Sums the values of its input collections from the current beam
+     * bunch, and records each sum.
+     */
+    private static class SumDriver extends ReadoutDriver {
+        private final String outputCollectionName;
+        private final String[] inputCollectionNames;
+        private final List<Double> sums = new ArrayList<Double>();
+        private double localTime = 0.0;
+
+        SumDriver(String outputCollectionName, String... inputCollectionNames) {
+            this.outputCollectionName = outputCollectionName;
+            this.inputCollectionNames = inputCollectionNames;
+        }
+
+        @Override
+        public void process(EventHeader event) {
+            double sum = 0.0;
+            for(String inputCollectionName : inputCollectionNames) {
+                Collection<Double> values = ReadoutDataManager.getData(localTime, localTime + ReadoutDataManager.getBeamBunchSize(),
+                        inputCollectionName, Double.class);
+                for(Double value : values) {
+                    sum += value.doubleValue();
+                }
+            }
+            sums.add(Double.valueOf(sum));
+            ReadoutDataManager.addData(outputCollectionName, localTime, Arrays.asList(Double.valueOf(sum)), Double.class);
+            localTime += ReadoutDataManager.getBeamBunchSize();
+        }
+
+        @Override
+        public void startOfData() {
+            for(String inputCollectionName : inputCollectionNames) {
+                addDependency(inputCollectionName);
+            }
+            registerCollection(outputCollectionName, this);
+        }
+
+        @Override
+        protected double getTimeDisplacement() {
+            return 0;
+        }
+
+        @Override
+        protected double getTimeNeededForLocalOutput() {
+            return 0;
+        }
+    }
+
+    /**
+     * Creates three independent sources, two sums of single sources,
+     * and a total of the sums and the third source, so that the
+     * drivers are divided into three stages. The collection names are
+     * prefixed so that the drivers of each test are independent.
+     * @param prefix - The collection name prefix.
+     * @return Returns the drivers in the order in which they were
+     * created. The total driver is last.
+     */
+    private static final List<ReadoutDriver> createDrivers(String prefix) {
+        List<ReadoutDriver> drivers = new ArrayList<ReadoutDriver>();
+        drivers.add(new SourceDriver(prefix + "EcalHits", 1));
+        drivers.add(new SourceDriver(prefix + "HodoscopeHits", 2));
+        drivers.add(new SourceDriver(prefix + "TrackerHits", 3));
+        drivers.add(new SumDriver(prefix + "EcalSums", prefix + "EcalHits"));
+        drivers.add(new SumDriver(prefix + "HodoscopeSums", prefix + "HodoscopeHits"));
+        drivers.add(new SumDriver(prefix + "Totals", prefix + "EcalSums", prefix + "HodoscopeSums", prefix + "TrackerHits"));
+        return drivers;
+    }
+
+    /**
+     * Runs the drivers with the scheduler.
+     * @param drivers - The drivers to run.
+     * @param threads - The number of scheduler threads.
+     */
+    private static final void run(List<ReadoutDriver> drivers, int threads) {
+        ReadoutSchedulerDriver scheduler = new ReadoutSchedulerDriver();
+        scheduler.setDrivers(drivers);
+        scheduler.setThreads(threads);
+        scheduler.startOfData();
+        try {
+            for(int i = 0; i < N_BUNCHES; i++) {
+                scheduler.process(null);
+            }
+        } finally {
+            scheduler.endOfData();
+        }
+    }
+
+    public void testParallelAgainstSerial() {
+        List<ReadoutDriver> serialDrivers = createDrivers("Serial");
+        List<ReadoutDriver> parallelDrivers = createDrivers("Parallel");
+        run(serialDrivers, 1);
+        run(parallelDrivers, 4);
+
+        for(int i = 3; i < serialDrivers.size(); i++) {
+            List<Double> serialSums = ((SumDriver) serialDrivers.get(i)).sums;
+            List<Double> parallelSums = ((SumDriver) parallelDrivers.get(i)).sums;
+            assertEquals(N_BUNCHES, serialSums.size());
+            assertEquals("driver " + i, serialSums, parallelSums);
+        }
+
+        // Check that the totals include the sums of the same bunch,
+        // which are only available if the stages are run in order.
+        List<Double> totals = ((SumDriver) serialDrivers.get(5)).sums;
+        List<Double> ecalSums = ((SumDriver) serialDrivers.get(3)).sums;
+        List<Double> hodoscopeSums = ((SumDriver) serialDrivers.get(4)).sums;
+        for(int i = 0; i < N_BUNCHES; i++) {
+            assertTrue("bunch " + i, totals.get(i).doubleValue() >= ecalSums.get(i).doubleValue() + hodoscopeSums.get(i).doubleValue());
+        }
+    }
+
+    public void testUndeclaredDependency() {
+        final String inputCollectionName = "UndeclaredHits";
+        List<ReadoutDriver> drivers = new ArrayList<ReadoutDriver>();
+        drivers.add(new SourceDriver(inputCollectionName, 4));
+        drivers.add(new SumDriver("UndeclaredSums") {
+            @Override
+            public void process(EventHeader event) {
+                ReadoutDataManager.getData(0, ReadoutDataManager.getBeamBunchSize(), inputCollectionName, Double.class);
+            }
+        });
+        try {
+            run(drivers, 1);
+            fail("reading an undeclared collection should fail");
+        } catch(IllegalStateException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(inputCollectionName));
+        }
+    }
+}
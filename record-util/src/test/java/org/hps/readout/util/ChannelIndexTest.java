@@ -0,0 +1,94 @@
+package org.hps.readout.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.hps.util.LongIntHashMap;
+
+/**
+ * Check that {@link ChannelIndex} assigns indices in the iteration
+ * order of the channel IDs, and that IDs which are not in the index
+ * are not found, also when they share hash table slots with IDs
+ * that are.
+ */
+public class ChannelIndexTest extends TestCase {
+    /**
+     * The size of the hash table of an index of a few channels.
+     */
+    private static final int TABLE_SIZE = 16;
+
+    /**
+     * Indices follow the iteration order of the channel IDs.
+     */
+    public void testOrder() {
+        Set<Long> ids = new LinkedHashSet<Long>(Arrays.asList(42L, -7L, 0L, 1L << 40, Long.MIN_VALUE, Long.MAX_VALUE));
+        ChannelIndex index = new ChannelIndex(ids);
+        assertEquals(ids.size(), index.size());
+        int i = 0;
+        for(Long id : ids) {
+            assertEquals(id.longValue(), index.getID(i));
+            assertEquals(i, index.getIndex(id));
+            i++;
+        }
+    }
+
+    /**
+     * IDs which are not in the index are not found, whether they
+     * share the first hash table slot with the IDs in the index or
+     * not.
+     */
+    public void testMissingIDs() {
+        List<Long> colliding = findCollidingIDs(8);
+        ChannelIndex index = new ChannelIndex(colliding.subList(0, 6));
+        for(int i = 0; i < 6; i++) {
+            assertEquals(i, index.getIndex(colliding.get(i)));
+        }
+
+        // These probe past all of the IDs in the index.
+        assertEquals(-1, index.getIndex(colliding.get(6)));
+        assertEquals(-1, index.getIndex(colliding.get(7)));
+
+        // These do not.
+        assertEquals(-1, index.getIndex(0L));
+        assertEquals(-1, index.getIndex(colliding.get(0) + 1));
+        assertEquals(-1, index.getIndex(-colliding.get(0)));
+
+        // Nothing is found in an empty index.
+        ChannelIndex empty = new ChannelIndex(new ArrayList<Long>());
+        assertEquals(0, empty.size());
+        assertEquals(-1, empty.getIndex(colliding.get(0)));
+    }
+
+    /**
+     * A repeated ID is rejected.
+     */
+    public void testRepeatedID() {
+        try {
+            new ChannelIndex(Arrays.asList(1L, 2L, 3L, 2L));
+            fail("No exception for a repeated channel ID.");
+        } catch(IllegalArgumentException e) {
+        }
+    }
+
+    /**
+     * Finds IDs whose first slot is the last one of the hash table,
+     * so that looking them up probes past each other and wraps
+     * around to the start of the table.
+     * @param n - The number of IDs.
+     * @return Returns the IDs.
+     */
+    private static final List<Long> findCollidingIDs(int n) {
+        List<Long> ids = new ArrayList<Long>();
+        for(long id = 1L << 32; ids.size() < n; id++) {
+            if((LongIntHashMap.hash(id) & (TABLE_SIZE - 1)) == TABLE_SIZE - 1) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+}
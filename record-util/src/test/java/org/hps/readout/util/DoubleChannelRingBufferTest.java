@@ -0,0 +1,125 @@
+package org.hps.readout.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that {@link DoubleChannelRingBuffer} wraps around like one
+ * {@link DoubleRingBuffer} per channel, and that the channels do
+ * not share cells.
+ */
+public class DoubleChannelRingBufferTest extends TestCase {
+    private static final int CHANNELS = 3;
+    private static final int SIZE = 5;
+
+    /**
+     * Positions relative to the current one wrap around at both ends
+     * of each channel's buffer.
+     */
+    public void testWrapAround() {
+        DoubleChannelRingBuffer buffer = new DoubleChannelRingBuffer(CHANNELS, SIZE);
+        assertEquals(CHANNELS, buffer.getChannelCount());
+        assertEquals(SIZE, buffer.size());
+
+        // Write each cell of the middle channel once, starting from
+        // the last array cell.
+        for(int i = 0; i < SIZE - 1; i++) {
+            buffer.stepForward();
+        }
+        for(int position = 0; position < SIZE; position++) {
+            buffer.setValue(1, position, position + 1);
+        }
+
+        // The other channels are untouched.
+        for(int position = 0; position < SIZE; position++) {
+            assertEquals(0.0, buffer.getValue(0, position));
+            assertEquals(0.0, buffer.getValue(2, position));
+        }
+
+        // Negative positions count back from the current one.
+        for(int position = 1; position < SIZE; position++) {
+            assertEquals(buffer.getValue(1, SIZE - position), buffer.getValue(1, -position));
+        }
+
+        // Stepping through a whole turn gives back each value.
+        for(int step = 0; step < 2 * SIZE; step++) {
+            assertEquals((double) (step % SIZE + 1), buffer.getValue(1));
+            assertEquals((double) ((step + SIZE - 1) % SIZE + 1), buffer.getValue(1, -1));
+            buffer.stepForward();
+        }
+
+        // Positions a whole turn away are rejected.
+        for(int position : new int[] { SIZE, -SIZE }) {
+            try {
+                buffer.getValue(1, position);
+                fail("No exception for position " + position + ".");
+            } catch(ArrayIndexOutOfBoundsException e) {
+            }
+        }
+    }
+
+    /**
+     * Random operations give the same values as on one
+     * {@link DoubleRingBuffer} per channel.
+     */
+    public void testParity() {
+        Random random = new Random(21L);
+        DoubleChannelRingBuffer buffer = new DoubleChannelRingBuffer(CHANNELS, SIZE);
+        DoubleRingBuffer[] reference = new DoubleRingBuffer[CHANNELS];
+        for(int channel = 0; channel < CHANNELS; channel++) {
+            reference[channel] = new DoubleRingBuffer(SIZE);
+        }
+
+        for(int n = 0; n < 10000; n++) {
+            int channel = random.nextInt(CHANNELS);
+            int position = random.nextInt(2 * SIZE - 1) - (SIZE - 1);
+            double value = random.nextInt(100);
+            switch(random.nextInt(6)) {
+                case 0:
+                    buffer.addToCell(channel, position, value);
+                    reference[channel].addToCell(position, value);
+                    break;
+                case 1:
+                    buffer.setValue(channel, position, value);
+                    reference[channel].setValue(position, value);
+                    break;
+                case 2:
+                    buffer.setValue(channel, value);
+                    reference[channel].setValue(value);
+                    break;
+                case 3:
+                    buffer.clearValue(channel, position);
+                    reference[channel].clearValue(position);
+                    break;
+                case 4:
+                    buffer.clearValue(channel);
+                    reference[channel].clearValue();
+                    break;
+                default:
+                    buffer.stepForward();
+                    for(DoubleRingBuffer channelBuffer : reference) {
+                        channelBuffer.stepForward();
+                    }
+            }
+
+            for(int c = 0; c < CHANNELS; c++) {
+                assertEquals(reference[c].getValue().doubleValue(), buffer.getValue(c));
+                for(int p = 1 - SIZE; p < SIZE; p++) {
+                    assertEquals(reference[c].getValue(p).doubleValue(), buffer.getValue(c, p));
+                }
+            }
+        }
+
+        buffer.setAll(1, 2.5);
+        for(int p = 0; p < SIZE; p++) {
+            assertEquals(2.5, buffer.getValue(1, p));
+        }
+        buffer.clearAll();
+        for(int c = 0; c < CHANNELS; c++) {
+            for(int p = 0; p < SIZE; p++) {
+                assertEquals(0.0, buffer.getValue(c, p));
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package org.hps.readout.util;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that {@link IntegerChannelRingBuffer} wraps around like one
+ * {@link IntegerRingBuffer} per channel, and that the channels do
+ * not share cells.
+ */
+public class IntegerChannelRingBufferTest extends TestCase {
+    private static final int CHANNELS = 3;
+    private static final int SIZE = 5;
+
+    /**
+     * Positions relative to the current one wrap around at both ends
+     * of each channel's buffer.
+     */
+    public void testWrapAround() {
+        IntegerChannelRingBuffer buffer = new IntegerChannelRingBuffer(CHANNELS, SIZE);
+        assertEquals(CHANNELS, buffer.getChannelCount());
+        assertEquals(SIZE, buffer.size());
+
+        // Write each cell of the middle channel once, starting from
+        // the last array cell.
+        for(int i = 0; i < SIZE - 1; i++) {
+            buffer.stepForward();
+        }
+        for(int position = 0; position < SIZE; position++) {
+            buffer.setValue(1, position, position + 1);
+        }
+
+        // The other channels are untouched.
+        for(int position = 0; position < SIZE; position++) {
+            assertEquals(0, buffer.getValue(0, position));
+            assertEquals(0, buffer.getValue(2, position));
+        }
+
+        // Negative positions count back from the current one.
+        for(int position = 1; position < SIZE; position++) {
+            assertEquals(buffer.getValue(1, SIZE - position), buffer.getValue(1, -position));
+        }
+
+        // Stepping through a whole turn gives back each value.
+        for(int step = 0; step < 2 * SIZE; step++) {
+            assertEquals((step % SIZE + 1), buffer.getValue(1));
+            assertEquals(((step + SIZE - 1) % SIZE + 1), buffer.getValue(1, -1));
+            buffer.stepForward();
+        }
+
+        // Positions a whole turn away are rejected.
+        for(int position : new int[] { SIZE, -SIZE }) {
+            try {
+                buffer.getValue(1, position);
+                fail("No exception for position " + position + ".");
+            } catch(ArrayIndexOutOfBoundsException e) {
+            }
+        }
+    }
+
+    /**
+     * Random operations give the same values as on one
+     * {@link IntegerRingBuffer} per channel.
+     */
+    public void testParity() {
+        Random random = new Random(21L);
+        IntegerChannelRingBuffer buffer = new IntegerChannelRingBuffer(CHANNELS, SIZE);
+        IntegerRingBuffer[] reference = new IntegerRingBuffer[CHANNELS];
+        for(int channel = 0; channel < CHANNELS; channel++) {
+            reference[channel] = new IntegerRingBuffer(SIZE);
+        }
+
+        for(int n = 0; n < 10000; n++) {
+            int channel = random.nextInt(CHANNELS);
+            int position = random.nextInt(2 * SIZE - 1) - (SIZE - 1);
+            int value = random.nextInt(100);
+            switch(random.nextInt(6)) {
+                case 0:
+                    buffer.addToCell(channel, position, value);
+                    reference[channel].addToCell(position, value);
+                    break;
+                case 1:
+                    buffer.setValue(channel, position, value);
+                    reference[channel].setValue(position, value);
+                    break;
+                case 2:
+                    buffer.setValue(channel, value);
+                    reference[channel].setValue(value);
+                    break;
+                case 3:
+                    buffer.clearValue(channel, position);
+                    reference[channel].clearValue(position);
+                    break;
+                case 4:
+                    buffer.clearValue(channel);
+                    reference[channel].clearValue();
+                    break;
+                default:
+                    buffer.stepForward();
+                    for(IntegerRingBuffer channelBuffer : reference) {
+                        channelBuffer.stepForward();
+                    }
+            }
+
+            for(int c = 0; c < CHANNELS; c++) {
+                assertEquals(reference[c].getValue().intValue(), buffer.getValue(c));
+                for(int p = 1 - SIZE; p < SIZE; p++) {
+                    assertEquals(reference[c].getValue(p).intValue(), buffer.getValue(c, p));
+                }
+            }
+        }
+
+        buffer.setAll(1, -3);
+        for(int p = 0; p < SIZE; p++) {
+            assertEquals(-3, buffer.getValue(1, p));
+        }
+        buffer.clearAll();
+        for(int c = 0; c < CHANNELS; c++) {
+            for(int p = 0; p < SIZE; p++) {
+                assertEquals(0, buffer.getValue(c, p));
+            }
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package org.hps.readout.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Check that {@link TimeBucketBuffer} keeps its bucket ring in order
+ * as it grows in either direction and drops old data, and that it
+ * returns the same data as a scan of all buffered lists, which is
+ * how the readout data manager used to retrieve data.
+ */
+public class TimeBucketBufferTest extends TestCase {
+    /**
+     * The bucket width used by the tests, which is the beam bunch
+     * size.
+     */
+    private static final double WIDTH = 2.0;
+    
+    /**
+     * Lists added before the earliest bucket move the ring head back,
+     * wrapping around the start of the ring, and grow the ring when
+     * it is too small.
+     */
+    public void testBackwardGrowth() {
+        TimeBucketBuffer<Integer> buffer = new TimeBucketBuffer<Integer>(WIDTH);
+        
+        // Move the head a few buckets into the ring.
+        buffer.add(list(0.0, 0));
+        buffer.add(list(20.0, 1));
+        buffer.removeBefore(10.0);
+        assertEquals(Arrays.asList(1), getAll(buffer));
+        
+        // These buckets precede the head, so the head wraps around
+        // to the end of the ring.
+        buffer.add(list(12.5, 2));
+        buffer.add(list(2.0, 3));
+        buffer.add(list(13.0, 4));
+        buffer.add(list(-0.5, 5));
+        assertEquals(5, buffer.size());
+        assertEquals(Arrays.asList(5, 3, 2, 4, 1), getAll(buffer));
+        assertEquals(Arrays.asList(3, 2, 4), getRange(buffer, 0.0, 20.0));
+        
+        // Going back further than the ring size grows the ring.
+        buffer.add(list(-1000.0, 6));
+        buffer.add(list(-999.0, 7));
+        buffer.add(list(5000.0, 8));
+        assertEquals(8, buffer.size());
+        assertEquals(Arrays.asList(6, 7, 5, 3, 2, 4, 1, 8), getAll(buffer));
+        assertEquals(Arrays.asList(6, 7, 5), getRange(buffer, -1000.0, 0.0));
+        assertEquals(Arrays.asList(1, 8), getRange(buffer, 14.0, 5000.5));
+        
+        buffer.removeBefore(13.0);
+        assertEquals(Arrays.asList(4, 1, 8), getAll(buffer));
+        buffer.add(list(-2000.0, 9));
+        assertEquals(Arrays.asList(9, 4, 1, 8), getAll(buffer));
+    }
+    
+    /**
+     * Lists in the bucket of the cutoff time are dropped only if they
+     * precede the cutoff time, and the buffer starts over once it is
+     * emptied.
+     */
+    public void testRemoveBefore() {
+        TimeBucketBuffer<Integer> buffer = new TimeBucketBuffer<Integer>(WIDTH);
+        buffer.add(list(11.5, 0));
+        buffer.add(list(9.0, 1));
+        buffer.add(list(10.0, 2));
+        buffer.add(list(11.0, 3));
+        buffer.add(list(12.0, 4));
+        buffer.add(list(10.5, 5, 6));
+        assertEquals(6, buffer.size());
+        
+        // The cutoff itself is kept.
+        buffer.removeBefore(11.0);
+        assertEquals(3, buffer.size());
+        assertEquals(Arrays.asList(0, 3, 4), getAll(buffer));
+        buffer.removeBefore(11.0);
+        assertEquals(3, buffer.size());
+        assertEquals(Arrays.asList(0, 3), getRange(buffer, 10.0, 12.0));
+        
+        // A cutoff before all data drops nothing.
+        buffer.removeBefore(-100.0);
+        assertEquals(3, buffer.size());
+        
+        buffer.removeBefore(11.75);
+        assertEquals(Arrays.asList(4), getAll(buffer));
+        
+        // Emptying the buffer lets it start anywhere again.
+        buffer.removeBefore(100.0);
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.isEmpty());
+        assertFalse(buffer.iterator().hasNext());
+        assertEquals(Collections.emptyList(), getRange(buffer, -1000.0, 1000.0));
+        buffer.add(list(-50.0, 7));
+        buffer.add(list(50.0, 8));
+        assertEquals(Arrays.asList(7, 8), getAll(buffer));
+        
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertFalse(buffer.iterator().hasNext());
+    }
+    
+    /**
+     * The start of a range is inclusive and the end exclusive, also
+     * for lists exactly on a bucket edge or within the first or last
+     * bucket of the range.
+     */
+    public void testRangeBoundaries() {
+        TimeBucketBuffer<Integer> buffer = new TimeBucketBuffer<Integer>(WIDTH);
+        buffer.add(list(3.999, 0));
+        buffer.add(list(4.0, 1));
+        buffer.add(list(4.001, 2));
+        buffer.add(list(5.999, 3));
+        buffer.add(list(6.0, 4));
+        buffer.add(list(7.5, 5));
+        
+        assertEquals(Arrays.asList(1, 2, 3), getRange(buffer, 4.0, 6.0));
+        assertEquals(Arrays.asList(0), getRange(buffer, 3.999, 4.0));
+        assertEquals(Arrays.asList(2, 3, 4), getRange(buffer, 4.0005, 6.5));
+        assertEquals(Arrays.asList(4), getRange(buffer, 6.0, 7.5));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), getRange(buffer, 3.999, 7.5001));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4, 5), getRange(buffer, -1000.0, 1000.0));
+        
+        // Empty and reversed ranges, and ranges outside of the
+        // buffered buckets.
+        assertEquals(Collections.emptyList(), getRange(buffer, 4.0, 4.0));
+        assertEquals(Collections.emptyList(), getRange(buffer, 6.0, 4.0));
+        assertEquals(Collections.emptyList(), getRange(buffer, -1000.0, 3.999));
+        assertEquals(Collections.emptyList(), getRange(buffer, 7.5001, 1000.0));
+        assertEquals(Collections.emptyList(), getRange(buffer, 100.0, 200.0));
+    }
+    
+    /**
+     * Invalid bucket widths and list times are rejected, as are lists
+     * that would make the buffer span too many buckets.
+     */
+    public void testInvalidTimes() {
+        for(double width : new double[] { 0.0, -2.0, Double.NaN, Double.POSITIVE_INFINITY }) {
+            try {
+                new TimeBucketBuffer<Integer>(width);
+                fail("No exception for bucket width " + width + ".");
+            } catch(IllegalArgumentException e) {
+            }
+        }
+        
+        TimeBucketBuffer<Integer> buffer = new TimeBucketBuffer<Integer>(WIDTH);
+        for(double time : new double[] { Double.NaN, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY }) {
+            try {
+                buffer.add(list(time, 0));
+                fail("No exception for list time " + time + ".");
+            } catch(IllegalArgumentException e) {
+            }
+        }
+        assertEquals(0, buffer.size());
+        
+        buffer.add(list(0.0, 0));
+        for(double time : new double[] { WIDTH * (1 << 24), -WIDTH * (1 << 24) }) {
+            try {
+                buffer.add(list(time, 1));
+                fail("No exception for list time " + time + ".");
+            } catch(IllegalArgumentException e) {
+            }
+        }
+        assertEquals(Arrays.asList(0), getAll(buffer));
+    }
+    
+    /**
+     * Lists added out of time order, removed and retrieved in the way
+     * of the readout data manager, give the same data as scanning a
+     * linked list of all lists in the order they were added. Within a
+     * range, the data comes in order of bucket rather than of adding.
+     */
+    public void testParity() {
+        Random random = new Random(22L);
+        TimeBucketBuffer<Integer> buffer = new TimeBucketBuffer<Integer>(WIDTH);
+        LinkedList<TimedList<Integer>> reference = new LinkedList<TimedList<Integer>>();
+        int nextValue = 0;
+        
+        for(int step = 0; step < 3000; step++) {
+            double now = step * WIDTH;
+            
+            // Drivers may output data with times somewhat before and
+            // after the current time, also on bucket edges.
+            int lists = random.nextInt(4);
+            for(int i = 0; i < lists; i++) {
+                double time = now + (random.nextBoolean() ? random.nextInt(200) - 150 : random.nextDouble() * 200.0 - 150.0);
+                TimedList<Integer> list = new TimedList<Integer>(time);
+                int entries = random.nextInt(3);
+                for(int j = 0; j < entries; j++) {
+                    list.add(nextValue++);
+                }
+                buffer.add(list);
+                reference.add(list);
+            }
+            
+            // The old buffer was only trimmed from the front, so it
+            // may keep some older lists. These are never requested.
+            double cutoff = now - 500.0;
+            buffer.removeBefore(cutoff);
+            while(!reference.isEmpty() && reference.getFirst().getTime() < cutoff) {
+                reference.removeFirst();
+            }
+            List<TimedList<Integer>> current = new ArrayList<TimedList<Integer>>();
+            for(TimedList<Integer> list : reference) {
+                if(list.getTime() >= cutoff) {
+                    current.add(list);
+                }
+            }
+            assertEquals(current.size(), buffer.size());
+            
+            for(int i = 0; i < 3; i++) {
+                double startTime = cutoff + random.nextInt(700) + (random.nextBoolean() ? 0.0 : random.nextDouble());
+                double endTime = startTime + (random.nextBoolean() ? random.nextInt(64) : random.nextDouble() * 64.0);
+                assertEquals(getScanRange(reference, startTime, endTime), getRange(buffer, startTime, endTime));
+            }
+        }
+    }
+    
+    /**
+     * Creates a list with the given time and entries.
+     * @param time - The time of the list.
+     * @param values - The entries of the list.
+     * @return Returns the list.
+     */
+    private static final TimedList<Integer> list(double time, Integer... values) {
+        return new TimedList<Integer>(time, Arrays.asList(values));
+    }
+    
+    /**
+     * Gets the entries of all lists in a buffer in iteration order.
+     * @param buffer - The buffer.
+     * @return Returns the entries.
+     */
+    private static final List<Integer> getAll(TimeBucketBuffer<Integer> buffer) {
+        List<Integer> output = new ArrayList<Integer>();
+        Iterator<TimedList<? extends Integer>> iterator = buffer.iterator();
+        while(iterator.hasNext()) {
+            output.addAll(iterator.next());
+        }
+        return output;
+    }
+    
+    /**
+     * Gets the entries of the lists in a buffer within a time range.
+     * @param buffer - The buffer.
+     * @param startTime - The inclusive start of the range.
+     * @param endTime - The exclusive end of the range.
+     * @return Returns the entries.
+     */
+    private static final List<Integer> getRange(TimeBucketBuffer<Integer> buffer, double startTime, double endTime) {
+        List<Integer> output = new ArrayList<Integer>();
+        buffer.addDataInRange(startTime, endTime, output);
+        return output;
+    }
+    
+    /**
+     * Gets the entries of the lists within a time range by scanning
+     * all lists, and orders the lists by bucket and then by the order
+     * in which they were added.
+     * @param lists - The lists in the order in which they were added.
+     * @param startTime - The inclusive start of the range.
+     * @param endTime - The exclusive end of the range.
+     * @return Returns the entries.
+     */
+    private static final List<Integer> getScanRange(List<TimedList<Integer>> lists, double startTime, double endTime) {
+        List<TimedList<Integer>> inRange = new ArrayList<TimedList<Integer>>();
+        for(TimedList<Integer> list : lists) {
+            if(list.getTime() >= startTime && list.getTime() < endTime) {
+                inRange.add(list);
+            }
+        }
+        
+        // The sort is stable, so lists in the same bucket keep their
+        // order.
+        Collections.sort(inRange, new Comparator<TimedList<Integer>>() {
+            @Override
+            public int compare(TimedList<Integer> t0, TimedList<Integer> t1) {
+                return Double.compare(Math.floor(t0.getTime() / WIDTH), Math.floor(t1.getTime() / WIDTH));
+            }
+        });
+        
+        List<Integer> output = new ArrayList<Integer>();
+        for(TimedList<Integer> list : inRange) {
+            output.addAll(list);
+        }
+        return output;
+    }
+}
@@ -0,0 +1,186 @@
+package org.hps.record.et;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.freehep.record.source.NoSuchRecordException;
+import org.hps.record.evio.EvioEventConstants;
+import org.jlab.coda.et.EtEvent;
+import org.jlab.coda.et.EtEventImpl;
+import org.jlab.coda.et.exception.EtWakeUpException;
+
+/**
+ * Test the control event check and the ring buffer overflow policies of {@link EtEventSource} with a connection that
+ * supplies prepared events instead of reading them from an ET system.
+ */
+public class EtEventSourceTest extends TestCase {
+
+    /**
+     * Tag of a physics event from the trigger bits which is above the range of the control events.
+     */
+    private static final int TRIGGER_TAG = 0xff50;
+
+    /**
+     * Connection which supplies one chunk of events and then stops the reading. The events that are put back are
+     * overwritten, as the ET system may reuse them for new events.
+     */
+    private static final class TestConnection extends EtConnection {
+
+        private final EtEvent[] events;
+        private final CountDownLatch done = new CountDownLatch(1);
+        private boolean read = false;
+
+        TestConnection(final EtEvent[] events) {
+            this.events = events;
+        }
+
+        @Override
+        EtEvent[] readEtEvents() throws EtWakeUpException {
+            if (!read) {
+                read = true;
+                return events;
+            }
+            // All the events have gone into the ring buffer by now.
+            done.countDown();
+            throw new EtWakeUpException("No more test events");
+        }
+
+        @Override
+        void putEtEvents(final EtEvent[] events) {
+            for (final EtEvent event : events) {
+                final ByteBuffer buffer = event.getDataBuffer();
+                for (int i = buffer.position(); i < buffer.limit(); i++) {
+                    buffer.put(i, (byte) 0);
+                }
+            }
+        }
+
+        void awaitDone() throws InterruptedException {
+            assertTrue("reader did not finish", done.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    /**
+     * Create an ET event holding an EVIO block header and an event with the given tag and number.
+     */
+    private static EtEvent createEvent(final int tag, final int number, final ByteOrder order) {
+        final EtEvent event = new EtEventImpl(64);
+        final ByteBuffer buffer = event.getDataBuffer();
+        buffer.clear();
+        buffer.order(order);
+        buffer.putInt(11); // block length
+        buffer.putInt(1); // block number
+        buffer.putInt(8); // block header length
+        buffer.putInt(1); // event count
+        buffer.putInt(0);
+        buffer.putInt(4); // version
+        buffer.putInt(0);
+        buffer.putInt(0xc0da0100); // magic number
+        buffer.putInt(2); // event length
+        buffer.putInt(tag << 16 | 0x1 << 8); // tag and type
+        buffer.putInt(number);
+        buffer.flip();
+        event.setLength(buffer.limit());
+        return event;
+    }
+
+    private static EtEvent physics(final int number) {
+        return createEvent(EvioEventConstants.PHYSICS_EVENT_TAG, number, ByteOrder.BIG_ENDIAN);
+    }
+
+    private static EtEvent control(final int number) {
+        return createEvent(EvioEventConstants.PRESTART_EVENT_TAG, number, ByteOrder.BIG_ENDIAN);
+    }
+
+    private static int number(final EtEvent event) {
+        final ByteBuffer buffer = event.getDataBuffer();
+        return buffer.getInt(buffer.position() + 4 * 10);
+    }
+
+    /**
+     * Read all the events through the ring buffer and return their numbers in the order they were supplied.
+     */
+    private static List<Integer> readAll(final EtEvent[] events, final int ringSize,
+            final EtEventSource.OverflowPolicy policy, final long expectedDropped) throws Exception {
+        final TestConnection connection = new TestConnection(events);
+        final EtEventSource source = new EtEventSource(connection, ringSize, policy);
+        source.startReader();
+        if (policy != EtEventSource.OverflowPolicy.BLOCK) {
+            // Let the reader fill the buffer before any events are taken out.
+            connection.awaitDone();
+        }
+        final List<Integer> numbers = new ArrayList<Integer>();
+        try {
+            for (;;) {
+                source.next();
+                numbers.add(number((EtEvent) source.getCurrentRecord()));
+            }
+        } catch (final NoSuchRecordException e) {
+        }
+        source.close();
+        assertEquals(events.length, source.getEventsRead());
+        assertEquals(expectedDropped, source.getEventsDropped());
+        assertTrue(source.getMaxQueued() <= ringSize);
+        return numbers;
+    }
+
+    private static void assertNumbers(final List<Integer> actual, final int... expected) {
+        assertEquals("events " + actual, expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("events " + actual, expected[i], actual.get(i).intValue());
+        }
+    }
+
+    public void testIsControlEvent() {
+        for (final ByteOrder order : new ByteOrder[] {ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+            assertTrue(EtEventSource.isControlEvent(createEvent(EvioEventConstants.PRESTART_EVENT_TAG, 1, order)));
+            assertTrue(EtEventSource.isControlEvent(createEvent(EvioEventConstants.END_EVENT_TAG, 1, order)));
+            assertFalse(EtEventSource.isControlEvent(createEvent(EvioEventConstants.PHYSICS_EVENT_TAG, 1, order)));
+            assertFalse(EtEventSource.isControlEvent(createEvent(TRIGGER_TAG, 1, order)));
+        }
+
+        // Events without a valid EVIO header are treated as physics events.
+        final EtEvent badMagic = control(1);
+        badMagic.getDataBuffer().putInt(4 * 7, 0x12345678);
+        assertFalse(EtEventSource.isControlEvent(badMagic));
+        final EtEvent tooShort = control(1);
+        tooShort.setLength(4 * 9);
+        assertFalse(EtEventSource.isControlEvent(tooShort));
+        final EtEvent badHeaderLength = control(1);
+        badHeaderLength.getDataBuffer().putInt(4 * 2, 100);
+        assertFalse(EtEventSource.isControlEvent(badHeaderLength));
+    }
+
+    public void testBlock() throws Exception {
+        final EtEvent[] events = new EtEvent[100];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = i % 10 == 0 ? control(i) : physics(i);
+        }
+        final List<Integer> numbers = readAll(events, 2, EtEventSource.OverflowPolicy.BLOCK, 0);
+        assertEquals(events.length, numbers.size());
+        for (int i = 0; i < events.length; i++) {
+            assertEquals(i, numbers.get(i).intValue());
+        }
+    }
+
+    public void testDropOldest() throws Exception {
+        assertNumbers(readAll(new EtEvent[] {physics(1), physics(2), physics(3), physics(4), physics(5), physics(6)},
+                4, EtEventSource.OverflowPolicy.DROP_OLDEST, 2), 3, 4, 5, 6);
+        // The oldest physics events are dropped and the control events are kept.
+        assertNumbers(readAll(new EtEvent[] {control(1), physics(2), control(3), physics(4), physics(5), physics(6)},
+                4, EtEventSource.OverflowPolicy.DROP_OLDEST, 2), 1, 3, 5, 6);
+    }
+
+    public void testDropNewest() throws Exception {
+        assertNumbers(readAll(new EtEvent[] {physics(1), physics(2), physics(3), physics(4), physics(5), physics(6)},
+                4, EtEventSource.OverflowPolicy.DROP_NEWEST, 2), 1, 2, 3, 4);
+        assertNumbers(readAll(new EtEvent[] {control(1), physics(2), control(3), physics(4), physics(5), physics(6)},
+                4, EtEventSource.OverflowPolicy.DROP_NEWEST, 2), 1, 2, 3, 4);
+    }
+}
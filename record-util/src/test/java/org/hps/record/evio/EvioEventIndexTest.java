@@ -0,0 +1,223 @@
+package org.hps.record.evio;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.lcsim.util.test.TestUtil.TestOutputFile;
+
+/**
+ * Test {@link EvioEventIndex} on EVIO files with physics and control events: the searches against a linear search of
+ * the indexed values, saving and reading the index and detecting an index that is out of date.
+ */
+public class EvioEventIndexTest extends TestCase {
+
+    private static final int N_EVENTS = 3000;
+    private static final int PHYSICS_TAG = 0xff50;
+    private static final int BANK_TYPE = 0x10;
+    private static final int UINT32_TYPE = 0x1;
+
+    /**
+     * The values put into an event.
+     */
+    private static final class Event {
+
+        final boolean control;
+        final int eventNumber;
+        final int timestamp;
+        final int bits;
+
+        Event(final boolean control, final int eventNumber, final int timestamp, final int bits) {
+            this.control = control;
+            this.eventNumber = eventNumber;
+            this.timestamp = timestamp;
+            this.bits = bits;
+        }
+    }
+
+    private static int header(final int tag, final int type) {
+        return tag << 16 | type << 8;
+    }
+
+    /**
+     * Get the words of an event: a control event with its data in the event, or a physics event with an event ID bank
+     * and a ROC bank with the head bank and TI bank.
+     */
+    private static List<Integer> createEvent(final Event event) {
+        final List<Integer> words = new ArrayList<Integer>();
+        if (event.control) {
+            words.addAll(Arrays.asList(4, header(EvioEventConstants.PRESTART_EVENT_TAG, UINT32_TYPE), 1000, 5, 0));
+            return words;
+        }
+        words.addAll(Arrays.asList(0, header(PHYSICS_TAG, BANK_TYPE)));
+        words.addAll(Arrays.asList(4, header(EvioEventConstants.EVENTID_BANK_TAG, UINT32_TYPE), event.eventNumber,
+                0, 0));
+        words.addAll(Arrays.asList(14, header(0x2e, BANK_TYPE)));
+        words.addAll(Arrays.asList(6, header(EvioEventConstants.HEAD_BANK_TAG, UINT32_TYPE), 0, 5, event.eventNumber,
+                event.timestamp, 0));
+        words.addAll(Arrays.asList(5, header(0xe10a, UINT32_TYPE), event.bits, 0, 0, 0));
+        words.set(0, words.size() - 1);
+        return words;
+    }
+
+    /**
+     * Write the events to an EVIO file with one block.
+     */
+    private static File writeFile(final String name, final List<Event> events) throws IOException {
+        final List<Integer> words = new ArrayList<Integer>();
+        for (final Event event : events) {
+            words.addAll(createEvent(event));
+        }
+        final File file = new TestOutputFile(EvioEventIndexTest.class, name);
+        file.getParentFile().mkdirs();
+        final DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try {
+            for (final int word : new int[] {8 + words.size(), 1, 8, events.size(), 0, 4 | 0x200, 0, 0xc0da0100}) {
+                out.writeInt(word);
+            }
+            for (final int word : words) {
+                out.writeInt(word);
+            }
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    /**
+     * Create events with increasing event numbers and timestamps, with gaps, repeated timestamps and control events.
+     */
+    private static List<Event> createSortedEvents(final Random random) {
+        final List<Event> events = new ArrayList<Event>();
+        int eventNumber = 1;
+        int timestamp = 1500000000;
+        for (int i = 0; i < N_EVENTS; i++) {
+            if (random.nextInt(20) == 0) {
+                events.add(new Event(true, 0, 0, 0));
+            } else {
+                eventNumber += 1 + random.nextInt(3);
+                timestamp += random.nextInt(3);
+                events.add(new Event(false, eventNumber, timestamp, 1 << random.nextInt(8)));
+            }
+        }
+        return events;
+    }
+
+    private static int[] linearSearch(final EvioEventIndex index, final long first, final long last,
+            final boolean timestamps) {
+        final int[] found = new int[index.size()];
+        int n = 0;
+        for (int i = 0; i < index.size(); i++) {
+            final long value = timestamps ? index.getTimestamp(i) & 0xffffffffL : index.getEventNumber(i);
+            if (value != (timestamps ? 0 : -1) && value >= first && value <= last) {
+                found[n++] = i;
+            }
+        }
+        return Arrays.copyOf(found, n);
+    }
+
+    private static void checkIndex(final EvioEventIndex index, final List<Event> events) {
+        assertEquals(events.size(), index.size());
+        for (int i = 0; i < events.size(); i++) {
+            final Event event = events.get(i);
+            assertEquals(event.control ? EvioEventConstants.PRESTART_EVENT_TAG : PHYSICS_TAG, index.getTag(i));
+            assertEquals(event.control ? -1 : event.eventNumber, index.getEventNumber(i));
+            assertEquals(event.timestamp, index.getTimestamp(i));
+            assertEquals(event.bits, index.getTriggerBits(i));
+        }
+    }
+
+    private static void checkSearches(final EvioEventIndex index, final List<Event> events, final Random random) {
+        int minEvent = Integer.MAX_VALUE;
+        int maxEvent = Integer.MIN_VALUE;
+        int minTimestamp = Integer.MAX_VALUE;
+        int maxTimestamp = Integer.MIN_VALUE;
+        for (final Event event : events) {
+            if (!event.control) {
+                minEvent = Math.min(minEvent, event.eventNumber);
+                maxEvent = Math.max(maxEvent, event.eventNumber);
+                minTimestamp = Math.min(minTimestamp, event.timestamp);
+                maxTimestamp = Math.max(maxTimestamp, event.timestamp);
+            }
+        }
+        for (int eventNumber = minEvent - 2; eventNumber <= maxEvent + 2; eventNumber++) {
+            final int[] expected = linearSearch(index, eventNumber, eventNumber, false);
+            assertEquals("event " + eventNumber, expected.length > 0 ? expected[0] : -1, index.findEvent(eventNumber));
+        }
+        for (int i = 0; i < 1000; i++) {
+            final int first = minEvent - 5 + random.nextInt(maxEvent - minEvent + 10);
+            final int last = first + random.nextInt(100) - 10;
+            assertTrue("events " + first + "-" + last,
+                    Arrays.equals(linearSearch(index, first, last, false), index.findEventRange(first, last)));
+            final long start = minTimestamp - 5L + random.nextInt(maxTimestamp - minTimestamp + 10);
+            final long end = start + random.nextInt(50) - 5;
+            assertTrue("timestamps " + start + "-" + end,
+                    Arrays.equals(linearSearch(index, start, end, true), index.findTimestampRange(start, end)));
+        }
+    }
+
+    public void testSortedEvents() throws Exception {
+        final Random random = new Random(16);
+        final List<Event> events = createSortedEvents(random);
+        final EvioEventIndex index = EvioEventIndex.create(writeFile("sorted.evio", events));
+        checkIndex(index, events);
+        checkSearches(index, events, random);
+        assertEquals(0, index.findTriggerBits(0).length);
+        assertTrue(index.findTriggerBits(0xff).length > 0);
+    }
+
+    public void testUnsortedEvents() throws Exception {
+        final Random random = new Random(17);
+        final List<Event> events = createSortedEvents(random);
+        Collections.shuffle(events, random);
+        final EvioEventIndex index = EvioEventIndex.create(writeFile("unsorted.evio", events));
+        checkIndex(index, events);
+        checkSearches(index, events, random);
+    }
+
+    public void testWriteRead() throws Exception {
+        final List<Event> events = createSortedEvents(new Random(18));
+        final File file = writeFile("write.evio", events);
+        final File indexFile = EvioEventIndex.getIndexFile(file, null);
+        indexFile.delete();
+
+        // The index is created and saved the first time and read afterwards.
+        final EvioEventIndex index = EvioEventIndex.getIndex(file);
+        assertTrue(indexFile.exists());
+        assertTrue(index.matches(file));
+        final EvioEventIndex read = EvioEventIndex.read(indexFile);
+        assertTrue(read.matches(file));
+        checkIndex(read, events);
+        for (int i = 0; i < index.size(); i++) {
+            assertEquals(index.getOffset(i), read.getOffset(i));
+            assertEquals(index.getLength(i), read.getLength(i));
+        }
+    }
+
+    public void testOutOfDate() throws Exception {
+        final List<Event> events = createSortedEvents(new Random(19));
+        final File file = writeFile("stale.evio", events);
+        final EvioEventIndex index = EvioEventIndex.create(file);
+        index.write(EvioEventIndex.getIndexFile(file, null));
+        assertTrue(index.matches(file));
+
+        // A file of the same size that was changed later does not match.
+        assertTrue(file.setLastModified(file.lastModified() + 10000));
+        assertFalse(index.matches(file));
+        assertTrue(EvioEventIndex.getIndex(file).matches(file));
+        assertTrue(EvioEventIndex.read(EvioEventIndex.getIndexFile(file, null)).matches(file));
+
+        // A file with more events does not match either.
+        events.add(new Event(false, 1, 1, 1));
+        writeFile("stale.evio", events);
+        assertFalse(index.matches(file));
+    }
+}
@@ -0,0 +1,141 @@
+package org.hps.record.evio;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hps.record.triggerbank.AbstractIntData.IntBankDefinition;
+import org.hps.record.triggerbank.HeadBankData;
+import org.jlab.coda.jevio.BaseStructure;
+import org.jlab.coda.jevio.DataType;
+import org.jlab.coda.jevio.EventBuilder;
+import org.jlab.coda.jevio.EventWriter;
+import org.jlab.coda.jevio.EvioBank;
+import org.jlab.coda.jevio.EvioEvent;
+import org.jlab.coda.jevio.EvioReader;
+import org.lcsim.util.test.TestUtil.TestOutputFile;
+
+/**
+ * Check that {@link EvioEventScanner} gets the same bank data as parsing the events with an <code>EvioReader</code>,
+ * including events with repeated banks, missing banks and banks that do not hold integers.
+ */
+public class EvioEventScannerTest extends TestCase {
+
+    private static final int N_EVENTS = 2000;
+    private static final int PHYSICS_TAG = 0xff50;
+    private static final int ROC_TAG = 0x2e;
+    private static final int[] HEAD_BANK_TAGS = {ROC_TAG, EvioEventConstants.HEAD_BANK_TAG};
+    private static final IntBankDefinition HEAD_BANK = new IntBankDefinition(HeadBankData.class, HEAD_BANK_TAGS);
+
+    private static int[] randomInts(final Random random, final int count) {
+        final int[] data = new int[count];
+        for (int i = 0; i < count; i++) {
+            data[i] = random.nextInt();
+        }
+        return data;
+    }
+
+    private static void addIntBank(final EventBuilder builder, final BaseStructure parent, final int tag,
+            final int[] data) throws Exception {
+        final EvioBank bank = new EvioBank(tag, DataType.UINT32, 0);
+        builder.addChild(parent, bank);
+        builder.appendIntData(bank, data);
+    }
+
+    /**
+     * Create a physics event with zero to three event ID banks, some of which hold no integers, and a head bank in
+     * one of zero to two ROC banks.
+     */
+    private static EvioEvent createPhysicsEvent(final Random random, final int number) throws Exception {
+        final EventBuilder builder = new EventBuilder(PHYSICS_TAG, DataType.BANK, number);
+        final EvioEvent event = builder.getEvent();
+        final int nIds = random.nextInt(4);
+        for (int i = 0; i < nIds; i++) {
+            if (random.nextInt(4) == 0) {
+                final EvioBank bank = new EvioBank(EvioEventConstants.EVENTID_BANK_TAG, DataType.DOUBLE64, 0);
+                builder.addChild(event, bank);
+                builder.appendDoubleData(bank, new double[] {random.nextDouble()});
+            } else {
+                addIntBank(builder, event, EvioEventConstants.EVENTID_BANK_TAG, randomInts(random, 3));
+            }
+        }
+        final int nRocs = random.nextInt(3);
+        for (int i = 0; i < nRocs; i++) {
+            final EvioBank roc = new EvioBank(ROC_TAG, DataType.BANK, i);
+            builder.addChild(event, roc);
+            if (random.nextBoolean()) {
+                addIntBank(builder, roc, EvioEventConstants.HEAD_BANK_TAG, randomInts(random, 5));
+            }
+        }
+        builder.setAllHeaderLengths();
+        return event;
+    }
+
+    /**
+     * Create a control event with its data in the event itself or in a bank with the event's tag.
+     */
+    private static EvioEvent createControlEvent(final Random random, final int number) throws Exception {
+        final int tag = random.nextBoolean() ? EvioEventConstants.PRESTART_EVENT_TAG : EvioEventConstants.END_EVENT_TAG;
+        if (random.nextBoolean()) {
+            final EventBuilder builder = new EventBuilder(tag, DataType.UINT32, number);
+            builder.appendIntData(builder.getEvent(), randomInts(random, 3));
+            builder.setAllHeaderLengths();
+            return builder.getEvent();
+        }
+        final EventBuilder builder = new EventBuilder(tag, DataType.BANK, number);
+        addIntBank(builder, builder.getEvent(), tag, randomInts(random, 3));
+        builder.setAllHeaderLengths();
+        return builder.getEvent();
+    }
+
+    private static void assertIntsEqual(final String message, final int[] expected, final int[] actual) {
+        assertTrue(message + ": expected " + Arrays.toString(expected) + " but got " + Arrays.toString(actual),
+                Arrays.equals(expected, actual));
+    }
+
+    public void testScanAgainstParse() throws Exception {
+        final File file = new TestOutputFile(EvioEventScannerTest.class, "scan.evio");
+        file.getParentFile().mkdirs();
+        final Random random = new Random(15);
+        final EventWriter writer = new EventWriter(file);
+        for (int i = 0; i < N_EVENTS; i++) {
+            writer.writeEvent(random.nextInt(10) == 0 ? createControlEvent(random, i) : createPhysicsEvent(random, i));
+        }
+        writer.close();
+
+        final EvioReader reader = EvioFileUtilities.open(file, true);
+        final EvioEventScanner scanner = new EvioEventScanner(file);
+        try {
+            EvioEvent event;
+            int count = 0;
+            while ((event = reader.parseNextEvent()) != null) {
+                assertTrue("scanner ended early", scanner.next());
+                final String message = "event " + count;
+                assertEquals(message, event.getHeader().getTag(), scanner.getEventTag());
+                final BaseStructure headBank = HEAD_BANK.findBank(event);
+                assertIntsEqual(message + " head bank", headBank != null ? headBank.getIntData() : null,
+                        scanner.getIntData(HEAD_BANK_TAGS));
+                if (EvioEventUtilities.isControlEvent(event)) {
+                    int[] controlData = scanner.getEventIntData();
+                    if (controlData == null) {
+                        controlData = scanner.getIntData(scanner.getEventTag());
+                    }
+                    assertIntsEqual(message + " control data", EvioEventUtilities.getControlEventData(event),
+                            controlData);
+                } else {
+                    assertIntsEqual(message + " event ID", EvioEventUtilities.getEventIdData(event),
+                            scanner.getEventIdData());
+                }
+                ++count;
+            }
+            assertFalse("scanner has extra events", scanner.next());
+            assertEquals(N_EVENTS, count);
+            assertEquals(N_EVENTS, scanner.getEventCount());
+        } finally {
+            reader.close();
+            scanner.close();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.hps.record.triggerbank;
+
+import java.awt.Point;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.lcsim.event.Cluster;
+import org.lcsim.event.base.BaseCalorimeterHit;
+import org.lcsim.event.base.BaseCluster;
+
+/**
+ * Check that {@link TriggerBatch} gives the same cut results as
+ * {@link TriggerModule} and {@link TriggerModule2019} for random
+ * clusters and random cut values. Cluster energies, times, and cut
+ * values are drawn from coarse grids, so that values which lie
+ * exactly on a cut boundary and pairs of equal energy also occur.
+ */
+public class TriggerBatchTest extends TestCase {
+    private static final int N_EVENTS = 2000;
+    private static final int MAX_CLUSTERS = 8;
+
+    /**
+     * The pair cuts used by <code>PairsTrigger2019ReadoutDriver</code>.
+     */
+    private static final int PAIR_CUTS_2019 = TriggerBatch.CUT_ENERGY_SUM_LOW | TriggerBatch.CUT_ENERGY_SUM_HIGH
+            | TriggerBatch.CUT_ENERGY_DIFFERENCE | TriggerBatch.CUT_ENERGY_SLOPE | TriggerBatch.CUT_COPLANARITY;
+
+    private static final int randomXIndex(Random random) {
+        return (1 + random.nextInt(23)) * (random.nextBoolean() ? 1 : -1);
+    }
+
+    private static final int randomYIndex(Random random) {
+        return (1 + random.nextInt(5)) * (random.nextBoolean() ? 1 : -1);
+    }
+
+    private static final TriggerModule createModule(Random random) {
+        TriggerModule module = new TriggerModule();
+        module.setCutValue(TriggerModule.CLUSTER_HIT_COUNT_LOW, random.nextInt(4));
+        module.setCutValue(TriggerModule.CLUSTER_TOTAL_ENERGY_LOW, 0.1 * random.nextInt(4));
+        module.setCutValue(TriggerModule.CLUSTER_TOTAL_ENERGY_HIGH, 0.8 + 0.1 * random.nextInt(12));
+        module.setCutValue(TriggerModule.PAIR_ENERGY_SUM_LOW, 0.1 * random.nextInt(10));
+        module.setCutValue(TriggerModule.PAIR_ENERGY_SUM_HIGH, 1.0 + 0.1 * random.nextInt(20));
+        module.setCutValue(TriggerModule.PAIR_ENERGY_DIFFERENCE_HIGH, 0.2 + 0.1 * random.nextInt(12));
+        module.setCutValue(TriggerModule.PAIR_ENERGY_SLOPE_LOW, 0.1 * random.nextInt(10));
+        module.setCutValue(TriggerModule.PAIR_ENERGY_SLOPE_F, 0.004 + 0.006 * random.nextDouble());
+        module.setCutValue(TriggerModule.PAIR_COPLANARITY_HIGH, 10 + random.nextInt(171));
+        module.setCutValue(TriggerModule.PAIR_TIME_COINCIDENCE, 4 * random.nextInt(5));
+        return module;
+    }
+
+    private static final TriggerModule2019 createModule2019(Random random) {
+        TriggerModule2019 module = new TriggerModule2019();
+        module.setCutValue(TriggerModule2019.CLUSTER_HIT_COUNT_LOW, random.nextInt(4));
+        module.setCutValue(TriggerModule2019.CLUSTER_TOTAL_ENERGY_LOW, 0.1 * random.nextInt(4));
+        module.setCutValue(TriggerModule2019.CLUSTER_TOTAL_ENERGY_HIGH, 0.8 + 0.1 * random.nextInt(12));
+        module.setCutValue(TriggerModule2019.CLUSTER_XMIN, random.nextInt(6));
+        module.setCutValue(TriggerModule2019.CLUSTER_PDE_C0, 0.3 * random.nextDouble());
+        module.setCutValue(TriggerModule2019.CLUSTER_PDE_C1, 0.02 * random.nextDouble() - 0.01);
+        module.setCutValue(TriggerModule2019.CLUSTER_PDE_C2, 1e-3 * random.nextDouble() - 5e-4);
+        module.setCutValue(TriggerModule2019.CLUSTER_PDE_C3, 2e-5 * random.nextDouble() - 1e-5);
+        module.setCutValue(TriggerModule2019.PAIR_ENERGY_SUM_LOW, 0.1 * random.nextInt(10));
+        module.setCutValue(TriggerModule2019.PAIR_ENERGY_SUM_HIGH, 1.0 + 0.1 * random.nextInt(20));
+        module.setCutValue(TriggerModule2019.PAIR_ENERGY_DIFFERENCE_HIGH, 0.2 + 0.1 * random.nextInt(12));
+        module.setCutValue(TriggerModule2019.PAIR_ENERGY_SLOPE_LOW, 0.1 * random.nextInt(10));
+        module.setCutValue(TriggerModule2019.PAIR_ENERGY_SLOPE_F, 0.004 + 0.006 * random.nextDouble());
+        module.setCutValue(TriggerModule2019.PAIR_COPLANARITY_HIGH, 10 + random.nextInt(171));
+        return module;
+    }
+
+    /**
+     * Creates a cluster whose seed hit has the cluster time. The hits
+     * have no ID decoder, so the crystal indices are kept separately.
+     */
+    private static final Cluster createCluster(double energy, int hitCount, double time) {
+        BaseCluster cluster = new BaseCluster();
+        for(int i = 0; i < hitCount; i++) {
+            cluster.addHit(new BaseCalorimeterHit(energy / hitCount, energy / hitCount, 0, time, 0, null, 0, null));
+        }
+        cluster.setEnergy(energy);
+        return cluster;
+    }
+
+    private static final void assertCut(String message, int cut, boolean expected, int mask) {
+        assertEquals(message + " cut " + Integer.toBinaryString(cut), expected, (mask & cut) != 0);
+    }
+
+    public void testTriggerModule() {
+        Random random = new Random(24);
+        TriggerBatch batch = new TriggerBatch();
+        int nPassed = 0;
+        int nFailed = 0;
+        for(int event = 0; event < N_EVENTS; event++) {
+            TriggerModule module = createModule(random);
+            batch.clear();
+            batch.setCuts(module);
+
+            SSPCluster[] clusters = new SSPCluster[random.nextInt(MAX_CLUSTERS + 1)];
+            for(int i = 0; i < clusters.length; i++) {
+                clusters[i] = new SSPCluster(randomXIndex(random), randomYIndex(random), 100 * random.nextInt(25),
+                        1 + random.nextInt(6), 4 * random.nextInt(10));
+                assertEquals(i, batch.add(clusters[i]));
+            }
+            assertEquals(clusters.length, batch.size());
+
+            // Compare the singles cuts.
+            for(int i = 0; i < clusters.length; i++) {
+                String message = "event " + event + " cluster " + i;
+                int mask = batch.getSinglesCutMask(i);
+                assertCut(message, TriggerBatch.CUT_CLUSTER_ENERGY_LOW, module.clusterTotalEnergyCutLow(clusters[i]), mask);
+                assertCut(message, TriggerBatch.CUT_CLUSTER_ENERGY_HIGH, module.clusterTotalEnergyCutHigh(clusters[i]), mask);
+                assertCut(message, TriggerBatch.CUT_HIT_COUNT, module.clusterHitCountCut(clusters[i]), mask);
+                assertCut(message, TriggerBatch.CUT_X_MIN | TriggerBatch.CUT_POSITION_DEPENDENT_ENERGY, true, mask);
+                assertEquals(message, module.clusterHitCountCut(clusters[i]) && module.clusterTotalEnergyCut(clusters[i]),
+                        batch.passesSinglesCuts(i, TriggerBatch.CUTS_SINGLES));
+            }
+
+            // Compare the pair cuts on the pairs formed by the module.
+            List<SSPCluster[]> pairs = TriggerModule.getTopBottomPairs(clusters);
+            assertEquals(batch.getTopClusterCount() * batch.getBottomClusterCount(), pairs.size());
+            boolean anyPassed = false;
+            int pairIndex = 0;
+            for(int t = 0; t < batch.getTopClusterCount(); t++) {
+                for(int b = 0; b < batch.getBottomClusterCount(); b++) {
+                    int top = batch.getTopCluster(t);
+                    int bot = batch.getBottomCluster(b);
+                    SSPCluster[] pair = pairs.get(pairIndex++);
+                    assertSame(clusters[top], pair[0]);
+                    assertSame(clusters[bot], pair[1]);
+
+                    String message = "event " + event + " pair " + top + ", " + bot;
+                    int mask = batch.getPairCutMask(top, bot);
+                    boolean clusterCuts = module.clusterHitCountCut(pair[0]) && module.clusterHitCountCut(pair[1])
+                            && module.clusterTotalEnergyCut(pair[0]) && module.clusterTotalEnergyCut(pair[1]);
+                    assertCut(message, TriggerBatch.CUT_CLUSTER_ENERGY_LOW,
+                            module.clusterTotalEnergyCutLow(pair[0]) && module.clusterTotalEnergyCutLow(pair[1]), mask);
+                    assertCut(message, TriggerBatch.CUT_CLUSTER_ENERGY_HIGH,
+                            module.clusterTotalEnergyCutHigh(pair[0]) && module.clusterTotalEnergyCutHigh(pair[1]), mask);
+                    assertCut(message, TriggerBatch.CUT_HIT_COUNT,
+                            module.clusterHitCountCut(pair[0]) && module.clusterHitCountCut(pair[1]), mask);
+                    assertCut(message, TriggerBatch.CUT_ENERGY_SUM_LOW, module.pairEnergySumCutLow(pair), mask);
+                    assertCut(message, TriggerBatch.CUT_ENERGY_SUM_HIGH, module.pairEnergySumCutHigh(pair), mask);
+                    assertCut(message, TriggerBatch.CUT_ENERGY_DIFFERENCE, module.pairEnergyDifferenceCut(pair), mask);
+                    assertCut(message, TriggerBatch.CUT_ENERGY_SLOPE, module.pairEnergySlopeCut(pair), mask);
+                    assertCut(message, TriggerBatch.CUT_COPLANARITY, module.pairCoplanarityCut(pair), mask);
+                    assertCut(message, TriggerBatch.CUT_TIME_COINCIDENCE, module.pairTimeCoincidenceCut(pair), mask);
+                    assertCut(message, TriggerBatch.CUT_X_MIN | TriggerBatch.CUT_POSITION_DEPENDENT_ENERGY, false, mask);
+
+                    // The energy slope depends on the order of clusters
+                    // of equal energy, so check the reversed pair too.
+                    SSPCluster[] reversed = { pair[1], pair[0] };
+                    assertCut(message + " reversed", TriggerBatch.CUT_ENERGY_SLOPE, module.pairEnergySlopeCut(reversed),
+                            batch.getPairCutMask(bot, top));
+
+                    boolean passed = clusterCuts && module.pairEnergySumCut(pair) && module.pairEnergyDifferenceCut(pair)
+                            && module.pairEnergySlopeCut(pair) && module.pairCoplanarityCut(pair)
+                            && module.pairTimeCoincidenceCut(pair);
+                    assertEquals(message, passed, batch.passesPairCuts(top, bot, TriggerBatch.CUTS_PAIR));
+                    anyPassed |= passed;
+                    if(passed) { nPassed++; }
+                    else { nFailed++; }
+                }
+            }
+            assertEquals("event " + event, anyPassed, batch.hasPassingPair(TriggerBatch.CUTS_PAIR));
+        }
+        assertTrue("passed " + nPassed, nPassed > 100);
+        assertTrue("failed " + nFailed, nFailed > 100);
+    }
+
+    public void testTriggerModule2019() {
+        Random random = new Random(2019);
+        TriggerBatch batch = new TriggerBatch();
+        int nSinglesPassed = 0;
+        int nPairsPassed = 0;
+        for(int event = 0; event < N_EVENTS; event++) {
+            TriggerModule2019 module = createModule2019(random);
+            batch.clear();
+            batch.setCuts(module);
+
+            int clusterCount = random.nextInt(MAX_CLUSTERS + 1);
+            Cluster[] clusters = new Cluster[clusterCount];
+            Point[] ixy = new Point[clusterCount];
+            for(int i = 0; i < clusterCount; i++) {
+                clusters[i] = createCluster(0.1 * random.nextInt(25), 1 + random.nextInt(6), 4 * random.nextInt(10));
+                ixy[i] = new Point(randomXIndex(random), randomYIndex(random));
+                assertEquals(i, batch.add(clusters[i], ixy[i].x, ixy[i].y));
+            }
+
+            // Compare the singles cuts, in the order performed by the
+            // SinglesTrigger2019ReadoutDriver before it used the batch.
+            for(int i = 0; i < clusterCount; i++) {
+                String message = "event " + event + " cluster " + i;
+                int clusterX = ixy[i].x < 0 ? ixy[i].x + 1 : ixy[i].x;
+                boolean pdeCut = clusterX >= 1 && module.clusterPDECut(clusters[i], clusterX);
+                int mask = batch.getSinglesCutMask(i);
+                assertCut(message, TriggerBatch.CUT_HIT_COUNT, module.clusterHitCountCut(clusters[i]), mask);
+                int energyCuts = TriggerBatch.CUT_CLUSTER_ENERGY_LOW | TriggerBatch.CUT_CLUSTER_ENERGY_HIGH;
+                assertEquals(message, module.clusterTotalEnergyCut(clusters[i]), (mask & energyCuts) == energyCuts);
+                assertCut(message, TriggerBatch.CUT_X_MIN, module.clusterXMinCut(clusterX), mask);
+                assertCut(message, TriggerBatch.CUT_POSITION_DEPENDENT_ENERGY, pdeCut, mask);
+
+                boolean passed = module.clusterHitCountCut(clusters[i]) && module.clusterTotalEnergyCut(clusters[i])
+                        && module.clusterXMinCut(clusterX) && pdeCut;
+                assertEquals(message, passed, batch.passesSinglesCuts(i, TriggerBatch.CUTS_SINGLES));
+                if(passed) { nSinglesPassed++; }
+            }
+
+            // Compare the pair cuts, with the higher-energy cluster
+            // first as in the PairsTrigger2019ReadoutDriver.
+            for(int b = 0; b < batch.getBottomClusterCount(); b++) {
+                for(int t = 0; t < batch.getTopClusterCount(); t++) {
+                    int bot = batch.getBottomCluster(b);
+                    int top = batch.getTopCluster(t);
+                    int first = clusters[top].getEnergy() > clusters[bot].getEnergy() ? top : bot;
+                    int second = first == top ? bot : top;
+                    Cluster[] pair = { clusters[first], clusters[second] };
+                    Point p0 = ixy[first];
+                    Point p1 = ixy[second];
+
+                    String message = "event " + event + " pair " + first + ", " + second;
+                    int mask = batch.getPairCutMask(first, second);
+                    int energySumCuts = TriggerBatch.CUT_ENERGY_SUM_LOW | TriggerBatch.CUT_ENERGY_SUM_HIGH;
+                    assertEquals(message, module.pairEnergySumCut(pair), (mask & energySumCuts) == energySumCuts);
+                    assertCut(message, TriggerBatch.CUT_ENERGY_DIFFERENCE, module.pairEnergyDifferenceCut(pair), mask);
+                    assertCut(message, TriggerBatch.CUT_ENERGY_SLOPE, module.pairEnergySlopeCut(pair, p0, p1), mask);
+                    assertCut(message, TriggerBatch.CUT_COPLANARITY, module.pairCoplanarityCut(pair, p0, p1), mask);
+                    assertCut(message, TriggerBatch.CUT_TIME_COINCIDENCE, true, mask);
+
+                    boolean passed = module.pairEnergySumCut(pair) && module.pairEnergyDifferenceCut(pair)
+                            && module.pairEnergySlopeCut(pair, p0, p1) && module.pairCoplanarityCut(pair, p0, p1);
+                    assertEquals(message, passed, batch.passesPairCuts(first, second, PAIR_CUTS_2019));
+                    if(passed) { nPairsPassed++; }
+                }
+            }
+        }
+        assertTrue("singles passed " + nSinglesPassed, nSinglesPassed > 100);
+        assertTrue("pairs passed " + nPairsPassed, nPairsPassed > 100);
+    }
+}
@@ -11,6 +11,14 @@ public abstract class PulseShape {
 
     public abstract void setParameters(int channel, HpsSiSensor sensor);
 
+    /**
+     * Set the shaping times directly, for callers which have already read them from the sensor conditions.
+     *
+     * @param tp the first shaping time
+     * @param tp2 the second shaping time, which is not used by all shapes
+     */
+    public abstract void setParameters(double tp, double tp2);
+
     public abstract double getAmplitudePeakNorm(double time);
 
     public abstract double getAmplitudeIntegralNorm(double time);
@@ -38,6 +46,11 @@ public abstract class PulseShape {
             tp = sensor.getShapeFitParameters(channel)[HpsSiSensor.TP_INDEX];
         }
 
+        @Override
+        public void setParameters(double tp, double tp2) {
+            this.tp = tp;
+        }
+
         @Override
         public double getAmplitudePeakNorm(double time) {
             if (time < 0) {
@@ -66,8 +79,14 @@ public abstract class PulseShape {
         
         @Override
         public void setParameters(int channel, HpsSiSensor sensor) {
-            tp = sensor.getShapeFitParameters(channel)[HpsSiSensor.TP_INDEX];
-            tp2 = sensor.getShapeFitParameters(channel)[HpsSiSensor.TP_INDEX + 1];
+            double[] parameters = sensor.getShapeFitParameters(channel);
+            setParameters(parameters[HpsSiSensor.TP_INDEX], parameters[HpsSiSensor.TP_INDEX + 1]);
+        }
+
+        @Override
+        public void setParameters(double tp, double tp2) {
+            this.tp = tp;
+            this.tp2 = tp2;
             peak_t = 3.0 * Math.pow(tp * Math.pow(tp2, 3), 0.25); //approximate solution to exp(x)=1+x+x^2*tp/(2*tp2), where x=(1/tp2-1/tp)*t
             
             A = (Math.pow(tp, 2) / Math.pow(tp - tp2, 3));
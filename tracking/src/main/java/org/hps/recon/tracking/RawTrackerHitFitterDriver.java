@@ -1,6 +1,7 @@
 package org.hps.recon.tracking;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import org.hps.conditions.database.DatabaseConditionsManager;
 import org.hps.conditions.svt.SvtTimingConstants;
@@ -25,6 +26,8 @@ public class RawTrackerHitFitterDriver extends Driver {
     private boolean debug = false;
     private ShaperFitAlgorithm fitter = new DumbShaperFit();
     private PulseShape shape = new PulseShape.FourPole();
+    private final SvtHitBatch batch = new SvtHitBatch();
+    private int fitThreads = 1;
     private String rawHitCollectionName = "SVTRawTrackerHits";
     private String fitCollectionName = "SVTShapeFitParameters";
     private String fittedHitCollectionName = "SVTFittedRawTrackerHits";
@@ -103,10 +106,25 @@ public class RawTrackerHitFitterDriver extends Driver {
             fitter = new ShaperPileupFitAlgorithm(1.0);
         else if (fitAlgorithm.equals("Pileup"))
             fitter = new ShaperPileupFitAlgorithm();
+        else if (fitAlgorithm.equals("Template"))
+            fitter = new ShaperTemplateFitAlgorithm();
+        else if (fitAlgorithm.equals("TemplatePileupAlways"))
+            fitter = new ShaperTemplateFitAlgorithm(1.0);
+        else if (fitAlgorithm.equals("TemplatePileup"))
+            fitter = new ShaperTemplateFitAlgorithm(0.5);
         else
             throw new RuntimeException("Unrecognized fitAlgorithm: " + fitAlgorithm);
     }
 
+    /**
+     * Set the number of threads for fitting the hits of an event, which is only used by the template fitters.
+     *
+     * @param fitThreads the number of threads
+     */
+    public void setFitThreads(int fitThreads) {
+        this.fitThreads = fitThreads;
+    }
+
     public void setPulseShape(String pulseShape) {
         if (pulseShape.equals("CR-RC"))
             shape = new PulseShape.CRRC();
@@ -131,10 +149,20 @@ public class RawTrackerHitFitterDriver extends Driver {
     @Override
     public void startOfData() {
         fitter.setDebug(debug);
+        if (fitter instanceof ShaperTemplateFitAlgorithm)
+            ((ShaperTemplateFitAlgorithm) fitter).setThreads(fitThreads);
+        else if (fitThreads > 1)
+            throw new RuntimeException("The fitAlgorithm does not support fitThreads");
         if (rawHitCollectionName == null)
             throw new RuntimeException("The parameter rawHitCollectionName1 was not set!");
     }
 
+    @Override
+    public void endOfData() {
+        if (fitter instanceof ShaperTemplateFitAlgorithm)
+            ((ShaperTemplateFitAlgorithm) fitter).shutdown();
+    }
+
     protected void detectorChanged(Detector detector) {
         timingConstants = DatabaseConditionsManager.getInstance().getCachedConditions(SvtTimingConstants.SvtTimingConstantsCollection.class, "svt_timing_constants").getCachedData().get(0);
     }
@@ -169,13 +197,25 @@ public class RawTrackerHitFitterDriver extends Driver {
         List<FittedRawTrackerHit> hits = new ArrayList<FittedRawTrackerHit>();
         List<ShapeFitParameters> fits = new ArrayList<ShapeFitParameters>();
 
+        // The template fitters fit all the hits of the event together, the others fit one hit at a time.
+        List<Collection<ShapeFitParameters>> batchFits = null;
+        if (fitter instanceof ShaperTemplateFitAlgorithm) {
+            batch.addAll(rawHits);
+            try {
+                batchFits = ((ShaperTemplateFitAlgorithm) fitter).fitShapes(batch, shape);
+            } finally {
+                batch.clear();
+            }
+        }
+
         // Make a fitted hit from this cluster
-        for (RawTrackerHit hit : rawHits) {
+        for (int i = 0; i < rawHits.size(); i++) {
+            RawTrackerHit hit = rawHits.get(i);
             int strip = hit.getIdentifierFieldValue("strip");
             HpsSiSensor sensor = (HpsSiSensor) hit.getDetectorElement();
             //===> ChannelConstants constants = HPSSVTCalibrationConstants.getChannelConstants((SiSensor) hit.getDetectorElement(), strip);
             //for (ShapeFitParameters fit : _shaper.fitShape(hit, constants)) {
-            for (ShapeFitParameters fit : fitter.fitShape(hit, shape)) {
+            for (ShapeFitParameters fit : batchFits != null ? batchFits.get(i) : fitter.fitShape(hit, shape)) {
 
                 if (correctTimeOffset) {
                     if (debug)
@@ -100,12 +100,29 @@ public class ShaperLinearFitAlgorithm implements ShaperFitAlgorithm, FCNBase {
             //===> sigma[i] = constants.getNoise();
             sigma[i] = sensor.getNoise(channel, i);
         }
+        return fitSignal(signal);
+    }
+
+    /**
+     * Fit pedestal subtracted samples without the sensor conditions.
+     *
+     * @param signal the pedestal subtracted samples
+     * @param noise the noise of each sample
+     * @param shape the pulse shape, with its parameters set for the channel
+     * @return the fit parameters of each pulse
+     */
+    public Collection<ShapeFitParameters> fitShape(double[] signal, double[] noise, PulseShape shape) {
+        this.shape = shape;
+        System.arraycopy(noise, 0, sigma, 0, sigma.length);
+        return fitSignal(signal.clone());
+    }
 
+    private Collection<ShapeFitParameters> fitSignal(double[] signal) {
 //        if (signal[0]>300.0) {
 //            debug = true;
 //        }
         firstUsedSample = 0;
-        nUsedSamples = samples.length;
+        nUsedSamples = signal.length;
         firstFittedPulse = 0;
         nFittedPulses = nPulses;
 
@@ -135,9 +152,9 @@ public class ShaperLinearFitAlgorithm implements ShaperFitAlgorithm, FCNBase {
             fit.setAmp(amplitudes[i]);
             fit.setAmpErr(amplitudeErrors[i]);
             if (fitPedestal) {
-                fit.setChiProb(Gamma.regularizedGammaQ(samples.length - 2 * nPulses - 1, chisq));
+                fit.setChiProb(Gamma.regularizedGammaQ(signal.length - 2 * nPulses - 1, chisq));
             } else {
-                fit.setChiProb(Gamma.regularizedGammaQ(samples.length - 2 * nPulses, chisq));
+                fit.setChiProb(Gamma.regularizedGammaQ(signal.length - 2 * nPulses, chisq));
             }
 
             fit.setT0(min.userState().value(i));
@@ -0,0 +1,735 @@
+package org.hps.recon.tracking;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.commons.math3.special.Gamma;
+import org.hps.readout.svt.HPSSVTConstants;
+import org.lcsim.detector.tracker.silicon.HpsSiSensor;
+import org.lcsim.event.RawTrackerHit;
+
+/**
+ * Pulse fitter which does the same fits as {@link ShaperLinearFitAlgorithm} and {@link ShaperPileupFitAlgorithm}
+ * without Minuit.
+ * <p>
+ * The amplitudes are linear parameters, so for given pulse times they are solved exactly, and the chi-square only
+ * needs to be minimized over the times. The pulse shape of the channel is tabulated on a grid with a step that
+ * divides the sampling interval, so the pulse values for every sample and every time on the grid are table lookups.
+ * The tables are cached per thread by the shaping times, so each channel's shape is only tabulated once. The times are found by scanning the grid (all times for one pulse, a coarser grid for two pulses) and
+ * refining around the best point, followed by a parabolic interpolation of the chi-square between grid points.
+ * <p>
+ * The one pulse fit is always done. If a refit threshold is given, hits with a one pulse chi-square probability below
+ * the threshold are refit with two pulses, and the two pulse fit is kept if its chi-square probability is better, as
+ * in {@link ShaperPileupFitAlgorithm}. The pedestal is not fit.
+ * <p>
+ * The chi-square probabilities are calculated the same way as in {@link ShaperLinearFitAlgorithm} so that existing
+ * cuts on them keep their meaning. The amplitude errors are from the covariance of the linear fit and the time errors
+ * are from the curvature of the chi-square.
+ * <p>
+ * The fitter keeps its work arrays per thread, so one instance can be used by several threads and does not allocate
+ * anything per hit apart from the returned fit parameters. Since {@link PulseShape#setParameters(int, HpsSiSensor)}
+ * changes the shape, each thread also uses its own copy of the pulse shape.
+ * <p>
+ * A whole event can be fit with {@link #fitShapes(SvtHitBatch, PulseShape)}, which takes the conditions from the
+ * batch and can fit the sensors in parallel (see {@link #setThreads(int)}).
+ */
+public class ShaperTemplateFitAlgorithm implements ShaperFitAlgorithm {
+
+    private static final int N_SAMPLES = HPSSVTConstants.TOTAL_NUMBER_OF_SAMPLES;
+    private static final double SAMPLING_INTERVAL = HPSSVTConstants.SAMPLING_INTERVAL;
+
+    /**
+     * Range of the pulse times, which is the same as the parameter limits of {@link ShaperLinearFitAlgorithm}.
+     */
+    private static final double T0_MIN = -500.0;
+    private static final double T0_MAX = (N_SAMPLES - 1) * SAMPLING_INTERVAL;
+
+    /**
+     * Number of grid steps per sampling interval, so the grid step is 0.5 ns.
+     */
+    private static final int STEPS_PER_SAMPLE = 48;
+    private static final double GRID_STEP = SAMPLING_INTERVAL / STEPS_PER_SAMPLE;
+
+    /**
+     * Number of pulse times on the grid.
+     */
+    private static final int N_TIMES = (int) Math.round((T0_MAX - T0_MIN) / GRID_STEP) + 1;
+
+    /**
+     * Grid index of the pulse time 0.
+     */
+    private static final int T0_ZERO_INDEX = (int) Math.round(-T0_MIN / GRID_STEP);
+
+    /**
+     * Grid steps between the pulse times of the coarse two pulse scan (4 ns).
+     */
+    private static final int PAIR_STEP = 8;
+
+    /**
+     * Number of fitted parameters per pulse, for the chi-square probability.
+     */
+    private static final int PARAMETERS_PER_PULSE = 2;
+
+    /**
+     * Maximum number of pulse tables cached by a thread, which is about 10 MB.
+     */
+    private static final int MAX_PULSE_TABLES = 1024;
+
+    /**
+     * Shaping times of a cached pulse table.
+     */
+    private static final class ShapeKey {
+
+        double tp;
+        double tp2;
+
+        ShapeKey(double tp, double tp2) {
+            this.tp = tp;
+            this.tp2 = tp2;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof ShapeKey)) {
+                return false;
+            }
+            ShapeKey other = (ShapeKey) obj;
+            return Double.doubleToLongBits(tp) == Double.doubleToLongBits(other.tp)
+                    && Double.doubleToLongBits(tp2) == Double.doubleToLongBits(other.tp2);
+        }
+
+        @Override
+        public int hashCode() {
+            long bits = 31 * Double.doubleToLongBits(tp) + Double.doubleToLongBits(tp2);
+            return (int) (bits ^ (bits >>> 32));
+        }
+    }
+
+    /**
+     * Work arrays of a thread.
+     */
+    private static final class Workspace {
+
+        /**
+         * Pulse shape at the times after a pulse, indexed by the time in grid steps, while it is tabulated.
+         */
+        final double[] pulse = new double[N_TIMES];
+
+        /**
+         * The pulse table of the current fit, which is the pulse shape in reverse order so the sums over the pulse
+         * times run forward through memory. This is either a cached table or the scratch table.
+         */
+        double[] reversedPulse;
+        final double[] scratchPulse = new double[N_TIMES];
+
+        /**
+         * Shaping times of the current pulse table and of this thread's pulse shape, or NaN if the table is not
+         * from this thread's pulse shape.
+         */
+        double pulseTp = Double.NaN;
+        double pulseTp2 = Double.NaN;
+
+        /**
+         * Pulse tables by shaping times, with the least recently used table removed when there are too many.
+         */
+        @SuppressWarnings("serial")
+        final Map<ShapeKey, double[]> pulseTables = new LinkedHashMap<ShapeKey, double[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ShapeKey, double[]> eldest) {
+                return size() > MAX_PULSE_TABLES;
+            }
+        };
+
+        /**
+         * Key for looking up the pulse tables without allocating.
+         */
+        final ShapeKey probe = new ShapeKey(Double.NaN, Double.NaN);
+
+        /**
+         * Signal and inverse variance of each sample.
+         */
+        final double[] y = new double[N_SAMPLES];
+        final double[] w = new double[N_SAMPLES];
+
+        /**
+         * Weighted sums of template times signal and template squared for each pulse time on the grid.
+         */
+        final double[] sgy = new double[N_TIMES];
+        final double[] sgg = new double[N_TIMES];
+
+        /**
+         * Templates at the final pulse times.
+         */
+        final double[] g1 = new double[N_SAMPLES];
+        final double[] g2 = new double[N_SAMPLES];
+
+        /**
+         * Weighted sum of the signal squared.
+         */
+        double syy;
+
+        /**
+         * This thread's copy of the pulse shape.
+         */
+        PulseShape shape;
+
+        /**
+         * Results of the last fit.
+         */
+        final double[] t0 = new double[2];
+        final double[] t0Err = new double[2];
+        final double[] amp = new double[2];
+        final double[] ampErr = new double[2];
+        double chisq;
+    }
+
+    private final ThreadLocal<Workspace> workspaces = new ThreadLocal<Workspace>() {
+        @Override
+        protected Workspace initialValue() {
+            return new Workspace();
+        }
+    };
+
+    /**
+     * Chi-square probability below which hits are refit with two pulses, or a negative value to never refit.
+     */
+    private final double refitThreshold;
+
+    private boolean debug = false;
+
+    /**
+     * Number of threads for fitting a batch of hits.
+     */
+    private int threads = 1;
+
+    /**
+     * Threads for fitting the sensors of a batch of hits in parallel.
+     */
+    private ExecutorService executor = null;
+
+    /**
+     * Create a fitter which only does one pulse fits.
+     */
+    public ShaperTemplateFitAlgorithm() {
+        this(-1.0);
+    }
+
+    /**
+     * Create a fitter which refits hits with a poor one pulse fit with two pulses.
+     *
+     * @param refitThreshold the chi-square probability below which hits are refit with two pulses
+     */
+    public ShaperTemplateFitAlgorithm(double refitThreshold) {
+        this.refitThreshold = refitThreshold;
+    }
+
+    @Override
+    public void setDebug(boolean debug) {
+        this.debug = debug;
+    }
+
+    /**
+     * Set the number of threads for fitting a batch of hits, which are split between the threads by sensor.
+     *
+     * @param threads the number of threads
+     */
+    public synchronized void setThreads(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Bad number of threads: " + threads);
+        }
+        shutdown();
+        this.threads = threads;
+    }
+
+    /**
+     * Stop the threads for fitting batches of hits.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    @Override
+    public Collection<ShapeFitParameters> fitShape(RawTrackerHit rth, PulseShape shape) {
+        return fitShape(rth.getADCValues(), (HpsSiSensor) rth.getDetectorElement(),
+                rth.getIdentifierFieldValue("strip"), shape);
+    }
+
+    /**
+     * Fit the samples of a channel.
+     *
+     * @param samples the ADC samples
+     * @param sensor the sensor with the pedestals, noise and pulse shape parameters of the channel
+     * @param channel the channel number
+     * @param shape the pulse shape (which is not modified)
+     * @return the fit parameters of each pulse, ordered by time
+     */
+    public Collection<ShapeFitParameters> fitShape(short[] samples, HpsSiSensor sensor, int channel,
+            PulseShape shape) {
+        Workspace ws = workspaces.get();
+        PulseShape threadShape = getShape(ws, shape);
+        double[] shapeParameters = SvtHitBatch.getShapeFitParameters(sensor, channel);
+        usePulseTable(ws, threadShape, shapeParameters[HpsSiSensor.TP_INDEX],
+                shapeParameters[HpsSiSensor.TP_INDEX + 1]);
+        for (int i = 0; i < N_SAMPLES; i++) {
+            double noise = sensor.getNoise(channel, i);
+            ws.y[i] = samples[i] - sensor.getPedestal(channel, i);
+            ws.w[i] = 1.0 / (noise * noise);
+        }
+        return fit(ws, threadShape);
+    }
+
+    /**
+     * Fit pedestal subtracted samples.
+     *
+     * @param signal the pedestal subtracted samples
+     * @param noise the noise of each sample
+     * @param shape the pulse shape, with its parameters set for the channel
+     * @return the fit parameters of each pulse, ordered by time
+     */
+    public Collection<ShapeFitParameters> fitShape(double[] signal, double[] noise, PulseShape shape) {
+        Workspace ws = workspaces.get();
+        for (int i = 0; i < N_SAMPLES; i++) {
+            ws.y[i] = signal[i];
+            ws.w[i] = 1.0 / (noise[i] * noise[i]);
+        }
+        // The shape is not this thread's copy, so its table is not cached.
+        tabulate(shape, ws.pulse, ws.scratchPulse);
+        ws.reversedPulse = ws.scratchPulse;
+        ws.pulseTp = Double.NaN;
+        ws.pulseTp2 = Double.NaN;
+        return fit(ws, shape);
+    }
+
+    /**
+     * Fit a batch of hits.
+     * <p>
+     * The conditions of the hits are taken from the batch. If more than one thread is set then the hits are fit in
+     * parallel, with the hits of each sensor fit by the same thread.
+     *
+     * @param batch the hits
+     * @param shape the pulse shape
+     * @return the fit parameters of each hit, in the order of the batch
+     */
+    public List<Collection<ShapeFitParameters>> fitShapes(final SvtHitBatch batch, final PulseShape shape) {
+        final List<Collection<ShapeFitParameters>> fits = new ArrayList<Collection<ShapeFitParameters>>(
+                Collections.<Collection<ShapeFitParameters>> nCopies(batch.size(), null));
+        int nRuns = batch.getSensorRunCount();
+        ExecutorService executor = getExecutor();
+        if (executor == null || nRuns < 2) {
+            fitRange(batch, shape, 0, batch.size(), fits);
+            return fits;
+        }
+        List<Future<?>> futures = new ArrayList<Future<?>>(nRuns);
+        for (int r = 0; r < nRuns; r++) {
+            final int start = batch.getSensorRunStart(r);
+            final int end = batch.getSensorRunStart(r + 1);
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    fitRange(batch, shape, start, end, fits);
+                }
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fitting SVT hits", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+        return fits;
+    }
+
+    /**
+     * Fit the hits of a batch in a range, putting the results at the same indices of the list.
+     */
+    private void fitRange(SvtHitBatch batch, PulseShape shape, int start, int end,
+            List<Collection<ShapeFitParameters>> fits) {
+        Workspace ws = workspaces.get();
+        PulseShape threadShape = getShape(ws, shape);
+        short[] samples = batch.getSamples();
+        double[] pedestals = batch.getPedestals();
+        double[] noise = batch.getNoise();
+        for (int h = start; h < end; h++) {
+            int offset = h * N_SAMPLES;
+            for (int i = 0; i < N_SAMPLES; i++) {
+                double sigma = noise[offset + i];
+                ws.y[i] = samples[offset + i] - pedestals[offset + i];
+                ws.w[i] = 1.0 / (sigma * sigma);
+            }
+            double[] shapeParameters = batch.getShapeFitParameters(h);
+            usePulseTable(ws, threadShape, shapeParameters[HpsSiSensor.TP_INDEX],
+                    shapeParameters[HpsSiSensor.TP_INDEX + 1]);
+            fits.set(h, fit(ws, threadShape));
+        }
+    }
+
+    /**
+     * Set the shaping times of this thread's pulse shape and make the pulse table of those shaping times the current
+     * table, tabulating it if it is not cached.
+     */
+    private static void usePulseTable(Workspace ws, PulseShape threadShape, double tp, double tp2) {
+        // Consecutive hits often have the same shaping times, and then nothing changes.
+        if (tp == ws.pulseTp && tp2 == ws.pulseTp2) {
+            return;
+        }
+        threadShape.setParameters(tp, tp2);
+        ws.pulseTp = tp;
+        ws.pulseTp2 = tp2;
+        ws.probe.tp = tp;
+        ws.probe.tp2 = tp2;
+        double[] table = ws.pulseTables.get(ws.probe);
+        if (table == null) {
+            table = new double[N_TIMES];
+            tabulate(threadShape, ws.pulse, table);
+            ws.pulseTables.put(new ShapeKey(tp, tp2), table);
+        }
+        ws.reversedPulse = table;
+    }
+
+    /**
+     * Tabulate a pulse shape on the grid in reverse order.
+     */
+    private static void tabulate(PulseShape shape, double[] pulse, double[] reversedPulse) {
+        shape.getAmplitudesPeakNorm(0, GRID_STEP, pulse);
+        for (int j = 0; j < N_TIMES; j++) {
+            reversedPulse[j] = pulse[N_TIMES - 1 - j];
+        }
+    }
+
+    private Collection<ShapeFitParameters> fit(Workspace ws, PulseShape shape) {
+        // Sum over the samples for all the pulse times at once, in loops which the JIT can vectorize.
+        ws.syy = 0;
+        Arrays.fill(ws.sgy, 0);
+        Arrays.fill(ws.sgg, 0);
+        double[] reversedPulse = ws.reversedPulse;
+        double[] sgy = ws.sgy;
+        double[] sgg = ws.sgg;
+        for (int i = 0; i < N_SAMPLES; i++) {
+            double w = ws.w[i];
+            double wy = w * ws.y[i];
+            ws.syy += wy * ws.y[i];
+            // Pulse times after the sample have no signal in it.
+            int end = i * STEPS_PER_SAMPLE + T0_ZERO_INDEX;
+            int offset = (N_SAMPLES - 1 - i) * STEPS_PER_SAMPLE;
+            for (int k = 0; k < end; k++) {
+                double g = reversedPulse[offset + k];
+                sgy[k] += wy * g;
+                sgg[k] += w * g * g;
+            }
+        }
+
+        fitOnePulse(ws, shape);
+        double chiProb = chiProb(ws.chisq, 1);
+        if (debug) {
+            System.out.format("one pulse fit:\tt0=%f,\tA=%f,\tchisq=%f\n", ws.t0[0], ws.amp[0], ws.chisq);
+        }
+        if (chiProb >= refitThreshold) {
+            return results(ws, 1, chiProb);
+        }
+
+        // Keep the one pulse fit in case the two pulse fit is worse.
+        double t0 = ws.t0[0];
+        double t0Err = ws.t0Err[0];
+        double amp = ws.amp[0];
+        double ampErr = ws.ampErr[0];
+        fitTwoPulses(ws, shape);
+        double twoPulseChiProb = chiProb(ws.chisq, 2);
+        if (debug) {
+            System.out.format("two pulse fit:\tt0=%f,\tA=%f,\tt0=%f,\tA=%f,\tchisq=%f\n", ws.t0[0], ws.amp[0],
+                    ws.t0[1], ws.amp[1], ws.chisq);
+        }
+        if (twoPulseChiProb > chiProb) {
+            return results(ws, 2, twoPulseChiProb);
+        }
+        ws.t0[0] = t0;
+        ws.t0Err[0] = t0Err;
+        ws.amp[0] = amp;
+        ws.ampErr[0] = ampErr;
+        return results(ws, 1, chiProb);
+    }
+
+    private void fitOnePulse(Workspace ws, PulseShape shape) {
+        // Scan all the times on the grid.
+        int best = 0;
+        double bestChisq = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < N_TIMES; k++) {
+            double chisq = onePulseChisq(ws, k);
+            if (chisq < bestChisq) {
+                bestChisq = chisq;
+                best = k;
+            }
+        }
+
+        // Interpolate between the grid points.
+        double offset = 0;
+        double t0Err = Double.POSITIVE_INFINITY;
+        if (best > 0 && best < N_TIMES - 1) {
+            double curvature = onePulseChisq(ws, best - 1) - 2 * bestChisq + onePulseChisq(ws, best + 1);
+            if (curvature > 0) {
+                offset = parabolaMinimum(onePulseChisq(ws, best - 1), onePulseChisq(ws, best + 1), curvature);
+                t0Err = GRID_STEP * Math.sqrt(2.0 / curvature);
+            }
+        }
+        double t0 = T0_MIN + (best + offset) * GRID_STEP;
+
+        // Solve the amplitude with the exact pulse shape.
+        shape.getAmplitudesPeakNorm(-t0, SAMPLING_INTERVAL, ws.g1);
+        double sgy = 0;
+        double sgg = 0;
+        for (int i = 0; i < N_SAMPLES; i++) {
+            sgy += ws.w[i] * ws.g1[i] * ws.y[i];
+            sgg += ws.w[i] * ws.g1[i] * ws.g1[i];
+        }
+        ws.t0[0] = t0;
+        ws.t0Err[0] = t0Err;
+        if (sgg > 0 && sgy >= 0) {
+            ws.amp[0] = sgy / sgg;
+            ws.ampErr[0] = Math.sqrt(1.0 / sgg);
+            ws.chisq = ws.syy - sgy * sgy / sgg;
+        } else {
+            ws.amp[0] = 0;
+            ws.ampErr[0] = Double.POSITIVE_INFINITY;
+            ws.chisq = ws.syy;
+        }
+    }
+
+    private void fitTwoPulses(Workspace ws, PulseShape shape) {
+        // Coarse scan of the ordered pairs of times.
+        int best1 = -1;
+        int best2 = -1;
+        double bestChisq = Double.POSITIVE_INFINITY;
+        for (int k1 = 0; k1 < N_TIMES; k1 += PAIR_STEP) {
+            for (int k2 = k1 + PAIR_STEP; k2 < N_TIMES; k2 += PAIR_STEP) {
+                double chisq = twoPulseChisq(ws, k1, k2);
+                if (chisq < bestChisq) {
+                    bestChisq = chisq;
+                    best1 = k1;
+                    best2 = k2;
+                }
+            }
+        }
+        if (best1 < 0) {
+            ws.t0[0] = ws.t0[1] = T0_MIN;
+            ws.t0Err[0] = ws.t0Err[1] = Double.POSITIVE_INFINITY;
+            ws.amp[0] = ws.amp[1] = 0;
+            ws.ampErr[0] = ws.ampErr[1] = Double.POSITIVE_INFINITY;
+            ws.chisq = ws.syy;
+            return;
+        }
+
+        // Fine scan around the best pair.
+        int center1 = best1;
+        int center2 = best2;
+        int last1 = Math.min(center1 + PAIR_STEP, N_TIMES - 1);
+        int last2 = Math.min(center2 + PAIR_STEP, N_TIMES - 1);
+        for (int k1 = Math.max(center1 - PAIR_STEP, 0); k1 <= last1; k1++) {
+            for (int k2 = Math.max(center2 - PAIR_STEP, k1 + 1); k2 <= last2; k2++) {
+                double chisq = twoPulseChisq(ws, k1, k2);
+                if (chisq < bestChisq) {
+                    bestChisq = chisq;
+                    best1 = k1;
+                    best2 = k2;
+                }
+            }
+        }
+
+        // Interpolate each time between the grid points with the other time fixed.
+        double offset1 = 0;
+        double offset2 = 0;
+        ws.t0Err[0] = ws.t0Err[1] = Double.POSITIVE_INFINITY;
+        if (best1 > 0 && best1 + 1 < best2) {
+            double before = twoPulseChisq(ws, best1 - 1, best2);
+            double after = twoPulseChisq(ws, best1 + 1, best2);
+            double curvature = before - 2 * bestChisq + after;
+            if (curvature > 0 && !Double.isInfinite(before) && !Double.isInfinite(after)) {
+                offset1 = parabolaMinimum(before, after, curvature);
+                ws.t0Err[0] = GRID_STEP * Math.sqrt(2.0 / curvature);
+            }
+        }
+        if (best2 - 1 > best1 && best2 < N_TIMES - 1) {
+            double before = twoPulseChisq(ws, best1, best2 - 1);
+            double after = twoPulseChisq(ws, best1, best2 + 1);
+            double curvature = before - 2 * bestChisq + after;
+            if (curvature > 0 && !Double.isInfinite(before) && !Double.isInfinite(after)) {
+                offset2 = parabolaMinimum(before, after, curvature);
+                ws.t0Err[1] = GRID_STEP * Math.sqrt(2.0 / curvature);
+            }
+        }
+        ws.t0[0] = T0_MIN + (best1 + offset1) * GRID_STEP;
+        ws.t0[1] = T0_MIN + (best2 + offset2) * GRID_STEP;
+
+        // Solve the amplitudes with the exact pulse shape.
+        shape.getAmplitudesPeakNorm(-ws.t0[0], SAMPLING_INTERVAL, ws.g1);
+        shape.getAmplitudesPeakNorm(-ws.t0[1], SAMPLING_INTERVAL, ws.g2);
+        double s11 = 0;
+        double s22 = 0;
+        double s12 = 0;
+        double y1 = 0;
+        double y2 = 0;
+        for (int i = 0; i < N_SAMPLES; i++) {
+            s11 += ws.w[i] * ws.g1[i] * ws.g1[i];
+            s22 += ws.w[i] * ws.g2[i] * ws.g2[i];
+            s12 += ws.w[i] * ws.g1[i] * ws.g2[i];
+            y1 += ws.w[i] * ws.g1[i] * ws.y[i];
+            y2 += ws.w[i] * ws.g2[i] * ws.y[i];
+        }
+        double det = s11 * s22 - s12 * s12;
+        double a1 = (s22 * y1 - s12 * y2) / det;
+        double a2 = (s11 * y2 - s12 * y1) / det;
+        if (det > 1e-12 * s11 * s22 && a1 >= 0 && a2 >= 0) {
+            ws.amp[0] = a1;
+            ws.amp[1] = a2;
+            ws.ampErr[0] = Math.sqrt(s22 / det);
+            ws.ampErr[1] = Math.sqrt(s11 / det);
+            ws.chisq = ws.syy - a1 * y1 - a2 * y2;
+        } else {
+            // The interpolation moved the times to where the fit is not valid, so use the grid point.
+            ws.t0[0] = T0_MIN + best1 * GRID_STEP;
+            ws.t0[1] = T0_MIN + best2 * GRID_STEP;
+            s11 = ws.sgg[best1];
+            s22 = ws.sgg[best2];
+            s12 = crossTerm(ws, best1, best2);
+            det = s11 * s22 - s12 * s12;
+            ws.amp[0] = (s22 * ws.sgy[best1] - s12 * ws.sgy[best2]) / det;
+            ws.amp[1] = (s11 * ws.sgy[best2] - s12 * ws.sgy[best1]) / det;
+            ws.ampErr[0] = Math.sqrt(s22 / det);
+            ws.ampErr[1] = Math.sqrt(s11 / det);
+            ws.chisq = bestChisq;
+        }
+    }
+
+    /**
+     * Get the template value of a sample for a pulse time on the grid.
+     */
+    private static double template(Workspace ws, int sample, int k) {
+        int index = sample * STEPS_PER_SAMPLE + T0_ZERO_INDEX - k;
+        return index > 0 ? ws.reversedPulse[N_TIMES - 1 - index] : 0;
+    }
+
+    private static double onePulseChisq(Workspace ws, int k) {
+        double sgy = ws.sgy[k];
+        double sgg = ws.sgg[k];
+        if (sgg > 0 && sgy > 0) {
+            return ws.syy - sgy * sgy / sgg;
+        }
+        return ws.syy;
+    }
+
+    private static double crossTerm(Workspace ws, int k1, int k2) {
+        double s12 = 0;
+        for (int i = 0; i < N_SAMPLES; i++) {
+            s12 += ws.w[i] * template(ws, i, k1) * template(ws, i, k2);
+        }
+        return s12;
+    }
+
+    /**
+     * Get the chi-square of the two pulse fit for a pair of times on the grid, or infinity if the fit is not valid.
+     */
+    private static double twoPulseChisq(Workspace ws, int k1, int k2) {
+        double s11 = ws.sgg[k1];
+        double s22 = ws.sgg[k2];
+        double s12 = crossTerm(ws, k1, k2);
+        double det = s11 * s22 - s12 * s12;
+        if (!(det > 1e-12 * s11 * s22)) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double y1 = ws.sgy[k1];
+        double y2 = ws.sgy[k2];
+        double a1 = (s22 * y1 - s12 * y2) / det;
+        double a2 = (s11 * y2 - s12 * y1) / det;
+        if (a1 < 0 || a2 < 0) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return ws.syy - a1 * y1 - a2 * y2;
+    }
+
+    /**
+     * Get the offset in grid steps of the minimum of a parabola through three equally spaced points.
+     */
+    private static double parabolaMinimum(double before, double after, double curvature) {
+        double offset = 0.5 * (before - after) / curvature;
+        return Math.max(-1.0, Math.min(1.0, offset));
+    }
+
+    /**
+     * Get the chi-square probability in the same way as {@link ShaperLinearFitAlgorithm}, which uses the square root
+     * of the chi-square.
+     */
+    private static double chiProb(double chisq, int nPulses) {
+        return Gamma.regularizedGammaQ(N_SAMPLES - PARAMETERS_PER_PULSE * nPulses, Math.sqrt(Math.max(chisq, 0)));
+    }
+
+    private static Collection<ShapeFitParameters> results(Workspace ws, int nPulses, double chiProb) {
+        List<ShapeFitParameters> fits = new ArrayList<ShapeFitParameters>(nPulses);
+        for (int i = 0; i < nPulses; i++) {
+            ShapeFitParameters fit = new ShapeFitParameters();
+            fit.setT0(ws.t0[i]);
+            fit.setT0Err(ws.t0Err[i]);
+            fit.setAmp(ws.amp[i]);
+            fit.setAmpErr(ws.ampErr[i]);
+            fit.setChiProb(chiProb);
+            fits.add(fit);
+        }
+        return fits;
+    }
+
+    /**
+     * Get the threads for fitting a batch, or <code>null</code> to fit in the calling thread.
+     */
+    private synchronized ExecutorService getExecutor() {
+        if (threads < 2) {
+            return null;
+        }
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "ShaperTemplateFit");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+
+    /**
+     * Get this thread's copy of a pulse shape.
+     */
+    private static PulseShape getShape(Workspace ws, PulseShape shape) {
+        if (ws.shape == null || ws.shape.getClass() != shape.getClass()) {
+            try {
+                ws.shape = shape.getClass().newInstance();
+            } catch (InstantiationException | IllegalAccessException e) {
+                throw new RuntimeException("Pulse shape " + shape.getClass().getName()
+                        + " needs a public no argument constructor.", e);
+            }
+            // The cached tables are of the previous shape.
+            ws.pulseTables.clear();
+            ws.pulseTp = Double.NaN;
+            ws.pulseTp2 = Double.NaN;
+        }
+        return ws.shape;
+    }
+}
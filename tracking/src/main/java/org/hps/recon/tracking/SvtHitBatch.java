@@ -0,0 +1,199 @@
+package org.hps.recon.tracking;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.hps.readout.svt.HPSSVTConstants;
+import org.lcsim.detector.tracker.silicon.HpsSiSensor;
+import org.lcsim.event.RawTrackerHit;
+
+/**
+ * The SVT raw hits of an event with their channel conditions, stored as flat arrays so that they can be fit together
+ * by {@link ShaperTemplateFitAlgorithm#fitShapes(SvtHitBatch, PulseShape)}.
+ * <p>
+ * The samples, pedestals and noise of hit <code>i</code> are at <code>[i * N_SAMPLES, (i + 1) * N_SAMPLES)</code> of
+ * their arrays. The batch can be cleared and refilled for every event without allocating once its arrays are big
+ * enough.
+ */
+public final class SvtHitBatch {
+
+    /**
+     * Number of samples per hit.
+     */
+    public static final int N_SAMPLES = HPSSVTConstants.TOTAL_NUMBER_OF_SAMPLES;
+
+    private int size = 0;
+
+    private RawTrackerHit[] hits = new RawTrackerHit[0];
+    private HpsSiSensor[] sensors = new HpsSiSensor[0];
+    private int[] channels = new int[0];
+    private short[] samples = new short[0];
+    private double[] pedestals = new double[0];
+    private double[] noise = new double[0];
+
+    /**
+     * Start index of each run of hits on the same sensor, followed by the size of the batch.
+     */
+    private int[] sensorStarts = new int[1];
+    private int nSensors = 0;
+
+    /**
+     * Remove all the hits.
+     */
+    public void clear() {
+        Arrays.fill(hits, 0, size, null);
+        Arrays.fill(sensors, 0, size, null);
+        size = 0;
+        nSensors = 0;
+    }
+
+    /**
+     * Add the hits of an event.
+     *
+     * @param rawHits the raw hits
+     */
+    public void addAll(List<RawTrackerHit> rawHits) {
+        ensureCapacity(size + rawHits.size());
+        for (RawTrackerHit hit : rawHits) {
+            add(hit);
+        }
+    }
+
+    /**
+     * Add a hit, reading its channel's pedestals and noise from the sensor.
+     *
+     * @param hit the raw hit
+     */
+    public void add(RawTrackerHit hit) {
+        ensureCapacity(size + 1);
+        HpsSiSensor sensor = (HpsSiSensor) hit.getDetectorElement();
+        int channel = hit.getIdentifierFieldValue("strip");
+        short[] adcValues = hit.getADCValues();
+        int offset = size * N_SAMPLES;
+        for (int j = 0; j < N_SAMPLES; j++) {
+            samples[offset + j] = adcValues[j];
+            pedestals[offset + j] = sensor.getPedestal(channel, j);
+            noise[offset + j] = sensor.getNoise(channel, j);
+        }
+        if (size == 0 || sensors[size - 1] != sensor) {
+            sensorStarts[nSensors++] = size;
+        }
+        hits[size] = hit;
+        sensors[size] = sensor;
+        channels[size] = channel;
+        size++;
+        sensorStarts[nSensors] = size;
+    }
+
+    /**
+     * Get the number of hits.
+     *
+     * @return the number of hits
+     */
+    public int size() {
+        return size;
+    }
+
+    public RawTrackerHit getHit(int i) {
+        return hits[i];
+    }
+
+    public HpsSiSensor getSensor(int i) {
+        return sensors[i];
+    }
+
+    public int getChannel(int i) {
+        return channels[i];
+    }
+
+    /**
+     * Get the pulse shape parameters of a hit's channel, which are read from the sensor when they are needed since
+     * not every fitter uses them.
+     *
+     * @param i the hit index
+     * @return the shape fit parameters
+     */
+    public double[] getShapeFitParameters(int i) {
+        return getShapeFitParameters(sensors[i], channels[i]);
+    }
+
+    /**
+     * Get the samples of all the hits.
+     *
+     * @return the samples, with <code>N_SAMPLES</code> per hit
+     */
+    public short[] getSamples() {
+        return samples;
+    }
+
+    /**
+     * Get the pedestals of all the hits.
+     *
+     * @return the pedestals, with <code>N_SAMPLES</code> per hit
+     */
+    public double[] getPedestals() {
+        return pedestals;
+    }
+
+    /**
+     * Get the noise of all the hits.
+     *
+     * @return the noise, with <code>N_SAMPLES</code> per hit
+     */
+    public double[] getNoise() {
+        return noise;
+    }
+
+    /**
+     * Get the number of runs of consecutive hits on the same sensor.
+     *
+     * @return the number of sensor runs
+     */
+    public int getSensorRunCount() {
+        return nSensors;
+    }
+
+    /**
+     * Get the index of the first hit of a run of consecutive hits on the same sensor.
+     * <p>
+     * The hits of run <code>r</code> are <code>[getSensorRunStart(r), getSensorRunStart(r + 1))</code>, and
+     * <code>getSensorRunStart(getSensorRunCount())</code> is the size of the batch.
+     *
+     * @param r the run index
+     * @return the index of the first hit of the run
+     */
+    public int getSensorRunStart(int r) {
+        return sensorStarts[r];
+    }
+
+    /**
+     * Get the pulse shape parameters of a channel.
+     *
+     * @param sensor the sensor
+     * @param channel the channel number
+     * @return the shape fit parameters
+     * @throws RuntimeException if the sensor has no shape fit parameters for the channel
+     */
+    static double[] getShapeFitParameters(HpsSiSensor sensor, int channel) {
+        double[] shapeParameters = sensor.getShapeFitParameters(channel);
+        if (shapeParameters == null) {
+            throw new RuntimeException("No shape fit parameters for channel " + channel + " of sensor "
+                    + sensor.getName() + ".");
+        }
+        return shapeParameters;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= hits.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, 2 * hits.length);
+        hits = Arrays.copyOf(hits, newCapacity);
+        sensors = Arrays.copyOf(sensors, newCapacity);
+        channels = Arrays.copyOf(channels, newCapacity);
+        samples = Arrays.copyOf(samples, newCapacity * N_SAMPLES);
+        pedestals = Arrays.copyOf(pedestals, newCapacity * N_SAMPLES);
+        noise = Arrays.copyOf(noise, newCapacity * N_SAMPLES);
+        sensorStarts = Arrays.copyOf(sensorStarts, newCapacity + 1);
+    }
+}
@@ -6,6 +6,7 @@ import org.hps.recon.tracking.gbl.matrix.EigenvalueDecomposition;
 import org.hps.recon.tracking.gbl.matrix.Matrix;
 import org.hps.recon.tracking.gbl.matrix.SymMatrix;
 import org.hps.recon.tracking.gbl.matrix.Vector;
+import org.hps.recon.tracking.matrix.Mat3;
 
 /**
  * @author phansson
@@ -423,15 +424,46 @@ public class GblPoint {
      * \param [in] aJac Jacobian
      */
     public void addPrevJacobian(Matrix aJac) {
-        int ifail = 0;
         // to optimize: need only two last rows of inverse
         // prevJacobian = aJac.InverseFast(ifail);
-        // block matrix algebra
-        Matrix CA = aJac.sub(2, 3, 3, 0).times(aJac.sub(3, 0, 0).inverse()); // C*A^-1
-        Matrix DCAB = aJac.sub(2, 3, 3).minus(CA.times(aJac.sub(3, 2, 0, 3))); // D - C*A^-1 *B
-        DCAB = DCAB.inverse();
-        prevJacobian.placeAt(DCAB, 3, 3);
-        prevJacobian.placeAt(DCAB.times(CA).uminus(), 3, 0);
+        // block matrix algebra, with the 3x3 block A and the 2x2 blocks inverted in closed form
+        double[] matA = new double[9];
+        double[] matAinv = new double[9];
+        for (int i = 0; i < 3; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                matA[3 * i + j] = aJac.get(i, j);
+            }
+        }
+        if (!Mat3.invert(matA, matAinv)) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+        double[] matCA = new double[6]; // C*A^-1
+        for (int i = 0; i < 2; ++i) {
+            for (int j = 0; j < 3; ++j) {
+                matCA[3 * i + j] = aJac.get(3 + i, 0) * matAinv[j] + aJac.get(3 + i, 1) * matAinv[3 + j] + aJac.get(3 + i, 2)
+                        * matAinv[6 + j];
+            }
+        }
+        double[] matDCAB = new double[4]; // D - C*A^-1 *B
+        for (int i = 0; i < 2; ++i) {
+            for (int j = 0; j < 2; ++j) {
+                matDCAB[2 * i + j] = aJac.get(3 + i, 3 + j) - matCA[3 * i] * aJac.get(0, 3 + j) - matCA[3 * i + 1] * aJac.get(1, 3 + j)
+                        - matCA[3 * i + 2] * aJac.get(2, 3 + j);
+            }
+        }
+        double det = matDCAB[0] * matDCAB[3] - matDCAB[1] * matDCAB[2];
+        if (det == 0.) {
+            throw new RuntimeException("Matrix is singular.");
+        }
+        double[] inv = {matDCAB[3] / det, -matDCAB[1] / det, -matDCAB[2] / det, matDCAB[0] / det};
+        for (int i = 0; i < 2; ++i) {
+            for (int j = 0; j < 2; ++j) {
+                prevJacobian.set(3 + i, 3 + j, inv[2 * i + j]);
+            }
+            for (int j = 0; j < 3; ++j) {
+                prevJacobian.set(3 + i, j, -(inv[2 * i] * matCA[j] + inv[2 * i + 1] * matCA[3 + j]));
+            }
+        }
     }
 
     //
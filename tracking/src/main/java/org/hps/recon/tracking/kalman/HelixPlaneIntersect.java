@@ -11,15 +11,22 @@ class HelixPlaneIntersect { // Calculates intersection of a helix with a nearly
     private double h;
     private double c;
     double alpha;
+    private RungeKutta4 rk4;
 
     HelixPlaneIntersect() {
         c = 2.99793e8;
         h = 1.0; // Integration step size. It is not optimized and can probably be set significantly larger to save time.
+                 // In the adaptive mode this is only the initial step.
     }
 
     // Runge Kutta integration extrapolation to a plane through a non-uniform field
     // When close to the plane, then a helix is used to find the exact intersection
     Vec rkIntersect(Plane P, Vec X0, Vec P0in, double Qin, org.lcsim.geometry.FieldMap fM, Vec pInt) {
+        return rkIntersect(P, X0, P0in, Qin, fM, pInt, false);
+    }
+    
+    // Same, optionally using the adaptive-step Runge-Kutta integration
+    Vec rkIntersect(Plane P, Vec X0, Vec P0in, double Qin, org.lcsim.geometry.FieldMap fM, Vec pInt, boolean adaptiveRK) {
         // P definition of the plane to which to extrapolate
         // X0 3-D starting point for the extrapolation
         // P0 3-momentum at the start of the extrapolation
@@ -43,10 +50,11 @@ class HelixPlaneIntersect { // Calculates intersection of a helix with a nearly
         Vec pHat = P0.unitVec();
         double distance = Math.abs(dPerp / pHat.dot(P.T()));
 
-        RungeKutta4 rk4 = new RungeKutta4(Q, h, fM);
+        if (rk4 == null) rk4 = new RungeKutta4(Q, h, fM);
+        else rk4.reset(Q, h, fM);
         //X0.print("rkIntersect start location, global coords");
         //P0.print("rkIntersect start momentum, global coords");
-        double[] d = rk4.integrate(X0, P0, distance);
+        double[] d = adaptiveRK ? rk4.integrateAdaptive(X0, P0, distance) : rk4.integrate(X0, P0, distance);
         Vec X1 = new Vec(d[0], d[1], d[2]);
         Vec P1 = null;
         if (backwards) {
@@ -0,0 +1,75 @@
+package org.hps.recon.tracking.kalman;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+// Index of the hits in one tracker layer for making seeds without trying every hit combination.
+// The hits are sorted by time, so that the hits compatible with the time window of a partial seed are found by
+// binary search, and the time and global position of each hit are held in primitive arrays.
+// Entries refer to the hits by their position in the layer hit list of KalmanPatRecHPS.
+class HitIndex {
+    final int[] order;      // Positions in the layer hit list, in order of increasing time
+    final double[] tSorted; // Hit times in the same order
+    final double[] time;    // Hit times, by position in the layer hit list
+    final double[] yGlobal; // Global y (beam direction) of the strip center, by position in the layer hit list
+    final double[] zGlobal; // Global z (non-bending direction) of the strip center, by position in the layer hit list
+    final boolean axial;    // True if the layer measures the non-bending coordinate
+
+    HitIndex(final ArrayList<KalHit> hits) {
+        int n = hits.size();
+        time = new double[n];
+        yGlobal = new double[n];
+        zGlobal = new double[n];
+        Integer[] idx = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            KalHit ht = hits.get(i);
+            time[i] = ht.hit.time;
+            Vec pnt = ht.module.toGlobal(new Vec(0., ht.hit.v, 0.));
+            yGlobal[i] = pnt.v[1];
+            zGlobal[i] = pnt.v[2];
+            idx[i] = i;
+        }
+        Arrays.sort(idx, new Comparator<Integer>() { // Stable, so equal times stay in hit-list order
+            @Override
+            public int compare(Integer i1, Integer i2) {
+                return Double.compare(time[i1], time[i2]);
+            }
+        });
+        order = new int[n];
+        tSorted = new double[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = idx[i];
+            tSorted[i] = time[idx[i]];
+        }
+        axial = (n > 0) && !hits.get(0).module.isStereo;
+    }
+
+    int size() {
+        return order.length;
+    }
+
+    // Index in the time-sorted arrays of the first hit with time >= t
+    int firstAtOrAfter(double t) {
+        int lo = 0;
+        int hi = tSorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tSorted[mid] < t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // Index in the time-sorted arrays just past the last hit with time <= t
+    int endAtOrBefore(double t) {
+        int lo = 0;
+        int hi = tSorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (tSorted[mid] <= t) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
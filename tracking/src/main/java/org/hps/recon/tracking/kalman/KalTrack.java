@@ -35,6 +35,7 @@ public class KalTrack {
     private boolean verbose;
     double tMin;
     double tMax;
+    boolean adaptiveRK;     // Use adaptive-step Runge-Kutta integration for the propagation to the origin
 
     KalTrack(int evtNumb, int tkID, int nHits, ArrayList<MeasurementSite> SiteList, double chi2) {
         // System.out.format("KalTrack constructor chi2=%10.6f\n", chi2);
@@ -308,7 +309,7 @@ public class KalTrack {
         // However, if there was no hit in the first layer, then the scattering should
         // be introduced, TBD
         double XL = 0.; // innerSite.XL / Math.abs(ct);
-        helixAtOrigin = innerSite.aS.propagateRungeKutta(innerSite.m.Bfield, originCov, XL);
+        helixAtOrigin = innerSite.aS.propagateRungeKutta(innerSite.m.Bfield, originCov, XL, adaptiveRK);
         if (Double.isNaN(originCov.M[0][0])) return false;
         SquareMatrix Cinv = originCov.invert();
         for (int i=0; i<5; ++i) {
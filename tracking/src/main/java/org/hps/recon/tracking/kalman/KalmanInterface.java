@@ -16,6 +16,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import hep.physics.matrix.SymmetricMatrix;
 import hep.physics.vec.BasicHep3Matrix;
@@ -63,6 +66,7 @@ public class KalmanInterface {
     public int verboseLevel = 0;
     double svtAngle;
     private HelixPlaneIntersect hpi;
+    private ForkJoinPool patRecPool;
     KalmanParams kPar;
     Random rnd;
     
@@ -74,6 +78,13 @@ public class KalmanInterface {
         return _siHitsLimit;
     }
     
+    // Run the pattern recognition for the top and bottom trackers, and the seeding of the different search strategies,
+    // on the given pool. With a null pool everything runs in the calling thread. The tracks found do not depend on this.
+    // The pool belongs to the caller, which has to shut it down.
+    public void setPatRecPool(ForkJoinPool pool) {
+        patRecPool = pool;
+    }
+    
     // Get the HPS tracker hit corresponding to a Kalman hit
     public TrackerHit getHpsHit(Measurement km) {
         return hitMap.get(km);
@@ -115,6 +126,48 @@ public class KalmanInterface {
         return new Vec(hpsField[0], hpsField[2], -1.0 * hpsField[1]);
     }
 
+    // Same as above, but the field in Kalman coordinates is returned in kalB, which must have length 3.
+    // When the map is a PackedFieldMap nothing at all is allocated, which matters for the Runge-Kutta propagation.
+    static void getField(double[] kalPos, org.lcsim.geometry.FieldMap hpsFm, double[] kalB) {
+        if (FieldMap.class.isInstance(hpsFm)) {
+            Vec B = ((FieldMap) (hpsFm)).getField(new Vec(kalPos[0], kalPos[1], kalPos[2]));
+            kalB[0] = B.v[0];
+            kalB[1] = B.v[1];
+            kalB[2] = B.v[2];
+            return;
+        }
+
+        double hpsX = kalPos[0];
+        double hpsY = -1.0 * kalPos[2];
+        double hpsZ = kalPos[1];
+        if (uniformB) {
+            hpsX = 0.;
+            hpsY = 0.;
+            hpsZ = 505.57;
+        }
+        double bX, bY, bZ;
+        if (hpsFm instanceof PackedFieldMap) {
+            ((PackedFieldMap) hpsFm).getField(hpsX, hpsY, hpsZ, kalB);
+            bX = kalB[0];
+            bY = kalB[1];
+            bZ = kalB[2];
+        } else {
+            double[] hpsPos = { hpsX, hpsY, hpsZ };
+            double[] hpsField = hpsFm.getField(hpsPos);
+            bX = hpsField[0];
+            bY = hpsField[1];
+            bZ = hpsField[2];
+        }
+        if (uniformB) {
+            kalB[0] = 0.;
+            kalB[1] = 0.;
+        } else {
+            kalB[0] = bX;
+            kalB[1] = bZ;
+        }
+        kalB[2] = -1.0 * bY;
+    }
+
     // Set the layers to be used for finding seed tracks (not used by Kalman pattern recognition)
     public void setSeedTrackLayers(List<Integer> input) {
         SeedTrackLayers = input;
@@ -1085,9 +1138,10 @@ public class KalmanInterface {
             }
         }
 
-        int evtNum = event.getEventNumber();
+        final int evtNum = event.getEventNumber();
         
         ArrayList<KalmanPatRecHPS> outList = new ArrayList<KalmanPatRecHPS>(2);
+        ArrayList<ForkJoinTask<KalmanPatRecHPS>> tasks = new ArrayList<ForkJoinTask<KalmanPatRecHPS>>(2);
         for (int topBottom=0; topBottom<2; ++topBottom) {
             ArrayList<SiModule> SiMoccupied = new ArrayList<SiModule>();
             for (SiModule SiM : SiMlist) {
@@ -1107,8 +1161,23 @@ public class KalmanInterface {
                 }
                 System.out.format("KalmanInterface.KalmanPatRec event %d: calling KalmanPatRecHPS for topBottom=%d\n", event.getEventNumber(), topBottom);
             }
-            KalmanPatRecHPS kPat = new KalmanPatRecHPS(SiMoccupied, topBottom, evtNum, kPar, verbose);
-            outList.add(kPat);
+            if (patRecPool == null) {
+                KalmanPatRecHPS kPat = new KalmanPatRecHPS(SiMoccupied, topBottom, evtNum, kPar, verbose);
+                outList.add(kPat);
+            } else {
+                // The top and bottom trackers share no hits, so they can be done at the same time
+                final ArrayList<SiModule> modules = SiMoccupied;
+                final int half = topBottom;
+                tasks.add(patRecPool.submit(new Callable<KalmanPatRecHPS>() {
+                    @Override
+                    public KalmanPatRecHPS call() {
+                        return new KalmanPatRecHPS(modules, half, evtNum, kPar, verbose, patRecPool);
+                    }
+                }));
+            }
+        }
+        for (ForkJoinTask<KalmanPatRecHPS> task : tasks) { // Keep the bottom-top order of the sequential mode
+            outList.add(task.join());
         }
         return outList;
     }
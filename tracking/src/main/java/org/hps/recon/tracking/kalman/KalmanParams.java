@@ -23,6 +23,9 @@ public class KalmanParams {
     int minAxial;
     double mxTdif;
     double seedCompThr;           // Compatibility threshold for seedTracks helix parameters
+    boolean seedIndex;            // Make the seeds using the time-sorted hit index
+    double seedRoadWidth;         // Road width in mm for the axial seed hits, used only with the hit index; <= 0 for no road
+    boolean adaptiveRK;           // Use the adaptive-step Runge-Kutta integration for the propagation to the origin
     ArrayList<int[]> [] lyrList;
     private int[] Swap = {1,0, 3,2, 5,4, 7,6, 9,8, 11,10, 13,12};
     
@@ -68,6 +71,9 @@ public class KalmanParams {
         mxShared = 2;       // Maximum number of shared hits
         mxTdif = 30.;       // Maximum time difference of hits in a track
         seedCompThr = -1;   // Remove SeedTracks with all Helix params within relative seedCompThr . If -1 do not apply duplicate removal
+        seedIndex = false;  // Loop over all hit combinations for the seeds
+        seedRoadWidth = -1.; // No road in the non-bending plane
+        adaptiveRK = false;  // Fixed-step Runge-Kutta integration
         
         // Load the default search strategies
         // Index 0 is for the bottom tracker (+z), 1 for the top (-z)
@@ -266,6 +272,22 @@ public class KalmanParams {
         seedCompThr = seedComp_Thr;
     }
     
+    public void setSeedIndex(boolean useIndex) {
+        System.out.format("KalmanParams: setting the use of the hit index for seeding to %b\n", useIndex);
+        seedIndex = useIndex;
+    }
+    
+    public void setSeedRoadWidth(double width) {
+        if (width > 0.) System.out.format("KalmanParams: setting the seed road width to %8.2f mm\n", width);
+        else System.out.format("KalmanParams: no road will be used for seeding\n");
+        seedRoadWidth = width;
+    }
+    
+    public void setAdaptiveRK(boolean adaptive) {
+        System.out.format("KalmanParams: setting the use of adaptive-step Runge-Kutta integration to %b\n", adaptive);
+        adaptiveRK = adaptive;
+    }
+    
     public void clrStrategies() {
         System.out.format("KalmanParams: clearing all lists of search strategies.\n");
         lyrList[0].clear();
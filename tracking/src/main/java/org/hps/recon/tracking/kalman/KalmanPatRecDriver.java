@@ -1,8 +1,10 @@
 package org.hps.recon.tracking.kalman;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -45,6 +47,7 @@ public class KalmanPatRecDriver extends Driver {
     private KalmanInterface KI;
     private boolean verbose = false;
     private boolean uniformB = false;
+    private boolean adaptiveRK = false;
     private String outputFullTrackCollectionName = "KalmanFullTracks";
     public AIDA aida;
     private int nTracks;
@@ -74,6 +77,13 @@ public class KalmanPatRecDriver extends Driver {
     private int siHitsLimit;           // Maximum number of SiClusters in one event allowed for KF pattern reco 
                                        // (protection against monster events) 
     private double seedCompThr;        // Threshold for seedTrack helix parameters compatibility
+    private boolean seedIndex;         // Make seeds using the time-sorted hit index rather than all hit combinations
+    private double seedRoadWidth;      // Road width in mm for the axial seed hits when using the hit index (0 for no road)
+    private int numPatRecThreads;      // Number of threads for the pattern recognition (0 or 1 to run in the event thread)
+    private ForkJoinPool patRecPool;   // Pool for the pattern recognition, shared by all KalmanInterface instances of this driver
+    private String packedFieldMapFile; // Binary field map file to use in place of the detector field map (optional)
+    private boolean memoryMapFieldMap; // Whether to memory map the binary field map file rather than read it into the heap
+    private double[] packedFieldMapOffsets = {21.17, 0., 457.2}; // Offsets of the field map from the HPS coordinates
     
     public String getOutputFullTrackCollectionName() {
         return outputFullTrackCollectionName;
@@ -92,6 +102,10 @@ public class KalmanPatRecDriver extends Driver {
         System.out.format("KalmanPatRecDriver: the B field will be assumed uniform.\n");
     }
 
+    public void setAdaptiveRK(boolean input) {
+        adaptiveRK = input;
+    }
+
     public void setMaterialManager(MaterialSupervisor mm) {
         _materialManager = mm;
     }
@@ -106,6 +120,30 @@ public class KalmanPatRecDriver extends Driver {
     public void setSeedCompThr(double thr) {
         seedCompThr = thr;
     }
+
+    public void setSeedIndex(boolean input) {
+        seedIndex = input;
+    }
+
+    public void setSeedRoadWidth(double input) {
+        seedRoadWidth = input;
+    }
+
+    public void setNumPatRecThreads(int input) {
+        numPatRecThreads = input;
+    }
+
+    public void setPackedFieldMapFile(String input) {
+        packedFieldMapFile = input;
+    }
+
+    public void setMemoryMapFieldMap(boolean input) {
+        memoryMapFieldMap = input;
+    }
+
+    public void setPackedFieldMapOffsets(double[] input) {
+        packedFieldMapOffsets = input;
+    }
     
     @Override
     public void detectorChanged(Detector det) {
@@ -113,6 +151,14 @@ public class KalmanPatRecDriver extends Driver {
         _materialManager.buildModel(det);
 
         fm = det.getFieldMap();
+        if (packedFieldMapFile != null) {
+            try {
+                fm = new PackedFieldMap(packedFieldMapFile, memoryMapFieldMap, packedFieldMapOffsets[0], packedFieldMapOffsets[1],
+                        packedFieldMapOffsets[2]);
+            } catch (IOException e) {
+                throw new RuntimeException("KalmanPatRecDriver: cannot read the field map file " + packedFieldMapFile, e);
+            }
+        }
 
         detPlanes = new ArrayList<SiStripPlane>();
         List<ScatteringDetectorVolume> materialVols = ((MaterialSupervisor) (_materialManager)).getMaterialVolumes();
@@ -125,6 +171,8 @@ public class KalmanPatRecDriver extends Driver {
         // Instantiate the interface to the Kalman-Filter code and set up the geometry
         KI = new KalmanInterface(verbose, uniformB);
         KI.setSiHitsLimit(siHitsLimit);
+        if (patRecPool == null && numPatRecThreads > 1) patRecPool = new ForkJoinPool(numPatRecThreads);
+        KI.setPatRecPool(patRecPool);
         KI.createSiModules(detPlanes, fm);
         
         decoder = det.getSubdetector("Tracker").getIDDecoder();
@@ -152,6 +200,9 @@ public class KalmanPatRecDriver extends Driver {
         if (maxResidShare != 0.0) kPar.setMxResidShare(maxResidShare);
         if (maxChi2IncShare != 0.0) kPar.setMxChi2double(maxChi2IncShare);
         if (seedCompThr != 0.0) kPar.setSeedCompThr(seedCompThr);
+        if (seedIndex) kPar.setSeedIndex(seedIndex);
+        if (seedRoadWidth != 0.0) kPar.setSeedRoadWidth(seedRoadWidth);
+        if (adaptiveRK) kPar.setAdaptiveRK(adaptiveRK);
         
         // Here we can replace or add search strategies to the pattern recognition (not, as yet, controlled by the steering file)
         // Layers are numbered 0 through 13, and the numbering here corresponds to the bottom tracker. The top-tracker lists are
@@ -351,6 +402,10 @@ public class KalmanPatRecDriver extends Driver {
         System.out.format("KalmanPatRecDrive.endOfData: total pattern recognition execution time=%12.4f ms for %d events and %d tracks.\n", 
                 executionTime, nEvents, nTracks);
         if (kPlot != null) kPlot.output();
+        if (patRecPool != null) {
+            patRecPool.shutdown();
+            patRecPool = null;
+        }
     }
     
     // Methods to set Kalman parameters from within the steering file
@@ -1,6 +1,7 @@
 package org.hps.recon.tracking.kalman;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -8,6 +9,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.hps.util.Pair;
 
@@ -26,6 +30,10 @@ import org.hps.util.Pair;
 //    5. Sort all the track candidates by quality
 //    6. Remove hits from track candidates that are used by better candidates, unless the hits can be shared
 //    7. Track candidates without enough hits remaining get dropped, the others get refit
+// Optionally the seeds of step 2-3 are made for all strategies concurrently on a ForkJoinPool, while the filtering
+// of steps 4-7 stays sequential in strategy order, since it depends on which hits earlier tracks have taken.
+// Optionally step 2 uses a time-sorted index of the hits in each layer (see HitIndex), to visit only hit combinations
+// within the seed time window and, if requested, within a road in the non-bending plane.
 
 class KalmanPatRecHPS {
 
@@ -40,10 +48,17 @@ class KalmanPatRecHPS {
     private boolean verbose;
     private int nModules;
     private KalmanParams kPar;
+    private ForkJoinPool pool;   // Pool for making the seeds of the different strategies concurrently, or null
+    private HitIndex[] hitIndex; // Time-sorted hits of each layer, if the indexed seeding is used
     
     KalmanPatRecHPS(ArrayList<SiModule> data, int topBottom, int eventNumber, KalmanParams kPar, boolean verbose) {
+        this(data, topBottom, eventNumber, kPar, verbose, null);
+    }
+    
+    KalmanPatRecHPS(ArrayList<SiModule> data, int topBottom, int eventNumber, KalmanParams kPar, boolean verbose, ForkJoinPool pool) {
         // topBottom = 0 for the bottom tracker (z>0); 1 for the top tracker (z<0)
         this.topBottom = topBottom;
+        this.pool = pool;
         this.eventNumber = eventNumber;
         this.verbose = verbose;
         this.kPar = kPar;
@@ -74,6 +89,12 @@ class KalmanPatRecHPS {
             }
             if (thisSi.hits.size() > 0) moduleList.get(thisSi.Layer).add(thisSi);
         }
+        if (kPar.seedIndex) {
+            hitIndex = new HitIndex[numLayers];
+            for (int lyr = 0; lyr < numLayers; lyr++) {
+                hitIndex[lyr] = new HitIndex(lyrHits.get(lyr));
+            }
+        }
         if (verbose) {
             for (ArrayList<KalHit> LL : lyrHits) {
                 System.out.format("KalmanPatRecHPS: layer %d hits:", lyrHits.indexOf(LL));
@@ -84,7 +105,7 @@ class KalmanPatRecHPS {
             }
         }
         
-        Plane p0 = new Plane(new Vec(0., 0., 0.), new Vec(0., 1., 0.));
+        final Plane p0 = new Plane(new Vec(0., 0., 0.), new Vec(0., 1., 0.));
 
         if (verbose) {
             System.out.format("Entering KalmanPatRecHPS for event %d, top-bottom=%d with %d modules, for %d trials.\n", eventNumber, topBottom, nModules, KalmanParams.nTries);
@@ -120,7 +141,32 @@ class KalmanPatRecHPS {
                 }
             }
             ArrayList<TrackCandidate> candidateList = new ArrayList<TrackCandidate>();
+            
+            // In the concurrent mode, make the seeds for all the strategies at once. The seeds are then used below
+            // strategy by strategy, in the same order, so the result does not depend on the number of threads.
+            ArrayList<ForkJoinTask<ArrayList<SeedTrack>>> seedTasks = null;
+            if (pool != null) {
+                seedTasks = new ArrayList<ForkJoinTask<ArrayList<SeedTrack>>>(kPar.lyrList[topBottom].size());
+                final boolean[][] taken = takenHits();
+                final int thisTrial = trial;
+                for (final int[] list : kPar.lyrList[topBottom]) {
+                    if (moduleList.get(list[2]).size() == 0) {
+                        seedTasks.add(null);
+                        continue;
+                    }
+                    final double yOrigin = moduleList.get(list[2]).get(0).p.X().v[1];
+                    seedTasks.add(pool.submit(new Callable<ArrayList<SeedTrack>>() {
+                        @Override
+                        public ArrayList<SeedTrack> call() {
+                            if (hitIndex != null) return makeSeedsIndexed(list, yOrigin, thisTrial, p0, taken);
+                            return makeSeeds(list, yOrigin, thisTrial, p0, taken);
+                        }
+                    }));
+                }
+            }
+            int iList = -1;
             for (int[] list : kPar.lyrList[topBottom]) {
+                iList++;
                 int nLyrs = list.length;
                 //PF::This value is OK for 2016, what about 2019 (probably should be 0) ?!!
                 int originLyr = 2;    
@@ -135,79 +181,13 @@ class KalmanPatRecHPS {
                     System.out.format("\n\nKalmanPatRecHPS: layer list=%d %d %d %d %d\n", list[0], list[1], list[2], list[3], list[4]);
                     System.out.format("KalmanPatRecHPS: yOrigin=%10.6f\n", yOrigin);
                 }
-                ArrayList<SeedTrack> seedList = new ArrayList<SeedTrack>();
-                int[] idx = new int[nLyrs];
-                for (idx[0] = 0; idx[0] < lyrHits.get(list[0]).size(); idx[0]++) {
-                    if (lyrHits.get(list[0]).get(idx[0]).hit.tracks.size() > 0) continue; // don't use hits already on tracks, in 2nd iteration
-                    for (idx[1] = 0; idx[1] < lyrHits.get(list[1]).size(); idx[1]++) {
-                        if (lyrHits.get(list[1]).get(idx[1]).hit.tracks.size() > 0) continue;
-                        for (idx[2] = 0; idx[2] < lyrHits.get(list[2]).size(); idx[2]++) {
-                            if (lyrHits.get(list[2]).get(idx[2]).hit.tracks.size() > 0) continue;
-                            for (idx[3] = 0; idx[3] < lyrHits.get(list[3]).size(); idx[3]++) {
-                                if (lyrHits.get(list[3]).get(idx[3]).hit.tracks.size() > 0) continue;
-                                for (idx[4] = 0; idx[4] < lyrHits.get(list[4]).size(); idx[4]++) {
-                                    if (lyrHits.get(list[4]).get(idx[4]).hit.tracks.size() > 0) continue;
-                                    ArrayList<KalHit> hitList = new ArrayList<KalHit>(5);
-                                    for (int i = 0; i < nLyrs; i++) {
-                                        hitList.add(lyrHits.get(list[i]).get(idx[i]));
-                                    }
-                                    // Cut on the seed timing
-                                    double tmin = 1.e10;
-                                    double tmax = -1.e10;
-                                    for (KalHit ht : hitList) {
-                                        tmin = Math.min(tmin, ht.hit.time);
-                                        tmax = Math.max(tmax, ht.hit.time);
-                                    }
-                                    if (tmax - tmin > kPar.mxTdif) {
-                                        //if (verbose) {
-                                        //    System.out.format("KalmanPatRecHPS: skipping seed with tdif=%8.2f\n Hits:  ", tmax-tmin);
-                                        //    for (KalHit ht : hitList) ht.print("short");
-                                        //    System.out.format("\n");
-                                        //}
-                                        continue;
-                                    }
-                                    SeedTrack seed = new SeedTrack(hitList, yOrigin, false);
-                                    if (!seed.success) continue;
-                                    // Cuts on the seed quality
-                                    Vec hp = seed.helixParams();
-                                    Vec pInt = seed.planeIntersection(p0);
-                                    
-                                    if (verbose) {
-                                        System.out.format("Seed %d %d %d %d %d parameters for cuts: K=%10.5f, tanl=%10.5f, dxz=%10.5f   ",
-                                                          idx[0], idx[1], idx[2], idx[3], idx[4], hp.v[2], hp.v[4], pInt.mag());
-                                    }
-                                    
-                                    boolean seed_passes_cuts = false;
-                                    
-                                    if (Math.abs(hp.v[2]) < kPar.kMax[trial]) {
-                                        if (Math.abs(hp.v[4]) < kPar.tanlMax[trial]) {
-                                            if (verbose) 
-                                                System.out.format("intersection with target plane= %9.3f %9.3f %9.3f \n", pInt.v[0],
-                                                                  pInt.v[1], pInt.v[2]);
-                                            if (pInt.mag() < kPar.dRhoMax[trial]) {
-                                                if (Math.abs(pInt.v[2]) < kPar.dzMax[trial]) 
-                                                    seed_passes_cuts = true;
-                                                //seedList.add(seed);
-                                            }//Check intersection with target plane
-                                        }//Check tanLambda
-                                    }//Check curvature
-                                    
-                                    //Good seed; check for duplicates
-                                    if (seed_passes_cuts) {
-                                        boolean reject_seed = false;
-                                        for (SeedTrack sel_seed : seedList) {
-                                            reject_seed = seed.isCompatibleTo(sel_seed,kPar.seedCompThr);
-                                            if (reject_seed)
-                                                break;
-                                        }
-                                        if (!reject_seed)
-                                            seedList.add(seed);
-                                    }
-                                    if (verbose) System.out.format("\n");
-                                }
-                            }
-                        }
-                    }
+                ArrayList<SeedTrack> seedList;
+                if (seedTasks != null) {
+                    seedList = selectSeeds(seedTasks.get(iList).join());
+                } else if (hitIndex != null) {
+                    seedList = selectSeeds(makeSeedsIndexed(list, yOrigin, trial, p0, takenHits()));
+                } else {
+                    seedList = selectSeeds(makeSeeds(list, yOrigin, trial, p0, takenHits()));
                 }
                 
                 if (verbose) {
@@ -1174,6 +1154,222 @@ class KalmanPatRecHPS {
         return;
     }
 
+    // Make all the seeds for one search strategy that pass the seed quality cuts, in the order of the hit indices.
+    // Hits flagged in taken (indexed by layer and then by position in lyrHits) are skipped.
+    // This reads only the hits and the geometry, so the seeds of different strategies can be made concurrently.
+    ArrayList<SeedTrack> makeSeeds(int[] list, double yOrigin, int trial, Plane p0, boolean[][] taken) {
+        ArrayList<SeedTrack> seedList = new ArrayList<SeedTrack>();
+        int nLyrs = list.length;
+        int[] idx = new int[nLyrs];
+        for (idx[0] = 0; idx[0] < lyrHits.get(list[0]).size(); idx[0]++) {
+            if (taken[list[0]][idx[0]]) continue; // don't use hits already on tracks, in 2nd iteration
+            for (idx[1] = 0; idx[1] < lyrHits.get(list[1]).size(); idx[1]++) {
+                if (taken[list[1]][idx[1]]) continue;
+                for (idx[2] = 0; idx[2] < lyrHits.get(list[2]).size(); idx[2]++) {
+                    if (taken[list[2]][idx[2]]) continue;
+                    for (idx[3] = 0; idx[3] < lyrHits.get(list[3]).size(); idx[3]++) {
+                        if (taken[list[3]][idx[3]]) continue;
+                        for (idx[4] = 0; idx[4] < lyrHits.get(list[4]).size(); idx[4]++) {
+                            if (taken[list[4]][idx[4]]) continue;
+                            ArrayList<KalHit> hitList = new ArrayList<KalHit>(5);
+                            for (int i = 0; i < nLyrs; i++) {
+                                hitList.add(lyrHits.get(list[i]).get(idx[i]));
+                            }
+                            // Cut on the seed timing
+                            double tmin = 1.e10;
+                            double tmax = -1.e10;
+                            for (KalHit ht : hitList) {
+                                tmin = Math.min(tmin, ht.hit.time);
+                                tmax = Math.max(tmax, ht.hit.time);
+                            }
+                            if (tmax - tmin > kPar.mxTdif) {
+                                //if (verbose) {
+                                //    System.out.format("KalmanPatRecHPS: skipping seed with tdif=%8.2f\n Hits:  ", tmax-tmin);
+                                //    for (KalHit ht : hitList) ht.print("short");
+                                //    System.out.format("\n");
+                                //}
+                                continue;
+                            }
+                            SeedTrack seed = new SeedTrack(hitList, yOrigin, false);
+                            if (!seed.success) continue;
+                            // Cuts on the seed quality
+                            Vec hp = seed.helixParams();
+                            Vec pInt = seed.planeIntersection(p0);
+                            
+                            if (verbose) {
+                                System.out.format("Seed %d %d %d %d %d parameters for cuts: K=%10.5f, tanl=%10.5f, dxz=%10.5f   ",
+                                                  idx[0], idx[1], idx[2], idx[3], idx[4], hp.v[2], hp.v[4], pInt.mag());
+                            }
+                            
+                            boolean seed_passes_cuts = false;
+                            
+                            if (Math.abs(hp.v[2]) < kPar.kMax[trial]) {
+                                if (Math.abs(hp.v[4]) < kPar.tanlMax[trial]) {
+                                    if (verbose) 
+                                        System.out.format("intersection with target plane= %9.3f %9.3f %9.3f \n", pInt.v[0],
+                                                          pInt.v[1], pInt.v[2]);
+                                    if (pInt.mag() < kPar.dRhoMax[trial]) {
+                                        if (Math.abs(pInt.v[2]) < kPar.dzMax[trial]) 
+                                            seed_passes_cuts = true;
+                                        //seedList.add(seed);
+                                    }//Check intersection with target plane
+                                }//Check tanLambda
+                            }//Check curvature
+                            
+                            if (seed_passes_cuts) seedList.add(seed);
+                            if (verbose) System.out.format("\n");
+                        }
+                    }
+                }
+            }
+        }
+        return seedList;
+    }
+
+    // Same as makeSeeds, but using the time-sorted hit index so that only hit combinations within the seed time window
+    // are visited. If kPar.seedRoadWidth > 0 the two axial hits must in addition lie on a straight line that passes
+    // within dzMax (plus the road width) of the target, which is a looser version of the dz cut on the seed fit.
+    // The seeds are returned in the same order as makeSeeds would give them.
+    ArrayList<SeedTrack> makeSeedsIndexed(int[] list, double yOrigin, int trial, Plane p0, boolean[][] taken) {
+        IndexedSeedSearch search = new IndexedSeedSearch(list, yOrigin, trial, p0, taken);
+        search.addSeeds(0, 1.e10, -1.e10);
+        return search.sortedSeeds();
+    }
+
+    private class IndexedSeedSearch {
+        private int[] list;
+        private double yOrigin;
+        private int trial;
+        private Plane p0;
+        private boolean[][] taken;
+        private int[] idx;
+        private int axial1, axial2;  // Positions in the strategy list of the two axial layers
+        private ArrayList<SeedTrack> seeds;
+        private ArrayList<int[]> seedIdx;
+
+        IndexedSeedSearch(int[] list, double yOrigin, int trial, Plane p0, boolean[][] taken) {
+            this.list = list;
+            this.yOrigin = yOrigin;
+            this.trial = trial;
+            this.p0 = p0;
+            this.taken = taken;
+            idx = new int[list.length];
+            axial1 = -1;
+            axial2 = -1;
+            if (kPar.seedRoadWidth > 0.) {
+                for (int i = 0; i < list.length; i++) {
+                    if (!hitIndex[list[i]].axial) continue;
+                    if (axial1 < 0) axial1 = i;
+                    else axial2 = i;
+                }
+            }
+            seeds = new ArrayList<SeedTrack>();
+            seedIdx = new ArrayList<int[]>();
+        }
+
+        void addSeeds(int level, double tmin, double tmax) {
+            HitIndex index = hitIndex[list[level]];
+            int first = 0;
+            int end = index.size();
+            if (level > 0) { // Only hits that keep the seed within the allowed time range
+                first = index.firstAtOrAfter(tmax - kPar.mxTdif - 1.e-6);
+                end = index.endAtOrBefore(tmin + kPar.mxTdif + 1.e-6);
+            }
+            for (int i = first; i < end; i++) {
+                int ih = index.order[i];
+                if (taken[list[level]][ih]) continue; // don't use hits already on tracks, in 2nd iteration
+                if (level == axial2 && axial1 >= 0) {
+                    HitIndex index1 = hitIndex[list[axial1]];
+                    int ih1 = idx[axial1];
+                    double r = index.yGlobal[ih] / index1.yGlobal[ih1];
+                    double window = kPar.dzMax[trial] * Math.abs(1.0 - r) + kPar.seedRoadWidth;
+                    if (Math.abs(index.zGlobal[ih] - r * index1.zGlobal[ih1]) > window) continue;
+                }
+                idx[level] = ih;
+                double t = index.tSorted[i];
+                if (level < list.length - 1) {
+                    addSeeds(level + 1, Math.min(tmin, t), Math.max(tmax, t));
+                } else {
+                    makeSeed(Math.min(tmin, t), Math.max(tmax, t));
+                }
+            }
+        }
+
+        private void makeSeed(double tmin, double tmax) {
+            if (tmax - tmin > kPar.mxTdif) return; // Same cut on the seed timing as in makeSeeds
+            ArrayList<KalHit> hitList = new ArrayList<KalHit>(list.length);
+            for (int i = 0; i < list.length; i++) {
+                hitList.add(lyrHits.get(list[i]).get(idx[i]));
+            }
+            SeedTrack seed = new SeedTrack(hitList, yOrigin, false);
+            if (!seed.success) return;
+            Vec hp = seed.helixParams();
+            Vec pInt = seed.planeIntersection(p0);
+            boolean seed_passes_cuts = false;  // Written as in makeSeeds, so that NaN values fail the cuts
+            if (Math.abs(hp.v[2]) < kPar.kMax[trial]) {
+                if (Math.abs(hp.v[4]) < kPar.tanlMax[trial]) {
+                    if (pInt.mag() < kPar.dRhoMax[trial]) {
+                        if (Math.abs(pInt.v[2]) < kPar.dzMax[trial]) seed_passes_cuts = true;
+                    }
+                }
+            }
+            if (!seed_passes_cuts) return;
+            seeds.add(seed);
+            seedIdx.add(idx.clone());
+        }
+
+        // The seeds in the order of the nested hit loops of makeSeeds
+        ArrayList<SeedTrack> sortedSeeds() {
+            Integer[] order = new Integer[seeds.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i1, Integer i2) {
+                    int[] a = seedIdx.get(i1);
+                    int[] b = seedIdx.get(i2);
+                    for (int k = 0; k < a.length; k++) {
+                        if (a[k] != b[k]) return a[k] < b[k] ? -1 : 1;
+                    }
+                    return 0;
+                }
+            });
+            ArrayList<SeedTrack> sorted = new ArrayList<SeedTrack>(order.length);
+            for (Integer i : order) sorted.add(seeds.get(i));
+            return sorted;
+        }
+    }
+
+    // Snapshot of which hits are already on stored tracks, for makeSeeds
+    boolean[][] takenHits() {
+        boolean[][] taken = new boolean[lyrHits.size()][];
+        for (int lyr = 0; lyr < lyrHits.size(); lyr++) {
+            ArrayList<KalHit> hits = lyrHits.get(lyr);
+            taken[lyr] = new boolean[hits.size()];
+            for (int i = 0; i < hits.size(); i++) {
+                taken[lyr][i] = hits.get(i).hit.tracks.size() > 0;
+            }
+        }
+        return taken;
+    }
+
+    // Drop seeds using hits that have been taken by tracks since the seeds were made, and seeds compatible
+    // with a seed earlier in the list
+    private ArrayList<SeedTrack> selectSeeds(ArrayList<SeedTrack> seeds) {
+        ArrayList<SeedTrack> seedList = new ArrayList<SeedTrack>(seeds.size());
+        seedLoop: for (SeedTrack seed : seeds) {
+            for (KalHit ht : seed.hits) {
+                if (ht.hit.tracks.size() > 0) continue seedLoop;
+            }
+            boolean reject_seed = false;
+            for (SeedTrack sel_seed : seedList) {
+                reject_seed = seed.isCompatibleTo(sel_seed, kPar.seedCompThr);
+                if (reject_seed) break;
+            }
+            if (!reject_seed) seedList.add(seed);
+        }
+        return seedList;
+    }
+
     boolean storeTrack(int tkID, TrackCandidate tkrCand) {
         //System.out.format("entering storeTrack for track %d, verbose=%b\n", tkID, verbose);
         MeasurementSite firstSite = null;
@@ -1197,6 +1393,7 @@ class KalmanPatRecHPS {
         }
         
         KalTrack tkr = new KalTrack(eventNumber, tkID, tkrCand.hits.size(), tkrCand.sites, tkrCand.chi2s);
+        tkr.adaptiveRK = kPar.adaptiveRK;
         boolean redundant = false;
         for (KalTrack oldTkr : TkrList) {
             if (tkr.equals(oldTkr)) {
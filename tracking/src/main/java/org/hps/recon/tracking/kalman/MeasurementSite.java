@@ -303,13 +303,13 @@ class MeasurementSite {
                     System.out.format("MeasurementSite.makePrediction: intersection with new helix is at phi=%10.7f, z=%10.7f\n", phi2, mPred2);
                 }
 
-                aP.R = m.hits.get(0).sigma * m.hits.get(0).sigma + H.dot(H.leftMultiply(aP.C));
+                aP.R = m.hits.get(0).sigma * m.hits.get(0).sigma + aP.C.quadraticForm(H);
                 if (verbose) {
                     H.print("H in MeasurementSite.makePrediction");
                     Vec H2 = new Vec(5, buildH(pS));
                     H2.print("H made using old statevector");
                     aP.C.print("covariance");
-                    double exRes = m.hits.get(0).sigma * m.hits.get(0).sigma + H2.dot(H2.leftMultiply(pS.C));
+                    double exRes = m.hits.get(0).sigma * m.hits.get(0).sigma + pS.C.quadraticForm(H2);
                     System.out.format(
                             "MeasurementSite.makePrediction: expected residual = %12.5e; from old state vector = %12.5e, sigma=%12.5e\n", aP.R,
                             exRes, m.hits.get(0).sigma);
@@ -402,7 +402,7 @@ class MeasurementSite {
         }
 
         // Calculate the filtered covariance of the residual
-        aF.R = V - H.dot(H.leftMultiply(aF.C));
+        aF.R = V - aF.C.quadraticForm(H);
 
         //System.out.format("MeasurmentSite.filter: R=%10.8f\n", aF.R);
         if (aF.R < 0) {
@@ -540,7 +540,7 @@ class MeasurementSite {
         // non-uniform field this seems to reduce tails significantly in residuals of the last SVT layers.
         H = new Vec(5, buildH(aS));
 
-        this.aS.R = V - this.H.dot(this.H.leftMultiply(this.aS.C));
+        this.aS.R = V - this.aS.C.quadraticForm(this.H);
         if (this.aS.R < 0) {
             if (verbose) System.out.format("MeasurementSite.smooth, measurement covariance %12.4e is negative\n", this.aS.R);
             //aS.print("the smoothed state");
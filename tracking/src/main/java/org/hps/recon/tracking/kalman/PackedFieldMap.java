@@ -0,0 +1,258 @@
+package org.hps.recon.tracking.kalman;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import hep.physics.vec.BasicHep3Vector;
+import hep.physics.vec.Hep3Vector;
+
+import org.lcsim.geometry.field.FieldOverlay;
+
+// Field map stored as a single contiguous float block with the Bx, By, Bz values of each grid node interleaved,
+// so that a trilinear interpolation touches only a few neighboring cache lines instead of chasing pointers through
+// three double[][][] arrays.
+// The map works in HPS global coordinates (mm in, Tesla out), like any other org.lcsim.geometry.FieldMap, and the
+// method getField(x, y, z, out) does the interpolation without allocating anything. See KalmanInterface.getField for
+// the transformation to the Kalman coordinate system.
+// The map can be read from the binary file written by FieldMap.writeBinaryFile, either into the heap or by memory
+// mapping the file directly (in which case the node coordinates stored in the file are simply skipped over), or it
+// can be made by sampling another field map on a regular grid.
+
+public class PackedFieldMap extends FieldOverlay {
+    private static final int HEADER_BYTES = 12;   // nX, nY, nZ at the start of the binary file
+    private static final int FILE_STRIDE = 6;     // x, y, z, Bx, By, Bz per node in the binary file
+    private static final double FILE_SCALE = 1000.; // Same units conversion as FieldMap.getField
+
+    private final int nX, nY, nZ;
+    private final double x0, y0, z0;
+    private final double dX, dY, dZ;
+    private final double xMax, yMax, zMax;
+    private final double xOffset, yOffset, zOffset; // Offset of the map coordinates from the HPS coordinates
+    private final double scale;
+    private final int stride;  // Number of floats between consecutive nodes
+    private final int first;   // Index of Bx of the first node
+    private final int strideZ, strideY, strideX;
+    private final float[] data;       // Heap storage, or null if memory mapped
+    private final FloatBuffer buffer; // Memory-mapped storage, or null if on the heap
+
+    // Read a binary map file in the format written by FieldMap.writeBinaryFile.
+    // The offsets are in HPS coordinates and come from HPSDipoleFieldMap3D.
+    public PackedFieldMap(String fileName, boolean memoryMap, double xOffset, double yOffset, double zOffset) throws IOException {
+        this.xOffset = xOffset;
+        this.yOffset = yOffset;
+        this.zOffset = zOffset;
+        this.scale = FILE_SCALE;
+        if (memoryMap) {
+            RandomAccessFile raf = new RandomAccessFile(fileName, "r");
+            try {
+                FileChannel channel = raf.getChannel();
+                MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                nX = bytes.getInt(0);
+                nY = bytes.getInt(4);
+                nZ = bytes.getInt(8);
+                bytes.position(HEADER_BYTES);
+                buffer = bytes.slice().asFloatBuffer(); // DataOutputStream writes big endian, the default byte order
+            } finally {
+                raf.close(); // The mapping stays valid after the channel is closed
+            }
+            data = null;
+            stride = FILE_STRIDE;
+            first = 3;
+            if (buffer.capacity() < (long) nX * nY * nZ * FILE_STRIDE) {
+                throw new IOException("PackedFieldMap: file " + fileName + " is too short for a " + nX + "x" + nY + "x" + nZ + " map");
+            }
+            x0 = buffer.get(0);
+            y0 = buffer.get(1);
+            z0 = buffer.get(2);
+            dX = buffer.get(nY * nZ * FILE_STRIDE) - x0;
+            dY = buffer.get(nZ * FILE_STRIDE + 1) - y0;
+            dZ = buffer.get(FILE_STRIDE + 2) - z0;
+        } else {
+            DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName)));
+            try {
+                nX = dis.readInt();
+                nY = dis.readInt();
+                nZ = dis.readInt();
+                data = new float[3 * nX * nY * nZ];
+                float[] X = new float[nX];
+                float[] Y = new float[nY];
+                float[] Z = new float[nZ];
+                int idx = 0;
+                for (int ix = 0; ix < nX; ix++) {
+                    for (int iy = 0; iy < nY; iy++) {
+                        for (int iz = 0; iz < nZ; iz++) {
+                            X[ix] = dis.readFloat();
+                            Y[iy] = dis.readFloat();
+                            Z[iz] = dis.readFloat();
+                            data[idx++] = dis.readFloat();
+                            data[idx++] = dis.readFloat();
+                            data[idx++] = dis.readFloat();
+                        }
+                    }
+                }
+                x0 = X[0];
+                y0 = Y[0];
+                z0 = Z[0];
+                dX = X[1] - X[0];
+                dY = Y[1] - Y[0];
+                dZ = Z[1] - Z[0];
+            } finally {
+                dis.close();
+            }
+            buffer = null;
+            stride = 3;
+            first = 0;
+        }
+        strideZ = stride;
+        strideY = nZ * stride;
+        strideX = nY * nZ * stride;
+        xMax = x0 + (nX - 1) * dX;
+        yMax = y0 + (nY - 1) * dY;
+        zMax = z0 + (nZ - 1) * dZ;
+        System.out.format("PackedFieldMap: %s, nX=%d, nY=%d, nZ=%d, dX=%10.7f, dY=%10.7f, dZ=%10.7f, memory mapped=%b\n", fileName, nX, nY,
+                nZ, dX, dY, dZ, memoryMap);
+    }
+
+    // Make a packed copy of an arbitrary field map by sampling it on a regular grid in HPS global coordinates.
+    // The result reproduces the source exactly at the grid nodes, so choose the grid to coincide with the nodes
+    // of the source map if the two are to agree everywhere.
+    public PackedFieldMap(org.lcsim.geometry.FieldMap source, double x0, double y0, double z0, double dX, double dY, double dZ, int nX,
+            int nY, int nZ) {
+        this.nX = nX;
+        this.nY = nY;
+        this.nZ = nZ;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.z0 = z0;
+        this.dX = dX;
+        this.dY = dY;
+        this.dZ = dZ;
+        xOffset = 0.;
+        yOffset = 0.;
+        zOffset = 0.;
+        scale = 1.0;
+        stride = 3;
+        first = 0;
+        strideZ = stride;
+        strideY = nZ * stride;
+        strideX = nY * nZ * stride;
+        xMax = x0 + (nX - 1) * dX;
+        yMax = y0 + (nY - 1) * dY;
+        zMax = z0 + (nZ - 1) * dZ;
+        buffer = null;
+        data = new float[3 * nX * nY * nZ];
+        double[] pos = new double[3];
+        double[] b = new double[3];
+        int idx = 0;
+        for (int ix = 0; ix < nX; ix++) {
+            pos[0] = x0 + ix * dX;
+            for (int iy = 0; iy < nY; iy++) {
+                pos[1] = y0 + iy * dY;
+                for (int iz = 0; iz < nZ; iz++) {
+                    pos[2] = z0 + iz * dZ;
+                    source.getField(pos, b);
+                    data[idx++] = (float) b[0];
+                    data[idx++] = (float) b[1];
+                    data[idx++] = (float) b[2];
+                }
+            }
+        }
+    }
+
+    // Allocation-free interpolation of the field at a point given in HPS global coordinates
+    public void getField(double x, double y, double z, double[] out) {
+        // Converting to magnet coordinates. The clamping at the edges follows FieldMap.getField.
+        double xm = x - xOffset;
+        double ym = y - yOffset;
+        double zm = z - zOffset;
+        int iX = (int) Math.floor((xm - x0) / dX);
+        if (iX < 0) {
+            iX = 0;
+            xm = x0;
+        }
+        if (iX > nX - 2) {
+            iX = nX - 2;
+            if (xm > xMax) xm = xMax;
+        }
+        int iY = (int) Math.floor((ym - y0) / dY);
+        if (iY < 0) {
+            iY = 0;
+            ym = y0;
+        }
+        if (iY > nY - 2) {
+            iY = nY - 2;
+            if (ym > yMax) ym = yMax;
+        }
+        int iZ = (int) Math.floor((zm - z0) / dZ);
+        if (iZ < 0) {
+            iZ = 0;
+            zm = z0;
+        }
+        if (iZ > nZ - 2) iZ = nZ - 2;
+
+        double xd = (xm - (x0 + iX * dX)) / dX;
+        double yd = (ym - (y0 + iY * dY)) / dY;
+        double zd = (zm - (z0 + iZ * dZ)) / dZ;
+        double xc = 1.0 - xd;
+        double yc = 1.0 - yd;
+        double zc = 1.0 - zd;
+
+        int i000 = first + iX * strideX + iY * strideY + iZ * strideZ;
+        int i001 = i000 + strideZ;
+        int i010 = i000 + strideY;
+        int i011 = i010 + strideZ;
+        int i100 = i000 + strideX;
+        int i101 = i100 + strideZ;
+        int i110 = i100 + strideY;
+        int i111 = i110 + strideZ;
+        for (int c = 0; c < 3; c++) {
+            double c00 = node(i000 + c) * xc + node(i100 + c) * xd; // interpolate in x
+            double c01 = node(i001 + c) * xc + node(i101 + c) * xd;
+            double c10 = node(i010 + c) * xc + node(i110 + c) * xd;
+            double c11 = node(i011 + c) * xc + node(i111 + c) * xd;
+            double c0 = c00 * yc + c10 * yd; // interpolate in y
+            double c1 = c01 * yc + c11 * yd;
+            out[c] = (c0 * zc + c1 * zd) * scale; // interpolate in z
+        }
+    }
+
+    private double node(int i) {
+        return data != null ? data[i] : buffer.get(i);
+    }
+
+    @Override
+    public void getField(double[] position, double[] b) {
+        getField(position[0], position[1], position[2], b);
+    }
+
+    @Override
+    public double[] getField(double[] position) {
+        double[] b = new double[3];
+        getField(position[0], position[1], position[2], b);
+        return b;
+    }
+
+    @Override
+    public void getField(Hep3Vector position, BasicHep3Vector field) {
+        double[] b = new double[3];
+        getField(position.x(), position.y(), position.z(), b);
+        field.setV(b[0], b[1], b[2]);
+    }
+
+    @Override
+    public Hep3Vector getField(Hep3Vector position) {
+        double[] b = new double[3];
+        getField(position.x(), position.y(), position.z(), b);
+        return new BasicHep3Vector(b[0], b[1], b[2]);
+    }
+
+    boolean isMemoryMapped() {
+        return buffer != null;
+    }
+}
@@ -3,66 +3,155 @@ package org.hps.recon.tracking.kalman;
 // Propagate a charged particle according to the magnetic field map by 4th order Runge Kutta integration.
 // Note that the coordinate system is the Kalman-Filter-code system, as that is what the field-map routine
 // called here assumes.
+// Besides the classic fixed-step integration there is an adaptive mode using the embedded Dormand-Prince 5(4) pair,
+// which takes long steps where the field varies slowly (e.g. between the SVT layers) and short ones where it does not.
+// All scratch space is allocated once per instance, so neither mode allocates anything per step, and an instance
+// can be reused for many propagations through reset().
 public class RungeKutta4 {
 
     private double h;
     private double h2;
     private double alpha;
     private org.lcsim.geometry.FieldMap fM;
+    private double[] B = new double[3]; // Scratch space for the field lookups
+    private double[] k1 = new double[6];
+    private double[] k2 = new double[6];
+    private double[] k3 = new double[6];
+    private double[] k4 = new double[6];
+    private double[] k5 = new double[6];
+    private double[] k6 = new double[6];
+    private double[] k7 = new double[6];
+    private double[] y = new double[6];  // Intermediate stage point
+    private double[] y5 = new double[6]; // Trial 5th-order result of an adaptive step
+
+    // Adaptive step control
+    private double posTol = 1.0e-4;  // Tolerated local error on the position, in mm
+    private double momTol = 1.0e-7;  // Tolerated local error on the momentum, relative to its magnitude
+    private double hMin = 0.01;      // Smallest step in mm
+    private double hMax = 200.;      // Largest step in mm
+
+    // Dormand-Prince 5(4) coefficients
+    private static final double a21 = 1. / 5.;
+    private static final double a31 = 3. / 40., a32 = 9. / 40.;
+    private static final double a41 = 44. / 45., a42 = -56. / 15., a43 = 32. / 9.;
+    private static final double a51 = 19372. / 6561., a52 = -25360. / 2187., a53 = 64448. / 6561., a54 = -212. / 729.;
+    private static final double a61 = 9017. / 3168., a62 = -355. / 33., a63 = 46732. / 5247., a64 = 49. / 176., a65 = -5103. / 18656.;
+    private static final double b1 = 35. / 384., b3 = 500. / 1113., b4 = 125. / 192., b5 = -2187. / 6784., b6 = 11. / 84.;
+    private static final double e1 = 71. / 57600., e3 = -71. / 16695., e4 = 71. / 1920., e5 = -17253. / 339200., e6 = 22. / 525., e7 = -1. / 40.;
 
     public RungeKutta4(double Q, double dx, org.lcsim.geometry.FieldMap fM) {
+        reset(Q, dx, fM);
+    }
+
+    // Reconfigure this integrator for a new propagation, keeping the scratch space
+    void reset(double Q, double dx, org.lcsim.geometry.FieldMap fM) {
         alpha = Q * 2.99792458e-4; // Q is the charge in units of the proton charge
-        h = dx; // Step size in mm
+        h = dx; // Step size in mm (the initial step size in the adaptive mode)
         h2 = h / 2.0;
         this.fM = fM; // Magnetic field map
     }
 
+    void setTolerance(double posTol, double momTol) {
+        this.posTol = posTol;
+        this.momTol = momTol;
+    }
+
+    void setStepLimits(double hMin, double hMax) {
+        this.hMin = hMin;
+        this.hMax = hMax;
+    }
+
     double[] integrate(Vec r0, Vec p0, double s) {
         // r0 is the initial point in mm
         // p0 is the initial momentum in GeV/c
         // s is the distance to propagate (approximate to distance dx)
         double[] r = { r0.v[0], r0.v[1], r0.v[2], p0.v[0], p0.v[1], p0.v[2] };
-        double[] k1 = new double[6];
-        double[] k2 = new double[6];
-        double[] k3 = new double[6];
-        double[] k4 = new double[6];
+        integrate(r, s);
+        return r;
+    }
+
+    // Fixed-step integration in place. r holds the position (mm) followed by the momentum (GeV/c).
+    void integrate(double[] r, double s) {
         int nStep = (int) (s / h) + 1;
         for (int step = 0; step < nStep; step++) {
-            Vec ri = new Vec(r[0], r[1], r[2]);
-            double[] pi = { r[3], r[4], r[5] };
-            k1 = f(ri, pi);
-            Vec r1 = new Vec(r[0] + h2 * k1[0], r[1] + h2 * k1[1], r[2] + h2 * k1[2]);
-            double[] p1 = { r[3] + h2 * k1[3], r[4] + h2 * k1[4], r[5] + h2 * k1[5] };
-            k2 = f(r1, p1);
-            Vec r2 = new Vec(r[0] + h2 * k2[0], r[1] + h2 * k2[1], r[2] + h2 * k2[1]);
-            double[] p2 = { r[3] + h2 * k2[3], r[4] + h2 * k2[4], r[5] + h2 * k2[5] };
-            k3 = f(r2, p2);
-            Vec r3 = new Vec(r[0] + h * k3[0], r[1] + h * k3[1], r[2] + h * k3[2]);
-            double[] p3 = { r[3] + h * k3[3], r[4] + h * k3[4], r[5] + h * k3[5] };
-            k4 = f(r3, p3);
+            f(r, k1);
+            for (int i = 0; i < 6; i++) { y[i] = r[i] + h2 * k1[i]; }
+            f(y, k2);
+            for (int i = 0; i < 6; i++) { y[i] = r[i] + h2 * k2[i]; }
+            f(y, k3);
+            for (int i = 0; i < 6; i++) { y[i] = r[i] + h * k3[i]; }
+            f(y, k4);
             for (int i = 0; i < 6; i++) { r[i] = r[i] + h * (k1[i] / 6. + k2[i] / 3. + k3[i] / 3. + k4[i] / 6.); }
         }
+    }
+
+    double[] integrateAdaptive(Vec r0, Vec p0, double s) {
+        double[] r = { r0.v[0], r0.v[1], r0.v[2], p0.v[0], p0.v[1], p0.v[2] };
+        integrateAdaptive(r, s);
         return r;
     }
 
-    private double[] f(Vec x, double[] p) { // Return all the derivatives
-        Vec B = KalmanInterface.getField(x, fM);  // This field routine assumes the Kalman-Filter coordinate system.
-        double[] d = new double[6];
-        double pmag = Math.sqrt(p[0] * p[0] + p[1] * p[1] + p[2] * p[2]);
+    // Adaptive-step integration in place over exactly the path length s, with the step size controlled by the
+    // difference between the embedded 5th and 4th order solutions. The last derivative of an accepted step is
+    // the first one of the next step (FSAL), so an accepted step costs 6 field evaluations.
+    void integrateAdaptive(double[] r, double s) {
+        double hStep = Math.min(Math.max(h, hMin), hMax);
+        double sDone = 0.;
+        f(r, k1);
+        while (s - sDone > 1.0e-9) {
+            boolean last = false;
+            if (hStep >= s - sDone) {
+                hStep = s - sDone;
+                last = true;
+            }
+            for (int i = 0; i < 6; i++) { y[i] = r[i] + hStep * a21 * k1[i]; }
+            f(y, k2);
+            for (int i = 0; i < 6; i++) { y[i] = r[i] + hStep * (a31 * k1[i] + a32 * k2[i]); }
+            f(y, k3);
+            for (int i = 0; i < 6; i++) { y[i] = r[i] + hStep * (a41 * k1[i] + a42 * k2[i] + a43 * k3[i]); }
+            f(y, k4);
+            for (int i = 0; i < 6; i++) { y[i] = r[i] + hStep * (a51 * k1[i] + a52 * k2[i] + a53 * k3[i] + a54 * k4[i]); }
+            f(y, k5);
+            for (int i = 0; i < 6; i++) {
+                y[i] = r[i] + hStep * (a61 * k1[i] + a62 * k2[i] + a63 * k3[i] + a64 * k4[i] + a65 * k5[i]);
+            }
+            f(y, k6);
+            for (int i = 0; i < 6; i++) { y5[i] = r[i] + hStep * (b1 * k1[i] + b3 * k3[i] + b4 * k4[i] + b5 * k5[i] + b6 * k6[i]); }
+            f(y5, k7);
+
+            // Error estimate, normalized to the tolerances
+            double pmag = Math.sqrt(y5[3] * y5[3] + y5[4] * y5[4] + y5[5] * y5[5]);
+            double err = 0.;
+            for (int i = 0; i < 6; i++) {
+                double ei = hStep * Math.abs(e1 * k1[i] + e3 * k3[i] + e4 * k4[i] + e5 * k5[i] + e6 * k6[i] + e7 * k7[i]);
+                ei /= (i < 3) ? posTol : momTol * pmag;
+                if (ei > err) err = ei;
+            }
+
+            if (err <= 1.0 || hStep <= hMin) { // Accept the step
+                for (int i = 0; i < 6; i++) {
+                    r[i] = y5[i];
+                    k1[i] = k7[i];
+                }
+                sDone += hStep;
+                if (last) break;
+            }
+            double factor = (err == 0.) ? 5.0 : 0.9 * Math.pow(err, -0.2);
+            hStep *= Math.min(5.0, Math.max(0.2, factor));
+            hStep = Math.min(Math.max(hStep, hMin), hMax);
+        }
+    }
+
+    private void f(double[] x, double[] d) { // Return all the derivatives in d, given position and momentum in x
+        KalmanInterface.getField(x, fM, B); // This field routine assumes the Kalman-Filter coordinate system.
+        double pmag = Math.sqrt(x[3] * x[3] + x[4] * x[4] + x[5] * x[5]);
         // System.out.format("P magnitude = %10.7f GeV\n", pmag);
-        d[0] = p[0] / pmag; // dx/ds 
-        d[1] = p[1] / pmag;
-        d[2] = p[2] / pmag;
-        d[3] = alpha * (d[1] * B.v[2] - d[2] * B.v[1]); // dp/ds
-        d[4] = alpha * (d[2] * B.v[0] - d[0] * B.v[2]);
-        d[5] = alpha * (d[0] * B.v[1] - d[1] * B.v[0]);
-        // double[] dd = new double[6];
-        // for (int i = 0; i < 5; i++) {
-        // dd[i] = d[i] * h;
-        // }
-        // System.out.format(" dr=%10.7f %10.7f %10.7f, dp=%10.7f %10.7f %10.7f\n",
-        // dd[0], dd[1], dd[2], dd[3], dd[4], dd[5]);
-        return d;
+        d[0] = x[3] / pmag; // dx/ds
+        d[1] = x[4] / pmag;
+        d[2] = x[5] / pmag;
+        d[3] = alpha * (d[1] * B[2] - d[2] * B[1]); // dp/ds
+        d[4] = alpha * (d[2] * B[0] - d[0] * B[2]);
+        d[5] = alpha * (d[0] * B[1] - d[1] * B[0]);
     }
 
 }
@@ -26,8 +26,8 @@ class SeedTrack {
     private double Bavg; // Average B field
     double yOrigin;
     double chi2;
-    private static Plane p0; // x,z plane at y=0
-    private static double minDistXZ; // Minimum difference in distance to origin for it to be used in sorting
+    private static final Plane p0 = new Plane(new Vec(0., 0., 0.), new Vec(0., 1., 0.)); // x,z plane at y=0
+    private static final double minDistXZ = 0.25; // Minimum difference in distance to origin for it to be used in sorting
     int Nbending;
     int Nnonbending;
 
@@ -79,8 +79,6 @@ class SeedTrack {
 
     private void SeedTracker(ArrayList<KalHit> hitList, double yOrigin, boolean verbose) {
 
-        minDistXZ = 0.25;
-        p0 = new Plane(new Vec(0., 0., 0.), new Vec(0., 1., 0.));
         this.verbose = verbose;
         this.yOrigin = yOrigin;
         hits = new ArrayList<KalHit>(hitList.size());
@@ -1,5 +1,8 @@
 package org.hps.recon.tracking.kalman;
 
+import org.hps.recon.tracking.matrix.Mat3;
+import org.hps.recon.tracking.matrix.SmallMatrix;
+
 class SquareMatrix { // Simple matrix package strictly for N by N matrices needed by the Kalman fitter
     double[][] M = null;
     int N;
@@ -83,18 +86,30 @@ class SquareMatrix { // Simple matrix package strictly for N by N matrices neede
         return Mt;
     }
 
-    SquareMatrix similarity(SquareMatrix F) { // F-transpose * M * F
+    SquareMatrix similarity(SquareMatrix F) { // F * M * F-transpose
+        int NN = N * N;
+        double[] f = new double[NN];
+        double[] c = new double[NN];
+        double[] cp = new double[NN];
+        double[] work = new double[NN];
+        SmallMatrix.pack(F.M, N, f);
+        SmallMatrix.pack(M, N, c);
+        SmallMatrix.similarity(N, f, c, cp, work);
         SquareMatrix Mp = new SquareMatrix(N);
+        SmallMatrix.unpack(cp, N, Mp.M);
+        return Mp;
+    }
+
+    double quadraticForm(Vec h) { // h-transpose * M * h, without making the intermediate vector
+        double q = 0.;
         for (int i = 0; i < N; i++) {
+            double s = 0.;
             for (int j = 0; j < N; j++) {
-                for (int m = 0; m < N; m++) {
-                    for (int n = 0; n < N; n++) {
-                        Mp.M[i][j] += F.M[i][m] * M[m][n] * F.M[j][n];
-                    }
-                }
+                s += M[i][j] * h.v[j];
             }
+            q += h.v[i] * s;
         }
-        return Mp;
+        return q;
     }
 
     SquareMatrix rotate(RotMatrix R) { // Similarity transform by rotation matrix F
@@ -102,16 +117,14 @@ class SquareMatrix { // Simple matrix package strictly for N by N matrices neede
             System.out.format("SquareMatrix.rotate: incorrect dimension %d\n", N);
             return null;
         }
+        double[] r = new double[9];
+        double[] c = new double[9];
+        double[] cp = new double[9];
+        SmallMatrix.pack(R.M, 3, r);
+        SmallMatrix.pack(M, 3, c);
+        Mat3.similarity(r, c, cp);
         SquareMatrix Mp = new SquareMatrix(N);
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                for (int m = 0; m < N; m++) {
-                    for (int n = 0; n < N; n++) {
-                        Mp.M[i][j] += R.M[i][m] * M[m][n] * R.M[j][n];
-                    }
-                }
-            }
-        }
+        SmallMatrix.unpack(cp, 3, Mp.M);
         return Mp;
     }
 
@@ -120,16 +133,14 @@ class SquareMatrix { // Simple matrix package strictly for N by N matrices neede
             System.out.format("SquareMatrix.inverseRotate: incorrect dimension %d\n", N);
             return null;
         }
+        double[] r = new double[9];
+        double[] c = new double[9];
+        double[] cp = new double[9];
+        SmallMatrix.pack(R.M, 3, r);
+        SmallMatrix.pack(M, 3, c);
+        Mat3.similarityTransposed(r, c, cp);
         SquareMatrix Mp = new SquareMatrix(N);
-        for (int i = 0; i < N; i++) {
-            for (int j = 0; j < N; j++) {
-                for (int m = 0; m < N; m++) {
-                    for (int n = 0; n < N; n++) {
-                        Mp.M[i][j] += R.M[m][i] * M[m][n] * R.M[n][j];
-                    }
-                }
-            }
-        }
+        SmallMatrix.unpack(cp, 3, Mp.M);
         return Mp;
     }
 
@@ -1,5 +1,8 @@
 package org.hps.recon.tracking.kalman;
 
+import org.hps.recon.tracking.matrix.Mat5;
+import org.hps.recon.tracking.matrix.SmallMatrix;
+
 //State vector (projected, filtered, or smoothed) for the Kalman filter
 class StateVector {
 
@@ -20,6 +23,24 @@ class StateVector {
     double alpha; // Conversion from 1/K to radius R
     private HelixPlaneIntersect hpi;
     private double c;
+    private Workspace ws; // Scratch arrays for filter, inverseFilter and smooth, shared by all copies of this state vector
+
+    // The copies of a state vector all belong to the same track fit and so are used in one thread at a time
+    private static class Workspace {
+        final double[] ch = new double[5];
+        final double[] v5 = new double[5];
+        final double[] c = new double[25];
+        final double[] f = new double[25];
+        final double[] cnInv = new double[25];
+        final double[] A = new double[25];
+        final double[] w1 = new double[25];
+        final double[] w2 = new double[25];
+    }
+
+    private Workspace workspace() {
+        if (ws == null) ws = new Workspace();
+        return ws;
+    }
 
     // Constructor for the initial state vector used to start the Kalman filter.
     StateVector(int site, Vec helixParams, SquareMatrix Cov, Vec pivot, double B, Vec tB, Vec origin, boolean verbose) {
@@ -82,6 +103,7 @@ class StateVector {
         q.R = R;
         q.r = r;
         q.hpi = new HelixPlaneIntersect();
+        q.ws = workspace();
         return q;
     }
 
@@ -255,23 +277,35 @@ class StateVector {
         StateVector aPrime = copy();
         aPrime.kUp = kLow;
 
-        double denom = V + H.dot(H.leftMultiply(C));
-        Vec K = H.leftMultiply(C).scale(1.0 / denom); // Kalman gain matrix
+        double[] ch = workspace().ch;
+        for (int i = 0; i < 5; i++) { // C*H, which is also transpose(H)*C, since C is symmetric
+            double[] Ci = C.M[i];
+            ch[i] = Ci[0] * H.v[0] + Ci[1] * H.v[1] + Ci[2] * H.v[2] + Ci[3] * H.v[3] + Ci[4] * H.v[4];
+        }
+        double hch = 0.;
+        for (int i = 0; i < 5; i++) hch += ch[i] * H.v[i];
+        double denom = V + hch;
+        double[] K = ws.v5; // Kalman gain matrix
+        double g = 1.0 / denom;
+        for (int i = 0; i < 5; i++) K[i] = ch[i] * g;
         if (verbose) {
             System.out.format("StateVector.filter: kLow=%d\n", kLow);
             System.out.format("StateVector.filter: V=%12.4e,  denom=%12.4e\n", V, denom);
-            K.print("Kalman gain matrix in StateVector.filter");
+            new Vec(5, K).print("Kalman gain matrix in StateVector.filter");
             H.print("matrix H in StateVector.filter");
-            System.out.format("StateVector.filter: k dot H = %10.7f\n", K.dot(H));
+            System.out.format("StateVector.filter: k dot H = %10.7f\n", new Vec(5, K).dot(H));
             // Alternative calculation of K (sanity check that it gives the same result):
             SquareMatrix D = C.invert().sum(H.scale(1.0 / V).product(H));
             Vec Kalt = H.scale(1.0 / V).leftMultiply(D.invert());
             Kalt.print("alternate Kalman gain matrix");
         }
 
-        aPrime.a = a.sum(K.scale(r));
-        SquareMatrix U = new SquareMatrix(5, 1.0);
-        aPrime.C = (U.dif(K.product(H))).multiply(C);
+        for (int i = 0; i < 5; i++) { // The copy already holds the predicted helix and covariance
+            aPrime.a.v[i] = a.v[i] + K[i] * r;
+            double[] Ci = C.M[i];
+            double[] CPi = aPrime.C.M[i];
+            for (int j = 0; j < 5; j++) CPi[j] = Ci[j] - K[i] * ch[j]; // (1 - K*H)*C
+        }
 
         if (verbose) {
             aPrime.C.print("filtered covariance (gain-matrix formalism) in StateVector.filter");
@@ -293,17 +327,28 @@ class StateVector {
     // Modify the state vector by removing the hit information
     void inverseFilter(Vec H, double V) {
 
-        double denom = -V + H.dot(H.leftMultiply(C));
-        Vec Kstar = H.leftMultiply(C).scale(1.0 / denom); // Kalman gain matrix
+        double[] ch = workspace().ch;
+        for (int i = 0; i < 5; i++) {
+            double[] Ci = C.M[i];
+            ch[i] = Ci[0] * H.v[0] + Ci[1] * H.v[1] + Ci[2] * H.v[2] + Ci[3] * H.v[3] + Ci[4] * H.v[4];
+        }
+        double hch = 0.;
+        for (int i = 0; i < 5; i++) hch += ch[i] * H.v[i];
+        double denom = -V + hch;
+        double[] Kstar = ws.v5; // Kalman gain matrix
+        double g = 1.0 / denom;
+        for (int i = 0; i < 5; i++) Kstar[i] = ch[i] * g;
         if (verbose) {
             System.out.format("StateVector.inverseFilter: V=%12.4e,  denom=%12.4e\n", V, denom);
-            Kstar.print("Kalman gain matrix in StateVector.inverseFilter");
+            new Vec(5, Kstar).print("Kalman gain matrix in StateVector.inverseFilter");
             H.print("matrix H in StateVector.inverseFilter");
         }
 
-        a = a.sum(Kstar.scale(r));
-        SquareMatrix U = new SquareMatrix(5, 1.0);
-        C = (U.dif(Kstar.product(H))).multiply(C);
+        for (int i = 0; i < 5; i++) { // Each state vector has its own covariance matrix (see copy), so update it in place
+            a.v[i] = a.v[i] + Kstar[i] * r;
+            double[] Ci = C.M[i];
+            for (int j = 0; j < 5; j++) Ci[j] = Ci[j] - Kstar[i] * ch[j];
+        }
     }
 
     // Create a smoothed state vector from the filtered state vector
@@ -314,14 +359,31 @@ class StateVector {
         }
         StateVector sS = this.copy();
 
-        SquareMatrix CnInv = snP.C.invert();
-        SquareMatrix A = (C.multiply(sS.F.transpose())).multiply(CnInv);
-
-        Vec diff = snS.a.dif(snP.a);
-        sS.a = a.sum(diff.leftMultiply(A));
-
-        SquareMatrix Cdiff = snS.C.dif(snP.C);
-        sS.C = C.sum(Cdiff.similarity(A));
+        Workspace w = workspace();
+        SmallMatrix.pack(snP.C.M, 5, w.w1);
+        if (!SmallMatrix.invert(5, w.w1, w.cnInv, w.w2)) {
+            SmallMatrix.pack(snP.C.invert().M, 5, w.cnInv); // Singular; keep the old behavior of the Numerical Recipes inversion
+        }
+        SmallMatrix.pack(C.M, 5, w.c);
+        SmallMatrix.pack(sS.F.M, 5, w.f);
+        Mat5.multiplyTransposed(w.c, w.f, w.w1);
+        Mat5.multiply(w.w1, w.cnInv, w.A); // A = C * F-transpose * Cn-inverse
+
+        for (int i = 0; i < 5; i++) { w.v5[i] = snS.a.v[i] - snP.a.v[i]; }
+        Mat5.multiplyVector(w.A, w.v5, w.ch);
+        for (int i = 0; i < 5; i++) { sS.a.v[i] = a.v[i] + w.ch[i]; }
+
+        for (int i = 0; i < 5; i++) {
+            double[] snSi = snS.C.M[i];
+            double[] snPi = snP.C.M[i];
+            for (int j = 0; j < 5; j++) w.w1[5 * i + j] = snSi[j] - snPi[j];
+        }
+        Mat5.similarity(w.A, w.w1, w.f);
+        for (int i = 0; i < 5; i++) {
+            double[] Ci = C.M[i];
+            double[] Si = sS.C.M[i];
+            for (int j = 0; j < 5; j++) Si[j] = Ci[j] + w.f[5 * i + j];
+        }
 
         return sS;
     }
@@ -451,6 +513,11 @@ class StateVector {
 
     // Propagate a helix by Runge-Kutta itegration to an x,z plane containing the origin.
     Vec propagateRungeKutta(org.lcsim.geometry.FieldMap fM, SquareMatrix newCovariance, double XL) {
+        return propagateRungeKutta(fM, newCovariance, XL, false);
+    }
+    
+    // Same, optionally with the adaptive-step Runge-Kutta integration
+    Vec propagateRungeKutta(org.lcsim.geometry.FieldMap fM, SquareMatrix newCovariance, double XL, boolean adaptiveRK) {
 
         //boolean verbose = false; // !!!!!!!!!!
 
@@ -479,7 +546,7 @@ class StateVector {
         double Q = Math.signum(a.v[2]);
 
         Vec pInt = new Vec(3);
-        Vec Xplane = hpi.rkIntersect(originPlane, X0origin, P0origin, Q, fM, pInt); // RK propagation to the origin plane
+        Vec Xplane = hpi.rkIntersect(originPlane, X0origin, P0origin, Q, fM, pInt, adaptiveRK); // RK propagation to the origin plane
         Vec helixAtIntersect = pTOa(pInt, 0., 0., Q);
         Vec helixAtOrigin = pivotTransform(new Vec(0., 0., 0.), helixAtIntersect, Xplane, alpha, 0.);
         if (verbose) {
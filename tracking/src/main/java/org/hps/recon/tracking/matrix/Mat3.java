@@ -0,0 +1,116 @@
+package org.hps.recon.tracking.matrix;
+
+/**
+ * Fully unrolled operations on 3x3 matrices (rotations and position covariances) stored as flat, row-major double
+ * arrays of length 9. As in {@link SmallMatrix}, nothing is allocated and the output must not be one of the inputs.
+ */
+public final class Mat3 {
+
+    private Mat3() {
+    }
+
+    /**
+     * out = a * b
+     */
+    public static void multiply(double[] a, double[] b, double[] out) {
+        out[0] = a[0] * b[0] + a[1] * b[3] + a[2] * b[6];
+        out[1] = a[0] * b[1] + a[1] * b[4] + a[2] * b[7];
+        out[2] = a[0] * b[2] + a[1] * b[5] + a[2] * b[8];
+        out[3] = a[3] * b[0] + a[4] * b[3] + a[5] * b[6];
+        out[4] = a[3] * b[1] + a[4] * b[4] + a[5] * b[7];
+        out[5] = a[3] * b[2] + a[4] * b[5] + a[5] * b[8];
+        out[6] = a[6] * b[0] + a[7] * b[3] + a[8] * b[6];
+        out[7] = a[6] * b[1] + a[7] * b[4] + a[8] * b[7];
+        out[8] = a[6] * b[2] + a[7] * b[5] + a[8] * b[8];
+    }
+
+    /**
+     * Matrix times column vector, out = a * x
+     */
+    public static void multiplyVector(double[] a, double[] x, double[] out) {
+        out[0] = a[0] * x[0] + a[1] * x[1] + a[2] * x[2];
+        out[1] = a[3] * x[0] + a[4] * x[1] + a[5] * x[2];
+        out[2] = a[6] * x[0] + a[7] * x[1] + a[8] * x[2];
+    }
+
+    /**
+     * @return the determinant of a
+     */
+    public static double determinant(double[] a) {
+        return a[0] * (a[4] * a[8] - a[5] * a[7]) - a[1] * (a[3] * a[8] - a[5] * a[6]) + a[2] * (a[3] * a[7] - a[4] * a[6]);
+    }
+
+    /**
+     * Invert by cofactors.
+     *
+     * @return false if the matrix is singular, in which case the output is not touched
+     */
+    public static boolean invert(double[] a, double[] out) {
+        double c00 = a[4] * a[8] - a[5] * a[7];
+        double c01 = a[5] * a[6] - a[3] * a[8];
+        double c02 = a[3] * a[7] - a[4] * a[6];
+        double det = a[0] * c00 + a[1] * c01 + a[2] * c02;
+        if (det == 0.) {
+            return false;
+        }
+        double d = 1.0 / det;
+        out[0] = c00 * d;
+        out[1] = (a[2] * a[7] - a[1] * a[8]) * d;
+        out[2] = (a[1] * a[5] - a[2] * a[4]) * d;
+        out[3] = c01 * d;
+        out[4] = (a[0] * a[8] - a[2] * a[6]) * d;
+        out[5] = (a[2] * a[3] - a[0] * a[5]) * d;
+        out[6] = c02 * d;
+        out[7] = (a[1] * a[6] - a[0] * a[7]) * d;
+        out[8] = (a[0] * a[4] - a[1] * a[3]) * d;
+        return true;
+    }
+
+    /**
+     * Similarity transform out = r * c * transpose(r)
+     */
+    public static void similarity(double[] r, double[] c, double[] out) {
+        double w0 = r[0] * c[0] + r[1] * c[3] + r[2] * c[6];
+        double w1 = r[0] * c[1] + r[1] * c[4] + r[2] * c[7];
+        double w2 = r[0] * c[2] + r[1] * c[5] + r[2] * c[8];
+        double w3 = r[3] * c[0] + r[4] * c[3] + r[5] * c[6];
+        double w4 = r[3] * c[1] + r[4] * c[4] + r[5] * c[7];
+        double w5 = r[3] * c[2] + r[4] * c[5] + r[5] * c[8];
+        double w6 = r[6] * c[0] + r[7] * c[3] + r[8] * c[6];
+        double w7 = r[6] * c[1] + r[7] * c[4] + r[8] * c[7];
+        double w8 = r[6] * c[2] + r[7] * c[5] + r[8] * c[8];
+        out[0] = w0 * r[0] + w1 * r[1] + w2 * r[2];
+        out[1] = w0 * r[3] + w1 * r[4] + w2 * r[5];
+        out[2] = w0 * r[6] + w1 * r[7] + w2 * r[8];
+        out[3] = w3 * r[0] + w4 * r[1] + w5 * r[2];
+        out[4] = w3 * r[3] + w4 * r[4] + w5 * r[5];
+        out[5] = w3 * r[6] + w4 * r[7] + w5 * r[8];
+        out[6] = w6 * r[0] + w7 * r[1] + w8 * r[2];
+        out[7] = w6 * r[3] + w7 * r[4] + w8 * r[5];
+        out[8] = w6 * r[6] + w7 * r[7] + w8 * r[8];
+    }
+
+    /**
+     * Similarity transform by the transpose, out = transpose(r) * c * r
+     */
+    public static void similarityTransposed(double[] r, double[] c, double[] out) {
+        double w0 = r[0] * c[0] + r[3] * c[3] + r[6] * c[6];
+        double w1 = r[0] * c[1] + r[3] * c[4] + r[6] * c[7];
+        double w2 = r[0] * c[2] + r[3] * c[5] + r[6] * c[8];
+        double w3 = r[1] * c[0] + r[4] * c[3] + r[7] * c[6];
+        double w4 = r[1] * c[1] + r[4] * c[4] + r[7] * c[7];
+        double w5 = r[1] * c[2] + r[4] * c[5] + r[7] * c[8];
+        double w6 = r[2] * c[0] + r[5] * c[3] + r[8] * c[6];
+        double w7 = r[2] * c[1] + r[5] * c[4] + r[8] * c[7];
+        double w8 = r[2] * c[2] + r[5] * c[5] + r[8] * c[8];
+        out[0] = w0 * r[0] + w1 * r[3] + w2 * r[6];
+        out[1] = w0 * r[1] + w1 * r[4] + w2 * r[7];
+        out[2] = w0 * r[2] + w1 * r[5] + w2 * r[8];
+        out[3] = w3 * r[0] + w4 * r[3] + w5 * r[6];
+        out[4] = w3 * r[1] + w4 * r[4] + w5 * r[7];
+        out[5] = w3 * r[2] + w4 * r[5] + w5 * r[8];
+        out[6] = w6 * r[0] + w7 * r[3] + w8 * r[6];
+        out[7] = w6 * r[1] + w7 * r[4] + w8 * r[7];
+        out[8] = w6 * r[2] + w7 * r[5] + w8 * r[8];
+    }
+}
@@ -0,0 +1,141 @@
+package org.hps.recon.tracking.matrix;
+
+/**
+ * Fully unrolled operations on 5x5 matrices (helix covariances and propagators) stored as flat, row-major double
+ * arrays of length 25. As in {@link SmallMatrix}, nothing is allocated and the output must not be one of the inputs.
+ * The sums are done in the same order as in the {@link SmallMatrix} loops, so the results are identical.
+ */
+public final class Mat5 {
+
+    private Mat5() {
+    }
+
+    /**
+     * out = a * b
+     */
+    public static void multiply(double[] a, double[] b, double[] out) {
+        out[0] = a[0] * b[0] + a[1] * b[5] + a[2] * b[10] + a[3] * b[15] + a[4] * b[20];
+        out[1] = a[0] * b[1] + a[1] * b[6] + a[2] * b[11] + a[3] * b[16] + a[4] * b[21];
+        out[2] = a[0] * b[2] + a[1] * b[7] + a[2] * b[12] + a[3] * b[17] + a[4] * b[22];
+        out[3] = a[0] * b[3] + a[1] * b[8] + a[2] * b[13] + a[3] * b[18] + a[4] * b[23];
+        out[4] = a[0] * b[4] + a[1] * b[9] + a[2] * b[14] + a[3] * b[19] + a[4] * b[24];
+        out[5] = a[5] * b[0] + a[6] * b[5] + a[7] * b[10] + a[8] * b[15] + a[9] * b[20];
+        out[6] = a[5] * b[1] + a[6] * b[6] + a[7] * b[11] + a[8] * b[16] + a[9] * b[21];
+        out[7] = a[5] * b[2] + a[6] * b[7] + a[7] * b[12] + a[8] * b[17] + a[9] * b[22];
+        out[8] = a[5] * b[3] + a[6] * b[8] + a[7] * b[13] + a[8] * b[18] + a[9] * b[23];
+        out[9] = a[5] * b[4] + a[6] * b[9] + a[7] * b[14] + a[8] * b[19] + a[9] * b[24];
+        out[10] = a[10] * b[0] + a[11] * b[5] + a[12] * b[10] + a[13] * b[15] + a[14] * b[20];
+        out[11] = a[10] * b[1] + a[11] * b[6] + a[12] * b[11] + a[13] * b[16] + a[14] * b[21];
+        out[12] = a[10] * b[2] + a[11] * b[7] + a[12] * b[12] + a[13] * b[17] + a[14] * b[22];
+        out[13] = a[10] * b[3] + a[11] * b[8] + a[12] * b[13] + a[13] * b[18] + a[14] * b[23];
+        out[14] = a[10] * b[4] + a[11] * b[9] + a[12] * b[14] + a[13] * b[19] + a[14] * b[24];
+        out[15] = a[15] * b[0] + a[16] * b[5] + a[17] * b[10] + a[18] * b[15] + a[19] * b[20];
+        out[16] = a[15] * b[1] + a[16] * b[6] + a[17] * b[11] + a[18] * b[16] + a[19] * b[21];
+        out[17] = a[15] * b[2] + a[16] * b[7] + a[17] * b[12] + a[18] * b[17] + a[19] * b[22];
+        out[18] = a[15] * b[3] + a[16] * b[8] + a[17] * b[13] + a[18] * b[18] + a[19] * b[23];
+        out[19] = a[15] * b[4] + a[16] * b[9] + a[17] * b[14] + a[18] * b[19] + a[19] * b[24];
+        out[20] = a[20] * b[0] + a[21] * b[5] + a[22] * b[10] + a[23] * b[15] + a[24] * b[20];
+        out[21] = a[20] * b[1] + a[21] * b[6] + a[22] * b[11] + a[23] * b[16] + a[24] * b[21];
+        out[22] = a[20] * b[2] + a[21] * b[7] + a[22] * b[12] + a[23] * b[17] + a[24] * b[22];
+        out[23] = a[20] * b[3] + a[21] * b[8] + a[22] * b[13] + a[23] * b[18] + a[24] * b[23];
+        out[24] = a[20] * b[4] + a[21] * b[9] + a[22] * b[14] + a[23] * b[19] + a[24] * b[24];
+    }
+
+    /**
+     * out = a * transpose(b)
+     */
+    public static void multiplyTransposed(double[] a, double[] b, double[] out) {
+        out[0] = a[0] * b[0] + a[1] * b[1] + a[2] * b[2] + a[3] * b[3] + a[4] * b[4];
+        out[1] = a[0] * b[5] + a[1] * b[6] + a[2] * b[7] + a[3] * b[8] + a[4] * b[9];
+        out[2] = a[0] * b[10] + a[1] * b[11] + a[2] * b[12] + a[3] * b[13] + a[4] * b[14];
+        out[3] = a[0] * b[15] + a[1] * b[16] + a[2] * b[17] + a[3] * b[18] + a[4] * b[19];
+        out[4] = a[0] * b[20] + a[1] * b[21] + a[2] * b[22] + a[3] * b[23] + a[4] * b[24];
+        out[5] = a[5] * b[0] + a[6] * b[1] + a[7] * b[2] + a[8] * b[3] + a[9] * b[4];
+        out[6] = a[5] * b[5] + a[6] * b[6] + a[7] * b[7] + a[8] * b[8] + a[9] * b[9];
+        out[7] = a[5] * b[10] + a[6] * b[11] + a[7] * b[12] + a[8] * b[13] + a[9] * b[14];
+        out[8] = a[5] * b[15] + a[6] * b[16] + a[7] * b[17] + a[8] * b[18] + a[9] * b[19];
+        out[9] = a[5] * b[20] + a[6] * b[21] + a[7] * b[22] + a[8] * b[23] + a[9] * b[24];
+        out[10] = a[10] * b[0] + a[11] * b[1] + a[12] * b[2] + a[13] * b[3] + a[14] * b[4];
+        out[11] = a[10] * b[5] + a[11] * b[6] + a[12] * b[7] + a[13] * b[8] + a[14] * b[9];
+        out[12] = a[10] * b[10] + a[11] * b[11] + a[12] * b[12] + a[13] * b[13] + a[14] * b[14];
+        out[13] = a[10] * b[15] + a[11] * b[16] + a[12] * b[17] + a[13] * b[18] + a[14] * b[19];
+        out[14] = a[10] * b[20] + a[11] * b[21] + a[12] * b[22] + a[13] * b[23] + a[14] * b[24];
+        out[15] = a[15] * b[0] + a[16] * b[1] + a[17] * b[2] + a[18] * b[3] + a[19] * b[4];
+        out[16] = a[15] * b[5] + a[16] * b[6] + a[17] * b[7] + a[18] * b[8] + a[19] * b[9];
+        out[17] = a[15] * b[10] + a[16] * b[11] + a[17] * b[12] + a[18] * b[13] + a[19] * b[14];
+        out[18] = a[15] * b[15] + a[16] * b[16] + a[17] * b[17] + a[18] * b[18] + a[19] * b[19];
+        out[19] = a[15] * b[20] + a[16] * b[21] + a[17] * b[22] + a[18] * b[23] + a[19] * b[24];
+        out[20] = a[20] * b[0] + a[21] * b[1] + a[22] * b[2] + a[23] * b[3] + a[24] * b[4];
+        out[21] = a[20] * b[5] + a[21] * b[6] + a[22] * b[7] + a[23] * b[8] + a[24] * b[9];
+        out[22] = a[20] * b[10] + a[21] * b[11] + a[22] * b[12] + a[23] * b[13] + a[24] * b[14];
+        out[23] = a[20] * b[15] + a[21] * b[16] + a[22] * b[17] + a[23] * b[18] + a[24] * b[19];
+        out[24] = a[20] * b[20] + a[21] * b[21] + a[22] * b[22] + a[23] * b[23] + a[24] * b[24];
+    }
+
+    /**
+     * Matrix times column vector, out = a * x
+     */
+    public static void multiplyVector(double[] a, double[] x, double[] out) {
+        out[0] = a[0] * x[0] + a[1] * x[1] + a[2] * x[2] + a[3] * x[3] + a[4] * x[4];
+        out[1] = a[5] * x[0] + a[6] * x[1] + a[7] * x[2] + a[8] * x[3] + a[9] * x[4];
+        out[2] = a[10] * x[0] + a[11] * x[1] + a[12] * x[2] + a[13] * x[3] + a[14] * x[4];
+        out[3] = a[15] * x[0] + a[16] * x[1] + a[17] * x[2] + a[18] * x[3] + a[19] * x[4];
+        out[4] = a[20] * x[0] + a[21] * x[1] + a[22] * x[2] + a[23] * x[3] + a[24] * x[4];
+    }
+
+    /**
+     * Similarity transform out = f * c * transpose(f)
+     */
+    public static void similarity(double[] f, double[] c, double[] out) {
+        double w0 = f[0] * c[0] + f[1] * c[5] + f[2] * c[10] + f[3] * c[15] + f[4] * c[20];
+        double w1 = f[0] * c[1] + f[1] * c[6] + f[2] * c[11] + f[3] * c[16] + f[4] * c[21];
+        double w2 = f[0] * c[2] + f[1] * c[7] + f[2] * c[12] + f[3] * c[17] + f[4] * c[22];
+        double w3 = f[0] * c[3] + f[1] * c[8] + f[2] * c[13] + f[3] * c[18] + f[4] * c[23];
+        double w4 = f[0] * c[4] + f[1] * c[9] + f[2] * c[14] + f[3] * c[19] + f[4] * c[24];
+        double w5 = f[5] * c[0] + f[6] * c[5] + f[7] * c[10] + f[8] * c[15] + f[9] * c[20];
+        double w6 = f[5] * c[1] + f[6] * c[6] + f[7] * c[11] + f[8] * c[16] + f[9] * c[21];
+        double w7 = f[5] * c[2] + f[6] * c[7] + f[7] * c[12] + f[8] * c[17] + f[9] * c[22];
+        double w8 = f[5] * c[3] + f[6] * c[8] + f[7] * c[13] + f[8] * c[18] + f[9] * c[23];
+        double w9 = f[5] * c[4] + f[6] * c[9] + f[7] * c[14] + f[8] * c[19] + f[9] * c[24];
+        double w10 = f[10] * c[0] + f[11] * c[5] + f[12] * c[10] + f[13] * c[15] + f[14] * c[20];
+        double w11 = f[10] * c[1] + f[11] * c[6] + f[12] * c[11] + f[13] * c[16] + f[14] * c[21];
+        double w12 = f[10] * c[2] + f[11] * c[7] + f[12] * c[12] + f[13] * c[17] + f[14] * c[22];
+        double w13 = f[10] * c[3] + f[11] * c[8] + f[12] * c[13] + f[13] * c[18] + f[14] * c[23];
+        double w14 = f[10] * c[4] + f[11] * c[9] + f[12] * c[14] + f[13] * c[19] + f[14] * c[24];
+        double w15 = f[15] * c[0] + f[16] * c[5] + f[17] * c[10] + f[18] * c[15] + f[19] * c[20];
+        double w16 = f[15] * c[1] + f[16] * c[6] + f[17] * c[11] + f[18] * c[16] + f[19] * c[21];
+        double w17 = f[15] * c[2] + f[16] * c[7] + f[17] * c[12] + f[18] * c[17] + f[19] * c[22];
+        double w18 = f[15] * c[3] + f[16] * c[8] + f[17] * c[13] + f[18] * c[18] + f[19] * c[23];
+        double w19 = f[15] * c[4] + f[16] * c[9] + f[17] * c[14] + f[18] * c[19] + f[19] * c[24];
+        double w20 = f[20] * c[0] + f[21] * c[5] + f[22] * c[10] + f[23] * c[15] + f[24] * c[20];
+        double w21 = f[20] * c[1] + f[21] * c[6] + f[22] * c[11] + f[23] * c[16] + f[24] * c[21];
+        double w22 = f[20] * c[2] + f[21] * c[7] + f[22] * c[12] + f[23] * c[17] + f[24] * c[22];
+        double w23 = f[20] * c[3] + f[21] * c[8] + f[22] * c[13] + f[23] * c[18] + f[24] * c[23];
+        double w24 = f[20] * c[4] + f[21] * c[9] + f[22] * c[14] + f[23] * c[19] + f[24] * c[24];
+        out[0] = w0 * f[0] + w1 * f[1] + w2 * f[2] + w3 * f[3] + w4 * f[4];
+        out[1] = w0 * f[5] + w1 * f[6] + w2 * f[7] + w3 * f[8] + w4 * f[9];
+        out[2] = w0 * f[10] + w1 * f[11] + w2 * f[12] + w3 * f[13] + w4 * f[14];
+        out[3] = w0 * f[15] + w1 * f[16] + w2 * f[17] + w3 * f[18] + w4 * f[19];
+        out[4] = w0 * f[20] + w1 * f[21] + w2 * f[22] + w3 * f[23] + w4 * f[24];
+        out[5] = w5 * f[0] + w6 * f[1] + w7 * f[2] + w8 * f[3] + w9 * f[4];
+        out[6] = w5 * f[5] + w6 * f[6] + w7 * f[7] + w8 * f[8] + w9 * f[9];
+        out[7] = w5 * f[10] + w6 * f[11] + w7 * f[12] + w8 * f[13] + w9 * f[14];
+        out[8] = w5 * f[15] + w6 * f[16] + w7 * f[17] + w8 * f[18] + w9 * f[19];
+        out[9] = w5 * f[20] + w6 * f[21] + w7 * f[22] + w8 * f[23] + w9 * f[24];
+        out[10] = w10 * f[0] + w11 * f[1] + w12 * f[2] + w13 * f[3] + w14 * f[4];
+        out[11] = w10 * f[5] + w11 * f[6] + w12 * f[7] + w13 * f[8] + w14 * f[9];
+        out[12] = w10 * f[10] + w11 * f[11] + w12 * f[12] + w13 * f[13] + w14 * f[14];
+        out[13] = w10 * f[15] + w11 * f[16] + w12 * f[17] + w13 * f[18] + w14 * f[19];
+        out[14] = w10 * f[20] + w11 * f[21] + w12 * f[22] + w13 * f[23] + w14 * f[24];
+        out[15] = w15 * f[0] + w16 * f[1] + w17 * f[2] + w18 * f[3] + w19 * f[4];
+        out[16] = w15 * f[5] + w16 * f[6] + w17 * f[7] + w18 * f[8] + w19 * f[9];
+        out[17] = w15 * f[10] + w16 * f[11] + w17 * f[12] + w18 * f[13] + w19 * f[14];
+        out[18] = w15 * f[15] + w16 * f[16] + w17 * f[17] + w18 * f[18] + w19 * f[19];
+        out[19] = w15 * f[20] + w16 * f[21] + w17 * f[22] + w18 * f[23] + w19 * f[24];
+        out[20] = w20 * f[0] + w21 * f[1] + w22 * f[2] + w23 * f[3] + w24 * f[4];
+        out[21] = w20 * f[5] + w21 * f[6] + w22 * f[7] + w23 * f[8] + w24 * f[9];
+        out[22] = w20 * f[10] + w21 * f[11] + w22 * f[12] + w23 * f[13] + w24 * f[14];
+        out[23] = w20 * f[15] + w21 * f[16] + w22 * f[17] + w23 * f[18] + w24 * f[19];
+        out[24] = w20 * f[20] + w21 * f[21] + w22 * f[22] + w23 * f[23] + w24 * f[24];
+    }
+}
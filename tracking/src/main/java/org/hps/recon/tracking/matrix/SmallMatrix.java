@@ -0,0 +1,225 @@
+package org.hps.recon.tracking.matrix;
+
+/**
+ * Operations on small square matrices (the 5x5 helix and 6x6 position-momentum covariances of the track fits)
+ * stored as flat, row-major double arrays, so that element (i,j) of an n by n matrix is a[i*n+j].
+ * <p>
+ * Every operation writes its result into an array supplied by the caller and none of them allocates, so that a fit
+ * can keep its scratch arrays for the whole event. Unless stated otherwise the output must not be one of the inputs.
+ * See {@link Mat3} and {@link Mat5} for the unrolled 3x3 and 5x5 versions.
+ */
+public final class SmallMatrix {
+
+    private SmallMatrix() {
+    }
+
+    /**
+     * Copy a matrix held as an array of rows into a flat array.
+     *
+     * @param a the matrix rows
+     * @param n the dimension
+     * @param out the flat array, of length at least n*n
+     */
+    public static void pack(double[][] a, int n, double[] out) {
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(a[i], 0, out, i * n, n);
+        }
+    }
+
+    /**
+     * Copy a flat matrix into an array of rows.
+     *
+     * @param a the flat matrix
+     * @param n the dimension
+     * @param out the matrix rows
+     */
+    public static void unpack(double[] a, int n, double[][] out) {
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(a, i * n, out[i], 0, n);
+        }
+    }
+
+    /**
+     * Set a matrix to the unit matrix.
+     */
+    public static void identity(int n, double[] out) {
+        int nn = n * n;
+        for (int i = 0; i < nn; i++) {
+            out[i] = 0.;
+        }
+        for (int i = 0; i < nn; i += n + 1) {
+            out[i] = 1.;
+        }
+    }
+
+    /**
+     * out = a + b. The output may be one of the inputs.
+     */
+    public static void add(int n, double[] a, double[] b, double[] out) {
+        int nn = n * n;
+        for (int i = 0; i < nn; i++) {
+            out[i] = a[i] + b[i];
+        }
+    }
+
+    /**
+     * out = a - b. The output may be one of the inputs.
+     */
+    public static void subtract(int n, double[] a, double[] b, double[] out) {
+        int nn = n * n;
+        for (int i = 0; i < nn; i++) {
+            out[i] = a[i] - b[i];
+        }
+    }
+
+    /**
+     * out = a * b
+     */
+    public static void multiply(int n, double[] a, double[] b, double[] out) {
+        for (int i = 0; i < n; i++) {
+            int in = i * n;
+            for (int j = 0; j < n; j++) {
+                double s = 0.;
+                for (int k = 0, kj = j; k < n; k++, kj += n) {
+                    s += a[in + k] * b[kj];
+                }
+                out[in + j] = s;
+            }
+        }
+    }
+
+    /**
+     * out = a * transpose(b)
+     */
+    public static void multiplyTransposed(int n, double[] a, double[] b, double[] out) {
+        for (int i = 0; i < n; i++) {
+            int in = i * n;
+            for (int j = 0; j < n; j++) {
+                int jn = j * n;
+                double s = 0.;
+                for (int k = 0; k < n; k++) {
+                    s += a[in + k] * b[jn + k];
+                }
+                out[in + j] = s;
+            }
+        }
+    }
+
+    /**
+     * Matrix times column vector, out = a * x
+     */
+    public static void multiplyVector(int n, double[] a, double[] x, double[] out) {
+        for (int i = 0; i < n; i++) {
+            int in = i * n;
+            double s = 0.;
+            for (int k = 0; k < n; k++) {
+                s += a[in + k] * x[k];
+            }
+            out[i] = s;
+        }
+    }
+
+    /**
+     * The quadratic form transpose(x) * a * x
+     */
+    public static double quadraticForm(int n, double[] a, double[] x) {
+        double q = 0.;
+        for (int i = 0; i < n; i++) {
+            int in = i * n;
+            double s = 0.;
+            for (int k = 0; k < n; k++) {
+                s += a[in + k] * x[k];
+            }
+            q += x[i] * s;
+        }
+        return q;
+    }
+
+    /**
+     * Similarity transform of a covariance matrix, out = f * c * transpose(f), done as two matrix products rather
+     * than as a quadruple sum over the elements.
+     *
+     * @param work scratch array of length at least n*n
+     */
+    public static void similarity(int n, double[] f, double[] c, double[] out, double[] work) {
+        multiply(n, f, c, work);
+        multiplyTransposed(n, work, f, out);
+    }
+
+    /**
+     * Rank-one update out = c - u * transpose(w). This is the covariance update of a Kalman filter step with a
+     * one-dimensional measurement, for which (1 - K*H)*C = C - K*transpose(C*H) when C is symmetric. The output may be
+     * the input matrix.
+     */
+    public static void subtractOuterProduct(int n, double[] c, double[] u, double[] w, double[] out) {
+        for (int i = 0; i < n; i++) {
+            int in = i * n;
+            double ui = u[i];
+            for (int j = 0; j < n; j++) {
+                out[in + j] = c[in + j] - ui * w[j];
+            }
+        }
+    }
+
+    /**
+     * Invert a matrix by Gauss-Jordan elimination with partial pivoting. The input is not modified, unless it is
+     * also the output.
+     *
+     * @param work scratch array of length at least n*n
+     * @return false if the matrix is singular, in which case the output is undefined
+     */
+    public static boolean invert(int n, double[] a, double[] out, double[] work) {
+        int nn = n * n;
+        System.arraycopy(a, 0, work, 0, nn);
+        identity(n, out);
+        for (int col = 0; col < n; col++) {
+            int piv = col;
+            double big = Math.abs(work[col * n + col]);
+            for (int r = col + 1; r < n; r++) {
+                double v = Math.abs(work[r * n + col]);
+                if (v > big) {
+                    big = v;
+                    piv = r;
+                }
+            }
+            if (big == 0.) {
+                return false;
+            }
+            if (piv != col) {
+                swapRows(n, work, piv, col);
+                swapRows(n, out, piv, col);
+            }
+            int cn = col * n;
+            double pivinv = 1.0 / work[cn + col];
+            for (int k = 0; k < n; k++) {
+                work[cn + k] *= pivinv;
+                out[cn + k] *= pivinv;
+            }
+            for (int r = 0; r < n; r++) {
+                if (r == col) {
+                    continue;
+                }
+                int rn = r * n;
+                double fac = work[rn + col];
+                if (fac == 0.) {
+                    continue;
+                }
+                for (int k = 0; k < n; k++) {
+                    work[rn + k] -= fac * work[cn + k];
+                    out[rn + k] -= fac * out[cn + k];
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void swapRows(int n, double[] a, int r1, int r2) {
+        int i1 = r1 * n;
+        int i2 = r2 * n;
+        for (int k = 0; k < n; k++) {
+            double t = a[i1 + k];
+            a[i1 + k] = a[i2 + k];
+            a[i2 + k] = t;
+        }
+    }
+}
@@ -0,0 +1,5 @@
+/**
+ * Fixed-size matrix and vector operations on flat, row-major primitive arrays, shared by the Kalman and GBL track
+ * fits. The operations write into caller-supplied arrays, so that the fits can run without allocating matrices.
+ */
+package org.hps.recon.tracking.matrix;
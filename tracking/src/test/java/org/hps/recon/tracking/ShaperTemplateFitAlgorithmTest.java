@@ -0,0 +1,72 @@
+package org.hps.recon.tracking;
+
+import java.util.Collection;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hps.readout.svt.HPSSVTConstants;
+
+/**
+ * Compare the one pulse fits of {@link ShaperTemplateFitAlgorithm} with those of the Minuit based
+ * {@link ShaperLinearFitAlgorithm} on synthetic pulses with noise.
+ */
+public class ShaperTemplateFitAlgorithmTest extends TestCase {
+
+    private static final int N_SAMPLES = HPSSVTConstants.TOTAL_NUMBER_OF_SAMPLES;
+    private static final int N_PULSES = 1000;
+    private static final double NOISE = 20.0;
+
+    /**
+     * Shaping times of the channels, so the fits switch between pulse tables.
+     */
+    private static final double[][] SHAPING_TIMES = {{50.0, 8.0}, {45.0, 7.5}, {55.0, 9.0}};
+
+    private static ShapeFitParameters single(Collection<ShapeFitParameters> fits) {
+        assertEquals(1, fits.size());
+        return fits.iterator().next();
+    }
+
+    public void testAgainstMinuit() {
+        Random random = new Random(17);
+        ShaperTemplateFitAlgorithm templateFitter = new ShaperTemplateFitAlgorithm();
+        ShaperLinearFitAlgorithm minuitFitter = new ShaperLinearFitAlgorithm(1);
+        minuitFitter.setDebug(false);
+        PulseShape shape = new PulseShape.FourPole();
+        double[] signal = new double[N_SAMPLES];
+        double[] noise = new double[N_SAMPLES];
+        double[] pulse = new double[N_SAMPLES];
+
+        int nCompared = 0;
+        int nAgree = 0;
+        for (int n = 0; n < N_PULSES; n++) {
+            double[] shapingTimes = SHAPING_TIMES[random.nextInt(SHAPING_TIMES.length)];
+            shape.setParameters(shapingTimes[0], shapingTimes[1]);
+            double t0 = -10.0 + 60.0 * random.nextDouble();
+            double amp = 300.0 + 2700.0 * random.nextDouble();
+            shape.getAmplitudesPeakNorm(-t0, HPSSVTConstants.SAMPLING_INTERVAL, pulse);
+            for (int i = 0; i < N_SAMPLES; i++) {
+                signal[i] = amp * pulse[i] + NOISE * random.nextGaussian();
+                noise[i] = NOISE;
+            }
+
+            ShapeFitParameters template = single(templateFitter.fitShape(signal, noise, shape));
+            ShapeFitParameters minuit = single(minuitFitter.fitShape(signal, noise, shape));
+            String message = "pulse " + n + ": template " + template + ", Minuit " + minuit;
+
+            // The template fit scans all the times, so it is never much worse than Minuit.
+            assertTrue(message, template.getChiProb() >= minuit.getChiProb() - 1e-3);
+
+            // Where Minuit found the true pulse, both fits should have the same minimum.
+            if (Math.abs(minuit.getT0() - t0) < 5.0) {
+                nCompared++;
+                if (Math.abs(template.getT0() - minuit.getT0()) < 0.25
+                        && Math.abs(template.getAmp() - minuit.getAmp()) < 0.01 * minuit.getAmp() + 1.0) {
+                    nAgree++;
+                }
+            }
+        }
+        assertTrue("compared " + nCompared, nCompared > N_PULSES / 2);
+        assertTrue("agree " + nAgree + " of " + nCompared, nAgree > 0.9 * nCompared);
+    }
+}
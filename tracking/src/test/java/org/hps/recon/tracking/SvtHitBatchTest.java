@@ -0,0 +1,131 @@
+package org.hps.recon.tracking;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.hps.readout.svt.HPSSVTConstants;
+import org.lcsim.detector.tracker.silicon.HpsSiSensor;
+import org.lcsim.event.RawTrackerHit;
+import org.lcsim.event.base.BaseRawTrackerHit;
+import org.lcsim.geometry.Detector;
+import org.lcsim.geometry.GeometryReader;
+
+/**
+ * Check that fitting the hits of an event with {@link ShaperTemplateFitAlgorithm#fitShapes(SvtHitBatch, PulseShape)}
+ * gives the same results as fitting each hit with {@link ShaperFitAlgorithm#fitShape(RawTrackerHit, PulseShape)}.
+ * <p>
+ * The sensors are read from the compact description of the detector and get their conditions from the test, so the
+ * conditions database is not needed.
+ */
+public class SvtHitBatchTest extends TestCase {
+
+    private static final String DETECTOR = "HPS-EngRun2015-Nominal-v2";
+    private static final int N_SAMPLES = HPSSVTConstants.TOTAL_NUMBER_OF_SAMPLES;
+    private static final int HITS_PER_SENSOR = 50;
+
+    private List<RawTrackerHit> hits;
+
+    @Override
+    protected void setUp() throws Exception {
+        GeometryReader geometryReader = new GeometryReader();
+        geometryReader.setBuildDetailed(true);
+        InputStream in = SvtHitBatchTest.class.getResourceAsStream("/" + DETECTOR + "/compact.xml");
+        assertNotNull("Missing compact file of " + DETECTOR, in);
+        Detector detector;
+        try {
+            detector = geometryReader.read(in);
+        } finally {
+            in.close();
+        }
+        List<HpsSiSensor> sensors = detector.getSubdetector("Tracker").getDetectorElement()
+                .findDescendants(HpsSiSensor.class);
+
+        // Give each channel its own conditions and pulse shape, so the fits switch between shaping times.
+        Random random = new Random(18);
+        PulseShape shape = new PulseShape.FourPole();
+        double[] pulse = new double[N_SAMPLES];
+        hits = new ArrayList<RawTrackerHit>();
+        for (HpsSiSensor sensor : sensors) {
+            for (int i = 0; i < HITS_PER_SENSOR; i++) {
+                int channel = random.nextInt(sensor.getNumberOfChannels());
+                double[] pedestal = new double[N_SAMPLES];
+                double[] noise = new double[N_SAMPLES];
+                for (int j = 0; j < N_SAMPLES; j++) {
+                    pedestal[j] = 4000 + 100 * random.nextDouble();
+                    noise[j] = 50 + 20 * random.nextDouble();
+                }
+                double tp = 45 + 10 * random.nextInt(3);
+                double tp2 = 8;
+                sensor.setPedestal(channel, pedestal);
+                sensor.setNoise(channel, noise);
+                sensor.setShapeFitParameters(channel, new double[] {0, 0, tp, tp2});
+
+                // One or two pulses, so the pileup fits are also compared.
+                short[] samples = new short[N_SAMPLES];
+                double[] signal = new double[N_SAMPLES];
+                int nPulses = random.nextInt(4) == 0 ? 2 : 1;
+                shape.setParameters(tp, tp2);
+                for (int p = 0; p < nPulses; p++) {
+                    double t0 = -30 + 100 * random.nextDouble();
+                    double amp = 300 + 2000 * random.nextDouble();
+                    shape.getAmplitudesPeakNorm(-t0, HPSSVTConstants.SAMPLING_INTERVAL, pulse);
+                    for (int j = 0; j < N_SAMPLES; j++) {
+                        signal[j] += amp * pulse[j];
+                    }
+                }
+                for (int j = 0; j < N_SAMPLES; j++) {
+                    samples[j] = (short) Math.round(pedestal[j] + signal[j] + noise[j] * random.nextGaussian());
+                }
+                hits.add(new BaseRawTrackerHit(0, sensor.makeChannelID(channel), samples, null, sensor));
+            }
+        }
+    }
+
+    private void checkBatch(ShaperFitAlgorithm fitter) {
+        SvtHitBatch batch = new SvtHitBatch();
+        // Fill the batch twice, to check that it is cleared.
+        batch.addAll(hits.subList(0, hits.size() / 2));
+        batch.clear();
+        batch.addAll(hits);
+        assertEquals(hits.size(), batch.size());
+        assertTrue(batch.getSensorRunCount() > 1);
+
+        PulseShape shape = new PulseShape.FourPole();
+        List<Collection<ShapeFitParameters>> batchFits = fitter.fitShapes(batch, shape);
+        assertEquals(hits.size(), batchFits.size());
+        for (int i = 0; i < hits.size(); i++) {
+            assertSame(hits.get(i), batch.getHit(i));
+            List<ShapeFitParameters> expected = new ArrayList<ShapeFitParameters>(fitter.fitShape(hits.get(i), shape));
+            List<ShapeFitParameters> actual = new ArrayList<ShapeFitParameters>(batchFits.get(i));
+            assertEquals("hit " + i, expected.size(), actual.size());
+            for (int p = 0; p < expected.size(); p++) {
+                String message = "hit " + i + " pulse " + p;
+                assertEquals(message, expected.get(p).getT0(), actual.get(p).getT0(), 0);
+                assertEquals(message, expected.get(p).getT0Err(), actual.get(p).getT0Err(), 0);
+                assertEquals(message, expected.get(p).getAmp(), actual.get(p).getAmp(), 0);
+                assertEquals(message, expected.get(p).getAmpErr(), actual.get(p).getAmpErr(), 0);
+                assertEquals(message, expected.get(p).getChiProb(), actual.get(p).getChiProb(), 0);
+            }
+        }
+    }
+
+    public void testTemplateFit() {
+        ShaperTemplateFitAlgorithm fitter = new ShaperTemplateFitAlgorithm(0.5);
+        checkBatch(fitter);
+    }
+
+    public void testParallelTemplateFit() {
+        ShaperTemplateFitAlgorithm fitter = new ShaperTemplateFitAlgorithm(0.5);
+        fitter.setThreads(4);
+        try {
+            checkBatch(fitter);
+        } finally {
+            fitter.shutdown();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.hps.recon.tracking.kalman;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// Check the time-sorted hit index, and that the seeding with the index finds the same seeds and tracks as the loops over all hit combinations
+public class HitIndexTest extends TestCase {
+
+    public void testTimeSearch() throws Exception {
+        FieldMap fM = KalmanPatRecConcurrencyTest.uniformFieldMap();
+        Random rnd = new Random(7);
+        for (SiModule si : KalmanPatRecConcurrencyTest.makeEvent(fM, 0)) {
+            ArrayList<KalHit> hits = new ArrayList<KalHit>();
+            for (Measurement m : si.hits) {
+                m.time = Math.floor(10. * rnd.nextDouble()); // Coarse times, so that there are equal times to check the stable order
+                hits.add(new KalHit(si, m));
+            }
+            HitIndex index = new HitIndex(hits);
+            assertEquals(hits.size(), index.size());
+            assertEquals(!si.isStereo, index.axial);
+            for (int i = 0; i < hits.size(); i++) {
+                int ih = index.order[i];
+                assertEquals(hits.get(ih).hit.time, index.tSorted[i], 0.);
+                assertEquals(hits.get(ih).hit.time, index.time[ih], 0.);
+                if (i > 0) {
+                    assertTrue(index.tSorted[i - 1] <= index.tSorted[i]);
+                    if (index.tSorted[i - 1] == index.tSorted[i]) assertTrue(index.order[i - 1] < ih);
+                }
+                Vec pnt = si.toGlobal(new Vec(0., hits.get(i).hit.v, 0.));
+                assertEquals(pnt.v[1], index.yGlobal[i], 0.);
+                assertEquals(pnt.v[2], index.zGlobal[i], 0.);
+            }
+            for (double t = -1.; t <= 11.; t += 0.5) {
+                int nBefore = 0;
+                int nAtOrBefore = 0;
+                for (KalHit ht : hits) {
+                    if (ht.hit.time < t) nBefore++;
+                    if (ht.hit.time <= t) nAtOrBefore++;
+                }
+                assertEquals(nBefore, index.firstAtOrAfter(t));
+                assertEquals(nAtOrBefore, index.endAtOrBefore(t));
+            }
+        }
+    }
+
+    public void testIndexedSeeding() throws Exception {
+        FieldMap fM = KalmanPatRecConcurrencyTest.uniformFieldMap();
+        KalmanParams kPar = new KalmanParams();
+        KalmanParams kParIndexed = new KalmanParams();
+        kParIndexed.setSeedIndex(true);
+        int nTracks = 0;
+        for (int event = 0; event < 10; event++) {
+            KalmanPatRecHPS loops = new KalmanPatRecHPS(timedEvent(fM, event), 0, event, kPar, false);
+            KalmanPatRecHPS indexed = new KalmanPatRecHPS(timedEvent(fM, event), 0, event, kParIndexed, false);
+            assertEquals(loops.TkrList.size(), indexed.TkrList.size());
+            for (int i = 0; i < loops.TkrList.size(); i++) {
+                KalTrack tkL = loops.TkrList.get(i);
+                KalTrack tkI = indexed.TkrList.get(i);
+                assertEquals(tkL.nHits, tkI.nHits);
+                assertEquals(tkL.chi2, tkI.chi2, 0.);
+                assertEquals(tkL.SiteList.size(), tkI.SiteList.size());
+                for (int j = 0; j < tkL.SiteList.size(); j++) {
+                    MeasurementSite siteL = tkL.SiteList.get(j);
+                    MeasurementSite siteI = tkI.SiteList.get(j);
+                    assertEquals(siteL.m.Layer, siteI.m.Layer);
+                    assertEquals(siteL.m.detector, siteI.m.detector);
+                    assertEquals(siteL.hitID, siteI.hitID);
+                    for (int k = 0; k < 5; k++) {
+                        assertEquals(siteL.aS.a.v[k], siteI.aS.a.v[k], 0.);
+                    }
+                }
+            }
+            nTracks += loops.TkrList.size();
+        }
+        assertTrue(nTracks >= 20);
+    }
+
+    public void testIndexedSeeds() throws Exception {
+        FieldMap fM = KalmanPatRecConcurrencyTest.uniformFieldMap();
+        KalmanParams kPar = new KalmanParams();
+        kPar.setSeedIndex(true);
+        Plane p0 = new Plane(new Vec(0., 0., 0.), new Vec(0., 1., 0.));
+        int nSeeds = 0;
+        for (int event = 0; event < 10; event++) {
+            ArrayList<SiModule> data = timedEvent(fM, event);
+            KalmanPatRecHPS patRec = new KalmanPatRecHPS(data, 0, event, kPar, false);
+            // After the pattern recognition some hits are on tracks, which the seeding has to skip in the 2nd iteration
+            boolean[][] taken = patRec.takenHits();
+            boolean[][] none = new boolean[taken.length][];
+            for (int lyr = 0; lyr < taken.length; lyr++) none[lyr] = new boolean[taken[lyr].length];
+            for (int[] list : kPar.lyrList[0]) {
+                double yOrigin = Double.NaN;
+                for (SiModule si : data) {
+                    if (si.Layer == list[2]) {
+                        yOrigin = si.p.X().v[1];
+                        break;
+                    }
+                }
+                if (Double.isNaN(yOrigin)) continue;
+                for (int trial = 0; trial < KalmanParams.nTries; trial++) {
+                    for (boolean[][] tkn : new boolean[][][] {none, taken}) {
+                        ArrayList<SeedTrack> seeds = patRec.makeSeeds(list, yOrigin, trial, p0, tkn);
+                        ArrayList<SeedTrack> seedsIndexed = patRec.makeSeedsIndexed(list, yOrigin, trial, p0, tkn);
+                        assertEquals(seeds.size(), seedsIndexed.size());
+                        for (int i = 0; i < seeds.size(); i++) {
+                            assertEquals(seeds.get(i).hits, seedsIndexed.get(i).hits);
+                            for (int k = 0; k < 5; k++) {
+                                assertEquals(seeds.get(i).helixParams().v[k], seedsIndexed.get(i).helixParams().v[k], 0.);
+                            }
+                        }
+                        nSeeds += seeds.size();
+                    }
+                }
+            }
+        }
+        assertTrue(nSeeds > 0);
+    }
+
+    // The toy event of KalmanPatRecConcurrencyTest with hit times: the hits of each track within a few ns of the
+    // track time, and the noise hits spread over a window much wider than the seed time cut
+    private static ArrayList<SiModule> timedEvent(FieldMap fM, int event) {
+        Random rnd = new Random(2000L + event);
+        double[] t0 = new double[3];
+        for (int itk = 0; itk < t0.length; itk++) t0[itk] = -20. + 40. * rnd.nextDouble();
+        ArrayList<SiModule> modules = KalmanPatRecConcurrencyTest.makeEvent(fM, event);
+        for (SiModule si : modules) {
+            for (Measurement m : si.hits) {
+                if (m.tksMC.isEmpty()) m.time = -100. + 200. * rnd.nextDouble();
+                else m.time = t0[m.tksMC.get(0)] + 2. * rnd.nextGaussian();
+            }
+        }
+        return modules;
+    }
+}
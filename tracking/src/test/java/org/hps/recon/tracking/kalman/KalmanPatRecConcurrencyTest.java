@@ -0,0 +1,138 @@
+package org.hps.recon.tracking.kalman;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import junit.framework.TestCase;
+
+// Check that the pattern recognition finds exactly the same tracks with and without the thread pool
+public class KalmanPatRecConcurrencyTest extends TestCase {
+
+    private static final double resolution = 0.006;
+
+    public void testSequentialAgainstConcurrent() throws Exception {
+        FieldMap fM = uniformFieldMap();
+        KalmanParams kPar = new KalmanParams();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        int nTracks = 0;
+        try {
+            for (int event = 0; event < 10; event++) {
+                // The pattern recognition marks the hits that it uses, so each mode gets its own copy of the event
+                KalmanPatRecHPS sequential = new KalmanPatRecHPS(makeEvent(fM, event), 0, event, kPar, false);
+                KalmanPatRecHPS concurrent = new KalmanPatRecHPS(makeEvent(fM, event), 0, event, kPar, false, pool);
+                assertEquals(sequential.TkrList.size(), concurrent.TkrList.size());
+                for (int i = 0; i < sequential.TkrList.size(); i++) {
+                    KalTrack tkS = sequential.TkrList.get(i);
+                    KalTrack tkC = concurrent.TkrList.get(i);
+                    assertEquals(tkS.ID, tkC.ID);
+                    assertEquals(tkS.nHits, tkC.nHits);
+                    assertEquals(tkS.chi2, tkC.chi2, 0.);
+                    assertEquals(tkS.SiteList.size(), tkC.SiteList.size());
+                    for (int j = 0; j < tkS.SiteList.size(); j++) {
+                        MeasurementSite siteS = tkS.SiteList.get(j);
+                        MeasurementSite siteC = tkC.SiteList.get(j);
+                        assertEquals(siteS.m.Layer, siteC.m.Layer);
+                        assertEquals(siteS.m.detector, siteC.m.detector);
+                        assertEquals(siteS.hitID, siteC.hitID);
+                        for (int k = 0; k < 5; k++) {
+                            assertEquals(siteS.aS.a.v[k], siteC.aS.a.v[k], 0.);
+                        }
+                    }
+                }
+                nTracks += sequential.TkrList.size();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(nTracks >= 20); // Most of the 30 generated tracks must be found for the comparison to mean anything
+    }
+
+    // Toy event in the bottom tracker with three tracks and some noise hits, made the same way for a given event number
+    static ArrayList<SiModule> makeEvent(FieldMap fM, int event) {
+        Random rnd = new Random(1000L + event);
+        ArrayList<SiModule> modules = makeModules(fM);
+        for (SiModule si : modules) {
+            for (int i = 0; i < 3; i++) {
+                double v = si.yExtent[0] + (si.yExtent[1] - si.yExtent[0]) * rnd.nextDouble();
+                si.addMeasurement(new Measurement(v, resolution, 0., si.toGlobal(new Vec(0., v, 0.)), 999.));
+            }
+        }
+        Vec origin = new Vec(0., 0., 0.);
+        for (int itk = 0; itk < 3; itk++) {
+            double Q = rnd.nextBoolean() ? 1. : -1.;
+            double p = 1.5 + rnd.nextDouble();
+            double phi = (91. + rnd.nextGaussian()) * Math.PI / 180.;
+            double theta = (88.5 + 0.3 * rnd.nextGaussian()) * Math.PI / 180.;
+            Vec momentum = new Vec(p * Math.cos(phi) * Math.sin(theta), p * Math.sin(phi) * Math.sin(theta), p * Math.cos(theta));
+            Helix tk = new Helix(Q, origin, momentum, origin, fM, rnd);
+            for (SiModule si : modules) {
+                double phiInt = tk.planeIntersect(si.p);
+                if (Double.isNaN(phiInt)) continue;
+                Vec rGlobal = tk.atPhiGlobal(phiInt);
+                Vec rDet = si.toLocal(rGlobal);
+                if (rDet.v[0] > si.xExtent[1] || rDet.v[0] < si.xExtent[0] || rDet.v[1] > si.yExtent[1] || rDet.v[1] < si.yExtent[0]) continue;
+                Measurement m = new Measurement(rDet.v[1] + resolution * rnd.nextGaussian(), resolution, 0., rGlobal, rDet.v[1]);
+                m.addMC(itk);
+                si.addMeasurement(m);
+            }
+        }
+        ArrayList<SiModule> occupied = new ArrayList<SiModule>();
+        for (SiModule si : modules) {
+            if (!si.hits.isEmpty()) occupied.add(si);
+        }
+        return occupied;
+    }
+
+    // Bottom half of the 2016 tracker, ordered by layer
+    private static ArrayList<SiModule> makeModules(FieldMap fM) {
+        double thickness = 0.32;
+        ArrayList<SiModule> modules = new ArrayList<SiModule>();
+        modules.add(new SiModule(2, new Plane(new Vec(3.4814, 103.69, 20.781), new Vec(-0.030928, -0.99952, 0.00056169), -0.100076), true, 200., 47.17, thickness, fM, 0));
+        modules.add(new SiModule(3, new Plane(new Vec(3.7752, 111.75, 20.770), new Vec(0.029092, 0.99957, 0.0031495), 0.000303), false, 200., 47.17, thickness, fM, 0));
+        modules.add(new SiModule(4, new Plane(new Vec(6.6595, 203.81, 22.296), new Vec(-0.029875, -0.99954, 0.0053661), -0.099851), true, 200., 47.17, thickness, fM, 0));
+        modules.add(new SiModule(5, new Plane(new Vec(6.7661, 211.87, 22.281), new Vec(0.028940, 0.99958, 0.0028008), 0.000145), false, 200., 47.17, thickness, fM, 0));
+        modules.add(new SiModule(6, new Plane(new Vec(9.4835, 303.76, 23.796), new Vec(-0.029471, -0.99955, 0.0048642), -0.100012), true, 200., 47.17, thickness, fM, 0));
+        modules.add(new SiModule(7, new Plane(new Vec(9.7121, 311.63, 23.777), new Vec(0.027875, 0.99961, -0.0027053), 0.000106), false, 200., 47.17, thickness, fM, 0));
+        modules.add(new SiModule(8, new Plane(new Vec(-35.087, 505.57, 29.328), new Vec(-0.029044, -0.99958, 0.0022785), -0.049060), true, 100., 40.34, thickness, fM, 0));
+        modules.add(new SiModule(8, new Plane(new Vec(65.791, 502.52, 24.294), new Vec(-0.030402, -0.99954, 0.0012687), -0.050671), true, 100., 40.34, thickness, fM, 1));
+        modules.add(new SiModule(9, new Plane(new Vec(-34.848, 513.08, 26.824), new Vec(0.030086, 0.99954, -0.0021664), 0.000199), false, 100., 40.34, thickness, fM, 0));
+        modules.add(new SiModule(9, new Plane(new Vec(65.958, 510.03, 26.821), new Vec(0.030452, 0.99954, -0.00060382), 0.000194), false, 100., 40.34, thickness, fM, 1));
+        modules.add(new SiModule(10, new Plane(new Vec(-29.010, 705.47, 32.358), new Vec(-0.030508, -0.99953, -0.00048837), -0.050035), true, 100., 40.34, thickness, fM, 0));
+        modules.add(new SiModule(10, new Plane(new Vec(71.778, 702.43, 27.322), new Vec(-0.029627, -0.99956, -0.0015542), -0.050102), true, 100., 40.34, thickness, fM, 1));
+        modules.add(new SiModule(11, new Plane(new Vec(-28.846, 713.07, 29.845), new Vec(0.029810, 0.99956, -0.00084633), 0.000172), false, 100., 40.34, thickness, fM, 0));
+        modules.add(new SiModule(11, new Plane(new Vec(72.034, 710.03, 29.845), new Vec(0.030891, 0.99952, 0.00016092), 0.000205), false, 100., 40.34, thickness, fM, 1));
+        modules.add(new SiModule(12, new Plane(new Vec(-22.879, 905.35, 35.309), new Vec(-0.029214, -0.99957, 0.0019280), -0.049801), true, 100., 40.34, thickness, fM, 0));
+        modules.add(new SiModule(12, new Plane(new Vec(77.869, 902.35, 30.284), new Vec(-0.029989, -0.99955, -0.00062471), -0.049863), true, 100., 40.34, thickness, fM, 1));
+        modules.add(new SiModule(13, new Plane(new Vec(-22.795, 912.89, 32.839), new Vec(0.028266, 0.99960, -0.0014105), 0.000107), false, 100., 40.34, thickness, fM, 0));
+        modules.add(new SiModule(13, new Plane(new Vec(78.097, 909.99, 32.835), new Vec(0.030889, 0.99952, -0.00029751), 0.000071), false, 100., 40.34, thickness, fM, 1));
+        return modules;
+    }
+
+    // A 0.5 T field along the Kalman z axis (-y in the map coordinates)
+    static FieldMap uniformFieldMap() throws Exception {
+        File mapFile = File.createTempFile("KalmanPatRecConcurrencyTest", ".bin");
+        mapFile.deleteOnExit();
+        DataOutputStream dos = new DataOutputStream(new FileOutputStream(mapFile));
+        dos.writeInt(2);
+        dos.writeInt(2);
+        dos.writeInt(2);
+        for (int ix = 0; ix < 2; ix++) {
+            for (int iy = 0; iy < 2; iy++) {
+                for (int iz = 0; iz < 2; iz++) {
+                    dos.writeFloat(-500.f + 1000.f * ix);
+                    dos.writeFloat(-500.f + 1000.f * iy);
+                    dos.writeFloat(-500.f + 2000.f * iz);
+                    dos.writeFloat(0.f);
+                    dos.writeFloat(-5.e-4f);
+                    dos.writeFloat(0.f);
+                }
+            }
+        }
+        dos.close();
+        return new FieldMap(mapFile.getPath(), "binary", false, 0., 0., 0.);
+    }
+}
@@ -0,0 +1,59 @@
+package org.hps.recon.tracking.kalman;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// Check that the packed field map, both on the heap and memory mapped, interpolates exactly like FieldMap
+public class PackedFieldMapTest extends TestCase {
+
+    public void testAgainstFieldMap() throws Exception {
+        File mapFile = File.createTempFile("PackedFieldMapTest", ".bin");
+        mapFile.deleteOnExit();
+        int nX = 5, nY = 4, nZ = 6;
+        Random rnd = new Random(1);
+        DataOutputStream dos = new DataOutputStream(new FileOutputStream(mapFile));
+        dos.writeInt(nX);
+        dos.writeInt(nY);
+        dos.writeInt(nZ);
+        for (int ix = 0; ix < nX; ix++) {
+            for (int iy = 0; iy < nY; iy++) {
+                for (int iz = 0; iz < nZ; iz++) {
+                    dos.writeFloat(-20.f + 10.f * ix);
+                    dos.writeFloat(-15.f + 10.f * iy);
+                    dos.writeFloat(-5.f + 20.f * iz);
+                    dos.writeFloat(rnd.nextFloat());
+                    dos.writeFloat(rnd.nextFloat());
+                    dos.writeFloat(rnd.nextFloat());
+                }
+            }
+        }
+        dos.close();
+
+        FieldMap reference = new FieldMap(mapFile.getPath(), "binary", false, 1., 2., 3.);
+        PackedFieldMap heap = new PackedFieldMap(mapFile.getPath(), false, 1., 2., 3.);
+        PackedFieldMap mapped = new PackedFieldMap(mapFile.getPath(), true, 1., 2., 3.);
+        assertFalse(heap.isMemoryMapped());
+        assertTrue(mapped.isMemoryMapped());
+
+        double[] bHeap = new double[3];
+        double[] bMapped = new double[3];
+        for (int i = 0; i < 1000; i++) { // Include points outside of the map to exercise the edge clamping
+            double x = -40. + 80. * rnd.nextDouble();
+            double y = -40. + 80. * rnd.nextDouble();
+            double z = -20. + 140. * rnd.nextDouble();
+            Vec bRef = reference.getField(new Vec(x, y, z)); // Kalman coordinates
+            heap.getField(x, -z, y, bHeap);                   // HPS coordinates
+            mapped.getField(x, -z, y, bMapped);
+            assertEquals(bRef.v[0], bHeap[0], 1.e-9);
+            assertEquals(bRef.v[1], bHeap[2], 1.e-9);
+            assertEquals(bRef.v[2], -bHeap[1], 1.e-9);
+            for (int c = 0; c < 3; c++) {
+                assertEquals(bHeap[c], bMapped[c], 1.e-12);
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package org.hps.recon.tracking.kalman;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+// Check that the adaptive-step Runge-Kutta integration agrees with the fixed-step one, with fewer field evaluations
+public class RungeKutta4Test extends TestCase {
+
+    public void testAdaptiveAgainstFixedStep() throws Exception {
+        // A field that is linear in the map coordinates is reproduced exactly by the trilinear interpolation,
+        // so it is smooth across the grid cells
+        File mapFile = File.createTempFile("RungeKutta4Test", ".bin");
+        mapFile.deleteOnExit();
+        int nX = 9, nY = 5, nZ = 13;
+        DataOutputStream dos = new DataOutputStream(new FileOutputStream(mapFile));
+        dos.writeInt(nX);
+        dos.writeInt(nY);
+        dos.writeInt(nZ);
+        for (int ix = 0; ix < nX; ix++) {
+            for (int iy = 0; iy < nY; iy++) {
+                for (int iz = 0; iz < nZ; iz++) {
+                    float x = -200.f + 50.f * ix;
+                    float y = -100.f + 50.f * iy;
+                    float z = -100.f + 100.f * iz;
+                    dos.writeFloat(x);
+                    dos.writeFloat(y);
+                    dos.writeFloat(z);
+                    dos.writeFloat(2.e-7f * y);
+                    dos.writeFloat(-5.e-4f * (1.f - (z - 500.f) / 2000.f) + 1.e-7f * x);
+                    dos.writeFloat(1.e-7f * y);
+                }
+            }
+        }
+        dos.close();
+        final long[] nEval = new long[1];
+        FieldMap fM = new FieldMap(mapFile.getPath(), "binary", false, 0., 0., 0.) {
+            @Override
+            Vec getField(Vec r) {
+                nEval[0]++;
+                return super.getField(r);
+            }
+        };
+
+        Random rnd = new Random(2);
+        double h = 1.0;
+        double s = 900.;
+        for (int trk = 0; trk < 20; trk++) {
+            double Q = rnd.nextBoolean() ? 1. : -1.;
+            double p = 0.5 + 3. * rnd.nextDouble();
+            double phi = -0.15 + 0.3 * rnd.nextDouble();
+            double tanl = -0.05 + 0.1 * rnd.nextDouble();
+            Vec r0 = new Vec(0., 0., 0.);
+            Vec p0 = new Vec(p * Math.sin(phi), p * Math.cos(phi), p * tanl);
+
+            // The fixed-step integration takes whole steps, so ask for just under s to get exactly s
+            nEval[0] = 0;
+            RungeKutta4 fixed = new RungeKutta4(Q, h, fM);
+            double[] rFixed = fixed.integrate(r0, p0, s - 1.e-6);
+            long nFixed = nEval[0];
+            nEval[0] = 0;
+            RungeKutta4 adaptive = new RungeKutta4(Q, h, fM);
+            double[] rAdaptive = adaptive.integrateAdaptive(r0, p0, s);
+            long nAdaptive = nEval[0];
+
+            for (int i = 0; i < 3; i++) {
+                assertEquals(rFixed[i], rAdaptive[i], 1.e-3);
+                assertEquals(rFixed[i + 3], rAdaptive[i + 3], 1.e-6 * p);
+            }
+            assertTrue(nAdaptive < nFixed / 10);
+        }
+    }
+}
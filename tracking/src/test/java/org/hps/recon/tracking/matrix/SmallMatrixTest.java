@@ -0,0 +1,149 @@
+package org.hps.recon.tracking.matrix;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Check the flat-array matrix routines against plain element-by-element sums.
+ */
+public class SmallMatrixTest extends TestCase {
+
+    private final Random rnd = new Random(123);
+
+    private double[] random(int size) {
+        double[] a = new double[size];
+        for (int i = 0; i < size; i++) {
+            a[i] = rnd.nextGaussian();
+        }
+        return a;
+    }
+
+    public void testMultiplyAndSimilarity() {
+        for (int n = 3; n <= 6; n++) {
+            double[] f = random(n * n);
+            double[] c = random(n * n);
+            double[] prod = new double[n * n];
+            double[] sim = new double[n * n];
+            double[] work = new double[n * n];
+            SmallMatrix.multiply(n, f, c, prod);
+            SmallMatrix.similarity(n, f, c, sim, work);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    double p = 0.;
+                    double s = 0.;
+                    for (int k = 0; k < n; k++) {
+                        p += f[i * n + k] * c[k * n + j];
+                        for (int l = 0; l < n; l++) {
+                            s += f[i * n + k] * c[k * n + l] * f[j * n + l];
+                        }
+                    }
+                    assertEquals(p, prod[i * n + j], 1.e-12);
+                    assertEquals(s, sim[i * n + j], 1.e-10);
+                }
+            }
+        }
+    }
+
+    public void testInvert() {
+        for (int n = 3; n <= 6; n++) {
+            double[] a = random(n * n);
+            double[] aInv = new double[n * n];
+            double[] work = new double[n * n];
+            double[] unit = new double[n * n];
+            assertTrue(SmallMatrix.invert(n, a, aInv, work));
+            SmallMatrix.multiply(n, a, aInv, unit);
+            for (int i = 0; i < n; i++) {
+                for (int j = 0; j < n; j++) {
+                    assertEquals(i == j ? 1. : 0., unit[i * n + j], 1.e-10);
+                }
+            }
+        }
+        assertFalse(SmallMatrix.invert(2, new double[] {1., 2., 2., 4.}, new double[4], new double[4]));
+    }
+
+    public void testRankOneUpdate() {
+        int n = 5;
+        double[] c = random(n * n);
+        double[] u = random(n);
+        double[] w = random(n);
+        double[] out = new double[n * n];
+        SmallMatrix.subtractOuterProduct(n, c, u, w, out);
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                assertEquals(c[i * n + j] - u[i] * w[j], out[i * n + j], 1.e-14);
+            }
+        }
+        double q = SmallMatrix.quadraticForm(n, c, u);
+        double[] cu = new double[n];
+        SmallMatrix.multiplyVector(n, c, u, cu);
+        double qRef = 0.;
+        for (int i = 0; i < n; i++) {
+            qRef += u[i] * cu[i];
+        }
+        assertEquals(qRef, q, 1.e-12);
+    }
+
+    public void testMat3() {
+        double[] r = random(9);
+        double[] c = random(9);
+        double[] out = new double[9];
+        double[] ref = new double[9];
+        double[] work = new double[9];
+        double[] rt = {r[0], r[3], r[6], r[1], r[4], r[7], r[2], r[5], r[8]};
+
+        Mat3.multiply(r, c, out);
+        SmallMatrix.multiply(3, r, c, ref);
+        assertArrayEquals(ref, out);
+
+        Mat3.similarity(r, c, out);
+        SmallMatrix.similarity(3, r, c, ref, work);
+        assertArrayEquals(ref, out);
+
+        Mat3.similarityTransposed(r, c, out);
+        SmallMatrix.similarity(3, rt, c, ref, work);
+        assertArrayEquals(ref, out);
+
+        assertTrue(Mat3.invert(r, out));
+        SmallMatrix.invert(3, r, ref, work);
+        assertArrayEquals(ref, out);
+    }
+
+    public void testMat5() {
+        double[] a = random(25);
+        double[] b = random(25);
+        double[] x = random(5);
+        double[] out = new double[25];
+        double[] ref = new double[25];
+        double[] work = new double[25];
+
+        // Same sums in the same order, so the results are identical
+        Mat5.multiply(a, b, out);
+        SmallMatrix.multiply(5, a, b, ref);
+        assertArrayEquals(ref, out, 0.);
+
+        Mat5.multiplyTransposed(a, b, out);
+        SmallMatrix.multiplyTransposed(5, a, b, ref);
+        assertArrayEquals(ref, out, 0.);
+
+        Mat5.similarity(a, b, out);
+        SmallMatrix.similarity(5, a, b, ref, work);
+        assertArrayEquals(ref, out, 0.);
+
+        double[] ax = new double[5];
+        double[] axRef = new double[5];
+        Mat5.multiplyVector(a, x, ax);
+        SmallMatrix.multiplyVector(5, a, x, axRef);
+        assertArrayEquals(axRef, ax, 0.);
+    }
+
+    private static void assertArrayEquals(double[] expected, double[] actual) {
+        assertArrayEquals(expected, actual, 1.e-10);
+    }
+
+    private static void assertArrayEquals(double[] expected, double[] actual, double delta) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], actual[i], delta);
+        }
+    }
+}
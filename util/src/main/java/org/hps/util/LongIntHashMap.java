@@ -0,0 +1,147 @@
+package org.hps.util;
+
+/**
+ * A hash map from primitive <code>long</code> keys to non-negative <code>int</code> values, such as the dense
+ * indices of encoded detector IDs, which does not create any objects on lookup.
+ * <p>
+ * The map uses open addressing with linear probing and is kept at most half full so that probe sequences stay short.
+ * Entries cannot be removed.
+ */
+public final class LongIntHashMap {
+
+    /**
+     * The smallest table size.
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * The keys of the table.
+     */
+    private long[] keys;
+
+    /**
+     * The values of the table plus one, so that zero marks an empty slot.
+     */
+    private int[] values;
+
+    /**
+     * The mask of the table size, which is a power of two.
+     */
+    private int mask;
+
+    /**
+     * The number of entries.
+     */
+    private int size = 0;
+
+    /**
+     * Create a map sized for the given number of entries.
+     *
+     * @param expectedSize the number of entries to make room for
+     */
+    public LongIntHashMap(final int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        this.allocate(capacity);
+    }
+
+    /**
+     * Get the hash of a key, mixing its high bits (where encoded IDs usually pack their fields) into the low bits. The
+     * first slot of a key is this hash masked by the table size minus one.
+     *
+     * @param key the key
+     * @return the hash
+     */
+    public static int hash(final long key) {
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * Get the value of a key.
+     *
+     * @param key the key
+     * @return the value or -1 if the key is not in the map
+     */
+    public int get(final long key) {
+        int slot = hash(key) & this.mask;
+        int value;
+        while ((value = this.values[slot]) != 0) {
+            if (this.keys[slot] == key) {
+                return value - 1;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Set the value of a key.
+     *
+     * @param key the key
+     * @param value the value, which must not be negative
+     * @return the previous value or -1 if the key was not in the map
+     * @throws IllegalArgumentException if the value is negative
+     */
+    public int put(final long key, final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value " + value + " for key " + key + ".");
+        }
+        int slot = hash(key) & this.mask;
+        int previous;
+        while ((previous = this.values[slot]) != 0) {
+            if (this.keys[slot] == key) {
+                this.values[slot] = value + 1;
+                return previous - 1;
+            }
+            slot = (slot + 1) & this.mask;
+        }
+        this.keys[slot] = key;
+        this.values[slot] = value + 1;
+        if (2 * ++this.size > this.keys.length) {
+            this.rehash();
+        }
+        return -1;
+    }
+
+    /**
+     * Get the number of entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Allocate an empty table.
+     *
+     * @param capacity the table size, which must be a power of two
+     */
+    private void allocate(final int capacity) {
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Double the table size and insert the entries again.
+     */
+    private void rehash() {
+        final long[] oldKeys = this.keys;
+        final int[] oldValues = this.values;
+        this.allocate(2 * oldKeys.length);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != 0) {
+                int slot = hash(oldKeys[i]) & this.mask;
+                while (this.values[slot] != 0) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+}
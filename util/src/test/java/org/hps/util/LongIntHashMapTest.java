@@ -0,0 +1,81 @@
+package org.hps.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the {@link LongIntHashMap} against a {@link HashMap}.
+ */
+public final class LongIntHashMapTest extends TestCase {
+
+    /**
+     * Missing keys are not found, also after probing past colliding keys and wrapping around the table.
+     */
+    public void testMissingKeys() {
+        final LongIntHashMap map = new LongIntHashMap(4);
+        assertEquals(-1, map.get(0L));
+
+        // Keys whose first slot is the last one of the table.
+        final long[] keys = new long[6];
+        int found = 0;
+        for (long key = 1L << 32; found < keys.length; key++) {
+            if ((LongIntHashMap.hash(key) & 15) == 15) {
+                keys[found++] = key;
+            }
+        }
+        for (int i = 0; i < 4; i++) {
+            assertEquals(-1, map.put(keys[i], i));
+        }
+        assertEquals(4, map.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, map.get(keys[i]));
+        }
+        assertEquals(-1, map.get(keys[4]));
+        assertEquals(-1, map.get(keys[5]));
+        assertEquals(-1, map.get(keys[0] + 1));
+    }
+
+    /**
+     * Putting a key again replaces its value, and negative values are rejected.
+     */
+    public void testReplace() {
+        final LongIntHashMap map = new LongIntHashMap(1);
+        assertEquals(-1, map.put(-5L, 0));
+        assertEquals(0, map.put(-5L, 7));
+        assertEquals(7, map.get(-5L));
+        assertEquals(1, map.size());
+        try {
+            map.put(3L, -1);
+            fail("No exception for a negative value.");
+        } catch (final IllegalArgumentException e) {
+        }
+        assertEquals(-1, map.get(3L));
+    }
+
+    /**
+     * A map that grows well past its expected size gives the same values as a {@link HashMap}.
+     */
+    public void testGrow() {
+        final Random random = new Random(7L);
+        final LongIntHashMap map = new LongIntHashMap(0);
+        final Map<Long, Integer> reference = new HashMap<Long, Integer>();
+        for (int i = 0; i < 5000; i++) {
+            // Few distinct high bits, as in encoded detector IDs.
+            final long key = ((long) random.nextInt(64) << 32) | random.nextInt(64);
+            final int value = random.nextInt(1000);
+            final Integer previous = reference.put(key, value);
+            assertEquals(previous == null ? -1 : previous.intValue(), map.put(key, value));
+            assertEquals(reference.size(), map.size());
+        }
+        for (long high = 0; high < 65; high++) {
+            for (long low = 0; low < 65; low++) {
+                final long key = (high << 32) | low;
+                final Integer value = reference.get(key);
+                assertEquals(value == null ? -1 : value.intValue(), map.get(key));
+            }
+        }
+    }
+}